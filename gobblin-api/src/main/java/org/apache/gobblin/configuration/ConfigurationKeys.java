@@ -156,6 +156,19 @@ public class ConfigurationKeys {
   public static final int DEFAULT_TASK_EXECUTOR_THREADPOOL_SIZE = 2;
   public static final int DEFAULT_TASK_STATE_TRACKER_THREAD_POOL_CORE_SIZE = 1;
   public static final int DEFAULT_TASK_RETRY_THREAD_POOL_CORE_SIZE = 1;
+  /**
+   * Threads tasks and forks run on: "platform", or "virtual" for I/O bound jobs (falls back to platform threads on JDKs
+   * without virtual threads). With virtual threads, {@link #TASK_EXECUTOR_THREADPOOL_SIZE_KEY} can be set much higher
+   * as a task blocked on I/O does not hold an OS thread. The carrier threads virtual threads run on are shared by the
+   * whole JVM, and are sized with the {@code -Djdk.virtualThreadScheduler.parallelism} (the number of cores by default)
+   * and {@code -Djdk.virtualThreadScheduler.maxPoolSize} JVM launch options.
+   */
+  public static final String TASK_EXECUTOR_THREAD_MODE_KEY = "taskexecutor.threadMode";
+  public static final String DEFAULT_TASK_EXECUTOR_THREAD_MODE = "platform";
+  // Virtual threads pinned to their carrier for longer than this are reported, 0 disables reporting
+  public static final String TASK_EXECUTOR_VIRTUAL_THREAD_PINNED_REPORT_THRESHOLD_MILLIS_KEY =
+      "taskexecutor.virtualThread.pinnedReportThresholdMillis";
+  public static final long DEFAULT_TASK_EXECUTOR_VIRTUAL_THREAD_PINNED_REPORT_THRESHOLD_MILLIS = 20L;
 
   /**
    * Common flow configuration properties.
@@ -447,6 +460,9 @@ public class ConfigurationKeys {
   public static final String WRITER_PRESERVE_FILE_NAME = WRITER_PREFIX + ".preserve.file.name";
   public static final String WRITER_DEFLATE_LEVEL = WRITER_PREFIX + ".deflate.level";
   public static final String WRITER_CODEC_TYPE = WRITER_PREFIX + ".codec.type";
+  public static final String WRITER_CODEC_LEVEL = WRITER_PREFIX + ".codec.level";
+  public static final String WRITER_CODEC_WORKERS = WRITER_PREFIX + ".codec.workers";
+  public static final String WRITER_CODEC_DICTIONARY_PATH = WRITER_PREFIX + ".codec.dictionary.path";
   public static final String WRITER_EAGER_INITIALIZATION_KEY = WRITER_PREFIX + ".eager.initialization";
   public static final String WRITER_PARTITIONER_CLASS = WRITER_PREFIX + ".partitioner.class";
   public static final String WRITER_SKIP_NULL_RECORD = WRITER_PREFIX + ".skipNullRecord";
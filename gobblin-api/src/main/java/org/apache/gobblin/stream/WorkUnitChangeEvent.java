@@ -18,6 +18,7 @@
 package org.apache.gobblin.stream;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import lombok.Getter;
 import org.apache.gobblin.source.workunit.WorkUnit;
 
@@ -30,6 +31,13 @@ public class WorkUnitChangeEvent {
   private final List<String> oldTaskIds;
   @Getter
   private final List<WorkUnit> newWorkUnits;
+  /**
+   * Completed by the job launcher with the work units added to the job once the change has been applied, or
+   * completed exceptionally if the change was dismissed or failed. {@link com.google.common.eventbus.EventBus}
+   * swallows subscriber exceptions, so this is the only way for the poster to learn the outcome.
+   */
+  @Getter
+  private final CompletableFuture<List<WorkUnit>> applied = new CompletableFuture<>();
   public WorkUnitChangeEvent(List<String> oldTaskIds, List<WorkUnit> newWorkUnits) {
     this.oldTaskIds = oldTaskIds;
     this.newWorkUnits = newWorkUnits;
@@ -42,6 +42,31 @@ public class GobblinClusterConfigurationKeys {
   public static final String TASK_JVM_OPTIONS =
       GOBBLIN_CLUSTER_PREFIX + "task.jvm.options";
 
+  // Warm task runner pool properties, only used when tasks run in separate processes
+  public static final String TASK_WARM_POOL_ENABLED =
+      GOBBLIN_CLUSTER_PREFIX + "task.warmPool.enabled";
+  public static final boolean DEFAULT_TASK_WARM_POOL_ENABLED = false;
+  // Number of pre-initialized task runner processes kept alive, busy or idle. Usually the task concurrency of a container
+  public static final String TASK_WARM_POOL_SIZE =
+      GOBBLIN_CLUSTER_PREFIX + "task.warmPool.size";
+  public static final int DEFAULT_TASK_WARM_POOL_SIZE = 2;
+  // A task runner process is recycled after running this many tasks, to bound leaks across jobs
+  public static final String TASK_WARM_POOL_MAX_TASKS_PER_RUNNER =
+      GOBBLIN_CLUSTER_PREFIX + "task.warmPool.maxTasksPerRunner";
+  public static final int DEFAULT_TASK_WARM_POOL_MAX_TASKS_PER_RUNNER = 100;
+  // A task runner process that has not connected to the pool and initialized its services in this time is killed
+  public static final String TASK_WARM_POOL_RUNNER_STARTUP_TIMEOUT_SECONDS =
+      GOBBLIN_CLUSTER_PREFIX + "task.warmPool.runnerStartupTimeoutSeconds";
+  public static final long DEFAULT_TASK_WARM_POOL_RUNNER_STARTUP_TIMEOUT_SECONDS = 300;
+  // A task that has not reported its result in this time fails, and the task runner process running it is killed
+  public static final String TASK_WARM_POOL_TASK_TIMEOUT_SECONDS =
+      GOBBLIN_CLUSTER_PREFIX + "task.warmPool.taskTimeoutSeconds";
+  public static final long DEFAULT_TASK_WARM_POOL_TASK_TIMEOUT_SECONDS = 10800;
+  // Share the top level SharedResourcesBroker across tasks (and jobs with the same broker configuration)
+  public static final String TASK_SHARED_BROKER_ENABLED =
+      GOBBLIN_CLUSTER_PREFIX + "task.sharedBroker.enabled";
+  public static final boolean DEFAULT_TASK_SHARED_BROKER_ENABLED = false;
+
   // General Gobblin Cluster application configuration properties.
   public static final String APPLICATION_NAME_OPTION_NAME = "app_name";
   public static final String APPLICATION_ID_OPTION_NAME = "app_id";
@@ -127,6 +152,10 @@ public class GobblinClusterConfigurationKeys {
   // This is the directory to store job.state files when a state store is used.
   // Note that a .job.state file is not the same thing as a .jst file.
   public static final String JOB_STATE_DIR_NAME = "_jobstates";
+  // Directory of the commit markers that let a single attempt of a task commit under speculative execution
+  public static final String TASK_COMMIT_MARKER_DIR_NAME = "_taskcommitmarkers";
+  // Directory of the markers through which Helix tasks claim work units under work stealing
+  public static final String WORK_UNIT_CLAIM_DIR_NAME = "_workunitclaims";
   public static final String TAR_GZ_FILE_SUFFIX = ".tar.gz";
 
   // Other misc configuration properties.
@@ -165,6 +194,48 @@ public class GobblinClusterConfigurationKeys {
   public static final String HELIX_TASK_TIMEOUT_SECONDS = "helix.task.timeout.seconds";
   public static final String HELIX_TASK_MAX_ATTEMPTS_KEY = "helix.task.maxAttempts";
 
+  // Speculative execution of straggler Helix tasks. Only enable for jobs whose constructs are speculative attempt safe
+  public static final String HELIX_SPECULATIVE_EXECUTION_ENABLED = "helix.speculativeExecution.enabled";
+  public static final boolean DEFAULT_HELIX_SPECULATIVE_EXECUTION_ENABLED = false;
+  public static final String HELIX_SPECULATIVE_EXECUTION_CHECK_INTERVAL_SECONDS =
+      "helix.speculativeExecution.checkIntervalSeconds";
+  public static final long DEFAULT_HELIX_SPECULATIVE_EXECUTION_CHECK_INTERVAL_SECONDS = 30L;
+  // Tasks running for less than this are never considered stragglers
+  public static final String HELIX_SPECULATIVE_EXECUTION_MIN_RUNTIME_SECONDS =
+      "helix.speculativeExecution.minRuntimeSeconds";
+  public static final long DEFAULT_HELIX_SPECULATIVE_EXECUTION_MIN_RUNTIME_SECONDS = 300L;
+  // Fraction of the tasks of a job that must be finished before stragglers are looked for
+  public static final String HELIX_SPECULATIVE_EXECUTION_MIN_FINISHED_FRACTION =
+      "helix.speculativeExecution.minFinishedFraction";
+  public static final double DEFAULT_HELIX_SPECULATIVE_EXECUTION_MIN_FINISHED_FRACTION = 0.5;
+  // A task is a straggler if its record rate is below this fraction of the median rate of its peers
+  public static final String HELIX_SPECULATIVE_EXECUTION_SLOW_RATE_RATIO = "helix.speculativeExecution.slowRateRatio";
+  public static final double DEFAULT_HELIX_SPECULATIVE_EXECUTION_SLOW_RATE_RATIO = 0.5;
+  // ... or if it has been running for longer than this multiple of the median duration of finished tasks
+  public static final String HELIX_SPECULATIVE_EXECUTION_SLOW_DURATION_RATIO =
+      "helix.speculativeExecution.slowDurationRatio";
+  public static final double DEFAULT_HELIX_SPECULATIVE_EXECUTION_SLOW_DURATION_RATIO = 2.0;
+  // Maximum number of speculative attempts of a job, as a fraction of its tasks (at least one)
+  public static final String HELIX_SPECULATIVE_EXECUTION_MAX_ATTEMPTS_FRACTION =
+      "helix.speculativeExecution.maxAttemptsFraction";
+  public static final double DEFAULT_HELIX_SPECULATIVE_EXECUTION_MAX_ATTEMPTS_FRACTION = 0.1;
+  // How often a running Helix task reports its progress when speculative execution is enabled
+  public static final String HELIX_TASK_PROGRESS_REPORT_INTERVAL_SECONDS = "helix.task.progressReportIntervalSeconds";
+  public static final long DEFAULT_HELIX_TASK_PROGRESS_REPORT_INTERVAL_SECONDS = 30L;
+  // Task config keys set by the job launcher on the tasks of jobs with speculative execution
+  public static final String TASK_COMMIT_MARKER_DIR_KEY = "TASK_COMMIT_MARKER_DIR";
+  public static final String SPECULATIVE_ATTEMPT_OF_KEY = "SPECULATIVE_ATTEMPT_OF";
+
+  // Work stealing: Helix tasks claim their work units one at a time, and once done with their own, claim the
+  // unstarted work units of the other tasks of the job. Not compatible with speculative execution
+  public static final String HELIX_WORK_STEALING_ENABLED = "helix.workStealing.enabled";
+  public static final boolean DEFAULT_HELIX_WORK_STEALING_ENABLED = false;
+  // Number of work units a Helix task runs at a time under work stealing, the others stay available to other tasks
+  public static final String HELIX_WORK_STEALING_MAX_TASKS_IN_FLIGHT = "helix.workStealing.maxTasksInFlight";
+  public static final int DEFAULT_HELIX_WORK_STEALING_MAX_TASKS_IN_FLIGHT = 2;
+  // Task config key set by the job launcher on the tasks of jobs with work stealing
+  public static final String WORK_UNIT_CLAIM_DIR_KEY = "WORK_UNIT_CLAIM_DIR";
+
   public static final String HELIX_WORKFLOW_SUBMISSION_TIMEOUT_SECONDS = GOBBLIN_CLUSTER_PREFIX + "workflowSubmissionTimeoutSeconds";
   public static final long DEFAULT_HELIX_WORKFLOW_SUBMISSION_TIMEOUT_SECONDS = 300;
 
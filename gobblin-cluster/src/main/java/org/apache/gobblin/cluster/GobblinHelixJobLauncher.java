@@ -146,6 +146,10 @@ public class GobblinHelixJobLauncher extends AbstractJobLauncher {
   private final long helixJobStopTimeoutSeconds;
   private final long helixWorkflowSubmissionTimeoutSeconds;
   private Map<String, TaskConfig> helixIdTaskConfigMap;
+  private final boolean speculativeExecutionEnabled;
+  private final Path taskCommitMarkerDir;
+  private final boolean workStealingEnabled;
+  private final Path workUnitClaimDir;
   private Retryer<Boolean> taskRetryer;
 
   public GobblinHelixJobLauncher(Properties jobProps, final HelixManager helixManager, Path appWorkDir,
@@ -200,6 +204,24 @@ public class GobblinHelixJobLauncher extends AbstractJobLauncher {
 
     this.helixMetrics = helixMetrics;
     this.helixIdTaskConfigMap = new HashMap<>();
+    // Streaming tasks never finish, so there is nothing to gain from speculating on them or stealing their work
+    boolean streaming = Task.getExecutionModel(ConfigUtils.configToState(jobConfig)).equals(ExecutionModel.STREAMING);
+    this.workStealingEnabled = ConfigUtils.getBoolean(jobConfig,
+        GobblinClusterConfigurationKeys.HELIX_WORK_STEALING_ENABLED,
+        GobblinClusterConfigurationKeys.DEFAULT_HELIX_WORK_STEALING_ENABLED) && !streaming;
+    boolean speculativeExecutionRequested = ConfigUtils.getBoolean(jobConfig,
+        GobblinClusterConfigurationKeys.HELIX_SPECULATIVE_EXECUTION_ENABLED,
+        GobblinClusterConfigurationKeys.DEFAULT_HELIX_SPECULATIVE_EXECUTION_ENABLED) && !streaming;
+    if (speculativeExecutionRequested && this.workStealingEnabled) {
+      // A speculative attempt would find the work units of its task claimed by the original attempt
+      LOGGER.warn("Speculative execution is disabled for job {} as work stealing is enabled",
+          this.jobContext.getJobId());
+    }
+    this.speculativeExecutionEnabled = speculativeExecutionRequested && !this.workStealingEnabled;
+    this.taskCommitMarkerDir = new Path(new Path(appWorkDir, GobblinClusterConfigurationKeys.TASK_COMMIT_MARKER_DIR_NAME),
+        this.jobContext.getJobId());
+    this.workUnitClaimDir = new Path(new Path(appWorkDir, GobblinClusterConfigurationKeys.WORK_UNIT_CLAIM_DIR_NAME),
+        this.jobContext.getJobId());
     this.taskRetryer = RetryerBuilder.<Boolean>newBuilder()
         .retryIfException()
         .withStopStrategy(StopStrategies.stopAfterAttempt(3)).build();
@@ -221,6 +243,7 @@ public class GobblinHelixJobLauncher extends AbstractJobLauncher {
 
   @Override
   protected void runWorkUnits(List<WorkUnit> workUnits) throws Exception {
+    Optional<SpeculativeExecutionManager> speculativeExecutionManager = Optional.empty();
     try {
       CountEventBuilder countEventBuilder = new CountEventBuilder(JobEvent.WORK_UNITS_CREATED, workUnits.size());
       this.eventSubmitter.submit(countEventBuilder);
@@ -248,6 +271,12 @@ public class GobblinHelixJobLauncher extends AbstractJobLauncher {
           jobSubmissionTimer.stop();
           LOGGER.info(String.format("Submitted job %s to Helix", this.jobContext.getJobId()));
           this.jobSubmitted = true;
+          if (this.speculativeExecutionEnabled) {
+            speculativeExecutionManager = Optional.of(new SpeculativeExecutionManager(this.helixTaskDriver,
+                this.helixWorkFlowName, this.jobContext.getJobId(), this.helixIdTaskConfigMap,
+                new TaskCommitArbiter(this.fs, this.taskCommitMarkerDir), this.jobConfig, this.helixMetrics));
+            speculativeExecutionManager.get().start();
+          }
         } else {
           LOGGER.warn("Job {} not submitted to Helix as it was requested to be cancelled.", this.jobContext.getJobId());
         }
@@ -262,6 +291,7 @@ public class GobblinHelixJobLauncher extends AbstractJobLauncher {
       jobRunTimer.stop();
       LOGGER.info(String.format("Job %s completed", this.jobContext.getJobId()));
     } finally {
+      speculativeExecutionManager.ifPresent(SpeculativeExecutionManager::close);
       // The last iteration of output TaskState collecting will run when the collector service gets stopped
       this.taskStateCollectorService.stopAsync().awaitTerminated();
       cleanupWorkingDirectory();
@@ -286,13 +316,16 @@ public class GobblinHelixJobLauncher extends AbstractJobLauncher {
     log.info("Received WorkUnitChangeEvent with old Task {} and new WU {}",
         workUnitChangeEvent.getOldTaskIds(), workUnitChangeEvent.getNewWorkUnits());
     final JobState jobState = this.jobContext.getJobState();
+    List<String> oldHelixTaskIds = toHelixTaskIds(workUnitChangeEvent.getOldTaskIds());
     List<WorkUnit> workUnits = workUnitChangeEvent.getNewWorkUnits();
     // Use old task Id to recalculate new work units
     if(workUnits == null || workUnits.isEmpty()) {
-      workUnits = recalculateWorkUnit(workUnitChangeEvent.getOldTaskIds());
+      workUnits = recalculateWorkUnit(oldHelixTaskIds);
       // If no new valid work units can be generated, dismiss the WorkUnitChangeEvent
       if(workUnits == null || workUnits.isEmpty()) {
         log.info("Not able to update work unit meaningfully, dismiss the WorkUnitChangeEvent");
+        workUnitChangeEvent.getApplied().completeExceptionally(
+            new IllegalStateException("WorkUnitChangeEvent dismissed: no new work units"));
         return;
       }
     }
@@ -305,16 +338,45 @@ public class GobblinHelixJobLauncher extends AbstractJobLauncher {
     workUnitStream = this.processWorkUnitStream(workUnitStream, jobState);
     workUnits = materializeWorkUnitList(workUnitStream);
     try {
-      this.removeTasksFromCurrentJob(workUnitChangeEvent.getOldTaskIds());
+      this.removeTasksFromCurrentJob(oldHelixTaskIds);
       this.addTasksToCurrentJob(workUnits);
+      workUnitChangeEvent.getApplied().complete(workUnits);
     } catch (Exception e) {
       //todo: emit some event to indicate there is an error handling this event that may cause starvation
       log.error("Failed to process WorkUnitChangeEvent with old tasks {} and new workunits {}.",
           workUnitChangeEvent.getOldTaskIds(), workUnits, e);
+      workUnitChangeEvent.getApplied().completeExceptionally(e);
       throw new InvocationTargetException(e);
     }
   }
 
+  /**
+   * Sources only know the Gobblin task ids of the work units they created, so a {@link WorkUnitChangeEvent} may
+   * identify old tasks either by Helix task id or by Gobblin task id. Translate the latter into Helix task ids.
+   */
+  private List<String> toHelixTaskIds(List<String> taskIds) {
+    List<String> helixTaskIds = new ArrayList<>(taskIds.size());
+    for (String taskId : taskIds) {
+      if (this.helixIdTaskConfigMap.containsKey(taskId)) {
+        helixTaskIds.add(taskId);
+        continue;
+      }
+      String helixTaskId = null;
+      for (Map.Entry<String, TaskConfig> entry : this.helixIdTaskConfigMap.entrySet()) {
+        if (taskId.equals(entry.getValue().getConfigMap().get(ConfigurationKeys.TASK_ID_KEY))) {
+          helixTaskId = entry.getKey();
+          break;
+        }
+      }
+      if (helixTaskId == null) {
+        log.warn("Unable to find helix task for task id {}; it will not be removed", taskId);
+      } else {
+        helixTaskIds.add(helixTaskId);
+      }
+    }
+    return helixTaskIds;
+  }
+
   private List<WorkUnit> recalculateWorkUnit(List<String> oldHelixTaskIDs) {
     JobState jobState = this.jobContext.getJobState();
     Map<String, List<Integer>> filteredTopicPartition = new HashMap<>();
@@ -596,6 +658,12 @@ public class GobblinHelixJobLauncher extends AbstractJobLauncher {
     rawConfigMap.put(ConfigurationKeys.JOB_ID_KEY, this.jobContext.getJobId());
     rawConfigMap.put(ConfigurationKeys.TASK_ID_KEY, workUnit.getId());
     rawConfigMap.put(GobblinClusterConfigurationKeys.TASK_SUCCESS_OPTIONAL_KEY, "true");
+    if (this.speculativeExecutionEnabled) {
+      rawConfigMap.put(GobblinClusterConfigurationKeys.TASK_COMMIT_MARKER_DIR_KEY, this.taskCommitMarkerDir.toString());
+    }
+    if (this.workStealingEnabled) {
+      rawConfigMap.put(GobblinClusterConfigurationKeys.WORK_UNIT_CLAIM_DIR_KEY, this.workUnitClaimDir.toString());
+    }
     TaskConfig taskConfig = TaskConfig.Builder.from(rawConfigMap);
     helixIdTaskConfigMap.put(taskConfig.getId(), taskConfig);
     return taskConfig;
@@ -724,5 +792,12 @@ public class GobblinHelixJobLauncher extends AbstractJobLauncher {
           GobblinClusterUtils.getJobStateFilePath(false, this.appWorkDir, this.jobContext.getJobId());
       this.fs.delete(jobStateFilePath, false);
     }
+
+    if (this.speculativeExecutionEnabled) {
+      this.fs.delete(this.taskCommitMarkerDir, true);
+    }
+    if (this.workStealingEnabled) {
+      this.fs.delete(this.workUnitClaimDir, true);
+    }
   }
 }
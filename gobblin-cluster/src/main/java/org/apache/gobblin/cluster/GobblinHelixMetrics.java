@@ -30,10 +30,17 @@ public class GobblinHelixMetrics extends StandardMetricsBridge.StandardMetrics {
   public static final String TIMER_FOR_HELIX_WAIT = "timeForHelixWait";
   public static final String TIMER_FOR_HELIX_SUBMIT = "timeForHelixSubmit";
   public static final String METER_FOR_HELIX_SUBMIT = "meterForHelixSubmit";
+  public static final String METER_FOR_SPECULATIVE_ATTEMPTS_LAUNCHED = "meterForSpeculativeAttemptsLaunched";
+  public static final String METER_FOR_SPECULATIVE_ATTEMPTS_WON = "meterForSpeculativeAttemptsWon";
+  public static final String TIMER_FOR_SPECULATIVE_EXECUTION_SAVED_TIME = "timeSavedBySpeculativeExecution";
   final String metricsName;
   final ContextAwareTimer timeForHelixWait;
   final ContextAwareTimer timeForHelixSubmit;
   final ContextAwareMeter submitMeter;
+  final ContextAwareMeter speculativeAttemptsLaunchedMeter;
+  final ContextAwareMeter speculativeAttemptsWonMeter;
+  // Estimated task completion time saved by speculative attempts that committed before their original attempt
+  final ContextAwareTimer timeSavedBySpeculativeExecution;
 
   public GobblinHelixMetrics(String metricsName, final MetricContext metricContext, int windowSizeInMin) {
     this.metricsName = metricsName;
@@ -43,6 +50,13 @@ public class GobblinHelixMetrics extends StandardMetricsBridge.StandardMetrics {
     this.contextAwareMetrics.add(timeForHelixWait);
     this.contextAwareMetrics.add(timeForHelixSubmit);
     this.contextAwareMetrics.add(submitMeter);
+    this.speculativeAttemptsLaunchedMeter = metricContext.contextAwareMeter(METER_FOR_SPECULATIVE_ATTEMPTS_LAUNCHED);
+    this.speculativeAttemptsWonMeter = metricContext.contextAwareMeter(METER_FOR_SPECULATIVE_ATTEMPTS_WON);
+    this.timeSavedBySpeculativeExecution =
+        metricContext.contextAwareTimer(TIMER_FOR_SPECULATIVE_EXECUTION_SAVED_TIME, windowSizeInMin, TimeUnit.MINUTES);
+    this.contextAwareMetrics.add(speculativeAttemptsLaunchedMeter);
+    this.contextAwareMetrics.add(speculativeAttemptsWonMeter);
+    this.contextAwareMetrics.add(timeSavedBySpeculativeExecution);
   }
 
   public void updateTimeForHelixSubmit(long startTime) {
@@ -57,6 +71,12 @@ public class GobblinHelixMetrics extends StandardMetricsBridge.StandardMetrics {
         System.currentTimeMillis() - startTime, TimeUnit.MILLISECONDS);
   }
 
+  public void updateTimeSavedBySpeculativeExecution(long savedMillis) {
+    Instrumented.updateTimer(
+        com.google.common.base.Optional.of(this.timeSavedBySpeculativeExecution),
+        savedMillis, TimeUnit.MILLISECONDS);
+  }
+
   @Override
   public String getName() {
     return this.metricsName;
@@ -19,6 +19,10 @@ package org.apache.gobblin.cluster;
 
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.gobblin.broker.SharedResourcesBrokerFactory;
 import org.apache.gobblin.configuration.ConfigurationKeys;
@@ -27,6 +31,8 @@ import org.apache.gobblin.runtime.TaskState;
 import org.apache.gobblin.runtime.util.StateStores;
 import org.apache.gobblin.source.workunit.MultiWorkUnit;
 import org.apache.gobblin.source.workunit.WorkUnit;
+import org.apache.gobblin.util.ConfigUtils;
+import org.apache.gobblin.util.ExecutorsUtils;
 import org.apache.gobblin.util.Id;
 import org.apache.gobblin.util.event.ContainerHealthCheckFailureEvent;
 import org.apache.gobblin.util.eventbus.EventBusFactory;
@@ -41,9 +47,11 @@ import org.apache.helix.task.TaskCallbackContext;
 import org.apache.helix.task.TaskConfig;
 import org.apache.helix.task.TaskDriver;
 import org.apache.helix.task.TaskResult;
+import org.apache.helix.task.UserContentStore;
 import org.slf4j.MDC;
 
 import com.github.rholder.retry.Retryer;
+import com.google.common.base.Optional;
 import com.google.common.base.Throwables;
 import com.google.common.eventbus.EventBus;
 import com.google.common.io.Closer;
@@ -72,9 +80,20 @@ import static org.apache.gobblin.cluster.HelixTaskEventMetadataGenerator.HELIX_T
  *   {@link org.apache.gobblin.runtime.Task}(s), it persists the {@link TaskState} of each {@link org.apache.gobblin.runtime.Task} to
  *   a file that will be collected by the {@link GobblinHelixJobLauncher} later upon completion of the job.
  * </p>
+ *
+ * <p>
+ *   When speculative execution is enabled for the job, the task periodically reports its {@link HelixTaskProgress} in
+ *   its Helix user content and only commits if it is the first attempt of its work units to finish, see
+ *   {@link SpeculativeExecutionManager}. When work stealing is enabled, the task claims its work units one at a time
+ *   and runs the unclaimed work units of other tasks once done with its own, see {@link WorkStealingWorkUnitIterator}.
+ * </p>
  */
 @Slf4j
-public class GobblinHelixTask implements Task {
+public class GobblinHelixTask extends UserContentStore implements Task {
+
+  // Shared by all the tasks of the container, reporting progress is cheap
+  private static final ScheduledExecutorService PROGRESS_REPORTER = Executors.newSingleThreadScheduledExecutor(
+      ExecutorsUtils.newDaemonThreadFactory(Optional.of(log), Optional.of("HelixTaskProgressReporter")));
 
   private final TaskConfig taskConfig;
   private final String applicationName;
@@ -91,6 +110,9 @@ public class GobblinHelixTask implements Task {
   private String helixTaskId;
   private EventBus eventBus;
   private boolean isCanceled;
+  private boolean reportProgress;
+  private long progressReportIntervalSeconds;
+  private Boolean speculativeSafe;
 
   public GobblinHelixTask(TaskRunnerSuiteBase.Builder builder,
                           TaskCallbackContext taskCallbackContext,
@@ -98,6 +120,21 @@ public class GobblinHelixTask implements Task {
                           StateStores stateStores,
                           GobblinHelixTaskMetrics taskMetrics,
                           TaskDriver taskDriver)
+  {
+    this(builder, taskCallbackContext, taskAttemptBuilder, stateStores, taskMetrics, taskDriver, Optional.absent());
+  }
+
+  /**
+   * @param sharedTopLevelBrokers if present, the {@link SingleTask} reuses the top level brokers it holds instead of
+   *                              creating a new top level broker for every task
+   */
+  public GobblinHelixTask(TaskRunnerSuiteBase.Builder builder,
+                          TaskCallbackContext taskCallbackContext,
+                          TaskAttemptBuilder taskAttemptBuilder,
+                          StateStores stateStores,
+                          GobblinHelixTaskMetrics taskMetrics,
+                          TaskDriver taskDriver,
+                          Optional<SharedTopLevelBrokerCache> sharedTopLevelBrokers)
   {
     this.taskConfig = taskCallbackContext.getTaskConfig();
     this.helixJobId = taskCallbackContext.getJobConfig().getJobId();
@@ -141,6 +178,25 @@ public class GobblinHelixTask implements Task {
               dynamicConfig);
         }
       });
+      if (sharedTopLevelBrokers.isPresent()) {
+        this.task.setSharedTopLevelBrokers(sharedTopLevelBrokers.get());
+      }
+      Map<String, String> configMap = this.taskConfig.getConfigMap();
+      if (configMap.containsKey(GobblinClusterConfigurationKeys.TASK_COMMIT_MARKER_DIR_KEY)) {
+        this.task.setCommitArbiter(new TaskCommitArbiter(builder.getFs(),
+                new Path(configMap.get(GobblinClusterConfigurationKeys.TASK_COMMIT_MARKER_DIR_KEY))), this.helixTaskId,
+            configMap.containsKey(GobblinClusterConfigurationKeys.SPECULATIVE_ATTEMPT_OF_KEY));
+        this.reportProgress = true;
+        this.progressReportIntervalSeconds = ConfigUtils.getLong(builder.getConfig(),
+            GobblinClusterConfigurationKeys.HELIX_TASK_PROGRESS_REPORT_INTERVAL_SECONDS,
+            GobblinClusterConfigurationKeys.DEFAULT_HELIX_TASK_PROGRESS_REPORT_INTERVAL_SECONDS);
+      }
+      if (configMap.containsKey(GobblinClusterConfigurationKeys.WORK_UNIT_CLAIM_DIR_KEY)) {
+        this.task.setWorkStealing(new Path(configMap.get(GobblinClusterConfigurationKeys.WORK_UNIT_CLAIM_DIR_KEY)),
+            this.helixTaskId, ConfigUtils.getInt(builder.getConfig(),
+                GobblinClusterConfigurationKeys.HELIX_WORK_STEALING_MAX_TASKS_IN_FLIGHT,
+                GobblinClusterConfigurationKeys.DEFAULT_HELIX_WORK_STEALING_MAX_TASKS_IN_FLIGHT));
+      }
     } catch (Exception e) {
       log.error("Execution in creating a SingleTask-with-retry failed, will create a failing task", e);
       this.task = new SingleFailInCreationTask(jobId, workUnitFilePath, jobStateFilePath, builder.getFs(), taskAttemptBuilder,
@@ -165,9 +221,14 @@ public class GobblinHelixTask implements Task {
     this.isCanceled = false;
     long startTime = System.currentTimeMillis();
     log.info("Actual task {} started. [{} {}]", this.taskId, this.applicationName, this.instanceName);
+    ScheduledFuture<?> progressReport = null;
     try (Closer closer = Closer.create()) {
       closer.register(MDC.putCloseable(ConfigurationKeys.JOB_NAME_KEY, this.jobName));
       closer.register(MDC.putCloseable(ConfigurationKeys.JOB_KEY_KEY, this.jobKey));
+      if (this.reportProgress) {
+        progressReport = PROGRESS_REPORTER.scheduleAtFixedRate(this::reportProgress,
+            this.progressReportIntervalSeconds, this.progressReportIntervalSeconds, TimeUnit.SECONDS);
+      }
       this.task.run();
       // Since we enable gracefully cancel, when task get cancelled, we might not see any exception,
       // so we check the isCanceled flag to make sure we return the correct task status
@@ -196,11 +257,41 @@ public class GobblinHelixTask implements Task {
       this.taskMetrics.helixTaskTotalCancelled.incrementAndGet();
       return new TaskResult(TaskResult.Status.FAILED, "");
     } finally {
+      if (progressReport != null) {
+        progressReport.cancel(false);
+        reportProgress();
+      }
       this.taskMetrics.helixTaskTotalRunning.decrementAndGet();
       this.taskMetrics.updateTimeForTaskExecution(startTime);
     }
   }
 
+  /**
+   * Publish the {@link HelixTaskProgress} of the task in its Helix user content.
+   */
+  private synchronized void reportProgress() {
+    try {
+      long startTimeMillis = this.task.getTaskAttemptStartTimeMillis();
+      if (startTimeMillis < 0) {
+        return;
+      }
+      long recordsPulled = this.task.getRecordsPulled();
+      // The constructs of the task are only all created once it has started pulling records
+      if (this.speculativeSafe == null && recordsPulled > 0) {
+        try {
+          this.speculativeSafe = this.task.isSpeculativeExecutionSafe();
+        } catch (RuntimeException e) {
+          this.speculativeSafe = false;
+        }
+      }
+      HelixTaskProgress progress = new HelixTaskProgress(startTimeMillis, System.currentTimeMillis(), recordsPulled,
+          Boolean.TRUE.equals(this.speculativeSafe));
+      progress.toUserContent().forEach((key, value) -> putUserContent(key, value, Scope.TASK));
+    } catch (Throwable t) {
+      log.warn("Failed to report the progress of task " + this.helixTaskId, t);
+    }
+  }
+
   private ContainerHealthCheckFailureEvent createTaskCreationEvent(String phase) {
     ContainerHealthCheckFailureEvent event = new ContainerHealthCheckFailureEvent(
         ConfigFactory.parseMap(this.taskConfig.getConfigMap()) , getClass().getName());
@@ -71,6 +71,8 @@ public class GobblinHelixTaskFactory implements TaskFactory {
   private final Path appWorkDir;
   private final StateStores stateStores;
   private final TaskAttemptBuilder taskAttemptBuilder;
+  @Getter
+  private final Optional<SharedTopLevelBrokerCache> sharedTopLevelBrokers;
 
   public GobblinHelixTaskFactory(TaskRunnerSuiteBase.Builder builder,
       MetricContext metricContext,
@@ -116,6 +118,10 @@ public class GobblinHelixTaskFactory implements TaskFactory {
         GobblinClusterConfigurationKeys.JOB_STATE_DIR_NAME);
     this.taskAttemptBuilder = createTaskAttemptBuilder();
     this.taskDriver = taskDriver;
+    this.sharedTopLevelBrokers = ConfigUtils.getBoolean(builder.getConfig(),
+        GobblinClusterConfigurationKeys.TASK_SHARED_BROKER_ENABLED,
+        GobblinClusterConfigurationKeys.DEFAULT_TASK_SHARED_BROKER_ENABLED)
+        ? Optional.of(new SharedTopLevelBrokerCache()) : Optional.absent();
   }
 
   private TaskAttemptBuilder createTaskAttemptBuilder() {
@@ -136,6 +142,7 @@ public class GobblinHelixTaskFactory implements TaskFactory {
       this.taskDriver = Optional.of(new TaskDriver(context.getManager()));
     }
 
-    return new GobblinHelixTask(builder, context, this.taskAttemptBuilder, this.stateStores, this.taskMetrics, this.taskDriver.get());
+    return new GobblinHelixTask(builder, context, this.taskAttemptBuilder, this.stateStores, this.taskMetrics,
+        this.taskDriver.get(), this.sharedTopLevelBrokers);
   }
 }
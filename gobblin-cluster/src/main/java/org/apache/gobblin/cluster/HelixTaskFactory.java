@@ -31,6 +31,9 @@ import com.codahale.metrics.Counter;
 import com.google.common.base.Optional;
 import com.typesafe.config.Config;
 
+import lombok.Getter;
+
+import org.apache.gobblin.util.ConfigUtils;
 import org.apache.gobblin.util.GobblinProcessBuilder;
 import org.apache.gobblin.util.SystemPropertiesWrapper;
 
@@ -49,6 +52,8 @@ public class HelixTaskFactory implements TaskFactory {
    */
   private final Optional<Counter> newTasksCounter;
   private final SingleTaskLauncher launcher;
+  @Getter
+  private final Optional<WarmTaskRunnerPool> warmTaskRunnerPool;
 
   public HelixTaskFactory(Optional<ContainerMetrics> containerMetrics, Path clusterConfPath, Config sysConfig) {
     this.containerMetrics = containerMetrics;
@@ -60,6 +65,12 @@ public class HelixTaskFactory implements TaskFactory {
     }
     launcher = new SingleTaskLauncher(new GobblinProcessBuilder(), new SystemPropertiesWrapper(),
         clusterConfPath, sysConfig);
+    if (ConfigUtils.getBoolean(sysConfig, GobblinClusterConfigurationKeys.TASK_WARM_POOL_ENABLED,
+        GobblinClusterConfigurationKeys.DEFAULT_TASK_WARM_POOL_ENABLED)) {
+      this.warmTaskRunnerPool = Optional.of(new WarmTaskRunnerPool(this.launcher, sysConfig, containerMetrics));
+    } else {
+      this.warmTaskRunnerPool = Optional.absent();
+    }
   }
 
   @Override
@@ -69,6 +80,9 @@ public class HelixTaskFactory implements TaskFactory {
         this.newTasksCounter.get().inc();
       }
       Map<String, String> configMap = context.getTaskConfig().getConfigMap();
+      if (this.warmTaskRunnerPool.isPresent()) {
+        return new WarmSingleHelixTask(this.warmTaskRunnerPool.get(), configMap);
+      }
       return new SingleHelixTask(this.launcher, configMap);
     } catch (IOException ioe) {
       final String msg = "Failed to create a new SingleHelixTask";
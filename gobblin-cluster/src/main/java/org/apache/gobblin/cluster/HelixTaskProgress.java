@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.cluster;
+
+import java.util.Map;
+import java.util.Optional;
+
+import com.google.common.collect.ImmutableMap;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+
+/**
+ * Progress of a running {@link GobblinHelixTask}, reported by the task through the Helix user content store so that
+ * the job launcher can find straggler tasks.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class HelixTaskProgress {
+
+  static final String START_TIME_KEY = "progress.startTimeMillis";
+  static final String REPORT_TIME_KEY = "progress.reportTimeMillis";
+  static final String RECORDS_PULLED_KEY = "progress.recordsPulled";
+  static final String SPECULATIVE_SAFE_KEY = "progress.speculativeSafe";
+
+  /** Time at which the task started processing its work units. */
+  private final long startTimeMillis;
+  /** Time of this report. */
+  private final long reportTimeMillis;
+  private final long recordsPulled;
+  /** Whether every construct of the task is safe to run in several concurrent attempts. */
+  private final boolean speculativeSafe;
+
+  public long getElapsedMillis() {
+    return Math.max(0L, this.reportTimeMillis - this.startTimeMillis);
+  }
+
+  public double getRecordsPerSecond() {
+    long elapsedMillis = getElapsedMillis();
+    return elapsedMillis == 0 ? 0 : this.recordsPulled * 1000.0 / elapsedMillis;
+  }
+
+  Map<String, String> toUserContent() {
+    return ImmutableMap.of(START_TIME_KEY, Long.toString(this.startTimeMillis),
+        REPORT_TIME_KEY, Long.toString(this.reportTimeMillis),
+        RECORDS_PULLED_KEY, Long.toString(this.recordsPulled),
+        SPECULATIVE_SAFE_KEY, Boolean.toString(this.speculativeSafe));
+  }
+
+  /**
+   * @return the progress stored in the user content of a task, absent if the task did not report any.
+   */
+  static Optional<HelixTaskProgress> fromUserContent(Map<String, String> userContent) {
+    if (userContent == null || !userContent.containsKey(START_TIME_KEY) || !userContent.containsKey(REPORT_TIME_KEY)
+        || !userContent.containsKey(RECORDS_PULLED_KEY)) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(new HelixTaskProgress(Long.parseLong(userContent.get(START_TIME_KEY)),
+          Long.parseLong(userContent.get(REPORT_TIME_KEY)), Long.parseLong(userContent.get(RECORDS_PULLED_KEY)),
+          Boolean.parseBoolean(userContent.get(SPECULATIVE_SAFE_KEY))));
+    } catch (NumberFormatException e) {
+      return Optional.empty();
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.cluster;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.base.Splitter;
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigRenderOptions;
+import com.typesafe.config.ConfigValueFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.gobblin.broker.BrokerConstants;
+import org.apache.gobblin.broker.SharedResourcesBrokerFactory;
+import org.apache.gobblin.broker.gobblin_scopes.GobblinScopeTypes;
+import org.apache.gobblin.broker.iface.SharedResourcesBroker;
+import org.apache.gobblin.util.ConfigUtils;
+
+
+/**
+ * Keeps top level {@link SharedResourcesBroker}s alive across {@link SingleTask}s, so that global resources
+ * (e.g. rate limiters, connection pools) created by one task are reused by the following tasks of the same JVM
+ * instead of being torn down and rebuilt for every task.
+ *
+ * <p>
+ *   A top level broker is built from the full job configuration, like the top level broker of a task that does not
+ *   share brokers, and is only shared between jobs with exactly the same broker configuration (the
+ *   {@link BrokerConstants#GOBBLIN_BROKER_CONFIG_PREFIX} subtree of the job configuration and the namespaces listed in
+ *   {@link BrokerConstants#GOBBLIN_BROKER_CONFIG_NAMESPACES}), so a job never sees resources configured for another
+ *   job. Job scoped resources are still released when the job broker of each task is closed. All brokers are closed
+ *   when this service stops.
+ * </p>
+ */
+@Slf4j
+class SharedTopLevelBrokerCache extends AbstractIdleService {
+
+  private static final Splitter LIST_SPLITTER = Splitter.on(",").trimResults().omitEmptyStrings();
+
+  private final Map<String, SharedResourcesBroker<GobblinScopeTypes>> brokers = new ConcurrentHashMap<>();
+
+  /**
+   * @return the shared top level broker for the broker configuration of {@code jobConfig}.
+   */
+  SharedResourcesBroker<GobblinScopeTypes> getBroker(Config jobConfig) {
+    String key = getBrokerConfigKey(jobConfig);
+    return this.brokers.computeIfAbsent(key, k -> {
+      log.info("Creating a shared top level broker for broker configuration {}", k);
+      return SharedResourcesBrokerFactory.createDefaultTopLevelBroker(jobConfig,
+          GobblinScopeTypes.GLOBAL.defaultScopeInstance());
+    });
+  }
+
+  /**
+   * @return the rendered parts of {@code jobConfig} read by a top level broker.
+   */
+  private static String getBrokerConfigKey(Config jobConfig) {
+    Config brokerConfig = ConfigUtils.getConfigOrEmpty(jobConfig, BrokerConstants.GOBBLIN_BROKER_CONFIG_PREFIX)
+        .atPath(BrokerConstants.GOBBLIN_BROKER_CONFIG_PREFIX);
+    if (jobConfig.hasPath(BrokerConstants.GOBBLIN_BROKER_CONFIG_NAMESPACES)) {
+      String namespaces = jobConfig.getString(BrokerConstants.GOBBLIN_BROKER_CONFIG_NAMESPACES);
+      brokerConfig = brokerConfig.withValue(BrokerConstants.GOBBLIN_BROKER_CONFIG_NAMESPACES,
+          ConfigValueFactory.fromAnyRef(namespaces));
+      for (String namespace : LIST_SPLITTER.split(namespaces)) {
+        brokerConfig = brokerConfig.withFallback(ConfigUtils.getConfigOrEmpty(jobConfig, namespace).atPath(namespace));
+      }
+    }
+    return brokerConfig.root().render(ConfigRenderOptions.concise());
+  }
+
+  int size() {
+    return this.brokers.size();
+  }
+
+  @Override
+  protected void startUp() {
+  }
+
+  @Override
+  protected void shutDown() {
+    for (SharedResourcesBroker<GobblinScopeTypes> broker : this.brokers.values()) {
+      try {
+        broker.close();
+      } catch (IOException e) {
+        log.error("Failed to close shared top level broker", e);
+      }
+    }
+    this.brokers.clear();
+  }
+}
@@ -18,6 +18,7 @@
 package org.apache.gobblin.cluster;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
@@ -31,7 +32,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
+import com.google.common.io.Closer;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
@@ -60,7 +63,7 @@ public class SingleTask {
   public static final int DEFAULT_MAX_RETRY_WAITING_FOR_INIT = 2;
 
   @VisibleForTesting
-  GobblinMultiTaskAttempt _taskAttempt;
+  volatile GobblinMultiTaskAttempt _taskAttempt;
   private String _jobId;
   private Path _workUnitFilePath;
   private Path _jobStateFilePath;
@@ -76,6 +79,15 @@ public class SingleTask {
   private Condition _taskAttemptBuilt;
   private Lock _lock;
 
+  private Optional<SharedTopLevelBrokerCache> _sharedTopLevelBrokers = Optional.absent();
+  private volatile long _taskAttemptStartTimeMillis = -1L;
+  private Optional<TaskCommitArbiter> _commitArbiter = Optional.absent();
+  private String _attemptId;
+  private boolean _speculativeAttempt;
+  private Optional<Path> _workUnitClaimDir = Optional.absent();
+  private String _claimantId;
+  private int _maxTasksInFlight;
+
   SingleTask(String jobId, Path workUnitFilePath, Path jobStateFilePath, FileSystem fs,
       TaskAttemptBuilder taskAttemptBuilder, StateStores stateStores, Config dynamicConfig) {
     this(jobId, workUnitFilePath, jobStateFilePath, fs, taskAttemptBuilder, stateStores, dynamicConfig, false);
@@ -123,13 +135,31 @@ public class SingleTask {
     _logger.debug("SingleTask.run: jobId {} workUnitFilePath {} jobStateFilePath {} jobState {} jobConfig {}",
         _jobId, _workUnitFilePath, _jobStateFilePath, _jobState, jobConfig);
 
-    try (SharedResourcesBroker<GobblinScopeTypes> globalBroker = SharedResourcesBrokerFactory
-        .createDefaultTopLevelBroker(jobConfig, GobblinScopeTypes.GLOBAL.defaultScopeInstance())) {
-      SharedResourcesBroker<GobblinScopeTypes> jobBroker = getJobBroker(_jobState, globalBroker);
+    try (Closer closer = Closer.create()) {
+      SharedResourcesBroker<GobblinScopeTypes> globalBroker;
+      if (_sharedTopLevelBrokers.isPresent()) {
+        globalBroker = _sharedTopLevelBrokers.get().getBroker(jobConfig);
+      } else {
+        globalBroker = closer.register(SharedResourcesBrokerFactory
+            .createDefaultTopLevelBroker(jobConfig, GobblinScopeTypes.GLOBAL.defaultScopeInstance()));
+      }
+      // Closing the job broker releases the job scoped resources even if the top level broker is shared
+      SharedResourcesBroker<GobblinScopeTypes> jobBroker = closer.register(getJobBroker(_jobState, globalBroker));
 
       // Secure atomicity of taskAttempt's execution.
       // Signaling blocking threads if any whenever taskAttempt is nonNull.
-      _taskAttempt = _taskAttemptBuilder.build(getWorkUnits().iterator(), _jobId, _jobState, jobBroker);
+      List<WorkUnit> ownWorkUnits = getWorkUnits();
+      Iterator<WorkUnit> workUnits = ownWorkUnits.iterator();
+      if (_workUnitClaimDir.isPresent()) {
+        workUnits = new WorkStealingWorkUnitIterator(_claimantId, _workUnitFilePath.getName(), ownWorkUnits,
+            new JobWorkUnitStore(), _fs, _workUnitClaimDir.get());
+      }
+      _taskAttempt = _taskAttemptBuilder.build(workUnits, _jobId, _jobState, jobBroker,
+          _speculativeAttempt ? _attemptId : null);
+      if (_workUnitClaimDir.isPresent()) {
+        _taskAttempt.setMaxTasksInFlight(_maxTasksInFlight);
+      }
+      _taskAttemptStartTimeMillis = System.currentTimeMillis();
 
       _lock.lock();
       try {
@@ -139,7 +169,11 @@ public class SingleTask {
       }
 
       // This is a blocking call.
-      _taskAttempt.runAndOptionallyCommitTaskAttempt(GobblinMultiTaskAttempt.CommitPolicy.IMMEDIATE);
+      if (_commitArbiter.isPresent()) {
+        runAndCommitIfFirst();
+      } else {
+        _taskAttempt.runAndOptionallyCommitTaskAttempt(GobblinMultiTaskAttempt.CommitPolicy.IMMEDIATE);
+      }
 
     } finally {
       _logger.info("Clearing all metrics object in cache.");
@@ -147,6 +181,88 @@ public class SingleTask {
     }
   }
 
+  /**
+   * Use top level brokers from {@code sharedTopLevelBrokers} instead of creating (and closing) a new top level
+   * broker for this task. Must be called before {@link #run()}.
+   */
+  void setSharedTopLevelBrokers(SharedTopLevelBrokerCache sharedTopLevelBrokers) {
+    _sharedTopLevelBrokers = Optional.of(sharedTopLevelBrokers);
+  }
+
+  /**
+   * Arbitrate the commit of this task's work units through {@code commitArbiter}, so that only the first of several
+   * attempts of the same work units commits. Must be called before {@link #run()}.
+   *
+   * @param attemptId the id of this attempt, recorded by the {@link TaskCommitArbiter} when this attempt commits
+   * @param speculativeAttempt whether this is a speculative attempt of a task that is still running elsewhere
+   */
+  void setCommitArbiter(TaskCommitArbiter commitArbiter, String attemptId, boolean speculativeAttempt) {
+    _commitArbiter = Optional.of(commitArbiter);
+    _attemptId = attemptId;
+    _speculativeAttempt = speculativeAttempt;
+  }
+
+  /**
+   * Claim work units one at a time through markers in {@code workUnitClaimDir}, and steal the unclaimed work units of
+   * the other tasks of the job once done with this task's own. Must be called before {@link #run()}.
+   *
+   * @param claimantId the id this task claims work units by, stable across retries of the task
+   * @param maxTasksInFlight the number of work units this task runs at a time
+   */
+  void setWorkStealing(Path workUnitClaimDir, String claimantId, int maxTasksInFlight) {
+    _workUnitClaimDir = Optional.of(workUnitClaimDir);
+    _claimantId = claimantId;
+    _maxTasksInFlight = maxTasksInFlight;
+  }
+
+  /**
+   * Run the task attempt and commit it if it is the first successful attempt of its work units to finish. A failed
+   * attempt does not claim the commit, so that another attempt of the same work units can still commit.
+   */
+  @VisibleForTesting
+  void runAndCommitIfFirst()
+      throws IOException, InterruptedException {
+    _taskAttempt.run();
+    if (_speculativeAttempt && !_taskAttempt.isSpeculativeExecutionSafe()) {
+      throw new RuntimeException(
+          "Speculative attempt " + _attemptId + " is not safe for speculative execution, not committing it.");
+    }
+    if (!_taskAttempt.isSuccessful()) {
+      throw new IOException(
+          "Tasks of attempt " + _attemptId + " of " + _workUnitFilePath + " failed, not claiming their commit.");
+    }
+    if (_commitArbiter.get().tryClaim(_workUnitFilePath.getName(), _attemptId)) {
+      _logger.info("Attempt {} claimed the commit of {}, committing tasks.", _attemptId, _workUnitFilePath);
+      _taskAttempt.commit();
+    } else {
+      _logger.info("Another attempt already committed {}, attempt {} will not commit.", _workUnitFilePath, _attemptId);
+    }
+  }
+
+  /**
+   * @return the number of records pulled so far by the tasks of this task's {@link GobblinMultiTaskAttempt}.
+   */
+  long getRecordsPulled() {
+    GobblinMultiTaskAttempt taskAttempt = _taskAttempt;
+    return taskAttempt == null ? 0L : taskAttempt.getRecordsPulled();
+  }
+
+  /**
+   * @return whether all the tasks of this task's {@link GobblinMultiTaskAttempt} are safe for speculative execution.
+   */
+  boolean isSpeculativeExecutionSafe() {
+    GobblinMultiTaskAttempt taskAttempt = _taskAttempt;
+    return taskAttempt != null && taskAttempt.isSpeculativeExecutionSafe();
+  }
+
+  /**
+   * @return the epoch time in milliseconds at which the {@link GobblinMultiTaskAttempt} of this task was built and
+   * started processing its work units, or -1 if it has not been built yet.
+   */
+  long getTaskAttemptStartTimeMillis() {
+    return _taskAttemptStartTimeMillis;
+  }
+
   private SharedResourcesBroker<GobblinScopeTypes> getJobBroker(JobState jobState,
       SharedResourcesBroker<GobblinScopeTypes> globalBroker) {
     return globalBroker.newSubscopedBuilder(new JobScopeInstance(jobState.getJobName(), jobState.getJobId())).build();
@@ -178,19 +294,27 @@ public class SingleTask {
    */
   protected List<WorkUnit> getWorkUnits()
       throws IOException {
-    String fileName = _workUnitFilePath.getName();
-    String storeName = _workUnitFilePath.getParent().getName();
+    return getWorkUnits(_workUnitFilePath);
+  }
+
+  /**
+   * Deserialize the flattened {@link WorkUnit}s of a work unit file of the job.
+   */
+  private List<WorkUnit> getWorkUnits(Path workUnitFilePath)
+      throws IOException {
+    String fileName = workUnitFilePath.getName();
+    String storeName = workUnitFilePath.getParent().getName();
     WorkUnit workUnit;
 
     try {
-      if (JobLauncherUtils.hasMultiWorkUnitExtension(_workUnitFilePath)) {
+      if (JobLauncherUtils.hasMultiWorkUnitExtension(workUnitFilePath)) {
         workUnit = _stateStores.getMwuStateStore().getAll(storeName, fileName).get(0);
       } else {
         workUnit = _stateStores.getWuStateStore().getAll(storeName, fileName).get(0);
       }
     } catch (IOException e) {
       //Add workunitFilePath to the IOException message to aid debugging
-      throw new IOException("Exception retrieving state from state store for workunit: " + _workUnitFilePath.toString(),
+      throw new IOException("Exception retrieving state from state store for workunit: " + workUnitFilePath.toString(),
           e);
     }
 
@@ -207,6 +331,23 @@ public class SingleTask {
     return workUnits;
   }
 
+  /**
+   * The work unit files of the job of this task, which live next to the work unit file of this task.
+   */
+  private class JobWorkUnitStore implements WorkStealingWorkUnitIterator.WorkUnitStore {
+    @Override
+    public List<String> getWorkUnitFileNames() throws IOException {
+      // Work units and multi work units share the same store directory
+      return _stateStores.getWuStateStore().getTableNames(_workUnitFilePath.getParent().getName(),
+          name -> JobLauncherUtils.hasAnyWorkUnitExtension(new Path(name)));
+    }
+
+    @Override
+    public List<WorkUnit> getWorkUnits(String workUnitFileName) throws IOException {
+      return SingleTask.this.getWorkUnits(new Path(_workUnitFilePath.getParent(), workUnitFileName));
+    }
+  }
+
   public void cancel() {
     int retryCount = 0 ;
     int maxRetry = ConfigUtils.getInt(_dynamicConfig, MAX_RETRY_WAITING_FOR_INIT_KEY, DEFAULT_MAX_RETRY_WAITING_FOR_INIT);
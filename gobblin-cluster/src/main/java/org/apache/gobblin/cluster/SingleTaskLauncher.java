@@ -55,7 +55,7 @@ class SingleTaskLauncher {
 
   Process launch(final String jobId, final Path workUnitFilePath)
       throws IOException {
-    final SingleTaskLauncher.CmdBuilder cmdBuilder = this.new CmdBuilder(jobId, workUnitFilePath);
+    final SingleTaskLauncher.CmdBuilder cmdBuilder = this.new CmdBuilder(jobId, workUnitFilePath, -1);
     final List<String> command = cmdBuilder.build();
     logger.info("Launching a task process.");
 
@@ -68,14 +68,37 @@ class SingleTaskLauncher {
     return taskProcess;
   }
 
+  /**
+   * Launch a long running task runner process which connects to the given local port and runs the tasks it is sent
+   * through that connection one after the other. See {@link WarmTaskRunnerMain}.
+   */
+  Process launchWarmTaskRunner(final int protocolPort)
+      throws IOException {
+    final List<String> command = this.new CmdBuilder(null, null, protocolPort).build();
+    logger.info("Launching a warm task runner process.");
+    logger.info("cmd line:\n{}", String.join(" ", command));
+
+    return this.processBuilder.startWithInheritedOutput(command);
+  }
+
   private class CmdBuilder {
     private final String jobId;
     private final Path workUnitFilePath;
+    private final int protocolPort;
     private final List<String> cmd = new ArrayList<>();
 
-    private CmdBuilder(final String jobId, final Path workUnitFilePath) {
+    /**
+     * @param jobId the job of the single task to run, or null to build the command of a warm task runner
+     * @param protocolPort the local port a warm task runner connects to, ignored for a single task
+     */
+    private CmdBuilder(final String jobId, final Path workUnitFilePath, final int protocolPort) {
       this.jobId = jobId;
       this.workUnitFilePath = workUnitFilePath;
+      this.protocolPort = protocolPort;
+    }
+
+    private boolean isWarmTaskRunner() {
+      return this.jobId == null;
     }
 
     List<String> build() {
@@ -99,7 +122,8 @@ class SingleTaskLauncher {
     }
 
     private void addClassName() {
-      final String runnerClassName = SingleTaskRunnerMain.class.getCanonicalName();
+      final String runnerClassName = isWarmTaskRunner() ? WarmTaskRunnerMain.class.getCanonicalName()
+          : SingleTaskRunnerMain.class.getCanonicalName();
       this.cmd.add(runnerClassName);
     }
 
@@ -129,8 +153,12 @@ class SingleTaskLauncher {
 
     private void addOptions() {
       addClusterConfigPath();
-      addJobId();
-      addWorkUnitPath();
+      if (isWarmTaskRunner()) {
+        addOneOption(WarmTaskRunnerMain.PROTOCOL_PORT, String.valueOf(this.protocolPort));
+      } else {
+        addJobId();
+        addWorkUnitPath();
+      }
     }
 
     private void addClusterConfigPath() {
@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.cluster;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.helix.task.JobContext;
+import org.apache.helix.task.TaskConfig;
+import org.apache.helix.task.TaskDriver;
+import org.apache.helix.task.TaskPartitionState;
+import org.apache.helix.task.TaskUtil;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.typesafe.config.Config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.gobblin.util.ConfigUtils;
+import org.apache.gobblin.util.ExecutorsUtils;
+
+
+/**
+ * Launches speculative attempts of the straggler tasks of a job submitted by {@link GobblinHelixJobLauncher}.
+ *
+ * <p>
+ *   Running {@link GobblinHelixTask}s report their {@link HelixTaskProgress} in their Helix user content. This class
+ *   periodically reads the progress of the tasks of the job, finds stragglers with a {@link StragglerDetector} and
+ *   adds a duplicate of each straggler to the Helix job, which Helix schedules like any other task. Both attempts of a
+ *   work unit race to claim its commit through the {@link TaskCommitArbiter}, so only the first attempt to finish
+ *   commits. Once an attempt has committed, the other one is deleted from the Helix job so that it does not hold up
+ *   the job.
+ * </p>
+ *
+ * <p>
+ *   Speculative attempts are only launched for tasks that report that all their constructs are safe for speculative
+ *   execution (see {@link org.apache.gobblin.commit.SpeculativeAttemptAwareConstruct}), and each task gets at most
+ *   one speculative attempt.
+ * </p>
+ */
+@Slf4j
+class SpeculativeExecutionManager implements Closeable {
+
+  private static final Set<TaskPartitionState> FINISHED_STATES = EnumSet.of(TaskPartitionState.COMPLETED,
+      TaskPartitionState.STOPPED, TaskPartitionState.TIMED_OUT, TaskPartitionState.TASK_ERROR,
+      TaskPartitionState.TASK_ABORTED, TaskPartitionState.ERROR, TaskPartitionState.DROPPED);
+
+  private final TaskDriver taskDriver;
+  private final String workflowName;
+  private final String jobName;
+  private final Map<String, TaskConfig> originalTasks;
+  private final TaskCommitArbiter commitArbiter;
+  private final StragglerDetector stragglerDetector;
+  private final int maxSpeculativeAttempts;
+  private final long checkIntervalSeconds;
+  private final Optional<GobblinHelixMetrics> helixMetrics;
+  private final ScheduledExecutorService executor;
+
+  // Speculative attempt of each original task that has one, by Helix task id
+  private final Map<String, String> speculativeAttempts = new HashMap<>();
+  // Original tasks one of whose attempts has committed
+  private final Set<String> resolvedTasks = new HashSet<>();
+  private int speculativeAttemptsWon = 0;
+
+  /**
+   * @param originalTasks the tasks of the job, keyed by Helix task id
+   */
+  SpeculativeExecutionManager(TaskDriver taskDriver, String workflowName, String jobName,
+      Map<String, TaskConfig> originalTasks, TaskCommitArbiter commitArbiter, Config jobConfig,
+      Optional<GobblinHelixMetrics> helixMetrics) {
+    this.taskDriver = taskDriver;
+    this.workflowName = workflowName;
+    this.jobName = jobName;
+    this.originalTasks = new HashMap<>(originalTasks);
+    this.commitArbiter = commitArbiter;
+    this.stragglerDetector = new StragglerDetector(jobConfig);
+    this.maxSpeculativeAttempts = Math.max(1, (int) (originalTasks.size() * ConfigUtils.getDouble(jobConfig,
+        GobblinClusterConfigurationKeys.HELIX_SPECULATIVE_EXECUTION_MAX_ATTEMPTS_FRACTION,
+        GobblinClusterConfigurationKeys.DEFAULT_HELIX_SPECULATIVE_EXECUTION_MAX_ATTEMPTS_FRACTION)));
+    this.checkIntervalSeconds = ConfigUtils.getLong(jobConfig,
+        GobblinClusterConfigurationKeys.HELIX_SPECULATIVE_EXECUTION_CHECK_INTERVAL_SECONDS,
+        GobblinClusterConfigurationKeys.DEFAULT_HELIX_SPECULATIVE_EXECUTION_CHECK_INTERVAL_SECONDS);
+    this.helixMetrics = helixMetrics;
+    this.executor = Executors.newSingleThreadScheduledExecutor(ExecutorsUtils.newDaemonThreadFactory(
+        com.google.common.base.Optional.of(log), com.google.common.base.Optional.of("SpeculativeExecution-" + jobName)));
+  }
+
+  void start() {
+    log.info("Starting speculative execution for job {}, at most {} speculative attempts", this.jobName,
+        this.maxSpeculativeAttempts);
+    this.executor.scheduleWithFixedDelay(() -> {
+      try {
+        check(System.currentTimeMillis());
+      } catch (Throwable t) {
+        log.warn("Failed to check for straggler tasks of job " + this.jobName, t);
+      }
+    }, this.checkIntervalSeconds, this.checkIntervalSeconds, TimeUnit.SECONDS);
+  }
+
+  @VisibleForTesting
+  void check(long nowMillis) throws IOException {
+    JobContext jobContext = this.taskDriver.getJobContext(TaskUtil.getNamespacedJobName(this.workflowName, this.jobName));
+    if (jobContext == null) {
+      return;
+    }
+
+    Map<String, TaskPartitionState> states = new HashMap<>();
+    Map<String, HelixTaskProgress> progresses = new HashMap<>();
+    for (int partition : jobContext.getPartitionSet()) {
+      String taskId = jobContext.getTaskIdForPartition(partition);
+      if (taskId == null) {
+        continue;
+      }
+      states.put(taskId, jobContext.getPartitionState(partition));
+      HelixTaskProgress.fromUserContent(
+          this.taskDriver.getTaskUserContentMap(this.workflowName, this.jobName, Integer.toString(partition)))
+          .ifPresent(progress -> progresses.put(taskId, progress));
+    }
+
+    resolveSpeculativeAttempts(states, progresses);
+    launchSpeculativeAttempts(states, progresses, nowMillis);
+  }
+
+  /**
+   * Delete the losing attempt of every work unit whose commit has been claimed.
+   */
+  private void resolveSpeculativeAttempts(Map<String, TaskPartitionState> states,
+      Map<String, HelixTaskProgress> progresses) throws IOException {
+    for (Map.Entry<String, String> entry : this.speculativeAttempts.entrySet()) {
+      String originalTask = entry.getKey();
+      String speculativeTask = entry.getValue();
+      if (this.resolvedTasks.contains(originalTask)) {
+        continue;
+      }
+      Optional<String> committedAttempt =
+          this.commitArbiter.getCommittedAttempt(getWorkUnitName(this.originalTasks.get(originalTask)));
+      if (!committedAttempt.isPresent()) {
+        continue;
+      }
+
+      boolean speculativeAttemptWon = speculativeTask.equals(committedAttempt.get());
+      String losingTask = speculativeAttemptWon ? originalTask : speculativeTask;
+      if (!FINISHED_STATES.contains(states.get(losingTask))) {
+        log.info("Attempt {} committed, deleting attempt {} from job {}", committedAttempt.get(), losingTask,
+            this.jobName);
+        HelixUtils.deleteTaskFromHelixJob(this.workflowName, this.jobName, losingTask, this.taskDriver);
+      }
+      if (speculativeAttemptWon) {
+        this.speculativeAttemptsWon++;
+        Optional<Long> savedMillis =
+            estimateSavedMillis(progresses.get(originalTask), progresses.get(speculativeTask));
+        log.info("Speculative attempt {} of task {} committed first, estimated time saved: {} ms", speculativeTask,
+            originalTask, savedMillis.map(String::valueOf).orElse("unknown"));
+        if (this.helixMetrics.isPresent()) {
+          this.helixMetrics.get().speculativeAttemptsWonMeter.mark();
+          savedMillis.ifPresent(this.helixMetrics.get()::updateTimeSavedBySpeculativeExecution);
+        }
+      }
+      this.resolvedTasks.add(originalTask);
+    }
+  }
+
+  private void launchSpeculativeAttempts(Map<String, TaskPartitionState> states,
+      Map<String, HelixTaskProgress> progresses, long nowMillis) {
+    int remainingAttempts = this.maxSpeculativeAttempts - this.speculativeAttempts.size();
+    if (remainingAttempts <= 0) {
+      return;
+    }
+
+    Map<String, HelixTaskProgress> running = new HashMap<>();
+    List<HelixTaskProgress> finished = new ArrayList<>();
+    for (String taskId : this.originalTasks.keySet()) {
+      HelixTaskProgress progress = progresses.get(taskId);
+      TaskPartitionState state = states.get(taskId);
+      if (progress == null) {
+        continue;
+      }
+      if (state == TaskPartitionState.COMPLETED) {
+        finished.add(progress);
+      } else if (state == TaskPartitionState.RUNNING && !this.speculativeAttempts.containsKey(taskId)) {
+        running.put(taskId, progress);
+      }
+    }
+
+    for (String straggler : this.stragglerDetector.findStragglers(running, finished, this.originalTasks.size(),
+        nowMillis)) {
+      if (remainingAttempts-- <= 0) {
+        break;
+      }
+      launchSpeculativeAttempt(straggler, running.get(straggler));
+    }
+  }
+
+  private void launchSpeculativeAttempt(String taskId, HelixTaskProgress progress) {
+    Map<String, String> configMap = new HashMap<>(this.originalTasks.get(taskId).getConfigMap());
+    configMap.remove(TaskConfig.TaskConfigProperty.TASK_ID.name());
+    configMap.put(GobblinClusterConfigurationKeys.SPECULATIVE_ATTEMPT_OF_KEY, taskId);
+    TaskConfig speculativeTask = TaskConfig.Builder.from(configMap);
+
+    if (HelixUtils.addTaskToHelixJob(this.workflowName, this.jobName, speculativeTask, this.taskDriver)) {
+      log.info("Launched speculative attempt {} of straggler task {} with progress {}", speculativeTask.getId(), taskId,
+          progress);
+      this.speculativeAttempts.put(taskId, speculativeTask.getId());
+      this.helixMetrics.ifPresent(metrics -> metrics.speculativeAttemptsLaunchedMeter.mark());
+    } else {
+      log.warn("Failed to launch a speculative attempt of straggler task {}", taskId);
+    }
+  }
+
+  /**
+   * Estimate the time the original attempt would still have needed to pull the records the winning speculative
+   * attempt pulled, at the rate it was going.
+   */
+  @VisibleForTesting
+  static Optional<Long> estimateSavedMillis(HelixTaskProgress originalProgress, HelixTaskProgress winnerProgress) {
+    if (originalProgress == null || winnerProgress == null || originalProgress.getRecordsPerSecond() <= 0) {
+      return Optional.empty();
+    }
+    long remainingRecords = winnerProgress.getRecordsPulled() - originalProgress.getRecordsPulled();
+    if (remainingRecords <= 0) {
+      return Optional.empty();
+    }
+    return Optional.of((long) (remainingRecords * 1000 / originalProgress.getRecordsPerSecond()));
+  }
+
+  static String getWorkUnitName(TaskConfig taskConfig) {
+    return new Path(taskConfig.getConfigMap().get(GobblinClusterConfigurationKeys.WORK_UNIT_FILE_PATH)).getName();
+  }
+
+  @Override
+  public void close() {
+    ExecutorsUtils.shutdownExecutorService(this.executor, com.google.common.base.Optional.of(log));
+    log.info("Speculative execution for job {}: {} speculative attempts launched, {} committed first", this.jobName,
+        this.speculativeAttempts.size(), this.speculativeAttemptsWon);
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.cluster;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.typesafe.config.Config;
+
+import org.apache.gobblin.util.ConfigUtils;
+
+
+/**
+ * Finds straggler tasks of a job from the {@link HelixTaskProgress} of its tasks.
+ *
+ * <p>
+ *   Stragglers are only looked for once a given fraction of the tasks of the job is finished, i.e. when the job is
+ *   in its tail. A running task that has been running for a minimum time and reports that it is safe for speculative
+ *   execution is a straggler if either:
+ *   <ul>
+ *     <li>its record rate is below a fraction of the median record rate of all tasks, or</li>
+ *     <li>it has been running for longer than a multiple of the median duration of the finished tasks.</li>
+ *   </ul>
+ * </p>
+ */
+class StragglerDetector {
+
+  private final long minRuntimeMillis;
+  private final double minFinishedFraction;
+  private final double slowRateRatio;
+  private final double slowDurationRatio;
+
+  StragglerDetector(long minRuntimeMillis, double minFinishedFraction, double slowRateRatio,
+      double slowDurationRatio) {
+    this.minRuntimeMillis = minRuntimeMillis;
+    this.minFinishedFraction = minFinishedFraction;
+    this.slowRateRatio = slowRateRatio;
+    this.slowDurationRatio = slowDurationRatio;
+  }
+
+  StragglerDetector(Config config) {
+    this(ConfigUtils.getLong(config, GobblinClusterConfigurationKeys.HELIX_SPECULATIVE_EXECUTION_MIN_RUNTIME_SECONDS,
+            GobblinClusterConfigurationKeys.DEFAULT_HELIX_SPECULATIVE_EXECUTION_MIN_RUNTIME_SECONDS) * 1000,
+        ConfigUtils.getDouble(config, GobblinClusterConfigurationKeys.HELIX_SPECULATIVE_EXECUTION_MIN_FINISHED_FRACTION,
+            GobblinClusterConfigurationKeys.DEFAULT_HELIX_SPECULATIVE_EXECUTION_MIN_FINISHED_FRACTION),
+        ConfigUtils.getDouble(config, GobblinClusterConfigurationKeys.HELIX_SPECULATIVE_EXECUTION_SLOW_RATE_RATIO,
+            GobblinClusterConfigurationKeys.DEFAULT_HELIX_SPECULATIVE_EXECUTION_SLOW_RATE_RATIO),
+        ConfigUtils.getDouble(config, GobblinClusterConfigurationKeys.HELIX_SPECULATIVE_EXECUTION_SLOW_DURATION_RATIO,
+            GobblinClusterConfigurationKeys.DEFAULT_HELIX_SPECULATIVE_EXECUTION_SLOW_DURATION_RATIO));
+  }
+
+  /**
+   * @param running progress of the running tasks, keyed by task id
+   * @param finished final progress of the finished tasks
+   * @param totalTasks number of tasks of the job
+   * @param nowMillis current time
+   * @return the ids of the straggler tasks, the ones that have been running the longest first
+   */
+  List<String> findStragglers(Map<String, HelixTaskProgress> running, Collection<HelixTaskProgress> finished,
+      int totalTasks, long nowMillis) {
+    if (running.isEmpty() || finished.size() < this.minFinishedFraction * totalTasks) {
+      return Collections.emptyList();
+    }
+
+    List<Double> rates = new ArrayList<>();
+    List<Double> finishedDurations = new ArrayList<>();
+    for (HelixTaskProgress progress : finished) {
+      rates.add(progress.getRecordsPerSecond());
+      finishedDurations.add((double) progress.getElapsedMillis());
+    }
+    for (HelixTaskProgress progress : running.values()) {
+      rates.add(progress.getRecordsPerSecond());
+    }
+    double medianRate = median(rates);
+    double medianDuration = median(finishedDurations);
+
+    List<Map.Entry<String, HelixTaskProgress>> stragglers = new ArrayList<>();
+    for (Map.Entry<String, HelixTaskProgress> entry : running.entrySet()) {
+      HelixTaskProgress progress = entry.getValue();
+      long runtimeMillis = nowMillis - progress.getStartTimeMillis();
+      if (!progress.isSpeculativeSafe() || runtimeMillis < this.minRuntimeMillis) {
+        continue;
+      }
+      boolean slowRate = medianRate > 0 && progress.getRecordsPerSecond() < this.slowRateRatio * medianRate;
+      boolean slowDuration = medianDuration > 0 && runtimeMillis > this.slowDurationRatio * medianDuration;
+      if (slowRate || slowDuration) {
+        stragglers.add(entry);
+      }
+    }
+
+    stragglers.sort(Comparator.comparingLong(entry -> entry.getValue().getStartTimeMillis()));
+    List<String> taskIds = new ArrayList<>(stragglers.size());
+    for (Map.Entry<String, HelixTaskProgress> entry : stragglers) {
+      taskIds.add(entry.getKey());
+    }
+    return taskIds;
+  }
+
+  private static double median(List<Double> values) {
+    if (values.isEmpty()) {
+      return 0;
+    }
+    Collections.sort(values);
+    int middle = values.size() / 2;
+    return values.size() % 2 == 1 ? values.get(middle) : (values.get(middle - 1) + values.get(middle)) / 2;
+  }
+}
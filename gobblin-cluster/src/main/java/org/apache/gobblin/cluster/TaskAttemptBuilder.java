@@ -55,9 +55,22 @@ public class TaskAttemptBuilder {
 
   public GobblinMultiTaskAttempt build(Iterator<WorkUnit> workUnits, String jobId, JobState jobState,
       SharedResourcesBroker<GobblinScopeTypes> jobBroker) {
+    return build(workUnits, jobId, jobState, jobBroker, null);
+  }
+
+  /**
+   * Build a {@link GobblinMultiTaskAttempt} whose attempt id is the container id suffixed with {@code attemptSuffix},
+   * so that its writers stage their output apart from other attempts of the same work units in the container.
+   */
+  public GobblinMultiTaskAttempt build(Iterator<WorkUnit> workUnits, String jobId, JobState jobState,
+      SharedResourcesBroker<GobblinScopeTypes> jobBroker, String attemptSuffix) {
+    String attemptId = _containerId;
+    if (attemptSuffix != null) {
+      attemptId = _containerId == null ? attemptSuffix : _containerId + "_" + attemptSuffix;
+    }
     GobblinMultiTaskAttempt attemptInstance =
         new GobblinMultiTaskAttempt(workUnits, jobId, jobState, _taskStateTracker, _taskExecutor,
-            Optional.fromNullable(_containerId), Optional.fromNullable(_taskStateStore), jobBroker);
+            Optional.fromNullable(attemptId), Optional.fromNullable(_taskStateStore), jobBroker);
 
     return attemptInstance;
   }
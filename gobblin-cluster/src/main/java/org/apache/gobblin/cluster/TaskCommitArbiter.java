@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.cluster;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Lets a single attempt of a work unit commit when speculative attempts of the work unit run concurrently.
+ *
+ * <p>
+ *   An attempt claims the commit of a work unit by creating the marker file of the work unit without overwrite, which
+ *   is atomic on HDFS, so the first attempt to finish is the only one to commit. The marker records the id of the
+ *   winning attempt, so that the job launcher can tell which attempt won, and so that a retry of the winning attempt
+ *   with the same attempt id still owns the claim.
+ * </p>
+ *
+ * <p>
+ *   The same first-claim-wins markers are used by {@link WorkStealingWorkUnitIterator} to let a single Helix task run
+ *   each work unit.
+ * </p>
+ */
+@Slf4j
+public class TaskCommitArbiter {
+
+  private final FileSystem fs;
+  private final Path markerDir;
+
+  public TaskCommitArbiter(FileSystem fs, Path markerDir) {
+    this.fs = fs;
+    this.markerDir = markerDir;
+  }
+
+  /**
+   * Try to claim the commit of a work unit.
+   *
+   * @param workUnitName name of the work unit, the same for every attempt of the work unit
+   * @param attemptId id of the claiming attempt
+   * @return true if the claiming attempt is the only one allowed to commit the work unit, i.e. it created the marker
+   * or the marker already records {@code attemptId}
+   */
+  public boolean tryClaim(String workUnitName, String attemptId) throws IOException {
+    Path marker = new Path(this.markerDir, workUnitName);
+    FSDataOutputStream outputStream;
+    try {
+      outputStream = this.fs.create(marker, false);
+    } catch (IOException ioe) {
+      if (this.fs.exists(marker)) {
+        if (attemptId.equals(getCommittedAttempt(workUnitName).orElse(null))) {
+          log.info("{} was already claimed by attempt {}", workUnitName, attemptId);
+          return true;
+        }
+        log.info("{} was already claimed, attempt {} lost the claim", workUnitName, attemptId);
+        return false;
+      }
+      throw ioe;
+    }
+
+    // A retry of this attempt recognizes its claim by the recorded attempt id, so a marker without it is dropped
+    try (FSDataOutputStream os = outputStream) {
+      os.write(attemptId.getBytes(Charsets.UTF_8));
+    } catch (IOException ioe) {
+      this.fs.delete(marker, false);
+      throw ioe;
+    }
+    log.info("Attempt {} claimed {}", attemptId, workUnitName);
+    return true;
+  }
+
+  /**
+   * @return whether any attempt claimed the work unit.
+   */
+  public boolean isClaimed(String workUnitName) throws IOException {
+    return this.fs.exists(new Path(this.markerDir, workUnitName));
+  }
+
+  /**
+   * @return the id of the attempt that claimed the commit of the work unit, if any.
+   */
+  public Optional<String> getCommittedAttempt(String workUnitName) throws IOException {
+    Path marker = new Path(this.markerDir, workUnitName);
+    if (!this.fs.exists(marker)) {
+      return Optional.empty();
+    }
+    try (InputStream is = this.fs.open(marker)) {
+      return Optional.ofNullable(Strings.emptyToNull(IOUtils.toString(is, Charsets.UTF_8)));
+    }
+  }
+}
@@ -46,6 +46,10 @@ class TaskRunnerSuiteProcessModel extends TaskRunnerSuiteBase {
     taskFactory = new HelixTaskFactory(builder.getContainerMetrics(),
         GobblinTaskRunner.CLUSTER_CONF_PATH,
         builder.getConfig());
+    if (taskFactory.getWarmTaskRunnerPool().isPresent()) {
+      log.info("Warm task runner pool is enabled.");
+      this.services.add(taskFactory.getWarmTaskRunnerPool().get());
+    }
   }
 
   @Override
@@ -90,6 +90,9 @@ class TaskRunnerSuiteThreadModel extends TaskRunnerSuiteBase {
 
     services.add(taskFactory.getTaskExecutor());
     services.add(taskStateTracker);
+    if (taskFactory.getSharedTopLevelBrokers().isPresent()) {
+      services.add(taskFactory.getSharedTopLevelBrokers().get());
+    }
     services.add(new JMXReportingService(
         ImmutableMap.of("task.executor", taskFactory.getTaskExecutor().getTaskExecutorQueueMetricSet())));
 
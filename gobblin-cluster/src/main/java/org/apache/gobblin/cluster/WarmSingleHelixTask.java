@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.cluster;
+
+import java.util.Map;
+
+import org.apache.helix.task.Task;
+import org.apache.helix.task.TaskResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+
+import org.apache.gobblin.configuration.ConfigurationKeys;
+
+
+/**
+ * A {@link Task} that runs a single task in a separate process taken from a {@link WarmTaskRunnerPool}, the warm
+ * counterpart of {@link SingleHelixTask}. Cancelling the task kills the process running it.
+ */
+public class WarmSingleHelixTask implements Task {
+
+  private static final Logger logger = LoggerFactory.getLogger(WarmSingleHelixTask.class);
+
+  private final WarmTaskRunnerPool pool;
+  private final String jobId;
+  private final String jobName;
+  private final String workUnitFilePath;
+
+  private volatile WarmTaskRunnerPool.TaskRunnerProcess runner;
+  private volatile boolean cancelled = false;
+
+  WarmSingleHelixTask(final WarmTaskRunnerPool pool, final Map<String, String> configMap) {
+    this.pool = pool;
+    this.jobName = configMap.get(ConfigurationKeys.JOB_NAME_KEY);
+    this.jobId = configMap.get(ConfigurationKeys.JOB_ID_KEY);
+    this.workUnitFilePath = configMap.get(GobblinClusterConfigurationKeys.WORK_UNIT_FILE_PATH);
+  }
+
+  @Override
+  public TaskResult run() {
+    final long dispatchTime = System.currentTimeMillis();
+    WarmTaskRunnerPool.TaskRunnerProcess taskRunner = null;
+    try {
+      taskRunner = this.pool.acquire();
+      this.runner = taskRunner;
+      if (this.cancelled) {
+        return new TaskResult(TaskResult.Status.CANCELED, "");
+      }
+
+      logger.info("Running a single task on a {} task runner. job name: {}. job id: {}",
+          taskRunner.isColdStart() ? "cold" : "warm", this.jobName, this.jobId);
+      final WarmTaskRunnerPool.TaskOutcome outcome = taskRunner.runTask(this.jobId, this.workUnitFilePath);
+      if (outcome.getTaskStartTimeMillis() > 0) {
+        this.pool.recordTaskStartup(taskRunner.isColdStart(), outcome.getTaskStartTimeMillis() - dispatchTime);
+      }
+
+      if (outcome.getExitCode() == WarmTaskRunnerMain.EXIT_CODE_SUCCESS) {
+        logger.info("Task finished. job name: {}. job id: {}", this.jobName, this.jobId);
+        return new TaskResult(TaskResult.Status.COMPLETED, "");
+      } else {
+        logger.warn("Task failed with exitcode ({}). job name: {}. job id: {}", outcome.getExitCode(),
+            this.jobName, this.jobId);
+        return new TaskResult(TaskResult.Status.FATAL_FAILED, "Exit code: " + outcome.getExitCode());
+      }
+    } catch (final Throwable t) {
+      if (t instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      if (this.cancelled) {
+        return new TaskResult(TaskResult.Status.CANCELED, "");
+      }
+      logger.error("WarmSingleHelixTask failed due to " + t.getMessage(), t);
+      return new TaskResult(TaskResult.Status.FAILED, Throwables.getStackTraceAsString(t));
+    } finally {
+      if (taskRunner != null) {
+        this.pool.release(taskRunner);
+      }
+    }
+  }
+
+  @Override
+  public void cancel() {
+    logger.info("Canceling a single task. job name: {}. job id: {}", this.jobName, this.jobId);
+    this.cancelled = true;
+    final WarmTaskRunnerPool.TaskRunnerProcess taskRunner = this.runner;
+    if (taskRunner != null) {
+      taskRunner.destroy();
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.cluster;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.ServiceManager;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import org.apache.gobblin.configuration.ConfigurationKeys;
+import org.apache.gobblin.runtime.TaskExecutor;
+import org.apache.gobblin.runtime.util.StateStores;
+import org.apache.gobblin.util.ConfigUtils;
+import org.apache.gobblin.util.HadoopUtils;
+
+
+/**
+ * A task runner that runs many {@link SingleTask}s, possibly of different jobs, one after the other in the same JVM.
+ *
+ * <p>
+ *   Unlike {@link SingleTaskRunner}, the {@link TaskExecutor}, the task state tracker, the {@link FileSystem}, the
+ *   {@link StateStores} and the top level shared resources brokers are created once and kept alive between tasks,
+ *   so only the first task pays for their initialization (and for loading the job classes).
+ * </p>
+ */
+class WarmSingleTaskRunner {
+  private static final Logger logger = LoggerFactory.getLogger(WarmSingleTaskRunner.class);
+
+  private final Config clusterConfig;
+  private final Path appWorkPath;
+  private final SharedTopLevelBrokerCache sharedTopLevelBrokers = new SharedTopLevelBrokerCache();
+  private FileSystem fs;
+  private StateStores stateStores;
+  private TaskAttemptBuilder taskAttemptBuilder;
+  private ServiceManager serviceManager;
+
+  WarmSingleTaskRunner(final String clusterConfigFilePath) {
+    this.clusterConfig = ConfigFactory.parseFile(new File(clusterConfigFilePath));
+    this.appWorkPath = new Path(this.clusterConfig.getString(GobblinTaskRunner.CLUSTER_APP_WORK_DIR));
+  }
+
+  void startServices()
+      throws IOException {
+    logger.info("WarmSingleTaskRunner start services.");
+    final Properties properties = ConfigUtils.configToProperties(this.clusterConfig);
+    final TaskExecutor taskExecutor = new TaskExecutor(properties);
+    final GobblinHelixTaskStateTracker taskStateTracker = new GobblinHelixTaskStateTracker(properties);
+
+    final List<Service> services = Lists.newArrayList(taskExecutor, taskStateTracker, this.sharedTopLevelBrokers);
+    this.serviceManager = new ServiceManager(services);
+    this.serviceManager.startAsync();
+    try {
+      this.serviceManager.awaitHealthy(10, TimeUnit.SECONDS);
+    } catch (final TimeoutException e) {
+      throw new GobblinClusterException("Timeout waiting for services to start.", e);
+    }
+
+    this.fs = this.clusterConfig.hasPath(ConfigurationKeys.FS_URI_KEY) ? FileSystem
+        .get(URI.create(this.clusterConfig.getString(ConfigurationKeys.FS_URI_KEY)), HadoopUtils.newConfiguration())
+        : FileSystem.get(HadoopUtils.newConfiguration());
+    this.stateStores = new StateStores(this.clusterConfig, this.appWorkPath,
+        GobblinClusterConfigurationKeys.OUTPUT_TASK_STATE_DIR_NAME, this.appWorkPath,
+        GobblinClusterConfigurationKeys.INPUT_WORK_UNIT_DIR_NAME, this.appWorkPath,
+        GobblinClusterConfigurationKeys.JOB_STATE_DIR_NAME);
+    // No container id is set. Use the default.
+    this.taskAttemptBuilder = new TaskAttemptBuilder(taskStateTracker, taskExecutor);
+    this.taskAttemptBuilder.setTaskStateStore(this.stateStores.getTaskStateStore());
+  }
+
+  void shutdownServices() {
+    logger.info("WarmSingleTaskRunner shutting down services.");
+    this.serviceManager.stopAsync();
+    try {
+      this.serviceManager.awaitStopped(1, TimeUnit.MINUTES);
+    } catch (final TimeoutException e) {
+      logger.error("Timeout waiting for services to shutdown.", e);
+    }
+  }
+
+  /**
+   * Run the task of job {@code jobId} stored at {@code workUnitFilePath}. This is a blocking call.
+   *
+   * @return the epoch time in milliseconds at which the task started processing its work units
+   */
+  long runTask(final String jobId, final String workUnitFilePath)
+      throws IOException, InterruptedException {
+    logger.info("WarmSingleTaskRunner running task. job id: {}. work unit: {}", jobId, workUnitFilePath);
+    final Path jobStateFilePath =
+        GobblinClusterUtils.getJobStateFilePath(this.stateStores.haveJobStateStore(), this.appWorkPath, jobId);
+    final SingleTask task = new SingleTask(jobId, new Path(workUnitFilePath), jobStateFilePath, this.fs,
+        this.taskAttemptBuilder, this.stateStores, GobblinClusterUtils.getDynamicConfig(this.clusterConfig));
+    task.setSharedTopLevelBrokers(this.sharedTopLevelBrokers);
+    task.run();
+    return task.getTaskAttemptStartTimeMillis();
+  }
+}
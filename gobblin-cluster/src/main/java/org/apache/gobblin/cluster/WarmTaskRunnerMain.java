@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.cluster;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+
+import static org.apache.gobblin.cluster.SingleTaskRunnerMainOptions.CLUSTER_CONFIG_FILE_PATH;
+
+
+/**
+ * Entry point of a warm task runner process launched by {@link WarmTaskRunnerPool}.
+ *
+ * <p>
+ *   The process connects to the local {@link #PROTOCOL_PORT} the pool listens on, initializes a
+ *   {@link WarmSingleTaskRunner}, sends {@link #READY} and then reads task requests from the connection, one per line,
+ *   in the form {@code <job id>\t<work unit file path>}. After each task it sends a result line
+ *   {@code RESULT\t<exit code>\t<task start time in epoch millis>} (see {@link #formatResult(int, long)}). It exits
+ *   once the pool closes the connection. The connection is only used for this protocol, the tasks are free to write
+ *   to the standard output of the process.
+ * </p>
+ */
+class WarmTaskRunnerMain {
+  private static final Logger logger = LoggerFactory.getLogger(WarmTaskRunnerMain.class);
+
+  static final String PROTOCOL_PORT = "protocol_port";
+  static final String READY = "READY";
+  static final String RESULT = "RESULT";
+  static final char FIELD_SEPARATOR = '\t';
+  static final int EXIT_CODE_SUCCESS = 0;
+  static final int EXIT_CODE_FAILURE = 1;
+
+  private final WarmSingleTaskRunner runner;
+
+  WarmTaskRunnerMain(final WarmSingleTaskRunner runner) {
+    this.runner = runner;
+  }
+
+  public static void main(final String[] args) {
+    logger.info("WarmTaskRunnerMain starting. args: " + Arrays.toString(args));
+    try {
+      final Options options = new Options()
+          .addOption(Option.builder(null).required(true).longOpt(CLUSTER_CONFIG_FILE_PATH)
+              .desc("cluster configuration file path").hasArg().build())
+          .addOption(Option.builder(null).required(true).longOpt(PROTOCOL_PORT)
+              .desc("local port of the warm task runner pool").hasArg().build());
+      final CommandLine cmd = new DefaultParser().parse(options, args);
+      try (Socket connection =
+          new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(cmd.getOptionValue(PROTOCOL_PORT)))) {
+        final WarmTaskRunnerMain runnerMain =
+            new WarmTaskRunnerMain(new WarmSingleTaskRunner(cmd.getOptionValue(CLUSTER_CONFIG_FILE_PATH)));
+        runnerMain.serve(new BufferedReader(new InputStreamReader(connection.getInputStream(), Charsets.UTF_8)),
+            new PrintStream(connection.getOutputStream(), false, Charsets.UTF_8.name()));
+      }
+    } catch (final ParseException e) {
+      logger.error("Failed to parse command line options.", e);
+      System.exit(1);
+    } catch (final Throwable t) {
+      logger.error("Got an exception in the warm task runner.", t);
+      System.exit(1);
+    }
+    System.exit(0);
+  }
+
+  void serve(final BufferedReader requests, final PrintStream out)
+      throws IOException {
+    this.runner.startServices();
+    try {
+      out.println(READY);
+      out.flush();
+
+      String request;
+      while ((request = requests.readLine()) != null) {
+        if (request.isEmpty()) {
+          continue;
+        }
+        final List<String> fields = Splitter.on(FIELD_SEPARATOR).splitToList(request);
+        if (fields.size() != 2) {
+          logger.error("Malformed task request: {}", request);
+          out.println(formatResult(EXIT_CODE_FAILURE, -1L));
+          out.flush();
+          continue;
+        }
+
+        int exitCode = EXIT_CODE_SUCCESS;
+        long taskStartTimeMillis = -1L;
+        try {
+          taskStartTimeMillis = this.runner.runTask(fields.get(0), fields.get(1));
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while running task of job " + fields.get(0), e);
+        } catch (final Throwable t) {
+          logger.error("Got an exception running a task of job " + fields.get(0), t);
+          exitCode = EXIT_CODE_FAILURE;
+        }
+        out.println(formatResult(exitCode, taskStartTimeMillis));
+        out.flush();
+      }
+      logger.info("Connection closed by the warm task runner pool. WarmTaskRunnerMain exiting.");
+    } finally {
+      this.runner.shutdownServices();
+    }
+  }
+
+  static String formatRequest(final String jobId, final String workUnitFilePath) {
+    return jobId + FIELD_SEPARATOR + workUnitFilePath;
+  }
+
+  static String formatResult(final int exitCode, final long taskStartTimeMillis) {
+    return RESULT + FIELD_SEPARATOR + exitCode + FIELD_SEPARATOR + taskStartTimeMillis;
+  }
+}
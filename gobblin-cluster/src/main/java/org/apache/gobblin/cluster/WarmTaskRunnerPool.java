@@ -0,0 +1,392 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.cluster;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.typesafe.config.Config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.gobblin.util.ConfigUtils;
+import org.apache.gobblin.util.ExecutorsUtils;
+
+
+/**
+ * A pool of pre-launched task runner processes (see {@link WarmTaskRunnerMain}) used to run tasks in separate
+ * processes without paying for a JVM startup, class loading and services initialization on every task.
+ *
+ * <p>
+ *   The pool keeps {@link GobblinClusterConfigurationKeys#TASK_WARM_POOL_SIZE} runners alive, busy or idle, and
+ *   launches new ones in the background whenever it falls short. A task takes an idle runner if there is one, and
+ *   otherwise launches a runner itself (a cold start). Once the task is done, the runner goes back to the pool
+ *   unless it died, its task was cancelled, it has already run
+ *   {@link GobblinClusterConfigurationKeys#TASK_WARM_POOL_MAX_TASKS_PER_RUNNER} tasks, or the pool is already full.
+ *   A runner only ever runs one task at a time. The pool talks to each runner over a dedicated local connection,
+ *   never through the output of the tasks, and gives up on a runner which does not start within
+ *   {@link GobblinClusterConfigurationKeys#TASK_WARM_POOL_RUNNER_STARTUP_TIMEOUT_SECONDS}, or whose task does not
+ *   finish within {@link GobblinClusterConfigurationKeys#TASK_WARM_POOL_TASK_TIMEOUT_SECONDS}.
+ * </p>
+ *
+ * <p>
+ *   The time from a task being dispatched until it starts processing its work units is reported separately for
+ *   cold and warm starts through the {@link #COLD_TASK_STARTUP_TIMER} and {@link #WARM_TASK_STARTUP_TIMER} timers.
+ * </p>
+ */
+@Slf4j
+class WarmTaskRunnerPool extends AbstractIdleService {
+  static final String COLD_TASK_STARTUP_TIMER = "gobblin.cluster.task.startup.cold";
+  static final String WARM_TASK_STARTUP_TIMER = "gobblin.cluster.task.startup.warm";
+
+  private final SingleTaskLauncher launcher;
+  private final int poolSize;
+  private final int maxTasksPerRunner;
+  private final long runnerStartupTimeoutMillis;
+  private final long taskTimeoutMillis;
+  private final BlockingDeque<TaskRunnerProcess> idleRunners = new LinkedBlockingDeque<>();
+  private final AtomicInteger launchingRunners = new AtomicInteger();
+  private final AtomicInteger busyRunners = new AtomicInteger();
+  private final ExecutorService executor;
+  private final Optional<Timer> coldTaskStartupTimer;
+  private final Optional<Timer> warmTaskStartupTimer;
+  private volatile boolean closed = false;
+
+  WarmTaskRunnerPool(SingleTaskLauncher launcher, Config sysConfig, Optional<ContainerMetrics> containerMetrics) {
+    this.launcher = launcher;
+    this.poolSize = ConfigUtils.getInt(sysConfig, GobblinClusterConfigurationKeys.TASK_WARM_POOL_SIZE,
+        GobblinClusterConfigurationKeys.DEFAULT_TASK_WARM_POOL_SIZE);
+    this.maxTasksPerRunner = ConfigUtils.getInt(sysConfig,
+        GobblinClusterConfigurationKeys.TASK_WARM_POOL_MAX_TASKS_PER_RUNNER,
+        GobblinClusterConfigurationKeys.DEFAULT_TASK_WARM_POOL_MAX_TASKS_PER_RUNNER);
+    this.runnerStartupTimeoutMillis = TimeUnit.SECONDS.toMillis(ConfigUtils.getLong(sysConfig,
+        GobblinClusterConfigurationKeys.TASK_WARM_POOL_RUNNER_STARTUP_TIMEOUT_SECONDS,
+        GobblinClusterConfigurationKeys.DEFAULT_TASK_WARM_POOL_RUNNER_STARTUP_TIMEOUT_SECONDS));
+    this.taskTimeoutMillis = TimeUnit.SECONDS.toMillis(ConfigUtils.getLong(sysConfig,
+        GobblinClusterConfigurationKeys.TASK_WARM_POOL_TASK_TIMEOUT_SECONDS,
+        GobblinClusterConfigurationKeys.DEFAULT_TASK_WARM_POOL_TASK_TIMEOUT_SECONDS));
+    Preconditions.checkArgument(this.poolSize >= 0, "Warm pool size must not be negative");
+    Preconditions.checkArgument(this.maxTasksPerRunner > 0, "Max tasks per warm runner must be positive");
+    Preconditions.checkArgument(
+        this.runnerStartupTimeoutMillis > 0 && this.runnerStartupTimeoutMillis <= Integer.MAX_VALUE,
+        "Warm runner startup timeout must be positive and at most Integer.MAX_VALUE ms");
+    Preconditions.checkArgument(this.taskTimeoutMillis > 0, "Warm runner task timeout must be positive");
+    this.executor = Executors.newCachedThreadPool(
+        ExecutorsUtils.newDaemonThreadFactory(Optional.of(log), Optional.of("WarmTaskRunnerPool-%d")));
+    if (containerMetrics.isPresent()) {
+      this.coldTaskStartupTimer = Optional.of(containerMetrics.get().getTimer(COLD_TASK_STARTUP_TIMER));
+      this.warmTaskStartupTimer = Optional.of(containerMetrics.get().getTimer(WARM_TASK_STARTUP_TIMER));
+    } else {
+      this.coldTaskStartupTimer = Optional.absent();
+      this.warmTaskStartupTimer = Optional.absent();
+    }
+  }
+
+  @Override
+  protected void startUp() {
+    log.info("Starting warm task runner pool of size {}", this.poolSize);
+    replenish();
+  }
+
+  @Override
+  protected void shutDown() {
+    this.closed = true;
+    TaskRunnerProcess runner;
+    while ((runner = this.idleRunners.pollFirst()) != null) {
+      runner.close();
+    }
+    ExecutorsUtils.shutdownExecutorService(this.executor, Optional.of(log), 10, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Take an idle runner from the pool, or launch a new one if there is none. This blocks until the runner is ready.
+   * Every acquired runner must be given back with {@link #release(TaskRunnerProcess)}.
+   */
+  TaskRunnerProcess acquire()
+      throws IOException, InterruptedException {
+    Preconditions.checkState(!this.closed, "Warm task runner pool is closed");
+    this.busyRunners.incrementAndGet();
+    TaskRunnerProcess runner;
+    while ((runner = this.idleRunners.pollFirst()) != null) {
+      if (runner.isReusable()) {
+        runner.setColdStart(false);
+        return runner;
+      }
+      this.executor.submit(runner::close);
+    }
+
+    log.info("No warm task runner available, launching one");
+    try {
+      runner = launchRunner();
+    } catch (IOException | InterruptedException | RuntimeException e) {
+      this.busyRunners.decrementAndGet();
+      throw e;
+    }
+    runner.setColdStart(true);
+    replenish();
+    return runner;
+  }
+
+  void release(TaskRunnerProcess runner) {
+    this.busyRunners.decrementAndGet();
+    if (this.closed) {
+      runner.close();
+      return;
+    }
+    // Reuse the most recently used runners first, they are the warmest
+    if (runner.isReusable() && runner.getTasksRun() < this.maxTasksPerRunner && getRunnerCount() < this.poolSize) {
+      this.idleRunners.offerFirst(runner);
+    } else {
+      this.executor.submit(runner::close);
+      replenish();
+    }
+  }
+
+  /**
+   * Record the time between a task being dispatched and it starting to process its work units.
+   */
+  void recordTaskStartup(boolean coldStart, long startupMillis) {
+    log.info("Task started {} ms after being dispatched on a {} task runner", startupMillis,
+        coldStart ? "cold" : "warm");
+    Optional<Timer> timer = coldStart ? this.coldTaskStartupTimer : this.warmTaskStartupTimer;
+    if (timer.isPresent()) {
+      timer.get().update(startupMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @VisibleForTesting
+  int getIdleRunnerCount() {
+    return this.idleRunners.size();
+  }
+
+  private int getRunnerCount() {
+    return this.idleRunners.size() + this.busyRunners.get() + this.launchingRunners.get();
+  }
+
+  private void replenish() {
+    while (!this.closed && getRunnerCount() < this.poolSize) {
+      this.launchingRunners.incrementAndGet();
+      this.executor.submit(() -> {
+        try {
+          TaskRunnerProcess runner = launchRunner();
+          if (this.closed) {
+            runner.close();
+          } else {
+            this.idleRunners.offerLast(runner);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+          log.error("Failed to launch a warm task runner", t);
+        } finally {
+          this.launchingRunners.decrementAndGet();
+        }
+      });
+    }
+  }
+
+  private TaskRunnerProcess launchRunner()
+      throws IOException, InterruptedException {
+    TaskRunnerProcess runner;
+    try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      serverSocket.setSoTimeout((int) this.runnerStartupTimeoutMillis);
+      Process process = this.launcher.launchWarmTaskRunner(serverSocket.getLocalPort());
+      try {
+        runner = new TaskRunnerProcess(process, serverSocket.accept(), this.executor, this.taskTimeoutMillis);
+      } catch (IOException | RuntimeException e) {
+        process.destroyForcibly();
+        throw e;
+      }
+    }
+    try {
+      runner.awaitReady(this.runnerStartupTimeoutMillis);
+    } catch (IOException | InterruptedException e) {
+      runner.destroy();
+      throw e;
+    }
+    return runner;
+  }
+
+  /**
+   * The outcome of a task run by a {@link TaskRunnerProcess}.
+   */
+  @Getter
+  @AllArgsConstructor
+  static class TaskOutcome {
+    private final int exitCode;
+    /** Epoch time in milliseconds at which the task started processing its work units, or -1 if it never did. */
+    private final long taskStartTimeMillis;
+  }
+
+  /**
+   * A running {@link WarmTaskRunnerMain} process, and its connection to the pool. The lines the process sends are
+   * read on a separate thread and queued.
+   */
+  static class TaskRunnerProcess implements Closeable {
+    private static final String END_OF_OUTPUT = "";
+
+    private final Process process;
+    private final Socket connection;
+    private final long taskTimeoutMillis;
+    private final Writer requests;
+    private final BlockingQueue<String> protocolLines = new LinkedBlockingQueue<>();
+    @Getter
+    private int tasksRun = 0;
+    @Getter
+    @Setter
+    private boolean coldStart;
+    private volatile boolean reusable = true;
+
+    TaskRunnerProcess(Process process, Socket connection, ExecutorService connectionReader, long taskTimeoutMillis)
+        throws IOException {
+      this.process = process;
+      this.connection = connection;
+      this.taskTimeoutMillis = taskTimeoutMillis;
+      try {
+        this.requests = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(), Charsets.UTF_8));
+      } catch (IOException e) {
+        connection.close();
+        throw e;
+      }
+      connectionReader.submit(this::readConnection);
+    }
+
+    private void readConnection() {
+      try (BufferedReader reader =
+          new BufferedReader(new InputStreamReader(this.connection.getInputStream(), Charsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          this.protocolLines.add(line);
+        }
+      } catch (IOException e) {
+        if (!this.connection.isClosed()) {
+          log.warn("Failed to read from a warm task runner", e);
+        }
+      } finally {
+        this.protocolLines.add(END_OF_OUTPUT);
+      }
+    }
+
+    void awaitReady(long timeoutMillis)
+        throws IOException, InterruptedException {
+      String line = this.protocolLines.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+      if (line == null) {
+        this.reusable = false;
+        throw new IOException("Warm task runner was not ready within " + timeoutMillis + " ms");
+      }
+      if (!WarmTaskRunnerMain.READY.equals(line)) {
+        this.reusable = false;
+        throw new IOException("Warm task runner exited before it was ready");
+      }
+    }
+
+    /**
+     * Run a task in this process. This is a blocking call, which fails and kills the process if the task does not
+     * finish in time.
+     */
+    TaskOutcome runTask(String jobId, String workUnitFilePath)
+        throws IOException, InterruptedException {
+      this.tasksRun++;
+      String result;
+      try {
+        this.requests.write(WarmTaskRunnerMain.formatRequest(jobId, workUnitFilePath));
+        this.requests.write(System.lineSeparator());
+        this.requests.flush();
+        result = this.protocolLines.poll(this.taskTimeoutMillis, TimeUnit.MILLISECONDS);
+      } catch (IOException | InterruptedException e) {
+        // The runner may still be running the task, it cannot be trusted with another one
+        this.reusable = false;
+        throw e;
+      }
+      if (result == null) {
+        destroy();
+        throw new IOException(String.format("Task of job %s did not finish within %d ms on a warm task runner", jobId,
+            this.taskTimeoutMillis));
+      }
+      if (!result.startsWith(WarmTaskRunnerMain.RESULT)) {
+        this.reusable = false;
+        throw new IOException("Warm task runner exited while running a task of job " + jobId);
+      }
+      List<String> fields = Splitter.on(WarmTaskRunnerMain.FIELD_SEPARATOR).splitToList(result);
+      return new TaskOutcome(Integer.parseInt(fields.get(1)), Long.parseLong(fields.get(2)));
+    }
+
+    boolean isReusable() {
+      return this.reusable && this.process.isAlive();
+    }
+
+    /**
+     * Kill the process, and the task it may be running.
+     */
+    void destroy() {
+      this.reusable = false;
+      this.process.destroyForcibly();
+      try {
+        this.connection.close();
+      } catch (IOException e) {
+        log.warn("Failed to close the connection to a warm task runner", e);
+      }
+    }
+
+    /**
+     * Ask the process to exit by closing its connection, and kill it if it does not exit in time.
+     */
+    @Override
+    public void close() {
+      this.reusable = false;
+      try {
+        this.requests.close();
+        if (!this.process.waitFor(10, TimeUnit.SECONDS)) {
+          this.process.destroyForcibly();
+        }
+      } catch (IOException e) {
+        this.process.destroyForcibly();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        this.process.destroyForcibly();
+      }
+    }
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.cluster;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.AbstractIterator;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.gobblin.configuration.ConfigurationKeys;
+import org.apache.gobblin.source.workunit.WorkUnit;
+
+
+/**
+ * An {@link Iterator} over the {@link WorkUnit}s a Helix task runs when work stealing is enabled.
+ *
+ * <p>
+ *   Work units are claimed one at a time, as the {@link org.apache.gobblin.runtime.GobblinMultiTaskAttempt} of the
+ *   task has room for more tasks, so the work units a task has not started yet remain available to the other tasks of
+ *   the job. The iterator first returns the work units the task itself is assigned and that no other task claimed, then
+ *   steals unclaimed work units from the other work unit files of the job until none is left. Claims go through
+ *   first-claim-wins markers (see {@link TaskCommitArbiter}) keyed by the task id of the work unit.
+ * </p>
+ *
+ * <p>
+ *   Claims are made by the Helix task id, which is the same for all the attempts of a Helix task. Before stealing a
+ *   work unit the task records it in a journal, so that a retry of a task whose previous attempt failed runs the work
+ *   units stolen by that attempt again instead of leaving them to nobody.
+ * </p>
+ */
+@Slf4j
+class WorkStealingWorkUnitIterator extends AbstractIterator<WorkUnit> {
+
+  static final String JOURNAL_DIR_NAME = "_claimants";
+
+  /**
+   * Access to the work unit files of a job.
+   */
+  interface WorkUnitStore {
+    /**
+     * @return the names of the work unit files of the job
+     */
+    List<String> getWorkUnitFileNames() throws IOException;
+
+    /**
+     * @return the flattened work units of a work unit file
+     */
+    List<WorkUnit> getWorkUnits(String workUnitFileName) throws IOException;
+  }
+
+  private final String claimantId;
+  private final String ownWorkUnitFileName;
+  private final Iterator<WorkUnit> ownWorkUnits;
+  private final WorkUnitStore workUnitStore;
+  private final TaskCommitArbiter claims;
+  private final FileSystem fs;
+  private final Path journalDir;
+
+  private Iterator<WorkUnit> recoveredWorkUnits;
+  private Iterator<String> otherWorkUnitFiles;
+  private String currentWorkUnitFileName;
+  private Iterator<WorkUnit> currentFileWorkUnits = Collections.emptyIterator();
+  @Getter
+  private int stolenWorkUnitCount = 0;
+
+  /**
+   * @param claimantId id of the claiming Helix task, stable across its attempts
+   * @param ownWorkUnitFileName name of the work unit file the Helix task is assigned
+   * @param ownWorkUnits the flattened work units of {@code ownWorkUnitFileName}
+   * @param claimDir directory of the claim markers of the job
+   */
+  WorkStealingWorkUnitIterator(String claimantId, String ownWorkUnitFileName, List<WorkUnit> ownWorkUnits,
+      WorkUnitStore workUnitStore, FileSystem fs, Path claimDir) {
+    this.claimantId = claimantId;
+    this.ownWorkUnitFileName = ownWorkUnitFileName;
+    this.ownWorkUnits = ownWorkUnits.iterator();
+    this.workUnitStore = workUnitStore;
+    this.claims = new TaskCommitArbiter(fs, claimDir);
+    this.fs = fs;
+    this.journalDir = new Path(new Path(claimDir, JOURNAL_DIR_NAME), claimantId);
+  }
+
+  @Override
+  protected WorkUnit computeNext() {
+    try {
+      if (this.recoveredWorkUnits == null) {
+        this.recoveredWorkUnits = recoverStolenWorkUnits().iterator();
+      }
+      if (this.recoveredWorkUnits.hasNext()) {
+        return this.recoveredWorkUnits.next();
+      }
+
+      while (this.ownWorkUnits.hasNext()) {
+        WorkUnit workUnit = this.ownWorkUnits.next();
+        if (claimOwnWorkUnit(workUnit)) {
+          return workUnit;
+        }
+      }
+
+      if (this.otherWorkUnitFiles == null) {
+        this.otherWorkUnitFiles = listOtherWorkUnitFiles().iterator();
+      }
+      while (true) {
+        while (this.currentFileWorkUnits.hasNext()) {
+          WorkUnit workUnit = this.currentFileWorkUnits.next();
+          if (stealWorkUnit(workUnit)) {
+            return workUnit;
+          }
+        }
+        if (!this.otherWorkUnitFiles.hasNext()) {
+          log.info("No work unit left to steal for {}, stole {} work units", this.claimantId,
+              this.stolenWorkUnitCount);
+          return endOfData();
+        }
+        this.currentWorkUnitFileName = this.otherWorkUnitFiles.next();
+        this.currentFileWorkUnits = this.workUnitStore.getWorkUnits(this.currentWorkUnitFileName).iterator();
+      }
+    } catch (IOException ioe) {
+      throw new RuntimeException("Failed to claim work units for " + this.claimantId, ioe);
+    }
+  }
+
+  private boolean claimOwnWorkUnit(WorkUnit workUnit) throws IOException {
+    String taskId = getTaskId(workUnit);
+    // Also succeeds if a previous attempt of this Helix task made the claim
+    if (this.claims.tryClaim(taskId, this.claimantId)) {
+      return true;
+    }
+    log.info("Work unit {} of {} was stolen by {}", taskId, this.claimantId,
+        this.claims.getCommittedAttempt(taskId).orElse("another task"));
+    return false;
+  }
+
+  private boolean stealWorkUnit(WorkUnit workUnit) throws IOException {
+    String taskId = getTaskId(workUnit);
+    if (this.claims.isClaimed(taskId)) {
+      return false;
+    }
+    // Journal first, a claim must never be lost if this attempt dies right after making it
+    Path journalEntry = new Path(this.journalDir, taskId);
+    try (OutputStream os = this.fs.create(journalEntry, true)) {
+      os.write(this.currentWorkUnitFileName.getBytes(Charsets.UTF_8));
+    }
+    if (!this.claims.tryClaim(taskId, this.claimantId)) {
+      this.fs.delete(journalEntry, false);
+      return false;
+    }
+    this.stolenWorkUnitCount++;
+    log.info("{} stole work unit {} from {}", this.claimantId, taskId, this.currentWorkUnitFileName);
+    return true;
+  }
+
+  /**
+   * @return the work units stolen by previous attempts of this Helix task
+   */
+  private List<WorkUnit> recoverStolenWorkUnits() throws IOException {
+    List<WorkUnit> recovered = new ArrayList<>();
+    if (!this.fs.exists(this.journalDir)) {
+      return recovered;
+    }
+
+    Map<String, List<String>> taskIdsByFile = new HashMap<>();
+    for (FileStatus entry : this.fs.listStatus(this.journalDir)) {
+      String taskId = entry.getPath().getName();
+      Optional<String> claimant = this.claims.getCommittedAttempt(taskId);
+      if (!claimant.isPresent() || !claimant.get().equals(this.claimantId)) {
+        // The previous attempt died between journaling and claiming
+        continue;
+      }
+      try (InputStream is = this.fs.open(entry.getPath())) {
+        taskIdsByFile.computeIfAbsent(IOUtils.toString(is, Charsets.UTF_8), k -> new ArrayList<>()).add(taskId);
+      }
+    }
+
+    for (Map.Entry<String, List<String>> entry : taskIdsByFile.entrySet()) {
+      for (WorkUnit workUnit : this.workUnitStore.getWorkUnits(entry.getKey())) {
+        if (entry.getValue().contains(getTaskId(workUnit))) {
+          recovered.add(workUnit);
+        }
+      }
+    }
+    if (!recovered.isEmpty()) {
+      log.info("Recovered {} work units stolen by a previous attempt of {}", recovered.size(), this.claimantId);
+    }
+    return recovered;
+  }
+
+  private List<String> listOtherWorkUnitFiles() throws IOException {
+    List<String> workUnitFiles = new ArrayList<>(this.workUnitStore.getWorkUnitFileNames());
+    workUnitFiles.remove(this.ownWorkUnitFileName);
+    // Tasks looking for work at the same time start from different files
+    Collections.shuffle(workUnitFiles, new Random(this.claimantId.hashCode()));
+    return workUnitFiles;
+  }
+
+  private static String getTaskId(WorkUnit workUnit) {
+    return workUnit.getProp(ConfigurationKeys.TASK_ID_KEY);
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.cluster;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+
+import org.apache.gobblin.broker.gobblin_scopes.GobblinScopeTypes;
+import org.apache.gobblin.broker.iface.SharedResourcesBroker;
+
+
+public class SharedTopLevelBrokerCacheTest {
+
+  @Test
+  public void testBrokersSharedByBrokerConfiguration() throws Exception {
+    SharedTopLevelBrokerCache cache = new SharedTopLevelBrokerCache();
+    cache.startAsync().awaitRunning();
+    try {
+      SharedResourcesBroker<GobblinScopeTypes> broker = cache.getBroker(ConfigFactory.parseMap(ImmutableMap.of(
+          "job.name", "job1", "gobblin.broker.limiter.qps", "10")));
+
+      // Configuration not read by the broker does not prevent sharing
+      Assert.assertSame(cache.getBroker(ConfigFactory.parseMap(ImmutableMap.of(
+          "job.name", "job2", "gobblin.broker.limiter.qps", "10"))), broker);
+      Assert.assertEquals(cache.size(), 1);
+
+      Assert.assertNotSame(cache.getBroker(ConfigFactory.parseMap(ImmutableMap.of(
+          "job.name", "job1", "gobblin.broker.limiter.qps", "20"))), broker);
+      Assert.assertEquals(cache.size(), 2);
+
+      // Broker configuration read from a namespace is part of the broker configuration
+      Config namespaced = ConfigFactory.parseMap(ImmutableMap.of("job.name", "job1", "gobblin.broker.limiter.qps", "10",
+          "gobblin.brokerNamespaces", "myNamespace", "myNamespace.limiter.burst", "1"));
+      SharedResourcesBroker<GobblinScopeTypes> namespacedBroker = cache.getBroker(namespaced);
+      Assert.assertNotSame(namespacedBroker, broker);
+      Assert.assertSame(cache.getBroker(namespaced.withValue("job.name", ConfigValueFactory.fromAnyRef("job2"))),
+          namespacedBroker);
+      Assert.assertNotSame(cache.getBroker(namespaced.withValue("myNamespace.limiter.burst",
+          ConfigValueFactory.fromAnyRef("2"))), namespacedBroker);
+      Assert.assertEquals(cache.size(), 4);
+    } finally {
+      cache.stopAsync().awaitTerminated();
+    }
+    Assert.assertEquals(cache.size(), 0);
+  }
+}
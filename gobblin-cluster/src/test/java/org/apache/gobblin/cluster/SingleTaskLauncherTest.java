@@ -70,4 +70,27 @@ public class SingleTaskLauncherTest {
     verify(processBuilder).start(expectedInput);
     assertThat(process).isEqualTo(mockProcess);
   }
+
+  @Test
+  public void testLaunchWarmTaskRunner()
+      throws Exception {
+    final SystemPropertiesWrapper propertiesWrapper = mock(SystemPropertiesWrapper.class);
+    when(propertiesWrapper.getJavaHome()).thenReturn(JAVAHOME);
+    when(propertiesWrapper.getJavaClassPath()).thenReturn(TEST_CLASS_PATH);
+
+    final GobblinProcessBuilder processBuilder = mock(GobblinProcessBuilder.class);
+    final Process mockProcess = mock(Process.class);
+    when(processBuilder.startWithInheritedOutput(any())).thenReturn(mockProcess);
+
+    final SingleTaskLauncher launcher = new SingleTaskLauncher(processBuilder, propertiesWrapper,
+        Paths.get(CLUSTER_CONFIG_CONF_PATH), ConfigFactory.empty());
+    final Process process = launcher.launchWarmTaskRunner(4242);
+
+    final List<String> expectedInput = new ArrayList<>(Arrays
+        .asList("/javahome/bin/java", "-cp", TEST_CLASS_PATH,
+            "org.apache.gobblin.cluster.WarmTaskRunnerMain", "--cluster_config_file_path",
+            CLUSTER_CONFIG_CONF_PATH, "--protocol_port", "4242"));
+    verify(processBuilder).startWithInheritedOutput(expectedInput);
+    assertThat(process).isEqualTo(mockProcess);
+  }
 }
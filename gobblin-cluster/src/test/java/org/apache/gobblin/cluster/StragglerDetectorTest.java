@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.cluster;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+
+public class StragglerDetectorTest {
+
+  private static final long NOW = 400000L;
+
+  private final StragglerDetector detector = new StragglerDetector(60000L, 0.5, 0.5, 2.0);
+
+  private static List<HelixTaskProgress> finishedTasks(int count) {
+    ImmutableList.Builder<HelixTaskProgress> finished = ImmutableList.builder();
+    for (int i = 0; i < count; i++) {
+      // 10 records per second over 100 seconds
+      finished.add(new HelixTaskProgress(0L, 100000L, 1000L, true));
+    }
+    return finished.build();
+  }
+
+  @Test
+  public void testNoStragglersBeforeTail() {
+    Map<String, HelixTaskProgress> running =
+        ImmutableMap.of("slow", new HelixTaskProgress(0L, NOW, 10L, true));
+    Assert.assertEquals(this.detector.findStragglers(running, finishedTasks(4), 10, NOW), Collections.emptyList());
+  }
+
+  @Test
+  public void testFindStragglers() {
+    Map<String, HelixTaskProgress> running = ImmutableMap.of(
+        // Slow record rate
+        "slow", new HelixTaskProgress(0L, NOW, 1000L, true),
+        // Normal rate, but running for more than twice the median duration
+        "long", new HelixTaskProgress(100000L, NOW, 3000L, true),
+        // Normal rate, not running for long
+        "fast", new HelixTaskProgress(350000L, NOW, 500L, true),
+        // Slow, but not safe for speculative execution
+        "unsafe", new HelixTaskProgress(0L, NOW, 100L, false));
+
+    Assert.assertEquals(this.detector.findStragglers(running, finishedTasks(6), 10, NOW),
+        ImmutableList.of("slow", "long"));
+  }
+
+  @Test
+  public void testMinRuntime() {
+    // Slow, but started too recently to tell
+    Map<String, HelixTaskProgress> running =
+        ImmutableMap.of("slow", new HelixTaskProgress(NOW - 30000L, NOW, 10L, true));
+    Assert.assertEquals(this.detector.findStragglers(running, finishedTasks(6), 7, NOW), Collections.emptyList());
+  }
+
+  @Test
+  public void testProgressUserContentRoundTrip() {
+    HelixTaskProgress progress = new HelixTaskProgress(1000L, 11000L, 500L, true);
+    HelixTaskProgress parsed = HelixTaskProgress.fromUserContent(progress.toUserContent()).get();
+    Assert.assertEquals(parsed.getStartTimeMillis(), 1000L);
+    Assert.assertEquals(parsed.getReportTimeMillis(), 11000L);
+    Assert.assertEquals(parsed.getRecordsPulled(), 500L);
+    Assert.assertTrue(parsed.isSpeculativeSafe());
+    Assert.assertEquals(parsed.getRecordsPerSecond(), 50.0);
+
+    Assert.assertFalse(HelixTaskProgress.fromUserContent(Collections.emptyMap()).isPresent());
+    Assert.assertFalse(HelixTaskProgress.fromUserContent(null).isPresent());
+  }
+
+  @Test
+  public void testEstimateSavedTime() {
+    HelixTaskProgress original = new HelixTaskProgress(0L, 100000L, 1000L, true);
+    HelixTaskProgress winner = new HelixTaskProgress(50000L, 100000L, 3000L, true);
+    // The original attempt pulls 10 records per second and was 2000 records behind
+    Assert.assertEquals(SpeculativeExecutionManager.estimateSavedMillis(original, winner).get().longValue(), 200000L);
+    Assert.assertFalse(SpeculativeExecutionManager.estimateSavedMillis(original, null).isPresent());
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.cluster;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.io.Files;
+import com.typesafe.config.ConfigFactory;
+
+import org.apache.gobblin.runtime.GobblinMultiTaskAttempt;
+
+
+public class TaskCommitArbiterTest {
+
+  private File tmpDir;
+  private TaskCommitArbiter arbiter;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    this.tmpDir = Files.createTempDir();
+    this.arbiter = new TaskCommitArbiter(FileSystem.getLocal(new Configuration()),
+        new Path(this.tmpDir.getAbsolutePath(), "markers"));
+  }
+
+  @Test
+  public void testFirstAttemptWins() throws Exception {
+    Assert.assertFalse(this.arbiter.getCommittedAttempt("workunit1.wu").isPresent());
+
+    Assert.assertTrue(this.arbiter.tryClaim("workunit1.wu", "task_1"));
+    Assert.assertFalse(this.arbiter.tryClaim("workunit1.wu", "task_2"));
+    Assert.assertEquals(this.arbiter.getCommittedAttempt("workunit1.wu").get(), "task_1");
+
+    // Work units are arbitrated independently
+    Assert.assertTrue(this.arbiter.tryClaim("workunit2.wu", "task_2"));
+    Assert.assertEquals(this.arbiter.getCommittedAttempt("workunit2.wu").get(), "task_2");
+  }
+
+  @Test
+  public void testRetryOfWinningAttemptOwnsClaim() throws Exception {
+    Assert.assertTrue(this.arbiter.tryClaim("workunit3.wu", "task_3"));
+
+    // A Helix retry of the winning attempt has the same attempt id
+    Assert.assertTrue(this.arbiter.tryClaim("workunit3.wu", "task_3"));
+    Assert.assertFalse(this.arbiter.tryClaim("workunit3.wu", "task_4"));
+    Assert.assertEquals(this.arbiter.getCommittedAttempt("workunit3.wu").get(), "task_3");
+  }
+
+  @Test
+  public void testFailedAttemptFinishingFirstDoesNotClaim() throws Exception {
+    Path workUnitFilePath = new Path(this.tmpDir.getAbsolutePath(), "workunit4.wu");
+
+    GobblinMultiTaskAttempt failedAttempt = Mockito.mock(GobblinMultiTaskAttempt.class);
+    Mockito.when(failedAttempt.isSuccessful()).thenReturn(false);
+    SingleTask failedTask = createSingleTask(workUnitFilePath, failedAttempt, "task_5");
+    try {
+      failedTask.runAndCommitIfFirst();
+      Assert.fail("Expected the failed attempt to fail");
+    } catch (IOException e) {
+      // expected
+    }
+    Mockito.verify(failedAttempt, Mockito.never()).commit();
+    Assert.assertFalse(this.arbiter.isClaimed("workunit4.wu"));
+
+    GobblinMultiTaskAttempt successfulAttempt = Mockito.mock(GobblinMultiTaskAttempt.class);
+    Mockito.when(successfulAttempt.isSuccessful()).thenReturn(true);
+    createSingleTask(workUnitFilePath, successfulAttempt, "task_6").runAndCommitIfFirst();
+    Mockito.verify(successfulAttempt).commit();
+    Assert.assertEquals(this.arbiter.getCommittedAttempt("workunit4.wu").get(), "task_6");
+  }
+
+  private SingleTask createSingleTask(Path workUnitFilePath, GobblinMultiTaskAttempt taskAttempt, String attemptId)
+      throws IOException {
+    SingleTask task = new SingleTask("job1", workUnitFilePath, new Path(this.tmpDir.getAbsolutePath(), "job1.job"),
+        FileSystem.getLocal(new Configuration()), null, null, ConfigFactory.empty(), true);
+    task._taskAttempt = taskAttempt;
+    task.setCommitArbiter(this.arbiter, attemptId, false);
+    return task;
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    FileUtils.deleteDirectory(this.tmpDir);
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.cluster;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class WarmTaskRunnerMainTest {
+
+  @Test
+  public void testServe()
+      throws Exception {
+    final WarmSingleTaskRunner runner = mock(WarmSingleTaskRunner.class);
+    when(runner.runTask("job1", "/wu/task1.wu")).thenReturn(1000L);
+    doThrow(new RuntimeException("task failed")).when(runner).runTask("job2", "/wu/task2.wu");
+
+    final String requests = WarmTaskRunnerMain.formatRequest("job1", "/wu/task1.wu") + "\n"
+        + "malformed request\n"
+        + WarmTaskRunnerMain.formatRequest("job2", "/wu/task2.wu") + "\n";
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    new WarmTaskRunnerMain(runner).serve(new BufferedReader(new StringReader(requests)),
+        new PrintStream(output, true, Charsets.UTF_8.name()));
+
+    final List<String> lines = Arrays.asList(new String(output.toByteArray(), Charsets.UTF_8).split("\\R"));
+    Assert.assertEquals(lines, Arrays.asList(WarmTaskRunnerMain.READY,
+        WarmTaskRunnerMain.formatResult(WarmTaskRunnerMain.EXIT_CODE_SUCCESS, 1000L),
+        WarmTaskRunnerMain.formatResult(WarmTaskRunnerMain.EXIT_CODE_FAILURE, -1L),
+        WarmTaskRunnerMain.formatResult(WarmTaskRunnerMain.EXIT_CODE_FAILURE, -1L)));
+
+    verify(runner).startServices();
+    verify(runner).shutdownServices();
+  }
+}
@@ -0,0 +1,317 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.cluster;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class WarmTaskRunnerPoolTest {
+
+  private static Config poolConfig(int poolSize, int maxTasksPerRunner) {
+    return ConfigFactory.parseMap(ImmutableMap.of(
+        GobblinClusterConfigurationKeys.TASK_WARM_POOL_SIZE, poolSize,
+        GobblinClusterConfigurationKeys.TASK_WARM_POOL_MAX_TASKS_PER_RUNNER, maxTasksPerRunner));
+  }
+
+  private static void awaitIdleRunners(WarmTaskRunnerPool pool, int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000L;
+    while (pool.getIdleRunnerCount() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10L);
+    }
+    Assert.assertEquals(pool.getIdleRunnerCount(), count);
+  }
+
+  @Test
+  public void testWarmRunnerIsReusedAcrossTasks() throws Exception {
+    SingleTaskLauncher launcher = mock(SingleTaskLauncher.class);
+    FakeRunnerProcess process = new FakeRunnerProcess(0);
+    when(launcher.launchWarmTaskRunner(anyInt())).thenAnswer(FakeRunnerProcess.launching(process));
+
+    WarmTaskRunnerPool pool = new WarmTaskRunnerPool(launcher, poolConfig(1, 10), Optional.absent());
+    pool.startAsync().awaitRunning();
+    try {
+      awaitIdleRunners(pool, 1);
+
+      WarmTaskRunnerPool.TaskRunnerProcess runner = pool.acquire();
+      Assert.assertFalse(runner.isColdStart());
+      WarmTaskRunnerPool.TaskOutcome outcome = runner.runTask("job1", "/wu/task1.wu");
+      Assert.assertEquals(outcome.getExitCode(), 0);
+      Assert.assertTrue(outcome.getTaskStartTimeMillis() > 0);
+      pool.release(runner);
+
+      WarmTaskRunnerPool.TaskRunnerProcess secondRunner = pool.acquire();
+      Assert.assertSame(secondRunner, runner);
+      Assert.assertEquals(secondRunner.runTask("job2", "/wu/task2.wu").getExitCode(), 0);
+      Assert.assertEquals(secondRunner.getTasksRun(), 2);
+      pool.release(secondRunner);
+
+      Assert.assertEquals(process.getRequests(), "job1\t/wu/task1.wu\njob2\t/wu/task2.wu\n");
+      verify(launcher, times(1)).launchWarmTaskRunner(anyInt());
+    } finally {
+      pool.stopAsync().awaitTerminated();
+    }
+    Assert.assertFalse(process.isAlive());
+  }
+
+  @Test
+  public void testColdStartWhenNoRunnerIsIdle() throws Exception {
+    SingleTaskLauncher launcher = mock(SingleTaskLauncher.class);
+    FakeRunnerProcess failingProcess = new FakeRunnerProcess(1);
+    when(launcher.launchWarmTaskRunner(anyInt())).thenAnswer(FakeRunnerProcess.launching(failingProcess));
+
+    WarmTaskRunnerPool pool = new WarmTaskRunnerPool(launcher, poolConfig(0, 10), Optional.absent());
+    pool.startAsync().awaitRunning();
+    try {
+      WarmTaskRunnerPool.TaskRunnerProcess runner = pool.acquire();
+      Assert.assertTrue(runner.isColdStart());
+      Assert.assertEquals(runner.runTask("job1", "/wu/task1.wu").getExitCode(), 1);
+      pool.release(runner);
+
+      // The pool is full, the runner is not kept
+      Assert.assertEquals(pool.getIdleRunnerCount(), 0);
+    } finally {
+      pool.stopAsync().awaitTerminated();
+    }
+  }
+
+  @Test
+  public void testRunnerIsRecycledAfterMaxTasks() throws Exception {
+    SingleTaskLauncher launcher = mock(SingleTaskLauncher.class);
+    FakeRunnerProcess firstProcess = new FakeRunnerProcess(0);
+    FakeRunnerProcess secondProcess = new FakeRunnerProcess(0);
+    when(launcher.launchWarmTaskRunner(anyInt())).thenAnswer(FakeRunnerProcess.launching(firstProcess, secondProcess));
+
+    WarmTaskRunnerPool pool = new WarmTaskRunnerPool(launcher, poolConfig(1, 1), Optional.absent());
+    pool.startAsync().awaitRunning();
+    try {
+      awaitIdleRunners(pool, 1);
+      WarmTaskRunnerPool.TaskRunnerProcess runner = pool.acquire();
+      runner.runTask("job1", "/wu/task1.wu");
+      pool.release(runner);
+
+      // A fresh runner replaces the recycled one
+      awaitIdleRunners(pool, 1);
+      Assert.assertNotSame(pool.acquire(), runner);
+      verify(launcher, times(2)).launchWarmTaskRunner(anyInt());
+    } finally {
+      pool.stopAsync().awaitTerminated();
+    }
+  }
+
+  @Test
+  public void testDeadRunnerIsNotReused() throws Exception {
+    SingleTaskLauncher launcher = mock(SingleTaskLauncher.class);
+    FakeRunnerProcess firstProcess = new FakeRunnerProcess(0);
+    FakeRunnerProcess secondProcess = new FakeRunnerProcess(0);
+    when(launcher.launchWarmTaskRunner(anyInt())).thenAnswer(FakeRunnerProcess.launching(firstProcess, secondProcess));
+
+    WarmTaskRunnerPool pool = new WarmTaskRunnerPool(launcher, poolConfig(1, 10), Optional.absent());
+    pool.startAsync().awaitRunning();
+    try {
+      awaitIdleRunners(pool, 1);
+      WarmTaskRunnerPool.TaskRunnerProcess runner = pool.acquire();
+      firstProcess.destroyForcibly();
+      try {
+        runner.runTask("job1", "/wu/task1.wu");
+        Assert.fail("Expected the task to fail on a dead runner");
+      } catch (IOException e) {
+        // expected
+      }
+      Assert.assertFalse(runner.isReusable());
+      pool.release(runner);
+
+      awaitIdleRunners(pool, 1);
+      Assert.assertNotSame(pool.acquire(), runner);
+    } finally {
+      pool.stopAsync().awaitTerminated();
+    }
+  }
+
+  @Test
+  public void testTaskFailsWhenRunnerDoesNotAnswer() throws Exception {
+    SingleTaskLauncher launcher = mock(SingleTaskLauncher.class);
+    FakeRunnerProcess hangingProcess = new FakeRunnerProcess(0, false);
+    when(launcher.launchWarmTaskRunner(anyInt())).thenAnswer(FakeRunnerProcess.launching(hangingProcess));
+
+    Config config = poolConfig(0, 10).withFallback(ConfigFactory.parseMap(ImmutableMap.of(
+        GobblinClusterConfigurationKeys.TASK_WARM_POOL_TASK_TIMEOUT_SECONDS, 1)));
+    WarmTaskRunnerPool pool = new WarmTaskRunnerPool(launcher, config, Optional.absent());
+    pool.startAsync().awaitRunning();
+    try {
+      WarmTaskRunnerPool.TaskRunnerProcess runner = pool.acquire();
+      try {
+        runner.runTask("job1", "/wu/task1.wu");
+        Assert.fail("Expected the task to time out");
+      } catch (IOException e) {
+        // expected
+      }
+      Assert.assertFalse(runner.isReusable());
+      Assert.assertFalse(hangingProcess.isAlive());
+      pool.release(runner);
+    } finally {
+      pool.stopAsync().awaitTerminated();
+    }
+  }
+
+  /**
+   * A {@link Process} that behaves like a {@link WarmTaskRunnerMain} process answering every task request with
+   * the same exit code, or never answering.
+   */
+  private static class FakeRunnerProcess extends Process {
+    private final int exitCode;
+    private final boolean answering;
+    private final StringBuilder requests = new StringBuilder();
+    private final CountDownLatch exited = new CountDownLatch(1);
+    private volatile Socket connection;
+
+    FakeRunnerProcess(int exitCode) {
+      this(exitCode, true);
+    }
+
+    FakeRunnerProcess(int exitCode, boolean answering) {
+      this.exitCode = exitCode;
+      this.answering = answering;
+    }
+
+    /**
+     * Connect to the pool and serve its requests on a separate thread, like a launched {@link WarmTaskRunnerMain}.
+     */
+    static Answer<Process> launching(FakeRunnerProcess... processes) {
+      Iterator<FakeRunnerProcess> launched = Arrays.asList(processes).iterator();
+      return invocation -> launched.next().start(invocation.getArgument(0));
+    }
+
+    private FakeRunnerProcess start(int protocolPort) throws IOException {
+      this.connection = new Socket(InetAddress.getLoopbackAddress(), protocolPort);
+      Thread thread = new Thread(this::serve);
+      thread.setDaemon(true);
+      thread.start();
+      return this;
+    }
+
+    private void serve() {
+      try (BufferedReader in =
+          new BufferedReader(new InputStreamReader(this.connection.getInputStream(), Charsets.UTF_8));
+          PrintStream out = new PrintStream(this.connection.getOutputStream(), true, Charsets.UTF_8.name())) {
+        out.println(WarmTaskRunnerMain.READY);
+        String request;
+        while ((request = in.readLine()) != null) {
+          synchronized (this) {
+            this.requests.append(request).append('\n');
+          }
+          if (this.answering) {
+            out.println(WarmTaskRunnerMain.formatResult(this.exitCode, System.currentTimeMillis()));
+          }
+        }
+      } catch (IOException e) {
+        // The process was killed
+      } finally {
+        exit();
+      }
+    }
+
+    synchronized String getRequests() {
+      return this.requests.toString();
+    }
+
+    private void exit() {
+      try {
+        if (this.connection != null) {
+          this.connection.close();
+        }
+      } catch (IOException e) {
+        // Already closed
+      }
+      this.exited.countDown();
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+      return mock(OutputStream.class);
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return mock(InputStream.class);
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+      return mock(InputStream.class);
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+      this.exited.await();
+      return 0;
+    }
+
+    @Override
+    public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+      return this.exited.await(timeout, unit);
+    }
+
+    @Override
+    public int exitValue() {
+      return 0;
+    }
+
+    @Override
+    public boolean isAlive() {
+      return this.exited.getCount() > 0;
+    }
+
+    @Override
+    public void destroy() {
+      exit();
+    }
+
+    @Override
+    public Process destroyForcibly() {
+      exit();
+      return this;
+    }
+  }
+}
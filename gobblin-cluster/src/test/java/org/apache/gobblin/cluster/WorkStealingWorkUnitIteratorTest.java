@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.cluster;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+
+import org.apache.gobblin.configuration.ConfigurationKeys;
+import org.apache.gobblin.source.workunit.WorkUnit;
+
+
+public class WorkStealingWorkUnitIteratorTest {
+
+  private File tmpDir;
+  private FileSystem fs;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    this.tmpDir = Files.createTempDir();
+    this.fs = FileSystem.getLocal(new Configuration());
+  }
+
+  private static WorkUnit workUnit(String taskId) {
+    WorkUnit workUnit = WorkUnit.createEmpty();
+    workUnit.setProp(ConfigurationKeys.TASK_ID_KEY, taskId);
+    return workUnit;
+  }
+
+  private static List<String> taskIds(List<WorkUnit> workUnits) {
+    List<String> taskIds = new ArrayList<>();
+    for (WorkUnit workUnit : workUnits) {
+      taskIds.add(workUnit.getProp(ConfigurationKeys.TASK_ID_KEY));
+    }
+    return taskIds;
+  }
+
+  private static class InMemoryWorkUnitStore implements WorkStealingWorkUnitIterator.WorkUnitStore {
+    private final Map<String, List<WorkUnit>> workUnitFiles;
+
+    InMemoryWorkUnitStore(Map<String, List<WorkUnit>> workUnitFiles) {
+      this.workUnitFiles = workUnitFiles;
+    }
+
+    @Override
+    public List<String> getWorkUnitFileNames() {
+      return ImmutableList.copyOf(this.workUnitFiles.keySet());
+    }
+
+    @Override
+    public List<WorkUnit> getWorkUnits(String workUnitFileName) {
+      return this.workUnitFiles.get(workUnitFileName);
+    }
+  }
+
+  @Test
+  public void testStealAndRecover() throws Exception {
+    Path claimDir = new Path(this.tmpDir.getAbsolutePath(), "job1");
+    List<WorkUnit> workUnitsOfA = ImmutableList.of(workUnit("task_a1"), workUnit("task_a2"), workUnit("task_a3"));
+    List<WorkUnit> workUnitsOfB = ImmutableList.of(workUnit("task_b1"));
+    InMemoryWorkUnitStore store =
+        new InMemoryWorkUnitStore(ImmutableMap.of("a.mwu", workUnitsOfA, "b.wu", workUnitsOfB));
+
+    WorkStealingWorkUnitIterator iteratorA =
+        new WorkStealingWorkUnitIterator("helixTaskA", "a.mwu", workUnitsOfA, store, this.fs, claimDir);
+    WorkStealingWorkUnitIterator iteratorB =
+        new WorkStealingWorkUnitIterator("helixTaskB", "b.wu", workUnitsOfB, store, this.fs, claimDir);
+
+    // A starts its first work unit, B runs its own and steals the next unstarted work unit of A
+    Assert.assertEquals(taskIds(ImmutableList.of(iteratorA.next())), ImmutableList.of("task_a1"));
+    Assert.assertEquals(taskIds(ImmutableList.of(iteratorB.next(), iteratorB.next())),
+        ImmutableList.of("task_b1", "task_a2"));
+    Assert.assertEquals(iteratorB.getStolenWorkUnitCount(), 1);
+
+    // A skips the stolen work unit, and finds nothing to steal from B
+    Assert.assertEquals(taskIds(ImmutableList.copyOf(iteratorA)), ImmutableList.of("task_a3"));
+    Assert.assertFalse(iteratorB.hasNext());
+
+    // A retry of B runs again the work unit stolen by its previous attempt, and its own work unit
+    WorkStealingWorkUnitIterator retryOfB =
+        new WorkStealingWorkUnitIterator("helixTaskB", "b.wu", workUnitsOfB, store, this.fs, claimDir);
+    Assert.assertEquals(taskIds(ImmutableList.copyOf(retryOfB)), ImmutableList.of("task_a2", "task_b1"));
+    Assert.assertEquals(retryOfB.getStolenWorkUnitCount(), 0);
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    FileUtils.deleteDirectory(this.tmpDir);
+  }
+}
@@ -20,12 +20,16 @@ package org.apache.gobblin.compaction.action;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.gobblin.compaction.event.CompactionSlaEventHelper;
+import org.apache.gobblin.compaction.local.KeyIndex;
+import org.apache.gobblin.compaction.local.OutputFileReplacement;
 import org.apache.gobblin.compaction.mapreduce.CompactionJobConfigurator;
 import org.apache.gobblin.compaction.mapreduce.MRCompactor;
 import org.apache.gobblin.compaction.mapreduce.MRCompactorJobRunner;
@@ -46,7 +50,7 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.mapreduce.Counter;
-import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Counters;
 
 import static org.apache.gobblin.compaction.event.CompactionSlaEventHelper.*;
 
@@ -98,28 +102,55 @@ public class CompactionCompleteFileOperationAction implements CompactionComplete
       boolean appendDeltaOutput = this.state.getPropAsBoolean(MRCompactor.COMPACTION_RENAME_SOURCE_DIR_ENABLED,
           MRCompactor.DEFAULT_COMPACTION_RENAME_SOURCE_DIR_ENABLED);
 
-      Job job = this.configurator.getConfiguredJob();
+      Counters counters = this.configurator.getCompactionCounters();
 
       long newTotalRecords = 0;
       long oldTotalRecords = helper.readRecordCount(new Path(result.getDstAbsoluteDir()));
       long executionCount = helper.readExecutionCount(new Path(result.getDstAbsoluteDir()));
 
-      List<Path> goodPaths = CompactionJobConfigurator.getGoodFiles(job, tmpPath, this.fs,
-          ImmutableList.of(configurator.getFileExtension()));
+      List<Path> goodPaths =
+          this.configurator.getGoodFiles(tmpPath, ImmutableList.of(configurator.getFileExtension()));
       HashSet<Path> outputFiles = new HashSet<>();
       if (appendDeltaOutput) {
         FsPermission permission =
             HadoopUtils.deserializeFsPermission(this.state, MRCompactorJobRunner.COMPACTION_JOB_OUTPUT_DIR_PERMISSION,
                 FsPermission.getDefault());
         WriterUtils.mkdirsWithRecursivePermission(this.fs, dstPath, permission);
+        // Complete or undo the replacement of rewritten files by a previous run which did not finish
+        OutputFileReplacement.recover(this.fs, dstPath);
+
+        // Files rewritten by an incremental compaction replace the published files the delta was merged into
+        Collection<Path> replacedFiles = this.configurator.getReplacedOutputFiles();
+        OutputFileReplacement replacement = null;
+        if (!replacedFiles.isEmpty()) {
+          replacement = OutputFileReplacement.begin(this.fs, dstPath, replacedFiles,
+              goodPaths.stream().map(Path::getName).collect(Collectors.toList()));
+        }
+
         // append files under mr output to destination
-        for (Path filePath : goodPaths) {
-          String fileName = filePath.getName();
-          log.info(String.format("Adding %s to %s", filePath.toString(), dstPath));
-          Path outPath = new Path(dstPath, fileName);
+        try {
+          for (Path filePath : goodPaths) {
+            String fileName = filePath.getName();
+            log.info(String.format("Adding %s to %s", filePath.toString(), dstPath));
+            Path outPath = new Path(dstPath, fileName);
 
-          if (!this.fs.rename(filePath, outPath)) {
-            throw new IOException(String.format("Unable to move %s to %s", filePath.toString(), outPath.toString()));
+            if (!this.fs.rename(filePath, outPath)) {
+              throw new IOException(
+                  String.format("Unable to move %s to %s", filePath.toString(), outPath.toString()));
+            }
+            moveKeyIndex(filePath, outPath);
+          }
+        } catch (IOException e) {
+          if (replacement != null) {
+            replacement.abort();
+          }
+          throw e;
+        }
+
+        if (replacement != null) {
+          replacement.commit();
+          for (Path replacedFile : replacedFiles) {
+            this.configurator.getOldFiles().add(this.fs.makeQualified(replacedFile).toString());
           }
         }
 
@@ -156,7 +187,7 @@ public class CompactionCompleteFileOperationAction implements CompactionComplete
         // We don't get record count from file name because tracking which files are actually involved in the MR execution can
         // be hard. This is due to new minutely data is rolled up to hourly folder but from daily compaction perspective we are not
         // able to tell which file are newly added (because we simply pass all hourly folders to MR job instead of individual files).
-        Counter counter = job.getCounters().findCounter(RecordKeyMapperBase.EVENT_COUNTER.RECORD_COUNT);
+        Counter counter = counters.findCounter(RecordKeyMapperBase.EVENT_COUNTER.RECORD_COUNT);
         newTotalRecords = counter.getValue();
       }
       final Path finalDstPath = dstPath;
@@ -181,10 +212,9 @@ public class CompactionCompleteFileOperationAction implements CompactionComplete
       }
       compactionState.setProp(CompactionSlaEventHelper.RECORD_COUNT_TOTAL, Long.toString(newTotalRecords));
       compactionState.setProp(CompactionSlaEventHelper.EXEC_COUNT_TOTAL, Long.toString(executionCount + 1));
-      compactionState.setProp(CompactionSlaEventHelper.MR_JOB_ID,
-          this.configurator.getConfiguredJob().getJobID().toString());
+      compactionState.setProp(CompactionSlaEventHelper.MR_JOB_ID, this.configurator.getCompactionJobId());
       compactionState.setProp(DUPLICATE_COUNT_TOTAL,
-          job.getCounters().findCounter(RecordKeyDedupReducerBase.EVENT_COUNTER.DEDUPED).getValue());
+          counters.findCounter(RecordKeyDedupReducerBase.EVENT_COUNTER.DEDUPED).getValue());
       compactionState.setProp(CompactionSlaEventHelper.LAST_RUN_START_TIME,
           this.state.getProp(CompactionSource.COMPACTION_INIT_TIME));
       helper.saveState(new Path(result.getDstAbsoluteDir()), compactionState);
@@ -200,12 +230,23 @@ public class CompactionCompleteFileOperationAction implements CompactionComplete
                 CompactionSlaEventHelper.RECORD_COUNT_TOTAL, Long.toString(newTotalRecords),
                 CompactionSlaEventHelper.PREV_RECORD_COUNT_TOTAL, Long.toString(oldTotalRecords),
                 CompactionSlaEventHelper.EXEC_COUNT_TOTAL, Long.toString(executionCount + 1),
-                CompactionSlaEventHelper.MR_JOB_ID, this.configurator.getConfiguredJob().getJobID().toString());
+                CompactionSlaEventHelper.MR_JOB_ID, this.configurator.getCompactionJobId());
         this.eventSubmitter.submit(CompactionSlaEventHelper.COMPACTION_RECORD_COUNT_EVENT, eventMetadataMap);
       }
     }
   }
 
+  private void moveKeyIndex(Path filePath, Path outPath) throws IOException {
+    Path indexPath = KeyIndex.getIndexPath(filePath);
+    if (this.fs.exists(indexPath)) {
+      Path outIndexPath = KeyIndex.getIndexPath(outPath);
+      this.fs.mkdirs(outIndexPath.getParent());
+      if (!this.fs.rename(indexPath, outIndexPath)) {
+        throw new IOException(String.format("Unable to move %s to %s", indexPath, outIndexPath));
+      }
+    }
+  }
+
   public void addEventSubmitter(EventSubmitter eventSubmitter) {
     this.eventSubmitter = eventSubmitter;
   }
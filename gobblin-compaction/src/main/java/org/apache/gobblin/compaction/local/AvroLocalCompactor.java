@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.compaction.local;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Comparator;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryData;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.mapred.AvroValue;
+import org.apache.avro.mapreduce.AvroJob;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import org.apache.gobblin.compaction.mapreduce.avro.AvroDeltaFieldNameProvider;
+import org.apache.gobblin.compaction.mapreduce.avro.AvroKeyDedupReducer;
+import org.apache.gobblin.compaction.mapreduce.avro.AvroKeyMapper;
+import org.apache.gobblin.configuration.State;
+import org.apache.gobblin.util.WriterUtils;
+import org.apache.gobblin.util.reflection.GobblinConstructorUtils;
+
+
+/**
+ * A {@link LocalCompactor} for Avro data, configured from the compaction map-reduce {@link Job} created by
+ * {@link org.apache.gobblin.compaction.mapreduce.CompactionAvroJobConfigurator}, which it replaces.
+ *
+ * The dedup key of a record is built like in {@link AvroKeyMapper} and records with the same key are resolved
+ * like in {@link AvroKeyDedupReducer}. Sorted runs are spilled as uncompressed Avro files and only hold the records,
+ * their keys are rebuilt when the runs are read back. Keys are indexed in their Avro binary encoding, which
+ * {@link BinaryData#compare(byte[], int, byte[], int, Schema)} orders like the key records.
+ */
+public class AvroLocalCompactor extends LocalCompactor<AvroLocalCompactor.KeyedRecord> {
+
+  private static final String AVRO_OUTPUT_CODEC_KEY = "avro.output.codec";
+  private static final String AVRO_DEFLATE_LEVEL_KEY = "avro.mapred.deflate.level";
+
+  /**
+   * A record with its dedup key.
+   */
+  @Getter
+  @AllArgsConstructor
+  public static class KeyedRecord {
+    private final GenericRecord key;
+    private final GenericRecord record;
+  }
+
+  private final Schema schema;
+  private final Schema keySchema;
+  private final Optional<AvroDeltaFieldNameProvider> deltaFieldNameProvider;
+  private final Configuration conf;
+  private final GenericDatumWriter<GenericRecord> keyWriter;
+
+  public AvroLocalCompactor(State state, FileSystem fs, Collection<Path> inputPaths, Job job) throws IOException {
+    super(state, fs, inputPaths, job.getNumReduceTasks() > 0);
+    this.conf = job.getConfiguration();
+    this.schema = AvroJob.getOutputKeySchema(this.conf);
+    this.keySchema = this.shouldDeduplicate ? AvroJob.getMapOutputKeySchema(this.conf) : null;
+    this.keyWriter = this.keySchema == null ? null : new GenericDatumWriter<>(this.keySchema);
+    String deltaFieldNameProviderClassName = this.conf.get(AvroKeyDedupReducer.DELTA_SCHEMA_PROVIDER);
+    this.deltaFieldNameProvider = deltaFieldNameProviderClassName == null ? Optional.absent()
+        : Optional.of(GobblinConstructorUtils.invokeConstructor(AvroDeltaFieldNameProvider.class,
+            deltaFieldNameProviderClassName, this.conf));
+    if (this.schema == null && !getInputFiles().isEmpty()) {
+      throw new IOException("No output schema configured for " + inputPaths);
+    }
+  }
+
+  @Override
+  protected String getFileExtension() {
+    return "avro";
+  }
+
+  @Override
+  protected RecordReader<KeyedRecord> openInput(Path file) throws IOException {
+    return new KeyedRecordReader(new DataFileStream<>(this.fs.open(file), new GenericDatumReader<>(this.schema)));
+  }
+
+  @Override
+  protected RecordWriter<KeyedRecord> createOutput(Path file) throws IOException {
+    FSDataOutputStream outputStream = this.fs.create(file, true);
+    DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(this.schema));
+    if (this.conf.getBoolean(FileOutputFormat.COMPRESS, false)) {
+      writer.setCodec(WriterUtils.getCodecFactory(Optional.fromNullable(this.conf.get(AVRO_OUTPUT_CODEC_KEY)),
+          Optional.fromNullable(this.conf.get(AVRO_DEFLATE_LEVEL_KEY))));
+    }
+    writer.create(this.schema, outputStream);
+
+    return new RecordWriter<KeyedRecord>() {
+      @Override
+      public void write(KeyedRecord record) throws IOException {
+        writer.append(record.getRecord());
+      }
+
+      @Override
+      public long getBytesWritten() throws IOException {
+        return outputStream.getPos();
+      }
+
+      @Override
+      public void close() throws IOException {
+        writer.close();
+      }
+    };
+  }
+
+  @Override
+  protected ExternalMergeSorter.RunFormat<KeyedRecord> getRunFormat() {
+    return new ExternalMergeSorter.RunFormat<KeyedRecord>() {
+      @Override
+      public ExternalMergeSorter.RunWriter<KeyedRecord> createWriter(File file) throws IOException {
+        DataFileWriter<GenericRecord> writer =
+            new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(AvroLocalCompactor.this.schema));
+        writer.create(AvroLocalCompactor.this.schema, file);
+        return new ExternalMergeSorter.RunWriter<KeyedRecord>() {
+          @Override
+          public void write(KeyedRecord record) throws IOException {
+            writer.append(record.getRecord());
+          }
+
+          @Override
+          public void close() throws IOException {
+            writer.close();
+          }
+        };
+      }
+
+      @Override
+      public ExternalMergeSorter.RunReader<KeyedRecord> openReader(File file) throws IOException {
+        return new KeyedRecordReader(
+            new DataFileReader<>(file, new GenericDatumReader<GenericRecord>(AvroLocalCompactor.this.schema)));
+      }
+    };
+  }
+
+  @Override
+  protected Comparator<KeyedRecord> getKeyComparator() {
+    return (record1, record2) -> GenericData.get().compare(record1.getKey(), record2.getKey(), this.keySchema);
+  }
+
+  @Override
+  protected Optional<Comparator<KeyedRecord>> getDeltaComparator() {
+    if (!this.deltaFieldNameProvider.isPresent()) {
+      return Optional.absent();
+    }
+    AvroKeyDedupReducer.AvroValueDeltaSchemaComparator comparator =
+        new AvroKeyDedupReducer.AvroValueDeltaSchemaComparator(this.deltaFieldNameProvider.get());
+    return Optional.of((record1, record2) ->
+        comparator.compare(new AvroValue<>(record1.getRecord()), new AvroValue<>(record2.getRecord())));
+  }
+
+  @Override
+  protected byte[] encodeKey(KeyedRecord record) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    this.keyWriter.write(record.getKey(), encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  @Override
+  protected Comparator<byte[]> getEncodedKeyComparator() {
+    return (key1, key2) -> BinaryData.compare(key1, 0, key2, 0, this.keySchema);
+  }
+
+  /**
+   * The fingerprint of the full key schema, which unlike its parsing canonical form includes the sort orders.
+   */
+  @Override
+  protected String getKeyFormatId() {
+    byte[] keySchema = this.keySchema.toString().getBytes(Charsets.UTF_8);
+    return "avro-" + Long.toHexString(SchemaNormalization.fingerprint64(keySchema));
+  }
+
+  private KeyedRecord toKeyedRecord(GenericRecord record) {
+    if (this.keySchema == null) {
+      return new KeyedRecord(null, record);
+    }
+    GenericRecord key = new GenericData.Record(this.keySchema);
+    AvroKeyMapper.populateComparableKeyRecord(record, key);
+    return new KeyedRecord(key, record);
+  }
+
+  private class KeyedRecordReader implements RecordReader<KeyedRecord>, ExternalMergeSorter.RunReader<KeyedRecord> {
+    private final DataFileStream<GenericRecord> stream;
+
+    KeyedRecordReader(DataFileStream<GenericRecord> stream) {
+      this.stream = stream;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return this.stream.hasNext();
+    }
+
+    @Override
+    public KeyedRecord next() {
+      return toKeyedRecord(this.stream.next());
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.stream.close();
+    }
+  }
+}
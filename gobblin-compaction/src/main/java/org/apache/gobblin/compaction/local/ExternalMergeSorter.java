@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.compaction.local;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.io.Closer;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * An external merge sort over local disk.
+ *
+ * <p>
+ *   Records are added through {@link RunBuilder}s. Each builder buffers up to {@link #maxRecordsPerRun} records,
+ *   sorts them and spills them as a sorted run in a private directory under the given spill directory. Builders
+ *   are not thread-safe, but any number of them can fill the same sorter concurrently, which is how sorted runs
+ *   are generated in parallel. {@link #merge()} then returns all records in order through a k-way merge of the runs.
+ *   At most {@link #mergeFanIn} runs are read at the same time, runs beyond that are first merged into larger runs.
+ * </p>
+ *
+ * <p>
+ *   Records with equal keys come out of the merge next to each other, in no particular order.
+ * </p>
+ *
+ * @param <T> type of the sorted records
+ */
+@Slf4j
+public class ExternalMergeSorter<T> implements Closeable {
+
+  /**
+   * Reads and writes sorted runs on local disk.
+   */
+  public interface RunFormat<T> {
+    RunWriter<T> createWriter(File file) throws IOException;
+
+    RunReader<T> openReader(File file) throws IOException;
+  }
+
+  public interface RunWriter<T> extends Closeable {
+    void write(T record) throws IOException;
+  }
+
+  public interface RunReader<T> extends Iterator<T>, Closeable {
+  }
+
+  private final Comparator<T> comparator;
+  private final RunFormat<T> runFormat;
+  private final File spillDir;
+  private final int maxRecordsPerRun;
+  private final int mergeFanIn;
+  private final List<File> runs = Collections.synchronizedList(new ArrayList<>());
+  private final AtomicInteger runIndex = new AtomicInteger();
+
+  @Getter
+  private final AtomicLong spilledRecordCount = new AtomicLong();
+
+  public ExternalMergeSorter(Comparator<T> comparator, RunFormat<T> runFormat, File spillDir, int maxRecordsPerRun,
+      int mergeFanIn) throws IOException {
+    Preconditions.checkArgument(maxRecordsPerRun > 0, "Max records per run should be positive");
+    Preconditions.checkArgument(mergeFanIn > 1, "Merge fan-in should be greater than 1");
+    this.comparator = comparator;
+    this.runFormat = runFormat;
+    Files.createDirectories(spillDir.toPath());
+    this.spillDir = Files.createTempDirectory(spillDir.toPath(), "merge-sort-").toFile();
+    this.maxRecordsPerRun = maxRecordsPerRun;
+    this.mergeFanIn = mergeFanIn;
+  }
+
+  /**
+   * @return a new {@link RunBuilder} to be used by a single thread.
+   */
+  public RunBuilder newRunBuilder() {
+    return new RunBuilder();
+  }
+
+  public int getRunCount() {
+    return this.runs.size();
+  }
+
+  /**
+   * Merge all the runs spilled so far. All {@link RunBuilder}s must have been closed.
+   *
+   * @return a {@link RunReader} returning all records in order, which must be closed by the caller.
+   */
+  public RunReader<T> merge() throws IOException {
+    List<File> pending;
+    synchronized (this.runs) {
+      pending = new ArrayList<>(this.runs);
+    }
+
+    while (pending.size() > this.mergeFanIn) {
+      List<File> batch = pending.subList(0, this.mergeFanIn);
+      File mergedRun = newRunFile();
+      try (RunReader<T> reader = mergeRuns(new ArrayList<>(batch));
+          RunWriter<T> writer = this.runFormat.createWriter(mergedRun)) {
+        while (reader.hasNext()) {
+          writer.write(reader.next());
+        }
+      }
+      for (File run : batch) {
+        Files.delete(run.toPath());
+      }
+      log.debug("Merged {} runs into {}", batch.size(), mergedRun);
+      batch.clear();
+      pending.add(mergedRun);
+    }
+
+    return mergeRuns(pending);
+  }
+
+  private RunReader<T> mergeRuns(List<File> files) throws IOException {
+    Closer closer = Closer.create();
+    List<RunReader<T>> readers = new ArrayList<>(files.size());
+    try {
+      for (File file : files) {
+        readers.add(closer.register(this.runFormat.openReader(file)));
+      }
+    } catch (IOException e) {
+      throw closer.rethrow(e);
+    }
+    return new MergingReader(readers, closer);
+  }
+
+  /**
+   * @return a new file in the spill directory, which is deleted with the sorter.
+   */
+  public File newSpillFile() {
+    return newRunFile();
+  }
+
+  private File newRunFile() {
+    return new File(this.spillDir, String.format("run-%06d", this.runIndex.getAndIncrement()));
+  }
+
+  /**
+   * Delete all spilled runs.
+   */
+  @Override
+  public void close() throws IOException {
+    FileUtils.deleteDirectory(this.spillDir);
+  }
+
+  /**
+   * Buffers records and spills them as sorted runs. Not thread-safe, every thread uses its own builder.
+   */
+  public class RunBuilder implements Closeable {
+    private final List<T> buffer = new ArrayList<>();
+
+    public void add(T record) throws IOException {
+      this.buffer.add(record);
+      if (this.buffer.size() >= ExternalMergeSorter.this.maxRecordsPerRun) {
+        spill();
+      }
+    }
+
+    private void spill() throws IOException {
+      if (this.buffer.isEmpty()) {
+        return;
+      }
+      this.buffer.sort(ExternalMergeSorter.this.comparator);
+      File run = newRunFile();
+      try (RunWriter<T> writer = ExternalMergeSorter.this.runFormat.createWriter(run)) {
+        for (T record : this.buffer) {
+          writer.write(record);
+        }
+      }
+      ExternalMergeSorter.this.runs.add(run);
+      ExternalMergeSorter.this.spilledRecordCount.addAndGet(this.buffer.size());
+      this.buffer.clear();
+    }
+
+    /**
+     * Spill the remaining buffered records.
+     */
+    @Override
+    public void close() throws IOException {
+      spill();
+    }
+  }
+
+  /**
+   * K-way merge of sorted {@link RunReader}s.
+   */
+  private class MergingReader implements RunReader<T> {
+    private final PriorityQueue<PeekingIterator<T>> heads;
+    private final Closer closer;
+
+    MergingReader(List<RunReader<T>> readers, Closer closer) {
+      this.heads = new PriorityQueue<>(Math.max(1, readers.size()),
+          (it1, it2) -> ExternalMergeSorter.this.comparator.compare(it1.peek(), it2.peek()));
+      for (RunReader<T> reader : readers) {
+        if (reader.hasNext()) {
+          this.heads.add(Iterators.peekingIterator(reader));
+        }
+      }
+      this.closer = closer;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !this.heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+      PeekingIterator<T> head = this.heads.poll();
+      if (head == null) {
+        throw new NoSuchElementException();
+      }
+      T record = head.next();
+      if (head.hasNext()) {
+        this.heads.add(head);
+      }
+      return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.closer.close();
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.compaction.local;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * An index of the deduplication keys of a compacted output file, persisted next to it.
+ *
+ * <p>
+ *   The index holds the smallest and largest key of the file, which is sorted on its keys, and a {@link BloomFilter}
+ *   of the fingerprints of all its keys. It tells which output files late records may have duplicates in, so that
+ *   only those files are rewritten. Keys are opaque byte arrays, the format producing them is identified by a key
+ *   format id and an index with another key format id is ignored.
+ * </p>
+ *
+ * <p>
+ *   Indexes are stored under {@link #KEY_INDEX_DIR_NAME} in the directory of the output files, which is hidden from
+ *   Hive and map-reduce input formats.
+ * </p>
+ */
+@Slf4j
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class KeyIndex {
+
+  public static final String KEY_INDEX_DIR_NAME = "_key_indexes";
+  public static final String KEY_INDEX_FILE_EXTENSION = ".idx";
+
+  private static final int FORMAT_VERSION = 1;
+  private static final HashFunction FINGERPRINT_FUNCTION = Hashing.murmur3_128();
+
+  private final String keyFormatId;
+  private final long recordCount;
+  private final byte[] minKey;
+  private final byte[] maxKey;
+  private final BloomFilter<Long> fingerprints;
+
+  /**
+   * @return where the index of the given output file is stored
+   */
+  public static Path getIndexPath(Path outputFile) {
+    return new Path(new Path(outputFile.getParent(), KEY_INDEX_DIR_NAME),
+        outputFile.getName() + KEY_INDEX_FILE_EXTENSION);
+  }
+
+  /**
+   * @return false if the key is definitely not in the indexed file
+   */
+  public boolean mightContain(byte[] key, Comparator<byte[]> keyComparator) {
+    return keyComparator.compare(key, this.minKey) >= 0 && keyComparator.compare(key, this.maxKey) <= 0
+        && this.fingerprints.mightContain(fingerprint(key));
+  }
+
+  public void write(FileSystem fs, Path indexPath) throws IOException {
+    try (DataOutputStream out = fs.create(indexPath, true)) {
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(this.keyFormatId);
+      out.writeLong(this.recordCount);
+      writeBytes(out, this.minKey);
+      writeBytes(out, this.maxKey);
+      this.fingerprints.writeTo(out);
+    }
+  }
+
+  /**
+   * @return the index stored at the given path, or {@link Optional#absent()} if there is none or it was written
+   *         in an unknown format
+   */
+  public static Optional<KeyIndex> read(FileSystem fs, Path indexPath) throws IOException {
+    if (!fs.exists(indexPath)) {
+      return Optional.absent();
+    }
+    try (DataInputStream in = fs.open(indexPath)) {
+      int version = in.readInt();
+      if (version != FORMAT_VERSION) {
+        log.warn("Ignoring key index {} with unknown version {}", indexPath, version);
+        return Optional.absent();
+      }
+      String keyFormatId = in.readUTF();
+      long recordCount = in.readLong();
+      byte[] minKey = readBytes(in);
+      byte[] maxKey = readBytes(in);
+      return Optional.of(new KeyIndex(keyFormatId, recordCount, minKey, maxKey,
+          BloomFilter.readFrom(in, Funnels.longFunnel())));
+    }
+  }
+
+  private static long fingerprint(byte[] key) {
+    return FINGERPRINT_FUNCTION.hashBytes(key).asLong();
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  /**
+   * Builds the {@link KeyIndex} of an output file while it is written. Keys must be added in sorted order.
+   */
+  public static class Builder {
+    private final String keyFormatId;
+    private final double falsePositiveProbability;
+
+    private long[] keyFingerprints = new long[1024];
+    private int size;
+    private byte[] minKey;
+    private byte[] maxKey;
+
+    public Builder(String keyFormatId, double falsePositiveProbability) {
+      this.keyFormatId = keyFormatId;
+      this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    public void add(byte[] key) {
+      if (this.minKey == null) {
+        this.minKey = key;
+      }
+      this.maxKey = key;
+      if (this.size == this.keyFingerprints.length) {
+        this.keyFingerprints = Arrays.copyOf(this.keyFingerprints, this.size * 2);
+      }
+      this.keyFingerprints[this.size++] = fingerprint(key);
+    }
+
+    public KeyIndex build() {
+      Preconditions.checkState(this.size > 0, "Cannot index a file without records");
+      BloomFilter<Long> fingerprints =
+          BloomFilter.create(Funnels.longFunnel(), this.size, this.falsePositiveProbability);
+      for (int i = 0; i < this.size; i++) {
+        fingerprints.put(this.keyFingerprints[i]);
+      }
+      return new KeyIndex(this.keyFormatId, this.size, this.minKey, this.maxKey, fingerprints);
+    }
+  }
+}
@@ -0,0 +1,606 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.compaction.local;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormatCounter;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.gobblin.compaction.mapreduce.CompactorOutputCommitter;
+import org.apache.gobblin.compaction.mapreduce.MRCompactor;
+import org.apache.gobblin.compaction.mapreduce.MRCompactorJobRunner;
+import org.apache.gobblin.compaction.mapreduce.RecordKeyDedupReducerBase;
+import org.apache.gobblin.compaction.mapreduce.RecordKeyMapperBase;
+import org.apache.gobblin.configuration.State;
+import org.apache.gobblin.util.ExecutorsUtils;
+import org.apache.gobblin.util.FileListUtils;
+import org.apache.gobblin.util.recordcount.CompactionRecordCountProvider;
+
+
+/**
+ * A format-unaware compactor running inside a Gobblin task, as an alternative to the compaction map-reduce job for
+ * small inputs.
+ *
+ * <p>
+ *   With deduplication, input files are read in parallel into sorted runs spilled to local disk, and the runs are
+ *   k-way merged with an {@link ExternalMergeSorter}. Records with the same key are deduplicated with the same
+ *   semantics as {@link RecordKeyDedupReducerBase}: the first record is retained unless the delta comparator
+ *   prefers a later one. Without deduplication, input records are copied to the output like a map-only job.
+ * </p>
+ *
+ * <p>
+ *   With {@link #LOCAL_COMPACTION_INCREMENTAL_ENABLED}, every deduplicated output file is sorted on its keys and gets
+ *   a {@link KeyIndex}. Late records can then be merged into the output files already published: only the files
+ *   whose index says they may hold some of the late keys are rewritten, and late records with new keys are written
+ *   to new files. The published output is not read otherwise, so the cost of merging late data depends on its volume
+ *   rather than on the size of the published output.
+ * </p>
+ *
+ * <p>
+ *   Output files are named like the ones committed by {@link CompactorOutputCommitter} and the same map-reduce
+ *   counters are populated, so that completion actions work the same for both.
+ * </p>
+ *
+ * @param <T> type of the compacted records
+ */
+@Slf4j
+public abstract class LocalCompactor<T> {
+
+  public static final String LOCAL_COMPACTION_PREFIX = MRCompactor.COMPACTION_PREFIX + "local.";
+
+  /**
+   * Whether datasets whose input is smaller than {@link #LOCAL_COMPACTION_MAX_INPUT_SIZE_BYTES} are compacted
+   * inside the task instead of by a map-reduce job.
+   */
+  public static final String LOCAL_COMPACTION_ENABLED = LOCAL_COMPACTION_PREFIX + "enabled";
+  public static final boolean DEFAULT_LOCAL_COMPACTION_ENABLED = false;
+
+  public static final String LOCAL_COMPACTION_MAX_INPUT_SIZE_BYTES = LOCAL_COMPACTION_PREFIX + "maxInputSizeBytes";
+  public static final long DEFAULT_LOCAL_COMPACTION_MAX_INPUT_SIZE_BYTES = 1024L * 1024 * 1024;
+
+  // Number of threads reading input files into sorted runs
+  public static final String LOCAL_COMPACTION_PARALLELISM = LOCAL_COMPACTION_PREFIX + "parallelism";
+  public static final int DEFAULT_LOCAL_COMPACTION_PARALLELISM = 4;
+
+  // Records buffered in memory by each thread before a sorted run is spilled
+  public static final String LOCAL_COMPACTION_MAX_RECORDS_PER_RUN = LOCAL_COMPACTION_PREFIX + "maxRecordsPerRun";
+  public static final int DEFAULT_LOCAL_COMPACTION_MAX_RECORDS_PER_RUN = 100000;
+
+  // Maximum number of sorted runs read at the same time while merging
+  public static final String LOCAL_COMPACTION_MERGE_FAN_IN = LOCAL_COMPACTION_PREFIX + "mergeFanIn";
+  public static final int DEFAULT_LOCAL_COMPACTION_MERGE_FAN_IN = 64;
+
+  public static final String LOCAL_COMPACTION_SPILL_DIR = LOCAL_COMPACTION_PREFIX + "spillDir";
+  public static final String DEFAULT_LOCAL_COMPACTION_SPILL_DIR = System.getProperty("java.io.tmpdir");
+
+  /**
+   * Whether output files get a {@link KeyIndex} and late data is merged into the indexed output files already
+   * published instead of only being deduplicated against itself. Only applies with deduplication.
+   */
+  public static final String LOCAL_COMPACTION_INCREMENTAL_ENABLED = LOCAL_COMPACTION_PREFIX + "incremental.enabled";
+  public static final boolean DEFAULT_LOCAL_COMPACTION_INCREMENTAL_ENABLED = false;
+
+  public static final String LOCAL_COMPACTION_KEY_INDEX_FALSE_POSITIVE_PROBABILITY =
+      LOCAL_COMPACTION_PREFIX + "keyIndex.falsePositiveProbability";
+  public static final double DEFAULT_LOCAL_COMPACTION_KEY_INDEX_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+  private static final String TMP_OUTPUT_DIR_NAME = "_local_temporary";
+
+  public enum EVENT_COUNTER {
+    REWRITTEN_FILE_COUNT,
+    REWRITTEN_RECORD_COUNT
+  }
+
+  /**
+   * Reads the records of an input file.
+   */
+  public interface RecordReader<T> extends Iterator<T>, Closeable {
+  }
+
+  /**
+   * Writes the records of an output file.
+   */
+  public interface RecordWriter<T> extends Closeable {
+    void write(T record) throws IOException;
+
+    long getBytesWritten() throws IOException;
+  }
+
+  protected final State state;
+  protected final FileSystem fs;
+  protected final boolean shouldDeduplicate;
+  @Getter
+  protected final boolean isIncremental;
+
+  @Getter
+  private final List<FileStatus> inputFiles = new ArrayList<>();
+
+  /**
+   * Published output files which late records were merged into, and which are replaced by the rewritten files
+   */
+  @Getter
+  private final List<Path> replacedOutputFiles = new ArrayList<>();
+
+  /**
+   * @param inputPaths directories whose files with the extension {@link #getFileExtension()} are compacted
+   */
+  protected LocalCompactor(State state, FileSystem fs, Collection<Path> inputPaths, boolean shouldDeduplicate)
+      throws IOException {
+    this.state = state;
+    this.fs = fs;
+    this.shouldDeduplicate = shouldDeduplicate;
+    this.isIncremental = shouldDeduplicate && state.getPropAsBoolean(LOCAL_COMPACTION_INCREMENTAL_ENABLED,
+        DEFAULT_LOCAL_COMPACTION_INCREMENTAL_ENABLED);
+    for (Path inputPath : inputPaths) {
+      for (FileStatus fileStatus : FileListUtils.listFilesRecursively(fs, inputPath)) {
+        if (FilenameUtils.isExtension(fileStatus.getPath().getName(), getFileExtension())) {
+          this.inputFiles.add(fileStatus);
+        }
+      }
+    }
+  }
+
+  public long getInputSizeInBytes() {
+    long inputSize = 0;
+    for (FileStatus inputFile : this.inputFiles) {
+      inputSize += inputFile.getLen();
+    }
+    return inputSize;
+  }
+
+  /**
+   * @return the extension of input and output files, without dot.
+   */
+  protected abstract String getFileExtension();
+
+  protected abstract RecordReader<T> openInput(Path file) throws IOException;
+
+  protected abstract RecordWriter<T> createOutput(Path file) throws IOException;
+
+  /**
+   * @return how sorted runs of records are spilled to local disk.
+   */
+  protected abstract ExternalMergeSorter.RunFormat<T> getRunFormat();
+
+  /**
+   * @return a total order of records on their deduplication key.
+   */
+  protected abstract Comparator<T> getKeyComparator();
+
+  /**
+   * @return the comparator deciding which of the records with the same key is retained, see
+   *         {@link RecordKeyDedupReducerBase#deltaComparatorOptional}.
+   */
+  protected abstract Optional<Comparator<T>> getDeltaComparator();
+
+  /**
+   * @return the deduplication key of a record as bytes, used by {@link KeyIndex}es.
+   */
+  protected abstract byte[] encodeKey(T record) throws IOException;
+
+  /**
+   * @return a total order of keys encoded by {@link #encodeKey(Object)}, consistent with {@link #getKeyComparator()}.
+   */
+  protected abstract Comparator<byte[]> getEncodedKeyComparator();
+
+  /**
+   * @return an id changing whenever keys are encoded or ordered differently, such as when the key schema changes.
+   */
+  protected abstract String getKeyFormatId();
+
+  /**
+   * Compact the input files into the given output directory.
+   *
+   * @return the counters a compaction map-reduce job would have reported.
+   */
+  public Counters compact(Path outputDir) throws IOException {
+    return compact(outputDir, Optional.absent());
+  }
+
+  /**
+   * Compact the input files into the given output directory, merging them into the output files already published
+   * in the given directory if the compaction {@link #isIncremental()}. The published files which are replaced by
+   * rewritten files in the output directory are returned by {@link #getReplacedOutputFiles()}, the published
+   * directory itself is left unchanged.
+   *
+   * @return the counters a compaction map-reduce job would have reported.
+   */
+  public Counters compact(Path outputDir, Optional<Path> publishedOutputDir) throws IOException {
+    Counters counters = new Counters();
+    this.fs.mkdirs(outputDir);
+    log.info("Compacting {} files ({} bytes) into {} inside the task", this.inputFiles.size(), getInputSizeInBytes(),
+        outputDir);
+
+    try (OutputFiles output = new OutputFiles(outputDir, counters)) {
+      if (this.shouldDeduplicate) {
+        compactWithDedup(output, counters, this.isIncremental ? publishedOutputDir : Optional.absent());
+      } else {
+        copyRecords(output, counters);
+      }
+      output.commit();
+    }
+    return counters;
+  }
+
+  private void copyRecords(OutputFiles output, Counters counters) throws IOException {
+    for (FileStatus inputFile : this.inputFiles) {
+      try (RecordReader<T> reader = openInput(inputFile.getPath())) {
+        while (reader.hasNext()) {
+          output.write(reader.next());
+          counters.findCounter(RecordKeyMapperBase.EVENT_COUNTER.RECORD_COUNT).increment(1);
+        }
+      }
+    }
+  }
+
+  private void compactWithDedup(OutputFiles output, Counters counters, Optional<Path> publishedOutputDir)
+      throws IOException {
+    File spillDir = new File(this.state.getProp(LOCAL_COMPACTION_SPILL_DIR, DEFAULT_LOCAL_COMPACTION_SPILL_DIR));
+
+    try (ExternalMergeSorter<T> sorter = new ExternalMergeSorter<>(getKeyComparator(), getRunFormat(), spillDir,
+        this.state.getPropAsInt(LOCAL_COMPACTION_MAX_RECORDS_PER_RUN, DEFAULT_LOCAL_COMPACTION_MAX_RECORDS_PER_RUN),
+        this.state.getPropAsInt(LOCAL_COMPACTION_MERGE_FAN_IN, DEFAULT_LOCAL_COMPACTION_MERGE_FAN_IN))) {
+      long inputRecordCount = generateSortedRuns(sorter);
+      counters.findCounter(RecordKeyMapperBase.EVENT_COUNTER.RECORD_COUNT).increment(inputRecordCount);
+      log.info("Read {} records into {} sorted runs", inputRecordCount, sorter.getRunCount());
+
+      try (ExternalMergeSorter.RunReader<T> merged = sorter.merge()) {
+        Iterator<T> records = new DedupIterator(merged, counters);
+        if (publishedOutputDir.isPresent()) {
+          mergeIntoPublishedOutput(records, publishedOutputDir.get(), sorter, output, counters);
+        } else {
+          while (records.hasNext()) {
+            output.write(records.next());
+            counters.findCounter(RecordKeyDedupReducerBase.EVENT_COUNTER.RECORD_COUNT).increment(1);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Merge deduplicated records, in key order, into the indexed output files published in the given directory.
+   *
+   * <p>
+   *   The records are first spilled to a local run while their keys are checked against the {@link KeyIndex}es of
+   *   the published files. Each file which may hold some of the keys is then rewritten through a merge join with
+   *   the run, and the records whose key was not found in any file are written last. Output files are rolled after
+   *   each rewritten file so that all of them stay sorted.
+   * </p>
+   */
+  private void mergeIntoPublishedOutput(Iterator<T> records, Path publishedOutputDir, ExternalMergeSorter<T> sorter,
+      OutputFiles output, Counters counters) throws IOException {
+    Map<Path, KeyIndex> keyIndexes = readKeyIndexes(publishedOutputDir);
+    Comparator<byte[]> encodedKeyComparator = getEncodedKeyComparator();
+    Set<Path> filesToRewrite = new LinkedHashSet<>();
+
+    File deltaRun = sorter.newSpillFile();
+    int deltaRecordCount = 0;
+    try (ExternalMergeSorter.RunWriter<T> writer = getRunFormat().createWriter(deltaRun)) {
+      while (records.hasNext()) {
+        T record = records.next();
+        writer.write(record);
+        deltaRecordCount++;
+        if (filesToRewrite.size() < keyIndexes.size()) {
+          byte[] key = encodeKey(record);
+          for (Map.Entry<Path, KeyIndex> keyIndex : keyIndexes.entrySet()) {
+            if (!filesToRewrite.contains(keyIndex.getKey())
+                && keyIndex.getValue().mightContain(key, encodedKeyComparator)) {
+              filesToRewrite.add(keyIndex.getKey());
+            }
+          }
+        }
+      }
+    }
+    log.info("{} records may have duplicates in {} of {} indexed files in {}", deltaRecordCount,
+        filesToRewrite.size(), keyIndexes.size(), publishedOutputDir);
+
+    BitSet mergedRecords = new BitSet(deltaRecordCount);
+    for (Path fileToRewrite : filesToRewrite) {
+      rewriteWithDelta(fileToRewrite, deltaRun, mergedRecords, output, counters);
+      output.roll();
+      this.replacedOutputFiles.add(fileToRewrite);
+    }
+
+    try (ExternalMergeSorter.RunReader<T> reader = getRunFormat().openReader(deltaRun)) {
+      for (int i = 0; reader.hasNext(); i++) {
+        T record = reader.next();
+        if (!mergedRecords.get(i)) {
+          output.write(record);
+          counters.findCounter(RecordKeyDedupReducerBase.EVENT_COUNTER.RECORD_COUNT).increment(1);
+        }
+      }
+    }
+  }
+
+  /**
+   * Rewrite a published output file, replacing its records which have the same key as a record of the delta run
+   * like {@link RecordKeyDedupReducerBase} would. The delta records merged into the file are marked in the given
+   * {@link BitSet}, by position in the run.
+   */
+  private void rewriteWithDelta(Path file, File deltaRun, BitSet mergedRecords, OutputFiles output,
+      Counters counters) throws IOException {
+    Comparator<T> keyComparator = getKeyComparator();
+    Optional<Comparator<T>> deltaComparator = getDeltaComparator();
+    long recordCount = 0;
+
+    try (RecordReader<T> reader = openInput(file);
+        ExternalMergeSorter.RunReader<T> deltaReader = getRunFormat().openReader(deltaRun)) {
+      PeekingIterator<T> deltaRecords = Iterators.peekingIterator(deltaReader);
+      int deltaIndex = 0;
+      while (reader.hasNext()) {
+        T record = reader.next();
+        while (deltaRecords.hasNext() && keyComparator.compare(deltaRecords.peek(), record) < 0) {
+          deltaRecords.next();
+          deltaIndex++;
+        }
+        if (deltaRecords.hasNext() && keyComparator.compare(deltaRecords.peek(), record) == 0) {
+          T deltaRecord = deltaRecords.next();
+          mergedRecords.set(deltaIndex++);
+          if (deltaComparator.isPresent() && deltaComparator.get().compare(record, deltaRecord) < 0) {
+            record = deltaRecord;
+          }
+          counters.findCounter(RecordKeyDedupReducerBase.EVENT_COUNTER.MORE_THAN_1).increment(1);
+          counters.findCounter(RecordKeyDedupReducerBase.EVENT_COUNTER.DEDUPED).increment(1);
+        }
+        output.write(record);
+        recordCount++;
+      }
+    }
+
+    log.info("Rewrote {} records of {}", recordCount, file);
+    counters.findCounter(RecordKeyDedupReducerBase.EVENT_COUNTER.RECORD_COUNT).increment(recordCount);
+    counters.findCounter(EVENT_COUNTER.REWRITTEN_FILE_COUNT).increment(1);
+    counters.findCounter(EVENT_COUNTER.REWRITTEN_RECORD_COUNT).increment(recordCount);
+  }
+
+  /**
+   * @return the {@link KeyIndex}es of the output files in the given directory, files without a usable index are
+   *         left untouched
+   */
+  private Map<Path, KeyIndex> readKeyIndexes(Path publishedOutputDir) throws IOException {
+    Map<Path, KeyIndex> keyIndexes = new LinkedHashMap<>();
+    if (!this.fs.exists(publishedOutputDir)) {
+      return keyIndexes;
+    }
+
+    String keyFormatId = getKeyFormatId();
+    for (FileStatus file : this.fs.listStatus(publishedOutputDir,
+        path -> FilenameUtils.isExtension(path.getName(), getFileExtension()))) {
+      Optional<KeyIndex> keyIndex = KeyIndex.read(this.fs, KeyIndex.getIndexPath(file.getPath()));
+      if (keyIndex.isPresent() && keyIndex.get().getKeyFormatId().equals(keyFormatId)) {
+        keyIndexes.put(file.getPath(), keyIndex.get());
+      } else {
+        log.warn("{} has no usable key index, late records are not deduplicated against it", file.getPath());
+      }
+    }
+    return keyIndexes;
+  }
+
+  /**
+   * Read all input files into sorted runs, using up to {@link #LOCAL_COMPACTION_PARALLELISM} threads.
+   *
+   * @return the number of records read.
+   */
+  private long generateSortedRuns(ExternalMergeSorter<T> sorter) throws IOException {
+    Queue<Path> pendingFiles = new ConcurrentLinkedQueue<>();
+    for (FileStatus inputFile : this.inputFiles) {
+      pendingFiles.add(inputFile.getPath());
+    }
+    int parallelism = Math.min(this.inputFiles.size(),
+        this.state.getPropAsInt(LOCAL_COMPACTION_PARALLELISM, DEFAULT_LOCAL_COMPACTION_PARALLELISM));
+    if (parallelism == 0) {
+      return 0;
+    }
+
+    AtomicLong recordCount = new AtomicLong();
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+        ExecutorsUtils.newThreadFactory(Optional.of(log), Optional.of("LocalCompaction-%d")));
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < parallelism; i++) {
+        futures.add(executor.submit(() -> {
+          try (ExternalMergeSorter<T>.RunBuilder runBuilder = sorter.newRunBuilder()) {
+            Path inputFile;
+            while ((inputFile = pendingFiles.poll()) != null) {
+              try (RecordReader<T> reader = openInput(inputFile)) {
+                while (reader.hasNext()) {
+                  runBuilder.add(reader.next());
+                  recordCount.incrementAndGet();
+                }
+              }
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to generate sorted runs", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while generating sorted runs");
+    } finally {
+      executor.shutdownNow();
+    }
+    return recordCount.get();
+  }
+
+  /**
+   * Returns one record per key out of records sorted on their keys, with the semantics of
+   * {@link RecordKeyDedupReducerBase}: the first record is retained unless the delta comparator prefers a later one.
+   */
+  private class DedupIterator extends AbstractIterator<T> {
+    private final PeekingIterator<T> records;
+    private final Comparator<T> keyComparator = getKeyComparator();
+    private final Optional<Comparator<T>> deltaComparator = getDeltaComparator();
+    private final Counters counters;
+
+    DedupIterator(Iterator<T> records, Counters counters) {
+      this.records = Iterators.peekingIterator(records);
+      this.counters = counters;
+    }
+
+    @Override
+    protected T computeNext() {
+      if (!this.records.hasNext()) {
+        return endOfData();
+      }
+      T first = this.records.next();
+      T valueToRetain = first;
+      int numVals = 1;
+      while (this.records.hasNext() && this.keyComparator.compare(first, this.records.peek()) == 0) {
+        T value = this.records.next();
+        if (this.deltaComparator.isPresent()) {
+          valueToRetain = this.deltaComparator.get().compare(valueToRetain, value) >= 0 ? valueToRetain : value;
+        }
+        numVals++;
+      }
+
+      if (numVals > 1) {
+        this.counters.findCounter(RecordKeyDedupReducerBase.EVENT_COUNTER.MORE_THAN_1).increment(1);
+        this.counters.findCounter(RecordKeyDedupReducerBase.EVENT_COUNTER.DEDUPED).increment(numVals - 1);
+      }
+      return valueToRetain;
+    }
+  }
+
+  /**
+   * Rolls output files at the target output file size. Files are written to a temporary directory and only moved
+   * to the output directory, under a name carrying their record count, once complete. With
+   * {@link #LOCAL_COMPACTION_INCREMENTAL_ENABLED}, the {@link KeyIndex} of a file is written after it is moved.
+   */
+  private class OutputFiles implements Closeable {
+    private final Path outputDir;
+    private final Path tmpDir;
+    private final Counters counters;
+    private final String fileNamePrefix;
+    private final long targetFileSize;
+    private final double keyIndexFalsePositiveProbability;
+
+    private RecordWriter<T> writer;
+    private KeyIndex.Builder keyIndexBuilder;
+    private Path writerPath;
+    private long writerRecordCount;
+    private int fileIndex;
+
+    OutputFiles(Path outputDir, Counters counters) {
+      this.outputDir = outputDir;
+      this.tmpDir = new Path(outputDir, TMP_OUTPUT_DIR_NAME);
+      this.counters = counters;
+      this.fileNamePrefix = LocalCompactor.this.shouldDeduplicate ? CompactionRecordCountProvider.MR_OUTPUT_FILE_PREFIX
+          : CompactionRecordCountProvider.M_OUTPUT_FILE_PREFIX;
+      this.targetFileSize = LocalCompactor.this.state.getPropAsLong(
+          MRCompactorJobRunner.COMPACTION_JOB_TARGET_OUTPUT_FILE_SIZE,
+          MRCompactorJobRunner.DEFAULT_COMPACTION_JOB_TARGET_OUTPUT_FILE_SIZE);
+      this.keyIndexFalsePositiveProbability = LocalCompactor.this.state.getPropAsDouble(
+          LOCAL_COMPACTION_KEY_INDEX_FALSE_POSITIVE_PROBABILITY,
+          DEFAULT_LOCAL_COMPACTION_KEY_INDEX_FALSE_POSITIVE_PROBABILITY);
+    }
+
+    void write(T record) throws IOException {
+      if (this.writer == null) {
+        this.writerPath = new Path(this.tmpDir, String.format("part-%05d.%s", this.fileIndex++, getFileExtension()));
+        this.writer = createOutput(this.writerPath);
+        this.writerRecordCount = 0;
+        if (LocalCompactor.this.isIncremental) {
+          this.keyIndexBuilder = new KeyIndex.Builder(getKeyFormatId(), this.keyIndexFalsePositiveProbability);
+        }
+      }
+      this.writer.write(record);
+      if (this.keyIndexBuilder != null) {
+        this.keyIndexBuilder.add(encodeKey(record));
+      }
+      this.writerRecordCount++;
+      if (this.writer.getBytesWritten() >= this.targetFileSize) {
+        roll();
+      }
+    }
+
+    void roll() throws IOException {
+      if (this.writer == null) {
+        return;
+      }
+      this.writer.close();
+      this.writer = null;
+
+      Path committedPath = new Path(this.outputDir, CompactionRecordCountProvider.constructFileName(
+          this.fileNamePrefix, "." + getFileExtension(), this.writerRecordCount));
+      if (!LocalCompactor.this.fs.rename(this.writerPath, committedPath)) {
+        throw new IOException(String.format("Unable to move %s to %s", this.writerPath, committedPath));
+      }
+      if (this.keyIndexBuilder != null) {
+        this.keyIndexBuilder.build().write(LocalCompactor.this.fs, KeyIndex.getIndexPath(committedPath));
+        this.keyIndexBuilder = null;
+      }
+      this.counters.findCounter(CompactorOutputCommitter.EVENT_COUNTER.OUTPUT_FILE_COUNT).increment(1);
+      this.counters.findCounter(FileOutputFormatCounter.BYTES_WRITTEN)
+          .increment(LocalCompactor.this.fs.getFileStatus(committedPath).getLen());
+    }
+
+    void commit() throws IOException {
+      roll();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        if (this.writer != null) {
+          this.writer.close();
+        }
+      } finally {
+        LocalCompactor.this.fs.delete(this.tmpDir, true);
+      }
+    }
+  }
+}
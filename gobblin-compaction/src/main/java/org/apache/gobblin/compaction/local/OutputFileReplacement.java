@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.compaction.local;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Replaces published output files, and their {@link KeyIndex}es, with the files an incremental compaction rewrote,
+ * so that an interrupted replacement can be completed or undone by the next run instead of leaving both the old and
+ * the rewritten records published.
+ *
+ * <p>
+ *   The replaced files are first moved to {@link #REPLACED_FILES_DIR_NAME} in the output directory, which is hidden
+ *   from Hive and map-reduce input formats, next to a journal of the names of the new files. The new files are then
+ *   moved into the output directory and the replacement is committed by a marker file, after which the replaced files
+ *   are deleted. {@link #recover(FileSystem, Path)} deletes the replaced files of a committed replacement, and puts
+ *   them back in place of the new files otherwise, so that the compaction of the delta is simply run again.
+ * </p>
+ */
+@Slf4j
+public class OutputFileReplacement {
+
+  public static final String REPLACED_FILES_DIR_NAME = "_replaced_files";
+  static final String NEW_FILES_JOURNAL_NAME = "_new_files";
+  static final String COMMITTED_MARKER_NAME = "_COMMITTED";
+
+  private final FileSystem fs;
+  private final Path outputDir;
+  private final Path replacedFilesDir;
+
+  private OutputFileReplacement(FileSystem fs, Path outputDir) {
+    this.fs = fs;
+    this.outputDir = outputDir;
+    this.replacedFilesDir = new Path(outputDir, REPLACED_FILES_DIR_NAME);
+  }
+
+  /**
+   * Move the given published files and their indexes out of the output directory, after recording the names of the
+   * new files which replace them.
+   */
+  public static OutputFileReplacement begin(FileSystem fs, Path outputDir, Collection<Path> replacedFiles,
+      Collection<String> newFileNames) throws IOException {
+    recover(fs, outputDir);
+
+    OutputFileReplacement replacement = new OutputFileReplacement(fs, outputDir);
+    replacement.writeJournal(newFileNames);
+    for (Path replacedFile : replacedFiles) {
+      log.info("Moving {} to {}, rewritten with the delta", replacedFile, replacement.replacedFilesDir);
+      replacement.move(replacedFile, new Path(replacement.replacedFilesDir, replacedFile.getName()));
+    }
+    return replacement;
+  }
+
+  /**
+   * Commit the replacement once all new files are in the output directory, and delete the replaced files. Failing to
+   * delete them does not fail the replacement, they are deleted by the next {@link #recover(FileSystem, Path)}.
+   */
+  public void commit() throws IOException {
+    this.fs.create(new Path(this.replacedFilesDir, COMMITTED_MARKER_NAME), true).close();
+    String failureMessage = "Unable to delete " + this.replacedFilesDir + ", it will be deleted by the next compaction";
+    try {
+      if (!this.fs.delete(this.replacedFilesDir, true)) {
+        log.warn(failureMessage);
+      }
+    } catch (IOException e) {
+      log.warn(failureMessage, e);
+    }
+  }
+
+  /**
+   * Undo the replacement: delete the new files moved to the output directory so far and put the replaced files back.
+   */
+  public void abort() throws IOException {
+    rollBack();
+  }
+
+  /**
+   * Complete or undo a replacement in the given output directory which was interrupted. Does nothing if there is none.
+   */
+  public static void recover(FileSystem fs, Path outputDir) throws IOException {
+    OutputFileReplacement replacement = new OutputFileReplacement(fs, outputDir);
+    if (!fs.exists(replacement.replacedFilesDir)) {
+      return;
+    }
+    if (fs.exists(new Path(replacement.replacedFilesDir, COMMITTED_MARKER_NAME))) {
+      log.info("Deleting the files of {} replaced by a committed compaction", outputDir);
+      if (!fs.delete(replacement.replacedFilesDir, true)) {
+        throw new IOException("Unable to delete " + replacement.replacedFilesDir);
+      }
+    } else {
+      log.warn("Restoring the files of {} replaced by an interrupted compaction", outputDir);
+      replacement.rollBack();
+    }
+  }
+
+  private void rollBack() throws IOException {
+    for (String newFileName : readJournal()) {
+      Path newFile = new Path(this.outputDir, newFileName);
+      deleteIfExists(newFile);
+      deleteIfExists(KeyIndex.getIndexPath(newFile));
+    }
+    for (FileStatus replacedFile : this.fs.listStatus(this.replacedFilesDir)) {
+      if (!replacedFile.isDirectory() && !replacedFile.getPath().getName().startsWith("_")) {
+        move(replacedFile.getPath(), new Path(this.outputDir, replacedFile.getPath().getName()));
+      }
+    }
+    if (!this.fs.delete(this.replacedFilesDir, true)) {
+      throw new IOException("Unable to delete " + this.replacedFilesDir);
+    }
+  }
+
+  /**
+   * Move a file and its index, if it has one.
+   */
+  private void move(Path from, Path to) throws IOException {
+    this.fs.mkdirs(to.getParent());
+    if (!this.fs.rename(from, to)) {
+      throw new IOException(String.format("Unable to move %s to %s", from, to));
+    }
+    Path indexPath = KeyIndex.getIndexPath(from);
+    if (this.fs.exists(indexPath)) {
+      Path toIndexPath = KeyIndex.getIndexPath(to);
+      this.fs.mkdirs(toIndexPath.getParent());
+      if (!this.fs.rename(indexPath, toIndexPath)) {
+        throw new IOException(String.format("Unable to move %s to %s", indexPath, toIndexPath));
+      }
+    }
+  }
+
+  private void deleteIfExists(Path path) throws IOException {
+    if (this.fs.exists(path) && !this.fs.delete(path, false)) {
+      throw new IOException("Unable to delete " + path);
+    }
+  }
+
+  /**
+   * The journal is written under a temporary name and renamed, so that it is either complete or missing. It is
+   * missing only if no new file was moved to the output directory.
+   */
+  private void writeJournal(Collection<String> newFileNames) throws IOException {
+    this.fs.mkdirs(this.replacedFilesDir);
+    Path journal = new Path(this.replacedFilesDir, NEW_FILES_JOURNAL_NAME);
+    Path tmpJournal = new Path(this.replacedFilesDir, NEW_FILES_JOURNAL_NAME + ".tmp");
+    try (FSDataOutputStream out = this.fs.create(tmpJournal, true);
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+      for (String newFileName : newFileNames) {
+        writer.write(newFileName);
+        writer.write('\n');
+      }
+    }
+    if (!this.fs.rename(tmpJournal, journal)) {
+      throw new IOException(String.format("Unable to move %s to %s", tmpJournal, journal));
+    }
+  }
+
+  private List<String> readJournal() throws IOException {
+    List<String> newFileNames = new ArrayList<>();
+    Path journal = new Path(this.replacedFilesDir, NEW_FILES_JOURNAL_NAME);
+    if (!this.fs.exists(journal)) {
+      return newFileNames;
+    }
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(this.fs.open(journal), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isEmpty()) {
+          newFileNames.add(line);
+        }
+      }
+    }
+    return newFileNames;
+  }
+}
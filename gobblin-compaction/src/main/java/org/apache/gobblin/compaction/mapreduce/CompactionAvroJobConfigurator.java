@@ -33,6 +33,8 @@ import com.google.common.base.Optional;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.apache.gobblin.compaction.local.AvroLocalCompactor;
+import org.apache.gobblin.compaction.local.LocalCompactor;
 import org.apache.gobblin.compaction.mapreduce.avro.AvroKeyCompactorOutputFormat;
 import org.apache.gobblin.compaction.mapreduce.avro.AvroKeyDedupReducer;
 import org.apache.gobblin.compaction.mapreduce.avro.AvroKeyMapper;
@@ -158,6 +160,11 @@ public class CompactionAvroJobConfigurator extends CompactionJobConfigurator {
     job.setMapOutputValueClass(AvroValue.class);
   }
 
+  @Override
+  public Optional<LocalCompactor<?>> createLocalCompactor(Job job) throws IOException {
+    return Optional.of(new AvroLocalCompactor(this.state, this.fs, this.mapReduceInputPaths, job));
+  }
+
   protected void configureReducer(Job job) throws IOException {
     job.setOutputFormatClass(AvroKeyCompactorOutputFormat.class);
     job.setReducerClass(AvroKeyDedupReducer.class);
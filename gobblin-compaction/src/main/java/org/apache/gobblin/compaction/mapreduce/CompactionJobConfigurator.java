@@ -22,6 +22,7 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -34,11 +35,13 @@ import org.apache.hadoop.filecache.DistributedCache;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Counters;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.TaskCompletionEvent;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 
+import com.google.common.base.Optional;
 import com.google.common.collect.Sets;
 import com.google.common.primitives.Ints;
 
@@ -48,6 +51,7 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import org.apache.gobblin.compaction.dataset.DatasetHelper;
+import org.apache.gobblin.compaction.local.LocalCompactor;
 import org.apache.gobblin.compaction.mapreduce.avro.MRCompactorAvroKeyDedupJobRunner;
 import org.apache.gobblin.compaction.parser.CompactionPathParser;
 import org.apache.gobblin.compaction.verify.InputRecordCountHelper;
@@ -70,6 +74,7 @@ public abstract class CompactionJobConfigurator {
   public static final String COMPACTION_JOB_CONFIGURATOR_FACTORY_CLASS_KEY = "compaction.jobConfiguratorFactory.class";
   public static final String DEFAULT_COMPACTION_JOB_CONFIGURATOR_FACTORY_CLASS =
       "org.apache.gobblin.compaction.mapreduce.CompactionAvroJobConfigurator$Factory";
+  private static final String LOCAL_COMPACTION_JOB_ID_PREFIX = "local_";
 
   @Getter
   @AllArgsConstructor
@@ -104,6 +109,14 @@ public abstract class CompactionJobConfigurator {
   protected Collection<Path> dstNewFiles = null;
   @Getter
   protected long fileNameRecordCount = 0;
+  // Counters of the compaction when it ran inside the task instead of as the configured map-reduce job
+  @Getter
+  @Setter
+  protected Optional<Counters> localCompactionCounters = Optional.absent();
+  // Published output files which an incremental local compaction rewrote, to be removed when the output is published
+  @Getter
+  @Setter
+  protected Collection<Path> replacedOutputFiles = Collections.emptyList();
 
   public interface ConfiguratorFactory {
     CompactionJobConfigurator createConfigurator(State state) throws IOException;
@@ -168,6 +181,44 @@ public abstract class CompactionJobConfigurator {
     return job;
   }
 
+  /**
+   * Create a {@link LocalCompactor} doing the work of a job created by {@link #createJob(FileSystemDataset)}
+   * inside the task.
+   *
+   * @return a {@link LocalCompactor}, or {@link Optional#absent()} if the data format is only compacted by map-reduce
+   */
+  public Optional<LocalCompactor<?>> createLocalCompactor(Job job) throws IOException {
+    return Optional.absent();
+  }
+
+  /**
+   * @return the counters of the compaction, whether it ran inside the task or as the configured map-reduce job
+   */
+  public Counters getCompactionCounters() throws IOException {
+    return this.localCompactionCounters.isPresent() ? this.localCompactionCounters.get()
+        : this.configuredJob.getCounters();
+  }
+
+  /**
+   * @return the id of the map-reduce job which ran the compaction, or a task based id if it ran inside the task
+   */
+  public String getCompactionJobId() {
+    return this.localCompactionCounters.isPresent()
+        ? LOCAL_COMPACTION_JOB_ID_PREFIX + this.state.getProp(ConfigurationKeys.TASK_ID_KEY, "")
+        : this.configuredJob.getJobID().toString();
+  }
+
+  /**
+   * Get the committed output files of the compaction, see {@link #getGoodFiles(Job, Path, FileSystem, List)}.
+   */
+  public List<Path> getGoodFiles(Path tmpPath, List<String> acceptableExtension) throws IOException {
+    if (this.localCompactionCounters.isPresent()) {
+      // A local compaction only moves complete files to the output path
+      return DatasetHelper.getApplicableFilePaths(this.fs, tmpPath, acceptableExtension);
+    }
+    return getGoodFiles(this.configuredJob, tmpPath, this.fs, acceptableExtension);
+  }
+
   /**
    * Configuring Mapper/Reducer's input/output schema for compaction MR job.
    * The input schema for Mapper should be obtained from to-be-compacted file.
@@ -21,9 +21,11 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.hadoop.mapreduce.Counters;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormatCounter;
 
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 
 import lombok.extern.slf4j.Slf4j;
@@ -58,6 +60,9 @@ public class MRCompactionTask extends MRTask {
   protected final CompactionSuite suite;
   protected final Dataset dataset;
   protected final EventSubmitter eventSubmitter;
+  // Job created while checking whether the dataset can be compacted inside the task
+  private Job preparedJob;
+  private Optional<Counters> localCompactionCounters = Optional.absent();
   /**
    * Constructor
    */
@@ -73,7 +78,7 @@ public class MRCompactionTask extends MRTask {
   /**
    * Below three steps are performed for a compaction task:
    * Do verifications before a map-reduce job is launched.
-   * Start a map-reduce job and wait until it is finished
+   * Start a map-reduce job and wait until it is finished, unless the suite compacts the dataset inside the task
    * Do post-actions after map-reduce job is finished
    */
   @Override
@@ -95,6 +100,21 @@ public class MRCompactionTask extends MRTask {
       return;
     }
 
+    try {
+      this.preparedJob = this.suite.createJob(dataset);
+      if (this.preparedJob != null) {
+        this.localCompactionCounters = this.suite.compactInTask(dataset, this.preparedJob);
+      }
+    } catch (IOException | RuntimeException e) {
+      log.error("Failed to compact " + dataset.getUrn() + " inside the task", e);
+      this.onMRTaskComplete(false, e);
+      return;
+    }
+    if (this.localCompactionCounters.isPresent()) {
+      this.onMRTaskComplete(true, null);
+      return;
+    }
+
     super.run();
   }
 
@@ -123,23 +143,27 @@ public class MRCompactionTask extends MRTask {
   private void setCounterInfo(TaskState taskState)
       throws IOException {
 
-    if (mrJob == null) {
+    Counters counters;
+    if (this.localCompactionCounters.isPresent()) {
+      counters = this.localCompactionCounters.get();
+    } else if (mrJob != null) {
+      counters = mrJob.getCounters();
+    } else {
       return;
     }
 
-    long recordCount = getCounterValue(mrJob, RecordKeyDedupReducerBase.EVENT_COUNTER.RECORD_COUNT);
+    long recordCount = getCounterValue(counters, RecordKeyDedupReducerBase.EVENT_COUNTER.RECORD_COUNT);
     if (recordCount == 0) {
       // map only job
-      recordCount = getCounterValue(mrJob, RecordKeyMapperBase.EVENT_COUNTER.RECORD_COUNT);
+      recordCount = getCounterValue(counters, RecordKeyMapperBase.EVENT_COUNTER.RECORD_COUNT);
     }
     taskState.setProp(RECORD_COUNT, recordCount);
-    taskState.setProp(FILE_COUNT, getCounterValue(mrJob, CompactorOutputCommitter.EVENT_COUNTER.OUTPUT_FILE_COUNT));
-    taskState.setProp(BYTE_COUNT, getCounterValue(mrJob, FileOutputFormatCounter.BYTES_WRITTEN));
+    taskState.setProp(FILE_COUNT, getCounterValue(counters, CompactorOutputCommitter.EVENT_COUNTER.OUTPUT_FILE_COUNT));
+    taskState.setProp(BYTE_COUNT, getCounterValue(counters, FileOutputFormatCounter.BYTES_WRITTEN));
   }
 
-  private long getCounterValue(Job job, Enum<?> key)
-      throws IOException {
-    return job.getCounters().findCounter(key).getValue();
+  private long getCounterValue(Counters counters, Enum<?> key) {
+    return counters.findCounter(key).getValue();
   }
 
   private void submitEvent(String eventName) {
@@ -154,6 +178,6 @@ public class MRCompactionTask extends MRTask {
    * @return a map-reduce job
    */
   protected Job createJob() throws IOException {
-    return this.suite.createJob(dataset);
+    return this.preparedJob != null ? this.preparedJob : this.suite.createJob(dataset);
   }
 }
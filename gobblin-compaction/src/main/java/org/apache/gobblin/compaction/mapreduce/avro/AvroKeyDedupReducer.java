@@ -17,7 +17,6 @@
 
 package org.apache.gobblin.compaction.mapreduce.avro;
 
-import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import java.util.Comparator;
 import org.apache.avro.generic.GenericRecord;
@@ -70,8 +69,7 @@ public class AvroKeyDedupReducer extends RecordKeyDedupReducerBase<AvroKey<Gener
   }
 
 
-  @VisibleForTesting
-  protected static class AvroValueDeltaSchemaComparator implements Comparator<AvroValue<GenericRecord>> {
+  public static class AvroValueDeltaSchemaComparator implements Comparator<AvroValue<GenericRecord>> {
     private final AvroDeltaFieldNameProvider deltaSchemaProvider;
 
     public AvroValueDeltaSchemaComparator(AvroDeltaFieldNameProvider provider) {
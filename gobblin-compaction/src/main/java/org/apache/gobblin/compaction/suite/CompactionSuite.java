@@ -20,8 +20,11 @@ package org.apache.gobblin.compaction.suite;
 import java.io.IOException;
 import java.util.List;
 
+import org.apache.hadoop.mapreduce.Counters;
 import org.apache.hadoop.mapreduce.Job;
 
+import com.google.common.base.Optional;
+
 import org.apache.gobblin.compaction.action.CompactionCompleteAction;
 import org.apache.gobblin.compaction.mapreduce.MRCompactionTask;
 import org.apache.gobblin.compaction.verify.CompactionVerifier;
@@ -76,6 +79,16 @@ public interface CompactionSuite<D extends Dataset> {
    */
   Job createJob(D dataset) throws IOException;
 
+  /**
+   * Compact the dataset inside the task instead of running the map-reduce job created for it by
+   * {@link #createJob(Dataset)}. Called by {@link MRCompactionTask#run()} before the job is submitted.
+   *
+   * @return the counters of the compaction, or {@link Optional#absent()} if the job should be run on map-reduce
+   */
+  default Optional<Counters> compactInTask(D dataset, Job job) throws IOException {
+    return Optional.absent();
+  }
+
   /**
    * Get a list of completion actions after compaction is finished. Actions are listed in order
    */
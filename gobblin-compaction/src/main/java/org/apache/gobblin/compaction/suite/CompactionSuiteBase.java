@@ -17,6 +17,7 @@
 
 package org.apache.gobblin.compaction.suite;
 
+import com.google.common.base.Optional;
 import com.google.gson.Gson;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -27,7 +28,11 @@ import org.apache.gobblin.compaction.action.CompactionCompleteAction;
 import org.apache.gobblin.compaction.action.CompactionCompleteFileOperationAction;
 import org.apache.gobblin.compaction.action.CompactionHiveRegistrationAction;
 import org.apache.gobblin.compaction.action.CompactionMarkDirectoryAction;
+import org.apache.gobblin.compaction.local.LocalCompactor;
+import org.apache.gobblin.compaction.local.OutputFileReplacement;
 import org.apache.gobblin.compaction.mapreduce.CompactionJobConfigurator;
+import org.apache.gobblin.compaction.mapreduce.MRCompactor;
+import org.apache.gobblin.compaction.parser.CompactionPathParser;
 import org.apache.gobblin.compaction.verify.CompactionAuditCountVerifier;
 import org.apache.gobblin.compaction.verify.CompactionThresholdVerifier;
 import org.apache.gobblin.compaction.verify.CompactionTimeRangeVerifier;
@@ -36,6 +41,8 @@ import org.apache.gobblin.configuration.SourceState;
 import org.apache.gobblin.configuration.State;
 import org.apache.gobblin.dataset.FileSystemDataset;
 import org.apache.gobblin.util.io.GsonInterfaceAdapter;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Counters;
 import org.apache.hadoop.mapreduce.Job;
 
 
@@ -129,6 +136,53 @@ public class CompactionSuiteBase implements CompactionSuite<FileSystemDataset> {
     return getConfigurator().createJob(dataset);
   }
 
+  /**
+   * Compact the dataset with a {@link LocalCompactor} when {@link LocalCompactor#LOCAL_COMPACTION_ENABLED} is set,
+   * the data format supports it and the input is not larger than
+   * {@link LocalCompactor#LOCAL_COMPACTION_MAX_INPUT_SIZE_BYTES}.
+   *
+   * In append delta mode ({@link MRCompactor#COMPACTION_RENAME_SOURCE_DIR_ENABLED}), an incremental
+   * {@link LocalCompactor} merges the delta into the output already published in the destination directory.
+   */
+  @Override
+  public Optional<Counters> compactInTask(FileSystemDataset dataset, Job job) throws IOException {
+    if (!this.state.getPropAsBoolean(LocalCompactor.LOCAL_COMPACTION_ENABLED,
+        LocalCompactor.DEFAULT_LOCAL_COMPACTION_ENABLED)) {
+      return Optional.absent();
+    }
+
+    Optional<LocalCompactor<?>> compactor = getConfigurator().createLocalCompactor(job);
+    if (!compactor.isPresent()) {
+      log.info("Local compaction is not supported by {}, running map-reduce for {}",
+          getConfigurator().getClass().getSimpleName(), dataset.datasetURN());
+      return Optional.absent();
+    }
+
+    long inputSize = compactor.get().getInputSizeInBytes();
+    long maxInputSize = this.state.getPropAsLong(LocalCompactor.LOCAL_COMPACTION_MAX_INPUT_SIZE_BYTES,
+        LocalCompactor.DEFAULT_LOCAL_COMPACTION_MAX_INPUT_SIZE_BYTES);
+    if (inputSize > maxInputSize) {
+      log.info("Input of {} is {} bytes, above {} bytes, running map-reduce", dataset.datasetURN(), inputSize,
+          maxInputSize);
+      return Optional.absent();
+    }
+
+    boolean appendDelta = this.state.getPropAsBoolean(MRCompactor.COMPACTION_RENAME_SOURCE_DIR_ENABLED,
+        MRCompactor.DEFAULT_COMPACTION_RENAME_SOURCE_DIR_ENABLED);
+    Optional<Path> publishedOutputDir = Optional.absent();
+    if (appendDelta && compactor.get().isIncremental()) {
+      CompactionPathParser.CompactionParserResult result = new CompactionPathParser(this.state).parse(dataset);
+      publishedOutputDir = Optional.of(new Path(result.getDstAbsoluteDir()));
+      // The published files must not include both the old and rewritten files of an interrupted replacement
+      OutputFileReplacement.recover(getConfigurator().getFs(), publishedOutputDir.get());
+    }
+
+    Counters counters = compactor.get().compact(getConfigurator().getMrOutputPath(), publishedOutputDir);
+    getConfigurator().setLocalCompactionCounters(Optional.of(counters));
+    getConfigurator().setReplacedOutputFiles(compactor.get().getReplacedOutputFiles());
+    return Optional.of(counters);
+  }
+
   protected CompactionJobConfigurator getConfigurator() {
     if (configurator == null) {
       synchronized (this) {
@@ -17,8 +17,11 @@
 
 package org.apache.gobblin.compaction.action;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.HashSet;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -28,9 +31,15 @@ import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.JobID;
 import org.apache.hadoop.mapreduce.counters.GenericCounter;
 import org.joda.time.DateTimeUtils;
+import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+
+import org.apache.gobblin.compaction.local.KeyIndex;
+import org.apache.gobblin.compaction.local.OutputFileReplacement;
 import org.apache.gobblin.compaction.mapreduce.CompactionJobConfigurator;
 import org.apache.gobblin.compaction.mapreduce.CompactionOrcJobConfigurator;
 import org.apache.gobblin.compaction.mapreduce.MRCompactor;
@@ -91,6 +100,7 @@ public class CompactionCompleteFileOperationActionTest {
     Mockito.doReturn(1L).when(irch).readExecutionCount(Mockito.any());
     Mockito.doReturn("orc").when(cjc).getFileExtension();
     Mockito.doReturn(true).when(fs).exists(Mockito.any());
+    Mockito.doReturn(false).when(fs).exists(new Path(dailyOutputPath, OutputFileReplacement.REPLACED_FILES_DIR_NAME));
     Mockito.doReturn(fileStatus).when(fs).getFileStatus(tmpFile);
     Mockito.doReturn(true).when(fs).rename(Mockito.any(Path.class), Mockito.any(Path.class));
     Mockito.doReturn(false).when(fileStatus).isDirectory();
@@ -100,6 +110,9 @@ public class CompactionCompleteFileOperationActionTest {
     Mockito.doReturn(dailyOutputPath).when(fs).makeQualified(dailyOutputPath);
     Mockito.doReturn(jobCounters).when(job).getCounters();
     Mockito.doReturn(jobId).when(job).getJobID();
+    Mockito.doReturn(jobCounters).when(cjc).getCompactionCounters();
+    Mockito.doReturn(jobId.toString()).when(cjc).getCompactionJobId();
+    Mockito.doReturn(ImmutableList.of(tmpFile)).when(cjc).getGoodFiles(Mockito.any(), Mockito.any());
     Mockito.doReturn(recordCounter).when(jobCounters).findCounter(Mockito.any());
     Mockito.doReturn(new State()).when(irch).loadState(Mockito.any());
     Mockito.doReturn(hourlyInputPathStr).when(fsd).datasetURN();
@@ -135,4 +148,114 @@ public class CompactionCompleteFileOperationActionTest {
     compactionCompleteFileOperationAction.onCompactionJobComplete(fsd);
     Mockito.verify(fs, Mockito.never()).delete(newCompactionPath, true);
   }
+
+  /**
+   * The files rewritten by an incremental compaction replace the published files even if deleting the replaced files
+   * fails, and the replaced files are never published next to the rewritten ones.
+   */
+  @Test
+  public void testReplacedFilesAreHiddenWhenDeleteFails() throws IOException {
+    File baseDir = Files.createTempDir();
+    FileSystem fs = Mockito.spy(FileSystem.getLocal(new Configuration()));
+    Path dstPath = new Path(baseDir.getAbsolutePath(), "datasetName/daily/2024/01/01");
+    Path replacedFile = createFileWithIndex(fs, new Path(dstPath, "part-r-1.orc"));
+    Path untouchedFile = createFileWithIndex(fs, new Path(dstPath, "part-r-2.orc"));
+    Path rewrittenFile = createFileWithIndex(fs, new Path(baseDir.getAbsolutePath(), "tmp/part-r-3.orc"));
+    Path replacedFilesDir = new Path(dstPath, OutputFileReplacement.REPLACED_FILES_DIR_NAME);
+    Mockito.doThrow(new IOException("Injected failure")).when(fs)
+        .delete(Mockito.argThat(path -> path.getName().equals(OutputFileReplacement.REPLACED_FILES_DIR_NAME)),
+            Mockito.anyBoolean());
+
+    CompactionJobConfigurator cjc = mockIncrementalCompaction(rewrittenFile, replacedFile);
+    createIncrementalAction(baseDir, cjc, fs).onCompactionJobComplete(mockDataset(baseDir));
+
+    Assert.assertFalse(fs.exists(replacedFile));
+    Assert.assertFalse(fs.exists(KeyIndex.getIndexPath(replacedFile)));
+    Assert.assertTrue(fs.exists(untouchedFile));
+    Path publishedFile = new Path(dstPath, rewrittenFile.getName());
+    Assert.assertTrue(fs.exists(publishedFile));
+    Assert.assertTrue(fs.exists(KeyIndex.getIndexPath(publishedFile)));
+    Assert.assertTrue(cjc.getOldFiles().contains(fs.makeQualified(replacedFile).toString()));
+
+    // The replaced files are left in a hidden directory, which the next run deletes
+    Assert.assertTrue(fs.exists(replacedFilesDir));
+    Mockito.doCallRealMethod().when(fs).delete(Mockito.any(Path.class), Mockito.anyBoolean());
+    OutputFileReplacement.recover(fs, dstPath);
+    Assert.assertFalse(fs.exists(replacedFilesDir));
+    Assert.assertTrue(fs.exists(publishedFile));
+    Assert.assertTrue(fs.exists(untouchedFile));
+  }
+
+  /**
+   * If the rewritten files cannot be published, the replaced files are put back.
+   */
+  @Test
+  public void testReplacedFilesAreRestoredWhenPublishingFails() throws IOException {
+    File baseDir = Files.createTempDir();
+    FileSystem fs = Mockito.spy(FileSystem.getLocal(new Configuration()));
+    Path dstPath = new Path(baseDir.getAbsolutePath(), "datasetName/daily/2024/01/01");
+    Path replacedFile = createFileWithIndex(fs, new Path(dstPath, "part-r-1.orc"));
+    Path rewrittenFile = createFileWithIndex(fs, new Path(baseDir.getAbsolutePath(), "tmp/part-r-3.orc"));
+    Path otherNewFile = createFileWithIndex(fs, new Path(baseDir.getAbsolutePath(), "tmp/part-r-4.orc"));
+    Mockito.doReturn(false).when(fs).rename(Mockito.eq(otherNewFile), Mockito.any(Path.class));
+
+    CompactionJobConfigurator cjc = mockIncrementalCompaction(rewrittenFile, replacedFile);
+    Mockito.doReturn(ImmutableList.of(rewrittenFile, otherNewFile)).when(cjc)
+        .getGoodFiles(Mockito.any(), Mockito.any());
+    try {
+      createIncrementalAction(baseDir, cjc, fs).onCompactionJobComplete(mockDataset(baseDir));
+      Assert.fail("Expected publishing the rewritten files to fail");
+    } catch (IOException e) {
+      // expected
+    }
+
+    Assert.assertTrue(fs.exists(replacedFile));
+    Assert.assertTrue(fs.exists(KeyIndex.getIndexPath(replacedFile)));
+    Assert.assertFalse(fs.exists(new Path(dstPath, rewrittenFile.getName())));
+    Assert.assertFalse(fs.exists(KeyIndex.getIndexPath(new Path(dstPath, rewrittenFile.getName()))));
+    Assert.assertFalse(fs.exists(new Path(dstPath, OutputFileReplacement.REPLACED_FILES_DIR_NAME)));
+  }
+
+  private static Path createFileWithIndex(FileSystem fs, Path file) throws IOException {
+    fs.create(file, true).close();
+    fs.create(KeyIndex.getIndexPath(file), true).close();
+    return file;
+  }
+
+  private static FileSystemDataset mockDataset(File baseDir) {
+    FileSystemDataset fsd = Mockito.mock(FileSystemDataset.class);
+    Mockito.doReturn(false).when(fsd).isVirtual();
+    Mockito.doReturn(baseDir.getAbsolutePath() + "/datasetName/hourly/2024/01/01").when(fsd).datasetURN();
+    return fsd;
+  }
+
+  private static CompactionJobConfigurator mockIncrementalCompaction(Path rewrittenFile, Path replacedFile)
+      throws IOException {
+    CompactionJobConfigurator cjc = Mockito.mock(CompactionOrcJobConfigurator.class);
+    Counters counters = Mockito.mock(Counters.class);
+    Mockito.doReturn(new GenericCounter()).when(counters).findCounter(Mockito.any());
+    Mockito.doReturn(true).when(cjc).isJobCreated();
+    Mockito.doReturn(rewrittenFile.getParent()).when(cjc).getMrOutputPath();
+    Mockito.doReturn("orc").when(cjc).getFileExtension();
+    Mockito.doReturn(counters).when(cjc).getCompactionCounters();
+    Mockito.doReturn("jobId").when(cjc).getCompactionJobId();
+    Mockito.doReturn(ImmutableList.of(rewrittenFile)).when(cjc).getGoodFiles(Mockito.any(), Mockito.any());
+    Mockito.doReturn(ImmutableList.of(replacedFile)).when(cjc).getReplacedOutputFiles();
+    Mockito.doReturn(new HashSet<String>()).when(cjc).getOldFiles();
+    return cjc;
+  }
+
+  private static CompactionCompleteFileOperationAction createIncrementalAction(File baseDir,
+      CompactionJobConfigurator cjc, FileSystem fs) throws IOException {
+    WorkUnitState wus = new WorkUnitState();
+    wus.setProp(MRCompactor.COMPACTION_INPUT_DIR, baseDir.getAbsolutePath());
+    wus.setProp(MRCompactor.COMPACTION_INPUT_SUBDIR, "hourly");
+    wus.setProp(MRCompactor.COMPACTION_DEST_DIR, baseDir.getAbsolutePath());
+    wus.setProp(MRCompactor.COMPACTION_DEST_SUBDIR, "daily");
+    wus.setProp(MRCompactor.COMPACTION_RENAME_SOURCE_DIR_ENABLED, true);
+    wus.setProp(CompactionSource.COMPACTION_INIT_TIME, DateTimeUtils.currentTimeMillis());
+    InputRecordCountHelper irch = Mockito.mock(InputRecordCountHelper.class);
+    Mockito.doReturn(new State()).when(irch).loadState(Mockito.any());
+    return new CompactionCompleteFileOperationAction(wus, cjc, irch, null, fs);
+  }
 }
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.compaction.local;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class ExternalMergeSorterTest {
+
+  /**
+   * Spills integers as a sequence of ints.
+   */
+  private static class IntRunFormat implements ExternalMergeSorter.RunFormat<Integer> {
+    @Override
+    public ExternalMergeSorter.RunWriter<Integer> createWriter(File file) throws IOException {
+      DataOutputStream out = new DataOutputStream(Files.newOutputStream(file.toPath()));
+      return new ExternalMergeSorter.RunWriter<Integer>() {
+        @Override
+        public void write(Integer record) throws IOException {
+          out.writeInt(record);
+        }
+
+        @Override
+        public void close() throws IOException {
+          out.close();
+        }
+      };
+    }
+
+    @Override
+    public ExternalMergeSorter.RunReader<Integer> openReader(File file) throws IOException {
+      DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()));
+      return new ExternalMergeSorter.RunReader<Integer>() {
+        private Integer next = read();
+
+        private Integer read() {
+          try {
+            return in.readInt();
+          } catch (EOFException e) {
+            return null;
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+
+        @Override
+        public boolean hasNext() {
+          return this.next != null;
+        }
+
+        @Override
+        public Integer next() {
+          if (this.next == null) {
+            throw new NoSuchElementException();
+          }
+          Integer current = this.next;
+          this.next = read();
+          return current;
+        }
+
+        @Override
+        public void close() throws IOException {
+          in.close();
+        }
+      };
+    }
+  }
+
+  @Test
+  public void testMergeOfRunsFromConcurrentBuilders() throws Exception {
+    File spillDir = Files.createTempDirectory("sorter-test").toFile();
+    spillDir.deleteOnExit();
+    Random random = new Random(1);
+    List<Integer> expected = Collections.synchronizedList(new ArrayList<>());
+
+    try (ExternalMergeSorter<Integer> sorter =
+        new ExternalMergeSorter<>(Comparator.naturalOrder(), new IntRunFormat(), spillDir, 7, 3)) {
+      List<Thread> threads = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        List<Integer> values = new ArrayList<>();
+        for (int j = 0; j < 50; j++) {
+          values.add(random.nextInt(20));
+        }
+        expected.addAll(values);
+        threads.add(new Thread(() -> {
+          try (ExternalMergeSorter<Integer>.RunBuilder builder = sorter.newRunBuilder()) {
+            for (Integer value : values) {
+              builder.add(value);
+            }
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }));
+      }
+      threads.forEach(Thread::start);
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      // 50 records per builder spill in runs of at most 7 records
+      Assert.assertEquals(sorter.getRunCount(), 4 * 8);
+      Assert.assertEquals(sorter.getSpilledRecordCount().get(), 200L);
+
+      List<Integer> merged = new ArrayList<>();
+      try (ExternalMergeSorter.RunReader<Integer> reader = sorter.merge()) {
+        reader.forEachRemaining(merged::add);
+      }
+      Collections.sort(expected);
+      Assert.assertEquals(merged, expected);
+    }
+    // Spilled runs are deleted
+    Assert.assertEquals(spillDir.list().length, 0);
+  }
+
+  @Test
+  public void testMergeWithoutRecords() throws Exception {
+    File spillDir = Files.createTempDirectory("sorter-test").toFile();
+    spillDir.deleteOnExit();
+    try (ExternalMergeSorter<Integer> sorter =
+        new ExternalMergeSorter<>(Comparator.naturalOrder(), new IntRunFormat(), spillDir, 10, 2)) {
+      sorter.newRunBuilder().close();
+      try (ExternalMergeSorter.RunReader<Integer> reader = sorter.merge()) {
+        Assert.assertFalse(reader.hasNext());
+      }
+    }
+  }
+}
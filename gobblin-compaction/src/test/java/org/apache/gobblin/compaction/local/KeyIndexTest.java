@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.compaction.local;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.io.Files;
+import com.google.common.primitives.UnsignedBytes;
+
+
+public class KeyIndexTest {
+
+  private static final Comparator<byte[]> KEY_COMPARATOR = UnsignedBytes.lexicographicalComparator();
+
+  private static byte[] key(int value) {
+    return ByteBuffer.allocate(4).putInt(value).array();
+  }
+
+  @Test
+  public void testMightContain() {
+    KeyIndex.Builder builder = new KeyIndex.Builder("test", 0.001);
+    for (int i = 100; i < 200; i += 2) {
+      builder.add(key(i));
+    }
+    KeyIndex keyIndex = builder.build();
+
+    Assert.assertEquals(keyIndex.getRecordCount(), 50);
+    for (int i = 100; i < 200; i += 2) {
+      Assert.assertTrue(keyIndex.mightContain(key(i), KEY_COMPARATOR));
+    }
+    // Keys out of the range of the file are never reported
+    Assert.assertFalse(keyIndex.mightContain(key(99), KEY_COMPARATOR));
+    Assert.assertFalse(keyIndex.mightContain(key(200), KEY_COMPARATOR));
+
+    int falsePositives = 0;
+    for (int i = 101; i < 199; i += 2) {
+      falsePositives += keyIndex.mightContain(key(i), KEY_COMPARATOR) ? 1 : 0;
+    }
+    Assert.assertTrue(falsePositives < 5);
+  }
+
+  @Test
+  public void testWriteAndRead() throws Exception {
+    File dir = Files.createTempDir();
+    dir.deleteOnExit();
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    Path outputFile = new Path(dir.getAbsolutePath(), "part-r-3.avro");
+    Path indexPath = KeyIndex.getIndexPath(outputFile);
+    Assert.assertEquals(indexPath,
+        new Path(new Path(dir.getAbsolutePath(), KeyIndex.KEY_INDEX_DIR_NAME), "part-r-3.avro.idx"));
+    Assert.assertFalse(KeyIndex.read(fs, indexPath).isPresent());
+
+    KeyIndex.Builder builder = new KeyIndex.Builder("test", 0.01);
+    builder.add(key(1));
+    builder.add(key(5));
+    builder.add(key(9));
+    builder.build().write(fs, indexPath);
+
+    Optional<KeyIndex> keyIndex = KeyIndex.read(fs, indexPath);
+    Assert.assertTrue(keyIndex.isPresent());
+    Assert.assertEquals(keyIndex.get().getKeyFormatId(), "test");
+    Assert.assertEquals(keyIndex.get().getRecordCount(), 3);
+    Assert.assertEquals(keyIndex.get().getMinKey(), key(1));
+    Assert.assertEquals(keyIndex.get().getMaxKey(), key(9));
+    Assert.assertTrue(keyIndex.get().mightContain(key(5), KEY_COMPARATOR));
+    Assert.assertFalse(keyIndex.get().mightContain(key(10), KEY_COMPARATOR));
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.compaction.local;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+
+
+public class OutputFileReplacementTest {
+
+  private static Path createFileWithIndex(FileSystem fs, Path file) throws IOException {
+    fs.create(file, true).close();
+    fs.create(KeyIndex.getIndexPath(file), true).close();
+    return file;
+  }
+
+  @Test
+  public void testRecoverUndoesInterruptedReplacement() throws Exception {
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    Path outputDir = new Path(Files.createTempDir().getAbsolutePath(), "output");
+    Path replacedFile = createFileWithIndex(fs, new Path(outputDir, "part-r-1.avro"));
+    Path newFile = createFileWithIndex(fs, new Path(outputDir.getParent(), "part-r-2.avro"));
+
+    OutputFileReplacement.begin(fs, outputDir, ImmutableList.of(replacedFile), ImmutableList.of(newFile.getName()));
+    Assert.assertFalse(fs.exists(replacedFile));
+    // The run is interrupted after publishing the new file, but before committing the replacement
+    Path publishedFile = new Path(outputDir, newFile.getName());
+    Assert.assertTrue(fs.rename(newFile, publishedFile));
+    Assert.assertTrue(fs.rename(KeyIndex.getIndexPath(newFile), KeyIndex.getIndexPath(publishedFile)));
+
+    OutputFileReplacement.recover(fs, outputDir);
+    Assert.assertTrue(fs.exists(replacedFile));
+    Assert.assertTrue(fs.exists(KeyIndex.getIndexPath(replacedFile)));
+    Assert.assertFalse(fs.exists(publishedFile));
+    Assert.assertFalse(fs.exists(KeyIndex.getIndexPath(publishedFile)));
+    Assert.assertFalse(fs.exists(new Path(outputDir, OutputFileReplacement.REPLACED_FILES_DIR_NAME)));
+  }
+
+  @Test
+  public void testRecoverCompletesCommittedReplacement() throws Exception {
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    Path outputDir = new Path(Files.createTempDir().getAbsolutePath(), "output");
+    Path replacedFile = createFileWithIndex(fs, new Path(outputDir, "part-r-1.avro"));
+    Path publishedFile = createFileWithIndex(fs, new Path(outputDir, "part-r-2.avro"));
+
+    OutputFileReplacement.begin(fs, outputDir, ImmutableList.of(replacedFile),
+        ImmutableList.of(publishedFile.getName()));
+    // The run is interrupted after committing the replacement, but before deleting the replaced files
+    Path replacedFilesDir = new Path(outputDir, OutputFileReplacement.REPLACED_FILES_DIR_NAME);
+    fs.create(new Path(replacedFilesDir, OutputFileReplacement.COMMITTED_MARKER_NAME), true).close();
+
+    OutputFileReplacement.recover(fs, outputDir);
+    Assert.assertFalse(fs.exists(replacedFile));
+    Assert.assertFalse(fs.exists(KeyIndex.getIndexPath(replacedFile)));
+    Assert.assertTrue(fs.exists(publishedFile));
+    Assert.assertTrue(fs.exists(KeyIndex.getIndexPath(publishedFile)));
+    Assert.assertFalse(fs.exists(replacedFilesDir));
+  }
+}
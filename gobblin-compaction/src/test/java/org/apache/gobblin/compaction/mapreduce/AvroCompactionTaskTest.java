@@ -24,17 +24,21 @@ import java.net.URI;
 
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.DataFileReader;
 import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.generic.GenericRecordBuilder;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Iterators;
 import com.google.common.io.Files;
 
 import lombok.extern.slf4j.Slf4j;
@@ -42,6 +46,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.gobblin.compaction.audit.AuditCountClientFactory;
 import org.apache.gobblin.compaction.dataset.TimeBasedSubDirDatasetsFinder;
 import org.apache.gobblin.compaction.event.CompactionSlaEventHelper;
+import org.apache.gobblin.compaction.local.KeyIndex;
+import org.apache.gobblin.compaction.local.LocalCompactor;
 import org.apache.gobblin.compaction.source.CompactionSource;
 import org.apache.gobblin.compaction.suite.TestCompactionSuiteFactories;
 import org.apache.gobblin.compaction.verify.CompactionAuditCountVerifier;
@@ -109,6 +115,97 @@ public class AvroCompactionTaskTest {
     Assert.assertTrue(result.isSuccessful());
   }
 
+  @Test
+  public void testLocalDedup() throws Exception {
+    File basePath = Files.createTempDir();
+    basePath.deleteOnExit();
+
+    File jobDir = new File(basePath, "Identity/MemberAccount/minutely/2017/04/03/10/20_30/run_2017-04-03-10-20");
+    Assert.assertTrue(jobDir.mkdirs());
+
+    GenericRecord r1 = createRandomRecord();
+    GenericRecord r2 = createRandomRecord();
+    r2.put("subKey", "3");
+    writeFileWithContent(jobDir, "file1", r1, 20);
+    writeFileWithContent(jobDir, "file2", r2, 18);
+    writeFileWithContent(jobDir, "file3", r1, 5);
+
+    EmbeddedGobblin embeddedGobblin = createEmbeddedGobblinCompactionJob("local-dedup", basePath.getAbsolutePath())
+        .setConfiguration(LocalCompactor.LOCAL_COMPACTION_ENABLED, "true")
+        .setConfiguration(LocalCompactor.LOCAL_COMPACTION_MAX_RECORDS_PER_RUN, "4")
+        .setConfiguration(LocalCompactor.LOCAL_COMPACTION_MERGE_FAN_IN, "3");
+    JobExecutionResult result = embeddedGobblin.run();
+    Assert.assertTrue(result.isSuccessful());
+
+    FileSystem fs = getFileSystem();
+    Path outputDir = new Path(basePath.getAbsolutePath(), "Identity/MemberAccount/hourly/2017/04/03/10");
+    FileStatus[] outputFiles = fs.listStatus(outputDir, path -> path.getName().endsWith(".avro"));
+    Assert.assertEquals(outputFiles.length, 1);
+    // One record is retained per key
+    Assert.assertTrue(outputFiles[0].getPath().getName().startsWith("part-r-2."));
+    try (DataFileReader<GenericRecord> reader =
+        new DataFileReader<>(new File(outputFiles[0].getPath().toUri()), new GenericDatumReader<>())) {
+      Assert.assertEquals(Iterators.size(reader), 2);
+    }
+    Assert.assertEquals(InputRecordCountHelper.readRecordCount(fs, outputDir), 43);
+  }
+
+  @Test
+  public void testIncrementalLocalDedup() throws Exception {
+    File basePath = Files.createTempDir();
+    basePath.deleteOnExit();
+
+    File jobDir = new File(basePath, "Identity/MemberAccount/minutely/2017/04/03/10/20_30/run_2017-04-03-10-20");
+    Assert.assertTrue(jobDir.mkdirs());
+
+    GenericRecord r1 = createRandomRecord();
+    GenericRecord r2 = createRandomRecord();
+    r2.put("subKey", "3");
+    writeFileWithContent(jobDir, "file1", r1, 20);
+    writeFileWithContent(jobDir, "file2", r2, 18);
+
+    EmbeddedGobblin embeddedGobblin = createIncrementalCompactionJob("incremental-first", basePath);
+    Assert.assertTrue(embeddedGobblin.run().isSuccessful());
+
+    FileSystem fs = getFileSystem();
+    Path outputDir = new Path(basePath.getAbsolutePath(), "Identity/MemberAccount/hourly/2017/04/03/10");
+    FileStatus[] outputFiles = fs.listStatus(outputDir, path -> path.getName().endsWith(".avro"));
+    Assert.assertEquals(outputFiles.length, 1);
+    Assert.assertTrue(fs.exists(KeyIndex.getIndexPath(outputFiles[0].getPath())));
+
+    // Late data with a key already compacted and a new key
+    File lateJobDir = new File(basePath, "Identity/MemberAccount/minutely/2017/04/03/10/40_50/run_2017-04-03-10-40");
+    Assert.assertTrue(lateJobDir.mkdirs());
+    GenericRecord r3 = createRandomRecord();
+    r3.put("subKey", "4");
+    writeFileWithContent(lateJobDir, "file3", r1, 5);
+    writeFileWithContent(lateJobDir, "file4", r3, 3);
+
+    embeddedGobblin = createIncrementalCompactionJob("incremental-second", basePath);
+    Assert.assertTrue(embeddedGobblin.run().isSuccessful());
+
+    // The published file is rewritten with the late record of its key, the new key goes to a new file
+    outputFiles = fs.listStatus(outputDir, path -> path.getName().endsWith(".avro"));
+    Assert.assertEquals(outputFiles.length, 2);
+    long recordCount = 0;
+    for (FileStatus outputFile : outputFiles) {
+      Assert.assertTrue(fs.exists(KeyIndex.getIndexPath(outputFile.getPath())));
+      try (DataFileReader<GenericRecord> reader =
+          new DataFileReader<>(new File(outputFile.getPath().toUri()), new GenericDatumReader<>())) {
+        recordCount += Iterators.size(reader);
+      }
+    }
+    Assert.assertEquals(recordCount, 3);
+    Assert.assertEquals(fs.listStatus(new Path(outputDir, KeyIndex.KEY_INDEX_DIR_NAME)).length, 2);
+  }
+
+  private EmbeddedGobblin createIncrementalCompactionJob(String name, File basePath) {
+    return createEmbeddedGobblinCompactionJob(name, basePath.getAbsolutePath())
+        .setConfiguration(MRCompactor.COMPACTION_RENAME_SOURCE_DIR_ENABLED, "true")
+        .setConfiguration(LocalCompactor.LOCAL_COMPACTION_ENABLED, "true")
+        .setConfiguration(LocalCompactor.LOCAL_COMPACTION_INCREMENTAL_ENABLED, "true");
+  }
+
   @Test
   public void testCompactVirtualDataset() throws Exception {
 
@@ -37,6 +37,7 @@ import com.typesafe.config.Config;
 
 import org.apache.gobblin.config.client.api.ConfigStoreFactoryDoesNotExistsException;
 import org.apache.gobblin.config.client.api.VersionStabilityPolicy;
+import org.apache.gobblin.config.common.impl.CompiledValueInspector;
 import org.apache.gobblin.config.common.impl.ConfigStoreBackedTopology;
 import org.apache.gobblin.config.common.impl.ConfigStoreBackedValueInspector;
 import org.apache.gobblin.config.common.impl.ConfigStoreTopologyInspector;
@@ -47,6 +48,7 @@ import org.apache.gobblin.config.store.api.ConfigKeyPath;
 import org.apache.gobblin.config.store.api.ConfigStore;
 import org.apache.gobblin.config.store.api.ConfigStoreCreationException;
 import org.apache.gobblin.config.store.api.ConfigStoreFactory;
+import org.apache.gobblin.config.store.api.ConfigStoreWithResolution;
 import org.apache.gobblin.config.store.api.ConfigStoreWithStableVersioning;
 import org.apache.gobblin.config.store.api.VersionDoesNotExistException;
 
@@ -270,6 +272,21 @@ public class ConfigClient {
     return ConfigClientUtils.buildUriInClientFormat(result, accessor.configStore, configKeyUri.getAuthority() != null);
   }
 
+  /**
+   * Get the statistics of the resolved config cache of the {@link ConfigStore} containing the input URI.
+   *
+   * @param configKeyUri - The URI for any configuration key in the {@link ConfigStore}.
+   * @return the {@link CompiledValueInspector.ResolutionStats} of the store, or absent if resolved configs are not
+   * cached for this store.
+   */
+  public Optional<CompiledValueInspector.ResolutionStats> getResolutionStats(URI configKeyUri)
+      throws ConfigStoreFactoryDoesNotExistsException, ConfigStoreCreationException, VersionDoesNotExistException {
+    Optional<CompiledValueInspector> compiledValueInspector =
+        this.getConfigStoreAccessor(configKeyUri).compiledValueInspector;
+    return compiledValueInspector.isPresent() ? Optional.of(compiledValueInspector.get().getStats())
+        : Optional.<CompiledValueInspector.ResolutionStats>absent();
+  }
+
   private URI getMatchedFloorKeyFromCache(URI configKeyURI) {
     URI floorKey = this.configStoreAccessorMap.floorKey(configKeyURI);
     if (floorKey == null) {
@@ -310,25 +327,49 @@ public class ConfigClient {
     ConfigStoreBackedValueInspector rawValueInspector =
         new ConfigStoreBackedValueInspector(cs, currentVersion, inMemoryTopology);
     InMemoryValueInspector inMemoryValueInspector;
+    Optional<CompiledValueInspector> compiledValueInspector;
 
     // ConfigStoreWithStableVersioning always create Soft reference cache
     if (isConfigStoreWithStableVersion(cs) || this.policy == VersionStabilityPolicy.WEAK_LOCAL_STABILITY) {
-      inMemoryValueInspector = new InMemoryValueInspector(rawValueInspector, false);
-      result = new ConfigStoreAccessor(cs, inMemoryValueInspector, inMemoryTopology);
+      compiledValueInspector = createCompiledValueInspector(cs, rawValueInspector, inMemoryTopology, currentVersion,
+          false);
+      inMemoryValueInspector = new InMemoryValueInspector(getCachedValueFallback(compiledValueInspector,
+          rawValueInspector), false);
+      result = new ConfigStoreAccessor(cs, inMemoryValueInspector, inMemoryTopology, compiledValueInspector);
     }
     // Non ConfigStoreWithStableVersioning but require STRONG_LOCAL_STABILITY, use Strong reference cache
     else if (this.policy == VersionStabilityPolicy.STRONG_LOCAL_STABILITY) {
-      inMemoryValueInspector = new InMemoryValueInspector(rawValueInspector, true);
-      result = new ConfigStoreAccessor(cs, inMemoryValueInspector, inMemoryTopology);
+      compiledValueInspector = createCompiledValueInspector(cs, rawValueInspector, inMemoryTopology, currentVersion,
+          true);
+      inMemoryValueInspector = new InMemoryValueInspector(getCachedValueFallback(compiledValueInspector,
+          rawValueInspector), true);
+      result = new ConfigStoreAccessor(cs, inMemoryValueInspector, inMemoryTopology, compiledValueInspector);
     }
     // Require No cache
     else {
-      result = new ConfigStoreAccessor(cs, rawValueInspector, inMemoryTopology);
+      result = new ConfigStoreAccessor(cs, rawValueInspector, inMemoryTopology,
+          Optional.<CompiledValueInspector>absent());
     }
 
     return result;
   }
 
+  /**
+   * Share compiled ancestors and imports between resolved keys, unless the store resolves configs itself. The compiled
+   * configs are held with the same reference strength as the resolved configs cached above them.
+   */
+  private static Optional<CompiledValueInspector> createCompiledValueInspector(ConfigStore cs,
+      ConfigStoreValueInspector rawValueInspector, ConfigStoreTopologyInspector topology, String version,
+      boolean useStrongRef) {
+    return cs instanceof ConfigStoreWithResolution ? Optional.<CompiledValueInspector>absent()
+        : Optional.of(new CompiledValueInspector(rawValueInspector, topology, version, useStrongRef));
+  }
+
+  private static ConfigStoreValueInspector getCachedValueFallback(
+      Optional<CompiledValueInspector> compiledValueInspector, ConfigStoreValueInspector rawValueInspector) {
+    return compiledValueInspector.isPresent() ? compiledValueInspector.get() : rawValueInspector;
+  }
+
   private static boolean isConfigStoreWithStableVersion(ConfigStore cs) {
     for (Annotation annotation : cs.getClass().getDeclaredAnnotations()) {
       if (annotation instanceof ConfigStoreWithStableVersioning) {
@@ -392,12 +433,14 @@ public class ConfigClient {
     final ConfigStore configStore;
     final ConfigStoreValueInspector valueInspector;
     final ConfigStoreTopologyInspector topologyInspector;
+    final Optional<CompiledValueInspector> compiledValueInspector;
 
     ConfigStoreAccessor(ConfigStore cs, ConfigStoreValueInspector valueInspector,
-        ConfigStoreTopologyInspector topologyInspector) {
+        ConfigStoreTopologyInspector topologyInspector, Optional<CompiledValueInspector> compiledValueInspector) {
       this.configStore = cs;
       this.valueInspector = valueInspector;
       this.topologyInspector = topologyInspector;
+      this.compiledValueInspector = compiledValueInspector;
     }
   }
 }
@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.config.common.impl;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.gobblin.config.store.api.ConfigKeyPath;
+import org.apache.gobblin.config.store.api.ConfigStore;
+
+
+/**
+ * A {@link ConfigStoreValueInspector} that memoizes the compiled {@link Config} of every config key it resolves, i.e.
+ * the own config of the key merged with the compiled configs of its imports and of its parent, before substitutions
+ * are resolved.
+ *
+ * <p>
+ *   Since {@link Config#withFallback(com.typesafe.config.ConfigMergeable)} is associative, the compiled config of a key
+ *   can be built from the compiled configs of its imports and parent instead of walking the full import graph again.
+ *   Keys sharing an ancestor or an import therefore share its compiled {@link Config} instance, and resolving many
+ *   keys of the same subtree only reads and merges each ancestor once.
+ * </p>
+ *
+ * <p>
+ *   An instance is bound to a single version of a {@link ConfigStore}, so memoized configs are effectively keyed by
+ *   (store version, config key). Like {@link InMemoryTopology}, the imports of a key are assumed not to depend on the
+ *   runtime config. When a key changes, {@link #invalidate(ConfigKeyPath)} drops its compiled config along with the
+ *   compiled config of every key that inherits from or imports it.
+ * </p>
+ *
+ * <p>
+ *   Compiled configs are held by soft references unless strong references are requested, like the resolved configs of
+ *   {@link InMemoryValueInspector}, so that they can be reclaimed under memory pressure and recompiled when needed.
+ * </p>
+ */
+@Slf4j
+public class CompiledValueInspector implements ConfigStoreValueInspector {
+
+  private final ConfigStoreValueInspector valueFallback;
+  private final ConfigStoreTopologyInspector topology;
+  @Getter
+  private final String version;
+  private final Cache<ConfigKeyPath, Config> compiledConfigs;
+  /** The keys whose compiled config was built from the compiled config of the key, i.e. its children and importers. */
+  private final ConcurrentMap<ConfigKeyPath, Set<ConfigKeyPath>> dependents = new ConcurrentHashMap<>();
+  @Getter
+  private final ResolutionStats stats = new ResolutionStats();
+
+  /**
+   * @param valueFallback - the {@link ConfigStoreValueInspector} used to get the own {@link Config} of config keys
+   * @param topology      - the {@link ConfigStoreTopologyInspector} used to get the imports of config keys
+   * @param version       - version of the {@link ConfigStore} inspected
+   */
+  public CompiledValueInspector(ConfigStoreValueInspector valueFallback, ConfigStoreTopologyInspector topology,
+      String version) {
+    this(valueFallback, topology, version, false);
+  }
+
+  /**
+   * @param valueFallback - the {@link ConfigStoreValueInspector} used to get the own {@link Config} of config keys
+   * @param topology      - the {@link ConfigStoreTopologyInspector} used to get the imports of config keys
+   * @param version       - version of the {@link ConfigStore} inspected
+   * @param useStrongRef  - if true, use Strong reference for compiled configs, else, use Soft reference
+   */
+  public CompiledValueInspector(ConfigStoreValueInspector valueFallback, ConfigStoreTopologyInspector topology,
+      String version, boolean useStrongRef) {
+    this.valueFallback = valueFallback;
+    this.topology = topology;
+    this.version = version;
+    this.compiledConfigs = useStrongRef ? CacheBuilder.newBuilder().<ConfigKeyPath, Config>build()
+        : CacheBuilder.newBuilder().softValues().<ConfigKeyPath, Config>build();
+  }
+
+  @Override
+  public Config getOwnConfig(ConfigKeyPath configKey) {
+    return this.valueFallback.getOwnConfig(configKey);
+  }
+
+  @Override
+  public Map<ConfigKeyPath, Config> getOwnConfigs(Collection<ConfigKeyPath> configKeys) {
+    return this.valueFallback.getOwnConfigs(configKeys);
+  }
+
+  @Override
+  public Config getResolvedConfig(ConfigKeyPath configKey) {
+    return getResolvedConfig(configKey, Optional.<Config>absent());
+  }
+
+  @Override
+  public Config getResolvedConfig(ConfigKeyPath configKey, Optional<Config> runtimeConfig) {
+    long startNanos = System.nanoTime();
+    Config compiled = compile(configKey, new Compilation(runtimeConfig, new HashMap<ConfigKeyPath, Config>()));
+    Config resolved = compiled.withFallback(ConfigFactory.defaultOverrides()).resolve();
+    this.stats.recordResolutions(1, System.nanoTime() - startNanos);
+    return resolved;
+  }
+
+  /**
+   * {@inheritDoc}.
+   *
+   * <p>
+   *   The keys are resolved in a single pass: the own configs of the keys and of all their ancestors which are not
+   *   compiled yet are fetched with one {@link #getOwnConfigs(Collection)} call, and every compiled ancestor or import
+   *   is shared between the keys.
+   * </p>
+   */
+  @Override
+  public Map<ConfigKeyPath, Config> getResolvedConfigs(Collection<ConfigKeyPath> configKeys) {
+    return getResolvedConfigs(configKeys, Optional.<Config>absent());
+  }
+
+  public Map<ConfigKeyPath, Config> getResolvedConfigs(Collection<ConfigKeyPath> configKeys,
+      Optional<Config> runtimeConfig) {
+    long startNanos = System.nanoTime();
+
+    Set<ConfigKeyPath> keysToFetch = new LinkedHashSet<>();
+    for (ConfigKeyPath configKey : configKeys) {
+      // collect the key and its ancestors which are not compiled yet
+      ConfigKeyPath key = configKey;
+      while (this.compiledConfigs.getIfPresent(key) == null && keysToFetch.add(key) && !key.isRootPath()) {
+        key = key.getParent();
+      }
+    }
+    Map<ConfigKeyPath, Config> ownConfigs = keysToFetch.isEmpty() ? new HashMap<ConfigKeyPath, Config>()
+        : new HashMap<>(this.valueFallback.getOwnConfigs(keysToFetch));
+
+    Compilation compilation = new Compilation(runtimeConfig, ownConfigs);
+    Map<ConfigKeyPath, Config> result = new HashMap<>();
+    for (ConfigKeyPath configKey : configKeys) {
+      result.put(configKey, compile(configKey, compilation).withFallback(ConfigFactory.defaultOverrides()).resolve());
+    }
+    this.stats.recordResolutions(result.size(), System.nanoTime() - startNanos);
+    return result;
+  }
+
+  /**
+   * Drop the compiled config of the key and of all keys depending on it, transitively.
+   * @return the keys whose compiled config was dropped.
+   */
+  public Set<ConfigKeyPath> invalidate(ConfigKeyPath configKey) {
+    Set<ConfigKeyPath> invalidated = new HashSet<>();
+    Queue<ConfigKeyPath> toInvalidate = new ArrayDeque<>();
+    toInvalidate.add(configKey);
+    while (!toInvalidate.isEmpty()) {
+      ConfigKeyPath key = toInvalidate.poll();
+      if (!invalidated.add(key)) {
+        continue;
+      }
+      this.compiledConfigs.invalidate(key);
+      Set<ConfigKeyPath> keyDependents = this.dependents.remove(key);
+      if (keyDependents != null) {
+        toInvalidate.addAll(keyDependents);
+      }
+    }
+    log.debug("Invalidated compiled configs of {} keys depending on {}", invalidated.size(), configKey);
+    return invalidated;
+  }
+
+  /**
+   * Drop all compiled configs.
+   */
+  public void invalidateAll() {
+    this.compiledConfigs.invalidateAll();
+    this.dependents.clear();
+  }
+
+  private Config compile(ConfigKeyPath configKey, Compilation compilation) {
+    Config compiled = this.compiledConfigs.getIfPresent(configKey);
+    if (compiled != null) {
+      this.stats.hits.incrementAndGet();
+      return compiled;
+    }
+    if (!compilation.inProgress.add(configKey)) {
+      // Same behavior as ConfigStoreBackedValueInspector on import cycles, the partial result is not memoized
+      compilation.cycleFound = true;
+      return ConfigFactory.empty();
+    }
+    this.stats.misses.incrementAndGet();
+
+    compiled = compilation.ownConfigs.remove(configKey);
+    if (compiled == null) {
+      compiled = this.valueFallback.getOwnConfig(configKey);
+    }
+    if (!configKey.isRootPath()) {
+      List<ConfigKeyPath> ownImports = this.topology.getOwnImports(configKey, compilation.runtimeConfig);
+      if (ownImports != null) {
+        for (ConfigKeyPath ownImport : ownImports) {
+          compiled = compiled.withFallback(compileDependency(ownImport, configKey, compilation));
+        }
+      }
+      compiled = compiled.withFallback(compileDependency(configKey.getParent(), configKey, compilation));
+    }
+
+    compilation.inProgress.remove(configKey);
+    if (!compilation.cycleFound) {
+      this.compiledConfigs.put(configKey, compiled);
+    }
+    return compiled;
+  }
+
+  private Config compileDependency(ConfigKeyPath dependency, ConfigKeyPath dependent, Compilation compilation) {
+    Config compiled = compile(dependency, compilation);
+    this.dependents.computeIfAbsent(dependency, key -> ConcurrentHashMap.newKeySet()).add(dependent);
+    return compiled;
+  }
+
+  /**
+   * State of a single resolution pass.
+   */
+  private static class Compilation {
+    private final Optional<Config> runtimeConfig;
+    /** Own configs prefetched for this pass. */
+    private final Map<ConfigKeyPath, Config> ownConfigs;
+    private final Set<ConfigKeyPath> inProgress = new HashSet<>();
+    private boolean cycleFound = false;
+
+    Compilation(Optional<Config> runtimeConfig, Map<ConfigKeyPath, Config> ownConfigs) {
+      this.runtimeConfig = runtimeConfig;
+      this.ownConfigs = ownConfigs;
+    }
+  }
+
+  /**
+   * Counters of a {@link CompiledValueInspector}.
+   */
+  public static class ResolutionStats {
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong resolutions = new AtomicLong();
+    private final AtomicLong resolutionNanos = new AtomicLong();
+
+    private void recordResolutions(int count, long nanos) {
+      this.resolutions.addAndGet(count);
+      this.resolutionNanos.addAndGet(nanos);
+    }
+
+    /** @return the number of compiled configs found memoized. */
+    public long getHits() {
+      return this.hits.get();
+    }
+
+    /** @return the number of config keys compiled. */
+    public long getMisses() {
+      return this.misses.get();
+    }
+
+    /** @return the fraction of compiled config lookups served from memoized configs. */
+    public double getHitRate() {
+      long lookups = getHits() + getMisses();
+      return lookups == 0 ? 0 : (double) getHits() / lookups;
+    }
+
+    /** @return the number of configs resolved. */
+    public long getResolutions() {
+      return this.resolutions.get();
+    }
+
+    /** @return the average time spent resolving a config. */
+    public double getAverageResolutionMillis() {
+      long count = getResolutions();
+      return count == 0 ? 0 : (double) TimeUnit.NANOSECONDS.toMicros(this.resolutionNanos.get()) / 1000 / count;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("hits=%d, misses=%d, hitRate=%.3f, resolutions=%d, avgResolutionMillis=%.3f", getHits(),
+          getMisses(), getHitRate(), getResolutions(), getAverageResolutionMillis());
+    }
+  }
+}
@@ -393,7 +393,7 @@ public class SimpleHadoopFilesystemConfigStore implements ConfigStore, Deployabl
    * Constructs a {@link Path} that points to the location of the given version of the {@link ConfigStore} on HDFS. If
    * this {@link Path} does not exist, a {@link VersionDoesNotExistException} is thrown.
    */
-  private Path getVersionRoot(String version) throws VersionDoesNotExistException {
+  protected Path getVersionRoot(String version) throws VersionDoesNotExistException {
 
     try {
       return this.versions.get(version, new VersionRootLoader(version));
@@ -547,8 +547,11 @@ public class SimpleHadoopFilesystemConfigStore implements ConfigStore, Deployabl
         hdfsconfigStoreRoot));
   }
 
-  @VisibleForTesting
-  URI getPhysicalStoreRoot() {
+  protected URI getPhysicalStoreRoot() {
     return this.physicalStoreRoot;
   }
+
+  protected FileSystem getFs() {
+    return this.fs;
+  }
 }
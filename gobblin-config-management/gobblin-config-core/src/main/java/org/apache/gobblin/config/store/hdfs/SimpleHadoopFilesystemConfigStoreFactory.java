@@ -183,6 +183,15 @@ public abstract class SimpleHadoopFilesystemConfigStoreFactory implements Config
     FileSystem fs = createFileSystem(configKey);
     URI physicalStoreRoot = getStoreRoot(fs, configKey);
     URI logicalStoreRoot = URI.create(getSchemePrefix() + physicalStoreRoot);
+    return createConfigStore(fs, physicalStoreRoot, logicalStoreRoot);
+  }
+
+  /**
+   * Creates the {@link SimpleHadoopFilesystemConfigStore} once its {@link FileSystem} and store root are known.
+   * Subclasses can override this method to create a different implementation.
+   */
+  protected SimpleHadoopFilesystemConfigStore createConfigStore(FileSystem fs, URI physicalStoreRoot,
+      URI logicalStoreRoot) {
     return new SimpleHadoopFilesystemConfigStore(fs, physicalStoreRoot, logicalStoreRoot);
   }
 
@@ -0,0 +1,345 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.config.store.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.primitives.UnsignedBytes;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigRenderOptions;
+
+import org.apache.gobblin.config.common.impl.SingleLinkedListConfigKeyPath;
+
+
+/**
+ * An immutable, indexed binary image of a single version of a config store. A snapshot holds, for every node of the
+ * store, its own config and its raw includes, so that a whole version can be read from one file instead of two file
+ * system calls per node.
+ *
+ * <p>
+ *   The layout of a snapshot is (all integers are big endian):
+ *   <pre>
+ *     int    magic number {@link #MAGIC}
+ *     int    format version {@link #FORMAT_VERSION}
+ *     int    number of nodes
+ *     for each node, sorted by the UTF-8 bytes of its absolute path:
+ *       int  path offset, int path length,
+ *       int  index of the parent node (-1 for the root),
+ *       int  config offset, int config length,
+ *       int  includes offset, int includes length
+ *     data section holding the UTF-8 encoded paths, configs and includes
+ *   </pre>
+ *   Offsets are relative to the start of the data section. Configs are stored as concise HOCON rendered from the
+ *   parsed config, includes are stored as the raw content of the includes file so that they can still be resolved
+ *   against a runtime config when read.
+ * </p>
+ *
+ * <p>
+ *   Nodes are looked up with a binary search over the node table, which makes the format suitable for reading
+ *   directly from a memory-mapped file (see {@link #load(File)}). Parsed configs are cached with soft references.
+ *   Instances are thread safe.
+ * </p>
+ */
+public class ConfigStoreSnapshot {
+
+  public static final int MAGIC = 0x47435353;
+  public static final int FORMAT_VERSION = 1;
+
+  private static final int HEADER_SIZE = 3 * Integer.BYTES;
+  private static final int NODE_SIZE = 7 * Integer.BYTES;
+  private static final int NO_PARENT = -1;
+  private static final int[] NO_CHILDREN = new int[0];
+  private static final Comparator<byte[]> PATH_ORDER = UnsignedBytes.lexicographicalComparator();
+
+  private final ByteBuffer buffer;
+  private final int numNodes;
+  private final int dataStart;
+  private final int[][] children;
+  private final Cache<Integer, Config> configs = CacheBuilder.newBuilder().softValues().build();
+
+  /**
+   * Memory-map the snapshot stored in the given local file.
+   */
+  public static ConfigStoreSnapshot load(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return new ConfigStoreSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  public ConfigStoreSnapshot(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a config store snapshot");
+    }
+    if (buffer.getInt(Integer.BYTES) != FORMAT_VERSION) {
+      throw new IOException("Unsupported config store snapshot format version " + buffer.getInt(Integer.BYTES));
+    }
+    this.numNodes = buffer.getInt(2 * Integer.BYTES);
+    this.dataStart = HEADER_SIZE + this.numNodes * NODE_SIZE;
+    if (this.numNodes < 0 || this.dataStart > buffer.limit()) {
+      throw new IOException("Truncated config store snapshot");
+    }
+    this.children = computeChildren();
+  }
+
+  private int[][] computeChildren() {
+    int[] counts = new int[this.numNodes];
+    for (int node = 0; node < this.numNodes; node++) {
+      int parent = getParent(node);
+      if (parent != NO_PARENT) {
+        counts[parent]++;
+      }
+    }
+    int[][] result = new int[this.numNodes][];
+    for (int node = 0; node < this.numNodes; node++) {
+      result[node] = counts[node] == 0 ? NO_CHILDREN : new int[counts[node]];
+      counts[node] = 0;
+    }
+    // Nodes are visited in path order, so children end up sorted as well
+    for (int node = 0; node < this.numNodes; node++) {
+      int parent = getParent(node);
+      if (parent != NO_PARENT) {
+        result[parent][counts[parent]++] = node;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the number of nodes in this snapshot.
+   */
+  public int size() {
+    return this.numNodes;
+  }
+
+  /**
+   * @return the index of the node with the given absolute path, or -1 if the snapshot has no such node.
+   */
+  public int indexOf(String absolutePath) {
+    byte[] target = absolutePath.getBytes(Charsets.UTF_8);
+    int low = 0;
+    int high = this.numNodes - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = PATH_ORDER.compare(readBytes(field(mid, 0), field(mid, 1)), target);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  public String getPath(int node) {
+    return readString(field(node, 0), field(node, 1));
+  }
+
+  public int getParent(int node) {
+    return field(node, 2);
+  }
+
+  public int[] getChildren(int node) {
+    return this.children[node];
+  }
+
+  /**
+   * @return the own config of the given node, parsed on first access.
+   */
+  public Config getOwnConfig(int node) {
+    if (field(node, 4) == 0) {
+      return ConfigFactory.empty();
+    }
+    try {
+      return this.configs.get(node, () -> ConfigFactory.parseString(readString(field(node, 3), field(node, 4))));
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Failed to parse config of " + getPath(node), e.getCause());
+    }
+  }
+
+  /**
+   * @return the raw content of the includes file of the given node, empty if it has none.
+   */
+  public String getIncludes(int node) {
+    return readString(field(node, 5), field(node, 6));
+  }
+
+  private int field(int node, int field) {
+    Preconditions.checkElementIndex(node, this.numNodes);
+    return this.buffer.getInt(HEADER_SIZE + node * NODE_SIZE + field * Integer.BYTES);
+  }
+
+  private byte[] readBytes(int offset, int length) {
+    byte[] bytes = new byte[length];
+    // Work on a duplicate so that concurrent readers do not share a position
+    ByteBuffer view = this.buffer.duplicate();
+    view.position(this.dataStart + offset);
+    view.get(bytes);
+    return bytes;
+  }
+
+  private String readString(int offset, int length) {
+    return length == 0 ? "" : new String(readBytes(offset, length), Charsets.UTF_8);
+  }
+
+  /**
+   * Builds a {@link ConfigStoreSnapshot}. Ancestors of added nodes are added implicitly with no config and no
+   * includes, and the store root is always present.
+   */
+  public static class Builder {
+
+    private static final ConfigRenderOptions COMPACT_HOCON = ConfigRenderOptions.concise().setJson(false);
+
+    private final Map<String, String[]> nodes = new HashMap<>();
+
+    public Builder() {
+      this.nodes.put(SingleLinkedListConfigKeyPath.PATH_DELIMETER, new String[] { "", "" });
+    }
+
+    /**
+     * Add a node to the snapshot.
+     *
+     * @param absolutePath absolute path of the node, e.g. "/data/set1"
+     * @param mainConf content of the node's main config file, or null if it has none
+     * @param includesConf content of the node's includes file, or null if it has none
+     */
+    public Builder addNode(String absolutePath, String mainConf, String includesConf) {
+      String path = normalize(absolutePath);
+      this.nodes.put(path, new String[] { compact(mainConf), includesConf == null ? "" : includesConf });
+      for (String parent = getParentPath(path); parent != null; parent = getParentPath(parent)) {
+        if (this.nodes.containsKey(parent)) {
+          break;
+        }
+        this.nodes.put(parent, new String[] { "", "" });
+      }
+      return this;
+    }
+
+    /**
+     * Write the snapshot to the given {@link OutputStream}. The stream is not closed.
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+      List<byte[]> paths = new ArrayList<>(this.nodes.size());
+      for (String path : this.nodes.keySet()) {
+        paths.add(path.getBytes(Charsets.UTF_8));
+      }
+      Collections.sort(paths, PATH_ORDER);
+
+      Map<String, Integer> indices = new HashMap<>();
+      for (int i = 0; i < paths.size(); i++) {
+        indices.put(new String(paths.get(i), Charsets.UTF_8), i);
+      }
+
+      ByteArrayOutputStream data = new ByteArrayOutputStream();
+      int[] table = new int[paths.size() * 7];
+      for (int i = 0; i < paths.size(); i++) {
+        String path = new String(paths.get(i), Charsets.UTF_8);
+        String[] node = this.nodes.get(path);
+        String parent = getParentPath(path);
+        table[i * 7 + 2] = parent == null ? NO_PARENT : indices.get(parent);
+        appendData(data, paths.get(i), table, i * 7);
+        appendData(data, node[0].getBytes(Charsets.UTF_8), table, i * 7 + 3);
+        appendData(data, node[1].getBytes(Charsets.UTF_8), table, i * 7 + 5);
+      }
+
+      DataOutputStream out = new DataOutputStream(outputStream);
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(paths.size());
+      for (int value : table) {
+        out.writeInt(value);
+      }
+      data.writeTo(out);
+      out.flush();
+    }
+
+    /**
+     * Build an in-memory {@link ConfigStoreSnapshot}.
+     */
+    public ConfigStoreSnapshot build() throws IOException {
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      writeTo(outputStream);
+      return new ConfigStoreSnapshot(ByteBuffer.wrap(outputStream.toByteArray()));
+    }
+
+    private static void appendData(ByteArrayOutputStream data, byte[] bytes, int[] table, int position)
+        throws IOException {
+      if ((long) data.size() + bytes.length > Integer.MAX_VALUE - HEADER_SIZE) {
+        throw new IOException("Config store is too large for a snapshot");
+      }
+      table[position] = data.size();
+      table[position + 1] = bytes.length;
+      data.write(bytes);
+    }
+
+    /**
+     * Store the config as concise HOCON, which is cheaper to parse than the original file. Falls back to the original
+     * text if the rendered config does not parse back to the same config.
+     */
+    private static String compact(String mainConf) {
+      if (mainConf == null) {
+        return "";
+      }
+      Config parsed = ConfigFactory.parseString(mainConf);
+      if (parsed.isEmpty()) {
+        return "";
+      }
+      String rendered = parsed.root().render(COMPACT_HOCON);
+      return ConfigFactory.parseString(rendered).equals(parsed) ? rendered : mainConf;
+    }
+
+    private static String normalize(String absolutePath) {
+      StringBuilder path = new StringBuilder();
+      for (String part : absolutePath.split(SingleLinkedListConfigKeyPath.PATH_DELIMETER)) {
+        if (!part.isEmpty()) {
+          path.append(SingleLinkedListConfigKeyPath.PATH_DELIMETER).append(part);
+        }
+      }
+      return path.length() == 0 ? SingleLinkedListConfigKeyPath.PATH_DELIMETER : path.toString();
+    }
+
+    private static String getParentPath(String path) {
+      if (path.equals(SingleLinkedListConfigKeyPath.PATH_DELIMETER)) {
+        return null;
+      }
+      int idx = path.lastIndexOf(SingleLinkedListConfigKeyPath.PATH_DELIMETER);
+      return idx == 0 ? SingleLinkedListConfigKeyPath.PATH_DELIMETER : path.substring(0, idx);
+    }
+  }
+}
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.config.store.snapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.gobblin.config.common.impl.SingleLinkedListConfigKeyPath;
+import org.apache.gobblin.config.store.api.ConfigKeyPath;
+import org.apache.gobblin.config.store.api.ConfigStoreWithStableVersioning;
+import org.apache.gobblin.config.store.api.VersionDoesNotExistException;
+import org.apache.gobblin.config.store.deploy.FsDeploymentConfig;
+import org.apache.gobblin.config.store.hdfs.SimpleHadoopFilesystemConfigStore;
+import org.apache.gobblin.util.ConfigUtils;
+
+
+/**
+ * A {@link SimpleHadoopFilesystemConfigStore} that serves reads from a {@link ConfigStoreSnapshot} of each version
+ * instead of opening a {@link #MAIN_CONF_FILE_NAME} and an {@link #INCLUDES_CONF_FILE_NAME} file per node.
+ *
+ * <p>
+ *   The store keeps the layout of {@link SimpleHadoopFilesystemConfigStore}. In addition, the snapshot of version
+ *   {@code v} is stored at {@code [store-root]/_CONFIG_STORE/v.snapshot}; it is compiled by {@link #deploy} or
+ *   {@link #compileSnapshot(String)}. On first access to a version, the snapshot is copied to a local cache directory
+ *   (see {@link #SNAPSHOT_CACHE_DIR_KEY}) and memory-mapped. Since versions are immutable, a cached snapshot is never
+ *   refreshed.
+ * </p>
+ *
+ * <p>
+ *   Versions without a snapshot, e.g. versions deployed before this store was used, are read from the file system
+ *   exactly like {@link SimpleHadoopFilesystemConfigStore} does.
+ * </p>
+ */
+@Slf4j
+@ConfigStoreWithStableVersioning
+public class SnapshotConfigStore extends SimpleHadoopFilesystemConfigStore {
+
+  public static final String SNAPSHOT_FILE_SUFFIX = ".snapshot";
+
+  /** Local directory where snapshots are cached. Factory config key. */
+  public static final String SNAPSHOT_CACHE_DIR_KEY = "snapshot_cache_dir";
+  public static final String DEFAULT_SNAPSHOT_CACHE_DIR =
+      new File(System.getProperty("java.io.tmpdir"), "gobblin-config-snapshots").getPath();
+
+  private final File localCacheDir;
+  private final Cache<String, Optional<ConfigStoreSnapshot>> snapshots = CacheBuilder.newBuilder().build();
+
+  /**
+   * @param localCacheRoot root of the local snapshot cache, snapshots of this store are cached in a sub directory
+   */
+  public SnapshotConfigStore(FileSystem fs, URI physicalStoreRoot, URI logicalStoreRoot, File localCacheRoot) {
+    super(fs, physicalStoreRoot, logicalStoreRoot);
+    this.localCacheDir = new File(localCacheRoot,
+        Hashing.sha256().hashString(physicalStoreRoot.toString(), Charsets.UTF_8).toString());
+  }
+
+  /**
+   * @return the root of the local snapshot cache configured in the given factory config.
+   */
+  static File getLocalCacheRoot(Config factoryConfig) {
+    return new File(ConfigUtils.getString(factoryConfig, SNAPSHOT_CACHE_DIR_KEY, DEFAULT_SNAPSHOT_CACHE_DIR));
+  }
+
+  @Override
+  public Collection<ConfigKeyPath> getChildren(ConfigKeyPath configKey, String version)
+      throws VersionDoesNotExistException {
+    Preconditions.checkNotNull(configKey, "configKey cannot be null!");
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(version), "version cannot be null or empty!");
+
+    Optional<ConfigStoreSnapshot> snapshot = getSnapshot(version);
+    if (!snapshot.isPresent()) {
+      return super.getChildren(configKey, version);
+    }
+
+    List<ConfigKeyPath> children = new ArrayList<>();
+    int node = snapshot.get().indexOf(configKey.getAbsolutePathString());
+    if (node < 0) {
+      return children;
+    }
+    for (int child : snapshot.get().getChildren(node)) {
+      String childPath = snapshot.get().getPath(child);
+      children.add(configKey.createChild(
+          childPath.substring(childPath.lastIndexOf(SingleLinkedListConfigKeyPath.PATH_DELIMETER) + 1)));
+    }
+    return children;
+  }
+
+  @Override
+  public List<ConfigKeyPath> getOwnImports(ConfigKeyPath configKey, String version, Optional<Config> runtimeConfig)
+      throws VersionDoesNotExistException {
+    Preconditions.checkNotNull(configKey, "configKey cannot be null!");
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(version), "version cannot be null or empty!");
+
+    Optional<ConfigStoreSnapshot> snapshot = getSnapshot(version);
+    if (!snapshot.isPresent()) {
+      return super.getOwnImports(configKey, version, runtimeConfig);
+    }
+
+    int node = snapshot.get().indexOf(configKey.getAbsolutePathString());
+    String includes = node < 0 ? "" : snapshot.get().getIncludes(node);
+    if (includes.isEmpty()) {
+      return new ArrayList<>();
+    }
+    // Includes may reference the runtime config, so they are resolved on every read
+    try (InputStream includesConfInStream = new ByteArrayInputStream(includes.getBytes(Charsets.UTF_8))) {
+      return getResolvedConfigKeyPaths(includesConfInStream, runtimeConfig);
+    } catch (IOException e) {
+      throw new RuntimeException(String.format("Error while getting config for configKey: \"%s\"", configKey), e);
+    }
+  }
+
+  @Override
+  public Config getOwnConfig(ConfigKeyPath configKey, String version) throws VersionDoesNotExistException {
+    Preconditions.checkNotNull(configKey, "configKey cannot be null!");
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(version), "version cannot be null or empty!");
+
+    Optional<ConfigStoreSnapshot> snapshot = getSnapshot(version);
+    if (!snapshot.isPresent()) {
+      return super.getOwnConfig(configKey, version);
+    }
+
+    int node = snapshot.get().indexOf(configKey.getAbsolutePathString());
+    return node < 0 ? ConfigFactory.empty() : snapshot.get().getOwnConfig(node);
+  }
+
+  /**
+   * Deploy a new version as {@link SimpleHadoopFilesystemConfigStore#deploy} does, then compile its snapshot.
+   */
+  @Override
+  public void deploy(FsDeploymentConfig deploymentConfig) throws IOException {
+    super.deploy(deploymentConfig);
+    compileSnapshot(deploymentConfig.getNewVersion());
+  }
+
+  /**
+   * Compile the {@link ConfigStoreSnapshot} of the given version from its files, unless it already exists.
+   */
+  public void compileSnapshot(String version) throws IOException {
+    Path snapshotPath = getSnapshotPath(version);
+    FileSystem fs = getFs();
+    if (fs.exists(snapshotPath)) {
+      log.info("Snapshot of version {} already exists at {}", version, snapshotPath);
+      return;
+    }
+
+    ConfigStoreSnapshot.Builder builder = new ConfigStoreSnapshot.Builder();
+    addNodes(fs, getVersionRoot(version), SingleLinkedListConfigKeyPath.PATH_DELIMETER, builder);
+
+    // Write to a temporary file first so that readers never see a partial snapshot
+    Path tmpPath = new Path(snapshotPath.getParent(), "_" + snapshotPath.getName() + ".tmp");
+    try (OutputStream os = fs.create(tmpPath, true)) {
+      builder.writeTo(os);
+    }
+    if (!fs.rename(tmpPath, snapshotPath)) {
+      fs.delete(tmpPath, false);
+      throw new IOException(String.format("Failed to move snapshot %s to %s", tmpPath, snapshotPath));
+    }
+    log.info("Compiled snapshot of version {} at {}", version, snapshotPath);
+  }
+
+  private static void addNodes(FileSystem fs, Path dir, String absolutePath, ConfigStoreSnapshot.Builder builder)
+      throws IOException {
+    String mainConf = null;
+    String includesConf = null;
+    for (FileStatus fileStatus : fs.listStatus(dir)) {
+      String name = fileStatus.getPath().getName();
+      if (fileStatus.isDirectory()) {
+        String childPath = absolutePath.endsWith(SingleLinkedListConfigKeyPath.PATH_DELIMETER) ? absolutePath + name
+            : absolutePath + SingleLinkedListConfigKeyPath.PATH_DELIMETER + name;
+        addNodes(fs, fileStatus.getPath(), childPath, builder);
+      } else if (MAIN_CONF_FILE_NAME.equals(name)) {
+        mainConf = readFile(fs, fileStatus.getPath());
+      } else if (INCLUDES_CONF_FILE_NAME.equals(name)) {
+        includesConf = readFile(fs, fileStatus.getPath());
+      }
+    }
+    builder.addNode(absolutePath, mainConf, includesConf);
+  }
+
+  private static String readFile(FileSystem fs, Path path) throws IOException {
+    try (InputStream is = fs.open(path)) {
+      return IOUtils.toString(is, Charsets.UTF_8);
+    }
+  }
+
+  private Path getSnapshotPath(String version) {
+    return new Path(new Path(getPhysicalStoreRoot().getPath(), CONFIG_STORE_NAME), version + SNAPSHOT_FILE_SUFFIX);
+  }
+
+  private Optional<ConfigStoreSnapshot> getSnapshot(String version) {
+    try {
+      return this.snapshots.get(version, () -> loadSnapshot(version));
+    } catch (ExecutionException e) {
+      throw new RuntimeException(
+          String.format("Error while loading snapshot of version \"%s\" for store \"%s\"", version, getStoreURI()),
+          e.getCause());
+    }
+  }
+
+  private Optional<ConfigStoreSnapshot> loadSnapshot(String version) throws IOException {
+    Path snapshotPath = getSnapshotPath(version);
+    FileSystem fs = getFs();
+    if (!fs.exists(snapshotPath)) {
+      log.info("No snapshot of version {} for store {}, reading configs from the file system", version, getStoreURI());
+      return Optional.absent();
+    }
+
+    long snapshotLength = fs.getFileStatus(snapshotPath).getLen();
+    File localFile = new File(this.localCacheDir, version + SNAPSHOT_FILE_SUFFIX);
+    if (!localFile.isFile() || localFile.length() != snapshotLength) {
+      Files.createDirectories(this.localCacheDir.toPath());
+      File tmpFile = File.createTempFile(version, ".tmp", this.localCacheDir);
+      try {
+        try (InputStream is = fs.open(snapshotPath)) {
+          Files.copy(is, tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(tmpFile.toPath(), localFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tmpFile.toPath());
+      }
+      log.info("Cached snapshot {} at {}", snapshotPath, localFile);
+    }
+    return Optional.of(ConfigStoreSnapshot.load(localFile));
+  }
+}
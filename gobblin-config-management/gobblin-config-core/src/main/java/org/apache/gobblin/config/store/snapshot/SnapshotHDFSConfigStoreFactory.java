@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.config.store.snapshot;
+
+import java.io.File;
+import java.net.URI;
+
+import org.apache.hadoop.fs.FileSystem;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import org.apache.gobblin.config.store.hdfs.SimpleHDFSConfigStoreFactory;
+import org.apache.gobblin.config.store.hdfs.SimpleHadoopFilesystemConfigStore;
+import org.apache.gobblin.util.ConfigUtils;
+
+
+/**
+ * An extension of {@link SimpleHDFSConfigStoreFactory} that creates {@link SnapshotConfigStore}s for the scheme
+ * {@code snapshot-hdfs}.
+ */
+public class SnapshotHDFSConfigStoreFactory extends SimpleHDFSConfigStoreFactory {
+
+  public static final String SNAPSHOT_SCHEME_PREFIX = "snapshot-";
+
+  private final File localCacheRoot;
+
+  public SnapshotHDFSConfigStoreFactory() {
+    this(ConfigUtils.getConfigOrEmpty(ConfigFactory.load(), DEFAULT_CONFIG_NAMESPACE));
+  }
+
+  public SnapshotHDFSConfigStoreFactory(Config factoryConfig) {
+    super(factoryConfig);
+    this.localCacheRoot = SnapshotConfigStore.getLocalCacheRoot(factoryConfig);
+  }
+
+  @Override
+  protected SimpleHadoopFilesystemConfigStore createConfigStore(FileSystem fs, URI physicalStoreRoot,
+      URI logicalStoreRoot) {
+    return new SnapshotConfigStore(fs, physicalStoreRoot, logicalStoreRoot, this.localCacheRoot);
+  }
+
+  @Override
+  protected String getSchemePrefix() {
+    return SNAPSHOT_SCHEME_PREFIX;
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.config.store.snapshot;
+
+import java.io.File;
+import java.net.URI;
+
+import org.apache.hadoop.fs.FileSystem;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import org.apache.gobblin.config.store.hdfs.SimpleHadoopFilesystemConfigStore;
+import org.apache.gobblin.config.store.hdfs.SimpleLocalHDFSConfigStoreFactory;
+import org.apache.gobblin.util.ConfigUtils;
+
+
+/**
+ * An extension of {@link SimpleLocalHDFSConfigStoreFactory} that creates {@link SnapshotConfigStore}s for the scheme
+ * {@code snapshot-file}.
+ */
+public class SnapshotLocalConfigStoreFactory extends SimpleLocalHDFSConfigStoreFactory {
+
+  private final File localCacheRoot;
+
+  public SnapshotLocalConfigStoreFactory() {
+    this(ConfigUtils.getConfigOrEmpty(ConfigFactory.load(), DEFAULT_CONFIG_NAMESPACE));
+  }
+
+  public SnapshotLocalConfigStoreFactory(Config factoryConfig) {
+    super(factoryConfig);
+    this.localCacheRoot = SnapshotConfigStore.getLocalCacheRoot(factoryConfig);
+  }
+
+  @Override
+  protected SimpleHadoopFilesystemConfigStore createConfigStore(FileSystem fs, URI physicalStoreRoot,
+      URI logicalStoreRoot) {
+    return new SnapshotConfigStore(fs, physicalStoreRoot, logicalStoreRoot, this.localCacheRoot);
+  }
+
+  @Override
+  protected String getSchemePrefix() {
+    return SnapshotHDFSConfigStoreFactory.SNAPSHOT_SCHEME_PREFIX;
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.config.common.impl;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import org.apache.gobblin.config.store.api.ConfigKeyPath;
+import org.apache.gobblin.config.store.api.ConfigStore;
+
+
+public class TestCompiledValueInspector {
+
+  private final String version = "1.0";
+
+  private final ConfigKeyPath data = SingleLinkedListConfigKeyPath.ROOT.createChild("data");
+  private final ConfigKeyPath dataset1 = data.createChild("dataset1");
+  private final ConfigKeyPath dataset2 = data.createChild("dataset2");
+  private final ConfigKeyPath tag = SingleLinkedListConfigKeyPath.ROOT.createChild("tag");
+  private final ConfigKeyPath highPriorityTag = tag.createChild("highPriority");
+
+  //    ├── data            (key1 = data, key2 = ${key1})
+  //    │   ├── dataset1    (imports highPriority, key3 = dataset1)
+  //    │   └── dataset2    (key3 = dataset2)
+  //    └── tag             (key4 = tag)
+  //        └── highPriority (key1 = highPriority, key3 = highPriority)
+  private ConfigStore createMockConfigStore() {
+    ConfigStore mockConfigStore = mock(ConfigStore.class, Mockito.RETURNS_SMART_NULLS);
+    when(mockConfigStore.getCurrentVersion()).thenReturn(this.version);
+    when(mockConfigStore.getOwnConfig(SingleLinkedListConfigKeyPath.ROOT, this.version))
+        .thenReturn(ConfigFactory.parseString("key5 = root"));
+    when(mockConfigStore.getOwnConfig(this.data, this.version))
+        .thenReturn(ConfigFactory.parseString("key1 = data \n key2 = ${key1}"));
+    when(mockConfigStore.getOwnConfig(this.dataset1, this.version))
+        .thenReturn(ConfigFactory.parseString("key3 = dataset1"));
+    when(mockConfigStore.getOwnConfig(this.dataset2, this.version))
+        .thenReturn(ConfigFactory.parseString("key3 = dataset2"));
+    when(mockConfigStore.getOwnConfig(this.tag, this.version)).thenReturn(ConfigFactory.parseString("key4 = tag"));
+    when(mockConfigStore.getOwnConfig(this.highPriorityTag, this.version))
+        .thenReturn(ConfigFactory.parseString("key1 = highPriority \n key3 = highPriority"));
+    return mockConfigStore;
+  }
+
+  private ConfigStoreTopologyInspector createMockTopology() {
+    ConfigStoreTopologyInspector mockTopology = mock(ConfigStoreTopologyInspector.class, Mockito.RETURNS_SMART_NULLS);
+    when(mockTopology.getOwnImports(Mockito.eq(this.dataset1), Mockito.any()))
+        .thenReturn(ImmutableList.of(this.highPriorityTag));
+    return mockTopology;
+  }
+
+  @Test
+  public void testResolutionMatchesConfigStoreBackedValueInspector() {
+    ConfigStore mockConfigStore = createMockConfigStore();
+    ConfigStoreTopologyInspector mockTopology = createMockTopology();
+    ConfigStoreBackedValueInspector rawValueInspector =
+        new ConfigStoreBackedValueInspector(mockConfigStore, this.version, mockTopology);
+    CompiledValueInspector compiledValueInspector =
+        new CompiledValueInspector(rawValueInspector, mockTopology, this.version);
+
+    for (ConfigKeyPath key : ImmutableList.of(this.dataset1, this.dataset2, this.highPriorityTag, this.data)) {
+      Assert.assertEquals(compiledValueInspector.getResolvedConfig(key), rawValueInspector.getResolvedConfig(key));
+    }
+
+    Config dataset1Config = compiledValueInspector.getResolvedConfig(this.dataset1);
+    Assert.assertEquals(dataset1Config.getString("key1"), "highPriority");
+    Assert.assertEquals(dataset1Config.getString("key2"), "highPriority");
+    Assert.assertEquals(dataset1Config.getString("key3"), "dataset1");
+    Assert.assertEquals(dataset1Config.getString("key4"), "tag");
+    Assert.assertEquals(dataset1Config.getString("key5"), "root");
+  }
+
+  @Test
+  public void testAncestorsAreCompiledOnce() {
+    ConfigStore mockConfigStore = createMockConfigStore();
+    ConfigStoreTopologyInspector mockTopology = createMockTopology();
+    CompiledValueInspector compiledValueInspector = new CompiledValueInspector(
+        new ConfigStoreBackedValueInspector(mockConfigStore, this.version, mockTopology), mockTopology, this.version);
+
+    Map<ConfigKeyPath, Config> resolved =
+        compiledValueInspector.getResolvedConfigs(ImmutableList.of(this.dataset1, this.dataset2));
+    Assert.assertEquals(resolved.get(this.dataset1).getString("key3"), "dataset1");
+    Assert.assertEquals(resolved.get(this.dataset2).getString("key2"), "data");
+    compiledValueInspector.getResolvedConfig(this.dataset2);
+
+    verify(mockConfigStore, times(1)).getOwnConfig(SingleLinkedListConfigKeyPath.ROOT, this.version);
+    verify(mockConfigStore, times(1)).getOwnConfig(this.data, this.version);
+    verify(mockConfigStore, times(1)).getOwnConfig(this.dataset2, this.version);
+
+    CompiledValueInspector.ResolutionStats stats = compiledValueInspector.getStats();
+    // root, data, dataset1, tag, highPriority, dataset2
+    Assert.assertEquals(stats.getMisses(), 6);
+    // root from data and data from dataset2 in the bulk pass, dataset2 afterwards
+    Assert.assertEquals(stats.getHits(), 3);
+    Assert.assertEquals(stats.getResolutions(), 3);
+  }
+
+  @Test
+  public void testInvalidationFollowsImportGraph() {
+    ConfigStore mockConfigStore = createMockConfigStore();
+    ConfigStoreTopologyInspector mockTopology = createMockTopology();
+    CompiledValueInspector compiledValueInspector = new CompiledValueInspector(
+        new ConfigStoreBackedValueInspector(mockConfigStore, this.version, mockTopology), mockTopology, this.version);
+
+    Assert.assertEquals(compiledValueInspector.getResolvedConfig(this.dataset1).getString("key1"), "highPriority");
+    Assert.assertEquals(compiledValueInspector.getResolvedConfig(this.dataset2).getString("key1"), "data");
+
+    // tag is inherited by highPriority, which is imported by dataset1
+    when(mockConfigStore.getOwnConfig(this.tag, this.version)).thenReturn(ConfigFactory.parseString("key4 = newTag"));
+    Assert.assertEquals(compiledValueInspector.invalidate(this.tag).size(), 3);
+    Assert.assertEquals(compiledValueInspector.getResolvedConfig(this.dataset1).getString("key4"), "newTag");
+
+    // dataset2 neither inherits from nor imports tag and was not recompiled
+    verify(mockConfigStore, times(1)).getOwnConfig(this.dataset2, this.version);
+    verify(mockConfigStore, times(2)).getOwnConfig(this.dataset1, this.version);
+  }
+}
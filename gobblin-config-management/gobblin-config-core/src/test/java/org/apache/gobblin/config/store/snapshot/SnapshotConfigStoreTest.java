@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.config.store.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.Path;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import org.apache.gobblin.config.common.impl.SingleLinkedListConfigKeyPath;
+import org.apache.gobblin.config.store.api.ConfigKeyPath;
+import org.apache.gobblin.config.store.hdfs.SimpleHadoopFilesystemConfigStore;
+import org.apache.gobblin.config.store.hdfs.SimpleLocalHDFSConfigStoreFactory;
+
+
+/**
+ * Unit tests for {@link ConfigStoreSnapshot} and {@link SnapshotConfigStore}.
+ */
+@Test(groups = "gobblin.config.store.snapshot")
+public class SnapshotConfigStoreTest {
+
+  private static final String VERSION = "v1.0";
+
+  private File testDir;
+  private File storeDir;
+
+  @BeforeClass
+  public void setUp() throws IOException {
+    this.testDir = Files.createTempDir();
+    this.storeDir = new File(this.testDir, "store");
+    File versionDir = new File(new File(this.storeDir, SimpleHadoopFilesystemConfigStore.CONFIG_STORE_NAME), VERSION);
+
+    writeFile(new File(versionDir, "data/set1/main.conf"), "a = 1\nb = ${a}\nnested { c = \"x\" }");
+    writeFile(new File(versionDir, "data/set1/includes.conf"), "/tag/tag1\n/tag/${?runtimeProp.tag}");
+    writeFile(new File(versionDir, "data/set2/main.conf"), "a = 2");
+    writeFile(new File(versionDir, "tag/tag1/main.conf"), "t = true");
+    new File(versionDir, "tag/tag2").mkdirs();
+  }
+
+  @AfterClass
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(this.testDir);
+  }
+
+  @Test
+  public void testSnapshotRoundTrip() throws IOException {
+    ConfigStoreSnapshot snapshot = new ConfigStoreSnapshot.Builder()
+        .addNode("/data/set1", "a = 1\nb = ${a}", "/tag/tag1")
+        .addNode("/data/set2/", "a = [1, 2]", null)
+        .addNode("/tag/tag1", null, null)
+        .build();
+
+    // Root, /data and /tag are added implicitly
+    Assert.assertEquals(snapshot.size(), 6);
+    int root = snapshot.indexOf("/");
+    Assert.assertEquals(snapshot.getParent(root), -1);
+    Assert.assertEquals(snapshot.getChildren(root).length, 2);
+
+    int set1 = snapshot.indexOf("/data/set1");
+    Assert.assertEquals(snapshot.getPath(set1), "/data/set1");
+    Assert.assertEquals(snapshot.getPath(snapshot.getParent(set1)), "/data");
+    Assert.assertEquals(snapshot.getOwnConfig(set1), ConfigFactory.parseString("a = 1\nb = ${a}"));
+    Assert.assertEquals(snapshot.getOwnConfig(set1).resolve().getInt("b"), 1);
+    Assert.assertEquals(snapshot.getIncludes(set1), "/tag/tag1");
+
+    int set2 = snapshot.indexOf("/data/set2");
+    Assert.assertEquals(snapshot.getOwnConfig(set2).getIntList("a"), ImmutableList.of(1, 2));
+    Assert.assertEquals(snapshot.getIncludes(set2), "");
+    Assert.assertTrue(snapshot.getOwnConfig(snapshot.indexOf("/tag/tag1")).isEmpty());
+
+    Assert.assertEquals(snapshot.indexOf("/data/set3"), -1);
+    Assert.assertEquals(snapshot.indexOf("/data/set"), -1);
+  }
+
+  @Test
+  public void testStoreMatchesFileSystemStore() throws Exception {
+    URI storeUri = new URI("file", null, this.storeDir.getAbsolutePath(), null, null);
+    SimpleHadoopFilesystemConfigStore fsStore = new SimpleLocalHDFSConfigStoreFactory()
+        .createConfigStore(new URI("simple-" + storeUri));
+    SnapshotConfigStore snapshotStore = (SnapshotConfigStore) new SnapshotLocalConfigStoreFactory(
+        ConfigFactory.parseMap(ImmutableMap.of(SnapshotConfigStore.SNAPSHOT_CACHE_DIR_KEY,
+            new File(this.testDir, "cache").getAbsolutePath())))
+        .createConfigStore(new URI(SnapshotHDFSConfigStoreFactory.SNAPSHOT_SCHEME_PREFIX + storeUri));
+
+    snapshotStore.compileSnapshot(VERSION);
+    Assert.assertTrue(new File(this.storeDir,
+        SimpleHadoopFilesystemConfigStore.CONFIG_STORE_NAME + Path.SEPARATOR + VERSION
+            + SnapshotConfigStore.SNAPSHOT_FILE_SUFFIX).isFile());
+
+    Config runtimeConfig = ConfigFactory.parseMap(ImmutableMap.of("runtimeProp.tag", "tag2"));
+    List<ConfigKeyPath> keys = ImmutableList.of(SingleLinkedListConfigKeyPath.ROOT,
+        SingleLinkedListConfigKeyPath.ROOT.createChild("data"),
+        SingleLinkedListConfigKeyPath.ROOT.createChild("data").createChild("set1"),
+        SingleLinkedListConfigKeyPath.ROOT.createChild("data").createChild("set2"),
+        SingleLinkedListConfigKeyPath.ROOT.createChild("tag").createChild("tag1"),
+        SingleLinkedListConfigKeyPath.ROOT.createChild("tag").createChild("tag2"),
+        SingleLinkedListConfigKeyPath.ROOT.createChild("missing"));
+    for (ConfigKeyPath key : keys) {
+      Assert.assertEquals(snapshotStore.getOwnConfig(key, VERSION), fsStore.getOwnConfig(key, VERSION), key.toString());
+      Assert.assertEquals(snapshotStore.getOwnImports(key, VERSION, Optional.of(runtimeConfig)),
+          fsStore.getOwnImports(key, VERSION, Optional.of(runtimeConfig)), key.toString());
+      Assert.assertEquals(ImmutableSet.copyOf(snapshotStore.getChildren(key, VERSION)),
+          ImmutableSet.copyOf(fsStore.getChildren(key, VERSION)), key.toString());
+    }
+
+    ConfigKeyPath set1 = SingleLinkedListConfigKeyPath.ROOT.createChild("data").createChild("set1");
+    Assert.assertEquals(snapshotStore.getOwnConfig(set1, VERSION).resolve().getInt("b"), 1);
+    Assert.assertEquals(snapshotStore.getOwnImports(set1, VERSION), fsStore.getOwnImports(set1, VERSION));
+  }
+
+  private static void writeFile(File file, String content) throws IOException {
+    file.getParentFile().mkdirs();
+    Files.write(content, file, Charsets.UTF_8);
+  }
+}
@@ -30,6 +30,9 @@ import org.apache.gobblin.util.ForkOperatorUtils;
  */
 public class CompressionConfigParser {
   private static final String COMPRESSION_TYPE_KEY = "type";
+  private static final String COMPRESSION_LEVEL_KEY = "level";
+  private static final String COMPRESSION_WORKERS_KEY = "workers";
+  private static final String COMPRESSION_DICTIONARY_PATH_KEY = "dictionary_path";
 
   /**
    * Retrieve configuration settings for a given branch.
@@ -46,7 +49,22 @@ public class CompressionConfigParser {
       return null;
     }
 
-    return ImmutableMap.<String, Object>of(COMPRESSION_TYPE_KEY, compressionType);
+    ImmutableMap.Builder<String, Object> config = ImmutableMap.<String, Object>builder()
+        .put(COMPRESSION_TYPE_KEY, compressionType);
+    putIfPresent(config, COMPRESSION_LEVEL_KEY, taskState,
+        ForkOperatorUtils.getPropertyNameForBranch(ConfigurationKeys.WRITER_CODEC_LEVEL, numBranches, branch));
+    putIfPresent(config, COMPRESSION_WORKERS_KEY, taskState,
+        ForkOperatorUtils.getPropertyNameForBranch(ConfigurationKeys.WRITER_CODEC_WORKERS, numBranches, branch));
+    putIfPresent(config, COMPRESSION_DICTIONARY_PATH_KEY, taskState, ForkOperatorUtils
+        .getPropertyNameForBranch(ConfigurationKeys.WRITER_CODEC_DICTIONARY_PATH, numBranches, branch));
+    return config.build();
+  }
+
+  private static void putIfPresent(ImmutableMap.Builder<String, Object> config, String key, State taskState,
+      String propertyName) {
+    if (taskState.contains(propertyName)) {
+      config.put(key, taskState.getProp(propertyName));
+    }
   }
 
   /**
@@ -58,6 +76,38 @@ public class CompressionConfigParser {
     return (String) properties.get(COMPRESSION_TYPE_KEY);
   }
 
+  /**
+   * Return compression level
+   * @param properties Compression config settings
+   * @return Compression level, null if none exists
+   */
+  public static Integer getCompressionLevel(Map<String, Object> properties) {
+    return getInteger(properties, COMPRESSION_LEVEL_KEY);
+  }
+
+  /**
+   * Return number of background threads compressing a single stream
+   * @param properties Compression config settings
+   * @return Number of workers, null if none exists
+   */
+  public static Integer getCompressionWorkers(Map<String, Object> properties) {
+    return getInteger(properties, COMPRESSION_WORKERS_KEY);
+  }
+
+  /**
+   * Return path of the local file containing the compression dictionary
+   * @param properties Compression config settings
+   * @return Dictionary path, null if none exists
+   */
+  public static String getDictionaryPath(Map<String, Object> properties) {
+    return (String) properties.get(COMPRESSION_DICTIONARY_PATH_KEY);
+  }
+
+  private static Integer getInteger(Map<String, Object> properties, String key) {
+    Object value = properties.get(key);
+    return value == null ? null : Integer.valueOf(String.valueOf(value));
+  }
+
   private CompressionConfigParser() {
 
   }
@@ -16,11 +16,17 @@
  */
 package org.apache.gobblin.compression;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Map;
 
 import org.apache.gobblin.annotation.Alpha;
 import org.apache.gobblin.codec.GzipCodec;
+import org.apache.gobblin.codec.Lz4Codec;
+import org.apache.gobblin.codec.SnappyCodec;
 import org.apache.gobblin.codec.StreamCodec;
+import org.apache.gobblin.codec.ZstdCodec;
 
 
 /**
@@ -34,11 +40,34 @@ public class CompressionFactory {
     switch (type) {
       case GzipCodec.TAG:
         return new GzipCodec();
+      case Lz4Codec.TAG:
+        Integer lz4Level = CompressionConfigParser.getCompressionLevel(properties);
+        return new Lz4Codec(lz4Level == null ? Lz4Codec.DEFAULT_LEVEL : lz4Level);
+      case SnappyCodec.TAG:
+        return new SnappyCodec();
+      case ZstdCodec.TAG:
+        Integer zstdLevel = CompressionConfigParser.getCompressionLevel(properties);
+        Integer workers = CompressionConfigParser.getCompressionWorkers(properties);
+        return new ZstdCodec(zstdLevel == null ? ZstdCodec.DEFAULT_LEVEL : zstdLevel,
+            workers == null ? ZstdCodec.DEFAULT_WORKERS : workers, readDictionary(properties));
       default:
         throw new IllegalArgumentException("Can't build compressor of type " + type);
     }
   }
 
+  private static byte[] readDictionary(Map<String, Object> properties) {
+    String dictionaryPath = CompressionConfigParser.getDictionaryPath(properties);
+    if (dictionaryPath == null) {
+      return null;
+    }
+
+    try {
+      return Files.readAllBytes(Paths.get(dictionaryPath));
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Can't read compression dictionary " + dictionaryPath, e);
+    }
+  }
+
   private CompressionFactory() {
     // can't instantiate
   }
@@ -34,6 +34,7 @@ import io.reactivex.Flowable;
 import io.reactivex.Single;
 import io.reactivex.SingleObserver;
 import io.reactivex.annotations.NonNull;
+import io.reactivex.functions.Function;
 import lombok.RequiredArgsConstructor;
 
 
@@ -41,7 +42,9 @@ import lombok.RequiredArgsConstructor;
  * A {@link Converter} that allows for pipelining asynchronous conversions.
  *
  * The number of outstanding conversions is limited by {@link #MAX_CONCURRENT_ASYNC_CONVERSIONS_KEY} and defaults to
- * {@link #DEFAULT_MAX_CONCURRENT_ASYNC_CONVERSIONS}.
+ * {@link #DEFAULT_MAX_CONCURRENT_ASYNC_CONVERSIONS}. Converted records are emitted as soon as they are ready, unless
+ * {@link #PRESERVE_ORDER_KEY} is set, in which case they are emitted in input order, a slow conversion holding back the
+ * ones after it.
  *
  * Subclasses should implement {@link #convertRecordAsync(Object, Object, WorkUnitState)}.
  */
@@ -50,6 +53,8 @@ public abstract class AsyncConverter1to1<SI, SO, DI, DO> extends Converter<SI, S
 
   public static final String MAX_CONCURRENT_ASYNC_CONVERSIONS_KEY = "gobblin.converter.maxConcurrentAsyncConversions";
   public static final int DEFAULT_MAX_CONCURRENT_ASYNC_CONVERSIONS = 20;
+  public static final String PRESERVE_ORDER_KEY = "gobblin.converter.preserveOrder";
+  public static final boolean DEFAULT_PRESERVE_ORDER = false;
 
   @Override
   public abstract SO convertSchema(SI inputSchema, WorkUnitState workUnit) throws SchemaConversionException;
@@ -80,20 +85,24 @@ public abstract class AsyncConverter1to1<SI, SO, DI, DO> extends Converter<SI, S
       WorkUnitState workUnitState) throws SchemaConversionException {
     int maxConcurrentAsyncConversions = workUnitState.getPropAsInt(MAX_CONCURRENT_ASYNC_CONVERSIONS_KEY,
         DEFAULT_MAX_CONCURRENT_ASYNC_CONVERSIONS);
+    boolean preserveOrder = workUnitState.getPropAsBoolean(PRESERVE_ORDER_KEY, DEFAULT_PRESERVE_ORDER);
     SO outputSchema = convertSchema(inputStream.getGlobalMetadata().getSchema(), workUnitState);
-    Flowable<StreamEntity<DO>> outputStream =
-        inputStream.getRecordStream()
-            .flatMapSingle(in -> {
-              if (in instanceof ControlMessage) {
-                getMessageHandler().handleMessage((ControlMessage) in);
-                return Single.just((ControlMessage<DO>) in);
-              } else if (in instanceof RecordEnvelope) {
-                RecordEnvelope<DI> recordEnvelope = (RecordEnvelope<DI>) in;
-                return new SingleAsync(recordEnvelope, convertRecordAsync(outputSchema, recordEnvelope.getRecord(), workUnitState));
-              } else {
-                throw new IllegalStateException("Expected ControlMessage or RecordEnvelope.");
-              }
-            }, false, maxConcurrentAsyncConversions);
+    Function<StreamEntity<DI>, Single<? extends StreamEntity<DO>>> converter = in -> {
+      if (in instanceof ControlMessage) {
+        getMessageHandler().handleMessage((ControlMessage) in);
+        return Single.just((ControlMessage<DO>) in);
+      } else if (in instanceof RecordEnvelope) {
+        RecordEnvelope<DI> recordEnvelope = (RecordEnvelope<DI>) in;
+        return new SingleAsync(recordEnvelope, convertRecordAsync(outputSchema, recordEnvelope.getRecord(), workUnitState));
+      } else {
+        throw new IllegalStateException("Expected ControlMessage or RecordEnvelope.");
+      }
+    };
+    // concatMapEager subscribes to up to maxConcurrentAsyncConversions conversions at once, but emits them in order
+    Flowable<StreamEntity<DO>> outputStream = preserveOrder
+        ? inputStream.getRecordStream().concatMapEager(in -> converter.apply(in).toFlowable(),
+            maxConcurrentAsyncConversions, maxConcurrentAsyncConversions)
+        : inputStream.getRecordStream().flatMapSingle(converter, false, maxConcurrentAsyncConversions);
     return inputStream.withRecordStream(outputStream, GlobalMetadata.<SI, SO>builderWithInput(inputStream.getGlobalMetadata(),
         Optional.fromNullable(outputSchema)).build());
   }
@@ -71,6 +71,13 @@ public class EncryptionConfigParser {
    */
   public static final String ENCRYPTION_CIPHER_KEY = "cipher";
 
+  /**
+   * Chunked algorithms (eg aes_parallel) can be configured with the plaintext chunk size in bytes and the number of
+   * chunks encrypted in parallel
+   */
+  public static final String ENCRYPTION_CHUNK_SIZE_KEY = "chunk_size";
+  public static final String ENCRYPTION_PARALLELISM_KEY = "parallelism";
+
   /**
    * Represents the entity we are trying to retrieve configuration for. Internally this
    * enum maps entity type to a configuration prefix.
@@ -211,6 +218,29 @@ public class EncryptionConfigParser {
     return (String)parameters.get(ENCRYPTION_CIPHER_KEY);
   }
 
+  /**
+   * Get the chunk size of chunked algorithms
+   * @param parameters parameters map
+   * @return the chunk size in bytes, or null if not configured
+   */
+  public static Integer getChunkSize(Map<String, Object> parameters) {
+    return getInteger(parameters, ENCRYPTION_CHUNK_SIZE_KEY);
+  }
+
+  /**
+   * Get the number of chunks that chunked algorithms encrypt in parallel
+   * @param parameters parameters map
+   * @return the parallelism, or null if not configured
+   */
+  public static Integer getParallelism(Map<String, Object> parameters) {
+    return getInteger(parameters, ENCRYPTION_PARALLELISM_KEY);
+  }
+
+  private static Integer getInteger(Map<String, Object> parameters, String key) {
+    Object value = parameters.get(key);
+    return value == null ? null : Integer.valueOf(String.valueOf(value));
+  }
+
   /**
    * Extract a set of properties for a given branch, stripping out the prefix and branch
    * suffix.
@@ -17,6 +17,7 @@
 
 package org.apache.gobblin.converter;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -97,6 +98,45 @@ public class AsyncConverter1to1Test {
     Assert.assertTrue(done.get());
   }
 
+  @Test
+  public void testPreserveOrder() throws Exception {
+    MyAsyncConverter1to1 converter = new MyAsyncConverter1to1();
+
+    List<Throwable> errors = Lists.newArrayList();
+    AtomicBoolean done = new AtomicBoolean(false);
+
+    WorkUnitState workUnitState = new WorkUnitState();
+    workUnitState.setProp(AsyncConverter1to1.MAX_CONCURRENT_ASYNC_CONVERSIONS_KEY, 3);
+    workUnitState.setProp(AsyncConverter1to1.PRESERVE_ORDER_KEY, true);
+
+    RecordStreamWithMetadata<String, String> stream =
+        new RecordStreamWithMetadata<>(Flowable.range(0, 4).map(i -> i.toString()).map(RecordEnvelope::new),
+            GlobalMetadata.<String>builder().schema("schema").build());
+
+    List<String> outputRecords = Collections.synchronizedList(Lists.newArrayList());
+
+    converter.processStream(stream, workUnitState).getRecordStream().subscribeOn(Schedulers.newThread())
+        .subscribe(r -> outputRecords.add(((RecordEnvelope<String>)r).getRecord()), errors::add, () -> done.set(true));
+
+    // Release records 2 and 1, which are held back by record 0
+    Assert.assertTrue(
+        ExponentialBackoff.awaitCondition().maxWait(100L).callable(() -> converter.completeFutureIfPresent("2")).await());
+    Assert.assertTrue(
+        ExponentialBackoff.awaitCondition().maxWait(100L).callable(() -> converter.completeFutureIfPresent("1")).await());
+    Assert.assertFalse(ExponentialBackoff.awaitCondition().maxWait(200L).callable(() -> !outputRecords.isEmpty()).await());
+
+    // Release record 0, all released records are emitted in order
+    Assert.assertTrue(
+        ExponentialBackoff.awaitCondition().maxWait(100L).callable(() -> converter.completeFutureIfPresent("0")).await());
+    Assert.assertTrue(ExponentialBackoff.awaitCondition().maxWait(100L).callable(() -> outputRecords.size() == 3).await());
+
+    Assert.assertTrue(
+        ExponentialBackoff.awaitCondition().maxWait(100L).callable(() -> converter.completeFutureIfPresent("3")).await());
+    Assert.assertTrue(ExponentialBackoff.awaitCondition().maxWait(100L).callable(() -> done.get()).await());
+    Assert.assertEquals(outputRecords, Lists.newArrayList("0", "1", "2", "3"));
+    Assert.assertTrue(errors.isEmpty());
+  }
+
   @Test
   public void testFailedConversion() throws Exception {
     MyAsyncConverter1to1 converter = new MyAsyncConverter1to1();
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.converter.avro;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.base.Charsets;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.apache.gobblin.configuration.SourceState;
+import org.apache.gobblin.configuration.WorkUnitState;
+import org.apache.gobblin.source.workunit.Extract;
+import org.apache.gobblin.source.workunit.WorkUnit;
+
+
+/**
+ * A micro-benchmark comparing the conversion of a UTF-8 encoded JSON record to Avro through a Gson tree
+ * ({@link JsonIntermediateToAvroConverter}, fed the way {@link org.apache.gobblin.converter.json.BytesToJsonConverter}
+ * parses records) with the streaming {@link JsonBytesToAvroConverter}, with and without record reuse.
+ */
+@Warmup (iterations = 3)
+@Measurement (iterations = 10)
+@BenchmarkMode (value = Mode.Throughput)
+@Fork (value = 1)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+public class JsonToAvroConversionBenchmark {
+
+  @State (value = Scope.Thread)
+  public static class ConversionState {
+    private static final String SCHEMA = "["
+        + "{\"columnName\": \"time\", \"dataType\": {\"type\": \"long\"}, \"isNullable\": false},"
+        + "{\"columnName\": \"member\", \"dataType\": {\"type\": \"string\"}, \"isNullable\": false},"
+        + "{\"columnName\": \"count\", \"dataType\": {\"type\": \"int\"}, \"isNullable\": false},"
+        + "{\"columnName\": \"score\", \"dataType\": {\"type\": \"double\"}, \"isNullable\": true},"
+        + "{\"columnName\": \"active\", \"dataType\": {\"type\": \"boolean\"}, \"isNullable\": true},"
+        + "{\"columnName\": \"page\", \"dataType\": {\"type\": \"string\"}, \"isNullable\": true},"
+        + "{\"columnName\": \"tags\", \"dataType\": {\"type\": \"array\", \"items\": \"string\"}, \"isNullable\": true},"
+        + "{\"columnName\": \"attributes\", \"dataType\": {\"type\": \"map\", \"values\": \"string\"}, \"isNullable\": true},"
+        + "{\"columnName\": \"device\", \"dataType\": {\"type\": \"record\", \"name\": \"device\", \"values\": ["
+        + "{\"columnName\": \"os\", \"dataType\": {\"type\": \"string\"}, \"isNullable\": true},"
+        + "{\"columnName\": \"version\", \"dataType\": {\"type\": \"int\"}, \"isNullable\": true}]}, \"isNullable\": true}"
+        + "]";
+    private static final String RECORD = "{\"time\": 1589459200000, \"member\": \"member-12345\", \"count\": 42,"
+        + " \"score\": 0.75, \"active\": true, \"page\": \"/feed/updates\", \"tags\": [\"a\", \"bb\", \"ccc\", \"dddd\"],"
+        + " \"attributes\": {\"browser\": \"firefox\", \"locale\": \"en_US\"},"
+        + " \"device\": {\"os\": \"linux\", \"version\": 5}}";
+
+    private byte[] payload;
+    private WorkUnitState workUnitState;
+    private JsonIntermediateToAvroConverter jsonIntermediateConverter;
+    private Schema jsonIntermediateSchema;
+    private JsonBytesToAvroConverter streamingConverter;
+    private Schema streamingSchema;
+    private JsonBytesToAvroConverter reusingStreamingConverter;
+    private Schema reusingStreamingSchema;
+
+    @Setup (value = Level.Trial)
+    public void setUp() throws Exception {
+      this.payload = RECORD.getBytes(Charsets.UTF_8);
+      JsonArray schema = new JsonParser().parse(SCHEMA).getAsJsonArray();
+      this.workUnitState = new WorkUnitState(new WorkUnit(new SourceState(),
+          new Extract(new SourceState(), Extract.TableType.SNAPSHOT_ONLY, "org.apache.gobblin.test", "Event")));
+
+      this.jsonIntermediateConverter = new JsonIntermediateToAvroConverter();
+      this.jsonIntermediateSchema = this.jsonIntermediateConverter.convertSchema(schema, this.workUnitState);
+      this.streamingConverter = new JsonBytesToAvroConverter();
+      this.streamingSchema = this.streamingConverter.convertSchema(schema, this.workUnitState);
+
+      WorkUnitState reuseState = new WorkUnitState(new WorkUnit(new SourceState(),
+          new Extract(new SourceState(), Extract.TableType.SNAPSHOT_ONLY, "org.apache.gobblin.test", "Event")));
+      reuseState.setProp(JsonBytesToAvroConverter.CONVERTER_AVRO_JSON_REUSE_RECORDS_ENABLED, true);
+      this.reusingStreamingConverter = new JsonBytesToAvroConverter();
+      this.reusingStreamingSchema = this.reusingStreamingConverter.convertSchema(schema, reuseState);
+    }
+  }
+
+  @Benchmark
+  public GenericRecord jsonIntermediateConversion(ConversionState state) throws Exception {
+    JsonObject jsonRecord = new JsonParser().parse(new String(state.payload, Charsets.UTF_8)).getAsJsonObject();
+    return state.jsonIntermediateConverter.convertRecord(state.jsonIntermediateSchema, jsonRecord,
+        state.workUnitState).iterator().next();
+  }
+
+  @Benchmark
+  public GenericRecord streamingConversion(ConversionState state) throws Exception {
+    return state.streamingConverter.convertRecord(state.streamingSchema, state.payload, state.workUnitState)
+        .iterator().next();
+  }
+
+  @Benchmark
+  public GenericRecord streamingConversionWithRecordReuse(ConversionState state) throws Exception {
+    return state.reusingStreamingConverter.convertRecord(state.reusingStreamingSchema, state.payload,
+        state.workUnitState).iterator().next();
+  }
+
+  public static void main(String[] args) throws Exception {
+    ChainedOptionsBuilder opt = new OptionsBuilder()
+        .include(JsonToAvroConversionBenchmark.class.getSimpleName())
+        .warmupIterations(3)
+        .measurementIterations(10);
+    new Runner(opt.build()).run();
+  }
+}
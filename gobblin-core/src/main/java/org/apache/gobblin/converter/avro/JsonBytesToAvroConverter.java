@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.converter.avro;
+
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import com.google.common.base.Charsets;
+import com.google.gson.JsonArray;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.gobblin.configuration.ConfigurationKeys;
+import org.apache.gobblin.configuration.WorkUnitState;
+import org.apache.gobblin.converter.DataConversionException;
+import org.apache.gobblin.converter.SchemaConversionException;
+import org.apache.gobblin.converter.SingleRecordIterable;
+import org.apache.gobblin.converter.ToAvroConverterBase;
+import org.apache.gobblin.converter.avro.JsonElementConversionFactory.RecordConverter;
+import org.apache.gobblin.converter.json.BytesToJsonConverter;
+import org.apache.gobblin.converter.json.JsonSchema;
+import org.apache.gobblin.util.EmptyIterable;
+
+
+/**
+ * Converts UTF-8 encoded JSON records to Avro with the same schema and type handling as
+ * {@link BytesToJsonConverter} followed by {@link JsonIntermediateToAvroConverter}, but reads each record with a
+ * streaming {@link JsonParser} straight into the Avro record instead of building a Gson tree first.
+ *
+ * <p>
+ *   With {@link #CONVERTER_AVRO_JSON_REUSE_RECORDS_ENABLED}, the same {@link GenericRecord} (and its nested records,
+ *   arrays and maps) is overwritten by every conversion. This is only safe when downstream constructs do not retain
+ *   records after the next one is converted, e.g. a single-branch pipeline writing straight to an Avro writer.
+ * </p>
+ */
+@Slf4j
+public class JsonBytesToAvroConverter extends ToAvroConverterBase<JsonArray, byte[]> {
+  public static final String CONVERTER_AVRO_JSON_REUSE_RECORDS_ENABLED = "converter.avro.json.reuse.records.enabled";
+  public static final boolean DEFAULT_CONVERTER_AVRO_JSON_REUSE_RECORDS_ENABLED = false;
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private RecordConverter recordConverter;
+  private boolean reuseRecords;
+  private long maxFailedConversions;
+  private long numFailedConversion = 0;
+  private GenericRecord reusableRecord;
+
+  @Override
+  public Schema convertSchema(JsonArray schema, WorkUnitState workUnit)
+      throws SchemaConversionException {
+    try {
+      JsonSchema jsonSchema = new JsonSchema(schema);
+      jsonSchema.setColumnName(workUnit.getExtract().getTable());
+      this.recordConverter = new RecordConverter(jsonSchema, workUnit, workUnit.getExtract().getNamespace());
+    } catch (UnsupportedDateTypeException e) {
+      throw new SchemaConversionException(e);
+    }
+    this.reuseRecords = workUnit.getPropAsBoolean(CONVERTER_AVRO_JSON_REUSE_RECORDS_ENABLED,
+        DEFAULT_CONVERTER_AVRO_JSON_REUSE_RECORDS_ENABLED);
+    this.maxFailedConversions = workUnit.getPropAsLong(ConfigurationKeys.CONVERTER_AVRO_MAX_CONVERSION_FAILURES,
+        ConfigurationKeys.DEFAULT_CONVERTER_AVRO_MAX_CONVERSION_FAILURES);
+    return this.recordConverter.schema();
+  }
+
+  @Override
+  public Iterable<GenericRecord> convertRecord(Schema outputSchema, byte[] inputRecord, WorkUnitState workUnit)
+      throws DataConversionException {
+    if (inputRecord == null) {
+      throw new DataConversionException("Input record is null");
+    }
+
+    GenericRecord record;
+    try (JsonParser parser = JSON_FACTORY.createJsonParser(inputRecord)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new JsonParseException("Input record is not a JSON object", parser.getCurrentLocation());
+      }
+      record = (GenericRecord) this.recordConverter.convert(parser, this.reusableRecord);
+    } catch (IOException | RuntimeException e) {
+      this.numFailedConversion++;
+      if (this.numFailedConversion < this.maxFailedConversions) {
+        log.error("Dropping record " + new String(inputRecord, Charsets.UTF_8)
+            + " because it cannot be converted to Avro", e);
+        return new EmptyIterable<>();
+      }
+      throw new DataConversionException(
+          "Unable to convert record: " + new String(inputRecord, Charsets.UTF_8), e);
+    }
+    if (this.reuseRecords) {
+      this.reusableRecord = record;
+    }
+    return new SingleRecordIterable<>(record);
+  }
+}
@@ -17,6 +17,7 @@
 
 package org.apache.gobblin.converter.avro;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -35,6 +36,9 @@ import org.apache.gobblin.configuration.State;
 import org.apache.gobblin.configuration.WorkUnitState;
 import org.apache.gobblin.converter.EmptyIterable;
 import org.apache.gobblin.converter.json.JsonSchema;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
 import org.joda.time.DateTimeZone;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
@@ -43,7 +47,9 @@ import org.slf4j.LoggerFactory;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
 import com.linkedin.avroutil1.compatibility.AvroCompatibilityHelper;
 
 import lombok.extern.java.Log;
@@ -58,6 +64,13 @@ import static org.apache.gobblin.converter.json.JsonSchema.*;
  * Creates a JsonElement to Avro converter for all supported data types.
  * </p>
  *
+ * <p>
+ * Besides {@link JsonElement}s, the converters can read values directly from a streaming {@link JsonParser}
+ * (see {@link JsonElementConverter#convert(JsonParser, Object)}), which skips building the Gson tree of the record.
+ * Record converters look fields up by their precomputed position in the Avro schema, and the streaming path can
+ * reuse the records, arrays and maps of a previously converted value.
+ * </p>
+ *
  * @author kgoodhop
  *
  */
@@ -280,6 +293,38 @@ public class JsonElementConversionFactory {
       return convertField(value);
     }
 
+    /**
+     * Convert the value the {@link JsonParser} is positioned on. After the call, the parser is positioned on the
+     * last token of the value.
+     * @param parser positioned on the first token of the value
+     * @param reuse a value previously returned by this converter that may be overwritten, or null
+     * @return Avro safe type
+     */
+    public Object convert(JsonParser parser, Object reuse)
+        throws IOException {
+      if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+        if (isNullable()) {
+          return null;
+        }
+        throw new RuntimeException("Field: " + getName() + " is not nullable and contains a null value");
+      }
+      if (isStructuredToken(parser.getCurrentToken()) && !isStructuredType(getTargetType())) {
+        // Primitive converters only read the current token, so an object or array is read fully and converted like
+        // the JsonElement path does, leaving the parser on the last token of the value
+        return convertField(readJsonElement(parser));
+      }
+      return convertField(parser, reuse);
+    }
+
+    private static boolean isStructuredToken(JsonToken token) {
+      return token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY;
+    }
+
+    private static boolean isStructuredType(Schema.Type type) {
+      return type == Schema.Type.RECORD || type == Schema.Type.ARRAY || type == Schema.Type.MAP
+          || type == Schema.Type.UNION;
+    }
+
     /**
      * Convert JsonElement to Avro type
      * @param value
@@ -287,12 +332,30 @@ public class JsonElementConversionFactory {
      */
     abstract Object convertField(JsonElement value);
 
+    /**
+     * Convert the value the {@link JsonParser} is positioned on to Avro type. Converters which do not read the
+     * parser directly convert the {@link JsonElement} read from it.
+     */
+    Object convertField(JsonParser parser, Object reuse)
+        throws IOException {
+      return convertField(readJsonElement(parser));
+    }
+
     /**
      * Avro data type after conversion
      * @return
      */
     public abstract Schema.Type getTargetType();
 
+    protected void expectToken(JsonParser parser, JsonToken expected)
+        throws JsonParseException {
+      if (parser.getCurrentToken() != expected) {
+        throw new JsonParseException(
+            "Field: " + getName() + " expects " + expected + " but found " + parser.getCurrentToken(),
+            parser.getCurrentLocation());
+      }
+    }
+
     protected static String buildNamespace(String namespace, String name) {
       if (namespace == null || namespace.isEmpty()) {
         return null;
@@ -322,6 +385,12 @@ public class JsonElementConversionFactory {
       return new Utf8(value.getAsString());
     }
 
+    @Override
+    Object convertField(JsonParser parser, Object reuse)
+        throws IOException {
+      return new Utf8(parser.getText());
+    }
+
     @Override
     public org.apache.avro.Schema.Type getTargetType() {
       return Schema.Type.STRING;
@@ -340,6 +409,15 @@ public class JsonElementConversionFactory {
       return value.getAsInt();
     }
 
+    @Override
+    Object convertField(JsonParser parser, Object reuse)
+        throws IOException {
+      if (parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+        return Integer.parseInt(parser.getText());
+      }
+      return parser.getIntValue();
+    }
+
     @Override
     public org.apache.avro.Schema.Type getTargetType() {
       return Schema.Type.INT;
@@ -358,6 +436,15 @@ public class JsonElementConversionFactory {
       return value.getAsLong();
     }
 
+    @Override
+    Object convertField(JsonParser parser, Object reuse)
+        throws IOException {
+      if (parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+        return Long.parseLong(parser.getText());
+      }
+      return parser.getLongValue();
+    }
+
     @Override
     public org.apache.avro.Schema.Type getTargetType() {
       return Schema.Type.LONG;
@@ -375,6 +462,15 @@ public class JsonElementConversionFactory {
       return value.getAsDouble();
     }
 
+    @Override
+    Object convertField(JsonParser parser, Object reuse)
+        throws IOException {
+      if (parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+        return Double.parseDouble(parser.getText());
+      }
+      return parser.getDoubleValue();
+    }
+
     @Override
     public org.apache.avro.Schema.Type getTargetType() {
       return Schema.Type.DOUBLE;
@@ -392,6 +488,15 @@ public class JsonElementConversionFactory {
       return value.getAsFloat();
     }
 
+    @Override
+    Object convertField(JsonParser parser, Object reuse)
+        throws IOException {
+      if (parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+        return Float.parseFloat(parser.getText());
+      }
+      return parser.getFloatValue();
+    }
+
     @Override
     public org.apache.avro.Schema.Type getTargetType() {
       return Schema.Type.FLOAT;
@@ -410,6 +515,19 @@ public class JsonElementConversionFactory {
       return value.getAsBoolean();
     }
 
+    @Override
+    Object convertField(JsonParser parser, Object reuse)
+        throws IOException {
+      switch (parser.getCurrentToken()) {
+        case VALUE_TRUE:
+          return true;
+        case VALUE_FALSE:
+          return false;
+        default:
+          return Boolean.parseBoolean(parser.getText());
+      }
+    }
+
     @Override
     public org.apache.avro.Schema.Type getTargetType() {
       return Schema.Type.BOOLEAN;
@@ -420,6 +538,7 @@ public class JsonElementConversionFactory {
     private String inputPatterns;
     private DateTimeZone timeZone;
     private WorkUnitState state;
+    private List<DateTimeFormatter> formatters;
 
     public DateConverter(JsonSchema schema, String pattern, DateTimeZone zone, WorkUnitState state) {
       super(schema);
@@ -453,6 +572,42 @@ public class JsonElementConversionFactory {
       return formattedDate;
     }
 
+    @Override
+    Object convertField(JsonParser parser, Object reuse)
+        throws IOException {
+      String value = parser.getText();
+      for (DateTimeFormatter dtf : getFormatters()) {
+        try {
+          long formattedDate = dtf.parseDateTime(value).getMillis();
+          if (Boolean.valueOf(this.state.getProp(ConfigurationKeys.CONVERTER_IS_EPOCH_TIME_IN_SECONDS))) {
+            formattedDate = formattedDate / 1000;
+          }
+          return formattedDate;
+        } catch (RuntimeException e) {
+          // try the next pattern
+        }
+      }
+      throw new RuntimeException("Failed to parse the date");
+    }
+
+    /**
+     * Formatters of the valid input patterns, built once for the streaming path.
+     */
+    private List<DateTimeFormatter> getFormatters() {
+      if (this.formatters == null) {
+        List<DateTimeFormatter> formatters = new ArrayList<>();
+        for (String pattern : this.inputPatterns.split(",")) {
+          try {
+            formatters.add(DateTimeFormat.forPattern(pattern).withZone(this.timeZone));
+          } catch (IllegalArgumentException e) {
+            // an invalid pattern never matches, as in convertField(JsonElement)
+          }
+        }
+        this.formatters = formatters;
+      }
+      return this.formatters;
+    }
+
     @Override
     public org.apache.avro.Schema.Type getTargetType() {
       return Schema.Type.LONG;
@@ -476,6 +631,12 @@ public class JsonElementConversionFactory {
       }
     }
 
+    @Override
+    Object convertField(JsonParser parser, Object reuse)
+        throws IOException {
+      return ByteBuffer.wrap(parser.getText().getBytes(this.charSet));
+    }
+
     @Override
     public org.apache.avro.Schema.Type getTargetType() {
       return Schema.Type.BYTES;
@@ -515,6 +676,8 @@ public class JsonElementConversionFactory {
   }
 
   public static class ArrayConverter extends ComplexConverter {
+    private static final int DEFAULT_ARRAY_CAPACITY = 16;
+    private Schema arraySchema;
 
     public ArrayConverter(JsonSchema schema, WorkUnitState state, String namespace)
         throws UnsupportedDateTypeException {
@@ -536,10 +699,30 @@ public class JsonElementConversionFactory {
       return new GenericData.Array<>(arraySchema(), list);
     }
 
+    @Override
+    Object convertField(JsonParser parser, Object reuse)
+        throws IOException {
+      expectToken(parser, JsonToken.START_ARRAY);
+      GenericData.Array<Object> array;
+      if (reuse instanceof GenericData.Array) {
+        array = (GenericData.Array<Object>) reuse;
+        array.clear();
+      } else {
+        array = new GenericData.Array<>(DEFAULT_ARRAY_CAPACITY, arraySchema());
+      }
+      while (parser.nextToken() != JsonToken.END_ARRAY) {
+        array.add(getElementConverter().convert(parser, array.peek()));
+      }
+      return array;
+    }
+
     private Schema arraySchema() {
-      Schema schema = Schema.createArray(getElementConverter().schema());
-      schema.addProp(SOURCE_TYPE, ARRAY.toString().toLowerCase());
-      return schema;
+      if (this.arraySchema == null) {
+        Schema schema = Schema.createArray(getElementConverter().schema());
+        schema.addProp(SOURCE_TYPE, ARRAY.toString().toLowerCase());
+        this.arraySchema = schema;
+      }
+      return this.arraySchema;
     }
 
     @Override
@@ -572,6 +755,26 @@ public class JsonElementConversionFactory {
       return map;
     }
 
+    @Override
+    Object convertField(JsonParser parser, Object reuse)
+        throws IOException {
+      expectToken(parser, JsonToken.START_OBJECT);
+      Map<String, Object> map;
+      if (reuse instanceof HashMap) {
+        map = (Map<String, Object>) reuse;
+        map.clear();
+      } else {
+        map = new HashMap<>();
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String key = parser.getCurrentName();
+        parser.nextToken();
+        map.put(key, getElementConverter().convert(parser, null));
+      }
+      expectToken(parser, JsonToken.END_OBJECT);
+      return map;
+    }
+
     @Override
     public org.apache.avro.Schema.Type getTargetType() {
       return Schema.Type.MAP;
@@ -589,6 +792,9 @@ public class JsonElementConversionFactory {
   public static class RecordConverter extends ComplexConverter {
     private static final Logger LOG = LoggerFactory.getLogger(RecordConverter.class);
     private HashMap<String, JsonElementConverter> converters = new HashMap<>();
+    private Map<String, Integer> fieldPositions = new HashMap<>();
+    private List<JsonElementConverter> fieldConverters = new ArrayList<>();
+    private boolean[] fieldsSeen;
     private Schema _schema;
     private long numFailedConversion = 0;
     private State workUnit;
@@ -599,6 +805,7 @@ public class JsonElementConversionFactory {
       workUnit = state;
       String name = schema.isRoot() ? schema.getColumnName() : schema.getName();
       _schema = buildRecordSchema(schema.getValuesWithinDataType(), state, name, namespace);
+      fieldsSeen = new boolean[fieldConverters.size()];
     }
 
     private Schema buildRecordSchema(JsonSchema schema, WorkUnitState workUnit, String name, String namespace) {
@@ -613,6 +820,8 @@ public class JsonElementConversionFactory {
           sourceType = map.isType(UNION) ? UNION.toString().toLowerCase() : map.getType().toString().toLowerCase();
           converter = getConvertor(map, childNamespace, workUnit);
           this.converters.put(map.getColumnName(), converter);
+          this.fieldPositions.put(map.getColumnName(), i);
+          this.fieldConverters.add(converter);
           fldSchema = converter.schema();
         } catch (UnsupportedDateTypeException e) {
           throw new UnsupportedOperationException(e);
@@ -653,6 +862,49 @@ public class JsonElementConversionFactory {
       return avroRecord;
     }
 
+    /**
+     * Unlike {@link #convertField(JsonElement)}, failures are not counted here but thrown to the caller, which is
+     * the only one able to skip the rest of the record. A reused record has the fields missing from the value reset
+     * to null.
+     */
+    @Override
+    Object convertField(JsonParser parser, Object reuse)
+        throws IOException {
+      expectToken(parser, JsonToken.START_OBJECT);
+      GenericData.Record avroRecord;
+      boolean reused = reuse instanceof GenericData.Record && ((GenericData.Record) reuse).getSchema() == _schema;
+      if (reused) {
+        avroRecord = (GenericData.Record) reuse;
+        Arrays.fill(this.fieldsSeen, false);
+      } else {
+        avroRecord = new GenericData.Record(_schema);
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String fieldName = parser.getCurrentName();
+        Integer pos = this.fieldPositions.get(fieldName);
+        if (pos == null) {
+          throw new JsonParseException("Field: " + fieldName + " is not in the schema of " + getName(),
+              parser.getCurrentLocation());
+        }
+        parser.nextToken();
+        try {
+          avroRecord.put(pos, this.fieldConverters.get(pos).convert(parser, reused ? avroRecord.get(pos) : null));
+        } catch (RuntimeException e) {
+          throw new RuntimeException("Unable to convert field:" + fieldName, e);
+        }
+        this.fieldsSeen[pos] = true;
+      }
+      expectToken(parser, JsonToken.END_OBJECT);
+      if (reused) {
+        for (int i = 0; i < this.fieldsSeen.length; i++) {
+          if (!this.fieldsSeen[i]) {
+            avroRecord.put(i, null);
+          }
+        }
+      }
+      return avroRecord;
+    }
+
     @Override
     public org.apache.avro.Schema.Type getTargetType() {
       return Schema.Type.RECORD;
@@ -689,6 +941,12 @@ public class JsonElementConversionFactory {
       return new GenericData.EnumSymbol(this.schema, value.getAsString());
     }
 
+    @Override
+    Object convertField(JsonParser parser, Object reuse)
+        throws IOException {
+      return new GenericData.EnumSymbol(this.schema, parser.getText());
+    }
+
     @Override
     public org.apache.avro.Schema.Type getTargetType() {
       return Schema.Type.ENUM;
@@ -761,4 +1019,41 @@ public class JsonElementConversionFactory {
       return Schema.createUnion(Arrays.asList(firstSchema, secondSchema));
     }
   }
+
+  /**
+   * Read the value the {@link JsonParser} is positioned on as a {@link JsonElement}, leaving the parser on the last
+   * token of the value.
+   */
+  static JsonElement readJsonElement(JsonParser parser)
+      throws IOException {
+    switch (parser.getCurrentToken()) {
+      case START_OBJECT:
+        JsonObject object = new JsonObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String name = parser.getCurrentName();
+          parser.nextToken();
+          object.add(name, readJsonElement(parser));
+        }
+        return object;
+      case START_ARRAY:
+        JsonArray array = new JsonArray();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          array.add(readJsonElement(parser));
+        }
+        return array;
+      case VALUE_STRING:
+        return new JsonPrimitive(parser.getText());
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        return new JsonPrimitive(parser.getNumberValue());
+      case VALUE_TRUE:
+        return new JsonPrimitive(true);
+      case VALUE_FALSE:
+        return new JsonPrimitive(false);
+      case VALUE_NULL:
+        return JsonNull.INSTANCE;
+      default:
+        throw new JsonParseException("Unexpected token " + parser.getCurrentToken(), parser.getCurrentLocation());
+    }
+  }
 }
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.converter.avro;
+
+import java.io.InputStreamReader;
+import java.util.Iterator;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import org.apache.gobblin.configuration.ConfigurationKeys;
+import org.apache.gobblin.configuration.SourceState;
+import org.apache.gobblin.configuration.WorkUnitState;
+import org.apache.gobblin.converter.DataConversionException;
+import org.apache.gobblin.source.workunit.Extract;
+import org.apache.gobblin.source.workunit.WorkUnit;
+
+
+/**
+ * Unit test for {@link JsonBytesToAvroConverter}
+ */
+@Test(groups = {"gobblin.converter"})
+public class JsonBytesToAvroConverterTest {
+  private static final String SCHEMA =
+      "[{\"columnName\": \"id\", \"dataType\": {\"type\": \"long\"}, \"isNullable\": false},"
+          + "{\"columnName\": \"name\", \"dataType\": {\"type\": \"string\"}, \"isNullable\": true},"
+          + "{\"columnName\": \"tags\", \"dataType\": {\"type\": \"array\", \"items\": \"string\"},"
+          + " \"isNullable\": true}]";
+
+  private static WorkUnitState createState() {
+    WorkUnit workUnit = new WorkUnit(new SourceState(),
+        new Extract(new SourceState(), Extract.TableType.SNAPSHOT_ONLY, "namespace", "dummy_table"));
+    WorkUnitState state = new WorkUnitState(workUnit);
+    state.setProp(ConfigurationKeys.CONVERTER_AVRO_TIME_FORMAT, "HH:mm:ss");
+    state.setProp(ConfigurationKeys.CONVERTER_AVRO_DATE_TIMEZONE, "PST");
+    return state;
+  }
+
+  private static byte[] toBytes(String json) {
+    return json.getBytes(Charsets.UTF_8);
+  }
+
+  /**
+   * The streaming converter should produce the same schema and record as {@link JsonIntermediateToAvroConverter}.
+   */
+  private void compareWithJsonIntermediateConverter(String resourceFilePath)
+      throws Exception {
+    JsonObject testData = new Gson().fromJson(
+        new InputStreamReader(this.getClass().getResourceAsStream(resourceFilePath)), JsonObject.class);
+    JsonArray jsonSchema = testData.get("schema").getAsJsonArray();
+    JsonObject jsonRecord = testData.get("record").getAsJsonObject();
+    WorkUnitState state = createState();
+
+    JsonIntermediateToAvroConverter expectedConverter = new JsonIntermediateToAvroConverter();
+    Schema expectedSchema = expectedConverter.convertSchema(jsonSchema, state);
+    GenericRecord expectedRecord = expectedConverter.convertRecord(expectedSchema, jsonRecord, state).iterator().next();
+
+    JsonBytesToAvroConverter converter = new JsonBytesToAvroConverter();
+    Schema schema = converter.convertSchema(jsonSchema, state);
+    GenericRecord record = converter.convertRecord(schema, toBytes(jsonRecord.toString()), state).iterator().next();
+
+    Assert.assertEquals(schema, expectedSchema);
+    Assert.assertEquals(record.toString(), expectedRecord.toString());
+  }
+
+  @Test
+  public void testSameOutputAsJsonIntermediateConverter()
+      throws Exception {
+    compareWithJsonIntermediateConverter("/converter/schema.json");
+    compareWithJsonIntermediateConverter("/converter/complex1.json");
+    compareWithJsonIntermediateConverter("/converter/complex2.json");
+    compareWithJsonIntermediateConverter("/converter/complex3.json");
+  }
+
+  @Test
+  public void testReuseRecords()
+      throws Exception {
+    WorkUnitState state = createState();
+    state.setProp(JsonBytesToAvroConverter.CONVERTER_AVRO_JSON_REUSE_RECORDS_ENABLED, true);
+    JsonBytesToAvroConverter converter = new JsonBytesToAvroConverter();
+    Schema schema = converter.convertSchema(new Gson().fromJson(SCHEMA, JsonArray.class), state);
+
+    GenericRecord first = converter.convertRecord(schema,
+        toBytes("{\"id\": 1, \"name\": \"first\", \"tags\": [\"a\", \"b\"]}"), state).iterator().next();
+    Assert.assertEquals(first.get("id"), 1L);
+    Assert.assertEquals(first.get("tags").toString(), "[a, b]");
+
+    // Fields missing from the next record must not leak from the previous one
+    GenericRecord second = converter.convertRecord(schema, toBytes("{\"id\": \"2\", \"tags\": [\"c\"]}"), state)
+        .iterator().next();
+    Assert.assertSame(second, first);
+    Assert.assertEquals(second.get("id"), 2L);
+    Assert.assertNull(second.get("name"));
+    Assert.assertEquals(second.get("tags").toString(), "[c]");
+  }
+
+  @Test
+  public void testNestedValueInPrimitiveField()
+      throws Exception {
+    WorkUnitState state = createState();
+    state.setProp(ConfigurationKeys.CONVERTER_AVRO_MAX_CONVERSION_FAILURES, 2);
+    JsonArray jsonSchema = new Gson().fromJson(SCHEMA, JsonArray.class);
+    JsonBytesToAvroConverter converter = new JsonBytesToAvroConverter();
+    Schema schema = converter.convertSchema(jsonSchema, state);
+
+    // A single element array is read like the JsonElement path does, and the fields after it are still converted
+    JsonObject jsonRecord = new Gson().fromJson(
+        "{\"id\": 1, \"name\": [\"nested\"], \"tags\": [\"a\"]}", JsonObject.class);
+    JsonIntermediateToAvroConverter expectedConverter = new JsonIntermediateToAvroConverter();
+    Schema expectedSchema = expectedConverter.convertSchema(jsonSchema, state);
+    GenericRecord expected = expectedConverter.convertRecord(expectedSchema, jsonRecord, state).iterator().next();
+    GenericRecord record = converter.convertRecord(schema, toBytes(jsonRecord.toString()), state).iterator().next();
+    Assert.assertEquals(record.get("name").toString(), "nested");
+    Assert.assertEquals(record.get("tags").toString(), "[a]");
+    Assert.assertEquals(record.toString(), expected.toString());
+
+    // An object is not a string, so the record is dropped instead of converting the object's first token
+    Iterator<GenericRecord> records = converter.convertRecord(schema,
+        toBytes("{\"id\": 2, \"name\": {\"first\": \"x\"}, \"tags\": [\"b\"]}"), state).iterator();
+    Assert.assertFalse(records.hasNext());
+  }
+
+  @Test
+  public void testDropUnconvertibleRecords()
+      throws Exception {
+    WorkUnitState state = createState();
+    state.setProp(ConfigurationKeys.CONVERTER_AVRO_MAX_CONVERSION_FAILURES, 2);
+    JsonBytesToAvroConverter converter = new JsonBytesToAvroConverter();
+    Schema schema = converter.convertSchema(new Gson().fromJson(SCHEMA, JsonArray.class), state);
+
+    Iterator<GenericRecord> records = converter.convertRecord(schema, toBytes("{\"id\": null}"), state).iterator();
+    Assert.assertFalse(records.hasNext());
+
+    try {
+      converter.convertRecord(schema, toBytes("{\"id\": 1, \"unknown\": 1}"), state);
+      Assert.fail("Expected the second failure to exceed the maximum number of failed conversions");
+    } catch (DataConversionException e) {
+      // expected
+    }
+  }
+}
@@ -71,6 +71,12 @@ public class CopyConfiguration {
   public static final String BINPACKING_MAX_PER_BUCKET_PREFIX = COPY_PREFIX + ".binPacking.maxPerBucket";
   public static final String BUFFER_SIZE = COPY_PREFIX + ".bufferSize";
 
+  /**
+   * Maximum number of paths kept in each of the {@link CopyContext} metadata caches during copy planning.
+   */
+  public static final String COPY_CONTEXT_CACHE_MAX_SIZE = COPY_PREFIX + ".context.cacheMaxSize";
+  public static final long DEFAULT_COPY_CONTEXT_CACHE_MAX_SIZE = 10000;
+
   public static final String ABORT_ON_SINGLE_DATASET_FAILURE = COPY_PREFIX + ".abortOnSingleDatasetFailure";
 
   /*
@@ -122,7 +128,8 @@ public class CopyConfiguration {
       this.preserve = PreserveAttributes.fromMnemonicString(properties.getProperty(PRESERVE_ATTRIBUTES_KEY));
 
       this.publishDir = calculatePublishDir(targetFs, properties);
-      this.copyContext = new CopyContext();
+      this.copyContext = new CopyContext(PropertiesUtils.getPropAsLong(properties, COPY_CONTEXT_CACHE_MAX_SIZE,
+          DEFAULT_COPY_CONTEXT_CACHE_MAX_SIZE));
       this.targetFs = targetFs;
       if (properties.containsKey(PRIORITIZER_ALIAS_KEY)) {
         try {
@@ -30,9 +30,11 @@ import java.util.concurrent.Future;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicates;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -133,6 +135,7 @@ public class CopySource extends AbstractSource<String, FileAwareInputStream> {
   public final static boolean DEFAULT_SCHEMA_CHECK_ENABLED = false;
 
   private static final String WORK_UNIT_WEIGHT = CopyConfiguration.COPY_PREFIX + ".workUnitWeight";
+  private static final String COPY_CONTEXT_METRIC_PREFIX = CopyConfiguration.COPY_PREFIX + ".context";
   private final WorkUnitWeighter weighter = new FieldWeighter(WORK_UNIT_WEIGHT);
 
   public MetricContext metricContext;
@@ -253,6 +256,12 @@ public class CopySource extends AbstractSource<String, FileAwareInputStream> {
       log.info(String.format("Created %s workunits ", workUnitsMap.size()));
 
       copyConfiguration.getCopyContext().logCacheStatistics();
+      for (Map.Entry<String, CacheStats> cacheStats : copyConfiguration.getCopyContext().getCacheStats().entrySet()) {
+        this.metricContext.counter(MetricRegistry.name(COPY_CONTEXT_METRIC_PREFIX, cacheStats.getKey(), "hits"))
+            .inc(cacheStats.getValue().hitCount());
+        this.metricContext.counter(MetricRegistry.name(COPY_CONTEXT_METRIC_PREFIX, cacheStats.getKey(), "misses"))
+            .inc(cacheStats.getValue().missCount());
+      }
 
       if (state.contains(SIMULATE) && state.getPropAsBoolean(SIMULATE)) {
         log.info("Simulate mode enabled. Will not execute the copy.");
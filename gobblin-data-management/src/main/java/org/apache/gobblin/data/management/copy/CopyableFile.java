@@ -353,8 +353,9 @@ public class CopyableFile extends CopyEntity implements File {
           return ancestorOwnerAndPermissions;
         }
 
-        ancestorOwnerAndPermissions
-            .add(resolveReplicatedOwnerAndPermission(originFs, currentOriginPath, this.configuration));
+        final Path ancestorOriginPath = currentOriginPath;
+        ancestorOwnerAndPermissions.add(this.configuration.getCopyContext().getAncestorOwnerAndPermission(originFs,
+            ancestorOriginPath, () -> resolveReplicatedOwnerAndPermission(originFs, ancestorOriginPath, this.configuration)));
 
         currentOriginPath = currentOriginPath.getParent();
         currentTargetPath = currentTargetPath.getParent();
@@ -22,7 +22,7 @@ import org.apache.gobblin.data.management.retention.dataset.CleanableDataset;
 /**
  * Holds event names and constants used in events submitted by a retention job.
  */
-class RetentionEvents {
+public class RetentionEvents {
 
   /**
    * This event is submitted when {@link CleanableDataset#clean()} throws an exception
@@ -34,6 +34,30 @@ class RetentionEvents {
      */
     static final String FAILURE_CONTEXT_METADATA_KEY = "failureContext";
   }
+
+  /**
+   * Metrics of the bulk deletion of dataset versions, see
+   * {@link org.apache.gobblin.data.management.retention.dataset.BulkPathDeleter}
+   */
+  public static class BulkDeletion {
+    /**
+     * Meter of the paths deleted or moved to trash, whose rate is the deletion throughput
+     */
+    public static final String PATHS_DELETED = NAMESPACE + ".bulkDeletion.paths.deleted";
+    public static final String PATHS_FAILED = NAMESPACE + ".bulkDeletion.paths.failed";
+    /**
+     * Meter of the paths which were already gone when they were about to be deleted
+     */
+    public static final String PATHS_MISSING = NAMESPACE + ".bulkDeletion.paths.missing";
+    /**
+     * Meter of the file system calls (listings, renames, deletes...) issued by the deletions
+     */
+    public static final String FILE_SYSTEM_CALLS = NAMESPACE + ".bulkDeletion.fileSystemCalls";
+    /**
+     * Timer of the bulk deletions, one per batch of dataset versions
+     */
+    public static final String DURATION = NAMESPACE + ".bulkDeletion.duration";
+  }
   static final String NAMESPACE = "gobblin.data.management.retention";
   static final String DATASET_URN_METADATA_KEY = "datasetUrn";
 }
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.data.management.retention.dataset;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Optional;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+
+import lombok.AllArgsConstructor;
+
+import org.apache.gobblin.data.management.retention.RetentionEvents;
+import org.apache.gobblin.data.management.trash.ProxiedTrash;
+import org.apache.gobblin.data.management.trash.Trash;
+import org.apache.gobblin.metrics.MetricContext;
+import org.apache.gobblin.util.ExecutorsUtils;
+
+
+/**
+ * Deletes, or moves to trash, a large number of paths with few file system calls and bounded concurrency.
+ *
+ * <p>
+ *   Paths are grouped by parent. Each parent is listed once to find which paths still exist, and who owns them,
+ *   instead of checking every path. The existing paths are then moved to trash in batches of siblings with
+ *   {@link ProxiedTrash#moveSiblingsToTrashAsUser}, which prepares the trash directory of the parent once per batch.
+ *   Listings and batches run concurrently, but all the {@link BulkPathDeleter}s of a JVM working on the same file
+ *   system share at most {@code parallelism} concurrent operations, so that cleaning many datasets in parallel does
+ *   not overload a NameNode. The parallelism of the first deleter created for a file system is used.
+ * </p>
+ *
+ * <p>
+ *   Throughput and file system calls are reported through the {@link RetentionEvents.BulkDeletion} metrics.
+ * </p>
+ */
+public class BulkPathDeleter {
+
+  private static final ConcurrentMap<URI, Semaphore> FILE_SYSTEM_PERMITS = new ConcurrentHashMap<>();
+
+  private final FileSystem fs;
+  private final ProxiedTrash trash;
+  private final boolean deleteAsOwner;
+  private final int parallelism;
+  private final int batchSize;
+  private final Semaphore permits;
+  private final Logger log;
+
+  private final Meter pathsDeleted;
+  private final Meter pathsFailed;
+  private final Meter pathsMissing;
+  private final Meter fileSystemCalls;
+  private final Timer duration;
+
+  /**
+   * A batch of siblings to move to trash as the same user.
+   */
+  @AllArgsConstructor
+  private static class Batch {
+    private final Path parent;
+    private final String owner;
+    private final List<Path> paths;
+  }
+
+  public BulkPathDeleter(FileSystem fs, ProxiedTrash trash, boolean deleteAsOwner, int parallelism, int batchSize,
+      MetricContext metricContext, Logger log) {
+    this.fs = fs;
+    this.trash = trash;
+    this.deleteAsOwner = deleteAsOwner;
+    this.parallelism = parallelism;
+    this.batchSize = batchSize;
+    this.permits = FILE_SYSTEM_PERMITS.computeIfAbsent(fs.getUri(), uri -> new Semaphore(parallelism));
+    this.log = log;
+    this.pathsDeleted = metricContext.meter(RetentionEvents.BulkDeletion.PATHS_DELETED);
+    this.pathsFailed = metricContext.meter(RetentionEvents.BulkDeletion.PATHS_FAILED);
+    this.pathsMissing = metricContext.meter(RetentionEvents.BulkDeletion.PATHS_MISSING);
+    this.fileSystemCalls = metricContext.meter(RetentionEvents.BulkDeletion.FILE_SYSTEM_CALLS);
+    this.duration = metricContext.timer(RetentionEvents.BulkDeletion.DURATION);
+  }
+
+  /**
+   * Delete the given paths. Paths which do not exist are ignored, and failures to delete a path are logged without
+   * preventing the other paths from being deleted.
+   *
+   * @return the parents of the deleted paths, which may now be empty.
+   */
+  public Set<Path> delete(Collection<Path> paths) throws IOException {
+    ListMultimap<Path, Path> pathsByParent = ArrayListMultimap.create();
+    for (Path path : paths) {
+      pathsByParent.put(path.getParent(), path);
+    }
+    if (pathsByParent.isEmpty()) {
+      return new HashSet<>();
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.parallelism, pathsByParent.keySet().size()),
+        ExecutorsUtils.newThreadFactory(Optional.of(this.log), Optional.of("Bulk-path-deleter-%d")));
+    try (Timer.Context context = this.duration.time()) {
+      List<Future<List<Batch>>> listings = new ArrayList<>();
+      for (Path parent : pathsByParent.keySet()) {
+        List<Path> siblings = pathsByParent.get(parent);
+        listings.add(executor.submit(withPermit(() -> listExistingSiblings(parent, siblings))));
+      }
+
+      List<Future<Optional<Path>>> moves = new ArrayList<>();
+      for (Future<List<Batch>> listing : listings) {
+        for (Batch batch : getResult(listing)) {
+          moves.add(executor.submit(withPermit(() -> moveToTrash(batch))));
+        }
+      }
+
+      Set<Path> possiblyEmptyDirectories = new HashSet<>();
+      for (Future<Optional<Path>> move : moves) {
+        possiblyEmptyDirectories.addAll(getResult(move).asSet());
+      }
+      this.log.info(String.format("Cleaned %d paths in %d directories with %d batches", paths.size(),
+          pathsByParent.keySet().size(), moves.size()));
+      return possiblyEmptyDirectories;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * List the parent to find which of the siblings exist, and split them in batches by owner.
+   */
+  private List<Batch> listExistingSiblings(Path parent, List<Path> siblings) throws IOException {
+    Map<String, Path> siblingsByName = new HashMap<>();
+    for (Path sibling : siblings) {
+      siblingsByName.put(sibling.getName(), sibling);
+    }
+
+    FileStatus[] children;
+    try {
+      children = this.fs.listStatus(parent);
+    } catch (FileNotFoundException exception) {
+      children = new FileStatus[0];
+    }
+    this.fileSystemCalls.mark();
+
+    ListMultimap<String, Path> siblingsByOwner = LinkedListMultimap.create();
+    for (FileStatus child : children) {
+      Path sibling = siblingsByName.remove(child.getPath().getName());
+      if (sibling != null) {
+        siblingsByOwner.put(this.deleteAsOwner ? child.getOwner() : "", sibling);
+      }
+    }
+    for (Path missing : siblingsByName.values()) {
+      this.log.info(String.format("Path %s does not exist", missing));
+    }
+    this.pathsMissing.mark(siblingsByName.size());
+
+    List<Batch> batches = new ArrayList<>();
+    for (String owner : siblingsByOwner.keySet()) {
+      for (List<Path> batch : Lists.partition(siblingsByOwner.get(owner), this.batchSize)) {
+        batches.add(new Batch(parent, owner, batch));
+      }
+    }
+    return batches;
+  }
+
+  /**
+   * @return the parent of the batch if at least one path was moved
+   */
+  private Optional<Path> moveToTrash(Batch batch) {
+    List<Path> failedPaths;
+    try {
+      Trash.BatchMoveResult result = this.deleteAsOwner ? this.trash.moveSiblingsToTrashAsUser(batch.paths, batch.owner)
+          : this.trash.moveSiblingsToTrash(batch.paths);
+      this.fileSystemCalls.mark(result.getFileSystemCalls());
+      failedPaths = result.getFailedPaths();
+    } catch (IOException exception) {
+      this.log.error("Failed to delete paths in " + batch.parent, exception);
+      failedPaths = batch.paths;
+    }
+
+    for (Path failedPath : failedPaths) {
+      this.log.error("Failed to delete path " + failedPath);
+    }
+    this.pathsFailed.mark(failedPaths.size());
+    this.pathsDeleted.mark(batch.paths.size() - failedPaths.size());
+    return failedPaths.size() < batch.paths.size() ? Optional.of(batch.parent) : Optional.<Path>absent();
+  }
+
+  private <V> Callable<V> withPermit(Callable<V> callable) {
+    return () -> {
+      this.permits.acquire();
+      try {
+        return callable.call();
+      } finally {
+        this.permits.release();
+      }
+    };
+  }
+
+  private static <V> V getResult(Future<V> future) throws IOException {
+    try {
+      return future.get();
+    } catch (ExecutionException exception) {
+      throw new IOException("Failed to delete paths", exception.getCause());
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while deleting paths");
+    }
+  }
+}
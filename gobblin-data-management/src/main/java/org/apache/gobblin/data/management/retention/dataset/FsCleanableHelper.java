@@ -16,10 +16,14 @@
  */
 package org.apache.gobblin.data.management.retention.dataset;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Properties;
 import java.util.Set;
 
@@ -29,12 +33,15 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 
+import com.google.common.base.Optional;
 import com.typesafe.config.Config;
 
+import org.apache.gobblin.configuration.State;
 import org.apache.gobblin.data.management.trash.ProxiedTrash;
 import org.apache.gobblin.data.management.trash.TrashFactory;
 import org.apache.gobblin.data.management.version.FileSystemDatasetVersion;
 import org.apache.gobblin.dataset.FileSystemDataset;
+import org.apache.gobblin.instrumented.Instrumented;
 import org.apache.gobblin.util.PathUtils;
 
 /**
@@ -46,6 +53,8 @@ import org.apache.gobblin.util.PathUtils;
  * <li> Skip Trash - Delete permanent by setting {@value #SKIP_TRASH_KEY} to true.
  * <li> Auto delete empty parent directories - By setting {@value #DELETE_EMPTY_DIRECTORIES_KEY} to true.
  * <li> Proxy as owner and delete - By setting {@value #DELETE_AS_OWNER_KEY} to true.
+ * <li> Bulk deletion - Delete the paths of all deletable versions together with a {@link BulkPathDeleter} by setting
+ * {@value #BULK_DELETE_ENABLED_KEY} to true.
  * </ul>
  * </p>
  */
@@ -67,6 +76,21 @@ public class FsCleanableHelper {
   public static final String DELETE_AS_OWNER_KEY = CONFIGURATION_KEY_PREFIX + "delete.as.owner";
   public static final String DELETE_AS_OWNER_DEFAULT = Boolean.toString(true);
 
+  public static final String BULK_DELETE_ENABLED_KEY = CONFIGURATION_KEY_PREFIX + "bulk.delete.enabled";
+  public static final String BULK_DELETE_ENABLED_DEFAULT = Boolean.toString(false);
+
+  /**
+   * Maximum number of concurrent listings and batch deletions on a file system, across all datasets cleaned by the JVM
+   */
+  public static final String BULK_DELETE_PARALLELISM_KEY = CONFIGURATION_KEY_PREFIX + "bulk.delete.parallelism";
+  public static final String BULK_DELETE_PARALLELISM_DEFAULT = Integer.toString(20);
+
+  /**
+   * Maximum number of sibling paths moved to trash in one batch
+   */
+  public static final String BULK_DELETE_BATCH_SIZE_KEY = CONFIGURATION_KEY_PREFIX + "bulk.delete.batch.size";
+  public static final String BULK_DELETE_BATCH_SIZE_DEFAULT = Integer.toString(1000);
+
   protected final FileSystem fs;
   @Getter
   protected final ProxiedTrash trash;
@@ -74,6 +98,7 @@ public class FsCleanableHelper {
   protected final boolean skipTrash;
   protected final boolean deleteEmptyDirectories;
   protected final boolean deleteAsOwner;
+  protected final Optional<BulkPathDeleter> bulkPathDeleter;
   protected final Logger log;
 
   public FsCleanableHelper(FileSystem fs, Properties properties, boolean simulate, boolean skipTrash, boolean deleteEmptyDirectories, boolean deleteAsOwner,
@@ -93,6 +118,14 @@ public class FsCleanableHelper {
     }
     this.trash = TrashFactory.createProxiedTrash(this.fs, thisProperties);
     this.deleteAsOwner = deleteAsOwner;
+    if (Boolean.valueOf(properties.getProperty(BULK_DELETE_ENABLED_KEY, BULK_DELETE_ENABLED_DEFAULT))) {
+      this.bulkPathDeleter = Optional.of(new BulkPathDeleter(this.fs, this.trash, this.deleteAsOwner,
+          Integer.parseInt(properties.getProperty(BULK_DELETE_PARALLELISM_KEY, BULK_DELETE_PARALLELISM_DEFAULT)),
+          Integer.parseInt(properties.getProperty(BULK_DELETE_BATCH_SIZE_KEY, BULK_DELETE_BATCH_SIZE_DEFAULT)),
+          Instrumented.getMetricContext(new State(properties), FsCleanableHelper.class), log));
+    } else {
+      this.bulkPathDeleter = Optional.absent();
+    }
   }
 
   public FsCleanableHelper(final FileSystem fs, final Properties props, Config config, Logger log) throws IOException {
@@ -148,19 +181,63 @@ public class FsCleanableHelper {
       return;
     }
     Set<Path> possiblyEmptyDirectories = new HashSet<>();
-    for (FileSystemDatasetVersion fsdv : deletableVersions) {
-      clean(fsdv, possiblyEmptyDirectories);
+    if (this.bulkPathDeleter.isPresent()) {
+      List<Path> pathsToDelete = new ArrayList<>();
+      for (FileSystemDatasetVersion fsdv : deletableVersions) {
+        pathsToDelete.addAll(fsdv.getPaths());
+      }
+      log.info(String.format("Deleting %d paths of %d dataset versions of %s", pathsToDelete.size(),
+          deletableVersions.size(), fsDataset.datasetRoot()));
+      possiblyEmptyDirectories.addAll(this.bulkPathDeleter.get().delete(pathsToDelete));
+    } else {
+      for (FileSystemDatasetVersion fsdv : deletableVersions) {
+        clean(fsdv, possiblyEmptyDirectories);
+      }
     }
     cleanEmptyDirectories(possiblyEmptyDirectories, fsDataset);
   }
 
   /**
    * Deletes any empty paths in <code>possiblyEmptyDirectories</code> all the way upto the {@link FileSystemDataset#datasetRoot()}.
+   *
+   * <p>
+   * Directories are visited in a single bottom-up pass, deepest first, so that each directory is listed at most once
+   * even when it is the ancestor of many deleted paths.
+   * </p>
    */
   public void cleanEmptyDirectories(final Set<Path> possiblyEmptyDirectories, final FileSystemDataset fsDataset) throws IOException {
-    if (this.deleteEmptyDirectories && !this.simulate) {
-      for (Path parentDirectory : possiblyEmptyDirectories) {
-        PathUtils.deleteEmptyParentDirectories(fs, fsDataset.datasetRoot(), parentDirectory);
+    if (!this.deleteEmptyDirectories || this.simulate) {
+      return;
+    }
+
+    Path datasetRoot = fsDataset.datasetRoot();
+    Set<Path> visited = new HashSet<>(possiblyEmptyDirectories);
+    PriorityQueue<Path> pending = new PriorityQueue<>(Math.max(1, visited.size()),
+        (path1, path2) -> Integer.compare(path2.depth(), path1.depth()));
+    pending.addAll(visited);
+
+    while (!pending.isEmpty()) {
+      Path directory = pending.poll();
+      if (!PathUtils.isAncestor(datasetRoot, directory)
+          || PathUtils.compareWithoutSchemeAndAuthority(datasetRoot, directory)) {
+        continue;
+      }
+      try {
+        if (this.fs.listStatus(directory).length > 0) {
+          continue;
+        }
+      } catch (FileNotFoundException exception) {
+        continue;
+      }
+
+      if (this.fs.delete(directory, false)) {
+        log.info("Deleted empty directory " + directory);
+        Path parent = directory.getParent();
+        if (parent != null && visited.add(parent)) {
+          pending.add(parent);
+        }
+      } else {
+        log.warn("Failed to delete empty directory " + directory);
       }
     }
   }
@@ -23,6 +23,7 @@ import org.apache.gobblin.util.executors.ScalingThreadPoolExecutor;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Properties;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
@@ -50,6 +51,10 @@ import com.google.common.util.concurrent.MoreExecutors;
  * </p>
  *
  * <p>
+ *   Paths with the same parent can be moved as a single batch operation, see {@link Trash#moveSiblingsToTrash}.
+ * </p>
+ *
+ * <p>
  *   Trash methods will always return true, regardless of success of the actual trash operation. However, additional
  *   methods are provided to get a future for the operation.
  * </p>
@@ -140,6 +145,36 @@ public class AsyncTrash implements GobblinProxiedTrash, Closeable, Decorator {
     });
   }
 
+  /**
+   * Schedules a {@link ProxiedTrash#moveSiblingsToTrashAsUser} and returns a future for this operation.
+   * @param siblings {@link Path}s with the same parent to delete.
+   * @param user User to execute the operation as.
+   * @return the paths which failed to move and the number of file system calls issued.
+   */
+  public ListenableFuture<Trash.BatchMoveResult> moveSiblingsToTrashAsUserFuture(final Collection<Path> siblings,
+      final String user) {
+    return this.executor.submit(new Callable<Trash.BatchMoveResult>() {
+      @Override
+      public Trash.BatchMoveResult call() throws IOException {
+        return AsyncTrash.this.innerTrash.moveSiblingsToTrashAsUser(siblings, user);
+      }
+    });
+  }
+
+  /**
+   * Schedules a {@link ProxiedTrash#moveSiblingsToTrash} and returns a future for this operation.
+   * @param siblings {@link Path}s with the same parent to delete.
+   * @return the paths which failed to move and the number of file system calls issued.
+   */
+  public ListenableFuture<Trash.BatchMoveResult> moveSiblingsToTrashFuture(final Collection<Path> siblings) {
+    return this.executor.submit(new Callable<Trash.BatchMoveResult>() {
+      @Override
+      public Trash.BatchMoveResult call() throws IOException {
+        return AsyncTrash.this.innerTrash.moveSiblingsToTrash(siblings);
+      }
+    });
+  }
+
   @Override
   public Object getDecoratedObject() {
     return this.innerTrash;
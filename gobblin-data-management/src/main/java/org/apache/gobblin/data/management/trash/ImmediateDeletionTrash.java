@@ -18,6 +18,9 @@
 package org.apache.gobblin.data.management.trash;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
 
 import org.apache.hadoop.fs.FileSystem;
@@ -51,6 +54,18 @@ public class ImmediateDeletionTrash extends ProxiedTrash {
     return this.fs.delete(path, true);
   }
 
+  @Override
+  public BatchMoveResult moveSiblingsToTrash(Collection<Path> siblings)
+      throws IOException {
+    List<Path> failedPaths = new ArrayList<>();
+    for (Path path : siblings) {
+      if (!this.fs.delete(path, true)) {
+        failedPaths.add(path);
+      }
+    }
+    return new BatchMoveResult(failedPaths, siblings.size());
+  }
+
   @Override
   protected void ensureTrashLocationExists(FileSystem fs, Path trashLocation)
       throws IOException {
@@ -18,6 +18,8 @@
 package org.apache.gobblin.data.management.trash;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Properties;
 
@@ -49,6 +51,18 @@ public class MockTrash extends ProxiedTrash {
     return true;
   }
 
+  @Override
+  public BatchMoveResult moveSiblingsToTrash(Collection<Path> siblings)
+      throws IOException {
+    List<Path> failedPaths = new ArrayList<>();
+    for (Path path : siblings) {
+      if (!moveToTrash(path)) {
+        failedPaths.add(path);
+      }
+    }
+    return new BatchMoveResult(failedPaths, 0);
+  }
+
   @Override
   public void createTrashSnapshot()
       throws IOException {
@@ -18,6 +18,7 @@
 package org.apache.gobblin.data.management.trash;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.Callable;
@@ -71,6 +72,17 @@ public class ProxiedTrash extends Trash implements GobblinProxiedTrash {
     return getUserTrash(user).moveToTrash(path);
   }
 
+  /**
+   * Move paths with the same parent to trash as specified user, see {@link Trash#moveSiblingsToTrash(Collection)}.
+   * @param siblings {@link org.apache.hadoop.fs.Path}s with the same parent to move.
+   * @param user User to move the paths as.
+   * @return the paths which failed to move and the number of file system calls issued.
+   * @throws IOException
+   */
+  public BatchMoveResult moveSiblingsToTrashAsUser(Collection<Path> siblings, final String user) throws IOException {
+    return getUserTrash(user).moveSiblingsToTrash(siblings);
+  }
+
   /**
    * Move the path to trash as the owner of the path.
    * @param path {@link org.apache.hadoop.fs.Path} to move.
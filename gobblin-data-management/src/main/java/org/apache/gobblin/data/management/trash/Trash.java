@@ -18,11 +18,15 @@
 package org.apache.gobblin.data.management.trash;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
 import org.apache.gobblin.util.reflection.GobblinConstructorUtils;
 import org.apache.hadoop.fs.FileStatus;
@@ -39,6 +43,8 @@ import org.joda.time.format.DateTimeFormatter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
+
 import org.apache.gobblin.util.PathUtils;
 
 
@@ -197,6 +203,63 @@ public class Trash implements GobblinTrash {
     return this.fs.rename(fullyResolvedPath, targetPathInTrash);
   }
 
+  /**
+   * Move paths with the same parent to trash. Unlike calling {@link #moveToTrash(Path)} for each path, the trash
+   * directory of the parent is checked or created, and listed for name conflicts, only once for all the paths. A
+   * path which fails to move does not prevent the other ones from being moved.
+   *
+   * <p>
+   *   Subclasses overriding {@link #moveToTrash(Path)} should also override this method.
+   * </p>
+   *
+   * @param siblings {@link org.apache.hadoop.fs.Path}s with the same parent to move to trash.
+   * @return the paths which failed to move and the number of file system calls issued.
+   * @throws IOException if the trash directory of the parent cannot be prepared.
+   */
+  public BatchMoveResult moveSiblingsToTrash(Collection<Path> siblings) throws IOException {
+    if (siblings.isEmpty()) {
+      return new BatchMoveResult(Collections.<Path>emptyList(), 0);
+    }
+    Path parent = null;
+    for (Path path : siblings) {
+      Path fullyResolvedPath = path.isAbsolute() ? path : new Path(this.fs.getWorkingDirectory(), path);
+      Preconditions.checkArgument(parent == null || parent.equals(fullyResolvedPath.getParent()),
+          "%s does not have the same parent as the other paths", path);
+      parent = fullyResolvedPath.getParent();
+    }
+
+    Path parentInTrash = PathUtils.mergePaths(this.trashLocation, parent);
+    int fileSystemCalls = 2;
+    Set<String> namesInTrash = new HashSet<>();
+    if (this.fs.exists(parentInTrash)) {
+      for (FileStatus fileStatus : this.fs.listStatus(parentInTrash)) {
+        namesInTrash.add(fileStatus.getPath().getName());
+      }
+    } else {
+      this.fs.mkdirs(parentInTrash);
+    }
+
+    List<Path> failedPaths = new ArrayList<>();
+    for (Path path : siblings) {
+      Path fullyResolvedPath = path.isAbsolute() ? path : new Path(this.fs.getWorkingDirectory(), path);
+      Path targetPathInTrash = new Path(parentInTrash, fullyResolvedPath.getName());
+      if (namesInTrash.contains(targetPathInTrash.getName())) {
+        targetPathInTrash = targetPathInTrash.suffix("_" + System.currentTimeMillis());
+      }
+      fileSystemCalls++;
+      try {
+        if (!this.fs.rename(fullyResolvedPath, targetPathInTrash)) {
+          LOG.error("Failed to move " + path + " to trash.");
+          failedPaths.add(path);
+        }
+      } catch (IOException exception) {
+        LOG.error("Failed to move " + path + " to trash.", exception);
+        failedPaths.add(path);
+      }
+    }
+    return new BatchMoveResult(failedPaths, fileSystemCalls);
+  }
+
   /**
    * Moves all current contents of trash directory into a snapshot directory with current timestamp.
    * @throws IOException
@@ -290,6 +353,33 @@ public class Trash implements GobblinTrash {
     LOG.info(String.format("Deleted %d out of %d existing snapshots.", snapshotsDeleted, totalSnapshots));
   }
 
+  /**
+   * Result of {@link #moveSiblingsToTrash(Collection)}.
+   */
+  public static class BatchMoveResult {
+    private final List<Path> failedPaths;
+    private final int fileSystemCalls;
+
+    public BatchMoveResult(List<Path> failedPaths, int fileSystemCalls) {
+      this.failedPaths = failedPaths;
+      this.fileSystemCalls = fileSystemCalls;
+    }
+
+    /**
+     * @return the paths which were not moved.
+     */
+    public List<Path> getFailedPaths() {
+      return this.failedPaths;
+    }
+
+    /**
+     * @return the number of calls issued to the file system.
+     */
+    public int getFileSystemCalls() {
+      return this.fileSystemCalls;
+    }
+  }
+
   /**
    * Safe creation of trash folder to ensure thread-safe.
    * @throws IOException
@@ -16,6 +16,7 @@
  */
 package org.apache.gobblin.data.management.copy;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -26,6 +27,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.AclStatus;
 import org.apache.hadoop.fs.permission.FsPermission;
 import org.mockito.Mockito;
 import org.testng.Assert;
@@ -297,4 +299,38 @@ public class CopyableFileTest {
     Assert.assertEquals(ownerAndPermission.getFsPermission(), FsPermission.getDefault());
 
   }
+
+  @Test
+  public void testAncestorOwnerAndPermissionIsResolvedOncePerDirectory() throws Exception {
+    FileSystem originFs = mock(FileSystem.class);
+    FileSystem targetFs = mock(FileSystem.class);
+    Mockito.doAnswer(invocation -> invocation.getArgument(0)).when(originFs).makeQualified(Mockito.any(Path.class));
+    Mockito.doAnswer(invocation -> invocation.getArgument(0)).when(targetFs).makeQualified(Mockito.any(Path.class));
+    Mockito.doThrow(new FileNotFoundException()).when(targetFs).getFileStatus(Mockito.any(Path.class));
+    Mockito.doAnswer(invocation -> new FileStatus(0, true, 0, 0, 0, 0, FsPermission.getDefault(), "owner", "group",
+        invocation.getArgument(0))).when(originFs).getFileStatus(Mockito.any(Path.class));
+    Mockito.doReturn(new AclStatus.Builder().owner("owner").group("group").build())
+        .when(originFs).getAclStatus(Mockito.any(Path.class));
+
+    Properties properties = new Properties();
+    properties.setProperty(ConfigurationKeys.DATA_PUBLISHER_FINAL_DIR, "/publisher");
+    CopyConfiguration copyConfiguration = CopyConfiguration.builder(targetFs, properties)
+        .preserve(PreserveAttributes.fromMnemonicString("ugpa")).build();
+
+    Path ancestor = new Path("/data/source/dir");
+    for (String fileName : ImmutableList.of("file1", "file2", "file3")) {
+      FileStatus origin = new FileStatus(0L, false, 0, 0L, 0L, new Path(ancestor, fileName));
+      CopyableFile copyableFile = CopyableFile.fromOriginAndDestination(originFs, origin,
+          new Path("/publisher/source/dir", fileName), copyConfiguration).build();
+      // "dir" and "source" are replicated, "data" does not match "publisher"
+      Assert.assertEquals(copyableFile.getAncestorsOwnerAndPermission().size(), 2);
+      Assert.assertEquals(copyableFile.getAncestorsOwnerAndPermission().get(0).getOwner(), "owner");
+    }
+
+    Mockito.verify(originFs, Mockito.times(1)).getFileStatus(ancestor);
+    Mockito.verify(originFs, Mockito.times(1)).getAclStatus(ancestor);
+    Mockito.verify(originFs, Mockito.times(1)).getAclStatus(ancestor.getParent());
+    Assert.assertEquals(
+        copyConfiguration.getCopyContext().getCacheStats().get("ancestorOwnerAndPermissionCache").hitCount(), 4);
+  }
 }
@@ -130,6 +130,53 @@ public class FsCleanableHelperTest {
     Assert.assertTrue(this.fs.exists(notDeleted1.getParent()));
   }
 
+  @Test
+  public void testBulkDeleteEmptyDirs() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(FsCleanableHelper.SKIP_TRASH_KEY, Boolean.toString(true));
+    props.setProperty(FsCleanableHelper.BULK_DELETE_ENABLED_KEY, Boolean.toString(true));
+    props.setProperty(FsCleanableHelper.BULK_DELETE_BATCH_SIZE_KEY, Integer.toString(1));
+    FsCleanableHelper fsCleanableHelper = new FsCleanableHelper(this.fs, props, ConfigFactory.empty(), log);
+    FileSystemDataset fsDataset = mock(FileSystemDataset.class);
+    Path datasetRoot = new Path(testTempPath, "dataset2");
+    when(fsDataset.datasetRoot()).thenReturn(datasetRoot);
+
+    // To delete
+    Path deleted1 = new Path(datasetRoot, "2016/01/01/13");
+    Path deleted2 = new Path(datasetRoot, "2016/01/01/14");
+    Path deleted3 = new Path(datasetRoot, "2016/01/02/15");
+    Path missing = new Path(datasetRoot, "2016/01/03/16");
+
+    // Do not delete
+    Path notDeleted1 = new Path(datasetRoot, "2016/01/02/16");
+
+    this.fs.mkdirs(deleted1);
+    this.fs.mkdirs(deleted2);
+    this.fs.mkdirs(deleted3);
+    this.fs.mkdirs(notDeleted1);
+
+    List<FileSystemDatasetVersion> deletableVersions = ImmutableList.<FileSystemDatasetVersion> of(
+            new MockFileSystemDatasetVersion(deleted1),
+            new MockFileSystemDatasetVersion(deleted2),
+            new MockFileSystemDatasetVersion(deleted3),
+            new MockFileSystemDatasetVersion(missing));
+
+    fsCleanableHelper.clean(deletableVersions, fsDataset);
+
+    // Verify versions are deleted
+    Assert.assertFalse(this.fs.exists(deleted1));
+    Assert.assertFalse(this.fs.exists(deleted2));
+    Assert.assertFalse(this.fs.exists(deleted3));
+
+    // Verify versions are not deleted
+    Assert.assertTrue(this.fs.exists(notDeleted1));
+
+    // Verify empty parent dirs are deleted up to the dataset root
+    Assert.assertFalse(this.fs.exists(deleted1.getParent()));
+    Assert.assertTrue(this.fs.exists(notDeleted1.getParent()));
+    Assert.assertTrue(this.fs.exists(datasetRoot));
+  }
+
   @AllArgsConstructor
   private static class MockFileSystemDatasetVersion implements FileSystemDatasetVersion {
 
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Throughput and ratio of the compression {@link StreamCodec}s on 8MB of JSON-like records.
+ *
+ * The ratio is reported through the inputBytes and compressedBytes counters of the compress benchmark: their
+ * quotient is the compression ratio of the codec.
+ */
+@Fork(3)
+public class CompressionBenchmark {
+  @State(value = Scope.Benchmark)
+  public static class CompressionBenchmarkState {
+    @Param({"gzip", "lz4", "lz4hc", "snappy", "zstd", "zstd-mt"})
+    public String codecName;
+
+    public byte[] data;
+
+    public byte[] compressed;
+
+    public StreamCodec codec;
+
+    @Setup
+    public void setup() throws IOException {
+      data = generateRecords(8 * 1024 * 1024);
+      switch (codecName) {
+        case "gzip":
+          codec = new GzipCodec();
+          break;
+        case "lz4":
+          codec = new Lz4Codec();
+          break;
+        case "lz4hc":
+          codec = new Lz4Codec(9);
+          break;
+        case "snappy":
+          codec = new SnappyCodec();
+          break;
+        case "zstd":
+          codec = new ZstdCodec();
+          break;
+        case "zstd-mt":
+          codec = new ZstdCodec(ZstdCodec.DEFAULT_LEVEL, 4, null);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown codec " + codecName);
+      }
+      compressed = compress(codec, data);
+    }
+  }
+
+  @State(value = Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class RatioCounters {
+    public long inputBytes;
+
+    public long compressedBytes;
+  }
+
+  @Benchmark
+  public byte[] compress(CompressionBenchmarkState state, RatioCounters counters) throws IOException {
+    byte[] compressed = compress(state.codec, state.data);
+    counters.inputBytes += state.data.length;
+    counters.compressedBytes += compressed.length;
+    return compressed;
+  }
+
+  @Benchmark
+  public long decompress(CompressionBenchmarkState state) throws IOException {
+    byte[] buffer = new byte[64 * 1024];
+    long total = 0;
+    try (InputStream is = state.codec.decodeInputStream(new ByteArrayInputStream(state.compressed))) {
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        total += read;
+      }
+    }
+    return total;
+  }
+
+  private static byte[] compress(StreamCodec codec, byte[] data) throws IOException {
+    ByteArrayOutputStream sink = new ByteArrayOutputStream(data.length / 2);
+    try (OutputStream os = codec.encodeOutputStream(sink)) {
+      os.write(data);
+    }
+    return sink.toByteArray();
+  }
+
+  private static byte[] generateRecords(int size) {
+    Random random = new Random(0);
+    StringBuilder sb = new StringBuilder(size + 128);
+    for (int i = 0; sb.length() < size; i++) {
+      sb.append("{\"id\": ").append(i).append(", \"name\": \"record-").append(random.nextInt(1000))
+          .append("\", \"value\": ").append(random.nextDouble()).append("}\n");
+    }
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.xxhash.XXHash32;
+import net.jpountz.xxhash.XXHashFactory;
+
+
+/**
+ * Implement LZ4 frame format compression and decompression.
+ *
+ * The compressor, decompressor and checksum instances are stateless and shared by all streams of a codec; each
+ * stream only allocates its block buffers. A level of 0 uses the fast compressor, higher levels (up to 17) use LZ4HC,
+ * which compresses better at a lower speed. Decompression speed is the same for both.
+ *
+ * Each encoding stream holds two buffers of the block size (the uncompressed block and its compressed copy), and each
+ * decoding stream holds buffers of the block size recorded in the frame. The default of 64KB keeps that at about
+ * 128KB per stream, which matters when a writer keeps many streams open at once. Larger blocks give a slightly better
+ * compression ratio on large, repetitive inputs, at the cost of proportionally more heap per stream.
+ */
+public class Lz4Codec implements StreamCodec {
+  public static final String TAG = "lz4";
+  public static final int DEFAULT_LEVEL = 0;
+  public static final LZ4FrameOutputStream.BLOCKSIZE DEFAULT_BLOCK_SIZE = LZ4FrameOutputStream.BLOCKSIZE.SIZE_64KB;
+
+  private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+  private static final XXHash32 XXHASH = XXHashFactory.fastestInstance().hash32();
+
+  private final LZ4Compressor compressor;
+  private final LZ4FrameOutputStream.BLOCKSIZE blockSize;
+
+  public Lz4Codec() {
+    this(DEFAULT_LEVEL);
+  }
+
+  public Lz4Codec(int level) {
+    this(level, DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * @param level 0 for the fast compressor, 1-17 for LZ4HC
+   * @param blockSize Size of the independently compressed blocks of a frame
+   */
+  public Lz4Codec(int level, LZ4FrameOutputStream.BLOCKSIZE blockSize) {
+    this.compressor = level <= 0 ? LZ4_FACTORY.fastCompressor() : LZ4_FACTORY.highCompressor(level);
+    this.blockSize = blockSize;
+  }
+
+  @Override
+  public OutputStream encodeOutputStream(OutputStream origStream)
+      throws IOException {
+    return new LZ4FrameOutputStream(origStream, this.blockSize, -1L, this.compressor, XXHASH,
+        LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE);
+  }
+
+  @Override
+  public InputStream decodeInputStream(InputStream origStream)
+      throws IOException {
+    return new LZ4FrameInputStream(origStream, LZ4_FACTORY.safeDecompressor(), XXHASH);
+  }
+
+  @Override
+  public String getTag() {
+    return TAG;
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.xerial.snappy.SnappyFramedInputStream;
+import org.xerial.snappy.SnappyFramedOutputStream;
+import org.xerial.snappy.pool.BufferPool;
+import org.xerial.snappy.pool.DefaultPoolFactory;
+
+
+/**
+ * Implement Snappy framing format compression and decompression.
+ *
+ * Block buffers, including the direct buffers handed to the native compressor, are borrowed from snappy-java's
+ * shared {@link BufferPool} and returned when a stream is closed, so opening many short-lived streams does not
+ * reallocate them.
+ */
+public class SnappyCodec implements StreamCodec {
+  public static final String TAG = "snappy";
+
+  private final int blockSize;
+  private final BufferPool bufferPool;
+
+  public SnappyCodec() {
+    this(SnappyFramedOutputStream.DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * @param blockSize Maximum number of uncompressed bytes in a frame chunk, at most 64KB
+   */
+  public SnappyCodec(int blockSize) {
+    this.blockSize = blockSize;
+    this.bufferPool = DefaultPoolFactory.getDefaultPool();
+  }
+
+  @Override
+  public OutputStream encodeOutputStream(OutputStream origStream)
+      throws IOException {
+    return new SnappyFramedOutputStream(origStream, this.blockSize,
+        SnappyFramedOutputStream.DEFAULT_MIN_COMPRESSION_RATIO, this.bufferPool);
+  }
+
+  @Override
+  public InputStream decodeInputStream(InputStream origStream)
+      throws IOException {
+    return new SnappyFramedInputStream(origStream, this.bufferPool);
+  }
+
+  @Override
+  public String getTag() {
+    return TAG;
+  }
+}
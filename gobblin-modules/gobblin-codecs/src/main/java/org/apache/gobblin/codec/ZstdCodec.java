@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.github.luben.zstd.BufferPool;
+import com.github.luben.zstd.RecyclingBufferPool;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+
+/**
+ * Implement Zstandard compression and decompression.
+ *
+ * Supported options:
+ * - level: compression level, from 1 (fastest) to 22 (smallest output); negative levels trade ratio for more speed
+ * - workers: number of background threads compressing a single stream; 0 compresses on the writing thread. Worth
+ *   enabling only for large streams since each worker compresses its own job of several MBs
+ * - dictionary: a dictionary trained with `zstd --train` on samples of the data. It greatly improves the ratio of
+ *   small records and has to be given when decoding as well. It is digested once per codec.
+ *
+ * Stream buffers are borrowed from zstd-jni's {@link RecyclingBufferPool} and returned when a stream is closed.
+ */
+public class ZstdCodec implements StreamCodec {
+  public static final String TAG = "zstd";
+  public static final int DEFAULT_LEVEL = 3;
+  public static final int DEFAULT_WORKERS = 0;
+
+  private static final BufferPool BUFFER_POOL = RecyclingBufferPool.INSTANCE;
+
+  private final int level;
+  private final int workers;
+  private final ZstdDictCompress compressDictionary;
+  private final ZstdDictDecompress decompressDictionary;
+
+  public ZstdCodec() {
+    this(DEFAULT_LEVEL);
+  }
+
+  public ZstdCodec(int level) {
+    this(level, DEFAULT_WORKERS, null);
+  }
+
+  /**
+   * @param level Compression level
+   * @param workers Number of background compression threads per stream, 0 to disable
+   * @param dictionary Raw or trained dictionary, null for none
+   */
+  public ZstdCodec(int level, int workers, byte[] dictionary) {
+    if (workers < 0) {
+      throw new IllegalArgumentException("Number of zstd workers must not be negative");
+    }
+    this.level = level;
+    this.workers = workers;
+    this.compressDictionary = dictionary == null ? null : new ZstdDictCompress(dictionary, level);
+    this.decompressDictionary = dictionary == null ? null : new ZstdDictDecompress(dictionary);
+  }
+
+  @Override
+  public OutputStream encodeOutputStream(OutputStream origStream)
+      throws IOException {
+    ZstdOutputStream zstdStream = new ZstdOutputStream(origStream, BUFFER_POOL);
+    zstdStream.setLevel(this.level);
+    if (this.workers > 0) {
+      zstdStream.setWorkers(this.workers);
+    }
+    if (this.compressDictionary != null) {
+      zstdStream.setDict(this.compressDictionary);
+    }
+    return zstdStream;
+  }
+
+  @Override
+  public InputStream decodeInputStream(InputStream origStream)
+      throws IOException {
+    ZstdInputStream zstdStream = new ZstdInputStream(origStream, BUFFER_POOL);
+    if (this.decompressDictionary != null) {
+      zstdStream.setDict(this.decompressDictionary);
+    }
+    return zstdStream;
+  }
+
+  @Override
+  public String getTag() {
+    return TAG;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+
+public class CompressionCodecTest {
+
+  @DataProvider
+  public Object[][] codecs() {
+    return new Object[][] {
+        { new GzipCodec() },
+        { new Lz4Codec() },
+        { new Lz4Codec(9) },
+        { new Lz4Codec(0, LZ4FrameOutputStream.BLOCKSIZE.SIZE_4MB) },
+        { new SnappyCodec() },
+        { new ZstdCodec() },
+        { new ZstdCodec(1, 2, null) },
+        { new ZstdCodec(3, 0, "{\"id\": , \"name\": \"record-\", \"value\": }".getBytes(StandardCharsets.UTF_8)) }
+    };
+  }
+
+  @Test(dataProvider = "codecs")
+  public void testRoundTrip(StreamCodec codec) throws IOException {
+    byte[] data = generateRecords(10000);
+    byte[] compressed = encode(codec, data);
+
+    Assert.assertTrue(compressed.length < data.length, codec.getTag() + " did not compress repetitive data");
+    Assert.assertEquals(decode(codec, compressed), data);
+  }
+
+  @Test(dataProvider = "codecs")
+  public void testEmptyStream(StreamCodec codec) throws IOException {
+    Assert.assertEquals(decode(codec, encode(codec, new byte[0])), new byte[0]);
+  }
+
+  @Test(dataProvider = "codecs")
+  public void testSmallWrites(StreamCodec codec) throws IOException {
+    byte[] data = generateRecords(100);
+
+    ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    try (OutputStream os = codec.encodeOutputStream(sink)) {
+      for (byte b : data) {
+        os.write(b);
+      }
+    }
+
+    Assert.assertEquals(decode(codec, sink.toByteArray()), data);
+  }
+
+  @Test
+  public void testZstdDictionaryIsRequiredToDecode() throws IOException {
+    byte[] dictionary = generateRecords(50);
+    byte[] data = generateRecords(10);
+    byte[] compressed = encode(new ZstdCodec(3, 0, dictionary), data);
+
+    Assert.assertEquals(decode(new ZstdCodec(3, 0, dictionary), compressed), data);
+    try {
+      decode(new ZstdCodec(), compressed);
+      Assert.fail("Expected decoding without the dictionary to fail");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  static byte[] generateRecords(int numRecords) {
+    Random random = new Random(numRecords);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < numRecords; i++) {
+      sb.append("{\"id\": ").append(i).append(", \"name\": \"record-").append(random.nextInt(1000))
+          .append("\", \"value\": ").append(random.nextDouble()).append("}\n");
+    }
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] encode(StreamCodec codec, byte[] data) throws IOException {
+    ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    try (OutputStream os = codec.encodeOutputStream(sink)) {
+      os.write(data);
+    }
+    return sink.toByteArray();
+  }
+
+  private static byte[] decode(StreamCodec codec, byte[] compressed) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    try (InputStream is = codec.decodeInputStream(new ByteArrayInputStream(compressed))) {
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.couchbase.writer;
+
+import com.couchbase.client.core.BackpressureException;
+import com.couchbase.client.core.time.Delay;
+import com.couchbase.client.java.document.AbstractDocument;
+import com.couchbase.client.java.env.CouchbaseEnvironment;
+import com.couchbase.client.java.error.TemporaryFailureException;
+import com.couchbase.client.java.util.retry.RetryBuilder;
+import com.couchbase.client.java.util.retry.RetryWhenFunction;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.typesafe.config.Config;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.gobblin.couchbase.common.TupleDocument;
+import org.apache.gobblin.source.extractor.DataRecordException;
+import org.apache.gobblin.util.ConfigUtils;
+import org.apache.gobblin.util.ExecutorsUtils;
+import org.apache.gobblin.writer.GenericWriteResponse;
+import org.apache.gobblin.writer.WriteCallback;
+import org.apache.gobblin.writer.WriteResponse;
+import rx.Observable;
+
+
+/**
+ * A {@link CouchbaseWriter} that groups records into reactive batches instead of subscribing to one upsert at a time.
+ *
+ * Records are routed by the vbucket of their key to one of {@link CouchbaseWriterConfigurationKeys#BATCH_LANES} lanes,
+ * so that documents sharing a partition are sent together. A lane is flushed as a single {@link Observable} once it
+ * holds {@link CouchbaseWriterConfigurationKeys#BATCH_SIZE} records, or every
+ * {@link CouchbaseWriterConfigurationKeys#BATCH_LINGER_MILLIS}. The number of operations that are buffered or in
+ * flight is bounded by {@link CouchbaseWriterConfigurationKeys#MAX_IN_FLIGHT_OPERATIONS}; writers block once it is
+ * reached.
+ *
+ * Temporary failures (e.g. the server being temporarily out of memory or client side backpressure) are retried for
+ * the failed document only, with exponential backoff. Every record is still acknowledged individually through its
+ * {@link WriteCallback} and {@link Future}, which is what {@link org.apache.gobblin.writer.AsyncWriterManager} relies
+ * on for its ack and failure accounting.
+ */
+@Slf4j
+public class CouchbaseBatchingWriter<D extends AbstractDocument> extends CouchbaseWriter<D> {
+
+  private final int _batchSize;
+  private final int _numVBuckets;
+  private final int _maxInFlight;
+  private final Semaphore _inFlightPermits;
+  private final List<Lane> _lanes;
+  private final RetryWhenFunction _temporaryFailureRetry;
+  private final ScheduledExecutorService _lingerExecutor;
+
+  public CouchbaseBatchingWriter(CouchbaseEnvironment couchbaseEnvironment, Config config) {
+    super(couchbaseEnvironment, config);
+
+    _batchSize = ConfigUtils.getInt(config, CouchbaseWriterConfigurationKeys.BATCH_SIZE,
+        CouchbaseWriterConfigurationKeys.BATCH_SIZE_DEFAULT);
+    _numVBuckets = ConfigUtils.getInt(config, CouchbaseWriterConfigurationKeys.NUM_VBUCKETS,
+        CouchbaseWriterConfigurationKeys.NUM_VBUCKETS_DEFAULT);
+    _maxInFlight = ConfigUtils.getInt(config, CouchbaseWriterConfigurationKeys.MAX_IN_FLIGHT_OPERATIONS,
+        CouchbaseWriterConfigurationKeys.MAX_IN_FLIGHT_OPERATIONS_DEFAULT);
+    int numLanes = ConfigUtils.getInt(config, CouchbaseWriterConfigurationKeys.BATCH_LANES,
+        CouchbaseWriterConfigurationKeys.BATCH_LANES_DEFAULT);
+    long lingerMillis = ConfigUtils.getLong(config, CouchbaseWriterConfigurationKeys.BATCH_LINGER_MILLIS,
+        CouchbaseWriterConfigurationKeys.BATCH_LINGER_MILLIS_DEFAULT);
+    Preconditions.checkArgument(_batchSize > 0 && numLanes > 0 && _numVBuckets > 0 && _maxInFlight > 0
+        && lingerMillis > 0, "Batch size, lanes, vbuckets, in-flight operations and linger time must be positive");
+
+    _inFlightPermits = new Semaphore(_maxInFlight);
+    _lanes = new ArrayList<>(numLanes);
+    for (int i = 0; i < numLanes; i++) {
+      _lanes.add(new Lane());
+    }
+
+    _temporaryFailureRetry = RetryBuilder.anyOf(TemporaryFailureException.class, BackpressureException.class)
+        .delay(Delay.exponential(TimeUnit.MILLISECONDS,
+            ConfigUtils.getLong(config, CouchbaseWriterConfigurationKeys.TEMPORARY_FAILURE_MAX_RETRY_DELAY_MILLIS,
+                CouchbaseWriterConfigurationKeys.TEMPORARY_FAILURE_MAX_RETRY_DELAY_MILLIS_DEFAULT),
+            ConfigUtils.getLong(config, CouchbaseWriterConfigurationKeys.TEMPORARY_FAILURE_RETRY_DELAY_MILLIS,
+                CouchbaseWriterConfigurationKeys.TEMPORARY_FAILURE_RETRY_DELAY_MILLIS_DEFAULT)))
+        .max(ConfigUtils.getInt(config, CouchbaseWriterConfigurationKeys.TEMPORARY_FAILURE_MAX_RETRIES,
+            CouchbaseWriterConfigurationKeys.TEMPORARY_FAILURE_MAX_RETRIES_DEFAULT))
+        .build();
+
+    _lingerExecutor = Executors.newSingleThreadScheduledExecutor(
+        ExecutorsUtils.newDaemonThreadFactory(Optional.of(log), Optional.of(this.getClass().getSimpleName())));
+    _lingerExecutor.scheduleAtFixedRate(this::flushLanes, lingerMillis, lingerMillis, TimeUnit.MILLISECONDS);
+
+    log.info("Couchbase batching writer configured with: batchSize: {}, lanes: {}, lingerMillis: {}, "
+        + "maxInFlightOperations: {}", _batchSize, numLanes, lingerMillis, _maxInFlight);
+  }
+
+  @Override
+  public Future<WriteResponse> write(final D record, final WriteCallback callback) {
+    assertRecordWritable(record);
+    D document;
+    try {
+      document = setDocumentTTL(record);
+    } catch (DataRecordException e) {
+      throw new RuntimeException("Caught exception trying to set TTL of the document", e);
+    }
+
+    if (!_inFlightPermits.tryAcquire()) {
+      // Buffered records hold permits as well, send them out before waiting for acknowledgements
+      flushLanes();
+      try {
+        _inFlightPermits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while waiting for in-flight operations to complete", e);
+      }
+    }
+
+    Operation operation = new Operation(document, callback);
+    _lanes.get(getLane(document.id())).add(operation);
+    return operation._future;
+  }
+
+  /**
+   * @return the lane for a key, derived from its vbucket the same way the Couchbase client maps keys to partitions
+   */
+  @VisibleForTesting
+  int getLane(String key) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(key.getBytes(StandardCharsets.UTF_8));
+    int vbucket = (int) ((crc32.getValue() >> 16) & 0x7fff) % _numVBuckets;
+    return vbucket % _lanes.size();
+  }
+
+  private void flushLanes() {
+    for (Lane lane : _lanes) {
+      lane.flush();
+    }
+  }
+
+  private void send(List<Operation> operations) {
+    Observable.from(operations)
+        .flatMap(this::upsert)
+        .subscribe();
+  }
+
+  /**
+   * Upsert a single document, retrying it alone on temporary failures, and acknowledge the outcome on the operation.
+   * Errors are consumed here so that one failed document does not terminate the rest of the batch.
+   */
+  private Observable<D> upsert(Operation operation) {
+    return Observable.defer(() -> {
+      if (operation._document instanceof TupleDocument) {
+        // The client releases the content once it has been encoded, keep it around for retries
+        ((TupleDocument) operation._document).content().value1().retain();
+      }
+      return _bucket.async().upsert(operation._document, _persistTo, _replicateTo)
+          .timeout(_operationTimeout, _operationTimeunit);
+    })
+        .retryWhen(_temporaryFailureRetry)
+        .doOnNext(operation::onSuccess)
+        .doOnError(operation::onFailure)
+        .onErrorResumeNext(Observable.<D>empty());
+  }
+
+  /**
+   * Send all buffered records and wait until every in-flight operation has been acknowledged.
+   */
+  @Override
+  public void flush() throws IOException {
+    flushLanes();
+    try {
+      _inFlightPermits.acquire(_maxInFlight);
+      _inFlightPermits.release(_maxInFlight);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for in-flight operations to complete", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      flush();
+    } catch (IOException e) {
+      log.warn("Failed to flush buffered records", e);
+    }
+    _lingerExecutor.shutdownNow();
+    super.close();
+  }
+
+  /**
+   * Records buffered for documents that map to the same group of vbuckets.
+   */
+  private class Lane {
+    private List<Operation> _pending = new ArrayList<>();
+
+    synchronized void add(Operation operation) {
+      _pending.add(operation);
+      if (_pending.size() >= _batchSize) {
+        flush();
+      }
+    }
+
+    synchronized void flush() {
+      if (_pending.isEmpty()) {
+        return;
+      }
+      List<Operation> batch = _pending;
+      _pending = new ArrayList<>(_batchSize);
+      send(batch);
+    }
+  }
+
+  /**
+   * A record waiting to be acknowledged. Holds an in-flight permit until it completes.
+   */
+  private class Operation {
+    private final D _document;
+    private final WriteCallback _callback;
+    private final CompletableFuture<WriteResponse> _future = new CompletableFuture<>();
+
+    Operation(D document, WriteCallback callback) {
+      _document = document;
+      _callback = callback;
+    }
+
+    void onSuccess(D doc) {
+      try {
+        WriteResponse writeResponse = new GenericWriteResponse<D>(doc);
+        _inFlightPermits.release();
+        _future.complete(writeResponse);
+        if (_callback != null) {
+          _callback.onSuccess(writeResponse);
+        }
+      } finally {
+        if (doc instanceof TupleDocument) {
+          ((TupleDocument) doc).content().value1().release();
+        }
+      }
+    }
+
+    void onFailure(Throwable throwable) {
+      _inFlightPermits.release();
+      _future.completeExceptionally(throwable);
+      if (_callback != null) {
+        _callback.onFailure(throwable);
+      }
+    }
+  }
+}
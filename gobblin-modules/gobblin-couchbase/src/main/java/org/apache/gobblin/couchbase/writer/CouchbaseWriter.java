@@ -25,6 +25,8 @@ import com.couchbase.client.deps.io.netty.buffer.ByteBuf;
 import com.couchbase.client.java.Bucket;
 import com.couchbase.client.java.Cluster;
 import com.couchbase.client.java.CouchbaseCluster;
+import com.couchbase.client.java.PersistTo;
+import com.couchbase.client.java.ReplicateTo;
 import com.couchbase.client.java.auth.CertAuthenticator;
 import com.couchbase.client.java.document.AbstractDocument;
 import com.couchbase.client.java.document.RawJsonDocument;
@@ -72,14 +74,16 @@ import rx.Subscriber;
 public class CouchbaseWriter<D extends AbstractDocument> implements AsyncDataWriter<D>, SyncDataWriter<D> {
 
   private final Cluster _cluster;
-  private final Bucket _bucket;
-  private final long _operationTimeout;
+  protected final Bucket _bucket;
+  protected final long _operationTimeout;
   private final int _documentTTL;
   private final TimeUnit _documentTTLTimeUnits;
   private final String _documentTTLOriginField;
   private final TimeUnit _documentTTLOriginUnits;
 
-  private final TimeUnit _operationTimeunit;
+  protected final TimeUnit _operationTimeunit;
+  protected final PersistTo _persistTo;
+  protected final ReplicateTo _replicateTo;
   private final WriteResponseMapper<D> _defaultWriteResponseMapper;
 
   // A basic transcoder that just passes through the embedded binary content.
@@ -146,11 +150,15 @@ public class CouchbaseWriter<D extends AbstractDocument> implements AsyncDataWri
     _operationTimeout = ConfigUtils.getLong(config, CouchbaseWriterConfigurationKeys.OPERATION_TIMEOUT_MILLIS,
         CouchbaseWriterConfigurationKeys.OPERATION_TIMEOUT_DEFAULT);
     _operationTimeunit = TimeUnit.MILLISECONDS;
+    _persistTo = PersistTo.valueOf(ConfigUtils.getString(config, CouchbaseWriterConfigurationKeys.PERSIST_TO,
+        CouchbaseWriterConfigurationKeys.PERSIST_TO_DEFAULT).toUpperCase());
+    _replicateTo = ReplicateTo.valueOf(ConfigUtils.getString(config, CouchbaseWriterConfigurationKeys.REPLICATE_TO,
+        CouchbaseWriterConfigurationKeys.REPLICATE_TO_DEFAULT).toUpperCase());
 
     _defaultWriteResponseMapper = new GenericWriteResponseWrapper<>();
 
-    log.info("Couchbase writer configured with: hosts: {}, bucketName: {}, operationTimeoutInMillis: {}", hosts,
-        bucketName, _operationTimeout);
+    log.info("Couchbase writer configured with: hosts: {}, bucketName: {}, operationTimeoutInMillis: {}, persistTo: {},"
+        + " replicateTo: {}", hosts, bucketName, _operationTimeout, _persistTo, _replicateTo);
   }
 
   @VisibleForTesting
@@ -158,7 +166,7 @@ public class CouchbaseWriter<D extends AbstractDocument> implements AsyncDataWri
     return _bucket;
   }
 
-  private void assertRecordWritable(D record) {
+  protected void assertRecordWritable(D record) {
     boolean recordIsTupleDocument = (record instanceof TupleDocument);
     boolean recordIsJsonDocument = (record instanceof RawJsonDocument);
     Preconditions.checkArgument(recordIsTupleDocument || recordIsJsonDocument,
@@ -173,7 +181,7 @@ public class CouchbaseWriter<D extends AbstractDocument> implements AsyncDataWri
     }
     Observable<D> observable;
     try {
-      observable = _bucket.async().upsert(setDocumentTTL(record));
+      observable = _bucket.async().upsert(setDocumentTTL(record), _persistTo, _replicateTo);
     } catch (DataRecordException e) {
       throw new RuntimeException("Caught exception trying to set TTL of the document", e);
     }
@@ -280,7 +288,7 @@ public class CouchbaseWriter<D extends AbstractDocument> implements AsyncDataWri
    * @param record
    * @return
    */
-  private D setDocumentTTL(D record) throws DataRecordException {
+  protected D setDocumentTTL(D record) throws DataRecordException {
     boolean recordIsTupleDocument = record instanceof TupleDocument;
     boolean recordIsJsonDocument = record instanceof RawJsonDocument;
 
@@ -330,7 +338,7 @@ public class CouchbaseWriter<D extends AbstractDocument> implements AsyncDataWri
   @Override
   public WriteResponse write(D record) throws IOException {
     try {
-      D doc = _bucket.upsert(setDocumentTTL(record));
+      D doc = _bucket.upsert(setDocumentTTL(record), _persistTo, _replicateTo);
 
       Preconditions.checkNotNull(doc);
       return new GenericWriteResponse(doc);
@@ -51,7 +51,13 @@ public class CouchbaseWriterBuilder extends DataWriterBuilder {
         CouchbaseWriterConfigurationKeys.MAX_RETRIES_DEFAULT);
 
     // build an async couchbase writer
-    AsyncDataWriter couchbaseWriter = new CouchbaseWriter(couchbaseEnvironment, config);
+    AsyncDataWriter couchbaseWriter;
+    if (ConfigUtils.getBoolean(config, CouchbaseWriterConfigurationKeys.BATCHING_ENABLED,
+        CouchbaseWriterConfigurationKeys.BATCHING_ENABLED_DEFAULT)) {
+      couchbaseWriter = new CouchbaseBatchingWriter(couchbaseEnvironment, config);
+    } else {
+      couchbaseWriter = new CouchbaseWriter(couchbaseEnvironment, config);
+    }
     return AsyncWriterManager.builder()
         .asyncDataWriter(couchbaseWriter)
         .failureAllowanceRatio(failureAllowance)
@@ -57,6 +57,32 @@ public class CouchbaseWriterConfigurationKeys {
   // using the default value same as DefaultCouchbaseEnvironment.CONNECT_TIMEOUT which is private in java-client-2.7.6
   public static final long CONNECT_TIMEOUT_DEFAULT = TimeUnit.SECONDS.toMillis(5);
 
+  public static final String PERSIST_TO = prefix("persistTo");
+  public static final String PERSIST_TO_DEFAULT = "NONE";
+  public static final String REPLICATE_TO = prefix("replicateTo");
+  public static final String REPLICATE_TO_DEFAULT = "NONE";
+
+  // Batching writer, see CouchbaseBatchingWriter
+  public static final String BATCHING_ENABLED = prefix("batching.enabled");
+  public static final boolean BATCHING_ENABLED_DEFAULT = false;
+  public static final String BATCH_SIZE = prefix("batching.batchSize");
+  public static final int BATCH_SIZE_DEFAULT = 128;
+  public static final String BATCH_LINGER_MILLIS = prefix("batching.lingerMillis");
+  public static final long BATCH_LINGER_MILLIS_DEFAULT = 10;
+  public static final String BATCH_LANES = prefix("batching.lanes");
+  public static final int BATCH_LANES_DEFAULT = 8;
+  public static final String NUM_VBUCKETS = prefix("batching.numVBuckets");
+  public static final int NUM_VBUCKETS_DEFAULT = 1024;
+  public static final String MAX_IN_FLIGHT_OPERATIONS = prefix("batching.maxInFlightOperations");
+  public static final int MAX_IN_FLIGHT_OPERATIONS_DEFAULT = 1024;
+  public static final String TEMPORARY_FAILURE_MAX_RETRIES = prefix("batching.temporaryFailureMaxRetries");
+  public static final int TEMPORARY_FAILURE_MAX_RETRIES_DEFAULT = 5;
+  public static final String TEMPORARY_FAILURE_RETRY_DELAY_MILLIS = prefix("batching.temporaryFailureRetryDelayMillis");
+  public static final long TEMPORARY_FAILURE_RETRY_DELAY_MILLIS_DEFAULT = 10;
+  public static final String TEMPORARY_FAILURE_MAX_RETRY_DELAY_MILLIS =
+      prefix("batching.temporaryFailureMaxRetryDelayMillis");
+  public static final long TEMPORARY_FAILURE_MAX_RETRY_DELAY_MILLIS_DEFAULT = 1000;
+
   public static final String RETRIES_ENABLED = prefix("retriesEnabled");
   public static final boolean RETRIES_ENABLED_DEFAULT = false;
 
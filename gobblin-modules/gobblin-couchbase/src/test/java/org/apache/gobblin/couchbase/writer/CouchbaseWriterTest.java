@@ -24,11 +24,13 @@ import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ExecutionException;
@@ -64,6 +66,7 @@ import com.couchbase.client.java.env.DefaultCouchbaseEnvironment;
 import com.google.gson.Gson;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -577,9 +580,13 @@ public class CouchbaseWriterTest {
    */
   private void writeRecordsWithAsyncWriter(Iterator<AbstractDocument> recordIterator)
       throws IOException {
-    boolean verbose = false;
     Config config = getConfig("default", Optional.empty(), Optional.empty(), Optional.empty());
-    CouchbaseWriter writer = new CouchbaseWriter(_couchbaseEnvironment, config);
+    writeRecordsWithAsyncWriter(recordIterator, new CouchbaseWriter(_couchbaseEnvironment, config));
+  }
+
+  private void writeRecordsWithAsyncWriter(Iterator<AbstractDocument> recordIterator, CouchbaseWriter writer)
+      throws IOException {
+    boolean verbose = false;
 
     try {
       AsyncWriterManager asyncWriterManager =
@@ -787,4 +794,73 @@ public class CouchbaseWriterTest {
     };
     writeRecordsWithAsyncWriter(new TupleDocumentIterator(recordIterator));
   }
+
+  @Test
+  public void testMultiTupleDocumentWriteWithBatchingWriter()
+      throws IOException {
+    final Schema dataRecordSchema =
+        SchemaBuilder.record("Data").fields().name("data").type().bytesType().noDefault().name("flags").type().intType()
+            .noDefault().endRecord();
+
+    final Schema schema =
+        SchemaBuilder.record("TestRecord").fields().name("key").type().stringType().noDefault().name("data")
+            .type(dataRecordSchema).noDefault().endRecord();
+
+    final int numRecords = 1000;
+
+    Iterator<GenericRecord> recordIterator = new Iterator<GenericRecord>() {
+      private int currentIndex;
+
+      @Override
+      public void remove() {
+      }
+
+      @Override
+      public boolean hasNext() {
+        return (currentIndex < numRecords);
+      }
+
+      @Override
+      public GenericRecord next() {
+        GenericData.Record testRecord = new GenericData.Record(schema);
+
+        String testContent = "batched hello world" + currentIndex;
+        GenericData.Record dataRecord = new GenericData.Record(dataRecordSchema);
+        dataRecord.put("data", ByteBuffer.wrap(testContent.getBytes(Charset.forName("UTF-8"))));
+        dataRecord.put("flags", 0);
+
+        testRecord.put("key", "batched" + currentIndex);
+        testRecord.put("data", dataRecord);
+        currentIndex++;
+        return testRecord;
+      }
+    };
+
+    // A small in-flight bound forces writes to wait for acknowledgements of earlier batches
+    Config config = getConfig("default", Optional.empty(), Optional.empty(), Optional.empty())
+        .withValue(CouchbaseWriterConfigurationKeys.BATCH_SIZE, ConfigValueFactory.fromAnyRef(16))
+        .withValue(CouchbaseWriterConfigurationKeys.MAX_IN_FLIGHT_OPERATIONS, ConfigValueFactory.fromAnyRef(64));
+    writeRecordsWithAsyncWriter(new TupleDocumentIterator(recordIterator),
+        new CouchbaseBatchingWriter(_couchbaseEnvironment, config));
+  }
+
+  @Test
+  public void testBatchingWriterLanes() {
+    Config config = getConfig("default", Optional.empty(), Optional.empty(), Optional.empty())
+        .withValue(CouchbaseWriterConfigurationKeys.BATCH_LANES, ConfigValueFactory.fromAnyRef(4));
+    CouchbaseBatchingWriter writer = new CouchbaseBatchingWriter(_couchbaseEnvironment, config);
+    try {
+      Set<Integer> lanes = new HashSet<>();
+      for (int i = 0; i < 100; i++) {
+        int lane = writer.getLane("key" + i);
+        Assert.assertTrue(lane >= 0 && lane < 4);
+        // Routing is stable for a key
+        Assert.assertEquals(writer.getLane("key" + i), lane);
+        lanes.add(lane);
+      }
+      Assert.assertEquals(lanes.size(), 4);
+    } finally {
+      writer.close();
+    }
+  }
 }
@@ -40,7 +40,7 @@ import lombok.extern.slf4j.Slf4j;
 @Alpha
 public class GobblinEncryptionProvider implements CredentialStoreProvider, EncryptionProvider {
   private final static Set<String> SUPPORTED_STREAMING_ALGORITHMS =
-      ImmutableSet.of("aes_rotating", EncryptionConfigParser.ENCRYPTION_TYPE_ANY);
+      ImmutableSet.of("aes_rotating", ParallelAESCodec.TAG, EncryptionConfigParser.ENCRYPTION_TYPE_ANY);
 
   /**
    * Return a set of streaming algorithms (StreamEncoders) that this factory knows how to build
@@ -83,6 +83,17 @@ public class GobblinEncryptionProvider implements CredentialStoreProvider, Encry
         }
 
         return new RotatingAESCodec(cs);
+      case ParallelAESCodec.TAG:
+        CredentialStore parallelCs = CredentialStoreFactory.buildCredentialStore(parameters);
+        if (parallelCs == null) {
+          throw new IllegalArgumentException("Failed to build credential store; can't instantiate AES");
+        }
+
+        Integer chunkSize = EncryptionConfigParser.getChunkSize(parameters);
+        Integer parallelism = EncryptionConfigParser.getParallelism(parameters);
+        return new ParallelAESCodec(parallelCs,
+            chunkSize == null ? ParallelAESCodec.DEFAULT_CHUNK_SIZE : chunkSize,
+            parallelism == null ? ParallelAESCodec.DEFAULT_PARALLELISM : parallelism);
       case GPGCodec.TAG:
         String password = EncryptionConfigParser.getKeystorePassword(parameters);
         String keystorePathStr = EncryptionConfigParser.getKeystorePath(parameters);
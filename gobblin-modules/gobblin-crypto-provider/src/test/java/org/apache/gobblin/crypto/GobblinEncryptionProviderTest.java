@@ -58,6 +58,30 @@ public class GobblinEncryptionProviderTest {
     Assert.assertTrue(cipherOut.size() > 0, "Expected to be able to write ciphertext!");
   }
 
+  @Test
+  public void testCanBuildParallelAes() throws IOException {
+    Map<String, Object> properties = new HashMap<>();
+    properties.put(EncryptionConfigParser.ENCRYPTION_ALGORITHM_KEY, ParallelAESCodec.TAG);
+    properties.put(EncryptionConfigParser.ENCRYPTION_KEYSTORE_PATH_KEY, getClass().getResource(
+        "/encryption_provider_test_keystore").toString());
+    properties.put(EncryptionConfigParser.ENCRYPTION_KEYSTORE_PASSWORD_KEY, "abcd");
+    properties.put(EncryptionConfigParser.ENCRYPTION_CHUNK_SIZE_KEY, "4");
+    properties.put(EncryptionConfigParser.ENCRYPTION_PARALLELISM_KEY, "2");
+
+    StreamCodec c = EncryptionFactory.buildStreamCryptoProvider(properties);
+    Assert.assertTrue(c instanceof ParallelAESCodec);
+
+    byte[] toEncrypt = "Hello!".getBytes(StandardCharsets.UTF_8);
+
+    ByteArrayOutputStream cipherOut = new ByteArrayOutputStream();
+    OutputStream cipherStream = c.encodeOutputStream(cipherOut);
+    cipherStream.write(toEncrypt);
+    cipherStream.close();
+
+    byte[] decrypted = IOUtils.toByteArray(c.decodeInputStream(new ByteArrayInputStream(cipherOut.toByteArray())));
+    Assert.assertEquals(decrypted, toEncrypt);
+  }
+
   @Test
   public void testCanBuildGPG() throws IOException {
     Map<String, Object> encryptionProperties = new HashMap<>();
@@ -23,16 +23,21 @@ import java.io.OutputStream;
 import java.security.SecureRandom;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.crypto.Cipher;
 import javax.crypto.CipherOutputStream;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import org.apache.commons.codec.binary.Base64OutputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 
 
 /**
@@ -41,6 +46,9 @@ import org.openjdk.jmh.annotations.State;
  * It turns out after running some of these that Base64 encoding of the output stream also incurs a large
  * performance cost, so there are benchmarks in here to test the efficacy of the algorithm with a few Base64
  * encoder providers too.
+ *
+ * The 16MB stream benchmarks compare {@link ParallelAESCodec} at different parallelism levels, with parallelism 1 as
+ * the baseline, and against the serial {@link RotatingAESCodec} for reference.
  */
 @Fork(3)
 public class EncodingBenchmark {
@@ -59,6 +67,36 @@ public class EncodingBenchmark {
     }
   }
 
+  @State(value = Scope.Benchmark)
+  public static class LargeStreamBenchmarkState {
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    public byte[] SixteenMBytes;
+
+    public ParallelAESCodec parallelCodec;
+
+    public RotatingAESCodec serialCodec;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() throws Exception {
+      Random r = new Random();
+      SixteenMBytes = new byte[16 * 1024 * 1024];
+      r.nextBytes(SixteenMBytes);
+      SimpleCredentialStore credStore = new SimpleCredentialStore();
+      executor = Executors.newFixedThreadPool(parallelism);
+      parallelCodec = new ParallelAESCodec(credStore, ParallelAESCodec.DEFAULT_CHUNK_SIZE, parallelism, executor);
+      serialCodec = new RotatingAESCodec(credStore);
+    }
+
+    @TearDown
+    public void tearDown() {
+      executor.shutdownNow();
+    }
+  }
+
  @Benchmark
   public byte[] write1KRecordsNewBase64(EncodingBenchmarkState state) throws IOException {
     ByteArrayOutputStream sink = new ByteArrayOutputStream();
@@ -80,6 +118,26 @@ public class EncodingBenchmark {
     return sink.toByteArray();
   }
 
+  /**
+   * Reference point for {@link #write16MStreamParallelAES}; the parallelism parameter has no effect on it. It is not a
+   * like-for-like baseline: {@link RotatingAESCodec} encrypts with AES/CBC and Base64 encodes its output, while
+   * {@link ParallelAESCodec} writes raw AES/GCM frames. The speedup from parallelism is measured against
+   * {@link #write16MStreamParallelAES} with parallelism 1.
+   */
+  @Benchmark
+  public void write16MStreamRotatingAES(LargeStreamBenchmarkState state) throws IOException {
+    OutputStream os = state.serialCodec.encodeOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+    os.write(state.SixteenMBytes);
+    os.close();
+  }
+
+  @Benchmark
+  public void write16MStreamParallelAES(LargeStreamBenchmarkState state) throws IOException {
+    OutputStream os = state.parallelCodec.encodeOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+    os.write(state.SixteenMBytes);
+    os.close();
+  }
+
   @Benchmark
   public byte[] write1KRecordsDirectCipherStream(EncodingBenchmarkState state) throws Exception {
     Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
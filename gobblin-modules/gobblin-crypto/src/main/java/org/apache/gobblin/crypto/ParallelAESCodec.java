@@ -0,0 +1,450 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.crypto;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+
+
+/**
+ * A variant of {@link RotatingAESCodec} for large streams that cuts the input into fixed-size chunks and encrypts
+ * them in parallel, while decryption still reads the stream sequentially. Keys are picked from the credential store
+ * the same way as {@link RotatingAESCodec}.
+ *
+ * The output is binary (not base64 encoded) and framed as follows, with integers written big endian:
+ *
+ * 1. A header: [magic "GPAE"][version byte][keyId int][chunkSize int][16 byte random stream id]
+ * 2. One frame per chunk: [flags byte][ciphertext length int][12 byte IV][ciphertext and 16 byte GCM tag]
+ *
+ * Every chunk is encrypted with AES/GCM under a fresh random IV. The header, the chunk index and the flags are
+ * authenticated along with the chunk, so reordered, dropped or modified frames, a modified header and frames spliced
+ * in from another stream encrypted with the same key all fail to decrypt. The last frame is flagged as such and a
+ * stream that ends without it is reported as truncated.
+ *
+ * Chunks are encrypted on a shared pool of {@link #DEFAULT_PARALLELISM} daemon threads unless an executor is given,
+ * and at most parallelism chunks per stream are in flight. Chunk buffers are direct {@link ByteBuffer}s that are
+ * reused across the streams of a codec.
+ */
+public class ParallelAESCodec extends RotatingAESCodec {
+  public static final String TAG = "aes_parallel";
+  public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+  public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+  private static final byte[] MAGIC = {'G', 'P', 'A', 'E'};
+  private static final byte VERSION = 1;
+  private static final byte FLAG_LAST = 1;
+  private static final int IV_LEN = 12;
+  private static final int TAG_LEN = 16;
+  private static final int STREAM_ID_LEN = 16;
+  private static final int HEADER_LEN = MAGIC.length + 1 + Integer.BYTES + Integer.BYTES + STREAM_ID_LEN;
+  private static final String CIPHER = "AES/GCM/NoPadding";
+
+  private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+  private static final ThreadLocal<Cipher> CIPHERS = ThreadLocal.withInitial(() -> {
+    try {
+      return Cipher.getInstance(CIPHER);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Error creating AES/GCM algorithm? Should always exist in JRE", e);
+    }
+  });
+
+  private final int chunkSize;
+  private final int parallelism;
+  private final ExecutorService executor;
+  private final Queue<Chunk> chunkPool = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pooledChunks = new AtomicInteger();
+
+  public ParallelAESCodec(CredentialStore credentialStore) {
+    this(credentialStore, DEFAULT_CHUNK_SIZE, DEFAULT_PARALLELISM);
+  }
+
+  public ParallelAESCodec(CredentialStore credentialStore, int chunkSize, int parallelism) {
+    this(credentialStore, chunkSize, parallelism, SharedExecutor.INSTANCE);
+  }
+
+  /**
+   * @param credentialStore Credential store where keys can be found
+   * @param chunkSize Size in bytes of the plaintext chunks that are encrypted independently
+   * @param parallelism Maximum number of chunks of a single stream being encrypted at the same time
+   * @param executor Executor on which chunks are encrypted
+   */
+  public ParallelAESCodec(CredentialStore credentialStore, int chunkSize, int parallelism, ExecutorService executor) {
+    super(credentialStore);
+    if (chunkSize <= 0 || parallelism <= 0) {
+      throw new IllegalArgumentException("Chunk size and parallelism must be positive");
+    }
+    this.chunkSize = chunkSize;
+    this.parallelism = parallelism;
+    this.executor = executor;
+  }
+
+  @Override
+  public OutputStream encodeOutputStream(OutputStream origStream)
+      throws IOException {
+    return new EncodingStream(selectRandomKey(), origStream);
+  }
+
+  @Override
+  public InputStream decodeInputStream(InputStream origStream)
+      throws IOException {
+    return new DecodingStream(origStream);
+  }
+
+  @Override
+  public String getTag() {
+    return TAG;
+  }
+
+  private Chunk borrowChunk() {
+    Chunk chunk = this.chunkPool.poll();
+    if (chunk == null) {
+      return new Chunk(this.chunkSize);
+    }
+    this.pooledChunks.decrementAndGet();
+    chunk.clear();
+    return chunk;
+  }
+
+  private void releaseChunk(Chunk chunk) {
+    // Keep enough chunks around for a couple of concurrent streams, let the rest be garbage collected
+    if (this.pooledChunks.incrementAndGet() <= 2 * (this.parallelism + 1)) {
+      this.chunkPool.offer(chunk);
+    } else {
+      this.pooledChunks.decrementAndGet();
+    }
+  }
+
+  /**
+   * Additional authenticated data of a chunk: the stream header, the index of the chunk in the stream and its flags.
+   */
+  private static byte[] aad(byte[] header, long index, byte flags) {
+    return ByteBuffer.allocate(header.length + Long.BYTES + 1).put(header).putLong(index).put(flags).array();
+  }
+
+  /**
+   * Plaintext and ciphertext buffers of a chunk.
+   */
+  private static class Chunk {
+    private final ByteBuffer plaintext;
+    private final ByteBuffer ciphertext;
+    private final byte[] iv = new byte[IV_LEN];
+    private byte flags;
+
+    Chunk(int chunkSize) {
+      this.plaintext = ByteBuffer.allocateDirect(chunkSize);
+      this.ciphertext = ByteBuffer.allocateDirect(chunkSize + TAG_LEN);
+    }
+
+    void clear() {
+      this.plaintext.clear();
+      this.ciphertext.clear();
+    }
+
+    Chunk encrypt(KeyRecord key, byte[] header, long index, byte flags)
+        throws GeneralSecurityException {
+      SECURE_RANDOM.nextBytes(this.iv);
+      Cipher cipher = CIPHERS.get();
+      cipher.init(Cipher.ENCRYPT_MODE, key.getSecretKey(), new GCMParameterSpec(TAG_LEN * 8, this.iv));
+      cipher.updateAAD(aad(header, index, flags));
+      this.plaintext.flip();
+      cipher.doFinal(this.plaintext, this.ciphertext);
+      this.ciphertext.flip();
+      this.flags = flags;
+      return this;
+    }
+  }
+
+  private class EncodingStream extends OutputStream {
+    private final KeyRecord key;
+    private final byte[] header;
+    private final DataOutputStream out;
+    private final WritableByteChannel channel;
+    private final Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+    private Chunk current;
+    private long chunkIndex = 0;
+    private boolean closed = false;
+
+    EncodingStream(KeyRecord key, OutputStream origStream)
+        throws IOException {
+      this.key = key;
+      this.out = new DataOutputStream(origStream);
+      this.channel = Channels.newChannel(this.out);
+
+      byte[] streamId = new byte[STREAM_ID_LEN];
+      SECURE_RANDOM.nextBytes(streamId);
+      this.header = ByteBuffer.allocate(HEADER_LEN).put(MAGIC).put(VERSION).putInt(key.getKeyId()).putInt(chunkSize)
+          .put(streamId).array();
+      this.out.write(this.header);
+      this.current = borrowChunk();
+    }
+
+    @Override
+    public void write(int b)
+        throws IOException {
+      ensureOpen();
+      this.current.plaintext.put((byte) b);
+      if (!this.current.plaintext.hasRemaining()) {
+        submitCurrent(false);
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len)
+        throws IOException {
+      ensureOpen();
+      while (len > 0) {
+        int toCopy = Math.min(len, this.current.plaintext.remaining());
+        this.current.plaintext.put(b, off, toCopy);
+        off += toCopy;
+        len -= toCopy;
+        if (!this.current.plaintext.hasRemaining()) {
+          submitCurrent(false);
+        }
+      }
+    }
+
+    /**
+     * Writes out the chunks that are in flight. The partially filled chunk is kept until it is full or the stream
+     * is closed.
+     */
+    @Override
+    public void flush()
+        throws IOException {
+      ensureOpen();
+      while (!this.inFlight.isEmpty()) {
+        writeFrame(this.inFlight.removeFirst());
+      }
+      this.out.flush();
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+      if (this.closed) {
+        return;
+      }
+      try {
+        submitCurrent(true);
+        while (!this.inFlight.isEmpty()) {
+          writeFrame(this.inFlight.removeFirst());
+        }
+      } finally {
+        this.closed = true;
+        this.out.close();
+      }
+    }
+
+    private void ensureOpen()
+        throws IOException {
+      if (this.closed) {
+        throw new IOException("Stream is closed");
+      }
+    }
+
+    private void submitCurrent(boolean last)
+        throws IOException {
+      // Frames are written in order, so wait for the oldest chunk once the pipeline is full
+      if (this.inFlight.size() >= parallelism) {
+        writeFrame(this.inFlight.removeFirst());
+      }
+      final Chunk chunk = this.current;
+      final long index = this.chunkIndex++;
+      final byte flags = last ? FLAG_LAST : 0;
+      this.inFlight.addLast(executor.submit(() -> chunk.encrypt(this.key, this.header, index, flags)));
+      this.current = last ? null : borrowChunk();
+    }
+
+    private void writeFrame(Future<Chunk> encryptedChunk)
+        throws IOException {
+      Chunk chunk;
+      try {
+        chunk = encryptedChunk.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while encrypting chunk");
+      } catch (ExecutionException e) {
+        throw new IOException("Failed to encrypt chunk", e.getCause());
+      }
+
+      this.out.writeByte(chunk.flags);
+      this.out.writeInt(chunk.ciphertext.remaining());
+      this.out.write(chunk.iv);
+      while (chunk.ciphertext.hasRemaining()) {
+        this.channel.write(chunk.ciphertext);
+      }
+      releaseChunk(chunk);
+    }
+  }
+
+  private class DecodingStream extends InputStream {
+    private final DataInputStream in;
+    private final byte[] header = new byte[HEADER_LEN];
+    private final KeyRecord key;
+    private final int streamChunkSize;
+    private final byte[] iv = new byte[IV_LEN];
+    private final byte[] ciphertext;
+    private final byte[] plaintext;
+    private int position = 0;
+    private int limit = 0;
+    private long chunkIndex = 0;
+    private boolean lastChunkRead = false;
+
+    DecodingStream(InputStream origStream)
+        throws IOException {
+      this.in = new DataInputStream(origStream);
+
+      this.in.readFully(this.header);
+      ByteBuffer header = ByteBuffer.wrap(this.header);
+      byte[] magic = new byte[MAGIC.length];
+      header.get(magic);
+      if (!Arrays.equals(magic, MAGIC)) {
+        throw new IOException("Input stream was not encrypted with " + TAG);
+      }
+      byte version = header.get();
+      if (version != VERSION) {
+        throw new IOException("Unsupported " + TAG + " version " + version);
+      }
+      int keyId = header.getInt();
+      this.key = getKey(keyId);
+      if (this.key == null) {
+        throw new IOException("Cannot load key " + keyId + " which is specified in input stream");
+      }
+      this.streamChunkSize = header.getInt();
+      if (this.streamChunkSize <= 0) {
+        throw new IOException("Invalid chunk size " + this.streamChunkSize);
+      }
+      this.ciphertext = new byte[this.streamChunkSize + TAG_LEN];
+      this.plaintext = new byte[this.streamChunkSize];
+    }
+
+    @Override
+    public int read()
+        throws IOException {
+      if (!fill()) {
+        return -1;
+      }
+      return this.plaintext[this.position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len)
+        throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!fill()) {
+        return -1;
+      }
+      int toCopy = Math.min(len, this.limit - this.position);
+      System.arraycopy(this.plaintext, this.position, b, off, toCopy);
+      this.position += toCopy;
+      return toCopy;
+    }
+
+    @Override
+    public int available() {
+      return this.limit - this.position;
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+      this.in.close();
+    }
+
+    /**
+     * @return false once the last chunk has been fully read
+     */
+    private boolean fill()
+        throws IOException {
+      while (this.position == this.limit) {
+        if (this.lastChunkRead) {
+          return false;
+        }
+        readChunk();
+      }
+      return true;
+    }
+
+    private void readChunk()
+        throws IOException {
+      byte flags;
+      int length;
+      try {
+        flags = this.in.readByte();
+        length = this.in.readInt();
+      } catch (EOFException e) {
+        throw new IOException("Encrypted stream is truncated after chunk " + this.chunkIndex, e);
+      }
+      if (length < TAG_LEN || length > this.ciphertext.length) {
+        throw new IOException("Invalid length " + length + " for chunk " + this.chunkIndex);
+      }
+      this.in.readFully(this.iv);
+      this.in.readFully(this.ciphertext, 0, length);
+
+      try {
+        Cipher cipher = CIPHERS.get();
+        cipher.init(Cipher.DECRYPT_MODE, this.key.getSecretKey(), new GCMParameterSpec(TAG_LEN * 8, this.iv));
+        cipher.updateAAD(aad(this.header, this.chunkIndex, flags));
+        this.limit = cipher.doFinal(this.ciphertext, 0, length, this.plaintext, 0);
+      } catch (AEADBadTagException e) {
+        throw new IOException("Failed to authenticate chunk " + this.chunkIndex, e);
+      } catch (GeneralSecurityException e) {
+        throw new IOException("Failed to decrypt chunk " + this.chunkIndex, e);
+      }
+      this.position = 0;
+      this.chunkIndex++;
+      this.lastChunkRead = (flags & FLAG_LAST) != 0;
+    }
+  }
+
+  /**
+   * Encryption pool shared by all codecs that are not given their own executor.
+   */
+  private static class SharedExecutor {
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService INSTANCE = Executors.newFixedThreadPool(DEFAULT_PARALLELISM, runnable -> {
+      Thread thread = new Thread(runnable, "ParallelAESCodec-" + THREAD_COUNT.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.crypto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.apache.gobblin.codec.StreamCodec;
+
+
+public class ParallelAESCodecTest {
+  @Test
+  public void testStreams()
+      throws IOException {
+    final byte[] toWrite = "hello world".getBytes();
+
+    ParallelAESCodec codec = new ParallelAESCodec(new RotatingAESCodecTest.SimpleCredentialStore());
+    byte[] encrypted = encode(codec, toWrite);
+
+    Assert.assertEquals(decode(codec, encrypted), toWrite, "Expected decoded output to match encoded output");
+  }
+
+  @Test
+  public void testManyChunks()
+      throws IOException {
+    byte[] toWrite = new byte[1000 * 1000 + 17];
+    new Random().nextBytes(toWrite);
+
+    ParallelAESCodec codec = new ParallelAESCodec(new RotatingAESCodecTest.SimpleCredentialStore(), 4096, 4);
+    ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    OutputStream os = codec.encodeOutputStream(sink);
+    // Mix single byte writes with writes that span several chunks
+    os.write(toWrite, 0, 100);
+    os.write(toWrite[100]);
+    os.write(toWrite, 101, toWrite.length - 101);
+    os.close();
+
+    Assert.assertEquals(decode(codec, sink.toByteArray()), toWrite);
+
+    // Buffers returned to the pool are reused by the next stream
+    byte[] other = Arrays.copyOf(toWrite, 10000);
+    Assert.assertEquals(decode(codec, encode(codec, other)), other);
+  }
+
+  @Test
+  public void testEmptyStream()
+      throws IOException {
+    ParallelAESCodec codec = new ParallelAESCodec(new RotatingAESCodecTest.SimpleCredentialStore(), 16, 2);
+    Assert.assertEquals(decode(codec, encode(codec, new byte[0])), new byte[0]);
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testTamperedStreamFails()
+      throws IOException {
+    ParallelAESCodec codec = new ParallelAESCodec(new RotatingAESCodecTest.SimpleCredentialStore(), 16, 2);
+    byte[] encrypted = encode(codec, "some data that spans several chunks".getBytes());
+    encrypted[encrypted.length - 20] ^= 1;
+
+    decode(codec, encrypted);
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testTruncatedStreamFails()
+      throws IOException {
+    ParallelAESCodec codec = new ParallelAESCodec(new RotatingAESCodecTest.SimpleCredentialStore(), 16, 2);
+    byte[] toWrite = new byte[64];
+    new Random().nextBytes(toWrite);
+    byte[] encrypted = encode(codec, toWrite);
+
+    // Drop the final frame: 1 flag byte, 4 length bytes, the IV and the GCM tag of an empty chunk
+    decode(codec, Arrays.copyOf(encrypted, encrypted.length - (1 + 4 + 12 + 16)));
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testTamperedHeaderFails()
+      throws IOException {
+    ParallelAESCodec codec = new ParallelAESCodec(new RotatingAESCodecTest.SimpleCredentialStore(), 16, 2);
+    byte[] encrypted = encode(codec, "some data that spans several chunks".getBytes());
+    // Raise the chunk size recorded after the magic, version and key id, which leaves every frame readable
+    encrypted[4 + 1 + 4 + 2] ^= 1;
+
+    decode(codec, encrypted);
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testFramesFromAnotherStreamFail()
+      throws IOException {
+    ParallelAESCodec codec = new ParallelAESCodec(new RotatingAESCodecTest.SimpleCredentialStore(), 16, 2);
+    byte[] first = encode(codec, "first stream".getBytes());
+    byte[] second = encode(codec, "second stream".getBytes());
+
+    // Both streams are encrypted with the same key, only the stream id in the header tells them apart
+    int headerLength = 4 + 1 + 4 + 4 + 16;
+    byte[] spliced = Arrays.copyOf(second, second.length);
+    System.arraycopy(first, 0, spliced, 0, headerLength);
+
+    decode(codec, spliced);
+  }
+
+  private static byte[] encode(StreamCodec codec, byte[] toWrite)
+      throws IOException {
+    ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    OutputStream os = codec.encodeOutputStream(sink);
+    os.write(toWrite);
+    os.close();
+    return sink.toByteArray();
+  }
+
+  private static byte[] decode(StreamCodec codec, byte[] encrypted)
+      throws IOException {
+    try (InputStream is = codec.decodeInputStream(new ByteArrayInputStream(encrypted))) {
+      return IOUtils.toByteArray(is);
+    }
+  }
+}
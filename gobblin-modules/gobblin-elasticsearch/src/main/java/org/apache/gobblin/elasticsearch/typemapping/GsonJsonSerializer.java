@@ -17,7 +17,11 @@
 package org.apache.gobblin.elasticsearch.typemapping;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 import com.google.gson.Gson;
 import com.typesafe.config.Config;
@@ -45,6 +49,18 @@ public class GsonJsonSerializer implements JsonSerializer<Object> {
     }
   }
 
+  @Override
+  public void serializeToJson(Object serializable, OutputStream out)
+      throws SerializationException {
+    try {
+      Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+      _gson.toJson(serializable, writer);
+      writer.flush();
+    } catch (IOException | RuntimeException e) {
+      throw new SerializationException(e);
+    }
+  }
+
   @Override
   public void close()
       throws IOException {
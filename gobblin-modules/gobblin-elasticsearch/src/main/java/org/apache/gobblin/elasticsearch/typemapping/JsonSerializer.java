@@ -17,6 +17,8 @@
 package org.apache.gobblin.elasticsearch.typemapping;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
 
 import com.typesafe.config.Config;
 
@@ -27,4 +29,17 @@ public interface JsonSerializer<T> extends Closeable {
 
   byte[] serializeToJson(T serializable) throws SerializationException;
 
+  /**
+   * Serialize the record as UTF-8 encoded Json directly into the given {@link OutputStream}, which should neither be
+   * flushed nor closed. Implementations that can stream their output should override this to avoid materializing
+   * an intermediate copy of the document.
+   */
+  default void serializeToJson(T serializable, OutputStream out) throws SerializationException {
+    try {
+      out.write(serializeToJson(serializable));
+    } catch (IOException e) {
+      throw new SerializationException(e);
+    }
+  }
+
 }
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.elasticsearch.writer;
+
+import com.google.common.base.Preconditions;
+
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tracks the target size in bytes of a bulk request based on the latency and rejections observed from Elasticsearch.
+ *
+ * The size grows additively by the minimum size while bulks complete within the target latency, shrinks by a quarter
+ * when a bulk is slower than the target, and is halved whenever Elasticsearch rejects items because its write queue
+ * is full. The size always stays within the configured bounds.
+ */
+@Slf4j
+class AdaptiveBulkSizer {
+
+  private final int minBytes;
+  private final int maxBytes;
+  private final long targetLatencyMillis;
+  private int bulkSizeBytes;
+
+  AdaptiveBulkSizer(int minBytes, int maxBytes, int initialBytes, long targetLatencyMillis) {
+    Preconditions.checkArgument(minBytes > 0 && minBytes <= maxBytes,
+        "Minimum bulk size must be positive and not larger than the maximum bulk size");
+    Preconditions.checkArgument(targetLatencyMillis > 0, "Target bulk latency must be positive");
+    this.minBytes = minBytes;
+    this.maxBytes = maxBytes;
+    this.targetLatencyMillis = targetLatencyMillis;
+    this.bulkSizeBytes = Math.max(minBytes, Math.min(maxBytes, initialBytes));
+  }
+
+  synchronized int getBulkSizeBytes() {
+    return this.bulkSizeBytes;
+  }
+
+  /**
+   * Record a completed bulk request.
+   * @param latencyMillis time taken by Elasticsearch to answer the bulk
+   * @param rejected whether any item of the bulk was rejected with 429 (Too Many Requests)
+   */
+  synchronized void onResponse(long latencyMillis, boolean rejected) {
+    int previous = this.bulkSizeBytes;
+    if (rejected) {
+      this.bulkSizeBytes = Math.max(this.minBytes, this.bulkSizeBytes / 2);
+    } else if (latencyMillis > this.targetLatencyMillis) {
+      this.bulkSizeBytes = Math.max(this.minBytes, this.bulkSizeBytes - this.bulkSizeBytes / 4);
+    } else {
+      this.bulkSizeBytes = (int) Math.min(this.maxBytes, (long) this.bulkSizeBytes + this.minBytes);
+    }
+    if (previous != this.bulkSizeBytes) {
+      log.debug("Bulk size changed from {} to {} bytes (latency {} ms, rejected {})", previous, this.bulkSizeBytes,
+          latencyMillis, rejected);
+    }
+  }
+
+  /**
+   * Record a bulk request that was rejected as a whole.
+   */
+  void onRejection() {
+    onResponse(0, true);
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.elasticsearch.writer;
+
+import java.io.ByteArrayOutputStream;
+
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+
+
+/**
+ * A growable buffer holding the newline delimited body of a bulk request. Buffers are pooled and reset between uses,
+ * so the backing array is reused across bulks and handed to the http client without copying.
+ */
+class BulkBuffer extends ByteArrayOutputStream {
+
+  BulkBuffer(int initialCapacity) {
+    super(initialCapacity);
+  }
+
+  /**
+   * Discard everything written after the given position, e.g. a partially serialized document.
+   */
+  synchronized void truncate(int size) {
+    this.count = Math.min(this.count, size);
+  }
+
+  /**
+   * Append the bytes between start (inclusive) and end (exclusive) of another buffer.
+   */
+  synchronized void append(BulkBuffer other, int start, int end) {
+    write(other.buf, start, end - start);
+  }
+
+  /**
+   * @return an {@link HttpEntity} backed by the content of this buffer, valid until the buffer is reset
+   */
+  synchronized HttpEntity toEntity() {
+    return new ByteArrayEntity(this.buf, 0, this.count, ContentType.APPLICATION_JSON);
+  }
+
+  /**
+   * Creates {@link BulkBuffer}s for a {@link org.apache.commons.pool2.impl.GenericObjectPool}.
+   */
+  static class Factory extends BasePooledObjectFactory<BulkBuffer> {
+    private final int initialCapacity;
+
+    Factory(int initialCapacity) {
+      this.initialCapacity = initialCapacity;
+    }
+
+    @Override
+    public BulkBuffer create() {
+      return new BulkBuffer(this.initialCapacity);
+    }
+
+    @Override
+    public PooledObject<BulkBuffer> wrap(BulkBuffer buffer) {
+      return new DefaultPooledObject<>(buffer);
+    }
+
+    @Override
+    public void passivateObject(PooledObject<BulkBuffer> pooledBuffer) {
+      pooledBuffer.getObject().reset();
+    }
+  }
+}
@@ -0,0 +1,467 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.elasticsearch.writer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.apache.gobblin.util.ConfigUtils;
+import org.apache.gobblin.util.ExecutorsUtils;
+import org.apache.gobblin.writer.Batch;
+import org.apache.gobblin.writer.GenericWriteResponse;
+import org.apache.gobblin.writer.WriteCallback;
+import org.apache.gobblin.writer.WriteResponse;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestStatus;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.typesafe.config.Config;
+
+import javax.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * An {@link ElasticsearchRestWriter} that behaves like a bulk processor:
+ * <ul>
+ *   <li>Each {@link Batch} is split into bulk requests whose size in bytes is adapted by an {@link AdaptiveBulkSizer}
+ *   to the latency and rejections observed from Elasticsearch.</li>
+ *   <li>Up to {@link ElasticsearchWriterConfigurationKeys#ADAPTIVE_BULK_MAX_IN_FLIGHT} bulk requests are in flight at
+ *   any time, further writes block until a bulk completes.</li>
+ *   <li>Items rejected with 429 (Too Many Requests) are retried on their own with exponential backoff, while the rest
+ *   of the bulk is acknowledged.</li>
+ *   <li>Documents are serialized straight into pooled {@link BulkBuffer}s which are sent without further copies.</li>
+ * </ul>
+ * Enabled with {@link ElasticsearchWriterConfigurationKeys#ADAPTIVE_BULK_ENABLED}.
+ */
+@Slf4j
+public class ElasticsearchAdaptiveBulkWriter extends ElasticsearchRestWriter {
+
+  private static final String BULK_ENDPOINT = "/_bulk";
+  private static final byte[] ACTION_SUFFIX = "}}\n".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] ID_FIELD = ",\"_id\":".getBytes(StandardCharsets.UTF_8);
+  private static final byte NEWLINE = '\n';
+
+  private final AdaptiveBulkSizer bulkSizer;
+  private final int maxInFlight;
+  private final Semaphore inFlightBulks;
+  private final int maxRejectionRetries;
+  private final long retryBackoffMillis;
+  private final long maxRetryBackoffMillis;
+  private final GenericObjectPool<BulkBuffer> bufferPool;
+  private final ScheduledExecutorService retryExecutor;
+  /** The index action up to the (optional) document id, e.g. {"index":{"_index":"name","_type":"type" */
+  private final byte[] actionPrefix;
+
+  ElasticsearchAdaptiveBulkWriter(Config config)
+      throws IOException {
+    super(config);
+
+    int minBytes = ConfigUtils.getInt(config, ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_MIN_BYTES,
+        ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_MIN_BYTES_DEFAULT);
+    this.bulkSizer = new AdaptiveBulkSizer(minBytes,
+        ConfigUtils.getInt(config, ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_MAX_BYTES,
+            ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_MAX_BYTES_DEFAULT),
+        ConfigUtils.getInt(config, ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_INITIAL_BYTES,
+            ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_INITIAL_BYTES_DEFAULT),
+        ConfigUtils.getLong(config, ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_TARGET_LATENCY_MILLIS,
+            ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_TARGET_LATENCY_MILLIS_DEFAULT));
+    this.maxInFlight = ConfigUtils.getInt(config, ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_MAX_IN_FLIGHT,
+        ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_MAX_IN_FLIGHT_DEFAULT);
+    this.inFlightBulks = new Semaphore(this.maxInFlight);
+    this.maxRejectionRetries = ConfigUtils.getInt(config,
+        ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_MAX_REJECTION_RETRIES,
+        ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_MAX_REJECTION_RETRIES_DEFAULT);
+    this.retryBackoffMillis = ConfigUtils.getLong(config,
+        ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_RETRY_BACKOFF_MILLIS,
+        ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_RETRY_BACKOFF_MILLIS_DEFAULT);
+    this.maxRetryBackoffMillis = ConfigUtils.getLong(config,
+        ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_MAX_RETRY_BACKOFF_MILLIS,
+        ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_MAX_RETRY_BACKOFF_MILLIS_DEFAULT);
+
+    // Buffers are only created while a bulk is being built or is in flight, keep enough of them around for reuse
+    GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
+    poolConfig.setMaxTotal(-1);
+    poolConfig.setMaxIdle(this.maxInFlight + 1);
+    this.bufferPool = new GenericObjectPool<>(new BulkBuffer.Factory(minBytes), poolConfig);
+    this.retryExecutor = Executors.newSingleThreadScheduledExecutor(
+        ExecutorsUtils.newDaemonThreadFactory(Optional.of(log), Optional.of(this.getClass().getSimpleName())));
+
+    JsonObject metadata = new JsonObject();
+    metadata.addProperty("_index", this.indexName);
+    metadata.addProperty("_type", this.indexType);
+    String action = "{\"index\":" + metadata.toString();
+    this.actionPrefix = action.substring(0, action.length() - 1).getBytes(StandardCharsets.UTF_8);
+
+    log.info("Elasticsearch adaptive bulk writer configured with: initialBulkBytes={}, maxInFlight={}, "
+        + "maxRejectionRetries={}", this.bulkSizer.getBulkSizeBytes(), this.maxInFlight, this.maxRejectionRetries);
+  }
+
+  @Override
+  public Future<WriteResponse> write(final Batch<Object> batch, @Nullable WriteCallback callback) {
+    BatchTracker tracker = new BatchTracker(batch.getId(), callback);
+    BulkChunk chunk = null;
+    try {
+      for (Object record : batch.getRecords()) {
+        if (chunk == null) {
+          chunk = new BulkChunk(tracker, this.bufferPool.borrowObject());
+        }
+        append(chunk, record);
+        if (chunk.sizeInBytes() >= this.bulkSizer.getBulkSizeBytes()) {
+          BulkChunk full = chunk;
+          chunk = null;
+          dispatch(full);
+        }
+      }
+      if (chunk != null) {
+        BulkChunk last = chunk;
+        chunk = null;
+        if (last.size() > 0) {
+          dispatch(last);
+        } else {
+          this.bufferPool.returnObject(last.buffer);
+        }
+      }
+    } catch (Exception e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      if (chunk != null) {
+        this.bufferPool.returnObject(chunk.buffer);
+      }
+      log.error("Batch: {} failed with exception {}", batch.getId(), e);
+      tracker.recordFailure(e);
+    }
+    tracker.seal();
+    return tracker.future;
+  }
+
+  /**
+   * Serialize the index action and the document into the chunk. Documents that fail to serialize are logged and
+   * skipped, as in {@link ElasticsearchWriterBase#prepareBatch(Batch, WriteCallback)}.
+   */
+  private void append(BulkChunk chunk, Object record) {
+    BulkBuffer buffer = chunk.buffer;
+    int start = buffer.size();
+    try {
+      buffer.write(this.actionPrefix);
+      if (this.idMappingEnabled) {
+        buffer.write(ID_FIELD);
+        buffer.write(new JsonPrimitive(this.typeMapper.getValue(this.idFieldName, record))
+            .toString().getBytes(StandardCharsets.UTF_8));
+      }
+      buffer.write(ACTION_SUFFIX);
+      this.serializer.serializeToJson(record, buffer);
+      buffer.write(NEWLINE);
+      chunk.addItem(start, buffer.size());
+    } catch (Exception e) {
+      buffer.truncate(start);
+      log.error("Encountered exception {}", e);
+    }
+  }
+
+  /**
+   * Send the chunk once an in-flight slot is available. The slot is held until the chunk is fully acknowledged,
+   * including retries of rejected items.
+   */
+  private void dispatch(BulkChunk chunk) throws InterruptedException {
+    try {
+      this.inFlightBulks.acquire();
+    } catch (InterruptedException e) {
+      this.bufferPool.returnObject(chunk.buffer);
+      throw e;
+    }
+    chunk.tracker.chunkDispatched();
+    send(chunk);
+  }
+
+  private void send(final BulkChunk chunk) {
+    final long startTime = System.currentTimeMillis();
+    try {
+      getRestLowLevelClient().performRequestAsync("POST", BULK_ENDPOINT, Collections.<String, String>emptyMap(),
+          chunk.buffer.toEntity(), new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+              onBulkResponse(chunk, response, System.currentTimeMillis() - startTime);
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+              onBulkFailure(chunk, exception);
+            }
+          });
+    } catch (Exception e) {
+      finish(chunk, e);
+    }
+  }
+
+  private void onBulkResponse(BulkChunk chunk, Response response, long latencyMillis) {
+    try {
+      List<Object> items = parseItems(response);
+      if (items.size() != chunk.size()) {
+        throw new IOException(String.format("Expected %d item responses for bulk of batch %d, received %d",
+            chunk.size(), chunk.tracker.batchId, items.size()));
+      }
+
+      List<Integer> rejected = new ArrayList<>();
+      boolean logicalErrors = false;
+      String serverError = null;
+      for (int i = 0; i < items.size(); i++) {
+        // Each item is a single entry map from the action to its result
+        Map<?, ?> item = (Map<?, ?>) ((Map<?, ?>) items.get(i)).values().iterator().next();
+        int status = ((Number) item.get("status")).intValue();
+        if (status < 300) {
+          chunk.indexedDocuments++;
+          continue;
+        }
+        String failureMessage = String.valueOf(item.get("error"));
+        if (status == RestStatus.TOO_MANY_REQUESTS.getStatus()) {
+          rejected.add(i);
+        } else if (FutureCallbackHolder.isLogicalError(failureMessage)) {
+          logicalErrors = true;
+          if (this.malformedDocPolicy == MalformedDocPolicy.WARN) {
+            log.warn("Document id {} was malformed with error {}", item.get("_id"), failureMessage);
+          } else {
+            log.debug("Document id {} was malformed with error {}", item.get("_id"), failureMessage);
+          }
+        } else if (serverError == null) {
+          serverError = failureMessage;
+        }
+      }
+      this.bulkSizer.onResponse(latencyMillis, !rejected.isEmpty());
+
+      if (serverError != null) {
+        finish(chunk, new RuntimeException("Partial failures in the batch: " + serverError));
+      } else if (logicalErrors && this.malformedDocPolicy == MalformedDocPolicy.FAIL) {
+        finish(chunk, new RuntimeException("Partial non-recoverable failures in the batch. To ignore these, set "
+            + ElasticsearchWriterConfigurationKeys.ELASTICSEARCH_WRITER_MALFORMED_DOC_POLICY + " to "
+            + MalformedDocPolicy.IGNORE.name()));
+      } else if (!rejected.isEmpty()) {
+        chunk.retainItems(rejected, this.bufferPool.borrowObject(), this.bufferPool);
+        scheduleRetry(chunk);
+      } else {
+        finish(chunk, null);
+      }
+    } catch (Exception e) {
+      finish(chunk, e);
+    }
+  }
+
+  private void onBulkFailure(BulkChunk chunk, Exception exception) {
+    if (exception instanceof ResponseException && ((ResponseException) exception).getResponse().getStatusLine()
+        .getStatusCode() == RestStatus.TOO_MANY_REQUESTS.getStatus()) {
+      // The whole bulk was rejected
+      this.bulkSizer.onRejection();
+      scheduleRetry(chunk);
+    } else {
+      finish(chunk, exception);
+    }
+  }
+
+  private void scheduleRetry(BulkChunk chunk) {
+    chunk.attempt++;
+    if (chunk.attempt > this.maxRejectionRetries) {
+      finish(chunk, new RuntimeException(String.format("%d documents of batch %d were still rejected after %d retries",
+          chunk.size(), chunk.tracker.batchId, this.maxRejectionRetries)));
+      return;
+    }
+    long backoffMillis = Math.min(this.maxRetryBackoffMillis,
+        this.retryBackoffMillis << Math.min(chunk.attempt - 1, 30));
+    log.debug("Retrying {} rejected documents of batch {} in {} ms", chunk.size(), chunk.tracker.batchId,
+        backoffMillis);
+    try {
+      this.retryExecutor.schedule(() -> send(chunk), backoffMillis, TimeUnit.MILLISECONDS);
+    } catch (Exception e) {
+      finish(chunk, e);
+    }
+  }
+
+  private void finish(BulkChunk chunk, @Nullable Throwable failure) {
+    this.bufferPool.returnObject(chunk.buffer);
+    this.inFlightBulks.release();
+    if (failure != null) {
+      log.error("Bulk of batch {} failed with exception {}", chunk.tracker.batchId, failure);
+      chunk.tracker.recordFailure(failure);
+    }
+    chunk.tracker.chunkCompleted(chunk.indexedDocuments);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Object> parseItems(Response response)
+      throws IOException {
+    try (InputStream content = response.getEntity().getContent();
+        XContentParser parser = XContentType.JSON.xContent().createParser(NamedXContentRegistry.EMPTY, content)) {
+      Object items = parser.map().get("items");
+      if (!(items instanceof List)) {
+        throw new IOException("Bulk response does not contain any items");
+      }
+      return (List<Object>) items;
+    }
+  }
+
+  @VisibleForTesting
+  int getBulkSizeBytes() {
+    return this.bulkSizer.getBulkSizeBytes();
+  }
+
+  /**
+   * Wait until all in-flight bulks have been acknowledged.
+   */
+  @Override
+  public void flush() throws IOException {
+    try {
+      this.inFlightBulks.acquire(this.maxInFlight);
+      this.inFlightBulks.release(this.maxInFlight);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for in-flight bulks", e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      this.retryExecutor.shutdownNow();
+      this.bufferPool.close();
+      super.close();
+    }
+  }
+
+  /**
+   * The documents of a {@link Batch} sent in one bulk request, described by their offsets in the buffer.
+   */
+  private static class BulkChunk {
+    private final BatchTracker tracker;
+    private BulkBuffer buffer;
+    /** Start offset of every item followed by the end offset of the last one */
+    private List<Integer> offsets = new ArrayList<>();
+    private int attempt = 0;
+    private int indexedDocuments = 0;
+
+    BulkChunk(BatchTracker tracker, BulkBuffer buffer) {
+      this.tracker = tracker;
+      this.buffer = buffer;
+      this.offsets.add(0);
+    }
+
+    void addItem(int start, int end) {
+      this.offsets.set(this.offsets.size() - 1, start);
+      this.offsets.add(end);
+    }
+
+    int size() {
+      return this.offsets.size() - 1;
+    }
+
+    int sizeInBytes() {
+      return this.buffer.size();
+    }
+
+    /**
+     * Copy the given items into a new buffer and return the current one to the pool.
+     */
+    void retainItems(List<Integer> items, BulkBuffer newBuffer, GenericObjectPool<BulkBuffer> pool) {
+      List<Integer> newOffsets = new ArrayList<>(items.size() + 1);
+      newOffsets.add(0);
+      for (int item : items) {
+        newBuffer.append(this.buffer, this.offsets.get(item), this.offsets.get(item + 1));
+        newOffsets.add(newBuffer.size());
+      }
+      pool.returnObject(this.buffer);
+      this.buffer = newBuffer;
+      this.offsets = newOffsets;
+    }
+  }
+
+  /**
+   * Completes the future and callback of a {@link Batch} once all its bulks have completed.
+   */
+  private static class BatchTracker {
+    private final long batchId;
+    private final WriteCallback callback;
+    private final CompletableFuture<WriteResponse> future = new CompletableFuture<>();
+    // One extra count is held until the batch has been fully split into bulks
+    private final AtomicInteger pendingChunks = new AtomicInteger(1);
+    private final AtomicInteger indexedDocuments = new AtomicInteger(0);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    BatchTracker(long batchId, @Nullable WriteCallback callback) {
+      this.batchId = batchId;
+      this.callback = callback;
+    }
+
+    void chunkDispatched() {
+      this.pendingChunks.incrementAndGet();
+    }
+
+    void recordFailure(Throwable throwable) {
+      this.failure.compareAndSet(null, throwable);
+    }
+
+    void chunkCompleted(int documents) {
+      this.indexedDocuments.addAndGet(documents);
+      if (this.pendingChunks.decrementAndGet() == 0) {
+        complete();
+      }
+    }
+
+    void seal() {
+      chunkCompleted(0);
+    }
+
+    private void complete() {
+      Throwable throwable = this.failure.get();
+      if (throwable != null) {
+        this.future.completeExceptionally(throwable);
+        if (this.callback != null) {
+          this.callback.onFailure(throwable);
+        }
+      } else {
+        WriteResponse writeResponse = new GenericWriteResponse<>(this.indexedDocuments.get());
+        this.future.complete(writeResponse);
+        if (this.callback != null) {
+          this.callback.onSuccess(writeResponse);
+        }
+      }
+    }
+  }
+}
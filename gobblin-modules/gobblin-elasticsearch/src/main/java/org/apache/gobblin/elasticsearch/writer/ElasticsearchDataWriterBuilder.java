@@ -49,7 +49,12 @@ public class ElasticsearchDataWriterBuilder extends DataWriterBuilder {
             ElasticsearchWriterConfigurationKeys.ELASTICSEARCH_WRITER_CLIENT_TYPE,
             ElasticsearchWriterConfigurationKeys.ELASTICSEARCH_WRITER_CLIENT_TYPE_DEFAULT).toUpperCase())) {
       case REST: {
-        asyncDataWriter = new ElasticsearchRestWriter(config);
+        if (ConfigUtils.getBoolean(config, ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_ENABLED,
+            ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_ENABLED_DEFAULT)) {
+          asyncDataWriter = new ElasticsearchAdaptiveBulkWriter(config);
+        } else {
+          asyncDataWriter = new ElasticsearchRestWriter(config);
+        }
         break;
       }
       case TRANSPORT: {
@@ -60,6 +60,26 @@ public class ElasticsearchWriterConfigurationKeys {
   static final String FAILURE_ALLOWANCE_PCT_CONFIG = prefix("failureAllowancePercentage");
   static final double FAILURE_ALLOWANCE_PCT_DEFAULT = 0.0;
 
+  //Adaptive Bulk Writer Configuration (REST client only)
+  public static final String ADAPTIVE_BULK_ENABLED = prefix("adaptiveBulk.enabled");
+  public static final boolean ADAPTIVE_BULK_ENABLED_DEFAULT = false;
+  public static final String ADAPTIVE_BULK_MIN_BYTES = prefix("adaptiveBulk.minBytes");
+  public static final int ADAPTIVE_BULK_MIN_BYTES_DEFAULT = 256 * 1024;
+  public static final String ADAPTIVE_BULK_MAX_BYTES = prefix("adaptiveBulk.maxBytes");
+  public static final int ADAPTIVE_BULK_MAX_BYTES_DEFAULT = 16 * 1024 * 1024;
+  public static final String ADAPTIVE_BULK_INITIAL_BYTES = prefix("adaptiveBulk.initialBytes");
+  public static final int ADAPTIVE_BULK_INITIAL_BYTES_DEFAULT = 1024 * 1024;
+  public static final String ADAPTIVE_BULK_TARGET_LATENCY_MILLIS = prefix("adaptiveBulk.targetLatencyMillis");
+  public static final long ADAPTIVE_BULK_TARGET_LATENCY_MILLIS_DEFAULT = 1000;
+  public static final String ADAPTIVE_BULK_MAX_IN_FLIGHT = prefix("adaptiveBulk.maxInFlight");
+  public static final int ADAPTIVE_BULK_MAX_IN_FLIGHT_DEFAULT = 4;
+  public static final String ADAPTIVE_BULK_MAX_REJECTION_RETRIES = prefix("adaptiveBulk.maxRejectionRetries");
+  public static final int ADAPTIVE_BULK_MAX_REJECTION_RETRIES_DEFAULT = 8;
+  public static final String ADAPTIVE_BULK_RETRY_BACKOFF_MILLIS = prefix("adaptiveBulk.retryBackoffMillis");
+  public static final long ADAPTIVE_BULK_RETRY_BACKOFF_MILLIS_DEFAULT = 100;
+  public static final String ADAPTIVE_BULK_MAX_RETRY_BACKOFF_MILLIS = prefix("adaptiveBulk.maxRetryBackoffMillis");
+  public static final long ADAPTIVE_BULK_MAX_RETRY_BACKOFF_MILLIS_DEFAULT = 10000;
+
   public enum ClientType {
     TRANSPORT,
     REST
@@ -152,11 +152,7 @@ public class FutureCallbackHolder {
       }
 
       private boolean isLogicalError(BulkItemResponse bulkItemResponse) {
-        String failureMessage = bulkItemResponse.getFailureMessage();
-        return failureMessage.contains("IllegalArgumentException")
-            || failureMessage.contains("illegal_argument_exception")
-            || failureMessage.contains("MapperParsingException")
-            || failureMessage.contains("mapper_parsing_exception");
+        return FutureCallbackHolder.isLogicalError(bulkItemResponse.getFailureMessage());
       }
 
       @Override
@@ -173,6 +169,16 @@ public class FutureCallbackHolder {
   }
 
 
+  /**
+   * @return true if the item failure is permanent (e.g. a malformed document) rather than a transient server error
+   */
+  static boolean isLogicalError(String failureMessage) {
+    return failureMessage.contains("IllegalArgumentException")
+        || failureMessage.contains("illegal_argument_exception")
+        || failureMessage.contains("MapperParsingException")
+        || failureMessage.contains("mapper_parsing_exception");
+  }
+
   private WriteResponse getWriteResponseorThrow(Pair<WriteResponse, Throwable> writeResponseThrowablePair)
       throws ExecutionException {
     try {
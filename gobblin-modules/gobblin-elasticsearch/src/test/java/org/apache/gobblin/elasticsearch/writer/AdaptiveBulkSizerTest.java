@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.elasticsearch.writer;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class AdaptiveBulkSizerTest {
+
+  @Test
+  public void testGrowsWithinTargetLatency() {
+    AdaptiveBulkSizer sizer = new AdaptiveBulkSizer(100, 350, 100, 1000);
+    sizer.onResponse(10, false);
+    Assert.assertEquals(sizer.getBulkSizeBytes(), 200);
+    sizer.onResponse(1000, false);
+    Assert.assertEquals(sizer.getBulkSizeBytes(), 300);
+    // Capped at the maximum size
+    sizer.onResponse(10, false);
+    Assert.assertEquals(sizer.getBulkSizeBytes(), 350);
+  }
+
+  @Test
+  public void testShrinksOnSlowBulksAndRejections() {
+    AdaptiveBulkSizer sizer = new AdaptiveBulkSizer(100, 1000, 800, 1000);
+    sizer.onResponse(2000, false);
+    Assert.assertEquals(sizer.getBulkSizeBytes(), 600);
+    sizer.onResponse(10, true);
+    Assert.assertEquals(sizer.getBulkSizeBytes(), 300);
+    sizer.onRejection();
+    Assert.assertEquals(sizer.getBulkSizeBytes(), 150);
+    // Never goes below the minimum size
+    sizer.onRejection();
+    Assert.assertEquals(sizer.getBulkSizeBytes(), 100);
+  }
+
+  @Test
+  public void testInitialSizeIsBounded() {
+    Assert.assertEquals(new AdaptiveBulkSizer(100, 1000, 10, 1000).getBulkSizeBytes(), 100);
+    Assert.assertEquals(new AdaptiveBulkSizer(100, 1000, 5000, 1000).getBulkSizeBytes(), 1000);
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.elasticsearch.writer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.gobblin.elasticsearch.typemapping.JsonTypeMapper;
+import org.apache.gobblin.writer.Batch;
+import org.apache.gobblin.writer.WriteResponse;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Sets;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigValueFactory;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Tests for {@link ElasticsearchAdaptiveBulkWriter} against an embedded http server standing in for the
+ * Elasticsearch bulk endpoint.
+ */
+public class ElasticsearchAdaptiveBulkWriterTest {
+
+  private HttpServer server;
+  /** Document ids received by every bulk request */
+  private final List<List<String>> bulkRequests = Collections.synchronizedList(new ArrayList<>());
+  /** Document ids answered with 429 the first time they are received */
+  private final Set<String> rejectOnce = Sets.newConcurrentHashSet();
+  /** Document ids always answered with 500 */
+  private final Set<String> failAlways = Sets.newConcurrentHashSet();
+
+  @BeforeClass
+  public void setUp() throws IOException {
+    this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    this.server.createContext("/_bulk", this::handleBulk);
+    this.server.start();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    this.server.stop(0);
+  }
+
+  @BeforeMethod
+  public void reset() {
+    this.bulkRequests.clear();
+    this.rejectOnce.clear();
+    this.failAlways.clear();
+  }
+
+  @Test
+  public void testRejectedItemsAreRetried() throws Exception {
+    this.rejectOnce.add("2");
+    try (ElasticsearchAdaptiveBulkWriter writer = new ElasticsearchAdaptiveBulkWriter(getConfig(1024 * 1024))) {
+      WriteResponse response = writer.write(getBatch("1", "2", "3"), null).get(10, TimeUnit.SECONDS);
+      Assert.assertEquals(response.getRawResponse(), 3);
+    }
+    // Only the rejected document is sent again
+    Assert.assertEquals(this.bulkRequests, Arrays.asList(Arrays.asList("1", "2", "3"), Arrays.asList("2")));
+  }
+
+  @Test
+  public void testBatchIsSplitIntoBulks() throws Exception {
+    try (ElasticsearchAdaptiveBulkWriter writer = new ElasticsearchAdaptiveBulkWriter(getConfig(1))) {
+      WriteResponse response = writer.write(getBatch("1", "2", "3"), null).get(10, TimeUnit.SECONDS);
+      Assert.assertEquals(response.getRawResponse(), 3);
+    }
+    Assert.assertEquals(this.bulkRequests.size(), 3);
+    Assert.assertEquals(Sets.newHashSet(this.bulkRequests),
+        Sets.newHashSet(Arrays.asList("1"), Arrays.asList("2"), Arrays.asList("3")));
+  }
+
+  @Test
+  public void testServerErrorFailsBatch() throws Exception {
+    this.failAlways.add("2");
+    try (ElasticsearchAdaptiveBulkWriter writer = new ElasticsearchAdaptiveBulkWriter(getConfig(1024 * 1024))) {
+      writer.write(getBatch("1", "2", "3"), null).get(10, TimeUnit.SECONDS);
+      Assert.fail("Batch should fail on server errors");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause().getMessage().contains("Partial failures in the batch"));
+    }
+    // Server errors are not retried
+    Assert.assertEquals(this.bulkRequests.size(), 1);
+  }
+
+  private Config getConfig(int bulkSizeBytes) {
+    return new ConfigBuilder()
+        .setIndexName("test")
+        .setIndexType("test")
+        .setHttpPort(this.server.getAddress().getPort())
+        .setTypeMapperClassName(JsonTypeMapper.class.getCanonicalName())
+        .build()
+        .withValue(ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_MIN_BYTES,
+            ConfigValueFactory.fromAnyRef(bulkSizeBytes))
+        .withValue(ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_INITIAL_BYTES,
+            ConfigValueFactory.fromAnyRef(bulkSizeBytes))
+        .withValue(ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_MAX_BYTES,
+            ConfigValueFactory.fromAnyRef(bulkSizeBytes))
+        .withValue(ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_MAX_IN_FLIGHT, ConfigValueFactory.fromAnyRef(2))
+        .withValue(ElasticsearchWriterConfigurationKeys.ADAPTIVE_BULK_RETRY_BACKOFF_MILLIS,
+            ConfigValueFactory.fromAnyRef(10));
+  }
+
+  @SuppressWarnings("unchecked")
+  private Batch<Object> getBatch(String... ids) {
+    List<Object> records = new ArrayList<>();
+    for (String id : ids) {
+      JsonObject record = new JsonObject();
+      record.addProperty("id", id);
+      record.addProperty("name", "document " + id);
+      records.add(record);
+    }
+    Batch<Object> batch = mock(Batch.class);
+    when(batch.getRecords()).thenReturn(records);
+    return batch;
+  }
+
+  /**
+   * Answer every document of the bulk according to {@link #rejectOnce} and {@link #failAlways}.
+   */
+  private void handleBulk(HttpExchange exchange) throws IOException {
+    List<String> ids = new ArrayList<>();
+    JsonArray items = new JsonArray();
+    boolean errors = false;
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+      String action;
+      while ((action = reader.readLine()) != null && reader.readLine() != null) {
+        JsonObject metadata = new JsonParser().parse(action).getAsJsonObject().getAsJsonObject("index");
+        String id = metadata.get("_id").getAsString();
+        ids.add(id);
+
+        JsonObject result = new JsonObject();
+        result.addProperty("_index", metadata.get("_index").getAsString());
+        result.addProperty("_type", metadata.get("_type").getAsString());
+        result.addProperty("_id", id);
+        if (this.rejectOnce.remove(id)) {
+          result.addProperty("status", 429);
+          result.add("error", error("es_rejected_execution_exception"));
+          errors = true;
+        } else if (this.failAlways.contains(id)) {
+          result.addProperty("status", 500);
+          result.add("error", error("index_failed_engine_exception"));
+          errors = true;
+        } else {
+          result.addProperty("status", 201);
+        }
+        JsonObject item = new JsonObject();
+        item.add("index", result);
+        items.add(item);
+      }
+    }
+    this.bulkRequests.add(ids);
+
+    JsonObject response = new JsonObject();
+    response.addProperty("took", 1);
+    response.addProperty("errors", errors);
+    response.add("items", items);
+    byte[] body = response.toString().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private static JsonObject error(String type) {
+    JsonObject error = new JsonObject();
+    error.addProperty("type", type);
+    error.addProperty("reason", "injected " + type);
+    return error;
+  }
+}
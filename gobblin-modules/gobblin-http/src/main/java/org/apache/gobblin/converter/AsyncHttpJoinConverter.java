@@ -17,16 +17,33 @@
 package org.apache.gobblin.converter;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.avro.generic.GenericRecord;
 
+import com.codahale.metrics.Meter;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -43,9 +60,12 @@ import org.apache.gobblin.configuration.State;
 import org.apache.gobblin.configuration.WorkUnitState;
 import org.apache.gobblin.http.HttpClient;
 import org.apache.gobblin.http.HttpOperation;
+import org.apache.gobblin.http.MultiGetResponseHandler;
 import org.apache.gobblin.http.ResponseHandler;
 import org.apache.gobblin.http.ResponseStatus;
-import org.apache.gobblin.net.Request;
+import org.apache.gobblin.instrumented.Instrumented;
+import org.apache.gobblin.metrics.MetricContext;
+import org.apache.gobblin.util.ExecutorsUtils;
 import org.apache.gobblin.utils.HttpConstants;
 import org.apache.gobblin.writer.WriteCallback;
 import edu.umd.cs.findbugs.annotations.SuppressWarnings;
@@ -59,6 +79,21 @@ import edu.umd.cs.findbugs.annotations.SuppressWarnings;
  * Convert HttpOperation to RQ (by internal AsyncRequestBuilder)
  * Execute http request, get response RP (by HttpClient)
  * Combine info (DI, RQ, RP, status, etc..) to generate output DO
+ *
+ * <p>
+ *   Lookups on skewed keys can be made cheaper with:
+ *   <ul>
+ *     <li>{@link #CACHE_MAX_SIZE_KEY}: successful responses are cached by {@link HttpOperation}, for at most
+ *     {@link #CACHE_TTL_SECONDS_KEY}</li>
+ *     <li>{@link #COALESCE_REQUESTS_KEY}: records with the same {@link HttpOperation} as an in-flight request wait for
+ *     its response instead of sending another request</li>
+ *     <li>{@link #BATCH_SIZE_KEY}: up to this many operations are given to the {@link AsyncRequestBuilder} at once, so
+ *     that it can build multi-get requests. The {@link ResponseHandler} must then be a
+ *     {@link MultiGetResponseHandler}. A partial batch is sent after {@link #BATCH_MAX_DELAY_MILLIS_KEY}.</li>
+ *   </ul>
+ *   The number of in-flight records is bounded by {@link AsyncConverter1to1#MAX_CONCURRENT_ASYNC_CONVERSIONS_KEY},
+ *   and output order follows input order with {@link AsyncConverter1to1#PRESERVE_ORDER_KEY}.
+ * </p>
  */
 @Slf4j
 public abstract class AsyncHttpJoinConverter<SI, SO, DI, DO, RQ, RP> extends AsyncConverter1to1<SI, SO, DI, DO> {
@@ -69,11 +104,43 @@ public abstract class AsyncHttpJoinConverter<SI, SO, DI, DO, RQ, RP> extends Asy
           .put(HttpConstants.VERB, "GET")
           .build());
 
+  /** Maximum number of cached responses, 0 disables the cache */
+  public static final String CACHE_MAX_SIZE_KEY = CONF_PREFIX + "cache.maxSize";
+  public static final long DEFAULT_CACHE_MAX_SIZE = 0L;
+  public static final String CACHE_TTL_SECONDS_KEY = CONF_PREFIX + "cache.ttlSeconds";
+  public static final long DEFAULT_CACHE_TTL_SECONDS = 300L;
+  public static final String COALESCE_REQUESTS_KEY = CONF_PREFIX + "coalesceRequests";
+  public static final boolean DEFAULT_COALESCE_REQUESTS = false;
+  public static final String BATCH_SIZE_KEY = CONF_PREFIX + "batch.size";
+  public static final int DEFAULT_BATCH_SIZE = 1;
+  public static final String BATCH_MAX_DELAY_MILLIS_KEY = CONF_PREFIX + "batch.maxDelayMillis";
+  public static final long DEFAULT_BATCH_MAX_DELAY_MILLIS = 50L;
+
+  public static final String CACHE_HITS = "gobblin.converter.http.cacheHits";
+  public static final String CACHE_MISSES = "gobblin.converter.http.cacheMisses";
+  public static final String CACHE_HIT_RATE = "gobblin.converter.http.cacheHitRate";
+  public static final String COALESCED_REQUESTS = "gobblin.converter.http.coalescedRequests";
+  public static final String IN_FLIGHT_RECORDS = "gobblin.converter.http.inFlightRecords";
+  public static final String IN_FLIGHT_REQUESTS = "gobblin.converter.http.inFlightRequests";
+
   protected HttpClient<RQ, RP> httpClient = null;
   protected ResponseHandler<RQ, RP> responseHandler = null;
   protected AsyncRequestBuilder<GenericRecord, RQ> requestBuilder = null;
   protected boolean skipFailedRecord;
 
+  private Optional<Cache<HttpOperation, HttpJoinResponse<RQ>>> responseCache = Optional.absent();
+  private Optional<ConcurrentMap<HttpOperation, CompletableFuture<HttpJoinResponse<RQ>>>> inFlightOperations =
+      Optional.absent();
+  private int batchSize;
+  private final List<PendingOperation<RQ>> pendingOperations = new ArrayList<>();
+  private Optional<ScheduledExecutorService> batchFlusher = Optional.absent();
+
+  private final AtomicInteger inFlightRecords = new AtomicInteger();
+  private final AtomicInteger inFlightRequests = new AtomicInteger();
+  private Meter cacheHits;
+  private Meter cacheMisses;
+  private Meter coalescedRequests;
+
   public AsyncHttpJoinConverter init(WorkUnitState workUnitState) {
     super.init(workUnitState);
     Config config = ConfigBuilder.create().loadProps(workUnitState.getProperties(), CONF_PREFIX).build();
@@ -82,6 +149,40 @@ public abstract class AsyncHttpJoinConverter<SI, SO, DI, DO, RQ, RP> extends Asy
     httpClient = createHttpClient(config, workUnitState.getTaskBroker());
     responseHandler = createResponseHandler(config);
     requestBuilder = createRequestBuilder(config);
+
+    long cacheMaxSize = workUnitState.getPropAsLong(CACHE_MAX_SIZE_KEY, DEFAULT_CACHE_MAX_SIZE);
+    if (cacheMaxSize > 0) {
+      this.responseCache = Optional.of(CacheBuilder.newBuilder().maximumSize(cacheMaxSize)
+          .expireAfterWrite(workUnitState.getPropAsLong(CACHE_TTL_SECONDS_KEY, DEFAULT_CACHE_TTL_SECONDS),
+              TimeUnit.SECONDS)
+          .<HttpOperation, HttpJoinResponse<RQ>>build());
+    }
+    if (workUnitState.getPropAsBoolean(COALESCE_REQUESTS_KEY, DEFAULT_COALESCE_REQUESTS)) {
+      this.inFlightOperations = Optional.of(new ConcurrentHashMap<>());
+    }
+
+    this.batchSize = workUnitState.getPropAsInt(BATCH_SIZE_KEY, DEFAULT_BATCH_SIZE);
+    if (this.batchSize > 1) {
+      Preconditions.checkArgument(this.responseHandler instanceof MultiGetResponseHandler,
+          "%s requires a %s, got %s", BATCH_SIZE_KEY, MultiGetResponseHandler.class.getSimpleName(),
+          this.responseHandler.getClass().getName());
+      long maxDelayMillis = workUnitState.getPropAsLong(BATCH_MAX_DELAY_MILLIS_KEY, DEFAULT_BATCH_MAX_DELAY_MILLIS);
+      this.batchFlusher = Optional.of(Executors.newSingleThreadScheduledExecutor(
+          ExecutorsUtils.newDaemonThreadFactory(Optional.of(log), Optional.of("HttpJoinConverterBatchFlusher"))));
+      this.batchFlusher.get().scheduleAtFixedRate(this::flushPendingOperations, maxDelayMillis, maxDelayMillis,
+          TimeUnit.MILLISECONDS);
+    }
+
+    MetricContext metricContext = Instrumented.getMetricContext(workUnitState, getClass());
+    this.cacheHits = metricContext.meter(CACHE_HITS);
+    this.cacheMisses = metricContext.meter(CACHE_MISSES);
+    this.coalescedRequests = metricContext.meter(COALESCED_REQUESTS);
+    metricContext.register(metricContext.newContextAwareGauge(CACHE_HIT_RATE, () -> {
+      long lookups = this.cacheHits.getCount() + this.cacheMisses.getCount();
+      return lookups == 0 ? 0.0 : (double) this.cacheHits.getCount() / lookups;
+    }));
+    metricContext.register(metricContext.newContextAwareGauge(IN_FLIGHT_RECORDS, this.inFlightRecords::get));
+    metricContext.register(metricContext.newContextAwareGauge(IN_FLIGHT_REQUESTS, this.inFlightRequests::get));
     return this;
   }
 
@@ -99,102 +200,260 @@ public abstract class AsyncHttpJoinConverter<SI, SO, DI, DO, RQ, RP> extends Asy
   protected abstract DO convertRecordImpl (SO outputSchema, DI input, RQ rawRequest, ResponseStatus status) throws DataConversionException;
 
   /**
-   * A helper class which performs the conversion from http response to DO type output, saved as a {@link CompletableFuture}
+   * The raw request and the handled response of an {@link HttpOperation}, shared by all the records joined with it.
+   * A null response means the request failed and the records are skipped.
    */
-  private class AsyncHttpJoinConverterContext<SO, DI, DO, RP, RQ> {
-    private final CompletableFuture<DO> future;
-    private final AsyncHttpJoinConverter<SI, SO, DI, DO, RQ, RP> converter;
-
-    @Getter
-    private final Callback<RP> callback;
-
-    public AsyncHttpJoinConverterContext(AsyncHttpJoinConverter converter, SO outputSchema, DI input, Request<RQ> request) {
-      this.future = new CompletableFuture();
-      this.converter = converter;
-      this.callback = new Callback<RP>() {
-        @Override
-        public void onSuccess(RP result) {
-          try {
-            ResponseStatus status = AsyncHttpJoinConverterContext.this.converter.responseHandler.handleResponse(request, result);
-            switch (status.getType()) {
-              case OK:
-                AsyncHttpJoinConverterContext.this.onSuccess(request.getRawRequest(), status, outputSchema, input);
-                break;
-              case CLIENT_ERROR:
-                log.error ("Http converter client error with request {}", request.getRawRequest());
-                AsyncHttpJoinConverterContext.this.onSuccess(request.getRawRequest(), status, outputSchema, input);
-                break;
-              case SERVER_ERROR:
-                // Server side error. Retry
-                log.error ("Http converter server error with request {}", request.getRawRequest());
-                throw new DataConversionException(request.getRawRequest() + " send failed due to server error");
-              default:
-                throw new DataConversionException(request.getRawRequest() + " Should not reach here");
-            }
-          } catch (Exception e) {
-            log.error ("Http converter exception {} with request {}", e.toString(), request.getRawRequest());
-            AsyncHttpJoinConverterContext.this.future.completeExceptionally(e);
-          }
-        }
-
-        @SuppressWarnings(value = "NP_NONNULL_PARAM_VIOLATION",
-            justification = "CompletableFuture will replace null value with NIL")
-        @Override
-        public void onFailure(Throwable throwable) {
-          String errorMsg = ExceptionUtils.getMessage(throwable);
-          log.error ("Http converter on failure with request {} and throwable {}", request.getRawRequest(), errorMsg);
-
-          if (skipFailedRecord) {
-            AsyncHttpJoinConverterContext.this.future.complete( null);
-          } else {
-            AsyncHttpJoinConverterContext.this.future.completeExceptionally(throwable);
-          }
-        }
-      };
-    }
+  @AllArgsConstructor
+  @Getter
+  private static class HttpJoinResponse<RQ> {
+    private final RQ rawRequest;
+    private final ResponseStatus status;
+  }
 
-    private void onSuccess(RQ rawRequest, ResponseStatus status, SO outputSchema, DI input) throws DataConversionException {
-      log.debug("{} send with status type {}", rawRequest, status.getType());
-      DO output = this.converter.convertRecordImpl(outputSchema, input, rawRequest, status);
-      AsyncHttpJoinConverterContext.this.future.complete(output);
-    }
+  /**
+   * An {@link HttpOperation} waiting for its request to be sent
+   */
+  @AllArgsConstructor
+  private static class PendingOperation<RQ> {
+    private final HttpOperation operation;
+    private final CompletableFuture<HttpJoinResponse<RQ>> response;
   }
 
   /**
    * Convert an input record to a future object where an output record will be filled in sometime later
    * Sequence:
    *    Convert input (DI) to an http request
-   *    Send http request asynchronously, and registers an http callback
-   *    Create an {@link CompletableFuture} object. When the callback is invoked, this future object is filled in by an output record which is converted from http response.
+   *    Look up the response in the cache, or join the identical in-flight request
+   *    Otherwise send http request asynchronously, possibly batched with other operations, and registers an http callback
+   *    Create an {@link CompletableFuture} object. When the response is handled, this future object is filled in by an
+   *    output record which is converted from http response.
    *    Return the future object.
    */
+  @SuppressWarnings(value = "NP_NONNULL_PARAM_VIOLATION",
+      justification = "CompletableFuture will replace null value with NIL")
   @Override
   public final CompletableFuture<DO> convertRecordAsync(SO outputSchema, DI inputRecord, WorkUnitState workUnitState)
       throws DataConversionException {
 
     // Convert DI to HttpOperation
     HttpOperation operation = generateHttpOperation(inputRecord, workUnitState);
-    BufferedRecord<GenericRecord> bufferedRecord = new BufferedRecord<>(operation, WriteCallback.EMPTY);
 
-    // Convert HttpOperation to RQ
-    Queue<BufferedRecord<GenericRecord>> buffer = new LinkedBlockingDeque<>();
-    buffer.add(bufferedRecord);
-    AsyncRequest<GenericRecord, RQ> request = this.requestBuilder.buildRequest(buffer);
-    RQ rawRequest = request.getRawRequest();
+    if (this.responseCache.isPresent()) {
+      HttpJoinResponse<RQ> cachedResponse = this.responseCache.get().getIfPresent(operation);
+      if (cachedResponse != null) {
+        this.cacheHits.mark();
+        return CompletableFuture.completedFuture(
+            convertRecordImpl(outputSchema, inputRecord, cachedResponse.getRawRequest(), cachedResponse.getStatus()));
+      }
+      this.cacheMisses.mark();
+    }
 
-    // Execute query and get response
-    AsyncHttpJoinConverterContext context = new AsyncHttpJoinConverterContext(this, outputSchema, inputRecord, request);
+    CompletableFuture<HttpJoinResponse<RQ>> response = new CompletableFuture<>();
+    if (this.inFlightOperations.isPresent()) {
+      CompletableFuture<HttpJoinResponse<RQ>> inFlightResponse =
+          this.inFlightOperations.get().putIfAbsent(operation, response);
+      if (inFlightResponse != null) {
+        this.coalescedRequests.mark();
+        response = inFlightResponse;
+      } else {
+        send(new PendingOperation<>(operation, response));
+      }
+    } else {
+      send(new PendingOperation<>(operation, response));
+    }
+
+    this.inFlightRecords.incrementAndGet();
+    CompletableFuture<DO> output = new CompletableFuture<>();
+    response.whenComplete((joinResponse, throwable) -> {
+      this.inFlightRecords.decrementAndGet();
+      if (throwable != null) {
+        output.completeExceptionally(throwable);
+      } else if (joinResponse == null) {
+        output.complete(null);
+      } else {
+        try {
+          output.complete(
+              convertRecordImpl(outputSchema, inputRecord, joinResponse.getRawRequest(), joinResponse.getStatus()));
+        } catch (DataConversionException | RuntimeException e) {
+          log.error("Http converter exception {} with request {}", e.toString(), joinResponse.getRawRequest());
+          output.completeExceptionally(e);
+        }
+      }
+    });
+    return output;
+  }
+
+  private void send(PendingOperation<RQ> pendingOperation) throws DataConversionException {
+    if (this.batchSize <= 1) {
+      sendRequests(Collections.singletonList(pendingOperation));
+      return;
+    }
+
+    List<PendingOperation<RQ>> batch = null;
+    synchronized (this.pendingOperations) {
+      this.pendingOperations.add(pendingOperation);
+      if (this.pendingOperations.size() >= this.batchSize) {
+        batch = new ArrayList<>(this.pendingOperations);
+        this.pendingOperations.clear();
+      }
+    }
+    if (batch != null) {
+      sendRequests(batch);
+    }
+  }
 
+  private void flushPendingOperations() {
+    List<PendingOperation<RQ>> batch;
+    synchronized (this.pendingOperations) {
+      if (this.pendingOperations.isEmpty()) {
+        return;
+      }
+      batch = new ArrayList<>(this.pendingOperations);
+      this.pendingOperations.clear();
+    }
     try {
-      httpClient.sendAsyncRequest(rawRequest, context.getCallback());
-    } catch (IOException e) {
-      throw new DataConversionException(e);
+      sendRequests(batch);
+    } catch (DataConversionException e) {
+      log.error("Failed to send a batch of {} http operations", batch.size(), e);
+    }
+  }
+
+  /**
+   * Build requests from the pending operations with the {@link AsyncRequestBuilder}, and send them.
+   * Operations which could not be turned into a request are failed.
+   */
+  private void sendRequests(List<PendingOperation<RQ>> operations) throws DataConversionException {
+    Map<BufferedRecord<GenericRecord>, PendingOperation<RQ>> operationsByRecord = new IdentityHashMap<>();
+    Queue<BufferedRecord<GenericRecord>> buffer = new LinkedBlockingDeque<>();
+    for (PendingOperation<RQ> pendingOperation : operations) {
+      BufferedRecord<GenericRecord> bufferedRecord =
+          new BufferedRecord<>(pendingOperation.operation, WriteCallback.EMPTY);
+      operationsByRecord.put(bufferedRecord, pendingOperation);
+      buffer.add(bufferedRecord);
+    }
+
+    IOException sendException = null;
+    while (!buffer.isEmpty()) {
+      int bufferSize = buffer.size();
+      AsyncRequest<GenericRecord, RQ> request = this.requestBuilder.buildRequest(buffer);
+      if (request != null) {
+        List<PendingOperation<RQ>> requestOperations = new ArrayList<>();
+        for (AsyncRequest.Thunk<GenericRecord> thunk : request.getThunks()) {
+          PendingOperation<RQ> pendingOperation = operationsByRecord.remove(thunk.record);
+          if (pendingOperation != null) {
+            requestOperations.add(pendingOperation);
+          }
+        }
+        try {
+          sendRequest(request, requestOperations);
+        } catch (IOException e) {
+          this.inFlightRequests.decrementAndGet();
+          complete(requestOperations, null, e);
+          sendException = e;
+        }
+      } else if (buffer.size() == bufferSize) {
+        break;
+      }
     }
 
-    return context.future;
+    for (PendingOperation<RQ> unsentOperation : operationsByRecord.values()) {
+      complete(Collections.singletonList(unsentOperation), null,
+          new DataConversionException("Failed to build a request for " + unsentOperation.operation));
+    }
+    if (sendException != null) {
+      throw new DataConversionException(sendException);
+    }
+  }
+
+  private void sendRequest(AsyncRequest<GenericRecord, RQ> request, List<PendingOperation<RQ>> operations)
+      throws IOException {
+    this.inFlightRequests.incrementAndGet();
+    this.httpClient.sendAsyncRequest(request.getRawRequest(), new Callback<RP>() {
+      @Override
+      public void onSuccess(RP result) {
+        AsyncHttpJoinConverter.this.inFlightRequests.decrementAndGet();
+        try {
+          if (operations.size() == 1 && !(responseHandler instanceof MultiGetResponseHandler)) {
+            onResponse(request, operations.get(0), responseHandler.handleResponse(request, result));
+          } else {
+            List<ResponseStatus> statuses =
+                ((MultiGetResponseHandler<RQ, RP>) responseHandler).handleMultiGetResponse(request, result);
+            if (statuses.size() != operations.size()) {
+              throw new DataConversionException(String.format("Expected %d responses to request %s, got %d",
+                  operations.size(), request.getRawRequest(), statuses.size()));
+            }
+            for (int i = 0; i < operations.size(); i++) {
+              onResponse(request, operations.get(i), statuses.get(i));
+            }
+          }
+        } catch (Exception e) {
+          log.error ("Http converter exception {} with request {}", e.toString(), request.getRawRequest());
+          complete(operations, null, e);
+        }
+      }
+
+      @Override
+      public void onFailure(Throwable throwable) {
+        AsyncHttpJoinConverter.this.inFlightRequests.decrementAndGet();
+        String errorMsg = ExceptionUtils.getMessage(throwable);
+        log.error ("Http converter on failure with request {} and throwable {}", request.getRawRequest(), errorMsg);
+
+        if (skipFailedRecord) {
+          complete(operations, null, null);
+        } else {
+          complete(operations, null, throwable);
+        }
+      }
+    });
+  }
+
+  private void onResponse(AsyncRequest<GenericRecord, RQ> request, PendingOperation<RQ> pendingOperation,
+      ResponseStatus status) throws DataConversionException {
+    switch (status.getType()) {
+      case OK:
+        log.debug("{} send with status type {}", request.getRawRequest(), status.getType());
+        HttpJoinResponse<RQ> response = new HttpJoinResponse<>(request.getRawRequest(), status);
+        if (this.responseCache.isPresent()) {
+          this.responseCache.get().put(pendingOperation.operation, response);
+        }
+        complete(Collections.singletonList(pendingOperation), response, null);
+        break;
+      case CLIENT_ERROR:
+        log.error ("Http converter client error with request {}", request.getRawRequest());
+        complete(Collections.singletonList(pendingOperation),
+            new HttpJoinResponse<>(request.getRawRequest(), status), null);
+        break;
+      case SERVER_ERROR:
+        // Server side error. Retry
+        log.error ("Http converter server error with request {}", request.getRawRequest());
+        throw new DataConversionException(request.getRawRequest() + " send failed due to server error");
+      default:
+        throw new DataConversionException(request.getRawRequest() + " Should not reach here");
+    }
+  }
+
+  /**
+   * Complete the response of the operations, once they are no longer in flight.
+   */
+  @SuppressWarnings(value = "NP_NONNULL_PARAM_VIOLATION",
+      justification = "CompletableFuture will replace null value with NIL")
+  private void complete(List<PendingOperation<RQ>> operations, HttpJoinResponse<RQ> response, Throwable throwable) {
+    for (PendingOperation<RQ> pendingOperation : operations) {
+      if (this.inFlightOperations.isPresent()) {
+        this.inFlightOperations.get().remove(pendingOperation.operation, pendingOperation.response);
+      }
+      if (throwable != null) {
+        pendingOperation.response.completeExceptionally(throwable);
+      } else {
+        pendingOperation.response.complete(response);
+      }
+    }
   }
 
   public void close() throws IOException {
+    if (this.batchFlusher.isPresent()) {
+      ExecutorsUtils.shutdownExecutorService(this.batchFlusher.get(), Optional.of(log));
+    }
     this.httpClient.close();
   }
 }
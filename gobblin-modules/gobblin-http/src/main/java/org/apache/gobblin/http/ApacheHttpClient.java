@@ -17,6 +17,8 @@
 package org.apache.gobblin.http;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.http.client.config.RequestConfig;
@@ -30,6 +32,7 @@ import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
@@ -39,6 +42,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.gobblin.async.Callback;
 import org.apache.gobblin.broker.gobblin_scopes.GobblinScopeTypes;
 import org.apache.gobblin.broker.iface.SharedResourcesBroker;
+import org.apache.gobblin.util.ExecutorsUtils;
 import org.apache.gobblin.utils.HttpUtils;
 
 
@@ -47,6 +51,9 @@ import org.apache.gobblin.utils.HttpUtils;
  * It encapsulates a {@link CloseableHttpClient} instance to send the {@link HttpUriRequest}
  *
  * {@link CloseableHttpClient} is used
+ *
+ * Asynchronous sends run the synchronous send on a thread pool as large as the connection pool, so that a pooling
+ * connection manager can serve several requests at once.
  */
 @Slf4j
 public class ApacheHttpClient extends ThrottledHttpClient<HttpUriRequest, CloseableHttpResponse> {
@@ -73,6 +80,10 @@ public class ApacheHttpClient extends ThrottledHttpClient<HttpUriRequest, Closea
           .build());
 
   private final CloseableHttpClient client;
+  private final int maxConnections;
+  // Created on the first asynchronous send
+  private ExecutorService asyncSendExecutor = null;
+
   public ApacheHttpClient(HttpClientBuilder builder, Config config, SharedResourcesBroker<GobblinScopeTypes> broker) {
     super (broker, HttpUtils.createApacheHttpClientLimiterKey(config));
     config = config.withFallback(FALLBACK);
@@ -86,6 +97,8 @@ public class ApacheHttpClient extends ThrottledHttpClient<HttpUriRequest, Closea
     builder.disableCookieManagement().useSystemProperties().setDefaultRequestConfig(requestConfig);
     builder.setConnectionManager(getHttpConnManager(config));
     client = builder.build();
+    maxConnections = ConnManager.valueOf(config.getString(HTTP_CONN_MANAGER).toUpperCase()) == ConnManager.POOLING
+        ? config.getInt(POOLING_CONN_MANAGER_MAX_TOTAL_CONN) : 1;
   }
 
   @Override
@@ -95,7 +108,24 @@ public class ApacheHttpClient extends ThrottledHttpClient<HttpUriRequest, Closea
 
   @Override
   public void sendAsyncRequestImpl(HttpUriRequest request, Callback<CloseableHttpResponse> callback) throws IOException {
-    throw new UnsupportedOperationException("ApacheHttpClient doesn't support asynchronous send");
+    getAsyncSendExecutor().execute(() -> {
+      CloseableHttpResponse response;
+      try {
+        response = client.execute(request);
+      } catch (Exception e) {
+        callback.onFailure(e);
+        return;
+      }
+      callback.onSuccess(response);
+    });
+  }
+
+  private synchronized ExecutorService getAsyncSendExecutor() {
+    if (asyncSendExecutor == null) {
+      asyncSendExecutor = Executors.newFixedThreadPool(maxConnections,
+          ExecutorsUtils.newDaemonThreadFactory(Optional.of(LOG), Optional.of("ApacheHttpClientAsyncSend-%d")));
+    }
+    return asyncSendExecutor;
   }
 
   private HttpClientConnectionManager getHttpConnManager(Config config) {
@@ -122,6 +152,11 @@ public class ApacheHttpClient extends ThrottledHttpClient<HttpUriRequest, Closea
 
   @Override
   public void close() throws IOException {
+    synchronized (this) {
+      if (asyncSendExecutor != null) {
+        ExecutorsUtils.shutdownExecutorService(asyncSendExecutor, Optional.of(LOG));
+      }
+    }
     client.close();
   }
 }
@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.http;
+
+import java.util.List;
+
+import org.apache.gobblin.async.AsyncRequest;
+
+
+/**
+ * A {@link ResponseHandler} for requests which look up several records at once, like multi-get requests
+ *
+ * @param <RQ> type of raw request
+ * @param <RP> type of response
+ */
+public interface MultiGetResponseHandler<RQ, RP> extends ResponseHandler<RQ, RP> {
+  /**
+   * Handle the response of a request built from several records
+   *
+   * @return one {@link ResponseStatus} per record of the request, in the order of {@link AsyncRequest#getThunks()}
+   */
+  <D> List<ResponseStatus> handleMultiGetResponse(AsyncRequest<D, RQ> request, RP response);
+}
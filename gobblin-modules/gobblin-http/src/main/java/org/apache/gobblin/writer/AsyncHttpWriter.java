@@ -31,6 +31,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.gobblin.async.AsyncRequest;
 import org.apache.gobblin.async.AsyncRequestBuilder;
 import org.apache.gobblin.async.BufferedRecord;
+import org.apache.gobblin.async.Callback;
 import org.apache.gobblin.async.DispatchException;
 import org.apache.gobblin.http.HttpClient;
 import org.apache.gobblin.http.ResponseHandler;
@@ -41,6 +42,14 @@ import org.apache.gobblin.http.ResponseStatus;
  * This class is an {@link AsyncHttpWriter} that writes data in a batch, which
  * is sent via http request
  *
+ * <p>
+ *   By default, a batch is sent only after the response to the previous one. With a pipeline depth greater than 1
+ *   (see {@link AsyncHttpWriterBuilder#getPipelineDepth()}), up to that many batches are kept in flight with
+ *   {@link HttpClient#sendAsyncRequest(Object, Callback)}, over the connection pool of the client. Records are acked
+ *   through their {@link WriteCallback} when their batch completes. Failed attempts halve the number of batches allowed
+ *   in flight, and each successful batch allows one more, up to the pipeline depth.
+ * </p>
+ *
  * @param <D> type of record
  * @param <RQ> type of request
  * @param <RP> type of response
@@ -57,6 +66,13 @@ public class AsyncHttpWriter<D, RQ, RP> extends AbstractAsyncDataWriter<D> {
   private final ResponseHandler<RQ, RP> responseHandler;
   private final AsyncRequestBuilder<D, RQ> requestBuilder;
   private final int maxAttempts;
+  private final int maxPipelineDepth;
+
+  // Guards the pipeline state below
+  private final Object pipelineLock = new Object();
+  private int pipelineDepth;
+  private int inFlightBatches = 0;
+  private volatile DispatchException pipelineFailure = null;
 
   private final MetricContext context;
 
@@ -66,11 +82,18 @@ public class AsyncHttpWriter<D, RQ, RP> extends AbstractAsyncDataWriter<D> {
     this.requestBuilder = builder.getAsyncRequestBuilder();
     this.responseHandler = builder.getResponseHandler();
     this.maxAttempts = builder.getMaxAttempts();
+    this.maxPipelineDepth = Math.max(1, builder.getPipelineDepth());
+    this.pipelineDepth = this.maxPipelineDepth;
     this.context = Instrumented.getMetricContext(builder.getState(), AsyncHttpWriter.class);
   }
 
   @Override
   protected void dispatch(Queue<BufferedRecord<D>> buffer) throws DispatchException {
+    if (this.maxPipelineDepth > 1) {
+      dispatchPipelined(buffer);
+      return;
+    }
+
     AsyncRequest<D, RQ> asyncRequest = requestBuilder.buildRequest(buffer);
     if (asyncRequest == null) {
       return;
@@ -133,6 +156,121 @@ public class AsyncHttpWriter<D, RQ, RP> extends AbstractAsyncDataWriter<D> {
     }
   }
 
+  /**
+   * Send the next batch without waiting for the responses to the batches in flight, once the pipeline has room for it
+   */
+  private void dispatchPipelined(Queue<BufferedRecord<D>> buffer) throws DispatchException {
+    checkPipelineFailure();
+    AsyncRequest<D, RQ> asyncRequest = requestBuilder.buildRequest(buffer);
+    if (asyncRequest == null) {
+      return;
+    }
+
+    synchronized (this.pipelineLock) {
+      try {
+        while (this.inFlightBatches >= this.pipelineDepth && this.pipelineFailure == null) {
+          this.pipelineLock.wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        DispatchException de = new DispatchException("Interrupted while waiting for in flight batches", e);
+        onFailure(asyncRequest, de);
+        throw de;
+      }
+      if (this.pipelineFailure != null) {
+        onFailure(asyncRequest, new DispatchException("Write aborted after a failed batch", this.pipelineFailure));
+        throw this.pipelineFailure;
+      }
+      this.inFlightBatches++;
+    }
+    sendAsync(asyncRequest, 1);
+  }
+
+  private void sendAsync(AsyncRequest<D, RQ> asyncRequest, int attempt) {
+    try {
+      httpClient.sendAsyncRequest(asyncRequest.getRawRequest(), new Callback<RP>() {
+        @Override
+        public void onSuccess(RP response) {
+          onAsyncResponse(asyncRequest, attempt, response);
+        }
+
+        @Override
+        public void onFailure(Throwable throwable) {
+          onAsyncAttemptFailure(asyncRequest, attempt, new DispatchException("Write failed on IOException",
+              throwable instanceof Exception ? (Exception) throwable : new RuntimeException(throwable)));
+        }
+      });
+    } catch (Exception e) {
+      onAsyncAttemptFailure(asyncRequest, attempt, new DispatchException("Write failed on IOException", e));
+    }
+  }
+
+  private void onAsyncResponse(AsyncRequest<D, RQ> asyncRequest, int attempt, RP response) {
+    ResponseStatus status;
+    try {
+      status = responseHandler.handleResponse(asyncRequest, response);
+    } catch (RuntimeException e) {
+      onAsyncAttemptFailure(asyncRequest, attempt, new DispatchException("Failed to handle response", e));
+      return;
+    }
+
+    switch (status.getType()) {
+      case OK:
+      case CONTINUE:
+        onSuccess(asyncRequest, status);
+        completeBatch(true);
+        break;
+      case CLIENT_ERROR:
+        // Client error. Fail!
+        LOG.error("Http write failed on client error");
+        LOG.info(asyncRequest.toString());
+        failBatch(asyncRequest, new DispatchException("Write failed on client error"));
+        break;
+      default:
+        // Server side error. Retry
+        onAsyncAttemptFailure(asyncRequest, attempt,
+            new DispatchException("Write failed after " + maxAttempts + " attempts."));
+    }
+  }
+
+  private void onAsyncAttemptFailure(AsyncRequest<D, RQ> asyncRequest, int attempt, DispatchException exception) {
+    synchronized (this.pipelineLock) {
+      // Back off on errors
+      this.pipelineDepth = Math.max(1, this.pipelineDepth / 2);
+    }
+    if (attempt < maxAttempts) {
+      sendAsync(asyncRequest, attempt + 1);
+    } else {
+      LOG.error("Http write request failed after " + attempt + " attempts");
+      LOG.info(asyncRequest.toString());
+      failBatch(asyncRequest, exception);
+    }
+  }
+
+  private void failBatch(AsyncRequest<D, RQ> asyncRequest, DispatchException exception) {
+    onFailure(asyncRequest, exception);
+    if (exception.isFatal()) {
+      this.pipelineFailure = exception;
+    }
+    completeBatch(false);
+  }
+
+  private void completeBatch(boolean succeeded) {
+    synchronized (this.pipelineLock) {
+      this.inFlightBatches--;
+      if (succeeded) {
+        this.pipelineDepth = Math.min(this.maxPipelineDepth, this.pipelineDepth + 1);
+      }
+      this.pipelineLock.notifyAll();
+    }
+  }
+
+  private void checkPipelineFailure() throws DispatchException {
+    if (this.pipelineFailure != null) {
+      throw this.pipelineFailure;
+    }
+  }
+
   /**
    * Callback on sending the asyncRequest successfully
    */
@@ -184,6 +322,28 @@ public class AsyncHttpWriter<D, RQ, RP> extends AbstractAsyncDataWriter<D> {
     }
   }
 
+  /**
+   * Wait for the buffer to be empty and, when pipelining, for the batches in flight to complete
+   */
+  @Override
+  public void flush()
+      throws IOException {
+    super.flush();
+    synchronized (this.pipelineLock) {
+      try {
+        while (this.inFlightBatches > 0) {
+          this.pipelineLock.wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Waiting for in flight batches interrupted", e);
+      }
+    }
+    if (this.pipelineFailure != null) {
+      throw new IOException(this.pipelineFailure);
+    }
+  }
+
   @Override
   public void close()
       throws IOException {
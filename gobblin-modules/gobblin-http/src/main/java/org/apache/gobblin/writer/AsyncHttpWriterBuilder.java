@@ -51,12 +51,19 @@ public abstract class AsyncHttpWriterBuilder<D, RQ, RP> extends FluentDataWriter
 
   private static final String MAX_OUTSTANDING_WRITES = "maxOutstandingWrites";
   private static final String MAX_ATTEMPTS = "maxAttempts";
+  /**
+   * Maximum number of batches in flight, see {@link AsyncHttpWriter}. The default of 1 waits for the response to a
+   * batch before sending the next one.
+   */
+  public static final String PIPELINE_DEPTH = "pipelineDepth";
+  public static final int DEFAULT_PIPELINE_DEPTH = 1;
 
   private static final Config FALLBACK =
       ConfigFactory.parseMap(ImmutableMap.<String, Object>builder()
           .put(HttpConstants.ERROR_CODE_WHITELIST, "")
           .put(MAX_OUTSTANDING_WRITES, AsyncWriterManager.MAX_OUTSTANDING_WRITES_DEFAULT)
           .put(MAX_ATTEMPTS, AsyncHttpWriter.DEFAULT_MAX_ATTEMPTS)
+          .put(PIPELINE_DEPTH, DEFAULT_PIPELINE_DEPTH)
           .build());
 
   @Getter
@@ -75,6 +82,8 @@ public abstract class AsyncHttpWriterBuilder<D, RQ, RP> extends FluentDataWriter
   protected SharedResourcesBroker<GobblinScopeTypes> broker = null;
   @Getter
   protected int maxAttempts;
+  @Getter
+  protected int pipelineDepth = DEFAULT_PIPELINE_DEPTH;
   private int maxOutstandingWrites;
 
   /**
@@ -100,6 +109,7 @@ public abstract class AsyncHttpWriterBuilder<D, RQ, RP> extends FluentDataWriter
     config = config.withFallback(FALLBACK);
     this.maxOutstandingWrites = config.getInt(MAX_OUTSTANDING_WRITES);
     this.maxAttempts = config.getInt(MAX_ATTEMPTS);
+    this.pipelineDepth = config.getInt(PIPELINE_DEPTH);
     return fromConfig(config);
   }
 
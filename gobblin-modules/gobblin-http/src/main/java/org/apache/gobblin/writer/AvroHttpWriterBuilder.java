@@ -47,6 +47,14 @@ public class AvroHttpWriterBuilder extends AsyncHttpWriterBuilder<GenericRecord,
   @Override
   public AvroHttpWriterBuilder fromConfig(Config config) {
     config = config.withFallback(FALLBACK);
+    if (getPipelineDepth() > 1) {
+      // Batches in flight need a connection each
+      config = config.withFallback(ConfigFactory.parseMap(ImmutableMap.<String, Object>builder()
+          .put(ApacheHttpClient.HTTP_CONN_MANAGER, ApacheHttpClient.ConnManager.POOLING.name())
+          .put(ApacheHttpClient.POOLING_CONN_MANAGER_MAX_PER_CONN, getPipelineDepth())
+          .put(ApacheHttpClient.POOLING_CONN_MANAGER_MAX_TOTAL_CONN, getPipelineDepth())
+          .build()));
+    }
     ApacheHttpClient client = new ApacheHttpClient(HttpClientBuilder.create(), config, broker);
     this.client = client;
 
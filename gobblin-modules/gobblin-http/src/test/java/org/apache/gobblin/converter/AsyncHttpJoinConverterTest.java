@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.converter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.generic.GenericRecord;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.typesafe.config.Config;
+
+import org.apache.gobblin.async.AsyncRequest;
+import org.apache.gobblin.async.AsyncRequestBuilder;
+import org.apache.gobblin.async.BufferedRecord;
+import org.apache.gobblin.async.Callback;
+import org.apache.gobblin.broker.gobblin_scopes.GobblinScopeTypes;
+import org.apache.gobblin.broker.iface.SharedResourcesBroker;
+import org.apache.gobblin.configuration.State;
+import org.apache.gobblin.configuration.WorkUnitState;
+import org.apache.gobblin.http.HttpClient;
+import org.apache.gobblin.http.HttpOperation;
+import org.apache.gobblin.http.MultiGetResponseHandler;
+import org.apache.gobblin.http.ResponseHandler;
+import org.apache.gobblin.http.ResponseStatus;
+import org.apache.gobblin.http.StatusType;
+import org.apache.gobblin.net.Request;
+import org.apache.gobblin.source.workunit.WorkUnit;
+
+
+public class AsyncHttpJoinConverterTest {
+
+  private static WorkUnitState createWorkUnitState() {
+    return new WorkUnitState(WorkUnit.createEmpty(), new State(), Mockito.mock(SharedResourcesBroker.class));
+  }
+
+  @Test
+  public void testCachedResponses() throws Exception {
+    WorkUnitState workUnitState = createWorkUnitState();
+    workUnitState.setProp(AsyncHttpJoinConverter.CACHE_MAX_SIZE_KEY, 10);
+    TestJoinConverter converter = new TestJoinConverter();
+    converter.init(workUnitState);
+
+    Assert.assertEquals(converter.convertRecordAsync("schema", "a", workUnitState).get(), "a:a");
+    Assert.assertEquals(converter.convertRecordAsync("schema", "b", workUnitState).get(), "b:b");
+    Assert.assertEquals(converter.convertRecordAsync("schema", "a", workUnitState).get(), "a:a");
+    Assert.assertEquals(converter.client.requests, ImmutableList.of("a", "b"));
+
+    // Server errors are not cached
+    Assert.assertTrue(isFailed(converter.convertRecordAsync("schema", TestJoinConverter.SERVER_ERROR, workUnitState)));
+    Assert.assertTrue(isFailed(converter.convertRecordAsync("schema", TestJoinConverter.SERVER_ERROR, workUnitState)));
+    Assert.assertEquals(converter.client.requests.size(), 4);
+    converter.close();
+  }
+
+  @Test
+  public void testCoalescedRequests() throws Exception {
+    WorkUnitState workUnitState = createWorkUnitState();
+    workUnitState.setProp(AsyncHttpJoinConverter.COALESCE_REQUESTS_KEY, true);
+    TestJoinConverter converter = new TestJoinConverter();
+    converter.init(workUnitState);
+    converter.client.respondImmediately = false;
+
+    CompletableFuture<String> first = converter.convertRecordAsync("schema", "a", workUnitState);
+    CompletableFuture<String> second = converter.convertRecordAsync("schema", "a", workUnitState);
+    Assert.assertEquals(converter.client.requests, ImmutableList.of("a"));
+    Assert.assertFalse(first.isDone());
+
+    converter.client.respondToPendingRequests();
+    Assert.assertEquals(first.get(), "a:a");
+    Assert.assertEquals(second.get(), "a:a");
+
+    // Once answered, the operation is requested again
+    converter.convertRecordAsync("schema", "a", workUnitState);
+    Assert.assertEquals(converter.client.requests, ImmutableList.of("a", "a"));
+    converter.close();
+  }
+
+  @Test
+  public void testBatchedRequests() throws Exception {
+    WorkUnitState workUnitState = createWorkUnitState();
+    workUnitState.setProp(AsyncHttpJoinConverter.BATCH_SIZE_KEY, 3);
+    workUnitState.setProp(AsyncHttpJoinConverter.BATCH_MAX_DELAY_MILLIS_KEY, 500);
+    TestJoinConverter converter = new TestJoinConverter();
+    converter.init(workUnitState);
+
+    List<CompletableFuture<String>> outputs = new ArrayList<>();
+    for (String input : ImmutableList.of("a", "b", "c", "d")) {
+      outputs.add(converter.convertRecordAsync("schema", input, workUnitState));
+    }
+    Assert.assertEquals(outputs.get(0).get(), "a:a,b,c");
+    Assert.assertEquals(outputs.get(2).get(), "c:a,b,c");
+
+    // The partial batch is sent after the max delay
+    Assert.assertEquals(outputs.get(3).get(10, TimeUnit.SECONDS), "d:d");
+    Assert.assertEquals(converter.client.requests, ImmutableList.of("a,b,c", "d"));
+    converter.close();
+  }
+
+  private static boolean isFailed(CompletableFuture<?> future) {
+    return future.isCompletedExceptionally();
+  }
+
+  /**
+   * Joins a string record with the raw request which looked it up
+   */
+  private static class TestJoinConverter
+      extends AsyncHttpJoinConverter<String, String, String, String, String, String> {
+    static final String SERVER_ERROR = "serverError";
+
+    private final TestHttpClient client = new TestHttpClient();
+
+    @Override
+    protected HttpClient<String, String> createHttpClient(Config config,
+        SharedResourcesBroker<GobblinScopeTypes> broker) {
+      return this.client;
+    }
+
+    @Override
+    protected ResponseHandler<String, String> createResponseHandler(Config config) {
+      return new TestResponseHandler();
+    }
+
+    @Override
+    protected AsyncRequestBuilder<GenericRecord, String> createRequestBuilder(Config config) {
+      return new TestRequestBuilder();
+    }
+
+    @Override
+    protected HttpOperation generateHttpOperation(String inputRecord, State state) {
+      HttpOperation operation = new HttpOperation();
+      operation.setKeys(ImmutableMap.of("id", inputRecord));
+      return operation;
+    }
+
+    @Override
+    protected String convertSchemaImpl(String inputSchema, WorkUnitState workUnitState) {
+      return inputSchema;
+    }
+
+    @Override
+    protected String convertRecordImpl(String outputSchema, String input, String rawRequest, ResponseStatus status) {
+      return input + ":" + rawRequest;
+    }
+  }
+
+  /**
+   * Builds a request with the ids of all the buffered operations
+   */
+  private static class TestRequestBuilder implements AsyncRequestBuilder<GenericRecord, String> {
+    @Override
+    public AsyncRequest<GenericRecord, String> buildRequest(Queue<BufferedRecord<GenericRecord>> buffer) {
+      AsyncRequest<GenericRecord, String> request = new AsyncRequest<>();
+      List<String> ids = new ArrayList<>();
+      while (!buffer.isEmpty()) {
+        BufferedRecord<GenericRecord> record = buffer.poll();
+        ids.add(((HttpOperation) record.getRecord()).getKeys().get("id"));
+        request.markRecord(record, 1);
+      }
+      request.setRawRequest(Joiner.on(",").join(ids));
+      return request;
+    }
+  }
+
+  private static class TestResponseHandler implements MultiGetResponseHandler<String, String> {
+    @Override
+    public ResponseStatus handleResponse(Request<String> request, String response) {
+      return new ResponseStatus(response.contains(TestJoinConverter.SERVER_ERROR) ? StatusType.SERVER_ERROR
+          : StatusType.OK);
+    }
+
+    @Override
+    public <D> List<ResponseStatus> handleMultiGetResponse(AsyncRequest<D, String> request, String response) {
+      List<ResponseStatus> statuses = new ArrayList<>();
+      for (int i = 0; i < request.getRecordCount(); i++) {
+        statuses.add(handleResponse(request, response));
+      }
+      return statuses;
+    }
+  }
+
+  /**
+   * Answers every request with the request itself
+   */
+  private static class TestHttpClient implements HttpClient<String, String> {
+    private final List<String> requests = new ArrayList<>();
+    private final List<Callback<String>> pendingCallbacks = new ArrayList<>();
+    private final List<String> pendingRequests = new ArrayList<>();
+    private boolean respondImmediately = true;
+
+    @Override
+    public String sendRequest(String request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public synchronized void sendAsyncRequest(String request, Callback<String> callback) {
+      this.requests.add(request);
+      if (this.respondImmediately) {
+        callback.onSuccess(request);
+      } else {
+        this.pendingRequests.add(request);
+        this.pendingCallbacks.add(callback);
+      }
+    }
+
+    synchronized void respondToPendingRequests() {
+      for (int i = 0; i < this.pendingCallbacks.size(); i++) {
+        this.pendingCallbacks.get(i).onSuccess(this.pendingRequests.get(i));
+      }
+      this.pendingCallbacks.clear();
+      this.pendingRequests.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+  }
+}
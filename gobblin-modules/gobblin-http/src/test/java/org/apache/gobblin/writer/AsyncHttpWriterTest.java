@@ -17,18 +17,26 @@
 package org.apache.gobblin.writer;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.avro.generic.GenericRecord;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.testng.annotations.Test;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
+import com.sun.net.httpserver.HttpServer;
 
 import junit.framework.Assert;
 import lombok.extern.slf4j.Slf4j;
@@ -43,12 +51,17 @@ import org.apache.gobblin.broker.SharedResourcesBrokerImpl;
 import org.apache.gobblin.broker.SimpleScopeType;
 import org.apache.gobblin.broker.iface.SharedResourcesBroker;
 import org.apache.gobblin.configuration.WorkUnitState;
+import org.apache.gobblin.http.ApacheHttpClient;
+import org.apache.gobblin.http.ApacheHttpRequestBuilder;
+import org.apache.gobblin.http.ApacheHttpResponseHandler;
 import org.apache.gobblin.http.HttpClient;
+import org.apache.gobblin.http.HttpOperation;
 import org.apache.gobblin.http.ResponseHandler;
 import org.apache.gobblin.http.ResponseStatus;
 import org.apache.gobblin.http.StatusType;
 import org.apache.gobblin.http.ThrottledHttpClient;
 import org.apache.gobblin.net.Request;
+import org.apache.gobblin.utils.HttpConstants;
 import org.apache.gobblin.util.limiter.RateBasedLimiter;
 import org.apache.gobblin.util.limiter.broker.SharedLimiterFactory;
 
@@ -221,6 +234,125 @@ public class AsyncHttpWriterTest {
     Assert.assertTrue(responseHandler.attempts == AsyncHttpWriter.DEFAULT_MAX_ATTEMPTS);
   }
 
+  /**
+   * Test batches are pipelined against an embedded http server
+   */
+  public void testPipelinedWrites() throws Exception {
+    AtomicInteger inFlightRequests = new AtomicInteger();
+    AtomicInteger maxInFlightRequests = new AtomicInteger();
+    HttpServer server = createServer(200, inFlightRequests, maxInFlightRequests);
+    try {
+      EmbeddedServerWriterBuilder builder = new EmbeddedServerWriterBuilder(server, 4);
+      AsyncHttpWriter<GenericRecord, HttpUriRequest, CloseableHttpResponse> asyncHttpWriter =
+          new AsyncHttpWriter<>(builder);
+
+      List<MockWriteCallback> callbacks = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        MockWriteCallback callback = new MockWriteCallback();
+        callbacks.add(callback);
+        asyncHttpWriter.write(createHttpOperation(i), callback);
+      }
+      asyncHttpWriter.close();
+
+      for (MockWriteCallback callback : callbacks) {
+        Assert.assertTrue(callback.isSuccess);
+      }
+      Assert.assertTrue(maxInFlightRequests.get() > 1);
+      Assert.assertTrue(maxInFlightRequests.get() <= 4);
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  /**
+   * Test a batch failing on server error fails the pipelined writer
+   */
+  public void testPipelinedServerError() throws Exception {
+    AtomicInteger attempts = new AtomicInteger();
+    HttpServer server = createServer(500, attempts, new AtomicInteger());
+    try {
+      EmbeddedServerWriterBuilder builder = new EmbeddedServerWriterBuilder(server, 2);
+      AsyncHttpWriter<GenericRecord, HttpUriRequest, CloseableHttpResponse> asyncHttpWriter =
+          new AsyncHttpWriter<>(builder);
+
+      MockWriteCallback callback = new MockWriteCallback();
+      asyncHttpWriter.write(createHttpOperation(0), callback);
+
+      boolean hasAnException = false;
+      try {
+        asyncHttpWriter.close();
+      } catch (Exception e) {
+        hasAnException = true;
+      }
+      Assert.assertTrue(hasAnException);
+      Assert.assertFalse(callback.isSuccess);
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  /**
+   * Create a server answering every request with the status code after some delay, tracking concurrent requests
+   */
+  private static HttpServer createServer(int statusCode, AtomicInteger inFlightRequests,
+      AtomicInteger maxInFlightRequests) throws IOException {
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/", exchange -> {
+      maxInFlightRequests.accumulateAndGet(inFlightRequests.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(200);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      inFlightRequests.decrementAndGet();
+      byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(statusCode, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.start();
+    return server;
+  }
+
+  private static GenericRecord createHttpOperation(int id) {
+    HttpOperation operation = new HttpOperation();
+    operation.setBody("{\"id\":" + id + "}");
+    return operation;
+  }
+
+  class EmbeddedServerWriterBuilder
+      extends AsyncHttpWriterBuilder<GenericRecord, HttpUriRequest, CloseableHttpResponse> {
+    EmbeddedServerWriterBuilder(HttpServer server, int pipelineDepth) {
+      String url = "http://localhost:" + server.getAddress().getPort() + "/ingest";
+      Config config = ConfigFactory.parseMap(ImmutableMap.of(
+          HttpConstants.URL_TEMPLATE, url,
+          ApacheHttpClient.HTTP_CONN_MANAGER, ApacheHttpClient.ConnManager.POOLING.name(),
+          ApacheHttpClient.POOLING_CONN_MANAGER_MAX_PER_CONN, pipelineDepth,
+          ApacheHttpClient.POOLING_CONN_MANAGER_MAX_TOTAL_CONN, pipelineDepth));
+      this.client = new ApacheHttpClient(HttpClientBuilder.create(), config, createMockBroker());
+      this.asyncRequestBuilder = new ApacheHttpRequestBuilder(url, "POST", "application/json");
+      this.responseHandler = new ApacheHttpResponseHandler<>();
+      this.state = new WorkUnitState();
+      this.queueCapacity = 2;
+      this.maxAttempts = 3;
+      this.pipelineDepth = pipelineDepth;
+    }
+
+    @Override
+    public DataWriter<GenericRecord> build()
+        throws IOException {
+      return null;
+    }
+
+    @Override
+    public AsyncHttpWriterBuilder<GenericRecord, HttpUriRequest, CloseableHttpResponse> fromConfig(Config config) {
+      return null;
+    }
+  }
+
   class MockHttpClient implements HttpClient<HttpUriRequest, CloseableHttpResponse> {
     boolean isCloseCalled = false;
     int attempts = 0;
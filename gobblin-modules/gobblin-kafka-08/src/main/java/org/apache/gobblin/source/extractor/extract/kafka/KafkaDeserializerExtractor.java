@@ -78,6 +78,7 @@ public class KafkaDeserializerExtractor extends KafkaExtractor<Object, Object> {
 
   private static final String CONFLUENT_SCHEMA_REGISTRY_URL = "schema.registry.url";
 
+  private final Optional<Deserializers> deserializerType;
   private final Deserializer<?> kafkaDeserializer;
   private final KafkaSchemaRegistry<?, ?> kafkaSchemaRegistry;
   private final Schema latestSchema;
@@ -97,6 +98,7 @@ public class KafkaDeserializerExtractor extends KafkaExtractor<Object, Object> {
   KafkaDeserializerExtractor(WorkUnitState state, Optional<Deserializers> deserializerType,
       Deserializer<?> kafkaDeserializer, KafkaSchemaRegistry<?, ?> kafkaSchemaRegistry) {
     super(state);
+    this.deserializerType = deserializerType;
     this.kafkaDeserializer = kafkaDeserializer;
     this.kafkaSchemaRegistry = kafkaSchemaRegistry;
     this.latestSchema =
@@ -112,6 +114,14 @@ public class KafkaDeserializerExtractor extends KafkaExtractor<Object, Object> {
         : AvroUtils.convertRecordSchema((GenericRecord) deserialized, this.latestSchema);
   }
 
+  /**
+   * All pre-defined {@link Deserializers} are thread-safe. Custom deserializers are assumed not to be.
+   */
+  @Override
+  protected boolean isDecodeThreadSafe() {
+    return this.deserializerType.isPresent();
+  }
+
   @Override
   public Object getSchema() {
     try {
@@ -146,6 +146,33 @@ public class Kafka1ConsumerClient<K, V> extends AbstractBaseKafkaConsumerClient
     return this.consumer.position(topicPartition);
   }
 
+  @Override
+  public Map<KafkaPartition, Long> getEarliestOffsets(Collection<KafkaPartition> partitions) {
+    return toKafkaPartitionOffsets(partitions, this.consumer.beginningOffsets(toTopicPartitions(partitions)));
+  }
+
+  @Override
+  public Map<KafkaPartition, Long> getLatestOffsets(Collection<KafkaPartition> partitions) {
+    return toKafkaPartitionOffsets(partitions, this.consumer.endOffsets(toTopicPartitions(partitions)));
+  }
+
+  private static List<TopicPartition> toTopicPartitions(Collection<KafkaPartition> partitions) {
+    return partitions.stream().map(partition -> new TopicPartition(partition.getTopicName(), partition.getId()))
+        .collect(Collectors.toList());
+  }
+
+  private static Map<KafkaPartition, Long> toKafkaPartitionOffsets(Collection<KafkaPartition> partitions,
+      Map<TopicPartition, Long> offsets) {
+    Map<KafkaPartition, Long> offsetMap = new HashMap<>();
+    for (KafkaPartition partition : partitions) {
+      Long offset = offsets.get(new TopicPartition(partition.getTopicName(), partition.getId()));
+      if (offset != null) {
+        offsetMap.put(partition, offset);
+      }
+    }
+    return offsetMap;
+  }
+
   @Override
   public Iterator<KafkaConsumerRecord> consume(KafkaPartition partition, long nextOffset, long maxOffset) {
 
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.source.extractor.extract.kafka;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * A micro-benchmark comparing the per-message decode path previously used by {@link KafkaAvroExtractor} (a shared
+ * {@link GenericDatumReader} whose writer schema is reset per message, a fresh decoder and a fresh record) with
+ * {@link CachingAvroRecordDecoder} in each of its {@link CachingAvroRecordDecoder.RecordReuseMode}s. The payload is
+ * written with an older writer schema so that every message goes through schema resolution.
+ */
+@Warmup (iterations = 3)
+@Measurement (iterations = 10)
+@BenchmarkMode (value = Mode.Throughput)
+@Fork (value = 1)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+public class KafkaAvroDecodeBenchmark {
+
+  @State (value = Scope.Thread)
+  public static class DecodeState {
+    private static final Schema WRITER_SCHEMA = SchemaBuilder.record("Event").namespace("org.apache.gobblin.test")
+        .fields()
+        .requiredLong("time")
+        .requiredString("member")
+        .requiredInt("count")
+        .optionalString("page")
+        .name("tags").type().array().items().stringType().noDefault()
+        .endRecord();
+    private static final Schema READER_SCHEMA = SchemaBuilder.record("Event").namespace("org.apache.gobblin.test")
+        .fields()
+        .requiredLong("time")
+        .requiredString("member")
+        .requiredInt("count")
+        .optionalString("page")
+        .name("tags").type().array().items().stringType().noDefault()
+        .name("region").type().stringType().stringDefault("unknown")
+        .endRecord();
+
+    private byte[] payload;
+    private GenericDatumReader<GenericRecord> legacyReader;
+    private CachingAvroRecordDecoder noReuseDecoder;
+    private CachingAvroRecordDecoder reuseDecoder;
+    private CachingAvroRecordDecoder poolDecoder;
+
+    @Setup (value = Level.Trial)
+    public void setUp() throws IOException {
+      GenericRecord record = new GenericData.Record(WRITER_SCHEMA);
+      record.put("time", System.currentTimeMillis());
+      record.put("member", "member-12345");
+      record.put("count", 42);
+      record.put("page", "/feed/updates");
+      record.put("tags", new GenericData.Array<>(WRITER_SCHEMA.getField("tags").schema(),
+          Arrays.asList("a", "bb", "ccc", "dddd")));
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+      new GenericDatumWriter<GenericRecord>(WRITER_SCHEMA).write(record, encoder);
+      encoder.flush();
+      this.payload = out.toByteArray();
+
+      this.legacyReader = new GenericDatumReader<>(READER_SCHEMA);
+      this.noReuseDecoder = new CachingAvroRecordDecoder(CachingAvroRecordDecoder.RecordReuseMode.NONE, 1, 10);
+      this.reuseDecoder = new CachingAvroRecordDecoder(CachingAvroRecordDecoder.RecordReuseMode.REUSE, 1, 10);
+      this.poolDecoder = new CachingAvroRecordDecoder(CachingAvroRecordDecoder.RecordReuseMode.POOL, 16, 10);
+    }
+  }
+
+  @Benchmark
+  public GenericRecord legacyDecode(DecodeState state) throws IOException {
+    state.legacyReader.setSchema(DecodeState.WRITER_SCHEMA);
+    return state.legacyReader.read(null, DecoderFactory.get().binaryDecoder(state.payload, null));
+  }
+
+  @Benchmark
+  public GenericRecord cachedReaderDecode(DecodeState state) throws IOException {
+    return decode(state.noReuseDecoder, state.payload);
+  }
+
+  @Benchmark
+  public GenericRecord cachedReaderRecordReuseDecode(DecodeState state) throws IOException {
+    return decode(state.reuseDecoder, state.payload);
+  }
+
+  @Benchmark
+  public GenericRecord cachedReaderRecordPoolDecode(DecodeState state) throws IOException {
+    return decode(state.poolDecoder, state.payload);
+  }
+
+  private static GenericRecord decode(CachingAvroRecordDecoder decoder, byte[] payload) throws IOException {
+    BinaryDecoder binaryDecoder =
+        DecoderFactory.get().binaryDecoder(payload, decoder.getReusableBinaryDecoder());
+    decoder.setBinaryDecoder(binaryDecoder);
+    return decoder.decode(DecodeState.WRITER_SCHEMA, DecodeState.READER_SCHEMA, binaryDecoder);
+  }
+
+  public static void main(String[] args) throws Exception {
+    ChainedOptionsBuilder opt = new OptionsBuilder()
+        .include(KafkaAvroDecodeBenchmark.class.getSimpleName())
+        .warmupIterations(3)
+        .measurementIterations(10);
+    new Runner(opt.build()).run();
+  }
+}
@@ -75,6 +75,24 @@ public interface GobblinKafkaConsumerClient extends Closeable {
    */
   public long getLatestOffset(KafkaPartition partition) throws KafkaOffsetRetrievalFailureException;
 
+  /**
+   * Get the earliest available offset for a {@link Collection} of {@link KafkaPartition}s. NOTE: The default
+   * implementation makes a getEarliestOffset() call for every {@link KafkaPartition}. Individual implementations
+   * should override this method if the underlying KafkaConsumer can look up the offsets of many partitions at once.
+   *
+   * @param partitions for which earliest offset is retrieved
+   *
+   * @throws KafkaOffsetRetrievalFailureException - If the underlying kafka-client does not support getting earliest offset
+   */
+  public default Map<KafkaPartition, Long> getEarliestOffsets(Collection<KafkaPartition> partitions)
+      throws KafkaOffsetRetrievalFailureException {
+    Map<KafkaPartition, Long> offsetMap = Maps.newHashMap();
+    for (KafkaPartition partition: partitions) {
+      offsetMap.put(partition, getEarliestOffset(partition));
+    }
+    return offsetMap;
+  }
+
   /**
    * Get the latest available offset for a {@link Collection} of {@link KafkaPartition}s. NOTE: The default implementation
    * is not efficient i.e. it will make a getLatestOffset() call for every {@link KafkaPartition}. Individual implementations
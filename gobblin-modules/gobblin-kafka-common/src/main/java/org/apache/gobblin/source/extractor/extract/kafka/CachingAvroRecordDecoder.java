@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.source.extractor.extract.kafka;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.Decoder;
+
+import com.google.common.base.Preconditions;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import org.apache.gobblin.configuration.State;
+
+
+/**
+ * Decodes Avro binary payloads into {@link GenericRecord}s of a reader schema.
+ *
+ * <p>
+ *   Resolving {@link GenericDatumReader}s are cached per (writer schema, reader schema) pair, keyed by the
+ *   64-bit fingerprint of the full JSON form of each schema. The parsing canonical form is not used since it
+ *   drops default values, logical types and aliases, which all change how a record is resolved.
+ *   Fingerprints are memoized by schema identity, since schema registries hand out the same {@link Schema}
+ *   instance for a given schema id, so the steady-state cost of a lookup is two identity-map probes.
+ * </p>
+ *
+ * <p>
+ *   The decoder also supports reusing the output records across calls (see {@link RecordReuseMode}). Reuse must
+ *   only be enabled when the downstream converters and writers do not retain references to records: with
+ *   {@link RecordReuseMode#REUSE} a record is overwritten by the next call to {@link #decode}, with
+ *   {@link RecordReuseMode#POOL} it is overwritten after {@link #KAFKA_AVRO_RECORD_POOL_SIZE} further calls.
+ * </p>
+ *
+ * <p>
+ *   This class is not thread-safe. Each extractor should use its own instance.
+ * </p>
+ */
+public class CachingAvroRecordDecoder {
+
+  public static final String KAFKA_AVRO_DECODER_PREFIX = "kafka.avro.extractor.";
+  public static final String KAFKA_AVRO_RECORD_REUSE_MODE = KAFKA_AVRO_DECODER_PREFIX + "recordReuseMode";
+  public static final String DEFAULT_KAFKA_AVRO_RECORD_REUSE_MODE = RecordReuseMode.NONE.name();
+  public static final String KAFKA_AVRO_RECORD_POOL_SIZE = KAFKA_AVRO_DECODER_PREFIX + "recordPoolSize";
+  public static final int DEFAULT_KAFKA_AVRO_RECORD_POOL_SIZE = 16;
+  public static final String KAFKA_AVRO_READER_CACHE_SIZE = KAFKA_AVRO_DECODER_PREFIX + "readerCacheSize";
+  public static final int DEFAULT_KAFKA_AVRO_READER_CACHE_SIZE = 100;
+
+  /**
+   * How records returned by {@link #decode} are allocated.
+   */
+  public enum RecordReuseMode {
+    /** A new record is allocated for every call. Always safe. */
+    NONE,
+    /** The previously returned record is reused. Only safe if downstream never holds on to a record. */
+    REUSE,
+    /** Records are reused from a fixed-size ring. Safe if downstream holds fewer records than the pool size. */
+    POOL
+  }
+
+  @EqualsAndHashCode
+  @RequiredArgsConstructor
+  private static class SchemaPairKey {
+    private final long writerFingerprint;
+    private final long readerFingerprint;
+  }
+
+  private final int readerCacheSize;
+  private final Map<SchemaPairKey, GenericDatumReader<GenericRecord>> readers;
+  private final Map<Schema, Long> fingerprints = new IdentityHashMap<>();
+  @Getter
+  private final RecordReuseMode recordReuseMode;
+  private final GenericRecord[] recordPool;
+  private int nextPoolSlot = 0;
+
+  private BinaryDecoder binaryDecoder = null;
+
+  @Getter
+  private long readerCacheHits = 0;
+  @Getter
+  private long readerCacheMisses = 0;
+
+  public CachingAvroRecordDecoder(State state) {
+    this(RecordReuseMode.valueOf(
+            state.getProp(KAFKA_AVRO_RECORD_REUSE_MODE, DEFAULT_KAFKA_AVRO_RECORD_REUSE_MODE).toUpperCase()),
+        state.getPropAsInt(KAFKA_AVRO_RECORD_POOL_SIZE, DEFAULT_KAFKA_AVRO_RECORD_POOL_SIZE),
+        state.getPropAsInt(KAFKA_AVRO_READER_CACHE_SIZE, DEFAULT_KAFKA_AVRO_READER_CACHE_SIZE));
+  }
+
+  public CachingAvroRecordDecoder(RecordReuseMode recordReuseMode, int recordPoolSize, int readerCacheSize) {
+    Preconditions.checkArgument(recordPoolSize > 0, KAFKA_AVRO_RECORD_POOL_SIZE + " must be positive");
+    Preconditions.checkArgument(readerCacheSize > 0, KAFKA_AVRO_READER_CACHE_SIZE + " must be positive");
+    this.recordReuseMode = recordReuseMode;
+    this.readerCacheSize = readerCacheSize;
+    this.recordPool = new GenericRecord[recordReuseMode == RecordReuseMode.POOL ? recordPoolSize : 1];
+    this.readers = new LinkedHashMap<SchemaPairKey, GenericDatumReader<GenericRecord>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<SchemaPairKey, GenericDatumReader<GenericRecord>> eldest) {
+        return size() > CachingAvroRecordDecoder.this.readerCacheSize;
+      }
+    };
+  }
+
+  /**
+   * Decode a record written with {@code writerSchema} into a record of {@code readerSchema}.
+   */
+  public GenericRecord decode(Schema writerSchema, Schema readerSchema, Decoder decoder) throws IOException {
+    GenericDatumReader<GenericRecord> reader = getReader(writerSchema, readerSchema);
+    switch (this.recordReuseMode) {
+      case REUSE:
+        this.recordPool[0] = reader.read(this.recordPool[0], decoder);
+        return this.recordPool[0];
+      case POOL:
+        int slot = this.nextPoolSlot;
+        this.nextPoolSlot = (slot + 1) % this.recordPool.length;
+        this.recordPool[slot] = reader.read(this.recordPool[slot], decoder);
+        return this.recordPool[slot];
+      default:
+        return reader.read(null, decoder);
+    }
+  }
+
+  /**
+   * @return the {@link BinaryDecoder} last handed back through {@link #setBinaryDecoder(Decoder)}, which callers
+   * should pass as the {@code reuse} argument of {@link org.apache.avro.io.DecoderFactory#binaryDecoder}.
+   */
+  public BinaryDecoder getReusableBinaryDecoder() {
+    return this.binaryDecoder;
+  }
+
+  /**
+   * Remember {@code decoder} for reuse by the next payload, if it is a {@link BinaryDecoder}.
+   */
+  public void setBinaryDecoder(Decoder decoder) {
+    if (decoder instanceof BinaryDecoder) {
+      this.binaryDecoder = (BinaryDecoder) decoder;
+    }
+  }
+
+  GenericDatumReader<GenericRecord> getReader(Schema writerSchema, Schema readerSchema) {
+    SchemaPairKey key = new SchemaPairKey(fingerprint(writerSchema), fingerprint(readerSchema));
+    GenericDatumReader<GenericRecord> reader = this.readers.get(key);
+    if (reader == null) {
+      this.readerCacheMisses++;
+      reader = new GenericDatumReader<>(writerSchema, readerSchema);
+      this.readers.put(key, reader);
+    } else {
+      this.readerCacheHits++;
+    }
+    return reader;
+  }
+
+  private long fingerprint(Schema schema) {
+    Long fingerprint = this.fingerprints.get(schema);
+    if (fingerprint == null) {
+      if (this.fingerprints.size() >= 2 * this.readerCacheSize) {
+        // Registries normally return a stable set of schema instances; only a misbehaving one gets here.
+        this.fingerprints.clear();
+      }
+      fingerprint = SchemaNormalization.fingerprint64(schema.toString().getBytes(StandardCharsets.UTF_8));
+      this.fingerprints.put(schema, fingerprint);
+    }
+    return fingerprint;
+  }
+}
@@ -18,12 +18,15 @@
 package org.apache.gobblin.source.extractor.extract.kafka;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaBuilder;
 import org.apache.avro.generic.GenericData.Record;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.Decoder;
 
 import com.google.common.base.Optional;
@@ -45,7 +48,16 @@ import org.apache.gobblin.util.AvroUtils;
  *
  * Subclasses should implement {@link #getRecordSchema(byte[])} and {@link #getDecoder(byte[])}. Additionally, if
  * schema registry is not used (i.e., property {@link KafkaSchemaRegistry#KAFKA_SCHEMA_REGISTRY_CLASS} is not
- * specified, method {@link #getExtractorSchema()} should be overriden.
+ * specified, method {@link #getExtractorSchema()} should be overriden. Subclasses that decode with a
+ * {@link BinaryDecoder} should also override {@link #getDecoder(byte[], BinaryDecoder)} so that the decoder
+ * instance can be reused across records.
+ *
+ * Records are decoded through a {@link CachingAvroRecordDecoder}, which caches resolving readers per writer schema
+ * and can optionally reuse record objects (see {@link CachingAvroRecordDecoder#KAFKA_AVRO_RECORD_REUSE_MODE}).
+ * Each decoding thread gets its own {@link CachingAvroRecordDecoder}, dropped when the extractor is closed. Parallel
+ * decoding (see {@link KafkaExtractor#KAFKA_EXTRACTOR_DECODE_PARALLELISM_KEY}) is opt-in: subclasses whose
+ * {@link #getRecordSchema(byte[])} and {@link #getDecoder(byte[], BinaryDecoder)} are thread-safe can override
+ * {@link #isDecodeThreadSafe()} to return {@link #isRecordDecoderThreadSafe()}.
  *
  * @author Ziyang Liu
  */
@@ -59,6 +71,8 @@ public abstract class KafkaAvroExtractor<K> extends KafkaExtractor<Schema, Gener
   protected final Optional<KafkaSchemaRegistry<K, Schema>> schemaRegistry;
   protected final Optional<Schema> schema;
   protected final Optional<GenericDatumReader<Record>> reader;
+  // One decoder per decoding thread, cleared when the extractor is closed so pooled threads do not keep them
+  private final Map<Thread, CachingAvroRecordDecoder> recordDecoders = new ConcurrentHashMap<>();
 
   public KafkaAvroExtractor(WorkUnitState state) {
     super(state);
@@ -109,18 +123,54 @@ public abstract class KafkaAvroExtractor<K> extends KafkaExtractor<Schema, Gener
   protected GenericRecord decodeRecord(ByteArrayBasedKafkaRecord messageAndOffset) throws IOException {
     byte[] payload = messageAndOffset.getMessageBytes();
     Schema recordSchema = getRecordSchema(payload);
-    Decoder decoder = getDecoder(payload);
-    this.reader.get().setSchema(recordSchema);
+    CachingAvroRecordDecoder recordDecoder = getRecordDecoder();
+    Decoder decoder = getDecoder(payload, recordDecoder.getReusableBinaryDecoder());
+    recordDecoder.setBinaryDecoder(decoder);
     try {
-      GenericRecord record = this.reader.get().read(null, decoder);
+      GenericRecord record = recordDecoder.decode(recordSchema, this.schema.get(), decoder);
       record = convertRecord(record);
       return record;
     } catch (IOException e) {
-      log.error(String.format("Error during decoding record for partition %s: ", getCurrentPartition()));
+      // May run on a decoding thread, where the current partition of the task thread is not meaningful
+      log.error(String.format("Error during decoding record at offset %d of topic %s: ", messageAndOffset.getOffset(),
+          this.topicName));
       throw e;
     }
   }
 
+  /**
+   * @return the {@link CachingAvroRecordDecoder} of the current thread
+   */
+  protected CachingAvroRecordDecoder getRecordDecoder() {
+    return this.recordDecoders.computeIfAbsent(Thread.currentThread(),
+        thread -> new CachingAvroRecordDecoder(this.workUnitState));
+  }
+
+  /**
+   * Subclasses may keep state in their decode hooks, so they have to opt in to parallel decoding.
+   */
+  @Override
+  protected boolean isDecodeThreadSafe() {
+    return false;
+  }
+
+  /**
+   * Whether the decoding done by this class can run on several threads. Decoders are per thread, but reused records
+   * would be overwritten by decoding threads before the task thread has processed them.
+   */
+  protected boolean isRecordDecoderThreadSafe() {
+    return getRecordDecoder().getRecordReuseMode() == CachingAvroRecordDecoder.RecordReuseMode.NONE;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      this.recordDecoders.clear();
+    }
+  }
+
   /**
    * Convert the record to the output schema of this extractor
    * @param record the input record
@@ -141,4 +191,12 @@ public abstract class KafkaAvroExtractor<K> extends KafkaExtractor<Schema, Gener
    * Obtain the Avro {@link Decoder} for a Kafka record given the payload of the record.
    */
   protected abstract Decoder getDecoder(byte[] payload);
+
+  /**
+   * Obtain the Avro {@link Decoder} for a Kafka record given the payload of the record, reusing {@code reuse}
+   * (which may be null) if possible. The default implementation ignores {@code reuse}.
+   */
+  protected Decoder getDecoder(byte[] payload, BinaryDecoder reuse) {
+    return getDecoder(payload);
+  }
 }
@@ -21,12 +21,17 @@ import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -49,6 +54,7 @@ import org.apache.gobblin.source.extractor.Extractor;
 import org.apache.gobblin.source.extractor.extract.EventBasedExtractor;
 import org.apache.gobblin.util.ClassAliasResolver;
 import org.apache.gobblin.util.ConfigUtils;
+import org.apache.gobblin.util.ExecutorsUtils;
 
 import static org.apache.gobblin.configuration.ConfigurationKeys.KAFKA_BROKERS_TO_SIMPLE_NAME_MAP_KEY;
 
@@ -63,6 +69,22 @@ public abstract class KafkaExtractor<S, D> extends EventBasedExtractor<S, D> {
 
   private static final Logger LOG = LoggerFactory.getLogger(KafkaExtractor.class);
 
+  /**
+   * If enabled, message buffers are fetched by a background thread while the task thread processes earlier ones.
+   */
+  public static final String KAFKA_EXTRACTOR_PREFETCH_ENABLED_KEY = "gobblin.kafka.extractor.prefetch.enabled";
+  public static final boolean DEFAULT_KAFKA_EXTRACTOR_PREFETCH_ENABLED = false;
+  /**
+   * Maximum number of fetched message buffers kept ready by the prefetcher.
+   */
+  public static final String KAFKA_EXTRACTOR_PREFETCH_NUM_BUFFERS_KEY = "gobblin.kafka.extractor.prefetch.numBuffers";
+  public static final int DEFAULT_KAFKA_EXTRACTOR_PREFETCH_NUM_BUFFERS = 2;
+  /**
+   * Number of threads decoding the records of a prefetched buffer ahead of the task thread. Records are still
+   * returned in offset order. Only honored if prefetching is enabled and {@link #isDecodeThreadSafe()}.
+   */
+  public static final String KAFKA_EXTRACTOR_DECODE_PARALLELISM_KEY = "gobblin.kafka.extractor.decode.parallelism";
+  public static final int DEFAULT_KAFKA_EXTRACTOR_DECODE_PARALLELISM = 0;
 
   private final ClassAliasResolver<GobblinKafkaConsumerClientFactory> kafkaConsumerClientResolver;
   private final AtomicBoolean shutdownRequested = new AtomicBoolean(false);
@@ -70,6 +92,10 @@ public abstract class KafkaExtractor<S, D> extends EventBasedExtractor<S, D> {
   private final TimeUnit recordCreationTimestampUnit;
 
   private Iterator<KafkaConsumerRecord> messageIterator = null;
+  // Decoded records of the current message buffer, in lockstep with messageIterator, when decoding in parallel
+  private Iterator<Future<D>> decodedRecordIterator = null;
+  private KafkaMessageBufferPrefetcher prefetcher = null;
+  private ExecutorService decodeExecutor = null;
   @Getter
   private int currentPartitionIdx = INITIAL_PARTITION_IDX;
   @Getter
@@ -118,6 +144,36 @@ public abstract class KafkaExtractor<S, D> extends EventBasedExtractor<S, D> {
     this.recordCreationTimestampUnit = TimeUnit.valueOf(this.workUnitState.getProp(KafkaSource.RECORD_CREATION_TIMESTAMP_UNIT, TimeUnit.MILLISECONDS.name()));
   }
 
+  /**
+   * Whether {@link #decodeRecord(ByteArrayBasedKafkaRecord)} and {@link #convertRecord(Object)} may be called
+   * concurrently from several threads. Subclasses that keep no mutable decoding state should override this to
+   * allow {@link #KAFKA_EXTRACTOR_DECODE_PARALLELISM_KEY}.
+   */
+  protected boolean isDecodeThreadSafe() {
+    return false;
+  }
+
+  private void startPrefetching() {
+    if (this.partitions.isEmpty()) {
+      return;
+    }
+    this.prefetcher = new KafkaMessageBufferPrefetcher(this.kafkaConsumerClient, this.partitions, this.nextWatermark,
+        this.highWatermark, this.workUnitState.getPropAsInt(KAFKA_EXTRACTOR_PREFETCH_NUM_BUFFERS_KEY,
+        DEFAULT_KAFKA_EXTRACTOR_PREFETCH_NUM_BUFFERS));
+    int decodeParallelism = this.workUnitState.getPropAsInt(KAFKA_EXTRACTOR_DECODE_PARALLELISM_KEY,
+        DEFAULT_KAFKA_EXTRACTOR_DECODE_PARALLELISM);
+    if (decodeParallelism > 0) {
+      if (isDecodeThreadSafe()) {
+        this.decodeExecutor = Executors.newFixedThreadPool(decodeParallelism, ExecutorsUtils.newDaemonThreadFactory(
+            Optional.of(LOG), Optional.of("KafkaDecoder-" + this.topicName + "-%d")));
+      } else {
+        LOG.warn("{} is ignored since {} does not support concurrent decoding", KAFKA_EXTRACTOR_DECODE_PARALLELISM_KEY,
+            getClass().getName());
+      }
+    }
+    this.prefetcher.start();
+  }
+
   @Override
   public List<Tag<?>> generateTags(State state) {
     List<Tag<?>> tags = super.generateTags(state);
@@ -145,6 +201,11 @@ public abstract class KafkaExtractor<S, D> extends EventBasedExtractor<S, D> {
 
     this.readStartTime = System.nanoTime();
 
+    if (this.prefetcher == null && this.currentPartitionIdx == INITIAL_PARTITION_IDX
+        && this.workUnitState.getPropAsBoolean(KAFKA_EXTRACTOR_PREFETCH_ENABLED_KEY, DEFAULT_KAFKA_EXTRACTOR_PREFETCH_ENABLED)) {
+      startPrefetching();
+    }
+
     while (!allPartitionsFinished()) {
       if (currentPartitionFinished()) {
         moveToNextPartition();
@@ -152,9 +213,13 @@ public abstract class KafkaExtractor<S, D> extends EventBasedExtractor<S, D> {
       }
       if (this.messageIterator == null || !this.messageIterator.hasNext()) {
         try {
-          long fetchStartTime = System.nanoTime();
-          this.messageIterator = fetchNextMessageBuffer();
-          this.statsTracker.onFetchNextMessageBuffer(this.currentPartitionIdx, fetchStartTime);
+          if (this.prefetcher != null) {
+            this.messageIterator = takePrefetchedMessageBuffer();
+          } else {
+            long fetchStartTime = System.nanoTime();
+            this.messageIterator = fetchNextMessageBuffer();
+            this.statsTracker.onFetchNextMessageBuffer(this.currentPartitionIdx, fetchStartTime);
+          }
         } catch (Exception e) {
           LOG.error(String.format("Failed to fetch next message buffer for partition %s. Will skip this partition.",
               getCurrentPartition()), e);
@@ -172,6 +237,7 @@ public abstract class KafkaExtractor<S, D> extends EventBasedExtractor<S, D> {
         }
 
         KafkaConsumerRecord nextValidMessage = this.messageIterator.next();
+        Future<D> decodedRecord = this.decodedRecordIterator != null ? this.decodedRecordIterator.next() : null;
 
         // Even though we ask Kafka to give us a message buffer starting from offset x, it may
         // return a buffer that starts from offset smaller than x, so we need to skip messages
@@ -185,7 +251,7 @@ public abstract class KafkaExtractor<S, D> extends EventBasedExtractor<S, D> {
           // track time for decode/convert depending on the record type
           long decodeStartTime = System.nanoTime();
 
-          D record = decodeKafkaMessage(nextValidMessage);
+          D record = decodedRecord != null ? getDecodedRecord(decodedRecord) : decodeKafkaMessage(nextValidMessage);
 
           this.statsTracker.onDecodeableRecord(this.currentPartitionIdx, readStartTime, decodeStartTime,
               nextValidMessage.getValueSizeInBytes(), nextValidMessage.isTimestampLogAppend() ? nextValidMessage.getTimestamp() : 0L,
@@ -228,6 +294,51 @@ public abstract class KafkaExtractor<S, D> extends EventBasedExtractor<S, D> {
     return record;
   }
 
+  private Iterator<KafkaConsumerRecord> takePrefetchedMessageBuffer() throws Exception {
+    long waitStartTime = System.nanoTime();
+    KafkaMessageBufferPrefetcher.MessageBuffer buffer = this.prefetcher.nextBuffer(this.currentPartitionIdx);
+    this.statsTracker.onPrefetchedMessageBuffer(this.currentPartitionIdx, waitStartTime, buffer.getFetchTimeNanos(),
+        this.prefetcher.getBufferDepth());
+    if (buffer.getError() != null) {
+      throw buffer.getError();
+    }
+    if (this.decodeExecutor != null) {
+      long nextOffset = this.nextWatermark.get(this.currentPartitionIdx);
+      List<Future<D>> decodedRecords = Lists.newArrayListWithCapacity(buffer.getRecords().size());
+      for (KafkaConsumerRecord message : buffer.getRecords()) {
+        // Messages before the requested offset are skipped by readRecordImpl, so there is no need to decode them
+        decodedRecords.add(message.getOffset() < nextOffset ? null
+            : this.decodeExecutor.submit(() -> decodeKafkaMessage(message)));
+      }
+      this.decodedRecordIterator = decodedRecords.iterator();
+    }
+    return buffer.iterator();
+  }
+
+  private D getDecodedRecord(Future<D> decodedRecord) throws DataRecordException, IOException {
+    try {
+      return decodedRecord.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for a record to be decoded", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof DataRecordException) {
+        throw (DataRecordException) cause;
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new DataRecordException("Failed to decode record", (Exception) cause);
+    }
+  }
+
   @Override
   public void shutdown()
       throws JobShutdownException {
@@ -264,6 +375,7 @@ public abstract class KafkaExtractor<S, D> extends EventBasedExtractor<S, D> {
     }
 
     this.messageIterator = null;
+    this.decodedRecordIterator = null;
     if (this.currentPartitionIdx < this.partitions.size()) {
       LOG.info(String.format("Pulling partition %s from offset %d to %d, range=%d", getCurrentPartition(),
           this.nextWatermark.get(this.currentPartitionIdx), this.highWatermark.get(this.currentPartitionIdx),
@@ -317,6 +429,12 @@ public abstract class KafkaExtractor<S, D> extends EventBasedExtractor<S, D> {
 
   @Override
   public void close() throws IOException {
+    if (this.prefetcher != null) {
+      this.prefetcher.close();
+    }
+    if (this.decodeExecutor != null) {
+      ExecutorsUtils.shutdownExecutorService(this.decodeExecutor, Optional.of(LOG));
+    }
     if (!allPartitionsFinished() && currentPartitionIdx != INITIAL_PARTITION_IDX) {
       this.statsTracker.updateStatisticsForCurrentPartition(currentPartitionIdx, readStartTime, getLastSuccessfulRecordHeaderTimestamp());
     }
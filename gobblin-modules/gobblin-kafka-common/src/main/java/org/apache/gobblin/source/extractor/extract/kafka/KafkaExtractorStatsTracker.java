@@ -77,6 +77,8 @@ public class KafkaExtractorStatsTracker {
   private static final String READ_RECORD_TIME = "readRecordTime";
   private static final String DECODE_RECORD_TIME = "decodeRecordTime";
   private static final String FETCH_MESSAGE_BUFFER_TIME = "fetchMessageBufferTime";
+  private static final String FETCH_WAIT_TIME = "fetchWaitTime";
+  private static final String AVG_PREFETCH_BUFFER_DEPTH = "avgPrefetchBufferDepth";
   private static final String LAST_RECORD_HEADER_TIMESTAMP = "lastRecordHeaderTimestamp";
   private static final String OBSERVED_LATENCY_HISTOGRAM = "observedLatencyHistogram";
   private static final String CREATION_DURATION_TIME = "creationDurationTime";
@@ -178,6 +180,9 @@ public class KafkaExtractorStatsTracker {
     private long partitionTotalSize;
     private long decodeRecordTime;
     private long fetchMessageBufferTime;
+    private long fetchWaitTime;
+    private long prefetchedBufferCount;
+    private long prefetchBufferDepthSum;
     private long readRecordTime;
     private long startFetchEpochTime;
     private long stopFetchEpochTime;
@@ -338,6 +343,25 @@ public class KafkaExtractorStatsTracker {
     });
   }
 
+  /**
+   * A method that is called after the extractor has taken a batch of records from a prefetcher. The fetch itself
+   * happened on the prefetcher thread and took {@code fetchTimeNanos}; the extractor only waited for the part of it
+   * that was not overlapped with processing the previous batches.
+   * @param partitionIdx the index of Kafka partition
+   * @param waitStartTime the time instant immediately before the extractor started waiting for the batch.
+   * @param fetchTimeNanos the time spent fetching the batch from Kafka.
+   * @param bufferDepth the number of fetched batches still buffered after taking this one.
+   */
+  public void onPrefetchedMessageBuffer(int partitionIdx, long waitStartTime, long fetchTimeNanos, int bufferDepth) {
+    this.statsMap.computeIfPresent(this.partitions.get(partitionIdx), (k, v) -> {
+      v.fetchMessageBufferTime += fetchTimeNanos;
+      v.fetchWaitTime += System.nanoTime() - waitStartTime;
+      v.prefetchedBufferCount++;
+      v.prefetchBufferDepthSum += bufferDepth;
+      return v;
+    });
+  }
+
   /**
    * A method when a partition has been processed.
    * @param partitionIdx the index of Kafka partition
@@ -467,6 +491,9 @@ public class KafkaExtractorStatsTracker {
     tagsForPartition.put(DECODE_RECORD_TIME, Long.toString(TimeUnit.NANOSECONDS.toMillis(stats.getDecodeRecordTime())));
     tagsForPartition.put(FETCH_MESSAGE_BUFFER_TIME,
         Long.toString(TimeUnit.NANOSECONDS.toMillis(stats.getFetchMessageBufferTime())));
+    tagsForPartition.put(FETCH_WAIT_TIME, Long.toString(TimeUnit.NANOSECONDS.toMillis(stats.getFetchWaitTime())));
+    tagsForPartition.put(AVG_PREFETCH_BUFFER_DEPTH, Double.toString(stats.getPrefetchedBufferCount() > 0
+        ? (double) stats.getPrefetchBufferDepthSum() / stats.getPrefetchedBufferCount() : -1));
     tagsForPartition.put(READ_RECORD_TIME, Long.toString(TimeUnit.NANOSECONDS.toMillis(stats.getReadRecordTime())));
     tagsForPartition.put(UNDECODABLE_MESSAGE_COUNT, Long.toString(stats.getDecodingErrorCount()));
     tagsForPartition.put(NULL_RECORD_COUNT, Long.toString(stats.getNullRecordCount()));
@@ -607,6 +634,23 @@ public class KafkaExtractorStatsTracker {
     return this.lastAggregateExtractorStats.getNumBytesConsumed() / (consumptionDurationSecs * (1024 * 1024L));
   }
 
+  /**
+   * @param partitionIdx the index of Kafka partition
+   * @return the rate in MB/s at which the given partition has been consumed since the stats were last reset, or 0 if
+   * nothing has been consumed yet.
+   */
+  public double getConsumptionRateMBps(int partitionIdx) {
+    ExtractorStats stats = this.statsMap.get(this.partitions.get(partitionIdx));
+    if (stats == null || stats.getPartitionTotalSize() == 0) {
+      return 0;
+    }
+    long elapsedMillis = System.currentTimeMillis() - stats.getStartFetchEpochTime();
+    if (elapsedMillis <= 0) {
+      return 0;
+    }
+    return stats.getPartitionTotalSize() * 1000.0 / (elapsedMillis * (1024 * 1024L));
+  }
+
   /**
    * Reset all KafkaExtractor stats.
    */
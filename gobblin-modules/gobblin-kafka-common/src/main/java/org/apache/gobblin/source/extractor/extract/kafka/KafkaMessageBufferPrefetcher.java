@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.source.extractor.extract.kafka;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.gobblin.kafka.client.GobblinKafkaConsumerClient;
+import org.apache.gobblin.kafka.client.KafkaConsumerRecord;
+import org.apache.gobblin.util.ExecutorsUtils;
+
+
+/**
+ * Fetches message buffers for the partitions of a {@link KafkaExtractor} on a background thread, keeping up to
+ * a fixed number of fetched buffers ready so that the task thread does not wait on Kafka while records are
+ * being decoded, converted and written.
+ *
+ * <p>
+ *   Partitions are fetched in index order, each from its start offset up to its high watermark, and every
+ *   partition is terminated by an end-of-partition buffer (or by a buffer carrying the fetch error). The task
+ *   thread calls {@link #nextBuffer(int)} with the index of the partition it is currently reading; buffers of
+ *   partitions it has already moved past are dropped.
+ * </p>
+ *
+ * <p>
+ *   Once started, the prefetcher is the only user of the {@link GobblinKafkaConsumerClient}, which need not be
+ *   thread-safe. {@link #nextBuffer(int)} must only be called from a single thread.
+ * </p>
+ */
+@Slf4j
+class KafkaMessageBufferPrefetcher implements Closeable {
+
+  private static final long OFFER_TIMEOUT_MILLIS = 100L;
+
+  /**
+   * A batch of records fetched from a single partition.
+   */
+  @Getter
+  @AllArgsConstructor
+  static class MessageBuffer {
+    private final int partitionIdx;
+    private final List<KafkaConsumerRecord> records;
+    /** Time spent by the fetcher in {@link GobblinKafkaConsumerClient#consume} for this buffer. */
+    private final long fetchTimeNanos;
+    private final Exception error;
+
+    boolean isEndOfPartition() {
+      return this.records.isEmpty();
+    }
+
+    Iterator<KafkaConsumerRecord> iterator() {
+      return this.records.iterator();
+    }
+
+    static MessageBuffer endOfPartition(int partitionIdx) {
+      return new MessageBuffer(partitionIdx, Collections.emptyList(), 0L, null);
+    }
+  }
+
+  private final GobblinKafkaConsumerClient kafkaConsumerClient;
+  private final List<KafkaPartition> partitions;
+  private final MultiLongWatermark startOffsets;
+  private final MultiLongWatermark highWatermark;
+  private final BlockingQueue<MessageBuffer> buffers;
+  private final ExecutorService fetcher;
+  private volatile boolean closed = false;
+  private MessageBuffer pendingBuffer = null;
+
+  KafkaMessageBufferPrefetcher(GobblinKafkaConsumerClient kafkaConsumerClient, List<KafkaPartition> partitions,
+      MultiLongWatermark startOffsets, MultiLongWatermark highWatermark, int numBuffers) {
+    Preconditions.checkArgument(numBuffers > 0, "Number of prefetched buffers must be positive");
+    this.kafkaConsumerClient = kafkaConsumerClient;
+    this.partitions = partitions;
+    this.startOffsets = new MultiLongWatermark(startOffsets);
+    this.highWatermark = highWatermark;
+    this.buffers = new ArrayBlockingQueue<>(numBuffers);
+    this.fetcher = Executors.newSingleThreadExecutor(ExecutorsUtils.newDaemonThreadFactory(Optional.of(log),
+        Optional.of("KafkaPrefetcher-" + partitions.get(0).getTopicName() + "-%d")));
+  }
+
+  void start() {
+    this.fetcher.submit(this::fetchAllPartitions);
+  }
+
+  /**
+   * Block until the next buffer of partition {@code partitionIdx} is available.
+   *
+   * @return the next {@link MessageBuffer} of the partition. The buffer is empty once the partition is exhausted,
+   * and has a non-null {@link MessageBuffer#getError()} if fetching the partition failed.
+   */
+  MessageBuffer nextBuffer(int partitionIdx) throws InterruptedException {
+    while (true) {
+      MessageBuffer buffer = this.pendingBuffer != null ? this.pendingBuffer : this.buffers.take();
+      this.pendingBuffer = null;
+      if (buffer.getPartitionIdx() < partitionIdx) {
+        // Left over from a partition the extractor has already finished
+        continue;
+      }
+      if (buffer.getPartitionIdx() > partitionIdx) {
+        this.pendingBuffer = buffer;
+        return MessageBuffer.endOfPartition(partitionIdx);
+      }
+      return buffer;
+    }
+  }
+
+  /**
+   * @return the number of fetched buffers waiting to be consumed.
+   */
+  int getBufferDepth() {
+    return this.buffers.size();
+  }
+
+  private void fetchAllPartitions() {
+    try {
+      for (int idx = 0; idx < this.partitions.size() && !this.closed; idx++) {
+        fetchPartition(idx);
+      }
+    } catch (Throwable t) {
+      log.error("Prefetcher for topic " + this.partitions.get(0).getTopicName() + " failed", t);
+    } finally {
+      // Terminates every partition the extractor may still be waiting on
+      put(MessageBuffer.endOfPartition(this.partitions.size()));
+    }
+  }
+
+  private void fetchPartition(int idx) {
+    KafkaPartition partition = this.partitions.get(idx);
+    long nextOffset = this.startOffsets.get(idx);
+    long maxOffset = this.highWatermark.get(idx);
+    while (!this.closed && nextOffset < maxOffset) {
+      long fetchStartTime = System.nanoTime();
+      List<KafkaConsumerRecord> records;
+      try {
+        Iterator<KafkaConsumerRecord> iterator = this.kafkaConsumerClient.consume(partition, nextOffset, maxOffset);
+        records = iterator == null ? Collections.emptyList() : Lists.newArrayList(iterator);
+      } catch (Exception e) {
+        put(new MessageBuffer(idx, Collections.emptyList(), System.nanoTime() - fetchStartTime, e));
+        return;
+      }
+      if (records.isEmpty()) {
+        break;
+      }
+      if (!put(new MessageBuffer(idx, records, System.nanoTime() - fetchStartTime, null))) {
+        return;
+      }
+      long lastNextOffset = records.get(records.size() - 1).getNextOffset();
+      if (lastNextOffset <= nextOffset) {
+        break;
+      }
+      nextOffset = lastNextOffset;
+    }
+    put(MessageBuffer.endOfPartition(idx));
+  }
+
+  private boolean put(MessageBuffer buffer) {
+    try {
+      while (!this.closed) {
+        if (this.buffers.offer(buffer, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
+  /**
+   * Stop fetching. Must be called before the {@link GobblinKafkaConsumerClient} is closed.
+   */
+  @Override
+  public void close() {
+    this.closed = true;
+    ExecutorsUtils.shutdownExecutorService(this.fetcher, Optional.of(log), 10, TimeUnit.SECONDS);
+  }
+}
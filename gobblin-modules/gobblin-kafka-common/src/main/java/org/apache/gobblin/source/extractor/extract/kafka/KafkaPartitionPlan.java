@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.source.extractor.extract.kafka;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.gobblin.source.extractor.extract.kafka.workunit.packer.KafkaWorkUnitPacker;
+import org.apache.gobblin.source.workunit.WorkUnit;
+
+
+/**
+ * The partitions to be pulled by a {@link KafkaSource} job, before their {@link WorkUnit}s are created.
+ *
+ * The offsets and previous-run state of every partition are kept in primitive arrays, so that a job with a very large
+ * number of partitions can be planned and packed (see {@link KafkaWorkUnitPacker#pack(KafkaPartitionPlan, int)})
+ * with a few dozen bytes per partition. The {@link WorkUnit} of a partition, which carries a full property set, is
+ * only created by {@link #createWorkUnit(int)} once the partition has been packed.
+ *
+ * Partitions can be added concurrently.
+ */
+public class KafkaPartitionPlan {
+
+  /**
+   * Creates the {@link WorkUnit} of the partition at a given index of a {@link KafkaPartitionPlan}.
+   */
+  public interface WorkUnitFactory {
+    WorkUnit create(KafkaPartitionPlan plan, int index);
+  }
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  // Offsets of a partition are stored in NUM_OFFSETS consecutive slots of this.offsets
+  private static final int LOW_WATERMARK = 0;
+  private static final int HIGH_WATERMARK = 1;
+  private static final int OFFSET_FETCH_EPOCH_TIME = 2;
+  private static final int PREVIOUS_START_FETCH_EPOCH_TIME = 3;
+  private static final int PREVIOUS_STOP_FETCH_EPOCH_TIME = 4;
+  private static final int PREVIOUS_LOW_WATERMARK = 5;
+  private static final int PREVIOUS_HIGH_WATERMARK = 6;
+  private static final int PREVIOUS_OFFSET_FETCH_EPOCH_TIME = 7;
+  private static final int PREVIOUS_LATEST_OFFSET = 8;
+  private static final int NUM_OFFSETS = 9;
+
+  private final WorkUnitFactory workUnitFactory;
+
+  private KafkaPartition[] partitions = new KafkaPartition[INITIAL_CAPACITY];
+  private long[] offsets = new long[INITIAL_CAPACITY * NUM_OFFSETS];
+  private int[] numTopicPartitions = new int[INITIAL_CAPACITY];
+  private boolean[] withSourceStateProps = new boolean[INITIAL_CAPACITY];
+  private double[] estSizes = new double[INITIAL_CAPACITY];
+  private int size = 0;
+
+  public KafkaPartitionPlan(WorkUnitFactory workUnitFactory) {
+    this.workUnitFactory = workUnitFactory;
+  }
+
+  /**
+   * Add a partition to this plan.
+   *
+   * @param numTopicPartitions the number of partitions of the topic, or 0 if it should not be set on the
+   *                           {@link WorkUnit}.
+   * @param withSourceStateProps whether the job-level properties copied to the {@link WorkUnit}s of pulled partitions
+   *                             should be set. False for partitions that are only kept to persist their checkpoint.
+   * @return the index of the partition
+   */
+  synchronized int add(KafkaPartition partition, KafkaSource.Offsets partitionOffsets, int numTopicPartitions,
+      boolean withSourceStateProps) {
+    if (this.size == this.partitions.length) {
+      int capacity = this.size * 2;
+      this.partitions = Arrays.copyOf(this.partitions, capacity);
+      this.offsets = Arrays.copyOf(this.offsets, capacity * NUM_OFFSETS);
+      this.numTopicPartitions = Arrays.copyOf(this.numTopicPartitions, capacity);
+      this.withSourceStateProps = Arrays.copyOf(this.withSourceStateProps, capacity);
+      this.estSizes = Arrays.copyOf(this.estSizes, capacity);
+    }
+    int index = this.size++;
+    this.partitions[index] = partition;
+    int base = index * NUM_OFFSETS;
+    this.offsets[base + LOW_WATERMARK] = partitionOffsets.getStartOffset();
+    this.offsets[base + HIGH_WATERMARK] = partitionOffsets.getLatestOffset();
+    this.offsets[base + OFFSET_FETCH_EPOCH_TIME] = partitionOffsets.getOffsetFetchEpochTime();
+    this.offsets[base + PREVIOUS_START_FETCH_EPOCH_TIME] = partitionOffsets.getPreviousStartFetchEpochTime();
+    this.offsets[base + PREVIOUS_STOP_FETCH_EPOCH_TIME] = partitionOffsets.getPreviousStopFetchEpochTime();
+    this.offsets[base + PREVIOUS_LOW_WATERMARK] = partitionOffsets.getPreviousStartOffset();
+    this.offsets[base + PREVIOUS_HIGH_WATERMARK] = partitionOffsets.getPreviousEndOffset();
+    this.offsets[base + PREVIOUS_OFFSET_FETCH_EPOCH_TIME] = partitionOffsets.getPreviousOffsetFetchEpochTime();
+    this.offsets[base + PREVIOUS_LATEST_OFFSET] = partitionOffsets.getPreviousLatestOffset();
+    this.numTopicPartitions[index] = numTopicPartitions;
+    this.withSourceStateProps[index] = withSourceStateProps;
+    return index;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public KafkaPartition getPartition(int index) {
+    return this.partitions[index];
+  }
+
+  public long getLowWatermark(int index) {
+    return getOffset(index, LOW_WATERMARK);
+  }
+
+  public long getHighWatermark(int index) {
+    return getOffset(index, HIGH_WATERMARK);
+  }
+
+  public double getEstSize(int index) {
+    return this.estSizes[index];
+  }
+
+  public void setEstSize(int index, double estSize) {
+    this.estSizes[index] = estSize;
+  }
+
+  long getOffsetFetchEpochTime(int index) {
+    return getOffset(index, OFFSET_FETCH_EPOCH_TIME);
+  }
+
+  long getPreviousStartFetchEpochTime(int index) {
+    return getOffset(index, PREVIOUS_START_FETCH_EPOCH_TIME);
+  }
+
+  long getPreviousStopFetchEpochTime(int index) {
+    return getOffset(index, PREVIOUS_STOP_FETCH_EPOCH_TIME);
+  }
+
+  long getPreviousLowWatermark(int index) {
+    return getOffset(index, PREVIOUS_LOW_WATERMARK);
+  }
+
+  long getPreviousHighWatermark(int index) {
+    return getOffset(index, PREVIOUS_HIGH_WATERMARK);
+  }
+
+  long getPreviousOffsetFetchEpochTime(int index) {
+    return getOffset(index, PREVIOUS_OFFSET_FETCH_EPOCH_TIME);
+  }
+
+  long getPreviousLatestOffset(int index) {
+    return getOffset(index, PREVIOUS_LATEST_OFFSET);
+  }
+
+  int getNumTopicPartitions(int index) {
+    return this.numTopicPartitions[index];
+  }
+
+  boolean isWithSourceStateProps(int index) {
+    return this.withSourceStateProps[index];
+  }
+
+  private long getOffset(int index, int field) {
+    return this.offsets[index * NUM_OFFSETS + field];
+  }
+
+  /**
+   * @return the indexes of the partitions of each topic, in the order the partitions were added.
+   */
+  public Map<String, int[]> getIndexesByTopic() {
+    Map<String, Integer> counts = Maps.newLinkedHashMap();
+    for (int i = 0; i < this.size; i++) {
+      counts.merge(this.partitions[i].getTopicName(), 1, Integer::sum);
+    }
+    Map<String, int[]> indexesByTopic = Maps.newLinkedHashMap();
+    for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+      indexesByTopic.put(entry.getKey(), new int[entry.getValue()]);
+    }
+    Map<String, Integer> filled = Maps.newHashMap();
+    for (int i = 0; i < this.size; i++) {
+      String topic = this.partitions[i].getTopicName();
+      int position = filled.merge(topic, 1, Integer::sum) - 1;
+      indexesByTopic.get(topic)[position] = i;
+    }
+    return indexesByTopic;
+  }
+
+  /**
+   * Create the {@link WorkUnit} of the partition at {@code index}. A new {@link WorkUnit} is created on every call.
+   */
+  public WorkUnit createWorkUnit(int index) {
+    return this.workUnitFactory.create(this, index);
+  }
+
+  /**
+   * Create the {@link WorkUnit}s of all partitions, grouped by topic. Used for {@link KafkaWorkUnitPacker}s that
+   * cannot pack a {@link KafkaPartitionPlan}.
+   */
+  public Map<String, List<WorkUnit>> createWorkUnitsByTopic() {
+    Map<String, List<WorkUnit>> workUnitsByTopic = Maps.newLinkedHashMap();
+    for (Map.Entry<String, int[]> entry : getIndexesByTopic().entrySet()) {
+      List<WorkUnit> workUnits = Lists.newArrayListWithCapacity(entry.getValue().length);
+      for (int index : entry.getValue()) {
+        workUnits.add(createWorkUnit(index));
+      }
+      workUnitsByTopic.put(entry.getKey(), workUnits);
+    }
+    return workUnitsByTopic;
+  }
+}
@@ -262,6 +262,7 @@ public class KafkaProduceRateTracker {
         kafkaWatermark = new KafkaStreamingExtractor.KafkaWatermark(partition, new LongWatermark(maxOffset >= 0? maxOffset : 0L));
       }
       long avgRecordSize = this.statsTracker.getAvgRecordSize(partitionIndex);
+      double latestConsumeRate = this.statsTracker.getConsumptionRateMBps(partitionIndex);
       long previousMaxOffset = highWatermark.get(partitionIndex++);
       //If maxOffset < 0, it means that we could not get max offsets from Kafka due to metadata fetch failure.
       // In this case, carry previous state forward and set produce-rate to negative value, indicating it's not available.
@@ -279,6 +280,10 @@ public class KafkaProduceRateTracker {
       unacknowledgedWatermark.setAvgProduceRates(stats.getAvgProduceRates());
       unacknowledgedWatermark.setAvgConsumeRate(stats.getAvgConsumeRate());
       unacknowledgedWatermark.setAvgRecordSize(stats.getAvgRecordSize());
+      //Per-partition consume rate and lag are used by the streaming rebalancer to detect hot partitions.
+      unacknowledgedWatermark.setLatestConsumeRate(latestConsumeRate);
+      unacknowledgedWatermark.setLag(maxOffset >= 0
+          ? Math.max(0L, maxOffset - unacknowledgedWatermark.getLwm().getValue() - 1) : -1L);
       partitionsToProdRate.put(partition, stats.getCurrentProduceRate());
     }
     this.lastReportTimeMillis = currentTimeMillis;
@@ -45,6 +45,11 @@ public class KafkaSimpleExtractor extends KafkaExtractor<String, byte[]> {
     return kafkaConsumerRecord.getMessageBytes();
   }
 
+  @Override
+  protected boolean isDecodeThreadSafe() {
+    return true;
+  }
+
   /**
    * Get the schema (metadata) of the extracted data records.
    *
@@ -26,11 +26,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleSupplier;
 import java.util.regex.Pattern;
 
 import java.util.stream.Collectors;
@@ -50,6 +53,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.typesafe.config.Config;
 
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -141,14 +145,18 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
   public static final Boolean DEFAULT_OBSERVED_LATENCY_MEASUREMENT_ENABLED = false;
   public static final String RECORD_CREATION_TIMESTAMP_FIELD = "gobblin.kafka.recordCreationTimestampField";
   public static final String RECORD_CREATION_TIMESTAMP_UNIT = "gobblin.kafka.recordCreationTimestampUnit";
+  /**
+   * If positive, the earliest and latest offsets of all partitions are fetched up front, in parallel batches of
+   * this many partitions spanning topics, instead of with two requests per partition. Partitions whose batch fails
+   * fall back to per-partition requests.
+   */
+  public static final String OFFSET_FETCH_BATCH_SIZE = "gobblin.kafka.offsetFetchBatchSize";
+  public static final int DEFAULT_OFFSET_FETCH_BATCH_SIZE = 0;
 
   private final Set<String> moveToLatestTopics = Sets.newTreeSet(String.CASE_INSENSITIVE_ORDER);
-  private final Map<KafkaPartition, Long> previousOffsets = Maps.newConcurrentMap();
-  private final Map<KafkaPartition, Long> previousLowWatermarks = Maps.newConcurrentMap();
-  private final Map<KafkaPartition, Long> previousExpectedHighWatermarks = Maps.newConcurrentMap();
-  private final Map<KafkaPartition, Long> previousOffsetFetchEpochTimes = Maps.newConcurrentMap();
-  private final Map<KafkaPartition, Long> previousStartFetchEpochTimes = Maps.newConcurrentMap();
-  private final Map<KafkaPartition, Long> previousStopFetchEpochTimes = Maps.newConcurrentMap();
+  // One entry per partition seen in the previous run, instead of one entry in each of six maps
+  private final Map<KafkaPartition, PreviousPartitionState> previousPartitionStates = Maps.newConcurrentMap();
+  private final Map<KafkaPartition, FetchedOffsets> prefetchedOffsets = Maps.newConcurrentMap();
 
   private final Set<KafkaPartition> partitionsToBeProcessed = Sets.newConcurrentHashSet();
 
@@ -216,7 +224,6 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
     this.lineageInfo = LineageInfo.getLineageInfo(state.getBroker());
 
     Map<String, List<Integer>> filteredTopicPartitionMap = filteredTopicPartition.or(new HashMap<>());
-    Map<String, List<WorkUnit>> kafkaTopicWorkunitMap = Maps.newConcurrentMap();
     if (state.getPropAsBoolean(KafkaSource.GOBBLIN_KAFKA_EXTRACT_ALLOW_TABLE_TYPE_NAMESPACE_CUSTOMIZATION)) {
       String tableTypeStr =
           state.getProp(ConfigurationKeys.EXTRACT_TABLE_TYPE_KEY, KafkaSource.DEFAULT_TABLE_TYPE.toString());
@@ -267,6 +274,9 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
               return topic.getName();
             }
           }), state);
+      // WorkUnits are created from the plan once the partitions have been packed
+      KafkaPartitionPlan plan = new KafkaPartitionPlan(
+          (partitionPlan, index) -> createWorkUnit(partitionPlan, index, state, topicSpecificStateMap));
 
       int numOfThreads = state.getPropAsInt(ConfigurationKeys.KAFKA_SOURCE_WORK_UNITS_CREATION_THREADS,
           ConfigurationKeys.KAFKA_SOURCE_WORK_UNITS_CREATION_DEFAULT_THREAD_COUNT);
@@ -285,6 +295,13 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
 
       Stopwatch createWorkUnitStopwatch = Stopwatch.createStarted();
 
+      this.prefetchedOffsets.clear();
+      int offsetFetchBatchSize = state.getPropAsInt(OFFSET_FETCH_BATCH_SIZE, DEFAULT_OFFSET_FETCH_BATCH_SIZE);
+      if (offsetFetchBatchSize > 0) {
+        prefetchOffsets(topics, filteredTopicPartition.isPresent() ? Optional.of(filteredTopicPartitionMap)
+            : Optional.<Map<String, List<Integer>>>absent(), offsetFetchBatchSize, threadPool);
+      }
+
       for (KafkaTopic topic : topics) {
         LOG.info("Discovered topic {} with {} number of partitions", topic.getName(), topic.getPartitions().size());
         if (topic.getTopicSpecificState().isPresent()) {
@@ -300,30 +317,38 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
               topic.getName(), list.size());
         }
 
-        threadPool.submit(
-            new WorkUnitCreator(topic, state, Optional.fromNullable(topicSpecificStateMap.get(topic.getName())),
-                kafkaTopicWorkunitMap, partitionIDSet));
+        threadPool.submit(new WorkUnitCreator(topic, state, plan, partitionIDSet));
       }
 
       ExecutorsUtils.shutdownExecutorService(threadPool, Optional.of(LOG), 1L, TimeUnit.HOURS);
-      LOG.info(String.format("Created workunits for %d topics in %d seconds", kafkaTopicWorkunitMap.size(),
+      LOG.info(String.format("Planned %d partitions of %d topics in %d seconds", plan.size(), topics.size(),
           createWorkUnitStopwatch.elapsed(TimeUnit.SECONDS)));
+      this.prefetchedOffsets.clear();
 
-      // Create empty WorkUnits for skipped partitions (i.e., partitions that have previous offsets,
+      // Add empty partitions for skipped partitions (i.e., partitions that have previous offsets,
       // but aren't processed). When filteredTopicPartition present, only filtered topic-partitions are needed so skip this call
       if(!filteredTopicPartition.isPresent()) {
-        createEmptyWorkUnitsForSkippedPartitions(kafkaTopicWorkunitMap, topicSpecificStateMap, state);
+        addSkippedPartitionsToPlan(plan, state);
       }
 
       KafkaWorkUnitPacker kafkaWorkUnitPacker = KafkaWorkUnitPacker.getInstance(this, state, Optional.of(this.metricContext));
       int numOfMultiWorkunits = minContainer.or(1);
-      if(state.contains(ConfigurationKeys.MR_JOB_MAX_MAPPERS_KEY)) {
-        numOfMultiWorkunits = Math.max(numOfMultiWorkunits,
-            calculateNumMappersForPacker(state, kafkaWorkUnitPacker, kafkaTopicWorkunitMap));
+      List<WorkUnit> workUnitList;
+      if (kafkaWorkUnitPacker.canPackPartitionPlan()) {
+        if(state.contains(ConfigurationKeys.MR_JOB_MAX_MAPPERS_KEY)) {
+          numOfMultiWorkunits = Math.max(numOfMultiWorkunits,
+              calculateNumMappersForPacker(state, () -> kafkaWorkUnitPacker.setEstSizes(plan)));
+        }
+        workUnitList = kafkaWorkUnitPacker.pack(plan, numOfMultiWorkunits);
+      } else {
+        Map<String, List<WorkUnit>> kafkaTopicWorkunitMap = plan.createWorkUnitsByTopic();
+        if(state.contains(ConfigurationKeys.MR_JOB_MAX_MAPPERS_KEY)) {
+          numOfMultiWorkunits = Math.max(numOfMultiWorkunits,
+              calculateNumMappersForPacker(state,
+                  () -> kafkaWorkUnitPacker.setWorkUnitEstSizes(kafkaTopicWorkunitMap)));
+        }
+        workUnitList = kafkaWorkUnitPacker.pack(kafkaTopicWorkunitMap, numOfMultiWorkunits);
       }
-
-      addTopicSpecificPropsToWorkUnits(kafkaTopicWorkunitMap, topicSpecificStateMap);
-      List<WorkUnit> workUnitList = kafkaWorkUnitPacker.pack(kafkaTopicWorkunitMap, numOfMultiWorkunits);
       setLimiterReportKeyListToWorkUnits(workUnitList, getLimiterExtractorReportKeys());
       return workUnitList;
     } catch (InstantiationException | IllegalAccessException | ClassNotFoundException e) {
@@ -349,6 +374,80 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
 
   }
 
+  /**
+   * Fetch the earliest and latest offsets of the partitions to be processed in batches of {@code batchSize}
+   * partitions, running the batches on {@code threadPool}, and block until all batches are done.
+   */
+  private void prefetchOffsets(Collection<KafkaTopic> topics, Optional<Map<String, List<Integer>>> filteredTopicPartitions,
+      int batchSize, ExecutorService threadPool) throws InterruptedException {
+    List<KafkaPartition> partitions = Lists.newArrayList();
+    for (KafkaTopic topic : topics) {
+      Set<Integer> filteredIds = filteredTopicPartitions.isPresent()
+          ? new HashSet<>(filteredTopicPartitions.get().getOrDefault(topic.getName(), Collections.emptyList())) : null;
+      for (KafkaPartition partition : topic.getPartitions()) {
+        if (filteredIds == null || filteredIds.contains(partition.getId())) {
+          partitions.add(partition);
+        }
+      }
+    }
+
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    List<Future<?>> batches = Lists.newArrayList();
+    for (List<KafkaPartition> batch : Lists.partition(partitions, batchSize)) {
+      batches.add(threadPool.submit(() -> prefetchOffsetsForBatch(batch)));
+    }
+    for (Future<?> batch : batches) {
+      try {
+        batch.get();
+      } catch (ExecutionException e) {
+        LOG.error("Unexpected failure prefetching offsets", e.getCause());
+      }
+    }
+    LOG.info(String.format("Prefetched offsets for %d of %d partitions in %d batches in %d ms",
+        this.prefetchedOffsets.size(), partitions.size(), batches.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS)));
+  }
+
+  private void prefetchOffsetsForBatch(List<KafkaPartition> partitions) {
+    borrowKafkaConsumerClient();
+    try (Timer.Context context = this.metricContext.timer(OFFSET_FETCH_TIMER).time()) {
+      long offsetFetchEpochTime = System.currentTimeMillis();
+      Map<KafkaPartition, Long> earliestOffsets = this.kafkaConsumerClient.get().getEarliestOffsets(partitions);
+      Map<KafkaPartition, Long> latestOffsets = this.kafkaConsumerClient.get().getLatestOffsets(partitions);
+      for (KafkaPartition partition : partitions) {
+        Long earliestOffset = earliestOffsets.get(partition);
+        Long latestOffset = latestOffsets.get(partition);
+        if (earliestOffset != null && latestOffset != null) {
+          this.prefetchedOffsets.put(partition, new FetchedOffsets(earliestOffset, latestOffset, offsetFetchEpochTime));
+        }
+      }
+    } catch (Throwable t) {
+      LOG.warn(String.format("Failed to fetch offsets for a batch of %d partitions. They will be fetched individually.",
+          partitions.size()), t);
+    } finally {
+      returnKafkaConsumerClient();
+    }
+  }
+
+  /**
+   * Set the consumer client of the current thread: the shared client if configured, otherwise one from the pool.
+   */
+  private void borrowKafkaConsumerClient() {
+    if (this.sharedKafkaConsumerClient != null) {
+      this.kafkaConsumerClient.set(this.sharedKafkaConsumerClient);
+    } else {
+      GobblinKafkaConsumerClient client = this.kafkaConsumerClientPool.poll();
+      Preconditions.checkNotNull(client, "Unexpectedly ran out of preallocated consumer clients");
+      this.kafkaConsumerClient.set(client);
+    }
+  }
+
+  private void returnKafkaConsumerClient() {
+    if (this.sharedKafkaConsumerClient == null) {
+      this.kafkaConsumerClientPool.offer(this.kafkaConsumerClient.get());
+      this.kafkaConsumerClient.remove();
+    }
+  }
+
   protected void populateClientPool(int count,
       GobblinKafkaConsumerClientFactory kafkaConsumerClientFactory,
       Config config) {
@@ -359,14 +458,6 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
     }
   }
 
-  private void addTopicSpecificPropsToWorkUnits(Map<String, List<WorkUnit>> workUnits, Map<String, State> topicSpecificStateMap) {
-    for (List<WorkUnit> workUnitList : workUnits.values()) {
-      for (WorkUnit workUnit : workUnitList) {
-        addTopicSpecificPropsToWorkUnit(workUnit, topicSpecificStateMap);
-      }
-    }
-  }
-
   private void addTopicSpecificPropsToWorkUnit(WorkUnit workUnit, Map<String, State> topicSpecificStateMap) {
     if (workUnit instanceof MultiWorkUnit) {
       for (WorkUnit wu : ((MultiWorkUnit) workUnit).getWorkUnits()) {
@@ -393,42 +484,33 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
     workUnit.setProp(ConfigurationKeys.DATASET_URN_KEY, workUnit.getProp(TOPIC_NAME));
   }
 
-  private void createEmptyWorkUnitsForSkippedPartitions(Map<String, List<WorkUnit>> workUnits,
-      Map<String, State> topicSpecificStateMap, SourceState state) {
+  private void addSkippedPartitionsToPlan(KafkaPartitionPlan plan, SourceState state) {
 
     // in case the previous offset not been set
     getAllPreviousOffsetState(state);
 
-    // For each partition that has a previous offset, create an empty WorkUnit for it if
+    // For each partition that has a previous offset, add it with an empty offset range if
     // it is not in this.partitionsToBeProcessed.
-    for (Map.Entry<KafkaPartition, Long> entry : this.previousOffsets.entrySet()) {
+    for (Map.Entry<KafkaPartition, PreviousPartitionState> entry : this.previousPartitionStates.entrySet()) {
       KafkaPartition partition = entry.getKey();
-      if (!this.partitionsToBeProcessed.contains(partition)) {
+      PreviousPartitionState previousState = entry.getValue();
+      if (previousState.offset != ConfigurationKeys.DEFAULT_WATERMARK_VALUE
+          && !this.partitionsToBeProcessed.contains(partition)) {
         String topicName = partition.getTopicName();
         if (!this.isDatasetStateEnabled.get() || this.topicsToProcess.contains(topicName)) {
-          long previousOffset = entry.getValue();
-          WorkUnit emptyWorkUnit = createEmptyWorkUnit(partition, previousOffset,
-              this.previousOffsetFetchEpochTimes.get(partition),
-              Optional.fromNullable(topicSpecificStateMap.get(partition.getTopicName())));
-
-          if (workUnits.containsKey(topicName)) {
-            workUnits.get(topicName).add(emptyWorkUnit);
-          } else {
-            workUnits.put(topicName, Lists.newArrayList(emptyWorkUnit));
-          }
+          plan.add(partition, createEmptyOffsets(previousState.offset, previousState.offsetFetchEpochTime), 0, false);
         }
       }
     }
   }
 
   //determine the number of mappers/containers for workunit packer
-  private int calculateNumMappersForPacker(SourceState state,
-      KafkaWorkUnitPacker kafkaWorkUnitPacker, Map<String, List<WorkUnit>> workUnits) {
+  private int calculateNumMappersForPacker(SourceState state, DoubleSupplier totalEstDataSizeSupplier) {
     int maxMapperNum =
         state.getPropAsInt(ConfigurationKeys.MR_JOB_MAX_MAPPERS_KEY, ConfigurationKeys.DEFAULT_MR_JOB_MAX_MAPPERS);
     int numContainers = maxMapperNum;
     if(state.contains(ConfigurationKeys.MR_TARGET_MAPPER_SIZE)) {
-      double totalEstDataSize = kafkaWorkUnitPacker.setWorkUnitEstSizes(workUnits);
+      double totalEstDataSize = totalEstDataSizeSupplier.getAsDouble();
       LOG.info(String.format("The total estimated data size is %.2f", totalEstDataSize));
       double targetMapperSize = state.getPropAsDouble(ConfigurationKeys.MR_TARGET_MAPPER_SIZE);
       numContainers = (int) (totalEstDataSize / targetMapperSize) + 1;
@@ -440,31 +522,20 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
   /*
    * This function need to be thread safe since it is called in the Runnable
    */
-  private List<WorkUnit> getWorkUnitsForTopic(KafkaTopic topic, SourceState state,
-      Optional<State> topicSpecificState, Optional<Set<Integer>> filteredPartitions) {
+  private void addTopicToPlan(KafkaTopic topic, SourceState state, KafkaPartitionPlan plan,
+      Optional<Set<Integer>> filteredPartitions) {
     Timer.Context context = this.metricContext.timer("isTopicQualifiedTimer").time();
     boolean topicQualified = isTopicQualified(topic);
     context.close();
 
-    List<WorkUnit> workUnits = Lists.newArrayList();
     List<KafkaPartition> topicPartitions = topic.getPartitions();
     for (KafkaPartition partition : topicPartitions) {
       if(filteredPartitions.isPresent() && !filteredPartitions.get().contains(partition.getId())) {
         continue;
       }
-      WorkUnit workUnit = getWorkUnitForTopicPartition(partition, state, topicSpecificState);
-      if (workUnit != null) {
-        // For disqualified topics, for each of its workunits set the high watermark to be the same
-        // as the low watermark, so that it will be skipped.
-        if (!topicQualified) {
-          skipWorkUnit(workUnit);
-        }
-        workUnit.setProp(NUM_TOPIC_PARTITIONS, topicPartitions.size());
-        workUnits.add(workUnit);
-      }
+      addTopicPartitionToPlan(partition, state, plan, topicPartitions.size(), topicQualified);
     }
     this.partitionsToBeProcessed.addAll(topic.getPartitions());
-    return workUnits;
   }
 
   /**
@@ -477,24 +548,26 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
     return true;
   }
 
-  @SuppressWarnings("deprecation")
-  private static void skipWorkUnit(WorkUnit workUnit) {
-    workUnit.setProp(ConfigurationKeys.WORK_UNIT_HIGH_WATER_MARK_KEY, workUnit.getLowWaterMark());
-  }
-
-  private WorkUnit getWorkUnitForTopicPartition(KafkaPartition partition, SourceState state,
-      Optional<State> topicSpecificState) {
+  private void addTopicPartitionToPlan(KafkaPartition partition, SourceState state, KafkaPartitionPlan plan,
+      int numTopicPartitions, boolean topicQualified) {
     Offsets offsets = new Offsets();
 
     boolean failedToGetKafkaOffsets = false;
 
-    try (Timer.Context context = this.metricContext.timer(OFFSET_FETCH_TIMER).time()) {
-      offsets.setOffsetFetchEpochTime(System.currentTimeMillis());
-      offsets.setEarliestOffset(this.kafkaConsumerClient.get().getEarliestOffset(partition));
-      offsets.setLatestOffset(this.kafkaConsumerClient.get().getLatestOffset(partition));
-    } catch (Throwable t) {
-      failedToGetKafkaOffsets = true;
-      LOG.error("Caught error in creating work unit for {}", partition, t);
+    FetchedOffsets fetchedOffsets = this.prefetchedOffsets.get(partition);
+    if (fetchedOffsets != null) {
+      offsets.setOffsetFetchEpochTime(fetchedOffsets.offsetFetchEpochTime);
+      offsets.setEarliestOffset(fetchedOffsets.earliestOffset);
+      offsets.setLatestOffset(fetchedOffsets.latestOffset);
+    } else {
+      try (Timer.Context context = this.metricContext.timer(OFFSET_FETCH_TIMER).time()) {
+        offsets.setOffsetFetchEpochTime(System.currentTimeMillis());
+        offsets.setEarliestOffset(this.kafkaConsumerClient.get().getEarliestOffset(partition));
+        offsets.setLatestOffset(this.kafkaConsumerClient.get().getLatestOffset(partition));
+      } catch (Throwable t) {
+        failedToGetKafkaOffsets = true;
+        LOG.error("Caught error in creating work unit for {}", partition, t);
+      }
     }
 
     long previousOffset = 0;
@@ -523,8 +596,11 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
       LOG.warn(String
           .format("Failed to retrieve earliest and/or latest offset for partition %s. This partition will be skipped.",
               partition));
-      return previousOffsetNotFound ? null : createEmptyWorkUnit(partition, previousOffset, previousOffsetFetchEpochTime,
-          topicSpecificState);
+      if (!previousOffsetNotFound) {
+        plan.add(partition, createEmptyOffsets(previousOffset, previousOffsetFetchEpochTime), numTopicPartitions,
+            false);
+      }
+      return;
     }
 
     if (shouldMoveToLatestOffset(partition, state)) {
@@ -581,13 +657,15 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
             offsets.startAtEarliestOffset();
           } else {
             LOG.warn(offsetOutOfRangeMsg + "This partition will be skipped.");
-            return createEmptyWorkUnit(partition, previousOffset, previousOffsetFetchEpochTime, topicSpecificState);
+            plan.add(partition, createEmptyOffsets(previousOffset, previousOffsetFetchEpochTime), numTopicPartitions,
+                false);
+            return;
           }
         }
       }
       else {
         LOG.warn(offsetNotFoundMsg + "This partition will be skipped.");
-        return null;
+        return;
       }
     } else {
       try {
@@ -619,12 +697,47 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
           offsets.startAtEarliestOffset();
         } else {
           LOG.warn(offsetOutOfRangeMsg + "This partition will be skipped.");
-          return createEmptyWorkUnit(partition, previousOffset, previousOffsetFetchEpochTime, topicSpecificState);
+          plan.add(partition, createEmptyOffsets(previousOffset, previousOffsetFetchEpochTime), numTopicPartitions,
+              false);
+          return;
         }
       }
     }
-    WorkUnit workUnit = getWorkUnitForTopicPartition(partition, offsets, topicSpecificState);
-    addSourceStatePropsToWorkUnit(workUnit, state);
+    // For disqualified topics, set the high watermark of each partition to be the same as the low watermark,
+    // so that it will be skipped.
+    if (!topicQualified) {
+      offsets.setLatestOffset(offsets.getStartOffset());
+    }
+    plan.add(partition, offsets, numTopicPartitions, true);
+  }
+
+  /**
+   * Create the {@link WorkUnit} of a partition of a {@link KafkaPartitionPlan}.
+   */
+  private WorkUnit createWorkUnit(KafkaPartitionPlan plan, int index, SourceState state,
+      Map<String, State> topicSpecificStateMap) {
+    KafkaPartition partition = plan.getPartition(index);
+    Offsets offsets = new Offsets();
+    offsets.setEarliestOffset(plan.getLowWatermark(index));
+    offsets.setLatestOffset(plan.getHighWatermark(index));
+    offsets.startAtEarliestOffset();
+    offsets.setOffsetFetchEpochTime(plan.getOffsetFetchEpochTime(index));
+    offsets.setPreviousStartFetchEpochTime(plan.getPreviousStartFetchEpochTime(index));
+    offsets.setPreviousStopFetchEpochTime(plan.getPreviousStopFetchEpochTime(index));
+    offsets.setPreviousStartOffset(plan.getPreviousLowWatermark(index));
+    offsets.setPreviousEndOffset(plan.getPreviousHighWatermark(index));
+    offsets.setPreviousOffsetFetchEpochTime(plan.getPreviousOffsetFetchEpochTime(index));
+    offsets.setPreviousLatestOffset(plan.getPreviousLatestOffset(index));
+
+    WorkUnit workUnit = getWorkUnitForTopicPartition(partition, offsets,
+        Optional.fromNullable(topicSpecificStateMap.get(partition.getTopicName())));
+    if (plan.isWithSourceStateProps(index)) {
+      addSourceStatePropsToWorkUnit(workUnit, state);
+    }
+    if (plan.getNumTopicPartitions(index) > 0) {
+      workUnit.setProp(NUM_TOPIC_PARTITIONS, plan.getNumTopicPartitions(index));
+    }
+    addTopicSpecificPropsToWorkUnit(workUnit, topicSpecificStateMap);
     return workUnit;
   }
 
@@ -659,14 +772,14 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
 
   private long getPreviousStartFetchEpochTimeForPartition(KafkaPartition partition, SourceState state) {
     getAllPreviousOffsetState(state);
-    return this.previousStartFetchEpochTimes.containsKey(partition) ?
-        this.previousStartFetchEpochTimes.get(partition) : 0;
+    PreviousPartitionState previousState = this.previousPartitionStates.get(partition);
+    return previousState != null ? previousState.startFetchEpochTime : 0;
   }
 
   private long getPreviousStopFetchEpochTimeForPartition(KafkaPartition partition, SourceState state) {
     getAllPreviousOffsetState(state);
-    return this.previousStopFetchEpochTimes.containsKey(partition) ?
-        this.previousStopFetchEpochTimes.get(partition) : 0;
+    PreviousPartitionState previousState = this.previousPartitionStates.get(partition);
+    return previousState != null ? previousState.stopFetchEpochTime : 0;
   }
 
   private long getPreviousOffsetFetchEpochTimeForPartition(KafkaPartition partition, SourceState state)
@@ -674,8 +787,9 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
 
     getAllPreviousOffsetState(state);
 
-    if (this.previousOffsetFetchEpochTimes.containsKey(partition)) {
-      return this.previousOffsetFetchEpochTimes.get(partition);
+    PreviousPartitionState previousState = this.previousPartitionStates.get(partition);
+    if (previousState != null) {
+      return previousState.offsetFetchEpochTime;
     }
 
     throw new PreviousOffsetNotFoundException(String
@@ -688,8 +802,9 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
 
     getAllPreviousOffsetState(state);
 
-    if (this.previousOffsets.containsKey(partition)) {
-      return this.previousOffsets.get(partition);
+    PreviousPartitionState previousState = this.previousPartitionStates.get(partition);
+    if (previousState != null && previousState.offset != ConfigurationKeys.DEFAULT_WATERMARK_VALUE) {
+      return previousState.offset;
     }
     throw new PreviousOffsetNotFoundException(String
         .format("Previous offset for topic %s, partition %s not found.", partition.getTopicName(), partition.getId()));
@@ -700,8 +815,9 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
 
     getAllPreviousOffsetState(state);
 
-    if (this.previousExpectedHighWatermarks.containsKey(partition)) {
-      return this.previousExpectedHighWatermarks.get(partition);
+    PreviousPartitionState previousState = this.previousPartitionStates.get(partition);
+    if (previousState != null && previousState.expectedHighWatermark != ConfigurationKeys.DEFAULT_WATERMARK_VALUE) {
+      return previousState.expectedHighWatermark;
     }
     throw new PreviousOffsetNotFoundException(String
         .format("Previous expected high watermark for topic %s, partition %s not found.", partition.getTopicName(),
@@ -713,26 +829,21 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
 
     getAllPreviousOffsetState(state);
 
-    if (this.previousLowWatermarks.containsKey(partition)) {
-      return this.previousLowWatermarks.get(partition);
+    PreviousPartitionState previousState = this.previousPartitionStates.get(partition);
+    if (previousState != null && previousState.lowWatermark != ConfigurationKeys.DEFAULT_WATERMARK_VALUE) {
+      return previousState.lowWatermark;
     }
     throw new PreviousOffsetNotFoundException(String
         .format("Previous low watermark for topic %s, partition %s not found.", partition.getTopicName(),
             partition.getId()));
   }
 
-  // need to be synchronized as this.previousOffsets, this.previousExpectedHighWatermarks, and
-  // this.previousOffsetFetchEpochTimes need to be initialized once
+  // need to be synchronized as this.previousPartitionStates needs to be initialized once
   private synchronized void getAllPreviousOffsetState(SourceState state) {
     if (this.doneGettingAllPreviousOffsets) {
       return;
     }
-    this.previousOffsets.clear();
-    this.previousLowWatermarks.clear();
-    this.previousExpectedHighWatermarks.clear();
-    this.previousOffsetFetchEpochTimes.clear();
-    this.previousStartFetchEpochTimes.clear();
-    this.previousStopFetchEpochTimes.clear();
+    this.previousPartitionStates.clear();
     Map<String, Iterable<WorkUnitState>> workUnitStatesByDatasetUrns = state.getPreviousWorkUnitStatesByDatasetUrns();
 
     if (!workUnitStatesByDatasetUrns.isEmpty() &&
@@ -753,28 +864,29 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
               watermark));
 
       for (int i = 0; i < partitions.size(); i++) {
-        KafkaPartition partition = partitions.get(i);
+        PreviousPartitionState previousState =
+            this.previousPartitionStates.computeIfAbsent(partitions.get(i), k -> new PreviousPartitionState());
 
         if (watermark.get(i) != ConfigurationKeys.DEFAULT_WATERMARK_VALUE) {
-          this.previousOffsets.put(partition, watermark.get(i));
+          previousState.offset = watermark.get(i);
         }
 
         if (previousLowWatermark.get(i) != ConfigurationKeys.DEFAULT_WATERMARK_VALUE) {
-          this.previousLowWatermarks.put(partition, previousLowWatermark.get(i));
+          previousState.lowWatermark = previousLowWatermark.get(i);
         }
 
         if (previousExpectedHighWatermark.get(i) != ConfigurationKeys.DEFAULT_WATERMARK_VALUE) {
-          this.previousExpectedHighWatermarks.put(partition, previousExpectedHighWatermark.get(i));
+          previousState.expectedHighWatermark = previousExpectedHighWatermark.get(i);
         }
 
-        this.previousOffsetFetchEpochTimes.put(partition,
-            KafkaUtils.getPropAsLongFromSingleOrMultiWorkUnitState(workUnitState, OFFSET_FETCH_EPOCH_TIME, i));
+        previousState.offsetFetchEpochTime =
+            KafkaUtils.getPropAsLongFromSingleOrMultiWorkUnitState(workUnitState, OFFSET_FETCH_EPOCH_TIME, i);
 
-        this.previousStartFetchEpochTimes.put(partition,
-            KafkaUtils.getPropAsLongFromSingleOrMultiWorkUnitState(workUnitState, START_FETCH_EPOCH_TIME, i));
+        previousState.startFetchEpochTime =
+            KafkaUtils.getPropAsLongFromSingleOrMultiWorkUnitState(workUnitState, START_FETCH_EPOCH_TIME, i);
 
-        this.previousStopFetchEpochTimes.put(partition,
-            KafkaUtils.getPropAsLongFromSingleOrMultiWorkUnitState(workUnitState, STOP_FETCH_EPOCH_TIME, i));
+        previousState.stopFetchEpochTime =
+            KafkaUtils.getPropAsLongFromSingleOrMultiWorkUnitState(workUnitState, STOP_FETCH_EPOCH_TIME, i);
       }
     }
 
@@ -798,14 +910,13 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
   }
 
   // thread safe
-  private WorkUnit createEmptyWorkUnit(KafkaPartition partition, long previousOffset, long previousFetchEpochTime,
-      Optional<State> topicSpecificState) {
+  private static Offsets createEmptyOffsets(long previousOffset, long previousFetchEpochTime) {
     Offsets offsets = new Offsets();
     offsets.setEarliestOffset(previousOffset);
     offsets.setLatestOffset(previousOffset);
     offsets.startAtEarliestOffset();
     offsets.setOffsetFetchEpochTime(previousFetchEpochTime);
-    return getWorkUnitForTopicPartition(partition, offsets, topicSpecificState);
+    return offsets;
   }
 
   private WorkUnit getWorkUnitForTopicPartition(KafkaPartition partition, Offsets offsets,
@@ -891,7 +1002,7 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
   /**
    * This class contains startOffset, earliestOffset and latestOffset for a Kafka partition.
    */
-  private static class Offsets {
+  static class Offsets {
 
     @Getter
     private long startOffset = 0;
@@ -953,25 +1064,45 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
     }
   }
 
+  /**
+   * The state of a partition in the previous run. Watermarks that were not set are
+   * {@link ConfigurationKeys#DEFAULT_WATERMARK_VALUE}.
+   */
+  private static class PreviousPartitionState {
+    private long offset = ConfigurationKeys.DEFAULT_WATERMARK_VALUE;
+    private long lowWatermark = ConfigurationKeys.DEFAULT_WATERMARK_VALUE;
+    private long expectedHighWatermark = ConfigurationKeys.DEFAULT_WATERMARK_VALUE;
+    private long offsetFetchEpochTime = 0;
+    private long startFetchEpochTime = 0;
+    private long stopFetchEpochTime = 0;
+  }
+
+  /**
+   * Offsets of a partition fetched ahead of work unit creation, see {@link #OFFSET_FETCH_BATCH_SIZE}.
+   */
+  @AllArgsConstructor
+  private static class FetchedOffsets {
+    private final long earliestOffset;
+    private final long latestOffset;
+    private final long offsetFetchEpochTime;
+  }
+
   private class WorkUnitCreator implements Runnable {
     public static final String WORK_UNITS_FOR_TOPIC_TIMER = "workUnitsForTopicTimer";
     private final KafkaTopic topic;
     private final SourceState state;
-    private final Optional<State> topicSpecificState;
-    private final Map<String, List<WorkUnit>> allTopicWorkUnits;
+    private final KafkaPartitionPlan plan;
     private final Optional<Set<Integer>> filteredPartitionsId;
 
-    WorkUnitCreator(KafkaTopic topic, SourceState state, Optional<State> topicSpecificState,
-        Map<String, List<WorkUnit>> workUnits) {
-      this(topic, state, topicSpecificState, workUnits, Optional.absent());
+    WorkUnitCreator(KafkaTopic topic, SourceState state, KafkaPartitionPlan plan) {
+      this(topic, state, plan, Optional.absent());
     }
 
-    WorkUnitCreator(KafkaTopic topic, SourceState state, Optional<State> topicSpecificState,
-        Map<String, List<WorkUnit>> workUnits, Optional<Set<Integer>> filteredPartitionsId) {
+    WorkUnitCreator(KafkaTopic topic, SourceState state, KafkaPartitionPlan plan,
+        Optional<Set<Integer>> filteredPartitionsId) {
       this.topic = topic;
       this.state = state;
-      this.topicSpecificState = topicSpecificState;
-      this.allTopicWorkUnits = workUnits;
+      this.plan = plan;
       this.filteredPartitionsId = filteredPartitionsId;
     }
 
@@ -979,25 +1110,15 @@ public abstract class KafkaSource<S, D> extends EventBasedSource<S, D> {
     public void run() {
       try (Timer.Context context = metricContext.timer(WORK_UNITS_FOR_TOPIC_TIMER).time()) {
         // use shared client if configure, otherwise set a thread local one from the pool
-        if (KafkaSource.this.sharedKafkaConsumerClient != null) {
-          KafkaSource.this.kafkaConsumerClient.set(KafkaSource.this.sharedKafkaConsumerClient);
-        } else {
-          GobblinKafkaConsumerClient client = KafkaSource.this.kafkaConsumerClientPool.poll();
-          Preconditions.checkNotNull(client, "Unexpectedly ran out of preallocated consumer clients");
-          KafkaSource.this.kafkaConsumerClient.set(client);
-        }
+        KafkaSource.this.borrowKafkaConsumerClient();
 
-        this.allTopicWorkUnits.put(this.topic.getName(),
-            KafkaSource.this.getWorkUnitsForTopic(this.topic, this.state, this.topicSpecificState, this.filteredPartitionsId));
+        KafkaSource.this.addTopicToPlan(this.topic, this.state, this.plan, this.filteredPartitionsId);
       } catch (Throwable t) {
         LOG.error("Caught error in creating work unit for " + this.topic.getName(), t);
         throw new RuntimeException(t);
       } finally {
         // return the client to the pool
-        if (KafkaSource.this.sharedKafkaConsumerClient == null) {
-          KafkaSource.this.kafkaConsumerClientPool.offer(KafkaSource.this.kafkaConsumerClient.get());
-          KafkaSource.this.kafkaConsumerClient.remove();
-        }
+        KafkaSource.this.returnKafkaConsumerClient();
       }
     }
   }
@@ -155,6 +155,14 @@ public class KafkaStreamingExtractor<S> extends FlushingExtractor<S, DecodeableK
     @Getter
     @Setter
     long avgRecordSize;
+    //Consume rate of this TopicPartition in MB/s observed over the most recent stats reporting window.
+    @Getter
+    @Setter
+    double latestConsumeRate;
+    //Number of records produced to this TopicPartition but not yet consumed, as of the most recent flush.
+    @Getter
+    @Setter
+    long lag;
 
     @VisibleForTesting
     public KafkaWatermark(KafkaPartition topicPartition, LongWatermark lwm) {
@@ -20,29 +20,67 @@ package org.apache.gobblin.source.extractor.extract.kafka;
 import com.google.common.eventbus.EventBus;
 import java.io.IOException;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.gobblin.configuration.ConfigurationKeys;
+import org.apache.gobblin.configuration.SourceState;
 import org.apache.gobblin.configuration.WorkUnitState;
+import org.apache.gobblin.runtime.CheckpointableWatermarkState;
+import org.apache.gobblin.runtime.StateStoreBasedWatermarkStorage;
 import org.apache.gobblin.source.InfiniteSource;
 import org.apache.gobblin.source.extractor.Extractor;
 import org.apache.gobblin.source.extractor.extract.EventBasedExtractor;
+import org.apache.gobblin.source.extractor.extract.kafka.workunit.packer.KafkaStreamingRebalancer;
+import org.apache.gobblin.source.extractor.extract.kafka.workunit.packer.KafkaTopicGroupingWorkUnitPacker;
 import org.apache.gobblin.source.workunit.WorkUnit;
 import org.apache.gobblin.stream.WorkUnitChangeEvent;
 import org.apache.gobblin.util.ClassAliasResolver;
+import org.apache.gobblin.util.ExecutorsUtils;
+import org.apache.gobblin.util.io.GsonInterfaceAdapter;
 import org.apache.gobblin.util.reflection.GobblinConstructorUtils;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
 
 
 /**
  * A {@link KafkaSource} to use with arbitrary {@link EventBasedExtractor}. Specify the extractor to use with key
  * {@link #EXTRACTOR_TYPE}.
+ *
+ * When {@link KafkaStreamingRebalancer#REBALANCER_ENABLED_KEY} is set, the source periodically re-evaluates the
+ * partition assignment of the indexed work units it created, using the per-partition statistics checkpointed in the
+ * watermark storage, and posts a {@link WorkUnitChangeEvent} replacing the work units whose partitions moved.
  */
 @Slf4j
 public class UniversalKafkaSource<S, D> extends KafkaSource<S, D> implements InfiniteSource<S, D> {
 
   public static final String EXTRACTOR_TYPE = "gobblin.source.kafka.extractorType";
+  private static final Gson GSON = GsonInterfaceAdapter.getGson(Object.class);
+  private static final long WORK_UNIT_CHANGE_ACK_TIMEOUT_MINUTES = 5;
+
   private final EventBus eventBus = new EventBus(this.getClass().getSimpleName());
+  //Indexed work units of the running job. Task ids are assigned to them by the job launcher after getWorkunits returns.
+  private final List<WorkUnit> activeWorkUnits = Lists.newArrayList();
+  //Guarded by activeWorkUnits: the last posted work unit change, and a version bumped whenever the work units are reset
+  private CompletableFuture<Void> pendingChange = null;
+  private long activeWorkUnitsVersion = 0;
+  private ScheduledExecutorService rebalanceExecutor = null;
+  private KafkaStreamingRebalancer rebalancer;
+  private StateStoreBasedWatermarkStorage watermarkStorage;
+  private String writerOutputDir;
 
   @Override
   public Extractor<S, D> getExtractor(WorkUnitState state)
@@ -59,15 +97,181 @@ public class UniversalKafkaSource<S, D> extends KafkaSource<S, D> implements Inf
     }
   }
 
-  public void onWorkUnitUpdate(List<String> oldTaskIds, List<WorkUnit> newWorkUnits) {
+  @Override
+  public List<WorkUnit> getWorkunits(SourceState state) {
+    List<WorkUnit> workUnits = super.getWorkunits(state);
+    if (state.getPropAsBoolean(KafkaStreamingRebalancer.REBALANCER_ENABLED_KEY,
+        KafkaStreamingRebalancer.DEFAULT_REBALANCER_ENABLED)) {
+      startRebalancer(state, workUnits);
+    }
+    return workUnits;
+  }
+
+  private synchronized void startRebalancer(SourceState state, List<WorkUnit> workUnits) {
+    synchronized (this.activeWorkUnits) {
+      this.activeWorkUnits.clear();
+      this.activeWorkUnitsVersion++;
+      for (WorkUnit workUnit : workUnits) {
+        if (!workUnit.contains(KafkaTopicGroupingWorkUnitPacker.NUM_PARTITIONS_ASSIGNED)) {
+          log.warn("Streaming rebalancing requires indexed work units from {}; rebalancer not started.",
+              KafkaTopicGroupingWorkUnitPacker.class.getSimpleName());
+          this.activeWorkUnits.clear();
+          return;
+        }
+        this.activeWorkUnits.add(workUnit);
+      }
+    }
+    if (this.rebalanceExecutor != null) {
+      return;
+    }
+    this.rebalancer = new KafkaStreamingRebalancer(state);
+    this.watermarkStorage = new StateStoreBasedWatermarkStorage(state);
+    this.writerOutputDir = state.getProp(ConfigurationKeys.WRITER_OUTPUT_DIR);
+    long intervalMinutes = state.getPropAsLong(KafkaStreamingRebalancer.REBALANCE_INTERVAL_MINUTES_KEY,
+        KafkaStreamingRebalancer.DEFAULT_REBALANCE_INTERVAL_MINUTES);
+    this.rebalanceExecutor = Executors.newSingleThreadScheduledExecutor(
+        ExecutorsUtils.newDaemonThreadFactory(Optional.of(log), Optional.of("KafkaStreamingRebalancer-%d")));
+    this.rebalanceExecutor.scheduleAtFixedRate(() -> {
+      try {
+        rebalance(System.currentTimeMillis());
+      } catch (Throwable t) {
+        log.error("Streaming rebalancing round failed", t);
+      }
+    }, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    log.info("Started streaming rebalancer with an interval of {} minutes", intervalMinutes);
+  }
+
+  /**
+   * Run one rebalancing round: estimate the partition loads from the committed watermarks, compute bounded partition
+   * moves and replace the affected work units through {@link #onWorkUnitUpdate(List, List)}. The active work units are
+   * updated when the job launcher applies the change, even if it acknowledges it after this round gave up waiting, and
+   * no new round starts while a change is pending.
+   */
+  @VisibleForTesting
+  void rebalance(long currentTimeMillis) throws IOException {
+    List<KafkaStreamingRebalancer.PartitionMove> moves;
+    List<String> oldTaskIds = new ArrayList<>();
+    List<WorkUnit> newWorkUnits = new ArrayList<>();
+    long version;
+    synchronized (this.activeWorkUnits) {
+      if (this.pendingChange != null && !this.pendingChange.isDone()) {
+        log.info("The previous work unit change has not been acknowledged yet; skipping this rebalancing round");
+        return;
+      }
+      Map<String, WorkUnit> workUnitsByTaskId = new LinkedHashMap<>();
+      Map<String, List<KafkaPartition>> assignment = new LinkedHashMap<>();
+      for (WorkUnit workUnit : this.activeWorkUnits) {
+        if (!workUnit.contains(ConfigurationKeys.TASK_ID_KEY)) {
+          log.info("Work units have not been assigned task ids yet; skipping this rebalancing round");
+          return;
+        }
+        String taskId = workUnit.getProp(ConfigurationKeys.TASK_ID_KEY);
+        workUnitsByTaskId.put(taskId, workUnit);
+        assignment.put(taskId, KafkaUtils.getPartitions(workUnit));
+      }
+
+      Map<KafkaPartition, Double> partitionLoads = getPartitionLoads(currentTimeMillis);
+      moves = this.rebalancer.computeMoves(assignment, partitionLoads, currentTimeMillis);
+      if (moves.isEmpty()) {
+        log.info("Partition assignment is balanced; no partitions to move");
+        return;
+      }
+      log.info("Moving {} partitions: {}", moves.size(), moves);
+
+      for (Map.Entry<String, List<KafkaPartition>> entry
+          : KafkaStreamingRebalancer.getChangedAssignment(assignment, moves).entrySet()) {
+        oldTaskIds.add(entry.getKey());
+        if (!entry.getValue().isEmpty()) {
+          newWorkUnits.add(KafkaStreamingRebalancer.createRebalancedWorkUnit(workUnitsByTaskId.get(entry.getKey()),
+              entry.getValue(), this.writerOutputDir));
+        }
+      }
+      version = this.activeWorkUnitsVersion;
+    }
+
+    // The job launcher may handle the event synchronously, so it is posted without holding the work units lock
+    WorkUnitChangeEvent event = onWorkUnitUpdate(oldTaskIds, newWorkUnits);
+    CompletableFuture<Void> change = event.getApplied().handle((appliedWorkUnits, error) -> {
+      if (error != null) {
+        log.warn("Job launcher failed to apply work unit change; keeping the previous assignment", error);
+      } else {
+        onChangeApplied(version, oldTaskIds, appliedWorkUnits, moves, currentTimeMillis);
+      }
+      return null;
+    });
+    synchronized (this.activeWorkUnits) {
+      this.pendingChange = change;
+    }
+    awaitAcknowledged(change);
+  }
+
+  /**
+   * Replace the work units of an applied change and start the cooldown of the moved partitions.
+   */
+  private void onChangeApplied(long version, List<String> oldTaskIds, List<WorkUnit> appliedWorkUnits,
+      List<KafkaStreamingRebalancer.PartitionMove> moves, long moveTimeMillis) {
+    synchronized (this.activeWorkUnits) {
+      if (version != this.activeWorkUnitsVersion) {
+        log.info("Work units were reset since the work unit change was posted; ignoring its acknowledgement");
+        return;
+      }
+      this.activeWorkUnits.removeIf(workUnit -> oldTaskIds.contains(workUnit.getProp(ConfigurationKeys.TASK_ID_KEY)));
+      this.activeWorkUnits.addAll(appliedWorkUnits);
+      this.rebalancer.recordMoves(moves, moveTimeMillis);
+    }
+  }
+
+  /**
+   * Wait for the job launcher to acknowledge a work unit change. A change acknowledged later is still recorded.
+   */
+  private void awaitAcknowledged(CompletableFuture<Void> change) {
+    try {
+      change.get(WORK_UNIT_CHANGE_ACK_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      log.warn("Failed to record work unit change", e.getCause());
+    } catch (TimeoutException e) {
+      log.warn("Job launcher did not acknowledge work unit change within {} minutes; it is recorded once acknowledged",
+          WORK_UNIT_CHANGE_ACK_TIMEOUT_MINUTES);
+    }
+  }
+
+  private Map<KafkaPartition, Double> getPartitionLoads(long currentTimeMillis) throws IOException {
+    Map<KafkaPartition, Double> partitionLoads = Maps.newHashMap();
+    for (CheckpointableWatermarkState state : this.watermarkStorage.getAllCommittedWatermarks()) {
+      KafkaStreamingExtractor.KafkaWatermark watermark =
+          GSON.fromJson(state.getProp(state.getSource()), KafkaStreamingExtractor.KafkaWatermark.class);
+      if (watermark != null && watermark.getTopicPartition() != null) {
+        partitionLoads.put(watermark.getTopicPartition(), this.rebalancer.getPartitionLoad(watermark, currentTimeMillis));
+      }
+    }
+    return partitionLoads;
+  }
+
+  /**
+   * Post a {@link WorkUnitChangeEvent}; its {@link WorkUnitChangeEvent#getApplied()} future tells whether the job
+   * launcher applied the change.
+   */
+  public WorkUnitChangeEvent onWorkUnitUpdate(List<String> oldTaskIds, List<WorkUnit> newWorkUnits) {
+    WorkUnitChangeEvent event = new WorkUnitChangeEvent(oldTaskIds, newWorkUnits);
     if (this.eventBus != null) {
       log.info("post workunit change event");
-      this.eventBus.post(new WorkUnitChangeEvent(oldTaskIds, newWorkUnits));
+      this.eventBus.post(event);
     }
+    return event;
   }
 
   @Override
   public EventBus getEventBus() {
     return this.eventBus;
   }
+
+  @Override
+  public void shutdown(SourceState state) {
+    if (this.rebalanceExecutor != null) {
+      this.rebalanceExecutor.shutdownNow();
+    }
+    super.shutdown(state);
+  }
 }
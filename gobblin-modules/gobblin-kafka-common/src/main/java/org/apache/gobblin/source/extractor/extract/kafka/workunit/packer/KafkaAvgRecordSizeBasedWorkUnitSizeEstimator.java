@@ -45,7 +45,7 @@ import org.apache.gobblin.source.workunit.WorkUnit;
  *
  * @author Ziyang Liu
  */
-public class KafkaAvgRecordSizeBasedWorkUnitSizeEstimator implements KafkaWorkUnitSizeEstimator {
+public class KafkaAvgRecordSizeBasedWorkUnitSizeEstimator implements KafkaPartitionSizeEstimator {
 
   private static final Logger LOG = LoggerFactory.getLogger(KafkaAvgRecordSizeBasedWorkUnitSizeEstimator.class);
 
@@ -59,10 +59,15 @@ public class KafkaAvgRecordSizeBasedWorkUnitSizeEstimator implements KafkaWorkUn
 
   @Override
   public double calcEstimatedSize(WorkUnit workUnit) {
-    long avgSize = this.getEstAvgSizeForPartition(KafkaUtils.getPartition(workUnit));
-    long numOfRecords = workUnit.getPropAsLong(ConfigurationKeys.WORK_UNIT_HIGH_WATER_MARK_KEY)
-        - workUnit.getPropAsLong(ConfigurationKeys.WORK_UNIT_LOW_WATER_MARK_KEY);
-    return (double) avgSize * numOfRecords;
+    return calcEstimatedSize(KafkaUtils.getPartition(workUnit),
+        workUnit.getPropAsLong(ConfigurationKeys.WORK_UNIT_LOW_WATER_MARK_KEY),
+        workUnit.getPropAsLong(ConfigurationKeys.WORK_UNIT_HIGH_WATER_MARK_KEY));
+  }
+
+  @Override
+  public double calcEstimatedSize(KafkaPartition partition, long lowWatermark, long highWatermark) {
+    long avgSize = this.getEstAvgSizeForPartition(partition);
+    return (double) avgSize * (highWatermark - lowWatermark);
   }
 
   private long getEstAvgSizeForPartition(KafkaPartition partition) {
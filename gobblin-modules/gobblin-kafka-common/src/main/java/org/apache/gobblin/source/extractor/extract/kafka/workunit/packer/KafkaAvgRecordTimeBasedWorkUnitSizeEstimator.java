@@ -53,7 +53,7 @@ import org.apache.gobblin.source.workunit.WorkUnit;
  *
  * @author Ziyang Liu
  */
-public class KafkaAvgRecordTimeBasedWorkUnitSizeEstimator implements KafkaWorkUnitSizeEstimator {
+public class KafkaAvgRecordTimeBasedWorkUnitSizeEstimator implements KafkaPartitionSizeEstimator {
 
   private static final Logger LOG = LoggerFactory.getLogger(KafkaAvgRecordTimeBasedWorkUnitSizeEstimator.class);
 
@@ -75,6 +75,11 @@ public class KafkaAvgRecordTimeBasedWorkUnitSizeEstimator implements KafkaWorkUn
     return avgMillis * numOfRecords;
   }
 
+  @Override
+  public double calcEstimatedSize(KafkaPartition partition, long lowWatermark, long highWatermark) {
+    return this.getEstAvgMillisForTopic(partition.getTopicName()) * (highWatermark - lowWatermark);
+  }
+
   /**
    * Calculate the geometric mean of a {@link List} of double numbers. Numbers smaller than {@link #EPS} will be
    * treated as {@link #EPS}.
@@ -17,16 +17,17 @@
 
 package org.apache.gobblin.source.extractor.extract.kafka.workunit.packer;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 
 import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
 
 import org.apache.gobblin.configuration.SourceState;
 import org.apache.gobblin.configuration.State;
 import org.apache.gobblin.source.extractor.extract.AbstractSource;
+import org.apache.gobblin.source.extractor.extract.kafka.KafkaPartitionPlan;
 import org.apache.gobblin.source.workunit.MultiWorkUnit;
 import org.apache.gobblin.source.workunit.WorkUnit;
 
@@ -91,6 +92,33 @@ public class KafkaBiLevelWorkUnitPacker extends KafkaWorkUnitPacker {
     return worstFitDecreasingBinPacking(groups, numContainers);
   }
 
+  @Override
+  public boolean canPackPartitionPlan() {
+    return hasPartitionSizeEstimator();
+  }
+
+  @Override
+  public List<WorkUnit> pack(KafkaPartitionPlan plan, int numContainers) {
+    if (plan.size() == 0) {
+      return Lists.newArrayList();
+    }
+
+    double totalEstDataSize = setEstSizes(plan);
+    double avgGroupSize = totalEstDataSize / numContainers / getPreGroupingSizeFactor(this.state);
+
+    List<PartitionGroup> groups = Lists.newArrayList();
+    for (int[] indexesForTopic : plan.getIndexesByTopic().values()) {
+      if (calcTotalEstSize(plan, indexesForTopic) < avgGroupSize) {
+        groups.add(new PartitionGroup(plan, indexesForTopic, true));
+      } else {
+        for (int[] indexes : bestFitDecreasingBinPacking(plan, indexesForTopic, avgGroupSize)) {
+          groups.add(new PartitionGroup(plan, indexes, true));
+        }
+      }
+    }
+    return worstFitDecreasingBinPacking(plan, groups, numContainers);
+  }
+
   private static double getPreGroupingSizeFactor(State state) {
     return state.getPropAsDouble(WORKUNIT_PRE_GROUPING_SIZE_FACTOR, DEFAULT_WORKUNIT_PRE_GROUPING_SIZE_FACTOR);
   }
@@ -100,19 +128,42 @@ public class KafkaBiLevelWorkUnitPacker extends KafkaWorkUnitPacker {
    * avgGroupSize. If there's a single {@link WorkUnit} whose size is larger than avgGroupSize, it forms a group itself.
    */
   static List<MultiWorkUnit> bestFitDecreasingBinPacking(List<WorkUnit> workUnits, double avgGroupSize) {
+    List<MultiWorkUnit> groups = Lists.newArrayList();
+    for (Bin<WorkUnit> bin : bestFitDecreasing(toPackingItems(workUnits), avgGroupSize)) {
+      groups.add(toMultiWorkUnit(bin.getItems(), bin.getEstSize()));
+    }
+    return groups;
+  }
+
+  /**
+   * Same as {@link #bestFitDecreasingBinPacking(List, double)} for partitions of a {@link KafkaPartitionPlan}.
+   * @return the plan indexes of the partitions of each group
+   */
+  static List<int[]> bestFitDecreasingBinPacking(KafkaPartitionPlan plan, int[] indexes, double avgGroupSize) {
+    List<PackingItem<Integer>> items = Lists.newArrayListWithCapacity(indexes.length);
+    for (int index : indexes) {
+      items.add(new PackingItem<>(index, plan.getEstSize(index), getEstLoad(plan.getEstSize(index))));
+    }
+
+    List<int[]> groups = Lists.newArrayList();
+    for (Bin<Integer> bin : bestFitDecreasing(items, avgGroupSize)) {
+      groups.add(Ints.toArray(bin.getItems()));
+    }
+    return groups;
+  }
 
-    // Sort workunits by data size desc
-    Collections.sort(workUnits, LOAD_DESC_COMPARATOR);
+  private static <T> List<Bin<T>> bestFitDecreasing(List<PackingItem<T>> items, double avgGroupSize) {
 
-    PriorityQueue<MultiWorkUnit> pQueue = new PriorityQueue<>(workUnits.size(), LOAD_DESC_COMPARATOR);
-    for (WorkUnit workUnit : workUnits) {
-      MultiWorkUnit bestGroup = findAndPopBestFitGroup(workUnit, pQueue, avgGroupSize);
-      if (bestGroup != null) {
-        addWorkUnitToMultiWorkUnit(workUnit, bestGroup);
-      } else {
-        bestGroup = MultiWorkUnit.createEmpty();
-        addWorkUnitToMultiWorkUnit(workUnit, bestGroup);
+    // Sort items by data size desc
+    sortByLoadDesc(items);
+
+    PriorityQueue<Bin<T>> pQueue = new PriorityQueue<>(Math.max(items.size(), 1), BIN_LOAD_DESC_COMPARATOR);
+    for (PackingItem<T> item : items) {
+      Bin<T> bestGroup = findAndPopBestFitGroup(item, pQueue, avgGroupSize);
+      if (bestGroup == null) {
+        bestGroup = new Bin<>();
       }
+      bestGroup.add(item);
       pQueue.add(bestGroup);
     }
     return Lists.newArrayList(pQueue);
@@ -123,23 +174,23 @@ public class KafkaBiLevelWorkUnitPacker extends KafkaWorkUnitPacker {
    * The best group is the fullest group that has enough capacity for the new {@link WorkUnit}.
    * If no existing group has enough capacity for the new {@link WorkUnit}, return null.
    */
-  private static MultiWorkUnit findAndPopBestFitGroup(WorkUnit workUnit, PriorityQueue<MultiWorkUnit> pQueue,
+  private static <T> Bin<T> findAndPopBestFitGroup(PackingItem<T> item, PriorityQueue<Bin<T>> pQueue,
       double avgGroupSize) {
 
-    List<MultiWorkUnit> fullWorkUnits = Lists.newArrayList();
-    MultiWorkUnit bestFit = null;
+    List<Bin<T>> fullBins = Lists.newArrayList();
+    Bin<T> bestFit = null;
 
     while (!pQueue.isEmpty()) {
-      MultiWorkUnit candidate = pQueue.poll();
-      if (getWorkUnitEstSize(candidate) + getWorkUnitEstSize(workUnit) <= avgGroupSize) {
+      Bin<T> candidate = pQueue.poll();
+      if (candidate.getEstSize() + item.estSize <= avgGroupSize) {
         bestFit = candidate;
         break;
       }
-      fullWorkUnits.add(candidate);
+      fullBins.add(candidate);
     }
 
-    for (MultiWorkUnit fullWorkUnit : fullWorkUnits) {
-      pQueue.add(fullWorkUnit);
+    for (Bin<T> fullBin : fullBins) {
+      pQueue.add(fullBin);
     }
 
     return bestFit;
@@ -0,0 +1,34 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.source.extractor.extract.kafka.workunit.packer;
+
+import org.apache.gobblin.source.extractor.extract.kafka.KafkaPartition;
+import org.apache.gobblin.source.extractor.extract.kafka.KafkaPartitionPlan;
+import org.apache.gobblin.source.workunit.WorkUnit;
+
+
+/**
+ * A {@link KafkaWorkUnitSizeEstimator} that can estimate the size of a partition from its offset range alone, which
+ * allows the partitions of a {@link KafkaPartitionPlan} to be packed before their {@link WorkUnit}s are created.
+ */
+public interface KafkaPartitionSizeEstimator extends KafkaWorkUnitSizeEstimator {
+
+  /**
+   * Estimates the size of pulling a partition from {@code lowWatermark} to {@code highWatermark}.
+   */
+  public double calcEstimatedSize(KafkaPartition partition, long lowWatermark, long highWatermark);
+}
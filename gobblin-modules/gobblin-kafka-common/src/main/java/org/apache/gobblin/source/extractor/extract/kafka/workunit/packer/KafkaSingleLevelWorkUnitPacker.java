@@ -17,6 +17,7 @@
 
 package org.apache.gobblin.source.extractor.extract.kafka.workunit.packer;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +26,7 @@ import com.google.common.math.DoubleMath;
 
 import org.apache.gobblin.configuration.SourceState;
 import org.apache.gobblin.source.extractor.extract.AbstractSource;
+import org.apache.gobblin.source.extractor.extract.kafka.KafkaPartitionPlan;
 import org.apache.gobblin.source.workunit.MultiWorkUnit;
 import org.apache.gobblin.source.workunit.WorkUnit;
 
@@ -74,4 +76,34 @@ public class KafkaSingleLevelWorkUnitPacker extends KafkaWorkUnitPacker {
     }
     return worstFitDecreasingBinPacking(workUnits, numContainers);
   }
+
+  @Override
+  public boolean canPackPartitionPlan() {
+    return hasPartitionSizeEstimator();
+  }
+
+  @Override
+  public List<WorkUnit> pack(KafkaPartitionPlan plan, int numContainers) {
+    if (plan.size() == 0) {
+      return Lists.newArrayList();
+    }
+
+    setEstSizes(plan);
+    List<PartitionGroup> groups = Lists.newArrayList();
+    for (int[] indexesForTopic : plan.getIndexesByTopic().values()) {
+
+      // Same as pack(Map, int), all empty partitions of a topic go to a single workunit.
+      int[] zeroSizeIndexes =
+          Arrays.stream(indexesForTopic).filter(i -> DoubleMath.fuzzyEquals(plan.getEstSize(i), 0.0, EPS)).toArray();
+      for (int index : indexesForTopic) {
+        if (!DoubleMath.fuzzyEquals(plan.getEstSize(index), 0.0, EPS)) {
+          groups.add(new PartitionGroup(plan, new int[] {index}, false));
+        }
+      }
+      if (zeroSizeIndexes.length > 0) {
+        groups.add(new PartitionGroup(plan, zeroSizeIndexes, true));
+      }
+    }
+    return worstFitDecreasingBinPacking(plan, groups, numContainers);
+  }
 }
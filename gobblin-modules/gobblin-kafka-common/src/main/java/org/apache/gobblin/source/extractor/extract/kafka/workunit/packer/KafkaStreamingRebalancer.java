@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.source.extractor.extract.kafka.workunit.packer;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.gobblin.configuration.ConfigurationKeys;
+import org.apache.gobblin.configuration.State;
+import org.apache.gobblin.source.extractor.extract.kafka.KafkaPartition;
+import org.apache.gobblin.source.extractor.extract.kafka.KafkaProduceRateTracker;
+import org.apache.gobblin.source.extractor.extract.kafka.KafkaSource;
+import org.apache.gobblin.source.extractor.extract.kafka.KafkaStreamingExtractor;
+import org.apache.gobblin.source.extractor.extract.kafka.KafkaUtils;
+import org.apache.gobblin.source.workunit.WorkUnit;
+
+import static org.apache.gobblin.source.extractor.extract.kafka.workunit.packer.KafkaTopicGroupingWorkUnitPacker.GOBBLIN_KAFKA_PREFIX;
+import static org.apache.gobblin.source.extractor.extract.kafka.workunit.packer.KafkaTopicGroupingWorkUnitPacker.NUM_PARTITIONS_ASSIGNED;
+
+
+/**
+ * Computes incremental partition moves between the indexed {@link WorkUnit}s of a running streaming job, so that
+ * partitions whose throughput changed after {@link KafkaTopicGroupingWorkUnitPacker} packed them do not leave some
+ * containers saturated while others idle.
+ *
+ * <p>
+ *   The load of a partition is derived from the statistics that {@link KafkaStreamingExtractor} checkpoints in each
+ *   {@link KafkaStreamingExtractor.KafkaWatermark} on every flush: the historic produce rate for the current
+ *   hour-of-day and day-of-week (falling back to the most recently observed consume rate), plus the rate needed to
+ *   drain the current lag within {@link ProduceRateAndLagBasedWorkUnitSizeEstimator#CATCHUP_SLA_IN_HOURS_KEY}. Loads
+ *   are expressed in MB/s, like {@link KafkaTopicGroupingWorkUnitPacker#CONTAINER_CAPACITY_KEY}.
+ * </p>
+ *
+ * <p>
+ *   Partitions are only moved between work units of the same topic, since indexed work units never mix topics. Each
+ *   round greedily moves a partition from the most to the least loaded work unit of a topic while the most loaded one
+ *   exceeds the topic mean by more than {@link #IMBALANCE_THRESHOLD_KEY} and the move strictly lowers the maximum.
+ *   Churn is bounded by {@link #MAX_MOVES_PER_ROUND_KEY} and by a per-partition cool-down
+ *   ({@link #PARTITION_MOVE_COOLDOWN_MINUTES_KEY}).
+ * </p>
+ *
+ * <p>
+ *   Moved partitions are handed over through the committed watermarks: the new work units seek to the last committed
+ *   offset of each partition, so no data is lost (records consumed after the last commit may be re-consumed).
+ * </p>
+ */
+@Slf4j
+public class KafkaStreamingRebalancer {
+  public static final String REBALANCER_PREFIX = GOBBLIN_KAFKA_PREFIX + "streaming.rebalancer.";
+  public static final String REBALANCER_ENABLED_KEY = REBALANCER_PREFIX + "enabled";
+  public static final boolean DEFAULT_REBALANCER_ENABLED = false;
+  public static final String REBALANCE_INTERVAL_MINUTES_KEY = REBALANCER_PREFIX + "intervalMinutes";
+  public static final long DEFAULT_REBALANCE_INTERVAL_MINUTES = 15L;
+  //A work unit is considered overloaded if its load exceeds the mean load for the topic by this fraction.
+  public static final String IMBALANCE_THRESHOLD_KEY = REBALANCER_PREFIX + "imbalanceThreshold";
+  public static final double DEFAULT_IMBALANCE_THRESHOLD = 0.25;
+  public static final String MAX_MOVES_PER_ROUND_KEY = REBALANCER_PREFIX + "maxPartitionMovesPerRound";
+  public static final int DEFAULT_MAX_MOVES_PER_ROUND = 10;
+  //A partition that has been moved is not moved again within this interval, to avoid oscillation.
+  public static final String PARTITION_MOVE_COOLDOWN_MINUTES_KEY = REBALANCER_PREFIX + "partitionMoveCooldownMinutes";
+  public static final long DEFAULT_PARTITION_MOVE_COOLDOWN_MINUTES = 60L;
+
+  private static final int DEFAULT_CATCHUP_SLA_IN_HOURS = 1;
+
+  private final double imbalanceThreshold;
+  private final int maxMovesPerRound;
+  private final long cooldownMillis;
+  private final long catchUpSlaSecs;
+  private final Map<KafkaPartition, Long> lastMoveTimeMillis = Maps.newHashMap();
+
+  /**
+   * A single partition move computed by {@link #computeMoves(Map, Map, long)}.
+   */
+  @Getter
+  @ToString
+  @AllArgsConstructor
+  public static class PartitionMove {
+    private final KafkaPartition partition;
+    private final String fromWorkUnitId;
+    private final String toWorkUnitId;
+    private final double load;
+  }
+
+  public KafkaStreamingRebalancer(State state) {
+    this.imbalanceThreshold = state.getPropAsDouble(IMBALANCE_THRESHOLD_KEY, DEFAULT_IMBALANCE_THRESHOLD);
+    this.maxMovesPerRound = state.getPropAsInt(MAX_MOVES_PER_ROUND_KEY, DEFAULT_MAX_MOVES_PER_ROUND);
+    this.cooldownMillis = TimeUnit.MINUTES.toMillis(
+        state.getPropAsLong(PARTITION_MOVE_COOLDOWN_MINUTES_KEY, DEFAULT_PARTITION_MOVE_COOLDOWN_MINUTES));
+    this.catchUpSlaSecs = TimeUnit.HOURS.toSeconds(state.getPropAsLong(
+        ProduceRateAndLagBasedWorkUnitSizeEstimator.CATCHUP_SLA_IN_HOURS_KEY, DEFAULT_CATCHUP_SLA_IN_HOURS));
+  }
+
+  /**
+   * Estimate the load of a partition in MB/s from its last committed watermark.
+   * @return the estimated load, or a negative value if the watermark carries no usable statistics.
+   */
+  public double getPartitionLoad(KafkaStreamingExtractor.KafkaWatermark watermark, long currentTimeMillis) {
+    double rate = -1.0;
+    double[][] avgProduceRates = watermark.getAvgProduceRates();
+    if (avgProduceRates != null) {
+      Date date = new Date(currentTimeMillis);
+      double produceRate = avgProduceRates[KafkaProduceRateTracker.getDayOfWeek(date)][KafkaProduceRateTracker.getHourOfDay(date)];
+      if (produceRate >= 0) {
+        //Produce rates are tracked in bytes/sec
+        rate = produceRate / ProduceRateAndLagBasedWorkUnitSizeEstimator.ONE_MEGA_BYTE;
+      }
+    }
+    if (rate < 0 && watermark.getLatestConsumeRate() > 0) {
+      rate = watermark.getLatestConsumeRate();
+    }
+    if (rate < 0) {
+      return -1.0;
+    }
+    if (watermark.getLag() > 0 && watermark.getAvgRecordSize() > 0) {
+      rate += ((double) watermark.getLag() * watermark.getAvgRecordSize())
+          / (this.catchUpSlaSecs * ProduceRateAndLagBasedWorkUnitSizeEstimator.ONE_MEGA_BYTE);
+    }
+    return rate;
+  }
+
+  /**
+   * Compute the partition moves for one rebalancing round.
+   *
+   * @param assignment the partitions currently assigned to each work unit, keyed by work unit (task) id. This map is
+   *                   not modified.
+   * @param partitionLoads the estimated load of each partition. Partitions with unknown load are assumed to carry the
+   *                       mean known load of their topic.
+   * @return the moves to apply, in order, with at most {@link #MAX_MOVES_PER_ROUND_KEY} entries.
+   */
+  public List<PartitionMove> computeMoves(Map<String, List<KafkaPartition>> assignment,
+      Map<KafkaPartition, Double> partitionLoads, long currentTimeMillis) {
+    List<PartitionMove> moves = Lists.newArrayList();
+
+    Map<String, Map<String, List<KafkaPartition>>> assignmentByTopic = new LinkedHashMap<>();
+    for (Map.Entry<String, List<KafkaPartition>> entry : assignment.entrySet()) {
+      if (entry.getValue().isEmpty()) {
+        continue;
+      }
+      String topic = entry.getValue().get(0).getTopicName();
+      assignmentByTopic.computeIfAbsent(topic, k -> new LinkedHashMap<>())
+          .put(entry.getKey(), new ArrayList<>(entry.getValue()));
+    }
+
+    for (Map.Entry<String, Map<String, List<KafkaPartition>>> topicEntry : assignmentByTopic.entrySet()) {
+      if (moves.size() >= this.maxMovesPerRound) {
+        break;
+      }
+      if (topicEntry.getValue().size() < 2) {
+        continue;
+      }
+      moves.addAll(computeMovesForTopic(topicEntry.getValue(), partitionLoads, currentTimeMillis,
+          this.maxMovesPerRound - moves.size()));
+    }
+
+    return moves;
+  }
+
+  /**
+   * Record that the given moves were applied, so that the moved partitions are not moved again within the cooldown.
+   * Moves which were computed but not applied are not recorded.
+   */
+  public void recordMoves(List<PartitionMove> moves, long moveTimeMillis) {
+    for (PartitionMove move : moves) {
+      this.lastMoveTimeMillis.put(move.getPartition(), moveTimeMillis);
+    }
+  }
+
+  private List<PartitionMove> computeMovesForTopic(Map<String, List<KafkaPartition>> topicAssignment,
+      Map<KafkaPartition, Double> partitionLoads, long currentTimeMillis, int maxMoves) {
+    double knownLoad = 0;
+    int numKnown = 0;
+    for (List<KafkaPartition> partitions : topicAssignment.values()) {
+      for (KafkaPartition partition : partitions) {
+        Double load = partitionLoads.get(partition);
+        if (load != null && load >= 0) {
+          knownLoad += load;
+          numKnown++;
+        }
+      }
+    }
+    if (numKnown == 0) {
+      return Lists.newArrayList();
+    }
+    double defaultLoad = knownLoad / numKnown;
+
+    Map<String, Double> workUnitLoads = new HashMap<>();
+    double totalLoad = 0;
+    for (Map.Entry<String, List<KafkaPartition>> entry : topicAssignment.entrySet()) {
+      double load = 0;
+      for (KafkaPartition partition : entry.getValue()) {
+        load += getLoad(partition, partitionLoads, defaultLoad);
+      }
+      workUnitLoads.put(entry.getKey(), load);
+      totalLoad += load;
+    }
+    double meanLoad = totalLoad / topicAssignment.size();
+
+    List<PartitionMove> moves = Lists.newArrayList();
+    while (moves.size() < maxMoves) {
+      String hottest = null;
+      String coldest = null;
+      for (Map.Entry<String, Double> entry : workUnitLoads.entrySet()) {
+        if (hottest == null || entry.getValue() > workUnitLoads.get(hottest)) {
+          hottest = entry.getKey();
+        }
+        if (coldest == null || entry.getValue() < workUnitLoads.get(coldest)) {
+          coldest = entry.getKey();
+        }
+      }
+      double hotLoad = workUnitLoads.get(hottest);
+      double coldLoad = workUnitLoads.get(coldest);
+      if (hottest.equals(coldest) || hotLoad <= meanLoad * (1 + this.imbalanceThreshold)) {
+        break;
+      }
+
+      //Pick the partition that minimizes the larger of the two resulting loads.
+      List<KafkaPartition> hotPartitions = topicAssignment.get(hottest);
+      KafkaPartition candidate = null;
+      double candidateLoad = 0;
+      double bestPeak = hotLoad;
+      if (hotPartitions.size() > 1) {
+        for (KafkaPartition partition : hotPartitions) {
+          if (isCoolingDown(partition, currentTimeMillis)) {
+            continue;
+          }
+          double load = getLoad(partition, partitionLoads, defaultLoad);
+          double peak = Math.max(hotLoad - load, coldLoad + load);
+          if (peak < bestPeak) {
+            bestPeak = peak;
+            candidate = partition;
+            candidateLoad = load;
+          }
+        }
+      }
+      if (candidate == null) {
+        break;
+      }
+
+      hotPartitions.remove(candidate);
+      topicAssignment.get(coldest).add(candidate);
+      workUnitLoads.put(hottest, hotLoad - candidateLoad);
+      workUnitLoads.put(coldest, coldLoad + candidateLoad);
+      moves.add(new PartitionMove(candidate, hottest, coldest, candidateLoad));
+    }
+    return moves;
+  }
+
+  private boolean isCoolingDown(KafkaPartition partition, long currentTimeMillis) {
+    Long lastMoveTime = this.lastMoveTimeMillis.get(partition);
+    return lastMoveTime != null && currentTimeMillis - lastMoveTime < this.cooldownMillis;
+  }
+
+  private static double getLoad(KafkaPartition partition, Map<KafkaPartition, Double> partitionLoads,
+      double defaultLoad) {
+    Double load = partitionLoads.get(partition);
+    return load != null && load >= 0 ? load : defaultLoad;
+  }
+
+  /**
+   * Apply {@code moves} to a copy of {@code assignment}.
+   * @return the new assignment of the work units touched by the moves, keyed by their current work unit id.
+   */
+  public static Map<String, List<KafkaPartition>> getChangedAssignment(Map<String, List<KafkaPartition>> assignment,
+      List<PartitionMove> moves) {
+    Map<String, List<KafkaPartition>> changed = new LinkedHashMap<>();
+    for (PartitionMove move : moves) {
+      changed.computeIfAbsent(move.getFromWorkUnitId(), k -> new ArrayList<>(assignment.get(k)))
+          .remove(move.getPartition());
+      changed.computeIfAbsent(move.getToWorkUnitId(), k -> new ArrayList<>(assignment.get(k)))
+          .add(move.getPartition());
+    }
+    return changed;
+  }
+
+  /**
+   * Build the replacement for an indexed work unit produced by {@link KafkaTopicGroupingWorkUnitPacker}, assigned to
+   * {@code partitions} instead. The task identity of the old work unit is cleared so that the job launcher assigns a
+   * new one, and the writer output directory is made unique so that the new task does not collide with the flush
+   * publisher of the task it replaces.
+   */
+  @VisibleForTesting
+  public static WorkUnit createRebalancedWorkUnit(WorkUnit oldWorkUnit, List<KafkaPartition> partitions,
+      String writerOutputDir) {
+    WorkUnit workUnit = WorkUnit.copyOf(oldWorkUnit);
+    workUnit.removeProp(ConfigurationKeys.TASK_ID_KEY);
+    workUnit.removeProp(ConfigurationKeys.TASK_KEY_KEY);
+    for (int i = 0; workUnit.contains(KafkaUtils.getPartitionPropName(KafkaSource.PARTITION_ID, i)); i++) {
+      workUnit.removeProp(KafkaUtils.getPartitionPropName(KafkaSource.PARTITION_ID, i));
+      workUnit.removeProp(KafkaUtils.getPartitionPropName(KafkaSource.LEADER_ID, i));
+      workUnit.removeProp(KafkaUtils.getPartitionPropName(KafkaSource.LEADER_HOSTANDPORT, i));
+    }
+    KafkaWorkUnitPacker.populateMultiPartitionWorkUnit(partitions, workUnit);
+    workUnit.setProp(NUM_PARTITIONS_ASSIGNED, partitions.size());
+    if (writerOutputDir != null) {
+      workUnit.setProp(ConfigurationKeys.WRITER_OUTPUT_DIR,
+          KafkaTopicGroupingWorkUnitPacker.getUniqueWriterOutputDir(writerOutputDir));
+    }
+    return workUnit;
+  }
+}
@@ -357,9 +357,8 @@ public class KafkaTopicGroupingWorkUnitPacker extends KafkaWorkUnitPacker {
         indexedWorkUnit.setProp(NUM_PARTITIONS_ASSIGNED, topicPartitions.size());
 
         // Need to make the task output directory unique to file move conflicts in the flush publisher.
-        String outputDir = state.getProp(ConfigurationKeys.WRITER_OUTPUT_DIR);
         indexedWorkUnit.setProp(ConfigurationKeys.WRITER_OUTPUT_DIR,
-            new Path(outputDir, Integer.toString(uniqueId.getAndIncrement())));
+            getUniqueWriterOutputDir(state.getProp(ConfigurationKeys.WRITER_OUTPUT_DIR)));
         indexedWorkUnitList.add(indexedWorkUnit);
       }
       return indexedWorkUnitList;
@@ -368,6 +367,13 @@ public class KafkaTopicGroupingWorkUnitPacker extends KafkaWorkUnitPacker {
     }
   }
 
+  /**
+   * @return a task output directory under {@code outputDir} that is unique within this JVM.
+   */
+  static Path getUniqueWriterOutputDir(String outputDir) {
+    return new Path(outputDir, Integer.toString(uniqueId.getAndIncrement()));
+  }
+
   /**
    * A method that returns the container capacity for a given topic given the
    * @param capacities measured container capacities derived from watermarks
@@ -17,7 +17,6 @@
 
 package org.apache.gobblin.source.extractor.extract.kafka.workunit.packer;
 
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
@@ -41,6 +40,7 @@ import org.apache.gobblin.metrics.Tag;
 import org.apache.gobblin.source.extractor.WatermarkInterval;
 import org.apache.gobblin.source.extractor.extract.AbstractSource;
 import org.apache.gobblin.source.extractor.extract.kafka.KafkaPartition;
+import org.apache.gobblin.source.extractor.extract.kafka.KafkaPartitionPlan;
 import org.apache.gobblin.source.extractor.extract.kafka.KafkaSource;
 import org.apache.gobblin.source.extractor.extract.kafka.KafkaUtils;
 import org.apache.gobblin.source.extractor.extract.kafka.MultiLongWatermark;
@@ -92,7 +92,7 @@ public abstract class KafkaWorkUnitPacker {
 
   public static final String MIN_MULTIWORKUNIT_LOAD = "min.multiworkunit.load";
   public static final String MAX_MULTIWORKUNIT_LOAD = "max.multiworkunit.load";
-  private static final String ESTIMATED_WORKUNIT_SIZE = "estimated.workunit.size";
+  static final String ESTIMATED_WORKUNIT_SIZE = "estimated.workunit.size";
 
   protected final AbstractSource<?, ?> source;
   protected final SourceState state;
@@ -177,7 +177,7 @@ public abstract class KafkaWorkUnitPacker {
       MultiWorkUnit mwu = (MultiWorkUnit) workUnit;
       return Math.max(getWorkUnitEstSize(workUnit), EPS) * Math.log10(Math.max(mwu.getWorkUnits().size(), 2));
     }
-    return Math.max(getWorkUnitEstSize(workUnit), EPS) * Math.log10(2.0);
+    return getEstLoad(getWorkUnitEstSize(workUnit));
   }
 
   protected static void addWorkUnitToMultiWorkUnit(WorkUnit workUnit, MultiWorkUnit multiWorkUnit) {
@@ -192,6 +192,121 @@ public abstract class KafkaWorkUnitPacker {
     }
   }
 
+  /**
+   * An item to be packed, with its estimated size and load computed once up front. Items are either
+   * {@link WorkUnit}s or partitions of a {@link KafkaPartitionPlan} that have no {@link WorkUnit} yet.
+   */
+  static class PackingItem<T> {
+    final T item;
+    final double estSize;
+    final double estLoad;
+
+    PackingItem(T item, double estSize, double estLoad) {
+      this.item = item;
+      this.estSize = estSize;
+      this.estLoad = estLoad;
+    }
+  }
+
+  /**
+   * A bin used by the bin packing algorithms. Its size is kept as a primitive rather than as a property of a
+   * {@link MultiWorkUnit}, since setting a property on a {@link MultiWorkUnit} also sets it on every
+   * {@link WorkUnit} in it, which makes packing quadratic in the number of partitions per bin. The
+   * {@link MultiWorkUnit} is only created by {@link #toMultiWorkUnit(List, double)} once packing is done.
+   */
+  static class Bin<T> {
+    private final List<T> items = Lists.newArrayList();
+    private double estSize = 0;
+
+    void add(PackingItem<T> item) {
+      this.items.add(item.item);
+      this.estSize += item.estSize;
+    }
+
+    List<T> getItems() {
+      return this.items;
+    }
+
+    double getEstSize() {
+      return this.estSize;
+    }
+
+    /**
+     * Same as {@link KafkaWorkUnitPacker#getWorkUnitEstLoad(WorkUnit)} of the equivalent {@link MultiWorkUnit}.
+     */
+    double getEstLoad() {
+      return Math.max(this.estSize, EPS) * Math.log10(Math.max(this.items.size(), 2));
+    }
+
+    boolean isEmpty() {
+      return this.items.isEmpty();
+    }
+  }
+
+  static final Comparator<Bin<?>> BIN_LOAD_ASC_COMPARATOR =
+      (b1, b2) -> Doubles.compare(b1.getEstLoad(), b2.getEstLoad());
+
+  static final Comparator<Bin<?>> BIN_LOAD_DESC_COMPARATOR =
+      (b1, b2) -> Doubles.compare(b2.getEstLoad(), b1.getEstLoad());
+
+  /**
+   * A group of partitions of a {@link KafkaPartitionPlan} that is packed as a single {@link WorkUnit}.
+   * The partitions of a squeezed group are combined into one {@link WorkUnit} (see
+   * {@link #squeezeMultiWorkUnit(MultiWorkUnit)}). A group that is not squeezed has a single partition.
+   */
+  static class PartitionGroup {
+    final int[] indexes;
+    final double estSize;
+    final boolean squeeze;
+
+    PartitionGroup(KafkaPartitionPlan plan, int[] indexes, boolean squeeze) {
+      Preconditions.checkArgument(squeeze || indexes.length == 1, "A group that is not squeezed has one partition");
+      this.indexes = indexes;
+      this.estSize = calcTotalEstSize(plan, indexes);
+      this.squeeze = squeeze;
+    }
+  }
+
+  /**
+   * The estimated load of a single (non-multi) {@link WorkUnit} of the given size.
+   */
+  static double getEstLoad(double estSize) {
+    return Math.max(estSize, EPS) * Math.log10(2.0);
+  }
+
+  static MultiWorkUnit toMultiWorkUnit(List<WorkUnit> workUnits, double estSize) {
+    MultiWorkUnit multiWorkUnit = MultiWorkUnit.createEmpty();
+    multiWorkUnit.addWorkUnits(workUnits);
+    setWorkUnitEstSize(multiWorkUnit, estSize);
+    return multiWorkUnit;
+  }
+
+  /**
+   * @return the given {@link WorkUnit}s as {@link PackingItem}s.
+   */
+  static List<PackingItem<WorkUnit>> toPackingItems(List<WorkUnit> workUnits) {
+    List<PackingItem<WorkUnit>> items = Lists.newArrayListWithCapacity(workUnits.size());
+    for (WorkUnit workUnit : workUnits) {
+      items.add(new PackingItem<>(workUnit, getWorkUnitEstSize(workUnit), getWorkUnitEstLoad(workUnit)));
+    }
+    return items;
+  }
+
+  /**
+   * Sort the given {@link PackingItem}s by estimated load desc.
+   */
+  static <T> void sortByLoadDesc(List<PackingItem<T>> items) {
+    items.sort((i1, i2) -> Doubles.compare(i2.estLoad, i1.estLoad));
+  }
+
+  static double calcTotalEstSize(KafkaPartitionPlan plan, int[] indexes) {
+    double totalSize = 0;
+    for (int index : indexes) {
+      totalSize += plan.getEstSize(index);
+    }
+    return totalSize;
+  }
+
   @SuppressWarnings("deprecation")
   protected static WatermarkInterval getWatermarkIntervalFromWorkUnit(WorkUnit workUnit) {
     if (workUnit instanceof MultiWorkUnit) {
@@ -311,47 +426,103 @@ public abstract class KafkaWorkUnitPacker {
    * Each {@link WorkUnit} is assigned to the {@link MultiWorkUnit} with the smallest load.
    */
   protected List<WorkUnit> worstFitDecreasingBinPacking(List<WorkUnit> groups, int numOfMultiWorkUnits) {
+    LinkedList<MultiWorkUnit> multiWorkUnits = new LinkedList<>();
+    for (Bin<WorkUnit> bin : worstFitDecreasing(toPackingItems(groups), numOfMultiWorkUnits)) {
+      multiWorkUnits.offer(toMultiWorkUnit(bin.getItems(), bin.getEstSize()));
+    }
+    return toPackedWorkUnits(multiWorkUnits);
+  }
+
+  /**
+   * Same as {@link #worstFitDecreasingBinPacking(List, int)} for groups of partitions of a
+   * {@link KafkaPartitionPlan}. The {@link WorkUnit} of each group is created once the group has been packed.
+   */
+  protected List<WorkUnit> worstFitDecreasingBinPacking(KafkaPartitionPlan plan, List<PartitionGroup> groups,
+      int numOfMultiWorkUnits) {
+    List<PackingItem<PartitionGroup>> items = Lists.newArrayListWithCapacity(groups.size());
+    for (PartitionGroup group : groups) {
+      items.add(new PackingItem<>(group, group.estSize, getEstLoad(group.estSize)));
+    }
+
+    LinkedList<MultiWorkUnit> multiWorkUnits = new LinkedList<>();
+    for (Bin<PartitionGroup> bin : worstFitDecreasing(items, numOfMultiWorkUnits)) {
+      List<WorkUnit> workUnits = Lists.newArrayListWithCapacity(bin.getItems().size());
+      for (PartitionGroup group : bin.getItems()) {
+        workUnits.add(createWorkUnit(plan, group));
+      }
+      multiWorkUnits.offer(toMultiWorkUnit(workUnits, bin.getEstSize()));
+    }
+    return toPackedWorkUnits(multiWorkUnits);
+  }
+
+  /**
+   * Assign each item, by estimated load desc, to the bin with the smallest load.
+   *
+   * @return the non-empty bins, by estimated load asc.
+   */
+  static <T> List<Bin<T>> worstFitDecreasing(List<PackingItem<T>> items, int numOfBins) {
 
-    // Sort workunit groups by data size desc
-    Collections.sort(groups, LOAD_DESC_COMPARATOR);
+    // Sort items by data size desc
+    sortByLoadDesc(items);
 
-    MinMaxPriorityQueue<MultiWorkUnit> pQueue =
-        MinMaxPriorityQueue.orderedBy(LOAD_ASC_COMPARATOR).expectedSize(numOfMultiWorkUnits).create();
-    for (int i = 0; i < numOfMultiWorkUnits; i++) {
-      MultiWorkUnit multiWorkUnit = MultiWorkUnit.createEmpty();
-      setWorkUnitEstSize(multiWorkUnit, 0);
-      pQueue.add(multiWorkUnit);
+    MinMaxPriorityQueue<Bin<T>> pQueue =
+        MinMaxPriorityQueue.orderedBy(BIN_LOAD_ASC_COMPARATOR).expectedSize(numOfBins).create();
+    for (int i = 0; i < numOfBins; i++) {
+      pQueue.add(new Bin<T>());
     }
 
-    for (WorkUnit group : groups) {
-      MultiWorkUnit lightestMultiWorkUnit = pQueue.poll();
-      addWorkUnitToMultiWorkUnit(group, lightestMultiWorkUnit);
-      pQueue.add(lightestMultiWorkUnit);
+    for (PackingItem<T> item : items) {
+      Bin<T> lightestBin = pQueue.poll();
+      lightestBin.add(item);
+      pQueue.add(lightestBin);
     }
-    LinkedList<MultiWorkUnit> pQueue_filtered = new LinkedList();
-    while(!pQueue.isEmpty()) {
-      MultiWorkUnit multiWorkUnit = pQueue.poll();
-      if(multiWorkUnit.getWorkUnits().size() != 0) {
-        pQueue_filtered.offer(multiWorkUnit);
+
+    List<Bin<T>> bins = Lists.newArrayList();
+    while (!pQueue.isEmpty()) {
+      Bin<T> bin = pQueue.poll();
+      if (!bin.isEmpty()) {
+        bins.add(bin);
       }
     }
+    return bins;
+  }
+
+  /**
+   * Create the {@link WorkUnit} of a packed {@link PartitionGroup}.
+   */
+  protected WorkUnit createWorkUnit(KafkaPartitionPlan plan, PartitionGroup group) {
+    if (!group.squeeze) {
+      WorkUnit workUnit = plan.createWorkUnit(group.indexes[0]);
+      workUnit.setWatermarkInterval(getWatermarkIntervalFromWorkUnit(workUnit));
+      return workUnit;
+    }
+    MultiWorkUnit multiWorkUnit = MultiWorkUnit.createEmpty();
+    for (int index : group.indexes) {
+      multiWorkUnit.addWorkUnit(plan.createWorkUnit(index));
+    }
+    return squeezeMultiWorkUnit(multiWorkUnit);
+  }
 
-    if (pQueue_filtered.isEmpty()) {
+  /**
+   * @param multiWorkUnits the packed {@link MultiWorkUnit}s, by estimated load asc.
+   */
+  private List<WorkUnit> toPackedWorkUnits(LinkedList<MultiWorkUnit> multiWorkUnits) {
+    if (multiWorkUnits.isEmpty()) {
       return Lists.newArrayList();
     }
 
-    logMultiWorkUnitInfo(pQueue_filtered);
-    double minLoad = getWorkUnitEstLoad(pQueue_filtered.peekFirst());
-    double maxLoad = getWorkUnitEstLoad(pQueue_filtered.peekLast());
+    logMultiWorkUnitInfo(multiWorkUnits);
+    double minLoad = getWorkUnitEstLoad(multiWorkUnits.peekFirst());
+    double maxLoad = getWorkUnitEstLoad(multiWorkUnits.peekLast());
     LOG.info(String.format("Min load of multiWorkUnit = %f; Max load of multiWorkUnit = %f; Diff = %f%%", minLoad,
         maxLoad, (maxLoad - minLoad) / maxLoad * 100.0));
 
     this.state.setProp(MIN_MULTIWORKUNIT_LOAD, minLoad);
     this.state.setProp(MAX_MULTIWORKUNIT_LOAD, maxLoad);
 
-    List<WorkUnit> multiWorkUnits = Lists.newArrayList();
-    multiWorkUnits.addAll(pQueue_filtered);
-    return multiWorkUnits;
+    List<WorkUnit> packedWorkUnits = Lists.newArrayList();
+    packedWorkUnits.addAll(multiWorkUnits);
+    return packedWorkUnits;
   }
 
   private static void logMultiWorkUnitInfo(Iterable<MultiWorkUnit> mwus) {
@@ -422,9 +593,49 @@ public abstract class KafkaWorkUnitPacker {
     return totalEstDataSize;
   }
 
+  /**
+   * Calculate the total size of the partitions of a {@link KafkaPartitionPlan} and set the estimated size of each
+   * partition. Requires a {@link KafkaPartitionSizeEstimator}.
+   * @return the total size of the partitions
+   */
+  public double setEstSizes(KafkaPartitionPlan plan) {
+    Preconditions.checkState(hasPartitionSizeEstimator(),
+        this.sizeEstimator.getClass().getName() + " cannot estimate partitions without work units");
+    KafkaPartitionSizeEstimator partitionSizeEstimator = (KafkaPartitionSizeEstimator) this.sizeEstimator;
+    double totalEstDataSize = 0;
+    for (int i = 0; i < plan.size(); i++) {
+      double estSize = partitionSizeEstimator.calcEstimatedSize(plan.getPartition(i), plan.getLowWatermark(i),
+          plan.getHighWatermark(i));
+      plan.setEstSize(i, estSize);
+      totalEstDataSize += estSize;
+    }
+    return totalEstDataSize;
+  }
+
+  protected boolean hasPartitionSizeEstimator() {
+    return this.sizeEstimator instanceof KafkaPartitionSizeEstimator;
+  }
+
   /**
    * Group {@link WorkUnit}s into {@link MultiWorkUnit}s. Each input {@link WorkUnit} corresponds to
    * a (topic, partition).
    */
   public abstract List<WorkUnit> pack(Map<String, List<WorkUnit>> workUnitsByTopic, int numContainers);
+
+  /**
+   * Whether this packer can pack a {@link KafkaPartitionPlan} with {@link #pack(KafkaPartitionPlan, int)}. If not,
+   * a {@link WorkUnit} is created for every partition and packed with {@link #pack(Map, int)}.
+   */
+  public boolean canPackPartitionPlan() {
+    return false;
+  }
+
+  /**
+   * Group the partitions of a {@link KafkaPartitionPlan} into {@link MultiWorkUnit}s, like {@link #pack(Map, int)}.
+   * {@link WorkUnit}s are only created once partitions have been packed, so that planning doesn't hold a
+   * {@link WorkUnit} for every partition. Only called if {@link #canPackPartitionPlan()}.
+   */
+  public List<WorkUnit> pack(KafkaPartitionPlan plan, int numContainers) {
+    return pack(plan.createWorkUnitsByTopic(), numContainers);
+  }
 }
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.source.extractor.extract.kafka;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.apache.gobblin.configuration.State;
+
+
+public class CachingAvroRecordDecoderTest {
+
+  private static final Schema WRITER_SCHEMA = SchemaBuilder.record("Test").namespace("org.apache.gobblin.test")
+      .fields().requiredString("key").requiredLong("value").endRecord();
+  private static final Schema READER_SCHEMA = SchemaBuilder.record("Test").namespace("org.apache.gobblin.test")
+      .fields().requiredString("key").requiredLong("value")
+      .name("extra").type().intType().intDefault(7).endRecord();
+
+  @Test
+  public void testReaderIsCachedPerSchemaPair() throws IOException {
+    CachingAvroRecordDecoder decoder = new CachingAvroRecordDecoder(new State());
+    Assert.assertEquals(decoder.getRecordReuseMode(), CachingAvroRecordDecoder.RecordReuseMode.NONE);
+
+    GenericRecord first = decode(decoder, serialize("a", 1L));
+    GenericRecord second = decode(decoder, serialize("b", 2L));
+    Assert.assertEquals(first.get("key").toString(), "a");
+    Assert.assertEquals(first.get("extra"), 7);
+    Assert.assertEquals(second.get("value"), 2L);
+    Assert.assertNotSame(first, second);
+    Assert.assertEquals(decoder.getReaderCacheMisses(), 1);
+    Assert.assertEquals(decoder.getReaderCacheHits(), 1);
+
+    // A structurally identical schema instance maps to the same cached reader
+    Schema writerCopy = new Schema.Parser().parse(WRITER_SCHEMA.toString());
+    Assert.assertSame(decoder.getReader(writerCopy, READER_SCHEMA), decoder.getReader(WRITER_SCHEMA, READER_SCHEMA));
+    Assert.assertEquals(decoder.getReaderCacheMisses(), 1);
+
+    // Reading with the writer schema itself is a different pair
+    decoder.getReader(WRITER_SCHEMA, WRITER_SCHEMA);
+    Assert.assertEquals(decoder.getReaderCacheMisses(), 2);
+  }
+
+  @Test
+  public void testReaderSchemasDifferingOnlyInDefaultsAreNotShared() throws IOException {
+    CachingAvroRecordDecoder decoder = new CachingAvroRecordDecoder(new State());
+    Schema otherDefault = SchemaBuilder.record("Test").namespace("org.apache.gobblin.test")
+        .fields().requiredString("key").requiredLong("value")
+        .name("extra").type().intType().intDefault(42).endRecord();
+    byte[] payload = serialize("a", 1L);
+
+    GenericRecord withDefault7 = decode(decoder, payload);
+    GenericRecord withDefault42 = decoder.decode(WRITER_SCHEMA, otherDefault,
+        DecoderFactory.get().binaryDecoder(payload, null));
+
+    Assert.assertEquals(withDefault7.get("extra"), 7);
+    Assert.assertEquals(withDefault42.get("extra"), 42);
+    Assert.assertEquals(decoder.getReaderCacheMisses(), 2);
+  }
+
+  @Test
+  public void testRecordReuse() throws IOException {
+    State state = new State();
+    state.setProp(CachingAvroRecordDecoder.KAFKA_AVRO_RECORD_REUSE_MODE, "reuse");
+    CachingAvroRecordDecoder decoder = new CachingAvroRecordDecoder(state);
+
+    GenericRecord first = decode(decoder, serialize("a", 1L));
+    BinaryDecoder binaryDecoder = decoder.getReusableBinaryDecoder();
+    GenericRecord second = decode(decoder, serialize("b", 2L));
+    Assert.assertSame(first, second);
+    Assert.assertSame(decoder.getReusableBinaryDecoder(), binaryDecoder);
+    Assert.assertEquals(second.get("key").toString(), "b");
+    Assert.assertEquals(second.get("value"), 2L);
+  }
+
+  @Test
+  public void testRecordPool() throws IOException {
+    CachingAvroRecordDecoder decoder =
+        new CachingAvroRecordDecoder(CachingAvroRecordDecoder.RecordReuseMode.POOL, 2, 10);
+
+    GenericRecord first = decode(decoder, serialize("a", 1L));
+    GenericRecord second = decode(decoder, serialize("b", 2L));
+    Assert.assertNotSame(first, second);
+    Assert.assertEquals(first.get("key").toString(), "a");
+
+    GenericRecord third = decode(decoder, serialize("c", 3L));
+    Assert.assertSame(third, first);
+    Assert.assertEquals(third.get("key").toString(), "c");
+    Assert.assertEquals(second.get("key").toString(), "b");
+  }
+
+  private static GenericRecord decode(CachingAvroRecordDecoder decoder, byte[] payload) throws IOException {
+    BinaryDecoder binaryDecoder = DecoderFactory.get().binaryDecoder(payload, decoder.getReusableBinaryDecoder());
+    decoder.setBinaryDecoder(binaryDecoder);
+    return decoder.decode(WRITER_SCHEMA, READER_SCHEMA, binaryDecoder);
+  }
+
+  private static byte[] serialize(String key, long value) throws IOException {
+    GenericRecord record = new GenericData.Record(WRITER_SCHEMA);
+    record.put("key", key);
+    record.put("value", value);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<GenericRecord>(WRITER_SCHEMA).write(record, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+}
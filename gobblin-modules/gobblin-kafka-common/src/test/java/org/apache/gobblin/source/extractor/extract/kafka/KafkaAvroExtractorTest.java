@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.source.extractor.extract.kafka;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.typesafe.config.Config;
+
+import org.apache.gobblin.configuration.ConfigurationKeys;
+import org.apache.gobblin.configuration.WorkUnitState;
+import org.apache.gobblin.kafka.client.BaseKafkaConsumerRecord;
+import org.apache.gobblin.kafka.client.ByteArrayBasedKafkaRecord;
+import org.apache.gobblin.kafka.client.GobblinKafkaConsumerClient;
+import org.apache.gobblin.kafka.client.KafkaConsumerRecord;
+import org.apache.gobblin.source.extractor.WatermarkInterval;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+
+public class KafkaAvroExtractorTest {
+  private static final String TOPIC = "testTopic";
+  private static final int NUM_RECORDS = 100;
+  private static final int BUFFER_SIZE = 10;
+  private static final Schema SCHEMA = SchemaBuilder.record("Test").namespace("org.apache.gobblin.test")
+      .fields().requiredInt("id").requiredString("name").endRecord();
+
+  @Test
+  public void testParallelDecoding() throws Exception {
+    WorkUnitState state = getWorkUnitState();
+    state.setProp(KafkaExtractor.KAFKA_EXTRACTOR_PREFETCH_ENABLED_KEY, true);
+    state.setProp(KafkaExtractor.KAFKA_EXTRACTOR_DECODE_PARALLELISM_KEY, 4);
+
+    Set<String> decodingThreads = Sets.newConcurrentHashSet();
+    try (ThreadTrackingExtractor extractor = new ThreadTrackingExtractor(state, decodingThreads)) {
+      Assert.assertTrue(extractor.isDecodeThreadSafe());
+      assertRecordsInOrder(extractor);
+    }
+
+    // Every record was decoded ahead of the task thread by the decoding pool
+    Assert.assertFalse(decodingThreads.isEmpty());
+    Assert.assertFalse(decodingThreads.contains(Thread.currentThread().getName()), decodingThreads.toString());
+    for (String thread : decodingThreads) {
+      Assert.assertTrue(thread.startsWith("KafkaDecoder-" + TOPIC), thread);
+    }
+  }
+
+  @Test
+  public void testRecordReuseDisablesParallelDecoding() throws Exception {
+    WorkUnitState state = getWorkUnitState();
+    state.setProp(KafkaExtractor.KAFKA_EXTRACTOR_PREFETCH_ENABLED_KEY, true);
+    state.setProp(KafkaExtractor.KAFKA_EXTRACTOR_DECODE_PARALLELISM_KEY, 4);
+    state.setProp(CachingAvroRecordDecoder.KAFKA_AVRO_RECORD_REUSE_MODE, "reuse");
+
+    Set<String> decodingThreads = Sets.newConcurrentHashSet();
+    try (ThreadTrackingExtractor extractor = new ThreadTrackingExtractor(state, decodingThreads)) {
+      Assert.assertFalse(extractor.isDecodeThreadSafe());
+      assertRecordsInOrder(extractor);
+    }
+
+    Assert.assertEquals(decodingThreads, Sets.newHashSet(Thread.currentThread().getName()));
+  }
+
+  @Test
+  public void testParallelDecodingIsOptIn() throws Exception {
+    WorkUnitState state = getWorkUnitState();
+    state.setProp(KafkaExtractor.KAFKA_EXTRACTOR_PREFETCH_ENABLED_KEY, true);
+    state.setProp(KafkaExtractor.KAFKA_EXTRACTOR_DECODE_PARALLELISM_KEY, 4);
+
+    Set<String> decodingThreads = Sets.newConcurrentHashSet();
+    try (CustomHooksExtractor extractor = new CustomHooksExtractor(state, decodingThreads)) {
+      Assert.assertFalse(extractor.isDecodeThreadSafe());
+      assertRecordsInOrder(extractor);
+    }
+
+    Assert.assertEquals(decodingThreads, Sets.newHashSet(Thread.currentThread().getName()));
+  }
+
+  @Test
+  public void testRecordDecodersAreDroppedOnClose() throws Exception {
+    ThreadTrackingExtractor extractor = new ThreadTrackingExtractor(getWorkUnitState(), Sets.newConcurrentHashSet());
+    CachingAvroRecordDecoder recordDecoder = extractor.getRecordDecoder();
+    Assert.assertSame(extractor.getRecordDecoder(), recordDecoder);
+
+    extractor.close();
+    Assert.assertNotSame(extractor.getRecordDecoder(), recordDecoder);
+  }
+
+  private static void assertRecordsInOrder(KafkaAvroExtractor<?> extractor) throws Exception {
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      GenericRecord record = extractor.readRecordImpl(null);
+      Assert.assertNotNull(record, "Missing record " + i);
+      Assert.assertEquals(record.get("id"), i);
+      Assert.assertEquals(record.get("name").toString(), "name-" + i);
+    }
+    Assert.assertNull(extractor.readRecordImpl(null));
+  }
+
+  private static WorkUnitState getWorkUnitState() {
+    WorkUnitState state = KafkaExtractorUtils.getWorkUnitState(TOPIC, 1);
+    state.setProp(KafkaSource.GOBBLIN_KAFKA_CONSUMER_CLIENT_FACTORY_CLASS, TestConsumerClientFactory.class.getName());
+    state.setProp(FixedSchemaKafkaAvroExtractor.STATIC_SCHEMA_ROOT_KEY + "." + TOPIC, SCHEMA.toString());
+    WatermarkInterval watermarkInterval = new WatermarkInterval(new MultiLongWatermark(ImmutableList.of(0L)),
+        new MultiLongWatermark(ImmutableList.of((long) NUM_RECORDS)));
+    state.setProp(ConfigurationKeys.WATERMARK_INTERVAL_VALUE_KEY, watermarkInterval.toJson());
+    state.setWuProperties(state.getProperties(), state.getProperties());
+    return state;
+  }
+
+  /**
+   * Records the threads on which records are decoded.
+   */
+  private static class ThreadTrackingExtractor extends FixedSchemaKafkaAvroExtractor {
+    private final Set<String> decodingThreads;
+
+    ThreadTrackingExtractor(WorkUnitState state, Set<String> decodingThreads) {
+      super(state);
+      this.decodingThreads = decodingThreads;
+    }
+
+    @Override
+    protected Schema getRecordSchema(byte[] payload) {
+      this.decodingThreads.add(Thread.currentThread().getName());
+      return super.getRecordSchema(payload);
+    }
+  }
+
+  /**
+   * Implements the decode hooks directly, without opting in to parallel decoding.
+   */
+  private static class CustomHooksExtractor extends KafkaAvroExtractor<Void> {
+    private final Set<String> decodingThreads;
+
+    CustomHooksExtractor(WorkUnitState state, Set<String> decodingThreads) {
+      super(state);
+      this.decodingThreads = decodingThreads;
+    }
+
+    @Override
+    protected Optional<Schema> getExtractorSchema() {
+      return Optional.of(SCHEMA);
+    }
+
+    @Override
+    protected Schema getRecordSchema(byte[] payload) {
+      this.decodingThreads.add(Thread.currentThread().getName());
+      return SCHEMA;
+    }
+
+    @Override
+    protected Decoder getDecoder(byte[] payload) {
+      return DecoderFactory.get().binaryDecoder(payload, null);
+    }
+  }
+
+  public static class TestConsumerClientFactory
+      implements GobblinKafkaConsumerClient.GobblinKafkaConsumerClientFactory {
+    @Override
+    public GobblinKafkaConsumerClient create(Config config) {
+      GobblinKafkaConsumerClient client = Mockito.mock(GobblinKafkaConsumerClient.class);
+      Mockito.when(client.consume(any(KafkaPartition.class), anyLong(), anyLong())).thenAnswer(invocation -> {
+        KafkaPartition partition = invocation.getArgument(0);
+        long nextOffset = invocation.getArgument(1);
+        long maxOffset = invocation.getArgument(2);
+        return records(partition, nextOffset, Math.min(nextOffset + BUFFER_SIZE, maxOffset));
+      });
+      return client;
+    }
+  }
+
+  private static Iterator<KafkaConsumerRecord> records(KafkaPartition partition, long startOffset, long endOffset)
+      throws IOException {
+    List<KafkaConsumerRecord> records = Lists.newArrayList();
+    for (long offset = startOffset; offset < endOffset; offset++) {
+      records.add(new TestRecord(offset, partition, serialize((int) offset)));
+    }
+    return records.iterator();
+  }
+
+  private static byte[] serialize(int id) throws IOException {
+    GenericRecord record = new GenericData.Record(SCHEMA);
+    record.put("id", id);
+    record.put("name", "name-" + id);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<GenericRecord>(SCHEMA).write(record, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static class TestRecord extends BaseKafkaConsumerRecord implements ByteArrayBasedKafkaRecord {
+    private final byte[] payload;
+
+    TestRecord(long offset, KafkaPartition partition, byte[] payload) {
+      super(offset, payload.length, partition.getTopicName(), partition.getId());
+      this.payload = payload;
+    }
+
+    @Override
+    public byte[] getMessageBytes() {
+      return this.payload;
+    }
+
+    @Override
+    public byte[] getKeyBytes() {
+      return null;
+    }
+  }
+}
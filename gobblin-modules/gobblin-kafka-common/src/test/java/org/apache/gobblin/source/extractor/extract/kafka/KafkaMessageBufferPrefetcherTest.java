@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.source.extractor.extract.kafka;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import org.apache.gobblin.kafka.client.GobblinKafkaConsumerClient;
+import org.apache.gobblin.kafka.client.KafkaConsumerRecord;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+
+
+public class KafkaMessageBufferPrefetcherTest {
+  private static final KafkaPartition PARTITION0 = new KafkaPartition.Builder().withTopicName("test-topic").withId(0).build();
+  private static final KafkaPartition PARTITION1 = new KafkaPartition.Builder().withTopicName("test-topic").withId(1).build();
+  private static final List<KafkaPartition> PARTITIONS = ImmutableList.of(PARTITION0, PARTITION1);
+
+  private static Iterator<KafkaConsumerRecord> records(long startOffset, long endOffset) {
+    List<KafkaConsumerRecord> records = Lists.newArrayList();
+    for (long offset = startOffset; offset < endOffset; offset++) {
+      KafkaConsumerRecord record = Mockito.mock(KafkaConsumerRecord.class);
+      Mockito.when(record.getOffset()).thenReturn(offset);
+      Mockito.when(record.getNextOffset()).thenReturn(offset + 1);
+      records.add(record);
+    }
+    return records.iterator();
+  }
+
+  @Test
+  public void testBuffersAreReturnedInOrder() throws Exception {
+    GobblinKafkaConsumerClient client = Mockito.mock(GobblinKafkaConsumerClient.class);
+    Mockito.when(client.consume(eq(PARTITION0), eq(0L), anyLong())).thenReturn(records(0, 5));
+    Mockito.when(client.consume(eq(PARTITION0), eq(5L), anyLong())).thenReturn(records(5, 10));
+    Mockito.when(client.consume(eq(PARTITION1), eq(100L), anyLong())).thenReturn(records(100, 103));
+
+    try (KafkaMessageBufferPrefetcher prefetcher = new KafkaMessageBufferPrefetcher(client, PARTITIONS,
+        new MultiLongWatermark(ImmutableList.of(0L, 100L)), new MultiLongWatermark(ImmutableList.of(10L, 103L)), 1)) {
+      prefetcher.start();
+
+      KafkaMessageBufferPrefetcher.MessageBuffer buffer = prefetcher.nextBuffer(0);
+      Assert.assertEquals(buffer.getRecords().size(), 5);
+      Assert.assertEquals(buffer.getRecords().get(0).getOffset(), 0L);
+      buffer = prefetcher.nextBuffer(0);
+      Assert.assertEquals(buffer.getRecords().get(0).getOffset(), 5L);
+      Assert.assertTrue(prefetcher.nextBuffer(0).isEndOfPartition());
+
+      buffer = prefetcher.nextBuffer(1);
+      Assert.assertEquals(buffer.getPartitionIdx(), 1);
+      Assert.assertEquals(buffer.getRecords().size(), 3);
+      Assert.assertTrue(prefetcher.nextBuffer(1).isEndOfPartition());
+    }
+  }
+
+  @Test
+  public void testSkippedPartitionBuffersAreDropped() throws Exception {
+    GobblinKafkaConsumerClient client = Mockito.mock(GobblinKafkaConsumerClient.class);
+    Mockito.when(client.consume(eq(PARTITION0), eq(0L), anyLong())).thenReturn(records(0, 5));
+    Mockito.when(client.consume(eq(PARTITION0), eq(5L), anyLong())).thenReturn(records(5, 10));
+    Mockito.when(client.consume(eq(PARTITION1), eq(0L), anyLong())).thenReturn(records(0, 2));
+
+    try (KafkaMessageBufferPrefetcher prefetcher = new KafkaMessageBufferPrefetcher(client, PARTITIONS,
+        new MultiLongWatermark(ImmutableList.of(0L, 0L)), new MultiLongWatermark(ImmutableList.of(10L, 2L)), 4)) {
+      prefetcher.start();
+
+      Assert.assertEquals(prefetcher.nextBuffer(0).getRecords().size(), 5);
+      // The extractor moved on to partition 1 before consuming the rest of partition 0
+      KafkaMessageBufferPrefetcher.MessageBuffer buffer = prefetcher.nextBuffer(1);
+      Assert.assertEquals(buffer.getPartitionIdx(), 1);
+      Assert.assertEquals(buffer.getRecords().size(), 2);
+      Assert.assertTrue(prefetcher.nextBuffer(1).isEndOfPartition());
+    }
+  }
+
+  @Test
+  public void testFetchErrorTerminatesPartition() throws Exception {
+    GobblinKafkaConsumerClient client = Mockito.mock(GobblinKafkaConsumerClient.class);
+    Mockito.when(client.consume(eq(PARTITION0), anyLong(), anyLong())).thenThrow(new RuntimeException("fetch failed"));
+    Mockito.when(client.consume(eq(PARTITION1), anyLong(), anyLong())).thenReturn(records(0, 1));
+
+    try (KafkaMessageBufferPrefetcher prefetcher = new KafkaMessageBufferPrefetcher(client, PARTITIONS,
+        new MultiLongWatermark(ImmutableList.of(0L, 0L)), new MultiLongWatermark(ImmutableList.of(10L, 1L)), 2)) {
+      prefetcher.start();
+
+      KafkaMessageBufferPrefetcher.MessageBuffer buffer = prefetcher.nextBuffer(0);
+      Assert.assertNotNull(buffer.getError());
+      Assert.assertEquals(prefetcher.nextBuffer(1).getRecords().size(), 1);
+      Assert.assertTrue(prefetcher.nextBuffer(1).isEndOfPartition());
+      // Past the last partition, every request sees the end of the stream
+      Assert.assertTrue(prefetcher.nextBuffer(2).isEndOfPartition());
+    }
+    Mockito.verify(client, Mockito.never()).consume(any(KafkaPartition.class), eq(1L), anyLong());
+  }
+}
@@ -71,6 +71,48 @@ public class KafkaSourceTest {
 
   }
 
+  @Test
+  public void testGetWorkunitsWithBatchedOffsetFetch() {
+    TestKafkaClient testKafkaClient = new TestKafkaClient();
+    testKafkaClient.testTopics = testTopics;
+    SourceState state = new SourceState();
+    state.setProp(ConfigurationKeys.WRITER_OUTPUT_DIR, "TestPath");
+    state.setProp(GOBBLIN_KAFKA_CONSUMER_CLIENT_FACTORY_CLASS, "MockTestKafkaConsumerClientFactory");
+    // Batches of 5 partitions span topic boundaries
+    state.setProp(KafkaSource.OFFSET_FETCH_BATCH_SIZE, 5);
+    TestKafkaSource testKafkaSource = new TestKafkaSource(testKafkaClient);
+    List<WorkUnit> workUnits = testKafkaSource.getWorkunits(state);
+
+    validatePartitionNumWithinWorkUnits(workUnits, 48);
+  }
+
+  @Test
+  public void testGetWorkunitsWithBiLevelPacker() {
+    SourceState state = new SourceState();
+    state.setProp(ConfigurationKeys.WRITER_OUTPUT_DIR, "TestPath");
+    state.setProp(GOBBLIN_KAFKA_CONSUMER_CLIENT_FACTORY_CLASS, MockTestKafkaConsumerClientWithOffsetsFactory.class.getName());
+    state.setProp(BOOTSTRAP_WITH_OFFSET, EARLIEST_OFFSET);
+    state.setProp(KafkaWorkUnitPacker.KAFKA_WORKUNIT_PACKER_TYPE, KafkaWorkUnitPacker.PackerType.BI_LEVEL);
+    state.setProp(ConfigurationKeys.MR_JOB_MAX_MAPPERS_KEY, 4);
+    state.setProp(ConfigurationKeys.MR_TARGET_MAPPER_SIZE, 1000);
+    TestKafkaSource testKafkaSource = new TestKafkaSource(new TestKafkaClient());
+    List<WorkUnit> workUnits = testKafkaSource.getWorkunits(state);
+
+    // Partitions are packed before their work units are created, and each packed group becomes one work unit
+    Assert.assertEquals(workUnits.size(), 4);
+    validatePartitionNumWithinWorkUnits(workUnits, 48);
+    long totalRange = 0;
+    for (WorkUnit workUnit : workUnits) {
+      for (WorkUnit wu : ((MultiWorkUnit) workUnit).getWorkUnits()) {
+        totalRange += wu.getLowWatermark(MultiLongWatermark.class)
+            .getGap(wu.getExpectedHighWatermark(MultiLongWatermark.class));
+        Assert.assertEquals(wu.getPropAsInt(NUM_TOPIC_PARTITIONS), 16);
+      }
+    }
+    // 3 topics, each with partitions 0 to 15 whose latest offset is 10 * (id + 1)
+    Assert.assertEquals(totalRange, 3 * 1360);
+  }
+
   @Test
   public void testGetWorkunitsForFilteredPartitions() {
     TestKafkaClient testKafkaClient = new TestKafkaClient();
@@ -197,6 +239,20 @@ public class KafkaSourceTest {
     }
   }
 
+  public static class MockTestKafkaConsumerClientWithOffsetsFactory
+      implements GobblinKafkaConsumerClient.GobblinKafkaConsumerClientFactory {
+
+    @Override
+    public GobblinKafkaConsumerClient create(Config config) {
+      return new TestKafkaClient() {
+        @Override
+        public long getLatestOffset(KafkaPartition partition) {
+          return 10L * (partition.getId() + 1);
+        }
+      };
+    }
+  }
+
   public static class TestKafkaClient implements GobblinKafkaConsumerClient {
     List<String> testTopics = KafkaSourceTest.testTopics;
 
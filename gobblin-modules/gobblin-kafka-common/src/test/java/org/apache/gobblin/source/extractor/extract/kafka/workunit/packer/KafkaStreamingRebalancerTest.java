@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.gobblin.source.extractor.extract.kafka.workunit.packer;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.apache.gobblin.configuration.ConfigurationKeys;
+import org.apache.gobblin.configuration.State;
+import org.apache.gobblin.source.extractor.extract.LongWatermark;
+import org.apache.gobblin.source.extractor.extract.kafka.KafkaPartition;
+import org.apache.gobblin.source.extractor.extract.kafka.KafkaSource;
+import org.apache.gobblin.source.extractor.extract.kafka.KafkaStreamingExtractor;
+import org.apache.gobblin.source.extractor.extract.kafka.KafkaUtils;
+import org.apache.gobblin.source.workunit.WorkUnit;
+
+
+public class KafkaStreamingRebalancerTest {
+  private static final long NOW = 1600000000000L;
+
+  private static KafkaPartition partition(String topic, int id) {
+    return new KafkaPartition.Builder().withTopicName(topic).withId(id).withLeaderId(1)
+        .withLeaderHostAndPort("localhost", 9092).build();
+  }
+
+  @Test
+  public void testHotPartitionIsMoved() {
+    KafkaStreamingRebalancer rebalancer = new KafkaStreamingRebalancer(new State());
+
+    Map<String, List<KafkaPartition>> assignment = new LinkedHashMap<>();
+    assignment.put("task_0", Lists.newArrayList(partition("topic", 0), partition("topic", 1), partition("topic", 2)));
+    assignment.put("task_1", Lists.newArrayList(partition("topic", 3)));
+
+    Map<KafkaPartition, Double> loads = Maps.newHashMap();
+    loads.put(partition("topic", 0), 5.0);
+    loads.put(partition("topic", 1), 4.0);
+    loads.put(partition("topic", 2), 1.0);
+    loads.put(partition("topic", 3), 1.0);
+
+    List<KafkaStreamingRebalancer.PartitionMove> moves = rebalancer.computeMoves(assignment, loads, NOW);
+    Assert.assertEquals(moves.size(), 1);
+    Assert.assertEquals(moves.get(0).getPartition(), partition("topic", 0));
+    Assert.assertEquals(moves.get(0).getFromWorkUnitId(), "task_0");
+    Assert.assertEquals(moves.get(0).getToWorkUnitId(), "task_1");
+    // The input assignment is left untouched
+    Assert.assertEquals(assignment.get("task_0").size(), 3);
+
+    Map<String, List<KafkaPartition>> changed = KafkaStreamingRebalancer.getChangedAssignment(assignment, moves);
+    Assert.assertEquals(changed.get("task_0"), Arrays.asList(partition("topic", 1), partition("topic", 2)));
+    Assert.assertEquals(changed.get("task_1"), Arrays.asList(partition("topic", 3), partition("topic", 0)));
+
+    // The new assignment (5.0 vs 6.0) is within the imbalance threshold
+    assignment.putAll(changed);
+    Assert.assertTrue(rebalancer.computeMoves(assignment, loads, NOW + 1000L).isEmpty());
+  }
+
+  @Test
+  public void testChurnIsBounded() {
+    State state = new State();
+    state.setProp(KafkaStreamingRebalancer.MAX_MOVES_PER_ROUND_KEY, 2);
+    KafkaStreamingRebalancer rebalancer = new KafkaStreamingRebalancer(state);
+
+    Map<String, List<KafkaPartition>> assignment = new LinkedHashMap<>();
+    List<KafkaPartition> hot = Lists.newArrayList();
+    Map<KafkaPartition, Double> loads = Maps.newHashMap();
+    for (int i = 0; i < 8; i++) {
+      hot.add(partition("topic", i));
+      loads.put(partition("topic", i), 1.0);
+    }
+    assignment.put("task_0", hot);
+    assignment.put("task_1", Lists.newArrayList(partition("topic", 8)));
+    assignment.put("task_2", Lists.newArrayList(partition("topic", 9)));
+    loads.put(partition("topic", 8), 1.0);
+
+    Assert.assertEquals(rebalancer.computeMoves(assignment, loads, NOW).size(), 2);
+  }
+
+  @Test
+  public void testCooldownStartsWhenMovesAreRecorded() {
+    KafkaStreamingRebalancer rebalancer = new KafkaStreamingRebalancer(new State());
+
+    Map<String, List<KafkaPartition>> assignment = new LinkedHashMap<>();
+    assignment.put("task_0", Lists.newArrayList(partition("topic", 0), partition("topic", 1), partition("topic", 2)));
+    assignment.put("task_1", Lists.newArrayList(partition("topic", 3)));
+
+    Map<KafkaPartition, Double> loads = Maps.newHashMap();
+    loads.put(partition("topic", 0), 5.0);
+    loads.put(partition("topic", 1), 4.0);
+    loads.put(partition("topic", 2), 1.0);
+    loads.put(partition("topic", 3), 1.0);
+
+    // A computed move which was not applied does not hold the partition back
+    List<KafkaStreamingRebalancer.PartitionMove> moves = rebalancer.computeMoves(assignment, loads, NOW);
+    Assert.assertEquals(moves.get(0).getPartition(), partition("topic", 0));
+    moves = rebalancer.computeMoves(assignment, loads, NOW + 1000L);
+    Assert.assertEquals(moves.get(0).getPartition(), partition("topic", 0));
+
+    // Once applied, the partition is not moved again within the cooldown
+    rebalancer.recordMoves(moves, NOW + 1000L);
+    for (KafkaStreamingRebalancer.PartitionMove move : rebalancer.computeMoves(assignment, loads, NOW + 2000L)) {
+      Assert.assertNotEquals(move.getPartition(), partition("topic", 0));
+    }
+  }
+
+  @Test
+  public void testTopicsAreNotMixed() {
+    KafkaStreamingRebalancer rebalancer = new KafkaStreamingRebalancer(new State());
+
+    Map<String, List<KafkaPartition>> assignment = new LinkedHashMap<>();
+    assignment.put("task_0", Lists.newArrayList(partition("topicA", 0), partition("topicA", 1)));
+    assignment.put("task_1", Lists.newArrayList(partition("topicB", 0)));
+
+    Map<KafkaPartition, Double> loads = Maps.newHashMap();
+    loads.put(partition("topicA", 0), 10.0);
+    loads.put(partition("topicA", 1), 10.0);
+    loads.put(partition("topicB", 0), 0.1);
+
+    Assert.assertTrue(rebalancer.computeMoves(assignment, loads, NOW).isEmpty());
+  }
+
+  @Test
+  public void testPartitionLoad() {
+    KafkaStreamingRebalancer rebalancer = new KafkaStreamingRebalancer(new State());
+    KafkaStreamingExtractor.KafkaWatermark watermark =
+        new KafkaStreamingExtractor.KafkaWatermark(partition("topic", 0), new LongWatermark(10L));
+
+    Assert.assertTrue(rebalancer.getPartitionLoad(watermark, NOW) < 0);
+
+    watermark.setLatestConsumeRate(2.0);
+    Assert.assertEquals(rebalancer.getPartitionLoad(watermark, NOW), 2.0, 0.0001);
+
+    // 3600 records of 1MB to be drained within the default catch-up SLA of 1 hour adds 1MB/s
+    watermark.setAvgRecordSize(ProduceRateAndLagBasedWorkUnitSizeEstimator.ONE_MEGA_BYTE);
+    watermark.setLag(3600L);
+    Assert.assertEquals(rebalancer.getPartitionLoad(watermark, NOW), 3.0, 0.0001);
+
+    double[][] produceRates = new double[7][24];
+    for (double[] row : produceRates) {
+      Arrays.fill(row, ProduceRateAndLagBasedWorkUnitSizeEstimator.ONE_MEGA_BYTE * 4.0);
+    }
+    watermark.setAvgProduceRates(produceRates);
+    Assert.assertEquals(rebalancer.getPartitionLoad(watermark, NOW), 5.0, 0.0001);
+  }
+
+  @Test
+  public void testCreateRebalancedWorkUnit() {
+    WorkUnit oldWorkUnit = WorkUnit.createEmpty();
+    oldWorkUnit.setProp(KafkaSource.TOPIC_NAME, "topic");
+    oldWorkUnit.setProp(ConfigurationKeys.TASK_ID_KEY, "task_0");
+    KafkaWorkUnitPacker.populateMultiPartitionWorkUnit(
+        Lists.newArrayList(partition("topic", 0), partition("topic", 1), partition("topic", 2)), oldWorkUnit);
+    oldWorkUnit.setProp(KafkaTopicGroupingWorkUnitPacker.NUM_PARTITIONS_ASSIGNED, 3);
+
+    WorkUnit newWorkUnit = KafkaStreamingRebalancer.createRebalancedWorkUnit(oldWorkUnit,
+        Lists.newArrayList(partition("topic", 2)), "/tmp/output");
+
+    Assert.assertFalse(newWorkUnit.contains(ConfigurationKeys.TASK_ID_KEY));
+    Assert.assertEquals(newWorkUnit.getPropAsInt(KafkaTopicGroupingWorkUnitPacker.NUM_PARTITIONS_ASSIGNED), 1);
+    Assert.assertEquals(KafkaUtils.getPartitions(newWorkUnit), Lists.newArrayList(partition("topic", 2)));
+    Assert.assertTrue(newWorkUnit.getProp(ConfigurationKeys.WRITER_OUTPUT_DIR).startsWith("/tmp/output"));
+    // The old work unit is unchanged
+    Assert.assertEquals(KafkaUtils.getPartitions(oldWorkUnit).size(), 3);
+  }
+}
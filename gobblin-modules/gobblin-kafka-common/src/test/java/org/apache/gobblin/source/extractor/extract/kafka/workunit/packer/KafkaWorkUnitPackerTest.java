@@ -19,16 +19,19 @@ package org.apache.gobblin.source.extractor.extract.kafka.workunit.packer;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 import org.apache.gobblin.configuration.SourceState;
 import org.apache.gobblin.source.extractor.extract.AbstractSource;
+import org.apache.gobblin.source.workunit.MultiWorkUnit;
 import org.apache.gobblin.source.workunit.WorkUnit;
 
 import static org.apache.gobblin.source.extractor.extract.kafka.workunit.packer.KafkaWorkUnitPacker.KAFKA_WORKUNIT_PACKER_CUSTOMIZED_TYPE;
@@ -82,6 +85,45 @@ public class KafkaWorkUnitPackerTest {
     Assert.assertEquals(mypacker.pack(emptyWorkUnit, 1).size(), 0);
   }
 
+  @Test
+  public void testBestFitDecreasingBinPacking() {
+    List<MultiWorkUnit> groups = KafkaBiLevelWorkUnitPacker.bestFitDecreasingBinPacking(
+        createWorkUnitsWithEstSizes(5, 4, 3, 2, 1), 6);
+
+    Assert.assertEquals(getSortedEstSizes(groups), Lists.newArrayList(3.0, 6.0, 6.0));
+    for (MultiWorkUnit group : groups) {
+      // The group size is propagated to the work units in it, which is what the squeezed work unit reports
+      for (WorkUnit workUnit : group.getWorkUnits()) {
+        Assert.assertEquals(KafkaWorkUnitPacker.getWorkUnitEstSize(workUnit), KafkaWorkUnitPacker.getWorkUnitEstSize(group));
+      }
+    }
+  }
+
+  @Test
+  public void testWorstFitDecreasingBinPacking() {
+    List<WorkUnit> multiWorkUnits = packer.worstFitDecreasingBinPacking(createWorkUnitsWithEstSizes(5, 4, 3, 2, 1), 2);
+
+    Assert.assertEquals(getSortedEstSizes(multiWorkUnits), Lists.newArrayList(7.0, 8.0));
+    Assert.assertEquals(multiWorkUnits.stream().mapToInt(mwu -> ((MultiWorkUnit) mwu).getWorkUnits().size()).sum(), 5);
+
+    // Bins that received no work unit are dropped
+    Assert.assertEquals(packer.worstFitDecreasingBinPacking(createWorkUnitsWithEstSizes(1), 3).size(), 1);
+  }
+
+  private static List<WorkUnit> createWorkUnitsWithEstSizes(double... estSizes) {
+    List<WorkUnit> workUnits = Lists.newArrayList();
+    for (double estSize : estSizes) {
+      WorkUnit workUnit = WorkUnit.createEmpty();
+      workUnit.setProp(KafkaWorkUnitPacker.ESTIMATED_WORKUNIT_SIZE, estSize);
+      workUnits.add(workUnit);
+    }
+    return workUnits;
+  }
+
+  private static List<Double> getSortedEstSizes(List<? extends WorkUnit> workUnits) {
+    return workUnits.stream().map(KafkaWorkUnitPacker::getWorkUnitEstSize).sorted().collect(Collectors.toList());
+  }
+
   public class TestKafkaWorkUnitPacker extends KafkaWorkUnitPacker {
     public TestKafkaWorkUnitPacker(AbstractSource<?, ?> source, SourceState state) {
       super(source, state);
@@ -26,6 +26,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
@@ -70,6 +71,20 @@ import lombok.extern.slf4j.Slf4j;
  * An object that requests batches of permits from an external throttling server. It tries to hide the latency of doing
  * external permit requests by requesting them in batches and preemptively requesting permits before the current ones
  * are exhausted.
+ *
+ * <p>
+ *   The requester keeps a smoothed estimate of the rate at which permits are consumed and of the latency of permit
+ *   requests. Once the stored permits are projected to run out (or their leases to expire) within a few request
+ *   latencies, the next batch is requested asynchronously, so callers normally find permits available locally and do not
+ *   wait on the server.
+ * </p>
+ *
+ * <p>
+ *   Permits granted by the server are leases: they are dropped when their expiration passes, and the server can shrink
+ *   or revoke unused permits of earlier allocations with {@link PermitAllocation#getMaxUnusedPermits()}. If a fallback
+ *   rate is configured, permits are granted by a local {@link RateBasedLimiter} while the server cannot be reached.
+ *   Requests the server rejects (see {@link #NON_RETRIABLE_ERRORS}) never fall back to the local limiter.
+ * </p>
  */
 @Slf4j
 class BatchedPermitsRequester {
@@ -85,11 +100,21 @@ class BatchedPermitsRequester {
 
   /** Maximum number of retries to communicate with the server. */
   protected static final int MAX_RETRIES = 5;
+  /**
+   * Number of consecutive requests that fail to reach the server (transport errors or 5xx responses) after which the
+   * fallback limiter is used, if there is one.
+   */
+  public static final int DEFAULT_FALLBACK_FAILURE_THRESHOLD = 3;
 
   private static final long RETRY_DELAY_ON_NON_RETRIABLE_EXCEPTION = 60000; // 10 minutes
   private static final double MAX_DEPLETION_RATE = 1e20;
   public static final int MAX_GROWTH_REQUEST = 2;
   private static final long GET_PERMITS_MAX_SLEEP_MILLIS = 1000;
+  /** Weight of the newest sample in the smoothed consumption rate and request latency estimates. */
+  private static final double SMOOTHING_FACTOR = 0.3;
+  /** Permits are prefetched when they are projected to run out within this many request latencies. */
+  private static final double PREFETCH_LATENCY_MULTIPLIER = 3;
+  private static final long MIN_PREFETCH_LEAD_MILLIS = 100;
 
   private static final ScheduledExecutorService SCHEDULE_EXECUTOR_SERVICE =
       Executors.newScheduledThreadPool(1, ExecutorsUtils.newDaemonThreadFactory(Optional.of(log),
@@ -106,6 +131,8 @@ class BatchedPermitsRequester {
   private final Histogram restRequestHistogram;
 
   private volatile AtomicInteger retries = new AtomicInteger(0);
+  /** Consecutive failed requests that did not reach the server, reset by any response from the server. */
+  private final AtomicInteger unreachableFailures = new AtomicInteger(0);
   private final RetryStatus retryStatus;
   private final SynchronizedAverager permitsOutstanding;
   private final long targetMillisBetweenRequests;
@@ -117,9 +144,21 @@ class BatchedPermitsRequester {
 
   private volatile AllocationCallback currentCallback;
 
+  private final ConsumptionRateEstimator consumptionRate;
+  /** Smoothed latency of successful permit requests, negative until the first request returns. */
+  private volatile double requestLatencyMillis = -1;
+  /** Size of the last non-empty allocation, used to bound the growth of prefetch requests. */
+  private volatile long lastAllocatedPermits;
+  private final AtomicBoolean prefetchScheduled;
+  /** Grants permits while the throttling server cannot be reached, null if there is no fallback. */
+  @Nullable private final Limiter fallbackLimiter;
+  private final AtomicBoolean usingFallback;
+  private final int fallbackFailureThreshold;
+
   @Builder
   private BatchedPermitsRequester(String resourceId, String requestorIdentifier,
-      long targetMillisBetweenRequests, RequestSender requestSender, MetricContext metricContext, long maxTimeoutMillis) {
+      long targetMillisBetweenRequests, RequestSender requestSender, MetricContext metricContext, long maxTimeoutMillis,
+      double fallbackPermitsPerSecond, int fallbackFailureThreshold) {
 
     Preconditions.checkArgument(!Strings.isNullOrEmpty(resourceId), "Must provide a resource id.");
     Preconditions.checkArgument(!Strings.isNullOrEmpty(requestorIdentifier), "Must provide a requestor identifier.");
@@ -145,6 +184,12 @@ class BatchedPermitsRequester {
     this.callbackCounter = new AtomicLong();
     this.maxTimeout = maxTimeoutMillis > 0 ? maxTimeoutMillis : 120000;
     this.knownUnsatisfiablePermits = Long.MAX_VALUE;
+    this.consumptionRate = new ConsumptionRateEstimator();
+    this.prefetchScheduled = new AtomicBoolean(false);
+    this.fallbackLimiter = fallbackPermitsPerSecond > 0 ? new RateBasedLimiter(fallbackPermitsPerSecond) : null;
+    this.usingFallback = new AtomicBoolean(false);
+    this.fallbackFailureThreshold = fallbackFailureThreshold > 0 ? fallbackFailureThreshold
+        : DEFAULT_FALLBACK_FAILURE_THRESHOLD;
   }
 
   /**
@@ -157,6 +202,7 @@ class BatchedPermitsRequester {
     }
     long startTimeNanos = System.nanoTime();
     this.permitsOutstanding.addEntryWithWeight(permits);
+    boolean useFallback = false;
     this.lock.lock();
     try {
       while (true) {
@@ -173,8 +219,14 @@ class BatchedPermitsRequester {
         }
         if (this.permitBatchContainer.tryTake(permits)) {
           this.permitsOutstanding.removeEntryWithWeight(permits);
+          this.consumptionRate.record(permits, System.currentTimeMillis());
+          maybePrefetch();
           return true;
         }
+        if (this.fallbackLimiter != null && isServerUnavailable()) {
+          useFallback = true;
+          break;
+        }
         if (this.retryStatus.canRetryWithinMillis(remainingTime(startTimeNanos, this.maxTimeout))) {
           long callbackCounterSnap = this.callbackCounter.get();
           maybeSendNewPermitRequest();
@@ -192,9 +244,81 @@ class BatchedPermitsRequester {
       this.lock.unlock();
     }
     this.permitsOutstanding.removeEntryWithWeight(permits);
+    if (useFallback) {
+      if (this.usingFallback.compareAndSet(false, true)) {
+        log.warn("Throttling server is unavailable, granting permits with the local fallback limiter.");
+      }
+      return this.fallbackLimiter.acquirePermits(permits) != null;
+    }
     return false;
   }
 
+  /**
+   * @return true if enough consecutive requests failed to reach the server. A single failed request is retried before
+   * falling back, and a request rejected by the server never counts as a failure to reach it.
+   */
+  private boolean isServerUnavailable() {
+    // Retries stop after MAX_RETRIES failures, so a larger threshold would never be reached
+    return this.unreachableFailures.get() >= Math.min(this.fallbackFailureThreshold, MAX_RETRIES);
+  }
+
+  /**
+   * @return true if the error means the server could not be reached or could not serve the request, as opposed to the
+   * server denying it.
+   */
+  private static boolean isUnreachableError(Throwable exc) {
+    if (exc instanceof RequestSender.NonRetriableException) {
+      return false;
+    }
+    if (exc instanceof RestLiResponseException) {
+      return ((RestLiResponseException) exc).getStatus() >= HttpStatus.S_500_INTERNAL_SERVER_ERROR.getCode();
+    }
+    return true;
+  }
+
+  /**
+   * Asynchronously request more permits if the stored permits are projected to run out soon. Does not block.
+   */
+  private void maybePrefetch() {
+    if (this.requestSemaphore.availablePermits() == 0 || !this.retryStatus.canRetryNow()
+        || computePrefetchPermits() <= 0) {
+      return;
+    }
+    if (this.prefetchScheduled.compareAndSet(false, true)) {
+      SCHEDULE_EXECUTOR_SERVICE.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            maybeSendNewPermitRequest();
+          } finally {
+            BatchedPermitsRequester.this.prefetchScheduled.set(false);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * @return the number of permits to prefetch, or 0 if the stored permits are expected to last longer than it takes to
+   * get new ones.
+   */
+  private long computePrefetchPermits() {
+    double rate = this.consumptionRate.getPermitsPerMilli();
+    long lastAllocation = this.lastAllocatedPermits;
+    if (rate <= 0 || lastAllocation <= 0) {
+      return 0;
+    }
+    long latestExpiration = this.permitBatchContainer.getLatestExpiration();
+    long millisToExpiration = latestExpiration == Long.MIN_VALUE ? 0
+        : Math.max(latestExpiration - System.currentTimeMillis(), 0);
+    double millisToExhaustion = Math.min(this.permitBatchContainer.getTotalAvailablePermits() / rate, millisToExpiration);
+    double leadMillis = Math.max(MIN_PREFETCH_LEAD_MILLIS, PREFETCH_LATENCY_MULTIPLIER * this.requestLatencyMillis);
+    if (millisToExhaustion > leadMillis) {
+      return 0;
+    }
+    return Math.max(1, Math.min((long) (rate * this.targetMillisBetweenRequests), MAX_GROWTH_REQUEST * lastAllocation));
+  }
+
   private long remainingTime(long startTimeNanos, long timeout) {
     return Math.max(timeout - elapsedMillis(startTimeNanos), 0);
   }
@@ -278,6 +402,11 @@ class BatchedPermitsRequester {
       candidatePermits = unsatisfiablePermits;
     }
 
+    long prefetchPermits = computePrefetchPermits();
+    if (prefetchPermits > 0) {
+      return Math.max(candidatePermits, prefetchPermits);
+    }
+
     if (this.permitBatchContainer.batches.size() > 1) {
       // If there are multiple batches in the queue, don't create a new request
       return candidatePermits;
@@ -326,6 +455,12 @@ class BatchedPermitsRequester {
       BatchedPermitsRequester.this.lock.lock();
 
       try {
+        if (isUnreachableError(exc)) {
+          BatchedPermitsRequester.this.unreachableFailures.incrementAndGet();
+        } else {
+          // The server answered, so its decision must not be overridden by the fallback limiter
+          BatchedPermitsRequester.this.unreachableFailures.set(0);
+        }
         if (exc instanceof RequestSender.NonRetriableException) {
           nonRetriableFail(exc, "Encountered non retriable error. ");
         }
@@ -337,6 +472,10 @@ class BatchedPermitsRequester {
         }
 
         BatchedPermitsRequester.this.retries.incrementAndGet();
+        if (BatchedPermitsRequester.this.fallbackLimiter != null && isServerUnavailable()) {
+          // Wake up waiting threads so they can switch to the fallback limiter
+          BatchedPermitsRequester.this.newPermitsAvailable.signalAll();
+        }
 
         if (BatchedPermitsRequester.this.retries.get() >= MAX_RETRIES) {
           nonRetriableFail(exc, "Too many failures trying to communicate with throttling service.");
@@ -360,6 +499,7 @@ class BatchedPermitsRequester {
     @Override
     public void onSuccess(Response<PermitAllocation> result) {
       BatchedPermitsRequester.this.retries.set(0);
+      BatchedPermitsRequester.this.unreachableFailures.set(0);
       BatchedPermitsRequester.this.callbackCounter.incrementAndGet();
       BatchedPermitsRequester.this.lock.lock();
       try {
@@ -367,11 +507,22 @@ class BatchedPermitsRequester {
 
         log.debug("Received permit allocation " + allocation);
 
+        updateRequestLatency(elapsedTime());
+        if (BatchedPermitsRequester.this.usingFallback.compareAndSet(true, false)) {
+          log.info("Throttling server is available again, no longer using the local fallback limiter.");
+        }
+
         Long retryDelay = allocation.getMinRetryDelayMillis(GetMode.NULL);
         if (retryDelay != null) {
           BatchedPermitsRequester.this.retryStatus.blockRetries(retryDelay, null);
         }
 
+        Long maxUnusedPermits = allocation.getMaxUnusedPermits(GetMode.NULL);
+        if (maxUnusedPermits != null) {
+          // The server shrank or revoked the leases of permits granted earlier
+          BatchedPermitsRequester.this.permitBatchContainer.shrinkTo(maxUnusedPermits);
+        }
+
         long waitForUse = allocation.getWaitForPermitUseMillis(GetMode.DEFAULT);
         if (waitForUse > 0) {
           this.sleeper.sleep(waitForUse);
@@ -383,6 +534,7 @@ class BatchedPermitsRequester {
 
         if (allocation.getPermits() > 0) {
           BatchedPermitsRequester.this.permitBatchContainer.addPermitAllocation(allocation);
+          BatchedPermitsRequester.this.lastAllocatedPermits = allocation.getPermits();
         }
 
         clearCallback();
@@ -406,6 +558,12 @@ class BatchedPermitsRequester {
       return System.currentTimeMillis() - this.startTime;
     }
 
+    private void updateRequestLatency(long latencyMillis) {
+      double previous = BatchedPermitsRequester.this.requestLatencyMillis;
+      BatchedPermitsRequester.this.requestLatencyMillis = previous < 0 ? latencyMillis
+          : SMOOTHING_FACTOR * latencyMillis + (1 - SMOOTHING_FACTOR) * previous;
+    }
+
     public synchronized void clearCallback() {
       if (this.callbackCleared) {
         return;
@@ -525,6 +683,31 @@ class BatchedPermitsRequester {
       log.info(builder.toString());
     }
 
+    /**
+     * @return the latest expiration of the stored permits, or {@link Long#MIN_VALUE} if there are no permits.
+     */
+    private synchronized long getLatestExpiration() {
+      return this.batches.isEmpty() ? Long.MIN_VALUE : this.batches.keySet().last();
+    }
+
+    /**
+     * Drop stored permits until at most {@code maxPermits} remain. Permits with the latest expiration are dropped first.
+     */
+    @VisibleForTesting
+    synchronized void shrinkTo(long maxPermits) {
+      long excess = this.totalAvailablePermits - Math.max(maxPermits, 0);
+      Iterator<PermitBatch> batchesIterator = this.batches.asMap().descendingMap().values().stream()
+          .flatMap(Collection::stream).iterator();
+      while (excess > 0 && batchesIterator.hasNext()) {
+        PermitBatch batch = batchesIterator.next();
+        long dropped = Math.min(excess, batch.getPermits());
+        batch.permits -= dropped;
+        this.totalAvailablePermits -= dropped;
+        excess -= dropped;
+      }
+      this.batches.values().removeIf(batch -> batch.getPermits() <= 0);
+    }
+
     private synchronized void purgeExpiredBatches() {
       long now = System.currentTimeMillis();
       purgeBatches(this.batches.asMap().subMap(Long.MIN_VALUE, now).values().iterator());
@@ -552,6 +735,37 @@ class BatchedPermitsRequester {
     }
   }
 
+  /**
+   * An exponentially smoothed estimate of the rate at which permits are consumed, sampled over short windows.
+   */
+  private static class ConsumptionRateEstimator {
+    private static final long WINDOW_MILLIS = 100;
+
+    private long windowStartMillis;
+    private long windowPermits;
+    /** Negative until the first window is complete. */
+    private volatile double permitsPerMilli = -1;
+
+    public synchronized void record(long permits, long nowMillis) {
+      if (this.windowStartMillis == 0) {
+        this.windowStartMillis = nowMillis;
+      }
+      this.windowPermits += permits;
+      long elapsed = nowMillis - this.windowStartMillis;
+      if (elapsed >= WINDOW_MILLIS) {
+        double rate = (double) this.windowPermits / elapsed;
+        this.permitsPerMilli = this.permitsPerMilli < 0 ? rate
+            : SMOOTHING_FACTOR * rate + (1 - SMOOTHING_FACTOR) * this.permitsPerMilli;
+        this.windowStartMillis = nowMillis;
+        this.windowPermits = 0;
+      }
+    }
+
+    public double getPermitsPerMilli() {
+      return this.permitsPerMilli;
+    }
+  }
+
   private static class SynchronizedAverager {
     private volatile long weight;
     private volatile long entries;
@@ -50,6 +50,20 @@ public class RestliLimiterFactory<S extends ScopeType<S>>
   public static final String RESTLI_SERVICE_NAME = "throttling";
   public static final String SERVICE_IDENTIFIER_KEY = "serviceId";
   public static final String PERMIT_REQUEST_TIMEOUT = "permitRequestTimeoutMillis";
+  /**
+   * Rate at which permits are granted locally while the throttling service is unavailable. By default there is no
+   * fallback and permit requests fail during outages.
+   */
+  public static final String FALLBACK_PERMITS_PER_SECOND = "fallbackPermitsPerSecond";
+  public static final double DEFAULT_FALLBACK_PERMITS_PER_SECOND = 0;
+  /**
+   * Number of consecutive requests that fail to reach the throttling service (transport errors or 5xx responses) after
+   * which the fallback is used, so that a single transient failure is retried instead of bypassing the service. Requests
+   * the service denies never use the fallback.
+   */
+  public static final String FALLBACK_FAILURE_THRESHOLD = "fallbackFailureThreshold";
+  public static final int DEFAULT_FALLBACK_FAILURE_THRESHOLD =
+      BatchedPermitsRequester.DEFAULT_FALLBACK_FAILURE_THRESHOLD;
 
   @Override
   public String getName() {
@@ -75,6 +89,10 @@ public class RestliLimiterFactory<S extends ScopeType<S>>
 
     long permitRequestTimeout = config.getConfig().hasPath(PERMIT_REQUEST_TIMEOUT)
         ? config.getConfig().getLong(PERMIT_REQUEST_TIMEOUT) : 0L;
+    double fallbackPermitsPerSecond = config.getConfig().hasPath(FALLBACK_PERMITS_PER_SECOND)
+        ? config.getConfig().getDouble(FALLBACK_PERMITS_PER_SECOND) : DEFAULT_FALLBACK_PERMITS_PER_SECOND;
+    int fallbackFailureThreshold = config.getConfig().hasPath(FALLBACK_FAILURE_THRESHOLD)
+        ? config.getConfig().getInt(FALLBACK_FAILURE_THRESHOLD) : DEFAULT_FALLBACK_FAILURE_THRESHOLD;
 
     return new ResourceInstance<>(
         RestliServiceBasedLimiter.builder()
@@ -83,6 +101,8 @@ public class RestliLimiterFactory<S extends ScopeType<S>>
             .metricContext(broker.getSharedResource(new MetricContextFactory<S>(), metricContextKey))
             .requestSender(broker.getSharedResource(new RedirectAwareRestClientRequestSender.Factory<S>(), new SharedRestClientKey(RESTLI_SERVICE_NAME)))
             .permitRequestTimeoutMillis(permitRequestTimeout)
+            .fallbackPermitsPerSecond(fallbackPermitsPerSecond)
+            .fallbackFailureThreshold(fallbackFailureThreshold)
             .build()
     );
   }
@@ -50,12 +50,14 @@ public class RestliServiceBasedLimiter implements Limiter {
 
   @Builder
   private RestliServiceBasedLimiter(String resourceLimited, String serviceIdentifier,
-      MetricContext metricContext, RequestSender requestSender, long permitRequestTimeoutMillis) {
+      MetricContext metricContext, RequestSender requestSender, long permitRequestTimeoutMillis,
+      double fallbackPermitsPerSecond, int fallbackFailureThreshold) {
     Preconditions.checkNotNull(requestSender, "Request sender cannot be null.");
 
     this.bachedPermitsContainer = BatchedPermitsRequester.builder()
         .resourceId(resourceLimited).requestorIdentifier(serviceIdentifier).requestSender(requestSender)
-        .maxTimeoutMillis(permitRequestTimeoutMillis).build();
+        .maxTimeoutMillis(permitRequestTimeoutMillis).fallbackPermitsPerSecond(fallbackPermitsPerSecond)
+        .fallbackFailureThreshold(fallbackFailureThreshold).build();
 
     this.metricContext = Optional.fromNullable(metricContext);
     if (this.metricContext.isPresent()) {
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.restli.throttling;
+
+import java.io.Closeable;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.hadoop.conf.Configuration;
+
+import com.google.common.collect.Maps;
+import com.typesafe.config.ConfigFactory;
+
+import org.apache.gobblin.util.NoopCloseable;
+import org.apache.gobblin.util.limiter.Limiter;
+import org.apache.gobblin.util.limiter.stressTest.RateComputingLimiterContainer;
+import org.apache.gobblin.util.limiter.stressTest.StressTestUtils;
+import org.apache.gobblin.util.limiter.stressTest.Stressor;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * A load benchmark for the server side of the throttling service. Like {@link LocalStressTest}, it creates a number of
+ * threads, each one running a stressor, but the stressors call a {@link QPSPolicy} directly, with no request latency
+ * and no batching of permits, so that the benchmark measures how many permit requests the policy (and its token bucket)
+ * can serve concurrently.
+ *
+ * The benchmark prints, every 15 seconds, the rate at which requests are served and the rate at which permits are
+ * granted, which should stay close to the target qps.
+ */
+@Slf4j
+public class ServerLoadBenchmark {
+
+  public static final Option STRESSOR_THREADS =
+      new Option("stressorThreads", true, "Number of stressor threads");
+  public static final Option QPS =
+      new Option("qps", true, "Target qps.");
+  public static final Option NUM_SHARDS =
+      new Option("shards", true, "Number of token bucket shards, 0 for one per core.");
+
+  public static final Options OPTIONS = StressTestUtils.OPTIONS.addOption(STRESSOR_THREADS).addOption(QPS)
+      .addOption(NUM_SHARDS);
+
+  public static final int DEFAULT_STRESSOR_THREADS = 100;
+  public static final long DEFAULT_TARGET_QPS = 1000000;
+
+  public static void main(String[] args) throws Exception {
+
+    CommandLine cli = StressTestUtils.parseCommandLine(OPTIONS, args);
+
+    int stressorThreads = Integer.parseInt(cli.getOptionValue(STRESSOR_THREADS.getOpt(), Integer.toString(
+        DEFAULT_STRESSOR_THREADS)));
+    long targetQps = Long.parseLong(cli.getOptionValue(QPS.getOpt(), Long.toString(DEFAULT_TARGET_QPS)));
+
+    Configuration configuration = new Configuration();
+    StressTestUtils.populateConfigFromCli(configuration, cli);
+
+    Map<String, String> configMap = Maps.newHashMap();
+    configMap.put(QPSPolicy.QPS, Long.toString(targetQps));
+    if (cli.hasOption(NUM_SHARDS.getOpt())) {
+      configMap.put(QPSPolicy.NUM_SHARDS, cli.getOptionValue(NUM_SHARDS.getOpt()));
+    }
+    QPSPolicy policy = new QPSPolicy(ConfigFactory.parseMap(configMap));
+    log.info(policy.getDescription() + ", shards: " + configMap.getOrDefault(QPSPolicy.NUM_SHARDS, "1"));
+
+    RateComputingLimiterContainer limiterContainer = new RateComputingLimiterContainer();
+    AtomicLong requestCount = new AtomicLong();
+
+    Class<? extends Stressor> stressorClass =
+        configuration.getClass(StressTestUtils.STRESSOR_CLASS, StressTestUtils.DEFAULT_STRESSOR_CLASS, Stressor.class);
+
+    ExecutorService executorService = Executors.newFixedThreadPool(stressorThreads);
+    ScheduledExecutorService reportingThread = Executors.newSingleThreadScheduledExecutor();
+    reportingThread.scheduleAtFixedRate(new Reporter(limiterContainer, requestCount), 0, 15, TimeUnit.SECONDS);
+
+    Queue<Future<?>> futures = new LinkedList<>();
+    for (int i = 0; i < stressorThreads; i++) {
+      Stressor stressor = stressorClass.newInstance();
+      stressor.configure(configuration);
+      Limiter limiter = new PolicyLimiter(policy, ServerLoadBenchmark.class.getSimpleName(), requestCount);
+      futures.add(executorService.submit(new StressorRunner(limiterContainer.decorateLimiter(limiter), stressor)));
+    }
+    int stressorFailures = 0;
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException ee) {
+        stressorFailures++;
+      }
+    }
+
+    executorService.shutdownNow();
+    reportingThread.shutdownNow();
+
+    if (stressorFailures > 0) {
+      log.error("There were " + stressorFailures + " failed stressor threads.");
+    }
+    System.exit(stressorFailures);
+  }
+
+  /**
+   * A {@link Limiter} that requests permits directly from a {@link ThrottlingPolicy}, waiting as instructed by the
+   * {@link PermitAllocation}.
+   */
+  @RequiredArgsConstructor
+  private static class PolicyLimiter implements Limiter {
+    private final ThrottlingPolicy policy;
+    private final String resource;
+    private final AtomicLong requestCount;
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public Closeable acquirePermits(long permits) throws InterruptedException {
+      PermitRequest request = new PermitRequest();
+      request.setResource(this.resource);
+      request.setPermits(permits);
+      while (true) {
+        PermitAllocation allocation = this.policy.computePermitAllocation(request);
+        this.requestCount.incrementAndGet();
+        if (allocation.getPermits() >= permits) {
+          if (allocation.getWaitForPermitUseMillis() > 0) {
+            Thread.sleep(allocation.getWaitForPermitUseMillis());
+          }
+          return NoopCloseable.INSTANCE;
+        }
+        Thread.sleep(Math.max(1, allocation.getMinRetryDelayMillis()));
+      }
+    }
+
+    @Override
+    public void stop() {
+    }
+  }
+
+  @RequiredArgsConstructor
+  private static class StressorRunner implements Runnable {
+    private final Limiter limiter;
+    private final Stressor stressor;
+
+    @Override
+    public void run() {
+      try {
+        this.limiter.start();
+        this.stressor.run(this.limiter);
+        this.limiter.stop();
+      } catch (InterruptedException ie) {
+        log.error("Error: ", ie);
+      }
+    }
+  }
+
+  @RequiredArgsConstructor
+  private static class Reporter implements Runnable {
+    private final RateComputingLimiterContainer limiter;
+    private final AtomicLong requestCount;
+    private long lastReportTime = System.currentTimeMillis();
+
+    @Override
+    public void run() {
+      long now = System.currentTimeMillis();
+      long requests = this.requestCount.getAndSet(0);
+      if (now > this.lastReportTime) {
+        log.info(String.format("Served requests per second: %f", 1000 * (double) requests / (now - this.lastReportTime)));
+      }
+      this.lastReportTime = now;
+
+      DescriptiveStatistics stats = this.limiter.getRateStatsSinceLastReport();
+      if (stats != null) {
+        log.info(String.format("Permits rate stats: count: %d, min: %f, max: %f, mean: %f, std: %f, sum: %f", stats.getN(),
+            stats.getMin(), stats.getMax(), stats.getMean(), stats.getStandardDeviation(), stats.getSum()));
+      }
+    }
+  }
+}
@@ -194,6 +194,129 @@ public class BatchedPermitsRequesterTest {
     Assert.assertEquals(container.getPermitBatchContainer().getTotalAvailablePermits(), 20);
   }
 
+  @Test
+  public void testPrefetchBeforePermitsRunOut() throws Exception {
+    Queue<RequestAndCallback> queue = Queues.newConcurrentLinkedQueue();
+
+    BatchedPermitsRequester container = BatchedPermitsRequester.builder().resourceId("resource")
+        .requestorIdentifier("requestor").requestSender(new TestRequestSender(queue, false)).build();
+    try (ParallelRequester requester = new ParallelRequester(container)) {
+
+      Future<Boolean> future = requester.request(20);
+      await(new QueueSize(queue, 1), 1000);
+      satisfyRequestBuilder().requestAndCallback(queue.poll()).satisfy();
+      Assert.assertTrue(future.get(1, TimeUnit.SECONDS));
+    }
+
+    // Consume the stored permits steadily, the next batch should be requested before they run out
+    for (int i = 0; i < 19 && queue.isEmpty(); i++) {
+      Assert.assertTrue(container.getPermits(1));
+      Thread.sleep(20);
+    }
+    await(new QueueSize(queue, 1), 1000);
+    Assert.assertTrue(container.getPermitBatchContainer().getTotalAvailablePermits() > 0);
+    Assert.assertTrue(queue.peek().getRequest().getPermits() > 0);
+  }
+
+  @Test
+  public void testServerShrinksUnusedPermits() throws Exception {
+    Queue<RequestAndCallback> queue = Queues.newArrayDeque();
+
+    BatchedPermitsRequester container = BatchedPermitsRequester.builder().resourceId("resource")
+        .requestorIdentifier("requestor").requestSender(new TestRequestSender(queue, false)).build();
+    BatchedPermitsRequester.AllocationCallback callback = container.createAllocationCallback(new Sleeper.MockSleeper());
+
+    PermitAllocation allocation = new PermitAllocation();
+    allocation.setPermits(10);
+    allocation.setExpiration(Long.MAX_VALUE);
+    Response<PermitAllocation> response = Mockito.mock(Response.class);
+    Mockito.when(response.getEntity()).thenReturn(allocation);
+
+    Assert.assertTrue(container.reserveSemaphore());
+    callback.onSuccess(response);
+    Assert.assertEquals(container.getPermitBatchContainer().getTotalAvailablePermits(), 10);
+
+    // The unused permits of the first allocation are shrunk before the new ones are added
+    allocation.setMaxUnusedPermits(4);
+    allocation.setPermits(5);
+    Assert.assertTrue(container.reserveSemaphore());
+    callback.onSuccess(response);
+    Assert.assertEquals(container.getPermitBatchContainer().getTotalAvailablePermits(), 9);
+
+    // A value of 0 revokes all unused permits
+    allocation.setMaxUnusedPermits(0);
+    allocation.setPermits(0);
+    Assert.assertTrue(container.reserveSemaphore());
+    callback.onSuccess(response);
+    Assert.assertEquals(container.getPermitBatchContainer().getTotalAvailablePermits(), 0);
+  }
+
+  @Test
+  public void testFallbackLimiterDuringOutage() throws Exception {
+    Queue<RequestAndCallback> queue = Queues.newConcurrentLinkedQueue();
+
+    BatchedPermitsRequester container = BatchedPermitsRequester.builder().resourceId("resource")
+        .requestorIdentifier("requestor").requestSender(new TestRequestSender(queue, false))
+        .maxTimeoutMillis(1000).fallbackPermitsPerSecond(1000).fallbackFailureThreshold(2).build();
+    try (ParallelRequester requester = new ParallelRequester(container)) {
+
+      Future<Boolean> future = requester.request(10);
+      await(new QueueSize(queue, 1), 1000);
+      failRequestBuilder().requestAndCallback(queue.poll()).fail();
+
+      // A single failure is retried against the server
+      await(new QueueSize(queue, 1), 1000);
+      Assert.assertFalse(future.isDone());
+      failRequestBuilder().requestAndCallback(queue.poll()).fail();
+
+      // Permits are granted locally once the failure threshold is reached
+      Assert.assertTrue(future.get(1, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  public void testNoFallbackWhenServerDeniesPermits() throws Exception {
+    Queue<RequestAndCallback> queue = Queues.newConcurrentLinkedQueue();
+
+    BatchedPermitsRequester container = BatchedPermitsRequester.builder().resourceId("resource")
+        .requestorIdentifier("requestor").requestSender(new TestRequestSender(queue, false))
+        .maxTimeoutMillis(1000).fallbackPermitsPerSecond(1000).fallbackFailureThreshold(1).build();
+    try (ParallelRequester requester = new ParallelRequester(container)) {
+
+      Future<Boolean> future = requester.request(10);
+      await(new QueueSize(queue, 1), 1000);
+      failRequestBuilder().requestAndCallback(queue.poll()).errorStatus(HttpStatus.S_403_FORBIDDEN).fail();
+
+      // The server is reachable and refused the permits, so the fallback limiter must not grant them
+      Assert.assertFalse(future.get(2, TimeUnit.SECONDS));
+      Assert.assertEquals(queue.size(), 0);
+    }
+  }
+
+  @Test
+  public void testNoFallbackBeforeFailureThreshold() throws Exception {
+    Queue<RequestAndCallback> queue = Queues.newConcurrentLinkedQueue();
+
+    BatchedPermitsRequester container = BatchedPermitsRequester.builder().resourceId("resource")
+        .requestorIdentifier("requestor").requestSender(new TestRequestSender(queue, false))
+        .maxTimeoutMillis(1000).fallbackPermitsPerSecond(1000).build();
+    try (ParallelRequester requester = new ParallelRequester(container)) {
+
+      Future<Boolean> future = requester.request(10);
+      for (int i = 0; i < BatchedPermitsRequester.DEFAULT_FALLBACK_FAILURE_THRESHOLD - 1; i++) {
+        await(new QueueSize(queue, 1), 1000);
+        Assert.assertFalse(future.isDone());
+        failRequestBuilder().requestAndCallback(queue.poll()).fail();
+      }
+
+      // The server recovers before the threshold is reached, so the permits come from the server
+      await(new QueueSize(queue, 1), 1000);
+      Assert.assertFalse(future.isDone());
+      satisfyRequestBuilder().requestAndCallback(queue.poll()).satisfy();
+      Assert.assertTrue(future.get(1, TimeUnit.SECONDS));
+    }
+  }
+
   public static class TestRequestSender implements RequestSender {
     private final Queue<RequestAndCallback> requestAndCallbacks;
     private final boolean autoSatisfyRequests;
@@ -64,7 +64,15 @@ public class DynamicTokenBucket {
    *                            milliseconds. The actual tokens stored will be 1000 * qps * maxBucketSizeMillis.
    */
   DynamicTokenBucket(long qps, long fullRequestTimeoutMillis, long maxBucketSizeMillis) {
-    this.tokenBucket = new TokenBucket(qps, maxBucketSizeMillis);
+    this(new TokenBucket(qps, maxBucketSizeMillis), fullRequestTimeoutMillis);
+  }
+
+  /**
+   * @param tokenBucket the underlying {@link TokenBucket}, e.g. a {@link ShardedTokenBucket}.
+   * @param fullRequestTimeoutMillis max time to fully satisfy a token request.
+   */
+  DynamicTokenBucket(TokenBucket tokenBucket, long fullRequestTimeoutMillis) {
+    this.tokenBucket = tokenBucket;
     this.baseTimeout = fullRequestTimeoutMillis;
   }
 
@@ -61,12 +61,35 @@ public class QPSPolicy implements ThrottlingPolicy {
    */
   public static final String MAX_BUCKET_SIZE_MILLIS = "maxBucketSizeMillis";
   public static final long DEFAULT_MAX_BUCKET_SIZE = 10000;
+  /**
+   * Number of shards of the token bucket, see {@link ShardedTokenBucket}. A value of 0 means one shard per core. By
+   * default the token bucket is not sharded.
+   */
+  public static final String NUM_SHARDS = "numShards";
+  public static final int DEFAULT_NUM_SHARDS = 1;
+  /**
+   * Max fraction of one second of tokens that may be held by the shards of a sharded token bucket.
+   */
+  public static final String MAX_SHARDED_RATE_ERROR = "maxShardedRateError";
+  public static final double DEFAULT_MAX_SHARDED_RATE_ERROR = 0.01;
+  /**
+   * Interval at which tokens held by the shards of a sharded token bucket are returned to the shared bucket.
+   */
+  public static final String SHARD_REBALANCE_INTERVAL_MILLIS = "shardRebalanceIntervalMillis";
+  public static final long DEFAULT_SHARD_REBALANCE_INTERVAL_MILLIS = 1000;
+  /**
+   * If positive, permits are granted as leases expiring after this many millis, and clients may not keep more unused
+   * permits than this many millis worth of qps. By default permits never expire.
+   */
+  public static final String PERMIT_LEASE_MILLIS = "permitLeaseMillis";
+  public static final long DEFAULT_PERMIT_LEASE_MILLIS = 0;
 
   @Getter
   private final long qps;
   @VisibleForTesting
   @Getter
   private final DynamicTokenBucket tokenBucket;
+  private final long permitLeaseMillis;
 
   @Alias(FACTORY_ALIAS)
   public static class Factory implements ThrottlingPolicyFactory.SpecificPolicyFactory {
@@ -84,7 +107,23 @@ public class QPSPolicy implements ThrottlingPolicy {
         ? config.getLong(FULL_REQUEST_TIMEOUT_MILLIS) : DEFAULT_FULL_REQUEST_TIMEOUT;
     long maxBucketSizeMillis = config.hasPath(MAX_BUCKET_SIZE_MILLIS)
         ? config.getLong(MAX_BUCKET_SIZE_MILLIS) : DEFAULT_MAX_BUCKET_SIZE;
-    this.tokenBucket = new DynamicTokenBucket(qps, fullRequestTimeoutMillis, maxBucketSizeMillis);
+    this.permitLeaseMillis = config.hasPath(PERMIT_LEASE_MILLIS)
+        ? config.getLong(PERMIT_LEASE_MILLIS) : DEFAULT_PERMIT_LEASE_MILLIS;
+    int numShards = config.hasPath(NUM_SHARDS) ? config.getInt(NUM_SHARDS) : DEFAULT_NUM_SHARDS;
+    if (numShards == 0) {
+      numShards = Runtime.getRuntime().availableProcessors();
+    }
+    if (numShards == 1) {
+      this.tokenBucket = new DynamicTokenBucket(qps, fullRequestTimeoutMillis, maxBucketSizeMillis);
+    } else {
+      double maxRateError = config.hasPath(MAX_SHARDED_RATE_ERROR)
+          ? config.getDouble(MAX_SHARDED_RATE_ERROR) : DEFAULT_MAX_SHARDED_RATE_ERROR;
+      long rebalanceIntervalMillis = config.hasPath(SHARD_REBALANCE_INTERVAL_MILLIS)
+          ? config.getLong(SHARD_REBALANCE_INTERVAL_MILLIS) : DEFAULT_SHARD_REBALANCE_INTERVAL_MILLIS;
+      this.tokenBucket = new DynamicTokenBucket(
+          new ShardedTokenBucket(qps, maxBucketSizeMillis, numShards, maxRateError, rebalanceIntervalMillis),
+          fullRequestTimeoutMillis);
+    }
   }
 
   @Override
@@ -100,7 +139,12 @@ public class QPSPolicy implements ThrottlingPolicy {
 
     PermitAllocation allocation = new PermitAllocation();
     allocation.setPermits(permitsGranted.getPermits());
-    allocation.setExpiration(Long.MAX_VALUE);
+    if (this.permitLeaseMillis > 0) {
+      allocation.setExpiration(System.currentTimeMillis() + permitsGranted.getDelay() + this.permitLeaseMillis);
+      allocation.setMaxUnusedPermits(this.qps * this.permitLeaseMillis / 1000);
+    } else {
+      allocation.setExpiration(Long.MAX_VALUE);
+    }
     allocation.setWaitForPermitUseMillis(permitsGranted.getDelay());
     if (!permitsGranted.isPossibleToSatisfy()) {
       allocation.setUnsatisfiablePermits(request.getMinPermits(GetMode.DEFAULT));
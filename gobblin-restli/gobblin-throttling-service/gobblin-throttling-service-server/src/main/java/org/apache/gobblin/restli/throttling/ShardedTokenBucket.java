@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.restli.throttling;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * A {@link TokenBucket} that serves requests from a number of shards, each holding a small local balance of tokens drawn
+ * from the shared bucket, so that concurrent requests for a hot resource rarely contend on the same state.
+ *
+ * Requests are routed to a shard by thread. A shard short of tokens refills from the shared bucket, taking the requested
+ * tokens plus a refill of {@code maxRateError * qps / numShards} tokens. Tokens sitting in shards are thus bounded by
+ * roughly {@code maxRateError} of one second of tokens, and are periodically returned to the shared bucket (i.e. the
+ * shards are rebalanced), so that no shard strands tokens that busier shards need. The global rate never exceeds the
+ * configured qps, and falls short of it by at most that error.
+ *
+ * When the refill would be less than a token (i.e. for low qps), requests go directly to the shared bucket.
+ */
+public class ShardedTokenBucket extends TokenBucket {
+
+  private final AtomicLong[] shards;
+  private final double maxRateError;
+  private final long rebalanceIntervalMillis;
+  private final AtomicLong nextRebalanceMillis;
+  private volatile long shardRefillTokens;
+
+  /**
+   * @param numShards number of shards, usually the number of cores.
+   * @param maxRateError max fraction of one second of tokens held by all shards together.
+   * @param rebalanceIntervalMillis interval at which tokens held by shards are returned to the shared bucket.
+   */
+  public ShardedTokenBucket(long qps, long maxBucketSizeInMillis, int numShards, double maxRateError,
+      long rebalanceIntervalMillis) {
+    super(qps, maxBucketSizeInMillis);
+    Preconditions.checkArgument(numShards > 0, "Number of shards must be positive.");
+    Preconditions.checkArgument(maxRateError >= 0 && maxRateError < 1, "Max rate error must be in [0, 1).");
+    Preconditions.checkArgument(rebalanceIntervalMillis > 0, "Rebalance interval must be positive.");
+
+    this.shards = new AtomicLong[numShards];
+    for (int i = 0; i < numShards; i++) {
+      this.shards[i] = new AtomicLong();
+    }
+    this.maxRateError = maxRateError;
+    this.rebalanceIntervalMillis = rebalanceIntervalMillis;
+    this.nextRebalanceMillis = new AtomicLong(System.currentTimeMillis() + rebalanceIntervalMillis);
+    this.shardRefillTokens = computeShardRefillTokens(qps);
+  }
+
+  @Override
+  public void resetQPS(long qps, long maxBucketSizeInMillis) {
+    super.resetQPS(qps, maxBucketSizeInMillis);
+    // Called by the super constructor before the shards exist
+    if (this.shards != null) {
+      this.shardRefillTokens = computeShardRefillTokens(qps);
+      rebalance();
+    }
+  }
+
+  @Override
+  public long getStoredTokens() {
+    long storedTokens = super.getStoredTokens();
+    for (AtomicLong shard : this.shards) {
+      storedTokens += shard.get();
+    }
+    return storedTokens;
+  }
+
+  @Override
+  long tryReserveTokens(long tokens, long maxWaitMillis) {
+    maybeRebalance();
+
+    long refillTokens = this.shardRefillTokens;
+    if (refillTokens <= 0) {
+      return super.tryReserveTokens(tokens, maxWaitMillis);
+    }
+
+    AtomicLong shard = this.shards[(int) (Thread.currentThread().getId() % this.shards.length)];
+    if (takeFromShard(shard, tokens)) {
+      return 0;
+    }
+    // Refill the shard only from tokens available without waiting, so that future tokens are not held by a shard
+    if (tryTakeAvailableTokens(tokens + refillTokens)) {
+      shard.addAndGet(refillTokens);
+      return 0;
+    }
+    return super.tryReserveTokens(tokens, maxWaitMillis);
+  }
+
+  /**
+   * Return the tokens held by all shards to the shared bucket.
+   */
+  void rebalance() {
+    for (AtomicLong shard : this.shards) {
+      long tokens = shard.getAndSet(0);
+      if (tokens > 0) {
+        returnTokens(tokens);
+      }
+    }
+  }
+
+  private void maybeRebalance() {
+    long now = System.currentTimeMillis();
+    long nextRebalance = this.nextRebalanceMillis.get();
+    if (now >= nextRebalance && this.nextRebalanceMillis.compareAndSet(nextRebalance, now + this.rebalanceIntervalMillis)) {
+      rebalance();
+    }
+  }
+
+  private static boolean takeFromShard(AtomicLong shard, long tokens) {
+    while (true) {
+      long available = shard.get();
+      if (available < tokens) {
+        return false;
+      }
+      if (shard.compareAndSet(available, available - tokens)) {
+        return true;
+      }
+    }
+  }
+
+  private long computeShardRefillTokens(long qps) {
+    return (long) (this.maxRateError * qps / this.shards.length);
+  }
+}
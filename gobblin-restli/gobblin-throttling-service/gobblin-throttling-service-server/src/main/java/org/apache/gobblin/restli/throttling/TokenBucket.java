@@ -18,29 +18,55 @@
 package org.apache.gobblin.restli.throttling;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.base.Preconditions;
 
-import lombok.AccessLevel;
-import lombok.Getter;
+import lombok.AllArgsConstructor;
 
 
 /**
  * An implementation of Token Bucket (https://en.wikipedia.org/wiki/Token_bucket).
  *
  * This class is intended to limit the rate at which tokens are used to a given QPS. It can store tokens for future usage.
+ *
+ * The bucket is lock-free: its state is an immutable {@link BucketState} swapped by compare-and-set, so concurrent
+ * requests for a hot resource retry instead of serializing on a monitor.
  */
 public class TokenBucket {
 
-  @Getter(AccessLevel.PROTECTED)
-  private double tokensPerMilli;
-  private double maxBucketSizeInTokens;
+  /**
+   * Immutable snapshot of the bucket.
+   */
+  @AllArgsConstructor
+  private static class BucketState {
+    private final double tokensPerMilli;
+    private final double maxBucketSizeInTokens;
+    private final long nextTokenAvailableMillis;
+    private final double tokensStored;
+
+    /**
+     * @return the state after accounting for the tokens generated until {@code now}.
+     */
+    private BucketState refill(long now) {
+      if (now <= this.nextTokenAvailableMillis) {
+        return this;
+      }
+      long millisUnaccounted = now - this.nextTokenAvailableMillis;
+      double newTokens = millisUnaccounted * this.tokensPerMilli;
+      return new BucketState(this.tokensPerMilli, this.maxBucketSizeInTokens, now,
+          Math.min(this.tokensStored + newTokens, Math.max(this.tokensStored, this.maxBucketSizeInTokens)));
+    }
+
+    private BucketState withTokensStored(double tokensStored) {
+      return new BucketState(this.tokensPerMilli, this.maxBucketSizeInTokens, this.nextTokenAvailableMillis, tokensStored);
+    }
+  }
 
-  private volatile long nextTokenAvailableMillis;
-  private volatile double tokensStored;
+  private final AtomicReference<BucketState> state;
 
   public TokenBucket(long qps, long maxBucketSizeInMillis) {
-    this.nextTokenAvailableMillis = System.currentTimeMillis();
+    this.state = new AtomicReference<>(new BucketState(0, 0, System.currentTimeMillis(), 0));
     resetQPS(qps, maxBucketSizeInMillis);
   }
 
@@ -48,17 +74,27 @@ public class TokenBucket {
     Preconditions.checkArgument(qps > 0, "QPS must be positive.");
     Preconditions.checkArgument(maxBucketSizeInMillis >= 0, "Max bucket size must be non-negative.");
 
-    long now = System.currentTimeMillis();
-    synchronized (this) {
-      updateTokensStored(now);
-      if (this.nextTokenAvailableMillis > now) {
-        this.tokensStored -= (this.nextTokenAvailableMillis - now) * this.tokensPerMilli;
+    double tokensPerMilli = (double) qps / 1000;
+    while (true) {
+      long now = System.currentTimeMillis();
+      BucketState current = this.state.get();
+      BucketState updated = current.refill(now);
+      double tokensStored = updated.tokensStored;
+      if (updated.nextTokenAvailableMillis > now) {
+        tokensStored -= (updated.nextTokenAvailableMillis - now) * updated.tokensPerMilli;
+      }
+      BucketState reset = new BucketState(tokensPerMilli, tokensPerMilli * maxBucketSizeInMillis,
+          updated.nextTokenAvailableMillis, tokensStored);
+      if (this.state.compareAndSet(current, reset)) {
+        return;
       }
-      this.tokensPerMilli = (double) qps / 1000;
-      this.maxBucketSizeInTokens = this.tokensPerMilli * maxBucketSizeInMillis;
     }
   }
 
+  protected double getTokensPerMilli() {
+    return this.state.get().tokensPerMilli;
+  }
+
   /**
    * Attempt to get the specified amount of tokens within the specified timeout. If the tokens cannot be retrieved in the
    * specified timeout, the call will return false immediately, otherwise, the call will block until the tokens are available.
@@ -86,52 +122,78 @@ public class TokenBucket {
    * tokens will be available at any point in the future.
    */
   public long getStoredTokens() {
-    synchronized (this) {
-      updateTokensStored(System.currentTimeMillis());
-    }
-    return (long) this.tokensStored;
+    return (long) this.state.get().refill(System.currentTimeMillis()).tokensStored;
   }
 
   /**
-   * Note: this method should only be called while holding the class lock. For performance, the lock is not explicitly
-   * acquired.
-   *
    * @return the wait until the tokens are available or negative if they can't be acquired in the give timeout.
    */
-  synchronized long tryReserveTokens(long tokens, long maxWaitMillis) {
-    long now = System.currentTimeMillis();
-    long waitUntilNextTokenAvailable = Math.max(0, this.nextTokenAvailableMillis - now);
-
-    updateTokensStored(now);
-    if (tokens <= this.tokensStored) {
-      this.tokensStored -= tokens;
-      return waitUntilNextTokenAvailable;
+  long tryReserveTokens(long tokens, long maxWaitMillis) {
+    while (true) {
+      long now = System.currentTimeMillis();
+      BucketState current = this.state.get();
+      long waitUntilNextTokenAvailable = Math.max(0, current.nextTokenAvailableMillis - now);
+      BucketState updated = current.refill(now);
+
+      BucketState reserved;
+      long wait;
+      if (tokens <= updated.tokensStored) {
+        reserved = updated.withTokensStored(updated.tokensStored - tokens);
+        wait = waitUntilNextTokenAvailable;
+      } else {
+        double additionalNeededTokens = tokens - updated.tokensStored;
+        // casting to long will round towards 0
+        long additionalWaitForEnoughTokens = (long) (additionalNeededTokens / updated.tokensPerMilli) + 1;
+        wait = waitUntilNextTokenAvailable + additionalWaitForEnoughTokens;
+        if (wait > maxWaitMillis) {
+          return -1;
+        }
+        reserved = new BucketState(updated.tokensPerMilli, updated.maxBucketSizeInTokens,
+            updated.nextTokenAvailableMillis + additionalWaitForEnoughTokens,
+            updated.tokensPerMilli * additionalWaitForEnoughTokens - additionalNeededTokens);
+      }
+      if (this.state.compareAndSet(current, reserved)) {
+        return wait;
+      }
     }
+  }
 
-    double additionalNeededTokens = tokens - this.tokensStored;
-    // casting to long will round towards 0
-    long additionalWaitForEnoughTokens = (long) (additionalNeededTokens / this.tokensPerMilli) + 1;
-    long totalWait = waitUntilNextTokenAvailable + additionalWaitForEnoughTokens;
-    if (totalWait > maxWaitMillis) {
-      return -1;
+  /**
+   * Take the specified amount of tokens only if they are available now. Nothing is reserved otherwise.
+   *
+   * @return true if the tokens were taken.
+   */
+  boolean tryTakeAvailableTokens(long tokens) {
+    while (true) {
+      long now = System.currentTimeMillis();
+      BucketState current = this.state.get();
+      if (current.nextTokenAvailableMillis > now) {
+        // Earlier requests reserved tokens that are not generated yet
+        return false;
+      }
+      BucketState updated = current.refill(now);
+      if (tokens > updated.tokensStored) {
+        return false;
+      }
+      if (this.state.compareAndSet(current, updated.withTokensStored(updated.tokensStored - tokens))) {
+        return true;
+      }
     }
-    this.tokensStored = this.tokensPerMilli * additionalWaitForEnoughTokens - additionalNeededTokens;
-    this.nextTokenAvailableMillis = this.nextTokenAvailableMillis + additionalWaitForEnoughTokens;
-    return totalWait;
   }
 
   /**
-   * Note: this method should only be called while holding the class lock. For performance, the lock is not explicitly
-   * acquired.
+   * Give back tokens that were reserved but will not be used. Like generated tokens, returned tokens only accumulate up
+   * to the max bucket size.
    */
-  private void updateTokensStored(long now) {
-    if (now <= this.nextTokenAvailableMillis) {
-      return;
+  void returnTokens(long tokens) {
+    while (true) {
+      BucketState current = this.state.get();
+      BucketState updated = current.refill(System.currentTimeMillis());
+      BucketState returned = updated.withTokensStored(Math.min(updated.tokensStored + tokens,
+          Math.max(updated.tokensStored, updated.maxBucketSizeInTokens)));
+      if (this.state.compareAndSet(current, returned)) {
+        return;
+      }
     }
-    long millisUnaccounted = now - this.nextTokenAvailableMillis;
-    double newTokens = millisUnaccounted * this.tokensPerMilli;
-    this.nextTokenAvailableMillis = now;
-    this.tokensStored = Math.min(this.tokensStored + newTokens, Math.max(this.tokensStored, this.maxBucketSizeInTokens));
   }
-
 }
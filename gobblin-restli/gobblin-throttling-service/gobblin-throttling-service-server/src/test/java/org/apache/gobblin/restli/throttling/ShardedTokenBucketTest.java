@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.restli.throttling;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Lists;
+
+
+public class ShardedTokenBucketTest {
+
+  @Test
+  public void testRateAccuracy() throws Exception {
+    long qps = 100000;
+    ShardedTokenBucket tokenBucket = new ShardedTokenBucket(qps, 1000, 4, 0.01, 100);
+    ExecutorService executorService = Executors.newFixedThreadPool(10);
+
+    long permitsPerRequest = qps / 100;
+    List<Future<Boolean>> futures = Lists.newArrayList();
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < 100; i++) {
+      futures.add(executorService.submit(new TokenBucketTest.MyRunnable(tokenBucket, permitsPerRequest, 2000)));
+    }
+    for (Future<Boolean> future : futures) {
+      Assert.assertTrue(future.get());
+    }
+    long end = System.currentTimeMillis();
+    executorService.shutdownNow();
+
+    double averageRate = 1000 * (double) (permitsPerRequest * futures.size()) / (end - start);
+    Assert.assertTrue(Math.abs(averageRate - qps) / qps < 0.2, "Average rate: " + averageRate + " expected: " + qps);
+  }
+
+  @Test
+  public void testShardsNeverExceedRate() throws Exception {
+    long qps = 10000;
+    // No stored burst, so every granted token must have been generated while the test ran
+    ShardedTokenBucket tokenBucket = new ShardedTokenBucket(qps, 0, 4, 0.2, 50);
+    ExecutorService executorService = Executors.newFixedThreadPool(8);
+    AtomicLong grantedTokens = new AtomicLong();
+    long start = System.currentTimeMillis();
+    long end = start + 1000;
+
+    List<Future<?>> futures = Lists.newArrayList();
+    for (int i = 0; i < 8; i++) {
+      final long maxWaitMillis = i % 2 == 0 ? 0 : 20;
+      futures.add(executorService.submit(() -> {
+        while (System.currentTimeMillis() < end) {
+          if (tokenBucket.getTokens(10, maxWaitMillis, TimeUnit.MILLISECONDS)) {
+            grantedTokens.addAndGet(10);
+          }
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    long elapsed = System.currentTimeMillis() - start;
+    executorService.shutdownNow();
+
+    // Allow one request per thread of rounding on top of the generated tokens
+    long maxTokens = qps * elapsed / 1000 + 8 * 10;
+    Assert.assertTrue(grantedTokens.get() <= maxTokens, "Granted: " + grantedTokens.get() + " max: " + maxTokens);
+  }
+
+  @Test
+  public void testTokensHeldByShardsAreRebalanced() throws Exception {
+    // Each shard refills 0.5 * 1000 / 2 = 250 tokens at a time
+    ShardedTokenBucket tokenBucket = new ShardedTokenBucket(1000, 1000, 2, 0.5, TimeUnit.HOURS.toMillis(1));
+    Thread.sleep(300); // fill up bucket
+
+    Assert.assertTrue(tokenBucket.getTokens(1, 0, TimeUnit.MILLISECONDS));
+    // A second request is served by the shard refilled by the first one
+    Assert.assertTrue(tokenBucket.getTokens(200, 0, TimeUnit.MILLISECONDS));
+    long storedTokens = tokenBucket.getStoredTokens();
+
+    tokenBucket.rebalance();
+    // Tokens held by the shard are back in the shared bucket, so none were lost
+    Assert.assertTrue(tokenBucket.getStoredTokens() >= storedTokens);
+    Assert.assertTrue(tokenBucket.getTokens(storedTokens, 0, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testLowQpsBypassesShards() throws Exception {
+    ShardedTokenBucket tokenBucket = new ShardedTokenBucket(100, 0, 4, 0.01, 1000);
+
+    Assert.assertFalse(tokenBucket.getTokens(100, 100, TimeUnit.MILLISECONDS));
+    Assert.assertTrue(tokenBucket.getTokens(10, 101, TimeUnit.MILLISECONDS));
+  }
+}
@@ -282,8 +282,10 @@ public abstract class AbstractJobLauncher implements JobLauncher {
     try {
       this.removeTasksFromCurrentJob(workUnitChangeEvent.getOldTaskIds());
       this.addTasksToCurrentJob(workUnitChangeEvent.getNewWorkUnits());
+      workUnitChangeEvent.getApplied().complete(workUnitChangeEvent.getNewWorkUnits());
     } catch (Exception e) {
       //todo: emit some event to indicate there is an error handling this event that may cause starvation
+      workUnitChangeEvent.getApplied().completeExceptionally(e);
       throw new InvocationTargetException(e);
     }
   }
@@ -106,6 +106,8 @@ public class GobblinMultiTaskAttempt {
   }
 
   private static final String TASK_STATE_STORE_SUCCESS_MARKER_SUFFIX = ".suc";
+  private static final long TASK_STATUS_LOG_INTERVAL_SECONDS = 10L;
+  private static final long BOUNDED_SUBMISSION_POLL_SECONDS = 1L;
   private final Logger log;
   private final Iterator<WorkUnit> workUnits;
   private final String jobId;
@@ -119,7 +121,14 @@ public class GobblinMultiTaskAttempt {
   private final TaskEventMetadataGenerator taskEventMetadataGenerator;
   @Setter
   private Predicate<GobblinMultiTaskAttempt> interruptionPredicate = (gmta) -> false;
-  private List<Task> tasks;
+  /**
+   * Maximum number of tasks of this attempt submitted to the {@link TaskExecutor} at any time. When bounded,
+   * {@link #workUnits} is only advanced as tasks finish, which lets a lazy iterator hand out work units on demand
+   * (e.g. work units claimed from a queue shared with other attempts).
+   */
+  @Setter
+  private int maxTasksInFlight = Integer.MAX_VALUE;
+  private volatile List<Task> tasks;
   @Getter
   private volatile AtomicBoolean stopped = new AtomicBoolean(false);
 
@@ -191,19 +200,24 @@ public class GobblinMultiTaskAttempt {
     }
 
     log.info("Waiting for submitted tasks of job {} to complete in container {}...", jobId, containerIdOptional.or(""));
+    long pollSeconds = isSubmissionBounded() ? BOUNDED_SUBMISSION_POLL_SECONDS : TASK_STATUS_LOG_INTERVAL_SECONDS;
+    long lastStatusLogTime = 0L;
     try {
-      while (countDownLatch.getCount() > 0) {
+      while (countDownLatch.getCount() > 0 || submitMoreWorkUnits(countDownLatch)) {
         if (this.interruptionPredicate.test(this)) {
           log.info("Interrupting task execution due to satisfied predicate.");
           interruptTaskExecution(countDownLatch);
           break;
         }
-        long totalTasks = countDownLatch.totalParties.get();
-        long runningTasks = countDownLatch.getCount();
-        log.info(String.format("%d out of %d tasks of job %s are running in container %s. %d tasks finished.",
-            runningTasks, totalTasks, jobId, containerIdOptional.or(""), totalTasks - runningTasks));
-        if (countDownLatch.await(10, TimeUnit.SECONDS)) {
-          break;
+        if (System.currentTimeMillis() - lastStatusLogTime >= TimeUnit.SECONDS.toMillis(TASK_STATUS_LOG_INTERVAL_SECONDS)) {
+          long totalTasks = countDownLatch.totalParties.get();
+          long runningTasks = countDownLatch.getCount();
+          log.info(String.format("%d out of %d tasks of job %s are running in container %s. %d tasks finished.",
+              runningTasks, totalTasks, jobId, containerIdOptional.or(""), totalTasks - runningTasks));
+          lastStatusLogTime = System.currentTimeMillis();
+        }
+        if (!countDownLatch.await(pollSeconds, TimeUnit.SECONDS)) {
+          submitMoreWorkUnits(countDownLatch);
         }
       }
     } catch (InterruptedException interrupt) {
@@ -213,6 +227,32 @@ public class GobblinMultiTaskAttempt {
     log.info("All assigned tasks of job {} have completed in container {}", jobId, containerIdOptional.or(""));
   }
 
+  private boolean isSubmissionBounded() {
+    return this.maxTasksInFlight != Integer.MAX_VALUE;
+  }
+
+  /**
+   * Submit more of {@link #workUnits} if the number of tasks in flight is bounded and some tasks have finished.
+   *
+   * @return whether any task was submitted
+   */
+  private boolean submitMoreWorkUnits(CountUpAndDownLatch countDownLatch) throws TaskCreationException {
+    if (!isSubmissionBounded() || this.stopped.get() || countDownLatch.getCount() >= this.maxTasksInFlight) {
+      return false;
+    }
+    Pair<List<Task>, Boolean> executionResult = runWorkUnits(countDownLatch);
+    if (!executionResult.getFirst().isEmpty()) {
+      // Copy on write, the task list is read by other threads
+      List<Task> allTasks = new ArrayList<>(this.tasks);
+      allTasks.addAll(executionResult.getFirst());
+      this.tasks = allTasks;
+    }
+    if (!executionResult.getSecond() && !this.stopped.get()) {
+      throw new TaskCreationException("Failing in submitting at least one task before execution.");
+    }
+    return !executionResult.getFirst().isEmpty();
+  }
+
   private void interruptTaskExecution(CountDownLatch countDownLatch)
       throws InterruptedException {
     log.info("Job interrupted. Attempting a graceful shutdown of the job.");
@@ -368,6 +408,36 @@ public class GobblinMultiTaskAttempt {
     }
   }
 
+  /**
+   * @return the number of records pulled so far by the {@link Task}s of this attempt. Can be called while the attempt
+   * is running, returns 0 until all {@link Task}s have been submitted.
+   */
+  public long getRecordsPulled() {
+    long recordsPulled = 0;
+    for (Task task : this.tasks) {
+      recordsPulled += task.getRecordsPulled();
+    }
+    return recordsPulled;
+  }
+
+  /**
+   * @return whether every {@link Task} of this attempt ran successfully and the attempt was not stopped. Only
+   * meaningful once {@link #run()} has returned.
+   */
+  public boolean isSuccessful() {
+    if (this.stopped.get()) {
+      return false;
+    }
+    for (Task task : this.tasks) {
+      WorkUnitState.WorkingState workingState = task.getTaskState().getWorkingState();
+      if (workingState != WorkUnitState.WorkingState.SUCCESSFUL
+          && workingState != WorkUnitState.WorkingState.COMMITTED) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public boolean isSpeculativeExecutionSafe() {
     for (Task task : tasks) {
       if (!task.isSpeculativeExecutionSafe()) {
@@ -420,7 +490,7 @@ public class GobblinMultiTaskAttempt {
   }
 
   /**
-   * Run a given list of {@link WorkUnit}s of a job.
+   * Run a given list of {@link WorkUnit}s of a job, up to {@link #maxTasksInFlight} tasks at a time.
    *
    * <p>
    *   This method assumes that the given list of {@link WorkUnit}s have already been flattened and
@@ -442,7 +512,7 @@ public class GobblinMultiTaskAttempt {
     // A flag indicating if there are any tasks not submitted successfully.
     // Caller of this method should handle tasks with submission failures accordingly.
     boolean areAllTasksSubmitted = true;
-    while (this.workUnits.hasNext()) {
+    while (countDownLatch.getCount() < this.maxTasksInFlight && this.workUnits.hasNext()) {
       WorkUnit workUnit = this.workUnits.next();
       String taskId = workUnit.getProp(ConfigurationKeys.TASK_ID_KEY);
 
@@ -328,6 +328,13 @@ public class Task implements TaskIFace {
     this.shutdownRequestedTime = Math.min(System.currentTimeMillis(), this.shutdownRequestedTime);
   }
 
+  /**
+   * @return the number of records pulled from the {@link Extractor} so far.
+   */
+  public long getRecordsPulled() {
+    return this.recordsPulled.get();
+  }
+
   public String getProgress() {
     long currentTime = System.currentTimeMillis();
     long lastRecordTimeElapsed = currentTime - this.lastRecordPulledTimestampMillis;
@@ -17,6 +17,7 @@
 
 package org.apache.gobblin.runtime;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -29,6 +30,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -54,6 +56,7 @@ import org.apache.gobblin.configuration.ConfigurationKeys;
 import org.apache.gobblin.metrics.GobblinMetrics;
 import org.apache.gobblin.runtime.fork.Fork;
 import org.apache.gobblin.util.ExecutorsUtils;
+import org.apache.gobblin.util.executors.VirtualThreads;
 import org.apache.gobblin.util.logs.Log4jConfigurationHelper;
 
 import lombok.Getter;
@@ -70,6 +73,8 @@ public class TaskExecutor extends AbstractIdleService {
 
   private static final Logger LOG = LoggerFactory.getLogger(TaskExecutor.class);
 
+  static final String VIRTUAL_THREAD_MODE = "virtual";
+
   // Thread pool executor for running tasks
   private final ScheduledExecutorService taskExecutor;
 
@@ -140,6 +145,17 @@ public class TaskExecutor extends AbstractIdleService {
   @Getter
   private final Timer taskCreateAndRunTimer;
 
+  // Whether tasks and forks run on virtual threads
+  @Getter
+  private final boolean virtualThreads;
+
+  // Virtual threads pinned to their carrier thread for longer than the reporting threshold
+  @Getter
+  private final Meter pinnedVirtualThreadCount = new Meter();
+
+  private final long pinnedReportThresholdMillis;
+  private Optional<AutoCloseable> pinnedThreadReporter = Optional.absent();
+
   // The metric set exposed from the task executor.
   private final TaskExecutorQueueMetricSet metricSet = new TaskExecutorQueueMetricSet();
 
@@ -147,16 +163,34 @@ public class TaskExecutor extends AbstractIdleService {
    * Constructor used internally.
    */
   private TaskExecutor(int taskExecutorThreadPoolSize, int coreRetryThreadPoolSize, long retryIntervalInSeconds,
-                       int queuedTaskTimeMaxSize, long queuedTaskTimeMaxAge, int timerWindowSize) {
+                       int queuedTaskTimeMaxSize, long queuedTaskTimeMaxAge, int timerWindowSize, String threadMode,
+                       long pinnedReportThresholdMillis) {
     Preconditions.checkArgument(taskExecutorThreadPoolSize > 0, "Task executor thread pool size should be positive");
     Preconditions.checkArgument(retryIntervalInSeconds > 0, "Task retry interval should be positive");
     Preconditions.checkArgument(queuedTaskTimeMaxSize > 0, "Queued task time max size should be positive");
     Preconditions.checkArgument(queuedTaskTimeMaxAge > 0, "Queued task time max age should be positive");
 
+    Optional<ThreadFactory> taskThreadFactory = Optional.absent();
+    Optional<ThreadFactory> forkThreadFactory = Optional.absent();
+    if (VIRTUAL_THREAD_MODE.equalsIgnoreCase(threadMode)) {
+      taskThreadFactory = VirtualThreads.newVirtualThreadFactory(Optional.of(LOG), "TaskExecutor-");
+      forkThreadFactory = VirtualThreads.newVirtualThreadFactory(Optional.of(LOG), "ForkExecutor-");
+      if (taskThreadFactory.isPresent() && forkThreadFactory.isPresent()) {
+        LOG.info("Running tasks and forks on virtual threads");
+      } else {
+        LOG.warn("Virtual threads are not supported by the JVM, running tasks and forks on platform threads");
+      }
+    }
+    this.virtualThreads = taskThreadFactory.isPresent() && forkThreadFactory.isPresent();
+    this.pinnedReportThresholdMillis = pinnedReportThresholdMillis;
+    if (!this.virtualThreads) {
+      taskThreadFactory = Optional.of(ExecutorsUtils.newThreadFactory(Optional.of(LOG), Optional.of("TaskExecutor-%d")));
+      forkThreadFactory = Optional.of(ExecutorsUtils.newThreadFactory(Optional.of(LOG), Optional.of("ForkExecutor-%d")));
+    }
+
     // Currently a fixed-size thread pool is used to execute tasks. We probably need to revisit this later.
     this.taskExecutor = ExecutorsUtils.loggingDecorator(Executors.newScheduledThreadPool(
-        taskExecutorThreadPoolSize,
-        ExecutorsUtils.newThreadFactory(Optional.of(LOG), Optional.of("TaskExecutor-%d"))));
+        taskExecutorThreadPoolSize, taskThreadFactory.get()));
 
     this.retryIntervalInSeconds = retryIntervalInSeconds;
     this.queuedTaskTimeMaxSize = queuedTaskTimeMaxSize;
@@ -178,7 +212,7 @@ public class TaskExecutor extends AbstractIdleService {
             TimeUnit.MILLISECONDS,
             // The work queue is a SynchronousQueue. This essentially forces a new thread to be created for each fork.
             new SynchronousQueue<Runnable>(),
-            ExecutorsUtils.newThreadFactory(Optional.of(LOG), Optional.of("ForkExecutor-%d"))));
+            forkThreadFactory.get()));
   }
 
   /**
@@ -196,7 +230,12 @@ public class TaskExecutor extends AbstractIdleService {
         Long.parseLong(properties.getProperty(ConfigurationKeys.QUEUED_TASK_TIME_MAX_AGE,
             Long.toString(ConfigurationKeys.DEFAULT_QUEUED_TASK_TIME_MAX_AGE))),
         Integer.parseInt(properties.getProperty(ConfigurationKeys.METRIC_TIMER_WINDOW_SIZE_IN_MINUTES,
-            Integer.toString(ConfigurationKeys.DEFAULT_METRIC_TIMER_WINDOW_SIZE_IN_MINUTES))));
+            Integer.toString(ConfigurationKeys.DEFAULT_METRIC_TIMER_WINDOW_SIZE_IN_MINUTES))),
+        properties.getProperty(ConfigurationKeys.TASK_EXECUTOR_THREAD_MODE_KEY,
+            ConfigurationKeys.DEFAULT_TASK_EXECUTOR_THREAD_MODE),
+        Long.parseLong(properties.getProperty(
+            ConfigurationKeys.TASK_EXECUTOR_VIRTUAL_THREAD_PINNED_REPORT_THRESHOLD_MILLIS_KEY,
+            Long.toString(ConfigurationKeys.DEFAULT_TASK_EXECUTOR_VIRTUAL_THREAD_PINNED_REPORT_THRESHOLD_MILLIS))));
   }
 
   /**
@@ -214,7 +253,10 @@ public class TaskExecutor extends AbstractIdleService {
         conf.getLong(ConfigurationKeys.QUEUED_TASK_TIME_MAX_AGE,
             ConfigurationKeys.DEFAULT_QUEUED_TASK_TIME_MAX_AGE),
         conf.getInt(ConfigurationKeys.METRIC_TIMER_WINDOW_SIZE_IN_MINUTES,
-            ConfigurationKeys.DEFAULT_METRIC_TIMER_WINDOW_SIZE_IN_MINUTES));
+            ConfigurationKeys.DEFAULT_METRIC_TIMER_WINDOW_SIZE_IN_MINUTES),
+        conf.get(ConfigurationKeys.TASK_EXECUTOR_THREAD_MODE_KEY, ConfigurationKeys.DEFAULT_TASK_EXECUTOR_THREAD_MODE),
+        conf.getLong(ConfigurationKeys.TASK_EXECUTOR_VIRTUAL_THREAD_PINNED_REPORT_THRESHOLD_MILLIS_KEY,
+            ConfigurationKeys.DEFAULT_TASK_EXECUTOR_VIRTUAL_THREAD_PINNED_REPORT_THRESHOLD_MILLIS));
     Log4jConfigurationHelper.setLogLevel(conf.getTrimmedStringCollection(Log4jConfigurationHelper.LOG_LEVEL_OVERRIDE_MAP));
   }
 
@@ -228,6 +270,14 @@ public class TaskExecutor extends AbstractIdleService {
     if (this.forkExecutor.isShutdown() || this.forkExecutor.isTerminated()) {
       throw new IllegalStateException("Fork thread pool executor is shutdown or terminated");
     }
+    if (this.virtualThreads && this.pinnedReportThresholdMillis > 0) {
+      // Pinning typically comes from blocking I/O inside synchronized blocks of a source or writer
+      this.pinnedThreadReporter = VirtualThreads.reportPinnedThreads(Duration.ofMillis(this.pinnedReportThresholdMillis),
+          event -> {
+            this.pinnedVirtualThreadCount.mark();
+            LOG.warn("Virtual thread pinned to its carrier thread: {}", event);
+          });
+    }
   }
 
   @Override
@@ -238,6 +288,9 @@ public class TaskExecutor extends AbstractIdleService {
       ExecutorsUtils.shutdownExecutorService(this.taskExecutor, Optional.of(LOG));
     } finally {
       ExecutorsUtils.shutdownExecutorService(this.forkExecutor, Optional.of(LOG));
+      if (this.pinnedThreadReporter.isPresent()) {
+        this.pinnedThreadReporter.get().close();
+      }
     }
   }
 
@@ -418,6 +471,7 @@ public class TaskExecutor extends AbstractIdleService {
       metrics.put(name("running", "count"), runningTaskCount);
       metrics.put(name("successful", "count"), successfulTaskCount);
       metrics.put(name("failed", "count"), failedTaskCount);
+      metrics.put(name("virtualThreads", "pinned", "count"), pinnedVirtualThreadCount);
       return Collections.unmodifiableMap(metrics);
     }
   }
@@ -18,6 +18,7 @@
 package org.apache.gobblin.temporal.ddm.activity.impl;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
@@ -85,6 +86,47 @@ public class ProcessWorkUnitImpl implements ProcessWorkUnit {
     }
   }
 
+  /**
+   * Executes the (flattened) work units of every one of `wus` together, as a single {@link GobblinMultiTaskAttempt}.  Beyond
+   * the activity itself, the batch shares one troubleshooter, task state store and {@link TaskExecutor}, while the
+   * `FileSystem` and {@link JobState} are further shared with every other activity executing on this worker.
+   *
+   * NOTE: all `wus` must belong to the same job, so the first serves to represent the whole batch.
+   */
+  @Override
+  public int processWorkUnitBatch(List<WorkUnitClaimCheck> wus) {
+    if (wus.isEmpty()) {
+      return 0;
+    }
+    WorkUnitClaimCheck batchWu = wus.get(0);
+    AutomaticTroubleshooter troubleshooter = null;
+    EventSubmitter eventSubmitter = batchWu.getEventSubmitterContext().create();
+    String correlator = String.format("(M)WU batch [%s..%s]", batchWu.getCorrelator(), wus.get(wus.size() - 1).getCorrelator());
+    try {
+      FileSystem fs = Help.loadSharedFileSystem(batchWu); // ATTENTION: shared, so never close!
+      List<WorkUnit> workUnits = new ArrayList<>();
+      for (WorkUnitClaimCheck wu : wus) {
+        workUnits.addAll(loadFlattenedWorkUnits(wu, fs));
+      }
+      log.info("{} - loaded {} claim checks; found {} workUnits", correlator, wus.size(), workUnits.size());
+      JobState jobState = Help.loadJobState(batchWu, fs);
+      troubleshooter = AutomaticTroubleshooterFactory.createForJob(jobState.getProperties());
+      troubleshooter.start();
+      // size the task executor per job config, since a batch may well have more work units than the default threads
+      TaskExecutor taskExecutor = new TaskExecutor(jobState.getProperties());
+      taskExecutor.startAsync().awaitRunning();
+      try {
+        return execute(workUnits, batchWu, jobState, fs, troubleshooter.getIssueRepository(), taskExecutor);
+      } finally {
+        taskExecutor.stopAsync().awaitTerminated();
+      }
+    } catch (IOException | InterruptedException e) {
+      throw new RuntimeException(e);
+    } finally {
+      Help.finalizeTroubleshooting(troubleshooter, eventSubmitter, log, correlator);
+    }
+  }
+
   protected List<WorkUnit> loadFlattenedWorkUnits(WorkUnitClaimCheck wu, FileSystem fs) throws IOException {
     Path wuPath = new Path(wu.getWorkUnitPath());
     WorkUnit workUnit = JobLauncherUtils.createEmptyWorkUnitPerExtension(wuPath);
@@ -97,11 +139,15 @@ public class ProcessWorkUnitImpl implements ProcessWorkUnit {
    * @return count of how many tasks executed (0 if execution ultimately failed, but we *believe* TaskState should already have been recorded beforehand)
    */
   protected int execute(List<WorkUnit> workUnits, WorkUnitClaimCheck wu, JobState jobState, FileSystem fs, IssueRepository issueRepository) throws IOException, InterruptedException {
+    return execute(workUnits, wu, jobState, fs, issueRepository, new TaskExecutor(new Properties()));
+  }
+
+  protected int execute(List<WorkUnit> workUnits, WorkUnitClaimCheck wu, JobState jobState, FileSystem fs, IssueRepository issueRepository,
+      TaskExecutor taskExecutor) throws IOException, InterruptedException {
     String containerId = "container-id-for-wu-" + wu.getCorrelator();
     StateStore<TaskState> taskStateStore = Help.openTaskStateStore(wu, fs);
 
     TaskStateTracker taskStateTracker = createEssentializedTaskStateTracker(wu);
-    TaskExecutor taskExecutor = new TaskExecutor(new Properties());
     GobblinMultiTaskAttempt.CommitPolicy multiTaskAttemptCommitPolicy = GobblinMultiTaskAttempt.CommitPolicy.IMMEDIATE; // as no speculative exec
 
     SharedResourcesBroker<GobblinScopeTypes> resourcesBroker = JobStateUtils.getSharedResourcesBroker(jobState);
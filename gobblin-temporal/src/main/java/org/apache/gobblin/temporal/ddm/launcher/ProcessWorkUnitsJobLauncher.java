@@ -17,6 +17,7 @@
 
 package org.apache.gobblin.temporal.ddm.launcher;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.List;
 import java.util.Properties;
@@ -43,6 +44,7 @@ import org.apache.gobblin.temporal.ddm.work.WUProcessingSpec;
 import org.apache.gobblin.temporal.ddm.work.assistance.Help;
 import org.apache.gobblin.temporal.ddm.workflow.ProcessWorkUnitsWorkflow;
 import org.apache.gobblin.temporal.joblauncher.GobblinTemporalJobLauncher;
+import org.apache.gobblin.temporal.util.nesting.work.AdaptiveFanOut;
 import org.apache.gobblin.temporal.joblauncher.GobblinTemporalJobScheduler;
 import org.apache.gobblin.temporal.workflows.metrics.EventSubmitterContext;
 import org.apache.gobblin.util.PropertiesUtils;
@@ -66,6 +68,11 @@ public class ProcessWorkUnitsJobLauncher extends GobblinTemporalJobLauncher {
 
   public static final String GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_WORK_MAX_BRANCHES_PER_TREE = GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_PREFIX + "work.max.branches.per.tree";
   public static final String GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_WORK_MAX_SUB_TREES_PER_TREE = GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_PREFIX + "work.max.sub.trees.per.tree";
+  public static final String GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_WORK_UNITS_PER_ACTIVITY = GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_PREFIX + "work.units.per.activity";
+  /** when set (and tree shape not explicitly given), size the tree of workflows adaptively, given how many activities may concurrently execute */
+  public static final String GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_WORK_NUM_WORKER_SLOTS = GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_PREFIX + "work.num.worker.slots";
+  public static final String GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_WORK_MAX_WORK_UNITS_PER_ACTIVITY = GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_PREFIX + "work.max.work.units.per.activity";
+  public static final int DEFAULT_GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_WORK_MAX_WORK_UNITS_PER_ACTIVITY = 20;
 
   public static final String WORKFLOW_ID_BASE = "ProcessWorkUnits";
 
@@ -93,7 +100,11 @@ public class ProcessWorkUnitsJobLauncher extends GobblinTemporalJobLauncher {
           this.jobProps.containsKey(GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_WORK_MAX_SUB_TREES_PER_TREE)) {
         int maxBranchesPerTree = PropertiesUtils.getRequiredPropAsInt(this.jobProps, GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_WORK_MAX_BRANCHES_PER_TREE);
         int maxSubTreesPerTree = PropertiesUtils.getRequiredPropAsInt(this.jobProps, GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_WORK_MAX_SUB_TREES_PER_TREE);
-        wuSpec.setTuning(new WUProcessingSpec.Tuning(maxBranchesPerTree, maxSubTreesPerTree));
+        WUProcessingSpec.Tuning tuning = new WUProcessingSpec.Tuning(maxBranchesPerTree, maxSubTreesPerTree);
+        tuning.setWorkUnitsPerActivity(PropertiesUtils.getPropAsInt(this.jobProps, GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_WORK_UNITS_PER_ACTIVITY, 1));
+        wuSpec.setTuning(tuning);
+      } else if (this.jobProps.containsKey(GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_WORK_NUM_WORKER_SLOTS)) {
+        wuSpec.setTuning(calcAdaptiveTuning(wuSpec, workUnitsDir));
       }
       wuSpec.setTags(GobblinMetrics.getCustomTagsFromState(new State(jobProps)));
       wuSpec.setMetricsSuffix(this.jobProps.getProperty(
@@ -113,4 +124,15 @@ public class ProcessWorkUnitsJobLauncher extends GobblinTemporalJobLauncher {
       throw new RuntimeException(e);
     }
   }
+
+  /** @return tuning sized to the number of work units (claim checks) in `workUnitsDir` and the worker slots to process them */
+  protected WUProcessingSpec.Tuning calcAdaptiveTuning(WUProcessingSpec wuSpec, Path workUnitsDir) throws IOException {
+    int numWorkUnits = Help.loadFileSystem(wuSpec).listStatus(workUnitsDir).length;
+    int numWorkerSlots = PropertiesUtils.getRequiredPropAsInt(this.jobProps, GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_WORK_NUM_WORKER_SLOTS);
+    int maxWorkUnitsPerActivity = PropertiesUtils.getPropAsInt(this.jobProps,
+        GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_WORK_MAX_WORK_UNITS_PER_ACTIVITY, DEFAULT_GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_WORK_MAX_WORK_UNITS_PER_ACTIVITY);
+    AdaptiveFanOut fanOut = AdaptiveFanOut.forWorkload(numWorkUnits, numWorkerSlots, maxWorkUnitsPerActivity);
+    log.info("sized tree for {} work units and {} worker slots: {}", numWorkUnits, numWorkerSlots, fanOut);
+    return WUProcessingSpec.Tuning.of(fanOut);
+  }
 }
@@ -34,6 +34,7 @@ import org.apache.gobblin.configuration.State;
 import org.apache.gobblin.runtime.AbstractJobLauncher;
 import org.apache.gobblin.temporal.ddm.work.styles.FileSystemApt;
 import org.apache.gobblin.temporal.ddm.work.styles.FileSystemJobStateful;
+import org.apache.gobblin.temporal.util.nesting.work.AdaptiveFanOut;
 import org.apache.gobblin.temporal.util.nesting.work.WorkflowAddr;
 import org.apache.gobblin.temporal.util.nesting.work.Workload;
 import org.apache.gobblin.temporal.workflows.metrics.EventSubmitterContext;
@@ -84,5 +85,14 @@ public class WUProcessingSpec implements FileSystemApt, FileSystemJobStateful {
 
     @NonNull private int maxBranchesPerTree;
     @NonNull private int maxSubTreesPerTree;
+    /** how many work units (claim checks) each activity processes, see {@link Workload#getWorkItemsPerActivity()} */
+    private int workUnitsPerActivity = 1;
+
+    /** @return tuning shaped by `fanOut` (rather than pre-determined) */
+    public static Tuning of(AdaptiveFanOut fanOut) {
+      Tuning tuning = new Tuning(fanOut.getMaxBranchesPerTree(), fanOut.getMaxSubTreesPerTree());
+      tuning.setWorkUnitsPerActivity(fanOut.getWorkItemsPerActivity());
+      return tuning;
+    }
   }
 }
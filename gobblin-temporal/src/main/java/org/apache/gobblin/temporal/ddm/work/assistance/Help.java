@@ -19,6 +19,7 @@ package org.apache.gobblin.temporal.ddm.work.assistance;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.UUID;
@@ -29,6 +30,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 
 import com.typesafe.config.Config;
 
@@ -67,6 +69,8 @@ public class Help {
   // treat `JobState` as immutable and cache, for reuse among activities executed by the same worker
   private static final transient Cache<Path, JobState> jobStateByPath = CacheBuilder.newBuilder().recordStats().build();
   private static final transient AtomicInteger jobStateAccessCount = new AtomicInteger(0);
+  // NOTE: never evicted, as any activity executing on this worker may be using the FS
+  private static final transient Cache<List<Object>, FileSystem> sharedFileSystemByUriAndConfig = CacheBuilder.newBuilder().build();
 
   private Help() {}
 
@@ -135,7 +139,31 @@ public class Help {
     return FileSystem.get(fsUri, conf);
   }
 
+  /**
+   * @return a `FileSystem` shared by all activities executing on this worker (and having the same FS URI and config), to
+   * spare each activity from creating (and closing) its own.  Like {@link #loadFileSystemForce(FileSystemApt)}, it
+   * bypasses HDFS caching, so it is closed by no one else.
+   *
+   * ATTENTION: callers MUST NOT close it!
+   */
+  public static FileSystem loadSharedFileSystem(FileSystemApt a) throws IOException {
+    Properties fsProps = new Properties();
+    fsProps.putAll(a.getFileSystemConfig().getProperties());
+    try {
+      return sharedFileSystemByUriAndConfig.get(ImmutableList.of(a.getFileSystemUri(), fsProps), () ->
+          loadFileSystemForce(a)
+      );
+    } catch (ExecutionException ee) {
+      throw new IOException(ee);
+    }
+  }
+
   public static JobState loadJobState(FileSystemJobStateful f) throws IOException {
+    JobState cachedJobState = jobStateByPath.getIfPresent(f.getJobStatePath());
+    if (cachedJobState != null) { // avoid creating a FS merely to find the job state already cached
+      incrementJobStateAccess();
+      return cachedJobState;
+    }
     try (FileSystem fs = loadFileSystemForce(f)) {
       return loadJobState(f, fs);
     }
@@ -23,6 +23,7 @@ import io.temporal.workflow.Async;
 import io.temporal.workflow.Promise;
 import io.temporal.workflow.Workflow;
 import java.time.Duration;
+import java.util.List;
 
 import org.apache.gobblin.temporal.ddm.activity.ProcessWorkUnit;
 import org.apache.gobblin.temporal.ddm.work.WorkUnitClaimCheck;
@@ -32,6 +33,7 @@ import org.apache.gobblin.temporal.util.nesting.workflow.AbstractNestingExecWork
 /** {@link org.apache.gobblin.temporal.util.nesting.workflow.NestingExecWorkflow} for {@link ProcessWorkUnit} */
 public class NestingExecOfProcessWorkUnitWorkflowImpl extends AbstractNestingExecWorkflowImpl<WorkUnitClaimCheck, Integer> {
   public static final Duration processWorkUnitStartToCloseTimeout = Duration.ofHours(3); // TODO: make configurable... also add activity heartbeats
+  public static final Duration processWorkUnitBatchStartToCloseTimeout = Duration.ofHours(12);
 
   // RetryOptions specify how to automatically handle retries when Activities fail.
   private static final RetryOptions ACTIVITY_RETRY_OPTS = RetryOptions.newBuilder()
@@ -46,10 +48,20 @@ public class NestingExecOfProcessWorkUnitWorkflowImpl extends AbstractNestingExe
       .setRetryOptions(ACTIVITY_RETRY_OPTS)
       .build();
 
+  private static final ActivityOptions BATCH_ACTIVITY_OPTS = ActivityOptions.newBuilder(ACTIVITY_OPTS)
+      .setStartToCloseTimeout(processWorkUnitBatchStartToCloseTimeout)
+      .build();
+
   private final ProcessWorkUnit activityStub = Workflow.newActivityStub(ProcessWorkUnit.class, ACTIVITY_OPTS);
+  private final ProcessWorkUnit batchActivityStub = Workflow.newActivityStub(ProcessWorkUnit.class, BATCH_ACTIVITY_OPTS);
 
   @Override
   protected Promise<Integer> launchAsyncActivity(final WorkUnitClaimCheck wu) {
     return Async.function(activityStub::processWorkUnit, wu);
   }
+
+  @Override
+  protected Promise<Integer> launchAsyncActivityBatch(final List<WorkUnitClaimCheck> wus) {
+    return Async.function(batchActivityStub::processWorkUnitBatch, wus);
+  }
 }
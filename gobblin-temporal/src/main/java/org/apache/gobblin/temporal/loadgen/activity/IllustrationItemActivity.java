@@ -17,6 +17,8 @@
 
 package org.apache.gobblin.temporal.loadgen.activity;
 
+import java.util.List;
+
 import io.temporal.activity.ActivityInterface;
 import io.temporal.activity.ActivityMethod;
 import org.apache.gobblin.temporal.loadgen.work.IllustrationItem;
@@ -33,6 +35,9 @@ import org.apache.gobblin.temporal.loadgen.work.IllustrationItem;
 public interface IllustrationItemActivity {
   @ActivityMethod
   String handleItem(IllustrationItem item);
+
+  @ActivityMethod
+  String handleItems(List<IllustrationItem> items);
 }
 
 
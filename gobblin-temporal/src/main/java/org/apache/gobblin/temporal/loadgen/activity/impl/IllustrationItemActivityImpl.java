@@ -17,6 +17,8 @@
 
 package org.apache.gobblin.temporal.loadgen.activity.impl;
 
+import java.util.List;
+import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.gobblin.temporal.loadgen.activity.IllustrationItemActivity;
@@ -30,4 +32,9 @@ public class IllustrationItemActivityImpl implements IllustrationItemActivity {
     log.info("Now illustrating - '" + item.getName() + "'");
     return item.getName();
   }
+
+  @Override
+  public String handleItems(final List<IllustrationItem> items) {
+    return items.stream().map(this::handleItem).collect(Collectors.joining(","));
+  }
 }
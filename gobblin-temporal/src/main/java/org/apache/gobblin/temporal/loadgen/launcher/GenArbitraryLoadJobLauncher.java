@@ -38,6 +38,7 @@ import org.apache.gobblin.temporal.joblauncher.GobblinTemporalJobLauncher;
 import org.apache.gobblin.temporal.joblauncher.GobblinTemporalJobScheduler;
 import org.apache.gobblin.temporal.loadgen.work.IllustrationItem;
 import org.apache.gobblin.temporal.loadgen.work.SimpleGeneratedWorkload;
+import org.apache.gobblin.temporal.util.nesting.work.AdaptiveFanOut;
 import org.apache.gobblin.temporal.util.nesting.work.WorkflowAddr;
 import org.apache.gobblin.temporal.util.nesting.work.Workload;
 import org.apache.gobblin.temporal.util.nesting.workflow.NestingExecWorkflow;
@@ -61,6 +62,11 @@ public class GenArbitraryLoadJobLauncher extends GobblinTemporalJobLauncher {
   public static final String GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_NUM_ACTIVITIES = GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_PREFIX + "num.activities";
   public static final String GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_MAX_BRANCHES_PER_TREE = GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_PREFIX + "max.branches.per.tree";
   public static final String GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_MAX_SUB_TREES_PER_TREE = GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_PREFIX + "max.sub.trees.per.tree";
+  public static final String GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_ITEMS_PER_ACTIVITY = GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_PREFIX + "items.per.activity";
+  /** when set, size the tree (and batching) adaptively, in place of the args for max branches, max sub-trees and items per activity */
+  public static final String GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_NUM_WORKER_SLOTS = GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_PREFIX + "num.worker.slots";
+  public static final String GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_MAX_ITEMS_PER_ACTIVITY = GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_PREFIX + "max.items.per.activity";
+  public static final int DEFAULT_GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_MAX_ITEMS_PER_ACTIVITY = 20;
 
   public GenArbitraryLoadJobLauncher(
       Properties jobProps,
@@ -75,16 +81,25 @@ public class GenArbitraryLoadJobLauncher extends GobblinTemporalJobLauncher {
   @Override
   public void submitJob(List<WorkUnit> workunits) {
     int numActivities = PropertiesUtils.getRequiredPropAsInt(this.jobProps, GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_NUM_ACTIVITIES);
-    int maxBranchesPerTree = PropertiesUtils.getRequiredPropAsInt(this.jobProps, GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_MAX_BRANCHES_PER_TREE);
-    int maxSubTreesPerTree = PropertiesUtils.getRequiredPropAsInt(this.jobProps, GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_MAX_SUB_TREES_PER_TREE);
+    AdaptiveFanOut fanOut = this.jobProps.containsKey(GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_NUM_WORKER_SLOTS)
+        ? AdaptiveFanOut.forWorkload(numActivities,
+            PropertiesUtils.getRequiredPropAsInt(this.jobProps, GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_NUM_WORKER_SLOTS),
+            PropertiesUtils.getPropAsInt(this.jobProps, GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_MAX_ITEMS_PER_ACTIVITY,
+                DEFAULT_GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_MAX_ITEMS_PER_ACTIVITY))
+        : new AdaptiveFanOut(
+            PropertiesUtils.getRequiredPropAsInt(this.jobProps, GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_MAX_BRANCHES_PER_TREE),
+            PropertiesUtils.getRequiredPropAsInt(this.jobProps, GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_MAX_SUB_TREES_PER_TREE),
+            PropertiesUtils.getPropAsInt(this.jobProps, GOBBLIN_TEMPORAL_JOB_LAUNCHER_ARG_ITEMS_PER_ACTIVITY, 1));
+    log.info("generating {} items, per: {}", numActivities, fanOut);
 
-    Workload<IllustrationItem> workload = SimpleGeneratedWorkload.createAs(numActivities);
+    Workload<IllustrationItem> workload = fanOut.applyTo(SimpleGeneratedWorkload.createAs(numActivities));
     WorkflowOptions options = WorkflowOptions.newBuilder().setTaskQueue(this.queueName).build();
 
     // WARNING: although type param must agree w/ that of `workload`, it's entirely unverified by type checker!
     // ...and more to the point, mismatch would occur at runtime (`performWorkload` on the workflow type given to the stub)!
     NestingExecWorkflow<IllustrationItem> workflow = this.client.newWorkflowStub(NestingExecWorkflow.class, options);
 
-    workflow.performWorkload(WorkflowAddr.ROOT, workload, 0, maxBranchesPerTree, maxSubTreesPerTree, Optional.empty());
+    workflow.performWorkload(WorkflowAddr.ROOT, workload, 0, fanOut.getMaxBranchesPerTree(), fanOut.getMaxSubTreesPerTree(),
+        Optional.empty());
   }
 }
@@ -23,6 +23,7 @@ import io.temporal.workflow.Async;
 import io.temporal.workflow.Promise;
 import io.temporal.workflow.Workflow;
 import java.time.Duration;
+import java.util.List;
 import org.apache.gobblin.temporal.loadgen.activity.IllustrationItemActivity;
 import org.apache.gobblin.temporal.loadgen.work.IllustrationItem;
 import org.apache.gobblin.temporal.util.nesting.workflow.AbstractNestingExecWorkflowImpl;
@@ -52,4 +53,9 @@ public class NestingExecOfIllustrationItemActivityWorkflowImpl
   protected Promise<String> launchAsyncActivity(final IllustrationItem item) {
     return Async.function(activityStub::handleItem, item);
   }
+
+  @Override
+  protected Promise<String> launchAsyncActivityBatch(final List<IllustrationItem> items) {
+    return Async.function(activityStub::handleItems, items);
+  }
 }
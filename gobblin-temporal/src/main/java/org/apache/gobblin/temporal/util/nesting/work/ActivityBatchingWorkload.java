@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.temporal.util.nesting.work;
+
+import java.util.Optional;
+
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+
+/**
+ * Decorates a {@link Workload} so that a nesting workflow hands each activity a batch of up to `batchSize`
+ * contiguous work items, rather than a single one.  Work items and their indices are those of the underlying
+ * `workload`, so batching changes neither the work, nor its (deterministic) ordering.
+ */
+@NoArgsConstructor // IMPORTANT: for jackson (de)serialization
+@RequiredArgsConstructor
+public class ActivityBatchingWorkload<WORK_ITEM> implements Workload<WORK_ITEM> {
+  @NonNull private Workload<WORK_ITEM> workload;
+  // CAUTION: despite the "warning: @NonNull is meaningless on a primitive @lombok.RequiredArgsConstructor"...
+  // if removed, no two-arg ctor is generated
+  // NOTE: named unlike `getWorkItemsPerActivity`, which jackson ignores, so as not to also ignore this field
+  @NonNull private int batchSize;
+
+  /** @return `workload` itself, when `workItemsPerActivity` would not batch; otherwise the batching decoration of it */
+  public static <T> Workload<T> of(Workload<T> workload, int workItemsPerActivity) {
+    return workItemsPerActivity > 1 ? new ActivityBatchingWorkload<>(workload, workItemsPerActivity) : workload;
+  }
+
+  @Override
+  public Optional<WorkSpan<WORK_ITEM>> getSpan(int startIndex, int numElements) {
+    return workload.getSpan(startIndex, numElements);
+  }
+
+  @Override
+  public boolean isIndexKnownToExceed(int index) {
+    return workload.isIndexKnownToExceed(index);
+  }
+
+  @Override
+  @JsonIgnore // (because no-arg method resembles 'java bean property')
+  public boolean isDefiniteSize() {
+    return workload.isDefiniteSize();
+  }
+
+  @Override
+  @JsonIgnore // (because no-arg method resembles 'java bean property')
+  public int getWorkItemsPerActivity() {
+    return Math.max(1, batchSize);
+  }
+
+  @Override
+  public String toString() {
+    return workload + " (in batches of " + batchSize + ")";
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.temporal.util.nesting.work;
+
+import lombok.Data;
+
+
+/**
+ * Shape of the tree of nesting workflows, sized adaptively to the workload, rather than fixed in advance.
+ *
+ * Work items are batched so that every worker slot (i.e. each activity a worker may concurrently execute) may expect
+ * about {@link #TARGET_ACTIVITIES_PER_WORKER_SLOT} activities, which amortizes per-activity overhead over many work
+ * items when the workload is large, while still leaving enough activities to spread evenly over all slots.  When every
+ * activity fits beneath a single workflow, there are no sub-trees; otherwise the tree is the widest permissible.
+ */
+@Data
+public class AdaptiveFanOut {
+  public static final int TARGET_ACTIVITIES_PER_WORKER_SLOT = 4;
+  public static final int MAX_BRANCHES_PER_TREE = 900;
+  public static final int MAX_SUB_TREES_PER_TREE = 30;
+
+  private final int maxBranchesPerTree;
+  private final int maxSubTreesPerTree;
+  private final int workItemsPerActivity;
+
+  /**
+   * @param numWorkItems size of the workload
+   * @param numWorkerSlots how many activities all workers together may execute concurrently
+   * @param maxWorkItemsPerActivity upper bound on batching
+   */
+  public static AdaptiveFanOut forWorkload(int numWorkItems, int numWorkerSlots, int maxWorkItemsPerActivity) {
+    int targetNumActivities = Math.max(1, numWorkerSlots) * TARGET_ACTIVITIES_PER_WORKER_SLOT;
+    int workItemsPerActivity = Math.max(1, Math.min(maxWorkItemsPerActivity, ceilDiv(numWorkItems, targetNumActivities)));
+    int numActivities = ceilDiv(numWorkItems, workItemsPerActivity);
+    return numActivities <= MAX_BRANCHES_PER_TREE
+        ? new AdaptiveFanOut(Math.max(1, numActivities), 0, workItemsPerActivity)
+        : new AdaptiveFanOut(MAX_BRANCHES_PER_TREE, MAX_SUB_TREES_PER_TREE, workItemsPerActivity);
+  }
+
+  /** @return `workload`, decorated to process {@link #getWorkItemsPerActivity()} work items per activity */
+  public <T> Workload<T> applyTo(Workload<T> workload) {
+    return ActivityBatchingWorkload.of(workload, workItemsPerActivity);
+  }
+
+  private static int ceilDiv(int numerator, int denominator) {
+    return (Math.max(0, numerator) + denominator - 1) / denominator;
+  }
+}
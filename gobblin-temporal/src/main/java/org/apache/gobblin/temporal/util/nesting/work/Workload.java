@@ -17,6 +17,7 @@
 
 package org.apache.gobblin.temporal.util.nesting.work;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import java.util.Iterator;
 import java.util.Optional;
@@ -50,6 +51,15 @@ public interface Workload<WORK_ITEM> {
     return false;
   }
 
+  /**
+   * @return how many contiguous work items a single activity should process; when greater than one, a nesting workflow
+   * hands each activity a batch of work items, so every tree leaf stands for that many work items
+   */
+  @JsonIgnore // (because no-arg method resembles 'java bean property')
+  default int getWorkItemsPerActivity() {
+    return 1;
+  }
+
   /** Logical sub-sequence 'slice' of contiguous work items */
   public interface WorkSpan<T> extends Iterator<T> {
     int getNumElems();
@@ -25,7 +25,8 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
-import org.apache.commons.compress.utils.Lists;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 
 import io.temporal.api.enums.v1.ParentClosePolicy;
 import io.temporal.workflow.Async;
@@ -55,7 +56,9 @@ public abstract class AbstractNestingExecWorkflowImpl<WORK_ITEM, ACTIVITY_RESULT
   ) {
     final int maxSubTreesForCurrent = maxSubTreesForCurrentTreeOverride.orElse(maxSubTreesPerTree);
     final int maxLeaves = maxBranchesPerTree - maxSubTreesForCurrent;
-    final Optional<Workload.WorkSpan<WORK_ITEM>> optSpan = workload.getSpan(startIndex, maxLeaves);
+    // each leaf (activity) processes `itemsPerLeaf` work items, so indices below advance in multiples of it
+    final int itemsPerLeaf = Math.max(1, workload.getWorkItemsPerActivity());
+    final Optional<Workload.WorkSpan<WORK_ITEM>> optSpan = workload.getSpan(startIndex, maxLeaves * itemsPerLeaf);
     log.info("[" + addr + "] " + workload + " w/ start '" + startIndex + "'"
         + "; tree (" + maxBranchesPerTree + "/" + maxSubTreesPerTree + "): " + optSpan);
     if (!optSpan.isPresent()) {
@@ -63,16 +66,20 @@ public abstract class AbstractNestingExecWorkflowImpl<WORK_ITEM, ACTIVITY_RESULT
     } else {
       final Workload.WorkSpan<WORK_ITEM> workSpan = optSpan.get();
       final Iterable<WORK_ITEM> iterable = () -> workSpan;
-      final List<Promise<ACTIVITY_RESULT>> childActivities = StreamSupport.stream(iterable.spliterator(), false)
-          .map(t -> launchAsyncActivity(t))
-          .collect(Collectors.toList());
+      final List<Promise<?>> childActivities = itemsPerLeaf == 1
+          ? StreamSupport.stream(iterable.spliterator(), false)
+              .<Promise<?>>map(t -> launchAsyncActivity(t))
+              .collect(Collectors.toList())
+          : Lists.partition(ImmutableList.copyOf(iterable), itemsPerLeaf).stream()
+              .map(batch -> launchAsyncActivityBatch(batch))
+              .collect(Collectors.toList());
       final List<Promise<Integer>> childSubTrees = new ArrayList<>();
-      if (workSpan.getNumElems() == maxLeaves) { // received as many as requested (did not stop short)
+      if (workSpan.getNumElems() == maxLeaves * itemsPerLeaf) { // received as many as requested (did not stop short)
         int subTreeId = 0;
         for (int subTreeChildMaxSubTreesPerTree
             : consolidateSubTreeGrandChildren(maxSubTreesForCurrent, maxBranchesPerTree, maxSubTreesPerTree)) {
           // CAUTION: calc these *before* incrementing `subTreeId`!
-          final int childStartIndex = startIndex + maxLeaves + (maxBranchesPerTree * subTreeId);
+          final int childStartIndex = startIndex + (maxLeaves + (maxBranchesPerTree * subTreeId)) * itemsPerLeaf;
           final int nextChildId = maxLeaves + subTreeId;
           final WorkflowAddr childAddr = addr.createChild(nextChildId);
           final NestingExecWorkflow<WORK_ITEM> child = createChildWorkflow(childAddr);
@@ -104,6 +111,16 @@ public abstract class AbstractNestingExecWorkflowImpl<WORK_ITEM, ACTIVITY_RESULT
   /** Factory for invoking the specific activity by providing it args via {@link Async::function} */
   protected abstract Promise<ACTIVITY_RESULT> launchAsyncActivity(WORK_ITEM task);
 
+  /**
+   * Factory for invoking an activity to process every one of `tasks`, for a {@link Workload} that batches more than one
+   * work item per activity (see {@link Workload#getWorkItemsPerActivity()}).  By default, launches one activity per
+   * task via {@link #launchAsyncActivity} and completes once all of those do; realizing classes should override to
+   * process the batch within a single activity.
+   */
+  protected Promise<?> launchAsyncActivityBatch(List<WORK_ITEM> tasks) {
+    return Promise.allOf(tasks.stream().map(this::launchAsyncActivity).collect(Collectors.toList()));
+  }
+
   protected NestingExecWorkflow<WORK_ITEM> createChildWorkflow(final WorkflowAddr childAddr) {
     // preserve the current workflow ID of this parent, but add the (hierarchical) address extension specific to each child
     String thisWorkflowId = Workflow.getInfo().getWorkflowId();
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.temporal.util.nesting.work;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.apache.gobblin.temporal.loadgen.work.IllustrationItem;
+import org.apache.gobblin.temporal.loadgen.work.SimpleGeneratedWorkload;
+
+
+public class AdaptiveFanOutTest {
+
+  @Test
+  public void testSmallWorkloadFitsInSingleTree() {
+    Assert.assertEquals(AdaptiveFanOut.forWorkload(10, 50, 20), new AdaptiveFanOut(10, 0, 1));
+    Assert.assertEquals(AdaptiveFanOut.forWorkload(0, 5, 20), new AdaptiveFanOut(1, 0, 1));
+  }
+
+  @Test
+  public void testWorkItemsAreBatchedPerWorkerSlot() {
+    // 50 slots * 4 activities each => 200 activities of 5 work items
+    Assert.assertEquals(AdaptiveFanOut.forWorkload(1000, 50, 20), new AdaptiveFanOut(200, 0, 5));
+    // fewer slots would mean 25 work items per activity, but batches are capped at 20
+    Assert.assertEquals(AdaptiveFanOut.forWorkload(1000, 10, 20), new AdaptiveFanOut(50, 0, 20));
+  }
+
+  @Test
+  public void testLargeWorkloadUsesSubTrees() {
+    Assert.assertEquals(AdaptiveFanOut.forWorkload(200000, 50, 20),
+        new AdaptiveFanOut(AdaptiveFanOut.MAX_BRANCHES_PER_TREE, AdaptiveFanOut.MAX_SUB_TREES_PER_TREE, 20));
+  }
+
+  @Test
+  public void testBatchingWorkloadDelegates() {
+    Workload<IllustrationItem> workload = SimpleGeneratedWorkload.createAs(12);
+    Assert.assertSame(ActivityBatchingWorkload.of(workload, 1), workload);
+
+    Workload<IllustrationItem> batching = new AdaptiveFanOut(3, 0, 5).applyTo(workload);
+    Assert.assertEquals(batching.getWorkItemsPerActivity(), 5);
+    Assert.assertEquals(batching.getSpan(10, 15).get().getNumElems(), 2);
+    Assert.assertTrue(batching.isIndexKnownToExceed(12));
+    Assert.assertTrue(batching.isDefiniteSize());
+  }
+}
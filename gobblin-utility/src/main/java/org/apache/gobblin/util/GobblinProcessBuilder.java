@@ -30,4 +30,15 @@ public class GobblinProcessBuilder {
     final Process process = processBuilder.start();
     return process;
   }
+
+  /**
+   * Start a process which writes to the standard output and error of the caller.
+   */
+  public Process startWithInheritedOutput(final List<String> command)
+      throws IOException {
+    final ProcessBuilder processBuilder = new ProcessBuilder(command);
+    processBuilder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+    processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+    return processBuilder.start();
+  }
 }
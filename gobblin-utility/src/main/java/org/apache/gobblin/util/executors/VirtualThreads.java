@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.util.executors;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+
+import org.apache.gobblin.util.LoggingUncaughtExceptionHandler;
+
+
+/**
+ * Access to virtual threads on JDKs that support them (JDK 21 and later).
+ *
+ * <p>
+ *   Gobblin is built for Java 8, so virtual threads are reached through reflection. Every method degrades gracefully
+ *   on older JDKs: {@link #newVirtualThreadFactory(Optional, String)} returns an absent factory, and callers are
+ *   expected to fall back to platform threads.
+ * </p>
+ *
+ * <p>
+ *   A virtual thread that blocks while holding a monitor (e.g. blocking I/O inside a {@code synchronized} block) pins
+ *   its carrier thread, which defeats the purpose of virtual threads. {@link #reportPinnedThreads(Duration, Consumer)}
+ *   reports such pinning through JFR events.
+ * </p>
+ *
+ * <p>
+ *   The carrier threads of all virtual threads form a single scheduler per JVM, created along with the first virtual
+ *   thread. It is sized with the {@code jdk.virtualThreadScheduler.parallelism} and
+ *   {@code jdk.virtualThreadScheduler.maxPoolSize} system properties, which should be given as JVM launch options.
+ * </p>
+ */
+public final class VirtualThreads {
+
+  private static final Logger LOG = LoggerFactory.getLogger(VirtualThreads.class);
+
+  private static final String PINNED_EVENT_NAME = "jdk.VirtualThreadPinned";
+
+  private static final Optional<Method> OF_VIRTUAL = findOfVirtual();
+
+  private VirtualThreads() {
+  }
+
+  private static Optional<Method> findOfVirtual() {
+    try {
+      return Optional.of(Thread.class.getMethod("ofVirtual"));
+    } catch (NoSuchMethodException e) {
+      return Optional.absent();
+    }
+  }
+
+  /**
+   * @return whether the running JDK supports virtual threads
+   */
+  public static boolean isSupported() {
+    return OF_VIRTUAL.isPresent();
+  }
+
+  /**
+   * Get a new {@link ThreadFactory} creating virtual threads named {@code namePrefix} followed by a counter, and using
+   * a {@link LoggingUncaughtExceptionHandler} to handle uncaught exceptions.
+   *
+   * @return the {@link ThreadFactory}, absent if the running JDK does not support virtual threads
+   */
+  public static Optional<ThreadFactory> newVirtualThreadFactory(Optional<Logger> logger, String namePrefix) {
+    if (!isSupported()) {
+      return Optional.absent();
+    }
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = OF_VIRTUAL.get().invoke(null);
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+      builder = builderClass.getMethod("uncaughtExceptionHandler", Thread.UncaughtExceptionHandler.class)
+          .invoke(builder, new LoggingUncaughtExceptionHandler(logger));
+      return Optional.of((ThreadFactory) builderClass.getMethod("factory").invoke(builder));
+    } catch (ReflectiveOperationException e) {
+      LOG.warn("Failed to create a virtual thread factory", e);
+      return Optional.absent();
+    }
+  }
+
+  /**
+   * Report virtual threads pinned to their carrier for longer than {@code threshold} through a JFR event stream.
+   *
+   * @param reporter called with a description of each pinning, including the stack trace of the pinned thread
+   * @return a handle to stop the reporting, absent if the running JDK does not support it
+   */
+  public static Optional<AutoCloseable> reportPinnedThreads(Duration threshold, Consumer<String> reporter) {
+    if (!isSupported()) {
+      return Optional.absent();
+    }
+    try {
+      Class<?> streamClass = Class.forName("jdk.jfr.consumer.RecordingStream");
+      Object stream = streamClass.getConstructor().newInstance();
+      Object eventSettings = streamClass.getMethod("enable", String.class).invoke(stream, PINNED_EVENT_NAME);
+      Class.forName("jdk.jfr.EventSettings").getMethod("withThreshold", Duration.class).invoke(eventSettings, threshold);
+      Consumer<Object> onEvent = event -> reporter.accept(event.toString());
+      streamClass.getMethod("onEvent", String.class, Consumer.class).invoke(stream, PINNED_EVENT_NAME, onEvent);
+      streamClass.getMethod("startAsync").invoke(stream);
+      return Optional.of((AutoCloseable) stream);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // JFR may be unavailable, e.g. on some JDK builds
+      LOG.warn("Failed to start reporting pinned virtual threads", e);
+      return Optional.absent();
+    }
+  }
+}
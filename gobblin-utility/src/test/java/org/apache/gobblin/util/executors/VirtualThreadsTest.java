@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.util.executors;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.MDC;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+
+
+public class VirtualThreadsTest {
+
+  @Test
+  public void testFactoryIsOnlyAvailableWhenSupported() {
+    Optional<ThreadFactory> factory = VirtualThreads.newVirtualThreadFactory(Optional.absent(), "test-");
+    Assert.assertEquals(factory.isPresent(), VirtualThreads.isSupported());
+  }
+
+  @Test
+  public void testMdcIsPropagatedToVirtualThreads() throws Exception {
+    Optional<ThreadFactory> factory = VirtualThreads.newVirtualThreadFactory(Optional.absent(), "test-");
+    if (!factory.isPresent()) {
+      throw new SkipException("Virtual threads are not supported by this JVM");
+    }
+
+    ExecutorService executor = new MDCPropagatingExecutorService(Executors.newFixedThreadPool(2, factory.get()));
+    MDC.put("jobId", "job_1");
+    try {
+      Assert.assertEquals(executor.submit(() -> MDC.get("jobId")).get(), "job_1");
+      Assert.assertTrue(executor.submit(() -> Thread.currentThread().getName()).get().startsWith("test-"));
+    } finally {
+      MDC.remove("jobId");
+      executor.shutdown();
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+  }
+}
@@ -0,0 +1,439 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.yarn;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.yarn.api.records.Resource;
+
+import com.codahale.metrics.Counter;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.typesafe.config.Config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.gobblin.metrics.MetricContext;
+import org.apache.gobblin.util.ConfigUtils;
+
+
+/**
+ * A container sizing policy for {@link YarnAutoScalingManager} that forecasts demand instead of reacting to the
+ * number of Helix partitions alone.
+ *
+ * <ul>
+ *   <li>The containers needed by a job are derived from its pending and running tasks and the observed task
+ *   duration of the job (the current run once it has enough completed tasks, previous runs otherwise): the remaining
+ *   work should drain within the longer of one task duration and the container startup time, since containers
+ *   requested now cannot help earlier. Without any duration history, one slot per outstanding task is requested.</li>
+ *   <li>Optionally, the demand of every Helix tag is recorded in a periodic profile (hourly by default) and
+ *   containers are pre-warmed for the peak demand expected within the container startup time.</li>
+ *   <li>Scaling up is immediate. Scaling down is skipped while the demand stays within a hysteresis band of the
+ *   current target or within a cool-down after the last change, and then proceeds by a bounded step.</li>
+ * </ul>
+ *
+ * The policy is not thread-safe; it is driven by the single auto scaling thread and takes the current time as an
+ * argument so that it can be exercised against a simulated cluster.
+ */
+@Slf4j
+public class PredictiveAutoScalingPolicy {
+  public static final String PREDICTIVE_AUTO_SCALING_PREFIX =
+      GobblinYarnConfigurationKeys.GOBBLIN_YARN_PREFIX + "autoScaling.predictive.";
+  public static final String PREDICTIVE_AUTO_SCALING_ENABLED = PREDICTIVE_AUTO_SCALING_PREFIX + "enabled";
+  public static final boolean DEFAULT_PREDICTIVE_AUTO_SCALING_ENABLED = false;
+  public static final String CONTAINER_STARTUP_SECONDS = PREDICTIVE_AUTO_SCALING_PREFIX + "containerStartupSeconds";
+  public static final int DEFAULT_CONTAINER_STARTUP_SECONDS = 300;
+  // Weight of the latest run when smoothing the task duration of a job across runs
+  public static final String TASK_DURATION_SMOOTHING_FACTOR =
+      PREDICTIVE_AUTO_SCALING_PREFIX + "taskDurationSmoothingFactor";
+  public static final double DEFAULT_TASK_DURATION_SMOOTHING_FACTOR = 0.5;
+  // Completed tasks needed before the current run's task duration is preferred over the history
+  public static final String MIN_TASK_DURATION_SAMPLES = PREDICTIVE_AUTO_SCALING_PREFIX + "minTaskDurationSamples";
+  public static final int DEFAULT_MIN_TASK_DURATION_SAMPLES = 3;
+  public static final String PREWARM_ENABLED = PREDICTIVE_AUTO_SCALING_PREFIX + "prewarm.enabled";
+  public static final boolean DEFAULT_PREWARM_ENABLED = false;
+  public static final String PREWARM_PERIOD_MINUTES = PREDICTIVE_AUTO_SCALING_PREFIX + "prewarm.periodMinutes";
+  public static final int DEFAULT_PREWARM_PERIOD_MINUTES = 60;
+  public static final String PREWARM_SLOT_SECONDS = PREDICTIVE_AUTO_SCALING_PREFIX + "prewarm.slotSeconds";
+  public static final int DEFAULT_PREWARM_SLOT_SECONDS = 60;
+  // Weight of the latest period when smoothing the demand profile
+  public static final String PREWARM_SMOOTHING_FACTOR = PREDICTIVE_AUTO_SCALING_PREFIX + "prewarm.smoothingFactor";
+  public static final double DEFAULT_PREWARM_SMOOTHING_FACTOR = 0.5;
+  // Scale down only when the demand drops below (1 - ratio) times the current target
+  public static final String SCALE_DOWN_HYSTERESIS_RATIO = PREDICTIVE_AUTO_SCALING_PREFIX + "scaleDown.hysteresisRatio";
+  public static final double DEFAULT_SCALE_DOWN_HYSTERESIS_RATIO = 0.2;
+  // Fraction of the current target that can be removed in a single scale down (at least one container)
+  public static final String SCALE_DOWN_MAX_STEP_RATIO = PREDICTIVE_AUTO_SCALING_PREFIX + "scaleDown.maxStepRatio";
+  public static final double DEFAULT_SCALE_DOWN_MAX_STEP_RATIO = 0.25;
+  public static final String SCALE_DOWN_COOLDOWN_SECONDS = PREDICTIVE_AUTO_SCALING_PREFIX + "scaleDown.cooldownSeconds";
+  public static final int DEFAULT_SCALE_DOWN_COOLDOWN_SECONDS = 300;
+
+  public static final String TARGET_CONTAINERS = "autoScaling.predictive.targetContainers";
+  public static final String FORECAST_CONTAINERS = "autoScaling.predictive.forecastContainers";
+  public static final String LAST_FORECAST_ERROR = "autoScaling.predictive.lastForecastError";
+  public static final String MEAN_ABSOLUTE_FORECAST_ERROR = "autoScaling.predictive.meanAbsoluteForecastError";
+  public static final String SCALE_UP_DECISIONS = "autoScaling.predictive.scaleUpDecisions";
+  public static final String SCALE_DOWN_DECISIONS = "autoScaling.predictive.scaleDownDecisions";
+  public static final String HELD_SCALE_DOWN_DECISIONS = "autoScaling.predictive.heldScaleDownDecisions";
+  public static final String PREWARM_DECISIONS = "autoScaling.predictive.prewarmDecisions";
+
+  private final int partitionsPerContainer;
+  private final double overProvisionFactor;
+  private final long containerStartupMillis;
+  private final double taskDurationSmoothingFactor;
+  private final int minTaskDurationSamples;
+  private final boolean prewarmEnabled;
+  private final long prewarmPeriodMillis;
+  private final long prewarmSlotMillis;
+  private final double prewarmSmoothingFactor;
+  private final double scaleDownHysteresisRatio;
+  private final double scaleDownMaxStepRatio;
+  private final long scaleDownCooldownMillis;
+
+  private final Map<String, TaskDurationHistory> taskDurationHistories = new HashMap<>();
+  private final Map<String, DemandProfile> demandProfiles = new HashMap<>();
+  private final Map<String, ScalingState> scalingStates = new HashMap<>();
+  private final Map<String, Resource> helixTagResources = new HashMap<>();
+  private final Map<String, Deque<PendingForecast>> pendingForecasts = new HashMap<>();
+
+  @Getter
+  private volatile int totalTargetContainers = 0;
+  @Getter
+  private volatile int totalForecastContainers = 0;
+  @Getter
+  private volatile double lastForecastError = 0;
+  private double totalAbsoluteForecastError = 0;
+  private long numForecastsEvaluated = 0;
+
+  private final Optional<Counter> scaleUpDecisions;
+  private final Optional<Counter> scaleDownDecisions;
+  private final Optional<Counter> heldScaleDownDecisions;
+  private final Optional<Counter> prewarmDecisions;
+
+  public PredictiveAutoScalingPolicy(Config config, int partitionsPerContainer, double overProvisionFactor,
+      Optional<MetricContext> metricContext) {
+    this.partitionsPerContainer = partitionsPerContainer;
+    this.overProvisionFactor = overProvisionFactor;
+    this.containerStartupMillis = TimeUnit.SECONDS.toMillis(
+        ConfigUtils.getInt(config, CONTAINER_STARTUP_SECONDS, DEFAULT_CONTAINER_STARTUP_SECONDS));
+    this.taskDurationSmoothingFactor = ConfigUtils.getDouble(config, TASK_DURATION_SMOOTHING_FACTOR,
+        DEFAULT_TASK_DURATION_SMOOTHING_FACTOR);
+    this.minTaskDurationSamples = ConfigUtils.getInt(config, MIN_TASK_DURATION_SAMPLES,
+        DEFAULT_MIN_TASK_DURATION_SAMPLES);
+    this.prewarmEnabled = ConfigUtils.getBoolean(config, PREWARM_ENABLED, DEFAULT_PREWARM_ENABLED);
+    this.prewarmPeriodMillis = TimeUnit.MINUTES.toMillis(
+        ConfigUtils.getInt(config, PREWARM_PERIOD_MINUTES, DEFAULT_PREWARM_PERIOD_MINUTES));
+    this.prewarmSlotMillis = TimeUnit.SECONDS.toMillis(
+        ConfigUtils.getInt(config, PREWARM_SLOT_SECONDS, DEFAULT_PREWARM_SLOT_SECONDS));
+    this.prewarmSmoothingFactor = ConfigUtils.getDouble(config, PREWARM_SMOOTHING_FACTOR,
+        DEFAULT_PREWARM_SMOOTHING_FACTOR);
+    this.scaleDownHysteresisRatio = ConfigUtils.getDouble(config, SCALE_DOWN_HYSTERESIS_RATIO,
+        DEFAULT_SCALE_DOWN_HYSTERESIS_RATIO);
+    this.scaleDownMaxStepRatio = ConfigUtils.getDouble(config, SCALE_DOWN_MAX_STEP_RATIO,
+        DEFAULT_SCALE_DOWN_MAX_STEP_RATIO);
+    this.scaleDownCooldownMillis = TimeUnit.SECONDS.toMillis(
+        ConfigUtils.getInt(config, SCALE_DOWN_COOLDOWN_SECONDS, DEFAULT_SCALE_DOWN_COOLDOWN_SECONDS));
+
+    Preconditions.checkArgument(this.prewarmSlotMillis > 0 && this.prewarmPeriodMillis >= this.prewarmSlotMillis,
+        PREWARM_PERIOD_MINUTES + " must be at least " + PREWARM_SLOT_SECONDS);
+    Preconditions.checkArgument(this.taskDurationSmoothingFactor > 0 && this.taskDurationSmoothingFactor <= 1,
+        TASK_DURATION_SMOOTHING_FACTOR + " must be in (0, 1]");
+    Preconditions.checkArgument(this.prewarmSmoothingFactor > 0 && this.prewarmSmoothingFactor <= 1,
+        PREWARM_SMOOTHING_FACTOR + " must be in (0, 1]");
+
+    if (metricContext.isPresent()) {
+      MetricContext context = metricContext.get();
+      context.register(TARGET_CONTAINERS,
+          context.newContextAwareGauge(TARGET_CONTAINERS, () -> this.totalTargetContainers));
+      context.register(FORECAST_CONTAINERS,
+          context.newContextAwareGauge(FORECAST_CONTAINERS, () -> this.totalForecastContainers));
+      context.register(LAST_FORECAST_ERROR,
+          context.newContextAwareGauge(LAST_FORECAST_ERROR, () -> this.lastForecastError));
+      context.register(MEAN_ABSOLUTE_FORECAST_ERROR,
+          context.newContextAwareGauge(MEAN_ABSOLUTE_FORECAST_ERROR, this::getMeanAbsoluteForecastError));
+      this.scaleUpDecisions = Optional.of(context.contextAwareCounter(SCALE_UP_DECISIONS));
+      this.scaleDownDecisions = Optional.of(context.contextAwareCounter(SCALE_DOWN_DECISIONS));
+      this.heldScaleDownDecisions = Optional.of(context.contextAwareCounter(HELD_SCALE_DOWN_DECISIONS));
+      this.prewarmDecisions = Optional.of(context.contextAwareCounter(PREWARM_DECISIONS));
+    } else {
+      this.scaleUpDecisions = Optional.absent();
+      this.scaleDownDecisions = Optional.absent();
+      this.heldScaleDownDecisions = Optional.absent();
+      this.prewarmDecisions = Optional.absent();
+    }
+  }
+
+  /**
+   * Forecast the number of containers needed by one Helix job.
+   *
+   * @param jobKey key under which task durations are remembered across runs, typically the Gobblin job name
+   * @param helixJobName name of the Helix job of the current run
+   * @param pendingTasks number of tasks that are not yet running
+   * @param runningTasks number of running tasks
+   * @param completedTaskDurationsMillis durations of the tasks of the current run that have completed
+   */
+  public int forecastJobContainers(String jobKey, String helixJobName, int pendingTasks, int runningTasks,
+      Collection<Long> completedTaskDurationsMillis) {
+    int outstandingTasks = pendingTasks + runningTasks;
+    int maxContainers = (int) Math.ceil(((double) outstandingTasks / this.partitionsPerContainer)
+        * this.overProvisionFactor);
+    double taskDurationMillis = estimateTaskDurationMillis(jobKey, helixJobName, completedTaskDurationsMillis);
+    if (outstandingTasks == 0 || taskDurationMillis <= 0) {
+      return maxContainers;
+    }
+
+    // Running tasks are expected to be half done
+    double remainingWorkMillis = (pendingTasks + 0.5 * runningTasks) * taskDurationMillis;
+    double drainMillis = Math.max(taskDurationMillis, this.containerStartupMillis);
+    int containers = (int) Math.ceil(remainingWorkMillis / (drainMillis * this.partitionsPerContainer)
+        * this.overProvisionFactor);
+    // Never ask for fewer containers than those busy with running tasks
+    int busyContainers = (int) Math.ceil((double) runningTasks / this.partitionsPerContainer);
+    containers = Math.min(Math.max(containers, busyContainers), maxContainers);
+    log.debug("jobKey={}, pendingTasks={}, runningTasks={}, taskDurationMillis={}, forecastContainers={}",
+        jobKey, pendingTasks, runningTasks, taskDurationMillis, containers);
+    return containers;
+  }
+
+  /**
+   * @return the task duration to forecast with, or -1 if the job has no history.
+   */
+  private double estimateTaskDurationMillis(String jobKey, String helixJobName,
+      Collection<Long> completedTaskDurationsMillis) {
+    TaskDurationHistory history = this.taskDurationHistories.computeIfAbsent(jobKey, k -> new TaskDurationHistory());
+    if (!helixJobName.equals(history.currentHelixJobName)) {
+      // A new run started: fold the previous run into the history
+      if (history.currentRunSamples > 0) {
+        history.smoothedMillis = history.smoothedMillis < 0 ? history.currentRunMeanMillis
+            : this.taskDurationSmoothingFactor * history.currentRunMeanMillis
+                + (1 - this.taskDurationSmoothingFactor) * history.smoothedMillis;
+      }
+      history.currentHelixJobName = helixJobName;
+      history.currentRunSamples = 0;
+      history.currentRunMeanMillis = 0;
+    }
+    if (!completedTaskDurationsMillis.isEmpty()) {
+      long sum = 0;
+      for (long duration : completedTaskDurationsMillis) {
+        sum += duration;
+      }
+      history.currentRunMeanMillis = (double) sum / completedTaskDurationsMillis.size();
+      history.currentRunSamples = completedTaskDurationsMillis.size();
+    }
+
+    if (history.currentRunSamples >= this.minTaskDurationSamples || history.smoothedMillis < 0) {
+      return history.currentRunSamples > 0 ? history.currentRunMeanMillis : -1;
+    }
+    return history.smoothedMillis;
+  }
+
+  /**
+   * Turn the forecast demand of every Helix tag into the container counts to request, pre-warming for the demand
+   * expected within the container startup time and damping scale downs.
+   *
+   * @param demand the containers forecast for the current workload, by Helix tag
+   * @param nowMillis the current time
+   */
+  public YarnContainerRequestBundle computeTargetContainers(YarnContainerRequestBundle demand, long nowMillis) {
+    this.helixTagResources.putAll(demand.getHelixTagResourceMap());
+    Set<String> helixTags = new HashSet<>(demand.getHelixTagContainerCountMap().keySet());
+    helixTags.addAll(this.scalingStates.keySet());
+    if (this.prewarmEnabled) {
+      helixTags.addAll(this.demandProfiles.keySet());
+    }
+
+    YarnContainerRequestBundle target = new YarnContainerRequestBundle();
+    int forecastTotal = 0;
+    double forecastError = 0;
+    boolean forecastsEvaluated = false;
+    for (String helixTag : helixTags) {
+      Resource resource = this.helixTagResources.get(helixTag);
+      if (resource == null) {
+        continue;
+      }
+      int currentDemand = demand.getHelixTagContainerCountMap().getOrDefault(helixTag, 0);
+
+      // Compare the forecasts that came due with the demand actually observed
+      Deque<PendingForecast> forecasts = this.pendingForecasts.computeIfAbsent(helixTag, k -> new ArrayDeque<>());
+      while (!forecasts.isEmpty() && forecasts.peek().getDueMillis() <= nowMillis) {
+        double error = Math.abs(forecasts.poll().getContainers() - currentDemand);
+        forecastError += error;
+        this.totalAbsoluteForecastError += error;
+        this.numForecastsEvaluated++;
+        forecastsEvaluated = true;
+      }
+
+      int desired = currentDemand;
+      double futureDemand = currentDemand;
+      if (this.prewarmEnabled) {
+        DemandProfile profile = this.demandProfiles.computeIfAbsent(helixTag, k -> new DemandProfile());
+        profile.record(nowMillis, currentDemand);
+        int expectedPeak = (int) Math.ceil(profile.peak(nowMillis, nowMillis + this.containerStartupMillis));
+        if (expectedPeak > desired) {
+          log.info("Pre-warming helix tag {} to {} containers for the demand expected within {} seconds "
+              + "(current demand {})", helixTag, expectedPeak, TimeUnit.MILLISECONDS.toSeconds(this.containerStartupMillis),
+              currentDemand);
+          incrementIfPresent(this.prewarmDecisions);
+          desired = expectedPeak;
+        }
+        futureDemand = profile.expected(nowMillis + this.containerStartupMillis, currentDemand);
+      }
+      forecasts.add(new PendingForecast(nowMillis + this.containerStartupMillis, futureDemand));
+      forecastTotal += desired;
+
+      target.add(helixTag, applyHysteresis(helixTag, desired, nowMillis), resource);
+    }
+
+    this.totalForecastContainers = forecastTotal;
+    this.totalTargetContainers = target.getTotalContainers();
+    if (forecastsEvaluated) {
+      this.lastForecastError = forecastError;
+    }
+    return target;
+  }
+
+  private int applyHysteresis(String helixTag, int desired, long nowMillis) {
+    ScalingState state = this.scalingStates.get(helixTag);
+    if (state == null) {
+      this.scalingStates.put(helixTag, new ScalingState(desired, nowMillis));
+      return desired;
+    }
+    if (desired > state.targetContainers) {
+      log.info("Scaling up helix tag {} from {} to {} containers", helixTag, state.targetContainers, desired);
+      incrementIfPresent(this.scaleUpDecisions);
+      state.targetContainers = desired;
+      state.lastChangeMillis = nowMillis;
+    } else if (desired < state.targetContainers) {
+      if (desired >= state.targetContainers * (1 - this.scaleDownHysteresisRatio)
+          || nowMillis - state.lastChangeMillis < this.scaleDownCooldownMillis) {
+        incrementIfPresent(this.heldScaleDownDecisions);
+        return state.targetContainers;
+      }
+      int step = Math.max(1, (int) Math.ceil(state.targetContainers * this.scaleDownMaxStepRatio));
+      int scaledDown = Math.max(desired, state.targetContainers - step);
+      log.info("Scaling down helix tag {} from {} to {} containers (demand {})", helixTag, state.targetContainers,
+          scaledDown, desired);
+      incrementIfPresent(this.scaleDownDecisions);
+      state.targetContainers = scaledDown;
+      state.lastChangeMillis = nowMillis;
+    }
+    return state.targetContainers;
+  }
+
+  private static void incrementIfPresent(Optional<Counter> counter) {
+    if (counter.isPresent()) {
+      counter.get().inc();
+    }
+  }
+
+  /**
+   * @return the mean absolute difference between the demand forecast one container startup time ahead and the
+   * demand observed at that time.
+   */
+  public double getMeanAbsoluteForecastError() {
+    return this.numForecastsEvaluated == 0 ? 0 : this.totalAbsoluteForecastError / this.numForecastsEvaluated;
+  }
+
+  private static class TaskDurationHistory {
+    private String currentHelixJobName;
+    private double currentRunMeanMillis = 0;
+    private int currentRunSamples = 0;
+    private double smoothedMillis = -1;
+  }
+
+  @AllArgsConstructor
+  private static class ScalingState {
+    private int targetContainers;
+    private long lastChangeMillis;
+  }
+
+  @Getter
+  @AllArgsConstructor
+  private static class PendingForecast {
+    private final long dueMillis;
+    private final double containers;
+  }
+
+  /**
+   * The demand of a Helix tag over one period, as the smoothed peak demand of each slot of the period.
+   */
+  private class DemandProfile {
+    private final double[] slotDemands = new double[(int) (prewarmPeriodMillis / prewarmSlotMillis)];
+    private final boolean[] slotObserved = new boolean[this.slotDemands.length];
+    private long currentSlotStartMillis = -1;
+    private int currentSlotPeak = 0;
+
+    private int slotIndex(long timeMillis) {
+      return (int) ((timeMillis / prewarmSlotMillis) % this.slotDemands.length);
+    }
+
+    void record(long nowMillis, int demand) {
+      long slotStartMillis = nowMillis - nowMillis % prewarmSlotMillis;
+      if (slotStartMillis != this.currentSlotStartMillis) {
+        foldCurrentSlot();
+        this.currentSlotStartMillis = slotStartMillis;
+        this.currentSlotPeak = demand;
+      } else {
+        this.currentSlotPeak = Math.max(this.currentSlotPeak, demand);
+      }
+    }
+
+    private void foldCurrentSlot() {
+      if (this.currentSlotStartMillis < 0) {
+        return;
+      }
+      int idx = slotIndex(this.currentSlotStartMillis);
+      this.slotDemands[idx] = this.slotObserved[idx]
+          ? prewarmSmoothingFactor * this.currentSlotPeak + (1 - prewarmSmoothingFactor) * this.slotDemands[idx]
+          : this.currentSlotPeak;
+      this.slotObserved[idx] = true;
+    }
+
+    /**
+     * @return the highest demand of the slots of previous periods between the two times, or 0 if none was observed.
+     */
+    double peak(long fromMillis, long toMillis) {
+      double peak = 0;
+      for (long time = fromMillis; time < toMillis + prewarmSlotMillis; time += prewarmSlotMillis) {
+        int idx = slotIndex(Math.min(time, toMillis));
+        // The slot being recorded has not been folded yet and only holds previous periods
+        if (this.slotObserved[idx]) {
+          peak = Math.max(peak, this.slotDemands[idx]);
+        }
+      }
+      return peak;
+    }
+
+    /**
+     * @return the demand expected at the given time, or the fallback if that slot was never observed.
+     */
+    double expected(long timeMillis, double fallback) {
+      int idx = slotIndex(timeMillis);
+      return this.slotObserved[idx] ? this.slotDemands[idx] : fallback;
+    }
+  }
+}
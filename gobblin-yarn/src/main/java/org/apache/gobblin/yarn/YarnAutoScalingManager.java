@@ -18,6 +18,7 @@
 package org.apache.gobblin.yarn;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -45,6 +46,7 @@ import org.apache.helix.task.JobConfig;
 import org.apache.helix.task.JobContext;
 import org.apache.helix.task.JobDag;
 import org.apache.helix.task.TargetState;
+import org.apache.helix.task.TaskConfig;
 import org.apache.helix.task.TaskDriver;
 import org.apache.helix.task.TaskPartitionState;
 import org.apache.helix.task.TaskState;
@@ -63,6 +65,8 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.apache.gobblin.cluster.GobblinClusterConfigurationKeys;
 import org.apache.gobblin.cluster.HelixUtils;
+import org.apache.gobblin.configuration.ConfigurationKeys;
+import org.apache.gobblin.metrics.MetricContext;
 import org.apache.gobblin.util.ConfigUtils;
 import org.apache.gobblin.util.ExecutorsUtils;
 import org.apache.gobblin.yarn.event.ContainerReleaseRequest;
@@ -117,6 +121,7 @@ public class YarnAutoScalingManager extends AbstractIdleService {
   private final boolean enableReleasingContainerHavingStuckTask;
   private final boolean enableDetectionStuckTask;
   private final HashSet<TaskPartitionState> detectionForStuckTaskStates;
+  private final Optional<PredictiveAutoScalingPolicy> predictiveAutoScalingPolicy;
   private static final HashSet<TaskPartitionState>
       UNUSUAL_HELIX_TASK_STATES = Sets.newHashSet(TaskPartitionState.ERROR, TaskPartitionState.DROPPED, TaskPartitionState.COMPLETED, TaskPartitionState.TIMED_OUT);
 
@@ -155,6 +160,14 @@ public class YarnAutoScalingManager extends AbstractIdleService {
         RELEASE_CONTAINER_IF_TASK_IS_STUCK, false);
     this.enableDetectionStuckTask = ConfigUtils.getBoolean(this.config, DETECT_IF_TASK_IS_STUCK, false);
     this.detectionForStuckTaskStates = getTaskStatesForWhichDetectionIsEnabled();
+    this.predictiveAutoScalingPolicy = ConfigUtils.getBoolean(this.config,
+        PredictiveAutoScalingPolicy.PREDICTIVE_AUTO_SCALING_ENABLED,
+        PredictiveAutoScalingPolicy.DEFAULT_PREDICTIVE_AUTO_SCALING_ENABLED)
+        ? Optional.of(new PredictiveAutoScalingPolicy(this.config, this.partitionsPerContainer, this.overProvisionFactor,
+            this.yarnService.getGobblinMetrics().isPresent()
+                ? Optional.of(this.yarnService.getGobblinMetrics().get().getMetricContext())
+                : Optional.<MetricContext>absent()))
+        : Optional.absent();
   }
 
   private HashSet<TaskPartitionState> getTaskStatesForWhichDetectionIsEnabled() {
@@ -192,7 +205,8 @@ public class YarnAutoScalingManager extends AbstractIdleService {
             this.slidingFixedSizeWindow, this.helixManager.getHelixDataAccessor(), this.defaultHelixInstanceTags,
             this.defaultContainerMemoryMbs, this.defaultContainerCores, this.taskAttemptsThreshold,
             this.splitWorkUnitReachThreshold, this.maxTimeInMinutesBeforeReleasingContainerHavingStuckTask,
-            this.enableReleasingContainerHavingStuckTask, this.enableDetectionStuckTask, this.detectionForStuckTaskStates),
+            this.enableReleasingContainerHavingStuckTask, this.enableDetectionStuckTask, this.detectionForStuckTaskStates,
+            this.predictiveAutoScalingPolicy),
         initialDelay, scheduleInterval, TimeUnit.SECONDS);
   }
 
@@ -225,6 +239,7 @@ public class YarnAutoScalingManager extends AbstractIdleService {
     private final boolean enableReleasingContainerHavingStuckTask;
     private final boolean enableDetectionStuckTask;
     private final HashSet<TaskPartitionState> taskStates;
+    private final Optional<PredictiveAutoScalingPolicy> predictiveAutoScalingPolicy;
 
     /**
      * A static map that keep track of an idle instance and its latest beginning idle time.
@@ -283,6 +298,47 @@ public class YarnAutoScalingManager extends AbstractIdleService {
       return null;
     }
 
+    /**
+     * Forecast the containers needed by a job with the {@link PredictiveAutoScalingPolicy} from the states of its
+     * tasks and the durations of its completed tasks.
+     */
+    private int forecastJobContainers(String jobName, JobContext jobContext, JobConfig jobConfig) {
+      int pendingTasks = 0;
+      int runningTasks = 0;
+      List<Long> completedTaskDurations = new ArrayList<>();
+      for (int partition : jobContext.getPartitionSet()) {
+        TaskPartitionState state = jobContext.getPartitionState(partition);
+        if (state == TaskPartitionState.RUNNING) {
+          runningTasks++;
+        } else if (state == TaskPartitionState.COMPLETED) {
+          long startTime = jobContext.getPartitionStartTime(partition);
+          long finishTime = jobContext.getPartitionFinishTime(partition);
+          if (startTime > 0 && finishTime >= startTime) {
+            completedTaskDurations.add(finishTime - startTime);
+          }
+        } else if (!UNUSUAL_HELIX_TASK_STATES.contains(state)) {
+          pendingTasks++;
+        }
+      }
+      return this.predictiveAutoScalingPolicy.get().forecastJobContainers(getJobKey(jobName, jobConfig), jobName,
+          pendingTasks, runningTasks, completedTaskDurations);
+    }
+
+    /**
+     * Helix job names change with every execution, so task durations are remembered by the Gobblin job name set in
+     * the task configs when there is one.
+     */
+    private static String getJobKey(String jobName, JobConfig jobConfig) {
+      if (jobConfig != null && !jobConfig.getTaskConfigMap().isEmpty()) {
+        TaskConfig taskConfig = jobConfig.getTaskConfigMap().values().iterator().next();
+        String gobblinJobName = taskConfig.getConfigMap().get(ConfigurationKeys.JOB_NAME_KEY);
+        if (!Strings.isNullOrEmpty(gobblinJobName)) {
+          return gobblinJobName;
+        }
+      }
+      return jobName;
+    }
+
     /**
      * Iterate through the workflows configured in Helix to figure out the number of required partitions
      * and request the {@link YarnService} to scale to the desired number of containers.
@@ -352,6 +408,9 @@ public class YarnAutoScalingManager extends AbstractIdleService {
           // compute the container count as a ceiling of number of partitions divided by the number of containers
           // per partition. Scale the result by a constant overprovision factor.
           int containerCount = (int) Math.ceil(((double)numPartitions / this.partitionsPerContainer) * this.overProvisionFactor);
+          if (this.predictiveAutoScalingPolicy.isPresent() && jobContext != null) {
+            containerCount = forecastJobContainers(jobName, jobContext, jobConfig);
+          }
           yarnContainerRequestBundle.add(jobTag, containerCount, resource);
           log.info("jobName={}, jobTag={}, numPartitions={}, targetNumContainers={}",
               jobName, jobTag, numPartitions, containerCount);
@@ -416,14 +475,24 @@ public class YarnAutoScalingManager extends AbstractIdleService {
         this.yarnService.getEventBus().post(new ContainerReleaseRequest(containersToRelease, true));
       }
 
-      slidingWindowReservoir.add(yarnContainerRequestBundle);
+      YarnContainerRequestBundle targetContainers;
+      if (this.predictiveAutoScalingPolicy.isPresent()) {
+        // The predictive policy smooths scale downs with its own hysteresis band, cool-down and bounded step, which the
+        // maximum over the sliding window would cancel, so its target is requested as is
+        yarnContainerRequestBundle = this.predictiveAutoScalingPolicy.get()
+            .computeTargetContainers(yarnContainerRequestBundle, System.currentTimeMillis());
+        targetContainers = yarnContainerRequestBundle;
+      } else {
+        slidingWindowReservoir.add(yarnContainerRequestBundle);
+        targetContainers = slidingWindowReservoir.getMax();
+      }
 
 
       log.debug("There are {} containers being requested in total, tag-count map {}, tag-resource map {}",
           yarnContainerRequestBundle.getTotalContainers(), yarnContainerRequestBundle.getHelixTagContainerCountMap(),
           yarnContainerRequestBundle.getHelixTagResourceMap());
 
-      this.yarnService.requestTargetNumberOfContainers(slidingWindowReservoir.getMax(), inUseInstances);
+      this.yarnService.requestTargetNumberOfContainers(targetContainers, inUseInstances);
     }
 
     /**
@@ -141,6 +141,7 @@ public class YarnService extends AbstractIdleService {
   private final Configuration yarnConfiguration;
   private final FileSystem fs;
 
+  @Getter
   private final Optional<GobblinMetrics> gobblinMetrics;
   @Getter
   private final Optional<EventSubmitter> eventSubmitter;
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.gobblin.yarn;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import org.apache.gobblin.metrics.MetricContext;
+
+
+/**
+ * Unit tests for {@link PredictiveAutoScalingPolicy}, driven by a simulated clock.
+ */
+@Test(groups = { "gobblin.yarn" })
+public class PredictiveAutoScalingPolicyTest {
+  private static final String HELIX_TAG = "DefaultHelixTag";
+  private static final Resource RESOURCE = Resource.newInstance(1024, 2);
+
+  private static YarnContainerRequestBundle demand(int containers) {
+    YarnContainerRequestBundle bundle = new YarnContainerRequestBundle();
+    bundle.add(HELIX_TAG, containers, RESOURCE);
+    return bundle;
+  }
+
+  private static int target(PredictiveAutoScalingPolicy policy, int containers, long nowSeconds) {
+    return policy.computeTargetContainers(demand(containers), TimeUnit.SECONDS.toMillis(nowSeconds))
+        .getTotalContainers();
+  }
+
+  @Test
+  public void testForecastFromTaskDuration() {
+    PredictiveAutoScalingPolicy policy =
+        new PredictiveAutoScalingPolicy(ConfigFactory.empty(), 1, 1.0, Optional.absent());
+
+    // Without any duration history, one container per outstanding task
+    Assert.assertEquals(policy.forecastJobContainers("shortJob", "shortJob_1", 10, 0, Collections.emptyList()), 10);
+    // 10 tasks of 30 seconds drain within the 300 seconds a new container takes to start with a single container
+    Assert.assertEquals(policy.forecastJobContainers("shortJob", "shortJob_1", 10, 0,
+        ImmutableList.of(30000L, 30000L, 30000L)), 1);
+    // Containers busy with running tasks are kept
+    Assert.assertEquals(policy.forecastJobContainers("shortJob", "shortJob_1", 0, 4,
+        ImmutableList.of(30000L, 30000L, 30000L)), 4);
+    // Long tasks need one container each
+    Assert.assertEquals(policy.forecastJobContainers("longJob", "longJob_1", 10, 0,
+        ImmutableList.of(600000L, 600000L, 600000L)), 10);
+  }
+
+  @Test
+  public void testTaskDurationHistoryAcrossRuns() {
+    PredictiveAutoScalingPolicy policy =
+        new PredictiveAutoScalingPolicy(ConfigFactory.empty(), 1, 1.0, Optional.absent());
+
+    policy.forecastJobContainers("hourlyJob", "hourlyJob_1", 0, 1, ImmutableList.of(60000L, 60000L, 60000L));
+    // The next run has not completed any task yet: 20 tasks of 60 seconds over a 300 seconds startup time
+    Assert.assertEquals(policy.forecastJobContainers("hourlyJob", "hourlyJob_2", 20, 0, Collections.emptyList()), 4);
+  }
+
+  @Test
+  public void testGradualScaleDownWithHysteresis() {
+    PredictiveAutoScalingPolicy policy =
+        new PredictiveAutoScalingPolicy(ConfigFactory.empty(), 1, 1.0, Optional.absent());
+
+    Assert.assertEquals(target(policy, 20, 0), 20);
+    // Within the hysteresis band
+    Assert.assertEquals(target(policy, 18, 60), 20);
+    // Within the cool-down after the last change
+    Assert.assertEquals(target(policy, 0, 120), 20);
+    // Scale down by at most a quarter of the target per cool-down
+    Assert.assertEquals(target(policy, 0, 301), 15);
+    Assert.assertEquals(target(policy, 0, 400), 15);
+    Assert.assertEquals(target(policy, 0, 602), 11);
+    // Scaling up is immediate
+    Assert.assertEquals(target(policy, 30, 660), 30);
+  }
+
+  @Test
+  public void testPrewarmBeforeHourlyBurst() {
+    Config config = ConfigFactory.parseMap(ImmutableMap.of(PredictiveAutoScalingPolicy.PREWARM_ENABLED, true));
+    MetricContext metricContext = MetricContext.builder("testPrewarmBeforeHourlyBurst").build();
+    PredictiveAutoScalingPolicy policy =
+        new PredictiveAutoScalingPolicy(config, 1, 1.0, Optional.of(metricContext));
+
+    // Simulate a cluster polled every minute running a burst needing 50 containers in the first 10 minutes of the hour
+    int[] targets = new int[120];
+    for (int minute = 0; minute < targets.length; minute++) {
+      int currentDemand = minute % 60 < 10 ? 50 : 0;
+      targets[minute] = target(policy, currentDemand, TimeUnit.MINUTES.toSeconds(minute));
+    }
+
+    // Scaled down gradually after the burst
+    Assert.assertTrue(targets[20] < 50 && targets[20] > 0);
+    Assert.assertTrue(targets[54] < targets[20]);
+    // Pre-warmed one container startup time ahead of the next burst
+    Assert.assertEquals(targets[55], 50);
+    Assert.assertEquals(targets[59], 50);
+    Assert.assertEquals(targets[115], 50);
+    Assert.assertTrue(metricContext.getCounters().get(PredictiveAutoScalingPolicy.PREWARM_DECISIONS).getCount() > 0);
+    Assert.assertTrue(metricContext.getCounters().get(PredictiveAutoScalingPolicy.SCALE_DOWN_DECISIONS).getCount() > 0);
+    // The burst of the second hour was forecast from the first one
+    Assert.assertTrue(policy.getMeanAbsoluteForecastError() < 50);
+  }
+}
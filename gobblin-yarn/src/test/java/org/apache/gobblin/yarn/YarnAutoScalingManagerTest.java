@@ -48,6 +48,7 @@ import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.eventbus.EventBus;
+import com.typesafe.config.ConfigFactory;
 
 import org.apache.gobblin.cluster.GobblinClusterConfigurationKeys;
 import org.apache.gobblin.yarn.event.ContainerReleaseRequest;
@@ -88,7 +89,7 @@ public class YarnAutoScalingManagerTest {
             1.0, noopQueue, helixDataAccessor, defaultHelixTag, defaultContainerMemory,
             defaultContainerCores, 20, false,
             10,
-            false, false, new HashSet<>());
+            false, false, new HashSet<>(), Optional.absent());
 
     runnable.run();
     ArgumentCaptor<YarnContainerRequestBundle> argument = ArgumentCaptor.forClass(YarnContainerRequestBundle.class);
@@ -121,7 +122,7 @@ public class YarnAutoScalingManagerTest {
             1.0, noopQueue, helixDataAccessor, defaultHelixTag, defaultContainerMemory,
             defaultContainerCores, 20, false,
             10,
-            false, false, new HashSet<>());
+            false, false, new HashSet<>(), Optional.absent());
 
     runnable.run();
 
@@ -161,7 +162,7 @@ public class YarnAutoScalingManagerTest {
             1.0, noopQueue, helixDataAccessor, defaultHelixTag, defaultContainerMemory,
             defaultContainerCores, 20, false,
             10,
-            false, false, new HashSet<>());
+            false, false, new HashSet<>(), Optional.absent());
 
     runnable.run();
 
@@ -203,7 +204,7 @@ public class YarnAutoScalingManagerTest {
             1.0, noopQueue, helixDataAccessor, defaultHelixTag, defaultContainerMemory,
             defaultContainerCores, 20, false,
             10,
-            false, false, new HashSet<>());
+            false, false, new HashSet<>(), Optional.absent());
 
     runnable.run();
 
@@ -233,7 +234,7 @@ public class YarnAutoScalingManagerTest {
             1.0, noopQueue, helixDataAccessor, defaultHelixTag, defaultContainerMemory,
             defaultContainerCores, 20, false,
             10,
-            false, false, new HashSet<>());
+            false, false, new HashSet<>(), Optional.absent());
 
     runnable.run();
 
@@ -259,7 +260,7 @@ public class YarnAutoScalingManagerTest {
             1.2, noopQueue, helixDataAccessor, defaultHelixTag, defaultContainerMemory,
             defaultContainerCores, 20, false,
             10,
-            false, false, new HashSet<>());
+            false, false, new HashSet<>(), Optional.absent());
 
     runnable1.run();
 
@@ -274,7 +275,7 @@ public class YarnAutoScalingManagerTest {
             0.1, noopQueue, helixDataAccessor, defaultHelixTag, defaultContainerMemory,
             defaultContainerCores, 20, false,
             10,
-            false, false, new HashSet<>());
+            false, false, new HashSet<>(), Optional.absent());
 
     runnable2.run();
 
@@ -289,7 +290,7 @@ public class YarnAutoScalingManagerTest {
             6.0, noopQueue, helixDataAccessor, defaultHelixTag, defaultContainerMemory,
             defaultContainerCores, 20, false,
             10,
-            false, false, new HashSet<>());
+            false, false, new HashSet<>(), Optional.absent());
 
     runnable3.run();
 
@@ -419,7 +420,7 @@ public class YarnAutoScalingManagerTest {
             1.0, noopQueue, helixDataAccessor, defaultHelixTag, defaultContainerMemory,
             defaultContainerCores, 20, false,
             10,
-            false, false, new HashSet<>());
+            false, false, new HashSet<>(), Optional.absent());
 
     runnable.run();
 
@@ -480,6 +481,49 @@ public class YarnAutoScalingManagerTest {
   }
 
 
+  /**
+   * Test sizing a job from its pending and running tasks and task durations with the predictive policy
+   */
+  @Test
+  public void testPredictiveAutoScaling() {
+    YarnService mockYarnService = mock(YarnService.class);
+    TaskDriver mockTaskDriver = mock(TaskDriver.class);
+    WorkflowConfig mockWorkflowConfig =
+        getWorkflowConfig(mockTaskDriver, ImmutableSet.of("job1"), TaskState.IN_PROGRESS, TargetState.START, "workflow1");
+    Mockito.when(mockTaskDriver.getWorkflows()).thenReturn(ImmutableMap.of("workflow1", mockWorkflowConfig));
+
+    JobContext mockJobContext = getJobContext(mockTaskDriver, ImmutableMap.of(3, "GobblinYarnTaskRunner-1"), "job1",
+        ImmutableSet.of(1, 2, 3, 4));
+    // Two tasks of one minute completed, one is running and one is pending
+    for (int partition : ImmutableSet.of(1, 2)) {
+      Mockito.when(mockJobContext.getPartitionState(partition)).thenReturn(TaskPartitionState.COMPLETED);
+      Mockito.when(mockJobContext.getPartitionStartTime(partition)).thenReturn(1000L);
+      Mockito.when(mockJobContext.getPartitionFinishTime(partition)).thenReturn(61000L);
+    }
+    Mockito.when(mockJobContext.getPartitionState(3)).thenReturn(TaskPartitionState.RUNNING);
+    Mockito.when(mockJobContext.getPartitionState(4)).thenReturn(TaskPartitionState.INIT);
+
+    HelixDataAccessor helixDataAccessor = getHelixDataAccessor(Arrays.asList("GobblinYarnTaskRunner-1"));
+
+    // A larger request in the sliding window must not hold back the target of the predictive policy
+    YarnAutoScalingManager.SlidingWindowReservoir window = new YarnAutoScalingManager.SlidingWindowReservoir(3, 10);
+    window.add(GobblinYarnTestUtils.createYarnContainerRequest(5,
+        Resource.newInstance(defaultContainerMemory, defaultContainerCores)));
+
+    YarnAutoScalingManager.YarnAutoScalingRunnable runnable =
+        new YarnAutoScalingManager.YarnAutoScalingRunnable(mockTaskDriver, mockYarnService, 1,
+            1.0, window, helixDataAccessor, defaultHelixTag, defaultContainerMemory,
+            defaultContainerCores, 20, false,
+            10,
+            false, false, new HashSet<>(),
+            Optional.of(new PredictiveAutoScalingPolicy(ConfigFactory.empty(), 1, 1.0, Optional.absent())));
+
+    runnable.run();
+
+    // The pending task of one minute is drained by the running container before a new one could start
+    assertContainerRequest(mockYarnService, 1, ImmutableSet.of("GobblinYarnTaskRunner-1"));
+  }
+
   private HelixDataAccessor getHelixDataAccessor(List<String> taskRunners) {
     HelixDataAccessor helixDataAccessor = mock(HelixDataAccessor.class);
     Mockito.when(helixDataAccessor.keyBuilder()).thenReturn(new PropertyKey.Builder("cluster"));
@@ -550,7 +594,7 @@ public class YarnAutoScalingManagerTest {
           10,
           true, true, new HashSet<TaskPartitionState>() {{
             add(TaskPartitionState.INIT);
-          }});
+          }}, Optional.absent());
     }
 
     @Override